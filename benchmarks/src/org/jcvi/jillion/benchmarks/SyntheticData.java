@@ -0,0 +1,279 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.jcvi.jillion.core.qual.QualitySequenceBuilder;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequence;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequenceBuilder;
+import org.jcvi.jillion.fasta.nt.NucleotideFastaWriter;
+import org.jcvi.jillion.fasta.nt.NucleotideFastaWriterBuilder;
+import org.jcvi.jillion.sam.SamFileWriterBuilder;
+import org.jcvi.jillion.sam.SamRecordBuilder;
+import org.jcvi.jillion.sam.SamRecordFlag;
+import org.jcvi.jillion.sam.SamWriter;
+import org.jcvi.jillion.sam.SortOrder;
+import org.jcvi.jillion.sam.cigar.Cigar;
+import org.jcvi.jillion.sam.header.SamHeader;
+import org.jcvi.jillion.sam.header.SamHeaderBuilder;
+import org.jcvi.jillion.sam.header.SamReferenceSequenceBuilder;
+import org.jcvi.jillion.trace.fastq.FastqWriter;
+import org.jcvi.jillion.trace.fastq.FastqWriterBuilder;
+import org.jcvi.jillion.vcf.VcfContigInfo;
+import org.jcvi.jillion.vcf.VcfFileWriter;
+import org.jcvi.jillion.vcf.VcfHeader;
+/**
+ * Generates reproducible synthetic sequencing data
+ * so the benchmarks don't need any external files.
+ * All the methods take a {@link Random} so the same
+ * seed always generates the same data.
+ * 
+ * @author dkatzel
+ *
+ */
+public final class SyntheticData {
+
+    private static final char[] ACGT = "ACGT".toCharArray();
+    /**
+     * The quality bins used by modern Illumina
+     * instruments which makes long runs of the same value.
+     */
+    private static final byte[] BINNED_QUALITIES = {2, 12, 23, 37};
+    
+    private SyntheticData(){
+        //can not instantiate
+    }
+    /**
+     * Create a random String of bases.
+     * @param random the random number generator to use.
+     * @param length the number of bases.
+     * @param alphabet the bases to choose from.
+     * @return a new String.
+     */
+    public static String randomBases(Random random, int length, String alphabet){
+        char[] bases = new char[length];
+        for(int i=0; i< length; i++){
+            bases[i] = alphabet.charAt(random.nextInt(alphabet.length()));
+        }
+        return new String(bases);
+    }
+    /**
+     * Create a random ACGT only String of bases.
+     * @param random the random number generator to use.
+     * @param length the number of bases.
+     * @return a new String.
+     */
+    public static String randomBases(Random random, int length){
+        char[] bases = new char[length];
+        for(int i=0; i< length; i++){
+            bases[i] = ACGT[random.nextInt(4)];
+        }
+        return new String(bases);
+    }
+    /**
+     * Create a copy of the given sequence with
+     * the given fraction of bases randomly substituted.
+     * 
+     * @param random the random number generator to use.
+     * @param seq the sequence to copy.
+     * @param divergence the fraction of the bases to change;
+     * should be between 0 and 1.
+     * @return a new NucleotideSequence.
+     */
+    public static NucleotideSequence mutate(Random random, NucleotideSequence seq, double divergence){
+        char[] bases = seq.toString().toCharArray();
+        for(int i=0; i< bases.length; i++){
+            if(random.nextDouble() < divergence){
+                bases[i] = ACGT[random.nextInt(4)];
+            }
+        }
+        return new NucleotideSequenceBuilder(bases).build();
+    }
+    /**
+     * Create random quality values.
+     * @param random the random number generator to use.
+     * @param length the number of quality values.
+     * @param binned if {@code true} only use the 4 Illumina quality bins
+     * and make runs of the same value; otherwise every quality value
+     * is a random value between 2 and 41.
+     * @return a new byte array.
+     */
+    public static byte[] randomQualities(Random random, int length, boolean binned){
+        byte[] quals = new byte[length];
+        if(!binned){
+            for(int i=0; i< length; i++){
+                quals[i] = (byte)(2 + random.nextInt(40));
+            }
+            return quals;
+        }
+        int i=0;
+        while(i < length){
+            //mostly high quality
+            byte value = random.nextInt(10) < 7 ? BINNED_QUALITIES[3] : BINNED_QUALITIES[random.nextInt(3)];
+            int runLength = 1 + random.nextInt(20);
+            for(int j=0; j< runLength && i < length; j++){
+                quals[i++] = value;
+            }
+        }
+        return quals;
+    }
+    /**
+     * Write a fastq file of random reads.
+     * @param random the random number generator to use.
+     * @param out the file to write.
+     * @param numberOfReads the number of reads to write.
+     * @param readLength the length of each read.
+     * @throws IOException if there is a problem writing the file.
+     */
+    public static void writeFastq(Random random, File out, int numberOfReads, int readLength) throws IOException{
+        try(FastqWriter writer = new FastqWriterBuilder(out).build()){
+            for(int i=0; i< numberOfReads; i++){
+                writer.write("read_" + i, 
+                        new NucleotideSequenceBuilder(randomBases(random, readLength)).build(),
+                        new QualitySequenceBuilder(randomQualities(random, readLength, true)).build());
+            }
+        }
+    }
+    /**
+     * Write a fasta file of random sequences along with
+     * its {@code .fai} index file.
+     * @param random the random number generator to use.
+     * @param out the fasta file to write.
+     * @param numberOfSequences the number of sequences to write;
+     * the ids will be {@code seq_$i}.
+     * @param length the length of each sequence.
+     * @throws IOException if there is a problem writing the file.
+     */
+    public static void writeIndexedFasta(Random random, File out, int numberOfSequences, int length) throws IOException{
+        try(NucleotideFastaWriter writer = new NucleotideFastaWriterBuilder(out)
+                                                    .createIndex(true)
+                                                    .build()){
+            for(int i=0; i< numberOfSequences; i++){
+                writer.write("seq_" + i, new NucleotideSequenceBuilder(randomBases(random, length)).build());
+            }
+        }
+    }
+    /**
+     * Create a header for a coordinate sorted BAM
+     * with the given number of reference sequences.
+     * @param numberOfReferences the number of references;
+     * the names will be {@code ref_$i}.
+     * @param referenceLength the length of each reference.
+     * @return a new SamHeader.
+     */
+    public static SamHeader createHeader(int numberOfReferences, int referenceLength){
+        SamHeaderBuilder builder = new SamHeaderBuilder()
+                                            .setSortOrder(SortOrder.COORDINATE);
+        for(int i=0; i< numberOfReferences; i++){
+            builder.addReferenceSequence(new SamReferenceSequenceBuilder("ref_" + i, referenceLength).build());
+        }
+        return builder.build();
+    }
+    /**
+     * Write a coordinate sorted BAM file of random reads
+     * evenly distributed across the references in the header.
+     * @param random the random number generator to use.
+     * @param out the BAM file to write.
+     * @param header the header to use; must have references
+     * whose names are {@code ref_$i}.
+     * @param readsPerReference the number of reads to write per reference.
+     * @param readLength the length of each read.
+     * @param createIndex also write a {@code .bai} file.
+     * @throws IOException if there is a problem writing the file.
+     */
+    public static void writeBam(Random random, File out, SamHeader header, int readsPerReference, int readLength, boolean createIndex) throws IOException{
+        Cigar cigar = Cigar.parse(readLength + "M");
+        int numberOfReferences = header.getReferenceSequences().size();
+        try(SamWriter writer = new SamFileWriterBuilder(out, header)
+                                        .createBamIndex(createIndex)
+                                        .build()){
+            for(int ref=0; ref < numberOfReferences; ref++){
+                String refName = "ref_" + ref;
+                int referenceLength = header.getReferenceSequence(refName).getLength();
+                double step = (referenceLength - readLength) / (double) readsPerReference;
+                for(int i=0; i< readsPerReference; i++){
+                    writer.writeRecord(new SamRecordBuilder(header)
+                                        .setQueryName(refName + "_read_" + i)
+                                        .setFlags(random.nextBoolean()? 0 : SamRecordFlag.REVERSE_COMPLEMENTED.getBitFlags())
+                                        .setReferenceName(refName)
+                                        .setStartPosition(1 + (int)(i * step))
+                                        .setMappingQuality(60)
+                                        .setCigar(cigar)
+                                        .setSequence(new NucleotideSequenceBuilder(randomBases(random, readLength)).build())
+                                        .setQualities(new QualitySequenceBuilder(randomQualities(random, readLength, true)).build())
+                                        .build());
+                }
+            }
+        }
+    }
+    /**
+     * Write a sorted VCF file of random SNPs on a single
+     * chromosome with {@code GT:DP} values for each sample.
+     * @param random the random number generator to use.
+     * @param out the VCF file to write.
+     * @param numberOfRecords the number of variants to write.
+     * @param numberOfSamples the number of sample columns.
+     * @param bgzip write a bgzipped file instead of plain text.
+     * @throws IOException if there is a problem writing the file.
+     */
+    public static void writeVcf(Random random, File out, int numberOfRecords, int numberOfSamples, boolean bgzip) throws IOException{
+        VcfHeader.VcfHeaderBuilder builder = VcfHeader.builder()
+                                                .version("4.2")
+                                                .contigInfo(VcfContigInfo.builder().id("chr1").length(500_000_000).build());
+        for(int i=0; i< numberOfSamples; i++){
+            builder.extraColumn("sample_" + i);
+        }
+        VcfHeader header = builder.build();
+        String[] genotypes = {"0/0", "0/1", "1/1", "./."};
+        try(VcfFileWriter writer = bgzip ? new VcfFileWriter(header, out, false) : new VcfFileWriter(header, new PrintWriter(out))){
+            int position=0;
+            for(int i=0; i< numberOfRecords; i++){
+                position += 1 + random.nextInt(100);
+                List<String> samples = new ArrayList<>(numberOfSamples);
+                for(int s=0; s< numberOfSamples; s++){
+                    samples.add(genotypes[random.nextInt(genotypes.length)] + ":" + random.nextInt(60));
+                }
+                String ref = randomBases(random, 1);
+                writer.writeData("chr1", position, "rs" + i, ref, ref.equals("A")? "C" : "A", 
+                        random.nextInt(100), "PASS", "DP=" + random.nextInt(1000) + ";AF=0." + random.nextInt(10), 
+                        "GT:DP", samples);
+            }
+        }
+    }
+    /**
+     * Create a temp file that will be deleted when the JVM exits.
+     * @param prefix the prefix of the file name.
+     * @param suffix the suffix of the file name.
+     * @return a new File.
+     * @throws IOException if there is a problem creating the file.
+     */
+    public static File createTempFile(String prefix, String suffix) throws IOException{
+        File f = File.createTempFile(prefix, suffix);
+        f.deleteOnExit();
+        return f;
+    }
+}
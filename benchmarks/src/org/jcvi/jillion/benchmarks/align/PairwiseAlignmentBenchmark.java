@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.benchmarks.align;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.jcvi.jillion.align.NucleotideSubstitutionMatrices;
+import org.jcvi.jillion.align.NucleotideSubstitutionMatrix;
+import org.jcvi.jillion.align.pairwise.NucleotidePairwiseSequenceAlignment;
+import org.jcvi.jillion.align.pairwise.PairwiseAlignmentBuilder;
+import org.jcvi.jillion.benchmarks.SyntheticData;
+import org.jcvi.jillion.core.residue.nt.Nucleotide;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequence;
+import org.jcvi.jillion.testutils.NucleotideSequenceTestUtil;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+/**
+ * Throughput of the Needleman-Wunsch (global)
+ * and Smith-Waterman (local) aligners.
+ * The number of dynamic programming matrix cells
+ * computed is reported as the {@code cells} secondary
+ * result so different sequence lengths can be compared
+ * as cells/second.
+ * A negative {@code bandWidth} computes the full matrix;
+ * otherwise only the cells within the band are computed.
+ * The low memory benchmark ignores the band width.
+ * 
+ * @author dkatzel
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PairwiseAlignmentBenchmark {
+
+    @Param({"100", "500", "2000"})
+    public int length;
+    
+    @Param({"0.1"})
+    public double divergence;
+    
+    @Param({"-1", "64"})
+    public int bandWidth;
+    
+    private NucleotideSequence query;
+    private NucleotideSequence subject;
+    private NucleotideSubstitutionMatrix matrix;
+    
+    @Setup(Level.Trial)
+    public void setup(){
+        query = NucleotideSequenceTestUtil.createRandom(length);
+        subject = SyntheticData.mutate(new Random(1234), query, divergence);
+        matrix = NucleotideSubstitutionMatrices.getNuc44();
+    }
+    /**
+     * Counts the number of matrix cells computed.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class CellCounter{
+        public long cells;
+    }
+    
+    @Benchmark
+    public NucleotidePairwiseSequenceAlignment global(CellCounter counter){
+        return align(counter, false);
+    }
+    
+    @Benchmark
+    public NucleotidePairwiseSequenceAlignment local(CellCounter counter){
+        return align(counter, true);
+    }
+    /**
+     * Global alignment in low memory (divide and conquer) mode;
+     * only the full matrix cells are counted even though
+     * some rows are computed more than once.
+     */
+    @Benchmark
+    public NucleotidePairwiseSequenceAlignment globalLowMemory(CellCounter counter){
+        counter.cells += query.getLength() * subject.getLength();
+        return PairwiseAlignmentBuilder.createNucleotideAlignmentBuilder(query, subject, matrix)
+                        .gapPenalty(-16, -1)
+                        .useGlobalAlignment()
+                        .lowMemory(true)
+                        .build();
+    }
+    
+    private NucleotidePairwiseSequenceAlignment align(CellCounter counter, boolean local){
+        PairwiseAlignmentBuilder<Nucleotide, NucleotideSequence, NucleotidePairwiseSequenceAlignment> builder = PairwiseAlignmentBuilder.createNucleotideAlignmentBuilder(query, subject, matrix)
+                        .gapPenalty(-16, -1)
+                        .useLocalAlignment(local);
+        if(bandWidth < 0){
+            counter.cells += query.getLength() * subject.getLength();
+        }else{
+            builder.bandWidth(bandWidth);
+            counter.cells += query.getLength() * Math.min(subject.getLength(), 2L*bandWidth +1);
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.benchmarks.core;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.jcvi.jillion.core.Range;
+import org.jcvi.jillion.internal.core.util.Caches;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+/**
+ * Multi-threaded {@link Range} construction throughput
+ * using read-like coordinates (similar to what is built
+ * from CIGARs and trim points).
+ * <p>
+ * {@code legacy} recreates the old global flyweight cache
+ * (a synchronized map of soft references keyed by a new key object
+ * per lookup) so it can be compared against the current lock-free
+ * cache used by {@link Range#of(long, long)} and
+ * not caching at all via {@link Range.Builder#buildWithoutCache()}.
+ * Run with {@code -t} to change the number of threads.
+ * 
+ * @author dkatzel
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@Threads(Threads.MAX)
+public class RangeCacheBenchmark {
+
+    /**
+     * The number of distinct coordinates to build
+     * which affects the hit rate.
+     */
+    @Param({"1000", "1000000"})
+    public int distinctRanges;
+    
+    private long[] begins;
+    private long[] ends;
+    
+    private Map<LegacyKey, Range> legacyCache;
+    
+    @Setup(Level.Trial)
+    public void setup(){
+        Random random = new Random(1234);
+        int numberOfLookups = 1<<16;
+        begins = new long[numberOfLookups];
+        ends = new long[numberOfLookups];
+        int maxBegin = Math.max(1, distinctRanges / 100);
+        for(int i=0; i< numberOfLookups; i++){
+            //reads start anywhere and are mostly 100-200bp long
+            begins[i] = random.nextInt(maxBegin);
+            ends[i] = begins[i] + 100 + random.nextInt(100);
+        }
+        legacyCache = Caches.createSoftReferencedValueCache(1024);
+    }
+    
+    @Benchmark
+    public void legacy(Blackhole blackhole){
+        for(int i=0; i< begins.length; i++){
+            long begin = begins[i];
+            long end = ends[i];
+            blackhole.consume(legacyCache.computeIfAbsent(new LegacyKey((int) begin, (int) end),
+                    k-> new Range.Builder(begin, end).buildWithoutCache()));
+        }
+    }
+    
+    @Benchmark
+    public void cached(Blackhole blackhole){
+        for(int i=0; i< begins.length; i++){
+            blackhole.consume(Range.of(begins[i], ends[i]));
+        }
+    }
+    
+    @Benchmark
+    public void uncached(Blackhole blackhole){
+        for(int i=0; i< begins.length; i++){
+            blackhole.consume(new Range.Builder(begins[i], ends[i]).buildWithoutCache());
+        }
+    }
+    
+    private static final class LegacyKey{
+        private final int begin, end;
+
+        LegacyKey(int begin, int end) {
+            this.begin = begin;
+            this.end = end;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 + begin) + end;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof LegacyKey)) {
+                return false;
+            }
+            LegacyKey other = (LegacyKey) obj;
+            return begin == other.begin && end == other.end;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.benchmarks.datastore;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.jcvi.jillion.core.datastore.DataStore;
+import org.jcvi.jillion.core.datastore.DataStoreException;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequence;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequenceBuilder;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequenceDataStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+/**
+ * Tight {@link DataStore#get(String)} loops through
+ * adapted and cached DataStores.
+ * <p>
+ * The {@code proxy} variants use a DataStore sub-interface
+ * that isn't one of the standard Jillion interfaces so it is still
+ * implemented with a {@link java.lang.reflect.Proxy}
+ * while the other variants use {@link NucleotideSequenceDataStore}
+ * which is implemented by a concrete adapter class.
+ * 
+ * @author dkatzel
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DataStoreAdapterBenchmark {
+
+    /**
+     * Number of records; the cache is
+     * big enough to hold all of them.
+     */
+    @Param({"1000"})
+    public int numberOfRecords;
+    
+    private String[] ids;
+    
+    private NucleotideSequenceDataStore adapted;
+    private ProxiedDataStore adaptedProxy;
+    private NucleotideSequenceDataStore cached;
+    private ProxiedDataStore cachedProxy;
+    
+    @Setup(Level.Trial)
+    public void setup(){
+        Map<String, NucleotideSequence> map = new LinkedHashMap<>();
+        ids = new String[numberOfRecords];
+        NucleotideSequence seq = new NucleotideSequenceBuilder("ACGTACGTACGT").build();
+        for(int i=0; i< numberOfRecords; i++){
+            ids[i] = "read" + i;
+            map.put(ids[i], seq);
+        }
+        DataStore<NucleotideSequence> datastore = DataStore.of(map);
+        adapted = DataStore.adapt(NucleotideSequenceDataStore.class, datastore);
+        adaptedProxy = DataStore.adapt(ProxiedDataStore.class, datastore);
+        cached = DataStore.cache(NucleotideSequenceDataStore.class, adapted, numberOfRecords);
+        cachedProxy = DataStore.cache(ProxiedDataStore.class, adaptedProxy, numberOfRecords);
+    }
+    
+    private void getAll(DataStore<NucleotideSequence> datastore, Blackhole bh) throws DataStoreException{
+        for(String id : ids){
+            bh.consume(datastore.get(id));
+        }
+    }
+    
+    @Benchmark
+    public void adapted(Blackhole bh) throws DataStoreException{
+        getAll(adapted, bh);
+    }
+    
+    @Benchmark
+    public void adaptedProxy(Blackhole bh) throws DataStoreException{
+        getAll(adaptedProxy, bh);
+    }
+    
+    @Benchmark
+    public void cached(Blackhole bh) throws DataStoreException{
+        getAll(cached, bh);
+    }
+    
+    @Benchmark
+    public void cachedProxy(Blackhole bh) throws DataStoreException{
+        getAll(cachedProxy, bh);
+    }
+    
+    /**
+     * Not a standard Jillion interface so it has to be proxied.
+     */
+    public interface ProxiedDataStore extends DataStore<NucleotideSequence>{
+        
+    }
+}
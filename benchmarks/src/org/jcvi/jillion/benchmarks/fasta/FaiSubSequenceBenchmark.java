@@ -0,0 +1,113 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.benchmarks.fasta;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.jcvi.jillion.benchmarks.SyntheticData;
+import org.jcvi.jillion.core.Range;
+import org.jcvi.jillion.core.datastore.DataStoreException;
+import org.jcvi.jillion.core.datastore.DataStoreProviderHint;
+import org.jcvi.jillion.fasta.nt.NucleotideFastaDataStore;
+import org.jcvi.jillion.fasta.nt.NucleotideFastaFileDataStoreBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+/**
+ * Compares how fast random subsequences can be fetched
+ * from an indexed fasta file (that has a {@code .fai} file)
+ * using streams vs memory mapping the fasta file.
+ * 
+ * @author dkatzel
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FaiSubSequenceBenchmark {
+    
+    private static final int NUMBER_OF_SEQUENCES = 20;
+    private static final int SEQUENCE_LENGTH = 1_000_000;
+    private static final int FETCHES_PER_INVOCATION = 1_000;
+    
+    @Param({"150", "10000"})
+    public int windowLength;
+    
+    @Param({"false", "true"})
+    public boolean memoryMap;
+    
+    private File fasta;
+    private NucleotideFastaDataStore datastore;
+    
+    private String[] windowIds;
+    private Range[] windows;
+    
+    @Setup(Level.Trial)
+    public void setup() throws IOException{
+        Random random = new Random(1234);
+        fasta = SyntheticData.createTempFile("benchmark", ".fasta");
+        SyntheticData.writeIndexedFasta(random, fasta, NUMBER_OF_SEQUENCES, SEQUENCE_LENGTH);
+        datastore = new NucleotideFastaFileDataStoreBuilder(fasta)
+                            .hint(DataStoreProviderHint.ITERATION_ONLY)
+                            .memoryMapFastaFile(memoryMap)
+                            .build();
+        windowIds = new String[FETCHES_PER_INVOCATION];
+        windows = new Range[FETCHES_PER_INVOCATION];
+        for(int i=0; i< FETCHES_PER_INVOCATION; i++){
+            long start = random.nextInt(SEQUENCE_LENGTH - windowLength);
+            windowIds[i] = "seq_" + random.nextInt(NUMBER_OF_SEQUENCES);
+            windows[i] = Range.of(start, start + windowLength -1);
+        }
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException{
+        datastore.close();
+        fasta.delete();
+        new File(fasta.getPath() + ".fai").delete();
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(FETCHES_PER_INVOCATION)
+    public void fetchRandomWindows(Blackhole blackhole) throws DataStoreException{
+        for(int i=0; i< windowIds.length; i++){
+            blackhole.consume(datastore.getSubSequence(windowIds[i], windows[i]));
+        }
+    }
+}
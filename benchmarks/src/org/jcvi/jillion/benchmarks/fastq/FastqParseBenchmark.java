@@ -0,0 +1,158 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.benchmarks.fastq;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.jcvi.jillion.benchmarks.SyntheticData;
+import org.jcvi.jillion.core.qual.QualitySequence;
+import org.jcvi.jillion.trace.fastq.AbstractFastqRecordVisitor;
+import org.jcvi.jillion.trace.fastq.AbstractFastqVisitor;
+import org.jcvi.jillion.trace.fastq.FastqFileParserBuilder;
+import org.jcvi.jillion.trace.fastq.FastqParser;
+import org.jcvi.jillion.trace.fastq.FastqQualityCodec;
+import org.jcvi.jillion.trace.fastq.FastqRecord;
+import org.jcvi.jillion.trace.fastq.FastqRecordVisitor;
+import org.jcvi.jillion.trace.fastq.FastqVisitor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+/**
+ * Throughput of parsing a synthetic fastq file
+ * with different numbers of threads
+ * both with and without preserving the record order.
+ * 
+ * @author dkatzel
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FastqParseBenchmark {
+
+    @Param({"200000"})
+    public int numberOfReads;
+    
+    @Param({"150"})
+    public int readLength;
+    
+    @Param({"1", "4"})
+    public int numberOfThreads;
+    
+    @Param({"true", "false"})
+    public boolean preserveOrder;
+    
+    private File fastq;
+    
+    @Setup(Level.Trial)
+    public void writeFastq() throws IOException{
+        fastq = SyntheticData.createTempFile("benchmark", ".fastq");
+        SyntheticData.writeFastq(new Random(1234), fastq, numberOfReads, readLength);
+    }
+    
+    @TearDown(Level.Trial)
+    public void deleteFastq(){
+        fastq.delete();
+    }
+    
+    private FastqParser createParser() throws IOException{
+        return new FastqFileParserBuilder(fastq)
+                        .numberOfThreads(numberOfThreads)
+                        .preserveOrder(preserveOrder)
+                        .build();
+    }
+    /**
+     * Parse just the encoded Strings without
+     * building any sequence objects.
+     */
+    @Benchmark
+    public long parseEncodedStrings() throws IOException{
+        LongAdder bases = new LongAdder();
+        createParser().parse(new AbstractFastqVisitor() {
+            @Override
+            public FastqRecordVisitor visitDefline(FastqVisitorCallback callback, String id, String optionalComment) {
+                return new FastqRecordVisitor() {
+                    @Override
+                    public void visitNucleotides(String nucleotides) {
+                        bases.add(nucleotides.length());
+                    }
+                    @Override
+                    public void visitEncodedQualities(String encodedQualities) {
+                        bases.add(encodedQualities.length());
+                    }
+                    @Override
+                    public void visitQualities(QualitySequence qualities) {
+                        //no-op
+                    }
+                    @Override
+                    public void visitEnd() {
+                        //no-op
+                    }
+                    @Override
+                    public void halted() {
+                        //no-op
+                    }
+                };
+            }
+        });
+        return bases.sum();
+    }
+    /**
+     * Parse and build full {@link FastqRecord} objects
+     * which includes encoding the bases and qualities.
+     * Run with {@code -prof gc} to see the allocation rate.
+     */
+    @Benchmark
+    public void parseRecords(Blackhole blackhole) throws IOException{
+        FastqVisitor visitor = new AbstractFastqVisitor() {
+            @Override
+            public FastqRecordVisitor visitDefline(FastqVisitorCallback callback, String id, String optionalComment) {
+                return new AbstractFastqRecordVisitor(id, optionalComment, FastqQualityCodec.SANGER) {
+                    @Override
+                    protected void visitRecord(FastqRecord record) {
+                        //parsed records are lazy so force the encoding
+                        blackhole.consume(record.getNucleotideSequence());
+                        blackhole.consume(record.getQualitySequence());
+                    }
+                };
+            }
+        };
+        createParser().parse(visitor);
+    }
+}
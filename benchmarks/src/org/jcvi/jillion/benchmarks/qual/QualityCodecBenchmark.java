@@ -0,0 +1,118 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.benchmarks.qual;
+
+import java.util.Iterator;
+import java.util.OptionalDouble;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.jcvi.jillion.benchmarks.SyntheticData;
+import org.jcvi.jillion.core.qual.PhredQuality;
+import org.jcvi.jillion.core.qual.QualitySequence;
+import org.jcvi.jillion.core.qual.QualitySequenceBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+/**
+ * Encode and decode throughput of {@link QualitySequence}s.
+ * Binned qualities have long runs of the same value so 
+ * {@link QualitySequenceBuilder#build()} will use the run length encoded codec
+ * while random qualities (or turning off data compression)
+ * store one byte per quality.
+ * 
+ * @author dkatzel
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class QualityCodecBenchmark {
+
+    @Param({"true", "false"})
+    public boolean binned;
+    
+    @Param({"false", "true"})
+    public boolean turnOffDataCompression;
+    
+    @Param({"150", "10000"})
+    public int length;
+    
+    private byte[] qualities;
+    private QualitySequence sequence;
+    private int[] randomOffsets;
+    
+    @Setup(Level.Trial)
+    public void setup(){
+        Random random = new Random(1234);
+        qualities = SyntheticData.randomQualities(random, length, binned);
+        sequence = encode();
+        randomOffsets = new int[1024];
+        for(int i=0; i< randomOffsets.length; i++){
+            randomOffsets[i] = random.nextInt(length);
+        }
+    }
+    
+    @Benchmark
+    public QualitySequence encode(){
+        return new QualitySequenceBuilder(qualities)
+                        .turnOffDataCompression(turnOffDataCompression)
+                        .build();
+    }
+    
+    @Benchmark
+    public byte[] decodeToArray(){
+        return sequence.toArray();
+    }
+    
+    @Benchmark
+    public void decodeIterator(Blackhole blackhole){
+        Iterator<PhredQuality> iter = sequence.iterator();
+        while(iter.hasNext()){
+            blackhole.consume(iter.next());
+        }
+    }
+    
+    @Benchmark
+    public void decodeRandomAccess(Blackhole blackhole){
+        for(int offset : randomOffsets){
+            blackhole.consume(sequence.get(offset));
+        }
+    }
+    
+    @Benchmark
+    public OptionalDouble averageQuality(){
+        return sequence.getAvgQuality();
+    }
+}
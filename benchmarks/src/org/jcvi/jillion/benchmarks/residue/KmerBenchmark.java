@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.benchmarks.residue;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.jcvi.jillion.benchmarks.SyntheticData;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequence;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequenceBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+/**
+ * Throughput of enumerating all the k-mers of a sequence
+ * as {@link org.jcvi.jillion.core.residue.Kmer} objects
+ * compared to packed 2 bit k-mers.
+ * 
+ * @author dkatzel
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class KmerBenchmark {
+    
+    @Param({"ACGTACGTACGTACGT", "ACGTACGTACGTACGTN-"})
+    public String alphabet;
+    
+    @Param({"10000"})
+    public int length;
+    
+    @Param({"11", "31"})
+    public int k;
+    
+    private NucleotideSequence sequence;
+    private NucleotideSequence uncompressedSequence;
+    
+    @Setup(Level.Trial)
+    public void setup(){
+        String bases = SyntheticData.randomBases(new Random(1234), length, alphabet);
+        sequence = new NucleotideSequenceBuilder(bases).build();
+        uncompressedSequence = new NucleotideSequenceBuilder(bases)
+                                        .turnOffDataCompression(true)
+                                        .build();
+    }
+    
+    @Benchmark
+    public void kmerObjects(Blackhole blackhole){
+        sequence.kmers(k).forEach(blackhole::consume);
+    }
+    
+    @Benchmark
+    public long packedKmers(){
+        return sequence.packedKmers(k).sum();
+    }
+    
+    @Benchmark
+    public long canonicalPackedKmers(){
+        return sequence.packedKmers(k, true).sum();
+    }
+    
+    @Benchmark
+    public void forEachPackedKmer(Blackhole blackhole){
+        sequence.forEachPackedKmer(k, true, (offset, kmer) -> blackhole.consume(kmer));
+    }
+    
+    @Benchmark
+    public long uncompressedPackedKmers(){
+        return uncompressedSequence.packedKmers(k, true).sum();
+    }
+}
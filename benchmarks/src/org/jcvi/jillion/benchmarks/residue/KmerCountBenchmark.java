@@ -0,0 +1,142 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.benchmarks.residue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.jcvi.jillion.benchmarks.SyntheticData;
+import org.jcvi.jillion.core.residue.Kmer;
+import org.jcvi.jillion.core.residue.nt.KmerCountTable;
+import org.jcvi.jillion.core.residue.nt.KmerCounterBuilder;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequence;
+import org.jcvi.jillion.core.util.iter.StreamingIterator;
+import org.jcvi.jillion.trace.fastq.FastqDataStore;
+import org.jcvi.jillion.trace.fastq.FastqFileDataStoreBuilder;
+import org.jcvi.jillion.trace.fastq.FastqFileParserBuilder;
+import org.jcvi.jillion.trace.fastq.FastqRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+/**
+ * Time to count all the k-mers in a fastq file
+ * using {@link Kmer} objects in a {@link HashMap}
+ * compared to the {@link org.jcvi.jillion.core.residue.nt.KmerCounter}
+ * with different numbers of threads, with and without spilling to disk.
+ * 
+ * @author dkatzel
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class KmerCountBenchmark {
+
+    @Param({"20000"})
+    public int numberOfReads;
+    
+    @Param({"150"})
+    public int readLength;
+    
+    @Param({"21"})
+    public int k;
+    
+    @Param({"1", "4"})
+    public int numberOfThreads;
+    
+    private File fastq;
+    private FastqDataStore datastore;
+    
+    @Setup(Level.Trial)
+    public void writeFastq() throws IOException{
+        fastq = SyntheticData.createTempFile("benchmark", ".fastq");
+        SyntheticData.writeFastq(new Random(1234), fastq, numberOfReads, readLength);
+        datastore = new FastqFileDataStoreBuilder(fastq).build();
+    }
+    
+    @TearDown(Level.Trial)
+    public void deleteFastq() throws IOException{
+        datastore.close();
+        fastq.delete();
+    }
+    
+    @Benchmark
+    public int hashMapOfKmers() throws IOException{
+        Map<Kmer<NucleotideSequence>, Long> counts = new HashMap<>();
+        try(StreamingIterator<FastqRecord> iter = datastore.iterator()){
+            while(iter.hasNext()){
+                iter.next().getNucleotideSequence()
+                            .kmers(k)
+                            .forEach(kmer -> counts.merge(new Kmer<>(0, kmer.getValue()), 1L, Long::sum));
+            }
+        }
+        return counts.size();
+    }
+    
+    @Benchmark
+    public long countDataStore() throws IOException{
+        KmerCountTable table = new KmerCounterBuilder(k)
+                                        .numberOfThreads(numberOfThreads)
+                                        .build()
+                                        .count(datastore);
+        return table.getNumberOfDistinctKmers();
+    }
+    
+    @Benchmark
+    public long countParser() throws IOException{
+        KmerCountTable table = new KmerCounterBuilder(k)
+                                        .numberOfThreads(numberOfThreads)
+                                        .build()
+                                        .count(new FastqFileParserBuilder(fastq)
+                                                        .numberOfThreads(numberOfThreads)
+                                                        .build());
+        return table.getNumberOfDistinctKmers();
+    }
+    
+    @Benchmark
+    public long countParserWithSpilling() throws IOException{
+        KmerCountTable table = new KmerCounterBuilder(k)
+                                        .numberOfThreads(numberOfThreads)
+                                        .maxMemory(1024 * 1024)
+                                        .build()
+                                        .count(new FastqFileParserBuilder(fastq)
+                                                        .numberOfThreads(numberOfThreads)
+                                                        .build());
+        return table.getNumberOfDistinctKmers();
+    }
+}
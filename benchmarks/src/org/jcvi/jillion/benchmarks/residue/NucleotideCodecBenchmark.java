@@ -0,0 +1,145 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.benchmarks.residue;
+
+import java.util.Iterator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.jcvi.jillion.benchmarks.SyntheticData;
+import org.jcvi.jillion.core.residue.nt.Nucleotide;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequence;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequenceBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+/**
+ * Encode and decode throughput of {@link NucleotideSequence}s.
+ * {@link NucleotideSequenceBuilder#build()} picks the most compact
+ * codec for the bases it contains so each {@link Alphabet}
+ * exercises a different codec: 2 bits per base for ACGT only,
+ * ACGT plus N, ACGT plus gaps, and 4 bits per base for 
+ * everything else.
+ * 
+ * @author dkatzel
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class NucleotideCodecBenchmark {
+    
+    public enum Alphabet{
+        ACGT("ACGT"),
+        ACGTN("ACGTACGTACGTACGTN"),
+        GAPPED("ACGTACGTACGTACGT-"),
+        AMBIGUOUS("ACGTACGTRYKMSWN-");
+        
+        private final String bases;
+        
+        Alphabet(String bases){
+            this.bases = bases;
+        }
+    }
+    
+    @Param({"ACGT", "ACGTN", "GAPPED", "AMBIGUOUS"})
+    public Alphabet alphabet;
+    
+    @Param({"150", "10000"})
+    public int length;
+    
+    private String bases;
+    private Nucleotide[] baseArray;
+    private NucleotideSequence sequence;
+    private int[] randomOffsets;
+    
+    @Setup(Level.Trial)
+    public void setup(){
+        Random random = new Random(1234);
+        bases = SyntheticData.randomBases(random, length, alphabet.bases);
+        sequence = new NucleotideSequenceBuilder(bases).build();
+        baseArray = new Nucleotide[length];
+        for(int i=0; i< length; i++){
+            baseArray[i] = sequence.get(i);
+        }
+        randomOffsets = new int[1024];
+        for(int i=0; i< randomOffsets.length; i++){
+            randomOffsets[i] = random.nextInt(length);
+        }
+    }
+    
+    @Benchmark
+    public NucleotideSequence encode(){
+        return new NucleotideSequenceBuilder(bases).build();
+    }
+    
+    @Benchmark
+    public NucleotideSequence appendAndEncode(){
+        NucleotideSequenceBuilder builder = new NucleotideSequenceBuilder(length);
+        for(Nucleotide base : baseArray){
+            builder.append(base);
+        }
+        return builder.build();
+    }
+    
+    @Benchmark
+    public String decodeToString(){
+        return sequence.toString();
+    }
+    
+    @Benchmark
+    public void decodeIterator(Blackhole blackhole){
+        Iterator<Nucleotide> iter = sequence.iterator();
+        while(iter.hasNext()){
+            blackhole.consume(iter.next());
+        }
+    }
+    
+    @Benchmark
+    public void decodeRandomAccess(Blackhole blackhole){
+        for(int offset : randomOffsets){
+            blackhole.consume(sequence.get(offset));
+        }
+    }
+    
+    @Benchmark
+    public long ungappedLength(){
+        return sequence.getUngappedLength();
+    }
+    
+    @Benchmark
+    public NucleotideSequence reverseComplement(){
+        return sequence.toBuilder().reverseComplement().build();
+    }
+}
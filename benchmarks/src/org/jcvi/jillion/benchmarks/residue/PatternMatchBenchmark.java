@@ -0,0 +1,142 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.benchmarks.residue;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.jcvi.jillion.benchmarks.SyntheticData;
+import org.jcvi.jillion.core.residue.nt.NucleotidePattern;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequence;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequenceBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+/**
+ * Time to scan a chromosome sized sequence for a motif
+ * using regular expressions over the decoded String
+ * compared to {@link NucleotidePattern}s searched for
+ * directly in the encoded bases.
+ * 
+ * @author dkatzel
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PatternMatchBenchmark {
+    
+    @Param({"ACGT", "ACGTN"})
+    public String alphabet;
+    
+    @Param({"5000000"})
+    public int length;
+    
+    private NucleotideSequence sequence;
+    
+    private Pattern literalRegex;
+    private Pattern degenerateRegex;
+    private Pattern strandsRegex;
+    
+    private NucleotidePattern degenerate;
+    private NucleotidePattern bothStrands;
+    private NucleotidePattern mismatches;
+    private NucleotidePattern edits;
+    
+    @Setup(Level.Trial)
+    public void setup(){
+        sequence = new NucleotideSequenceBuilder(SyntheticData.randomBases(new Random(1234), length, alphabet))
+                            .build();
+        literalRegex = Pattern.compile("GAATTC");
+        //GANTC which is the same as IUPAC GANTC on a sequence without ambiguities
+        degenerateRegex = Pattern.compile("GA[ACGT]TC");
+        strandsRegex = Pattern.compile("GGATG|CATCC");
+        
+        degenerate = NucleotidePattern.compile("GANTC");
+        bothStrands = new NucleotidePattern.Builder("GGATG").bothStrands(true).build();
+        mismatches = new NucleotidePattern.Builder("ACGTTGCAAGGCTTAACCGG").maxMismatches(2).bothStrands(true).build();
+        edits = new NucleotidePattern.Builder("ACGTTGCAAGGCTTAACCGG").maxEdits(2).bothStrands(true).build();
+    }
+    
+    @Benchmark
+    public long literalRegex(){
+        return sequence.findMatches(literalRegex).count();
+    }
+    
+    @Benchmark
+    public long stringRegexLiteral(){
+        //what findMatches(Pattern) used to do for every pattern
+        return countMatches(literalRegex, sequence.toString());
+    }
+    
+    @Benchmark
+    public long stringRegexDegenerate(){
+        return countMatches(degenerateRegex, sequence.toString());
+    }
+    
+    @Benchmark
+    public long stringRegexBothStrands(){
+        return countMatches(strandsRegex, sequence.toString());
+    }
+    
+    @Benchmark
+    public long degeneratePattern(){
+        return sequence.findMatches(degenerate).count();
+    }
+    
+    @Benchmark
+    public long bothStrandsPattern(){
+        return sequence.findMatches(bothStrands).count();
+    }
+    
+    @Benchmark
+    public long mismatchPattern(){
+        return sequence.findMatches(mismatches).count();
+    }
+    
+    @Benchmark
+    public long editPattern(){
+        return sequence.findMatches(edits).count();
+    }
+    
+    private static long countMatches(Pattern pattern, String bases){
+        Matcher matcher = pattern.matcher(bases);
+        long count=0;
+        while(matcher.find()){
+            count++;
+        }
+        return count;
+    }
+}
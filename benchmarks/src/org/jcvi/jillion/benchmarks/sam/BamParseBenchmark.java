@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.benchmarks.sam;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.jcvi.jillion.benchmarks.SyntheticData;
+import org.jcvi.jillion.sam.AbstractSamVisitor;
+import org.jcvi.jillion.sam.SamParserFactory;
+import org.jcvi.jillion.sam.SamRecord;
+import org.jcvi.jillion.sam.VirtualFileOffset;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+/**
+ * Throughput of parsing a synthetic BAM file
+ * with different numbers of BGZF inflater threads
+ * and with eager vs lazy record decoding.
+ * 
+ * @author dkatzel
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BamParseBenchmark {
+
+    @Param({"20000"})
+    public int readsPerReference;
+    
+    @Param({"1", "4"})
+    public int inflaterThreads;
+    
+    @Param({"false", "true"})
+    public boolean lazyDecoding;
+    
+    private File bam;
+    
+    @Setup(Level.Trial)
+    public void writeBam() throws IOException{
+        bam = SyntheticData.createTempFile("benchmark", ".bam");
+        SyntheticData.writeBam(new Random(1234), bam, SyntheticData.createHeader(5, 5_000_000), readsPerReference, 150, false);
+    }
+    
+    @TearDown(Level.Trial)
+    public void deleteBam(){
+        bam.delete();
+    }
+    /**
+     * Parse every record and touch its sequence
+     * so lazy records still have to decode something.
+     */
+    @Benchmark
+    public void parse(Blackhole blackhole) throws IOException{
+        SamParserFactory.create(bam, SamParserFactory.Parameters.builder()
+                                            .bgzfInflaterThreads(inflaterThreads)
+                                            .lazyBamRecordDecoding(lazyDecoding)
+                                            .build())
+                        .parse(new AbstractSamVisitor() {
+                            @Override
+                            public void visitRecord(SamVisitorCallback callback, SamRecord record,
+                                    VirtualFileOffset start, VirtualFileOffset end) {
+                                blackhole.consume(record.getStartPosition());
+                                blackhole.consume(record.getSequence());
+                            }
+                        });
+    }
+}
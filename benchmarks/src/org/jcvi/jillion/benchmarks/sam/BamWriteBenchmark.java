@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.benchmarks.sam;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.jcvi.jillion.benchmarks.SyntheticData;
+import org.jcvi.jillion.core.util.ThrowingStream;
+import org.jcvi.jillion.sam.SamFileDataStore;
+import org.jcvi.jillion.sam.SamFileWriterBuilder;
+import org.jcvi.jillion.sam.SamRecord;
+import org.jcvi.jillion.sam.SamWriter;
+import org.jcvi.jillion.sam.header.SamHeader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+/**
+ * Throughput of writing BAM files using
+ * the single threaded BGZF compression vs
+ * compressing blocks on several threads.
+ * The records are read into memory first so only
+ * the writing (and compressing) is timed.
+ * 
+ * @author dkatzel
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BamWriteBenchmark {
+
+    @Param({"20000"})
+    public int readsPerReference;
+    
+    @Param({"1", "4"})
+    public int compressionThreads;
+    
+    @Param({"1", "5"})
+    public int compressionLevel;
+    
+    private SamHeader header;
+    private List<SamRecord> records;
+    private File outputBam;
+    
+    @Setup(Level.Trial)
+    public void readRecords() throws IOException{
+        File inputBam = SyntheticData.createTempFile("benchmark", ".bam");
+        SyntheticData.writeBam(new Random(1234), inputBam, SyntheticData.createHeader(5, 5_000_000), readsPerReference, 150, false);
+        
+        records = new ArrayList<>();
+        try(SamFileDataStore datastore = SamFileDataStore.fromFile(inputBam);
+            ThrowingStream<SamRecord> stream = datastore.records();
+          ){
+            header = datastore.getHeader();
+            stream.forEach(records::add);
+        }
+        inputBam.delete();
+        outputBam = SyntheticData.createTempFile("benchmarkOut", ".bam");
+    }
+    
+    @TearDown(Level.Trial)
+    public void deleteBam(){
+        outputBam.delete();
+    }
+    
+    @Benchmark
+    public long write() throws IOException{
+        try(SamWriter writer = new SamFileWriterBuilder(outputBam, header)
+                                        .setBamCompressionThreads(compressionThreads)
+                                        .setBamCompressionLevel(compressionLevel)
+                                        .build()){
+            for(SamRecord r : records){
+                writer.writeRecord(r);
+            }
+        }
+        return outputBam.length();
+    }
+}
@@ -0,0 +1,148 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.benchmarks.vcf;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.jcvi.jillion.benchmarks.SyntheticData;
+import org.jcvi.jillion.vcf.AbtractVcfVisitor;
+import org.jcvi.jillion.vcf.VcfColumnarVisitor;
+import org.jcvi.jillion.vcf.VcfFileParserBuilder;
+import org.jcvi.jillion.vcf.VcfHeader;
+import org.jcvi.jillion.vcf.VcfParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+/**
+ * Records per second of parsing a synthetic multi-sample
+ * VCF file with different numbers of threads,
+ * both plain text and bgzipped.  Each invocation parses
+ * the whole file so the reported ops/s is records/s.
+ * 
+ * @author dkatzel
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class VcfParseBenchmark {
+    
+    private static final int NUMBER_OF_RECORDS = 50_000;
+
+    @Param({"100"})
+    public int numberOfSamples;
+    
+    @Param({"1", "4"})
+    public int numberOfThreads;
+    
+    @Param({"true", "false"})
+    public boolean preserveOrder;
+    
+    @Param({"false", "true"})
+    public boolean bgzip;
+    
+    private File vcf;
+    
+    @Setup(Level.Trial)
+    public void writeVcf() throws IOException{
+        vcf = SyntheticData.createTempFile("benchmark", bgzip ? ".vcf.gz" : ".vcf");
+        SyntheticData.writeVcf(new Random(1234), vcf, NUMBER_OF_RECORDS, numberOfSamples, bgzip);
+    }
+    
+    @TearDown(Level.Trial)
+    public void deleteVcf(){
+        vcf.delete();
+    }
+    
+    private VcfParser createParser() throws IOException{
+        return new VcfFileParserBuilder(vcf)
+                        .numberOfThreads(numberOfThreads)
+                        .preserveOrder(preserveOrder)
+                        .build();
+    }
+    /**
+     * Decode every record into Strings
+     * using {@code visitData}.
+     */
+    @Benchmark
+    @OperationsPerInvocation(NUMBER_OF_RECORDS)
+    public long decodeAllFields() throws IOException{
+        LongAdder count = new LongAdder();
+        createParser().parse(new AbtractVcfVisitor() {
+            
+            @Override
+            public void visitData(VcfVisitorCallback callback, String chromId, int position, String id, String refBase,
+                    String altBase, int quality, String filter, String info, String format, List<String> extraFields) {
+                count.add(extraFields.size());
+            }
+            
+            @Override
+            protected void visitHeader(VcfVisitorCallback callback, VcfHeader header) {
+                //no-op
+            }
+        });
+        return count.sum();
+    }
+    /**
+     * Pull just the genotypes into columnar batches.
+     * The columnar visitor isn't thread-safe so this 
+     * only makes sense when order is preserved.
+     */
+    @Benchmark
+    @OperationsPerInvocation(NUMBER_OF_RECORDS)
+    public long columnarGenotypes() throws IOException{
+        if(!preserveOrder){
+            return 0;
+        }
+        long[] nonRefAlleles = new long[1];
+        createParser().parse(VcfColumnarVisitor.builder(batch ->{
+                                byte[] genotypes = batch.getGenotypes();
+                                int length = batch.getNumberOfRecords() * batch.getNumberOfSamples();
+                                for(int i=0; i< length; i++){
+                                    if(genotypes[i] >0){
+                                        nonRefAlleles[0] += genotypes[i];
+                                    }
+                                }
+                            })
+                            .genotypes()
+                            .build());
+        return nonRefAlleles[0];
+    }
+}
@@ -0,0 +1,373 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.align.pairwise;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.jcvi.jillion.align.SequenceAlignment;
+import org.jcvi.jillion.align.SubstitutionMatrix;
+import org.jcvi.jillion.core.residue.Residue;
+import org.jcvi.jillion.core.residue.ResidueSequence;
+import org.jcvi.jillion.core.residue.ResidueSequenceBuilder;
+import org.jcvi.jillion.internal.align.SequenceAlignmentBuilder;
+/**
+ * {@code BandedPairwiseAligner} is a dynamic programming
+ * pairwise aligner that only computes the cells
+ * of the matrix whose diagonal (subject offset - query offset)
+ * falls inside of a given band.  
+ * <p>
+ * The cells are computed one anti-diagonal at a time
+ * so that all the cells computed in a pass
+ * only depend on the previous two passes.  The scores and gap
+ * states are kept in primitive arrays indexed by diagonal (split by parity) 
+ * so the inner loop walks contiguous memory without any object
+ * allocation, which the JIT is able to unroll and vectorize.
+ * Only the traceback directions of the cells inside the band are kept
+ * so memory usage is O( (m+n) * bandWidth ) instead of O(m*n).
+ * <p>
+ * The recurrence, tie breaking and traceback are the same
+ * as {@link AbstractSmithWatermanAligner} and {@link AbstractNeedlemanWunschAligner}
+ * so if the band covers the optimal path, the alignment produced is identical
+ * to the one produced by the full matrix aligners.
+ * 
+ * @author dkatzel
+ *
+ * @param <R> the type of {@link Residue} used in this aligner.
+ * @param <S> the {@link ResidueSequence} type input into this aligner.
+ * @param <A> the {@link SequenceAlignment} type returned by this aligner.
+ * @param <P> the {@link PairwiseSequenceAlignment} type returned by this aligner.
+ * 
+ * @since 6.0.3
+ */
+final class BandedPairwiseAligner<R extends Residue, S extends ResidueSequence<R, S, B>, B extends ResidueSequenceBuilder<R, S, B>, A extends SequenceAlignment<R, S>, P extends PairwiseSequenceAlignment<R, S>> {
+
+	private static final byte TERMINAL = 0;
+	private static final byte HORIZONTAL = 1;
+	private static final byte VERTICAL = 2;
+	private static final byte DIAGONAL = 3;
+	
+	private final ResiduePairwiseStrategy<R,S,B,A,P> pairwiseStrategy;
+	private final boolean local;
+	/**
+	 * The lowest and highest diagonals (inclusive) in the band.
+	 */
+	private final int lowestDiagonal, highestDiagonal;
+	
+	private final byte[] queryOrdinals, subjectOrdinals;
+	/**
+	 * The traceback directions for each anti-diagonal
+	 * only the cells that are inside the band
+	 * are stored.
+	 */
+	private final byte[][] traceback;
+	/**
+	 * The diagonal of the first cell stored in each anti-diagonal
+	 * of the traceback.
+	 */
+	private final int[] tracebackFirstDiagonal;
+	
+	/**
+	 * The cell to start the traceback from.
+	 */
+	private int startRow, startColumn;
+	private float startScore;
+	
+	private final P alignment;
+	
+	/**
+	 * Align the given two sequences using only the cells
+	 * of the dynamic programming matrix whose diagonals are
+	 * within {@code bandWidth} of the expected diagonal.
+	 * 
+	 * @param query the query sequence to align; can not be null.
+	 * @param subject the subject sequence to align; can not be null.
+	 * @param matrix the {@link SubstitutionMatrix} to use; can not be null.
+	 * @param openGapPenalty the penalty value for opening a gap.
+	 * @param extendGapPenalty the penalty for extending an already open gap.
+	 * @param local {@code true} for a Smith-Waterman local alignment;
+	 * {@code false} for a Needleman-Wunsch global alignment.  Global
+	 * alignments will widen the band to include the beginning and end of both sequences.
+	 * @param expectedDiagonal the subject offset minus the query offset
+	 * that the alignment is expected to follow.
+	 * @param bandWidth the number of diagonals on either side of the expected
+	 * diagonal to compute; must be &ge; 0.
+	 * @param pairwiseStrategy the {@link ResiduePairwiseStrategy} for the residue type.
+	 * @param subjectShiftAmount the subject shift to pass to the alignment builder; may be null.
+	 * @return a new alignment; will never be null.
+	 * 
+	 * @throws NullPointerException if query, subject or matrix are null.
+	 * @throws IllegalArgumentException if bandWidth is negative.
+	 */
+	static <R extends Residue, S extends ResidueSequence<R, S, B>, B extends ResidueSequenceBuilder<R, S, B>, A extends SequenceAlignment<R, S>, P extends PairwiseSequenceAlignment<R, S>> P align(
+			S query, S subject, SubstitutionMatrix<R> matrix, float openGapPenalty, float extendGapPenalty,
+			boolean local, int expectedDiagonal, int bandWidth,
+			ResiduePairwiseStrategy<R,S,B,A,P> pairwiseStrategy, Integer subjectShiftAmount){
+		if(bandWidth < 0){
+			throw new IllegalArgumentException("band width can not be negative : " + bandWidth);
+		}
+		long low = (long) expectedDiagonal - bandWidth;
+		long high = (long) expectedDiagonal + bandWidth;
+		return new BandedPairwiseAligner<>(query, subject, matrix, openGapPenalty, extendGapPenalty,
+				local, low, high, pairwiseStrategy, subjectShiftAmount).alignment;
+	}
+	
+	private BandedPairwiseAligner(S query, S subject, SubstitutionMatrix<R> matrix, float openGapPenalty, float extendGapPenalty,
+			boolean local, long lowestDiagonal, long highestDiagonal,
+			ResiduePairwiseStrategy<R,S,B,A,P> pairwiseStrategy, Integer subjectShiftAmount){
+		if(query ==null){
+			throw new NullPointerException("query sequence can not be null");
+		}
+		if(subject ==null){
+			throw new NullPointerException("subject sequence can not be null");
+		}
+		if(matrix ==null){
+			throw new NullPointerException("scoring matrix can not be null");
+		}
+		this.pairwiseStrategy = pairwiseStrategy;
+		this.local = local;
+		queryOrdinals = pairwiseStrategy.toOrdinals(query);
+		subjectOrdinals = pairwiseStrategy.toOrdinals(subject);
+		int m = queryOrdinals.length;
+		int n = subjectOrdinals.length;
+		
+		if(!local){
+			//global alignments have to include the path from (0,0) to (m,n)
+			lowestDiagonal = Math.min(lowestDiagonal, Math.min(0, n-m));
+			highestDiagonal = Math.max(highestDiagonal, Math.max(0, n-m));
+		}
+		//nothing outside of the matrix
+		this.lowestDiagonal = (int) Math.max(lowestDiagonal, -m);
+		this.highestDiagonal = (int) Math.min(highestDiagonal, n);
+		
+		traceback = new byte[m+n+1][];
+		tracebackFirstDiagonal = new int[m+n+1];
+		
+		populateTraceback(pairwiseStrategy.createScoreTable(matrix, queryOrdinals, subjectOrdinals), openGapPenalty, extendGapPenalty);
+		alignment = traceBack(subjectShiftAmount);
+	}
+	
+	/**
+	 * Fill in the band of the matrix one anti-diagonal at a time
+	 * and set the cell to start the traceback from.
+	 */
+	private void populateTraceback(float[] scoreTable, float openGapPenalty, float extendGapPenalty){
+		final int m = queryOrdinals.length;
+		final int n = subjectOrdinals.length;
+		final int lo = lowestDiagonal;
+		final int numberOfResidues = pairwiseStrategy.getResidueList().size();
+		//scores and gap states indexed by diagonal
+		//split by parity so each anti-diagonal reads and writes
+		//contiguous elements.  Each array has 1 element of padding on either side
+		//to represent the cells just outside of the band.
+		int size = lowestDiagonal > highestDiagonal ? 2 : ((highestDiagonal - lo +1) >> 1) + 2;
+		float[][] scores = new float[2][size];
+		boolean[][] inHorizontalGap = new boolean[2][size];
+		boolean[][] inVerticalGap = new boolean[2][size];
+		Arrays.fill(scores[0], Float.NEGATIVE_INFINITY);
+		Arrays.fill(scores[1], Float.NEGATIVE_INFINITY);
+		//the first row and column of the matrix
+		//each diagonal's first cell is on the edge of the matrix
+		for(int t = lo; t<= 0 && t <= highestDiagonal; t++){
+			scores[(t-lo) & 1][((t - lo) >> 1) +1] = 0;
+		}
+		//same cumulative gap scores as the global aligner's first row
+		float gapScore = openGapPenalty;
+		for(int t = 1; t<= highestDiagonal; t++){
+			if(t >1){
+				gapScore +=extendGapPenalty;
+			}
+			if(t >= lo){
+				scores[(t-lo) & 1][((t - lo) >> 1) +1] = local ? 0 : gapScore;
+			}
+		}
+		
+		int[] sequenceIndex = new int[size];
+		
+		startScore = Float.NEGATIVE_INFINITY;
+		startRow = 0;
+		startColumn = 0;
+		
+		byte[] reversedQuery = new byte[m];
+		for(int i=0; i<m; i++){
+			reversedQuery[i] = queryOrdinals[m -1 -i];
+		}
+		final byte[] subject = subjectOrdinals;
+		
+		for(int a=2; a<= m+n; a++){
+			int firstDiagonal = Math.max(lo, Math.max(a -2*m, 2-a));
+			int lastDiagonal = Math.min(highestDiagonal, Math.min(a-2, 2*n -a));
+			if(((a - firstDiagonal) & 1) !=0){
+				firstDiagonal++;
+			}
+			if(((a - lastDiagonal) & 1) !=0){
+				lastDiagonal--;
+			}
+			if(firstDiagonal > lastDiagonal){
+				traceback[a] = new byte[0];
+				continue;
+			}
+			int count = ((lastDiagonal - firstDiagonal) >> 1) +1;
+			byte[] directions = new byte[count];
+			traceback[a] = directions;
+			tracebackFirstDiagonal[a] = firstDiagonal;
+			
+			int parity = (firstDiagonal - lo) & 1;
+			float[] current = scores[parity];
+			float[] other = scores[1-parity];
+			boolean[] currentH = inHorizontalGap[parity];
+			boolean[] otherH = inHorizontalGap[1-parity];
+			boolean[] currentV = inVerticalGap[parity];
+			boolean[] otherV = inVerticalGap[1-parity];
+			//the cell to the left is diagonal t-1 and the cell above is diagonal t+1
+			//which are in the other parity array either at the same index or 1 off
+			int leftOffset = parity ==1 ? 0 : -1;
+			int upOffset = leftOffset +1;
+			int start = ((firstDiagonal - lo) >> 1) +1;
+			//row and column of the first cell in this pass
+			//rows decrease and columns increase as we walk the anti-diagonal
+			int firstRow = (a - firstDiagonal) >> 1;
+			int firstColumn = (a + firstDiagonal) >> 1;
+			int queryStart = m - firstRow;
+			int subjectStart = firstColumn -1;
+			
+			for(int c=0; c< count; c++){
+				sequenceIndex[c] = reversedQuery[queryStart +c] * numberOfResidues + subject[subjectStart +c];
+			}
+			for(int c=0, k=start; c< count; c++, k++){
+				float up = other[k + upOffset];
+				float left = other[k + leftOffset];
+				
+				float verticalExtend = otherV[k + upOffset] ? up + extendGapPenalty : Float.NEGATIVE_INFINITY;
+				float verticalOpen = up + openGapPenalty;
+				float vertical = verticalExtend > verticalOpen ? verticalExtend : verticalOpen;
+				
+				float horizontalExtend = otherH[k + leftOffset] ? left + extendGapPenalty : Float.NEGATIVE_INFINITY;
+				float horizontalOpen = left + openGapPenalty;
+				float horizontal = horizontalExtend >= horizontalOpen ? horizontalExtend : horizontalOpen;
+				
+				float diagonal = current[k] + scoreTable[sequenceIndex[c]];
+				
+				float best;
+				byte direction;
+				if(diagonal >= horizontal){
+					if(diagonal >= vertical){
+						best = diagonal;
+						direction = DIAGONAL;
+					}else{
+						best = vertical;
+						direction = VERTICAL;
+					}
+				}else if(horizontal >= vertical){
+					best = horizontal;
+					direction = HORIZONTAL;
+				}else{
+					best = vertical;
+					direction = VERTICAL;
+				}
+				if(local && best <= 0){
+					best = 0;
+					direction = TERMINAL;
+				}
+				current[k] = best;
+				//gap states carry down the column unless
+				//reset by a diagonal 
+				currentH[k] = direction == HORIZONTAL || (direction != DIAGONAL && otherH[k + upOffset]);
+				currentV[k] = direction == VERTICAL || (direction != DIAGONAL && otherV[k + upOffset]);
+				directions[c] = direction;
+			}
+			if(local){
+				//first best cell in row major order
+				for(int c=0, k=start; c< count; c++, k++){
+					float score = current[k];
+					int row = firstRow - c;
+					if(score > startScore || (score == startScore && row < startRow)){
+						startScore = score;
+						startRow = row;
+						startColumn = firstColumn + c;
+					}
+				}
+			}
+		}
+		if(!local && m >0 && n>0){
+			startRow = m;
+			startColumn = n;
+			startScore = scores[(n-m - lo) & 1][((n-m - lo) >> 1) +1];
+		}
+	}
+	
+	private byte getDirection(int x, int y){
+		if(x==0 && y==0){
+			return TERMINAL;
+		}
+		if(x==0){
+			return local ? TERMINAL : HORIZONTAL;
+		}
+		if(y==0){
+			return local ? TERMINAL : VERTICAL;
+		}
+		int t = y - x;
+		byte[] directions = traceback[x+y];
+		int c = (t - tracebackFirstDiagonal[x+y]) >> 1;
+		if(t < lowestDiagonal || t > highestDiagonal || c <0 || c >= directions.length){
+			throw new IllegalStateException("traceback left the band at " + x + ", "+ y);
+		}
+		return directions[c];
+	}
+	
+	private P traceBack(Integer subjectShiftAmount) {
+		int x= startRow;
+		int y = startColumn;
+		SequenceAlignmentBuilder<R,S,B,A> alignmentBuilder = pairwiseStrategy.createSequenceAlignmentBuilder(true,subjectShiftAmount);
+		alignmentBuilder.setAlignmentOffsets(x-1, y-1);
+		R gap =  pairwiseStrategy.getGap();
+		List<R> residuesByOrdinal = pairwiseStrategy.getResidueList();
+		boolean done=false;
+		while(!done){
+			byte direction = getDirection(x,y);
+			switch(direction){
+				case VERTICAL :
+					x--;
+					alignmentBuilder.addGap(residuesByOrdinal.get(queryOrdinals[x]), gap);
+					break;
+				case HORIZONTAL :
+					y--;
+					alignmentBuilder.addGap(gap,residuesByOrdinal.get(subjectOrdinals[y]));
+					break;
+				case DIAGONAL:
+					x--;
+					y--;
+					int queryValue = queryOrdinals[x];
+					int subjectValue = subjectOrdinals[y];
+					if(queryValue == subjectValue){
+						alignmentBuilder.addMatch(residuesByOrdinal.get(queryValue));
+					}else{
+						alignmentBuilder.addMismatch(residuesByOrdinal.get(queryValue), residuesByOrdinal.get(subjectValue));
+					}
+					break;
+				default:
+					done = true;
+					break;
+			}
+		}
+		return  pairwiseStrategy.wrapPairwiseAlignment(PairwiseSequenceAlignmentWrapper.wrap(alignmentBuilder.build(), startScore));
+	}
+}
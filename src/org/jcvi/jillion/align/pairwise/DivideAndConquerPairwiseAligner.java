@@ -0,0 +1,392 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.align.pairwise;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import org.jcvi.jillion.align.SequenceAlignment;
+import org.jcvi.jillion.align.SubstitutionMatrix;
+import org.jcvi.jillion.core.residue.Residue;
+import org.jcvi.jillion.core.residue.ResidueSequence;
+import org.jcvi.jillion.core.residue.ResidueSequenceBuilder;
+import org.jcvi.jillion.internal.align.SequenceAlignmentBuilder;
+/**
+ * {@code DivideAndConquerPairwiseAligner} is a low memory
+ * dynamic programming pairwise aligner that never keeps the full
+ * traceback matrix in memory.
+ * <p>
+ * Like Hirschberg's algorithm, the rows of the matrix are recursively split
+ * in half and only the score rows at the split points are kept.  The traceback
+ * is done on the bottom half first which tells us which column the path
+ * crosses the middle row; then the top half only has to be computed up to that column.
+ * Once a sub-problem is small enough, its traceback directions are computed
+ * directly.  This uses O(n log m) memory (plus a fixed size block)
+ * and roughly O(m*n log m) time.
+ * <p>
+ * Unlike Hirschberg's algorithm which computes scores backwards from the end
+ * of the sequences, this implementation only recomputes rows forward
+ * from saved checkpoints using the same recurrence, tie breaking and 
+ * gap state as {@link AbstractSmithWatermanAligner} and {@link AbstractNeedlemanWunschAligner}
+ * so the alignment produced is identical to those aligners.
+ * <p>
+ * If a {@link ForkJoinPool} is given, the checkpoint rows needed by the top half
+ * of each split are computed in parallel while the bottom half is traced.
+ * 
+ * @author dkatzel
+ *
+ * @param <R> the type of {@link Residue} used in this aligner.
+ * @param <S> the {@link ResidueSequence} type input into this aligner.
+ * @param <A> the {@link SequenceAlignment} type returned by this aligner.
+ * @param <P> the {@link PairwiseSequenceAlignment} type returned by this aligner.
+ * 
+ * @since 6.0.3
+ */
+final class DivideAndConquerPairwiseAligner<R extends Residue, S extends ResidueSequence<R, S, B>, B extends ResidueSequenceBuilder<R, S, B>, A extends SequenceAlignment<R, S>, P extends PairwiseSequenceAlignment<R, S>> {
+
+	private static final byte TERMINAL = 0;
+	private static final byte HORIZONTAL = 1;
+	private static final byte VERTICAL = 2;
+	private static final byte DIAGONAL = 3;
+	/**
+	 * The max number of cells in a sub-problem
+	 * whose traceback directions are computed directly.
+	 */
+	private static final long DEFAULT_MAX_BLOCK_SIZE = 1 << 22;
+	
+	private final ResiduePairwiseStrategy<R,S,B,A,P> pairwiseStrategy;
+	private final boolean local;
+	private final byte[] queryOrdinals, subjectOrdinals;
+	private final float[] scoreTable;
+	private final int numberOfResidues;
+	private final float openGapPenalty, extendGapPenalty;
+	private final long maxBlockSize;
+	
+	private final SequenceAlignmentBuilder<R,S,B,A> alignmentBuilder;
+	private final List<R> residuesByOrdinal;
+	private final R gap;
+	
+	private int startRow, startColumn;
+	private float startScore = Float.NEGATIVE_INFINITY;
+	/**
+	 * Our current position in the traceback.
+	 */
+	private int x, y;
+	private boolean done;
+	
+	/**
+	 * Align the given two sequences without keeping the full traceback matrix in memory.
+	 * 
+	 * @param query the query sequence to align; can not be null.
+	 * @param subject the subject sequence to align; can not be null.
+	 * @param matrix the {@link SubstitutionMatrix} to use; can not be null.
+	 * @param openGapPenalty the penalty value for opening a gap.
+	 * @param extendGapPenalty the penalty for extending an already open gap.
+	 * @param local {@code true} for a Smith-Waterman local alignment;
+	 * {@code false} for a Needleman-Wunsch global alignment.
+	 * @param pool the {@link ForkJoinPool} to compute checkpoints in parallel;
+	 * if null, then everything is computed in the calling thread.
+	 * @param pairwiseStrategy the {@link ResiduePairwiseStrategy} for the residue type.
+	 * @param subjectShiftAmount the subject shift to pass to the alignment builder; may be null.
+	 * @return a new alignment; will never be null.
+	 * 
+	 * @throws NullPointerException if query, subject or matrix are null.
+	 */
+	static <R extends Residue, S extends ResidueSequence<R, S, B>, B extends ResidueSequenceBuilder<R, S, B>, A extends SequenceAlignment<R, S>, P extends PairwiseSequenceAlignment<R, S>> P align(
+			S query, S subject, SubstitutionMatrix<R> matrix, float openGapPenalty, float extendGapPenalty,
+			boolean local, ForkJoinPool pool,
+			ResiduePairwiseStrategy<R,S,B,A,P> pairwiseStrategy, Integer subjectShiftAmount){
+		return align(query, subject, matrix, openGapPenalty, extendGapPenalty, local, pool, pairwiseStrategy, subjectShiftAmount, DEFAULT_MAX_BLOCK_SIZE);
+	}
+	/**
+	 * Align the given two sequences using the given max block size,
+	 * this is package private so tests can force many splits on small sequences.
+	 */
+	static <R extends Residue, S extends ResidueSequence<R, S, B>, B extends ResidueSequenceBuilder<R, S, B>, A extends SequenceAlignment<R, S>, P extends PairwiseSequenceAlignment<R, S>> P align(
+			S query, S subject, SubstitutionMatrix<R> matrix, float openGapPenalty, float extendGapPenalty,
+			boolean local, ForkJoinPool pool,
+			ResiduePairwiseStrategy<R,S,B,A,P> pairwiseStrategy, Integer subjectShiftAmount, long maxBlockSize){
+		if(query ==null){
+			throw new NullPointerException("query sequence can not be null");
+		}
+		if(subject ==null){
+			throw new NullPointerException("subject sequence can not be null");
+		}
+		if(matrix ==null){
+			throw new NullPointerException("scoring matrix can not be null");
+		}
+		DivideAndConquerPairwiseAligner<R,S,B,A,P> aligner = new DivideAndConquerPairwiseAligner<>(query, subject, matrix, 
+				openGapPenalty, extendGapPenalty, local, pairwiseStrategy, subjectShiftAmount, maxBlockSize);
+		if(pool ==null){
+			aligner.traceBack(null);
+		}else{
+			pool.invoke(ForkJoinTask.adapt(()-> aligner.traceBack(pool)));
+		}
+		return pairwiseStrategy.wrapPairwiseAlignment(PairwiseSequenceAlignmentWrapper.wrap(aligner.alignmentBuilder.build(), aligner.startScore));
+	}
+	
+	private DivideAndConquerPairwiseAligner(S query, S subject, SubstitutionMatrix<R> matrix, float openGapPenalty, float extendGapPenalty,
+			boolean local, ResiduePairwiseStrategy<R,S,B,A,P> pairwiseStrategy, Integer subjectShiftAmount, long maxBlockSize){
+		this.pairwiseStrategy = pairwiseStrategy;
+		this.local = local;
+		this.openGapPenalty = openGapPenalty;
+		this.extendGapPenalty = extendGapPenalty;
+		this.maxBlockSize = maxBlockSize;
+		queryOrdinals = pairwiseStrategy.toOrdinals(query);
+		subjectOrdinals = pairwiseStrategy.toOrdinals(subject);
+		scoreTable = pairwiseStrategy.createScoreTable(matrix, queryOrdinals, subjectOrdinals);
+		residuesByOrdinal = pairwiseStrategy.getResidueList();
+		numberOfResidues = residuesByOrdinal.size();
+		gap = pairwiseStrategy.getGap();
+		alignmentBuilder = pairwiseStrategy.createSequenceAlignmentBuilder(true,subjectShiftAmount);
+	}
+	
+	private void traceBack(ForkJoinPool pool){
+		int m = queryOrdinals.length;
+		int n = subjectOrdinals.length;
+		if(m >0 && n >0){
+			if(local){
+				//have to look at every cell to find where the alignment ends
+				fillRows(initialRow(n), 0, m, n, null, true);
+			}else{
+				startRow = m;
+				startColumn = n;
+			}
+		}
+		x = startRow;
+		y = startColumn;
+		alignmentBuilder.setAlignmentOffsets(x-1, y-1);
+		if(startRow ==0){
+			walkFirstRow();
+			return;
+		}
+		traceBack(initialRow(startColumn), 0, startRow, startColumn, null, pool);
+	}
+	
+	private RowState initialRow(int width){
+		float[] scores = new float[width+1];
+		if(!local && width >0){
+			//same cumulative gap scores as the global aligner
+			float currentScore = openGapPenalty;
+			scores[1] = currentScore;
+			for(int j=2; j<= width; j++){
+				currentScore +=extendGapPenalty;
+				scores[j] = currentScore;
+			}
+		}
+		return new RowState(scores, new boolean[width+1], new boolean[width+1]);
+	}
+	
+	private boolean isSmallEnough(int fromRow, int toRow, int width){
+		return toRow - fromRow <=1 || (long)(toRow - fromRow) * width <= maxBlockSize;
+	}
+	/**
+	 * Trace back from the current position at row {@code toRow}
+	 * until the path reaches {@code fromRow}.
+	 * @param state the scores and gap states of {@code fromRow}.
+	 * @param fromRow the top row of this sub-problem.
+	 * @param toRow the current row of the traceback.
+	 * @param width the current column of the traceback; nothing
+	 * to the right of this column can be on the path.
+	 * @param midState the checkpoint of the middle row of this sub-problem
+	 * if it is already being computed; may be null.
+	 * @param pool the pool to compute checkpoints in; may be null.
+	 */
+	private void traceBack(RowState state, int fromRow, int toRow, int width, ForkJoinTask<RowState> midState, ForkJoinPool pool){
+		if(isSmallEnough(fromRow, toRow, width)){
+			if(midState !=null){
+				midState.cancel(false);
+			}
+			byte[] directions = new byte[(toRow - fromRow) * width];
+			RowState lastRow = fillRows(state, fromRow, toRow, width, directions, false);
+			if(!local && toRow == startRow && width == startColumn){
+				startScore = lastRow.scores[width];
+			}
+			walkBack(directions, fromRow, width);
+			return;
+		}
+		int middle = (fromRow + toRow) >>>1;
+		RowState middleState = midState ==null ? fillRows(state, fromRow, middle, width, null, false) : midState.join();
+		//the top half will need its own middle row checkpoint
+		//which only depends on rows above it so we can start it now
+		ForkJoinTask<RowState> nextMidState=null;
+		int nextMiddle = (fromRow + middle) >>>1;
+		if(pool !=null && !isSmallEnough(fromRow, middle, width)){
+			nextMidState = ForkJoinTask.adapt(()-> fillRows(state, fromRow, nextMiddle, width, null, false)).fork();
+		}
+		traceBack(middleState, middle, toRow, width, null, pool);
+		if(done){
+			if(nextMidState !=null){
+				nextMidState.cancel(false);
+			}
+			return;
+		}
+		traceBack(state, fromRow, middle, y, nextMidState, pool);
+	}
+	/**
+	 * Compute the rows after {@code fromRow} up to and including
+	 * {@code toRow}.
+	 * @param state the scores and gap states of {@code fromRow}; will not be modified.
+	 * @param width the number of columns to compute.
+	 * @param directions if not null, the traceback directions will be written here.
+	 * @param trackBest update the start point if a cell has a better score.
+	 * @return the scores and gap states of {@code toRow}.
+	 */
+	private RowState fillRows(RowState state, int fromRow, int toRow, int width, byte[] directions, boolean trackBest){
+		float[] previous = Arrays.copyOf(state.scores, width+1);
+		boolean[] previousVertical = Arrays.copyOf(state.inVerticalGap, width+1);
+		boolean[] inHorizontalGap = Arrays.copyOf(state.inHorizontalGap, width+1);
+		float[] current = new float[width+1];
+		boolean[] currentVertical = new boolean[width+1];
+		final byte[] subject = subjectOrdinals;
+		final float[] table = scoreTable;
+		final float open = openGapPenalty;
+		final float extend = extendGapPenalty;
+		
+		for(int i= fromRow+1, offset=0; i<= toRow; i++){
+			current[0] = 0;
+			currentVertical[0] = false;
+			int queryOffset = queryOrdinals[i-1] * numberOfResidues;
+			for(int j=1; j<= width; j++, offset++){
+				float up = previous[j];
+				float left = current[j-1];
+				
+				float verticalExtend = previousVertical[j] ? up + extend : Float.NEGATIVE_INFINITY;
+				float verticalOpen = up + open;
+				float vertical = verticalExtend > verticalOpen ? verticalExtend : verticalOpen;
+				
+				float horizontalExtend = inHorizontalGap[j-1] ? left + extend : Float.NEGATIVE_INFINITY;
+				float horizontalOpen = left + open;
+				float horizontal = horizontalExtend >= horizontalOpen ? horizontalExtend : horizontalOpen;
+				
+				float diagonal = previous[j-1] + table[queryOffset + subject[j-1]];
+				
+				float best;
+				byte direction;
+				if(diagonal >= horizontal){
+					if(diagonal >= vertical){
+						best = diagonal;
+						direction = DIAGONAL;
+					}else{
+						best = vertical;
+						direction = VERTICAL;
+					}
+				}else if(horizontal >= vertical){
+					best = horizontal;
+					direction = HORIZONTAL;
+				}else{
+					best = vertical;
+					direction = VERTICAL;
+				}
+				if(local && best <= 0){
+					best = 0;
+					direction = TERMINAL;
+				}
+				current[j] = best;
+				inHorizontalGap[j] = direction == HORIZONTAL || (direction != DIAGONAL && inHorizontalGap[j]);
+				currentVertical[j] = direction == VERTICAL || (direction != DIAGONAL && previousVertical[j]);
+				if(directions !=null){
+					directions[offset] = direction;
+				}
+				if(trackBest && best > startScore){
+					startScore = best;
+					startRow = i;
+					startColumn = j;
+				}
+			}
+			float[] tmp = previous;
+			previous = current;
+			current = tmp;
+			boolean[] tmpVertical = previousVertical;
+			previousVertical = currentVertical;
+			currentVertical = tmpVertical;
+		}
+		return new RowState(previous, previousVertical, inHorizontalGap);
+	}
+	/**
+	 * Follow the traceback directions of a block until we
+	 * reach the block's first row.
+	 */
+	private void walkBack(byte[] directions, int fromRow, int width){
+		while(!done && x > fromRow){
+			byte direction;
+			if(y==0){
+				direction = local ? TERMINAL : VERTICAL;
+			}else{
+				direction = directions[(x - fromRow -1) * width + y-1];
+			}
+			step(direction);
+		}
+		if(!done && x ==0){
+			walkFirstRow();
+		}
+	}
+	
+	private void walkFirstRow(){
+		while(!done){
+			step(y==0 || local ? TERMINAL : HORIZONTAL);
+		}
+	}
+	
+	private void step(byte direction){
+		switch(direction){
+			case VERTICAL :
+				x--;
+				alignmentBuilder.addGap(residuesByOrdinal.get(queryOrdinals[x]), gap);
+				break;
+			case HORIZONTAL :
+				y--;
+				alignmentBuilder.addGap(gap,residuesByOrdinal.get(subjectOrdinals[y]));
+				break;
+			case DIAGONAL:
+				x--;
+				y--;
+				int queryValue = queryOrdinals[x];
+				int subjectValue = subjectOrdinals[y];
+				if(queryValue == subjectValue){
+					alignmentBuilder.addMatch(residuesByOrdinal.get(queryValue));
+				}else{
+					alignmentBuilder.addMismatch(residuesByOrdinal.get(queryValue), residuesByOrdinal.get(subjectValue));
+				}
+				break;
+			default:
+				done = true;
+				break;
+		}
+	}
+	/**
+	 * The scores and gap states of a single row
+	 * which is all that is needed to compute the following rows.
+	 */
+	private static final class RowState{
+		private final float[] scores;
+		private final boolean[] inVerticalGap;
+		private final boolean[] inHorizontalGap;
+		
+		RowState(float[] scores, boolean[] inVerticalGap, boolean[] inHorizontalGap) {
+			this.scores = scores;
+			this.inVerticalGap = inVerticalGap;
+			this.inHorizontalGap = inHorizontalGap;
+		}
+	}
+}
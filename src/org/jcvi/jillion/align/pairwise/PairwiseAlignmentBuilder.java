@@ -22,6 +22,7 @@ package org.jcvi.jillion.align.pairwise;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
 
@@ -58,6 +59,12 @@ public final class PairwiseAlignmentBuilder<R extends Residue, S extends Residue
 	private Integer subjectShift;
 	
 	private boolean local=true;
+	
+	private Integer bandWidth;
+	private int expectedDiagonal=0;
+	
+	private boolean lowMemory=false;
+	private ForkJoinPool pool;
 	/**
 	 * Create a new PairwiseAlignmentBuilder to align
 	 * 2 {@link NucleotideSequence}s.
@@ -159,6 +166,90 @@ public final class PairwiseAlignmentBuilder<R extends Residue, S extends Residue
 		local=true;
 		return this;
 	}
+	/**
+	 * Only compute the cells of the dynamic programming matrix
+	 * that are within the given number of diagonals of the
+	 * {@link #expectedDiagonal(int) expected diagonal}.
+	 * Banded alignments use O( (m+n) * bandWidth ) time and memory
+	 * instead of O(m*n) which makes aligning long, similar sequences
+	 * practical.  If the optimal alignment stays inside the band,
+	 * the result is the same as the unbanded alignment.
+	 * Global alignments will widen the band if needed
+	 * so that it includes the beginning and end of both sequences.
+	 * 
+	 * @param bandWidth the number of diagonals on either side
+	 * of the expected diagonal to compute; must be &ge; 0.
+	 * @return this
+	 * @throws IllegalArgumentException if bandWidth is negative.
+	 * 
+	 * @since 6.0.3
+	 */
+	public PairwiseAlignmentBuilder<R,S,A> bandWidth(int bandWidth){
+		if(bandWidth < 0){
+			throw new IllegalArgumentException("band width can not be negative : " + bandWidth);
+		}
+		this.bandWidth = bandWidth;
+		return this;
+	}
+	/**
+	 * Set the diagonal the alignment is expected to follow
+	 * which is the center of the band used by {@link #bandWidth(int)}.
+	 * The diagonal is the (ungapped) subject offset minus the query offset,
+	 * so a query that is expected to align starting at subject offset 1000 
+	 * has an expected diagonal of 1000.  If not set, the default is 0.
+	 * This value is ignored if a band width is not set.
+	 * 
+	 * @param diagonal the subject offset minus the query offset; may be negative.
+	 * @return this
+	 * 
+	 * @since 6.0.3
+	 */
+	public PairwiseAlignmentBuilder<R,S,A> expectedDiagonal(int diagonal){
+		this.expectedDiagonal = diagonal;
+		return this;
+	}
+	/**
+	 * Should the alignment be computed without keeping
+	 * the entire traceback matrix in memory.
+	 * Normally, aligning sequences of length m and n 
+	 * needs O(m*n) memory which can be too much for long sequences
+	 * such as whole viral genome segments.  The low memory mode 
+	 * uses a divide and conquer algorithm similar to Hirschberg's
+	 * which only needs O(n log m) memory but takes a few times longer
+	 * to compute.  The alignment produced is the same
+	 * as the one produced when not using low memory mode.
+	 * If a {@link #bandWidth(int)} is also set, then this setting is ignored
+	 * since banded alignments only use memory proportional to the band.
+	 * 
+	 * @param lowMemory {@code true} to use low memory mode;
+	 * {@code false} otherwise.  If not set, the default is {@code false}.
+	 * @return this
+	 * 
+	 * @since 6.0.3
+	 */
+	public PairwiseAlignmentBuilder<R,S,A> lowMemory(boolean lowMemory){
+		this.lowMemory = lowMemory;
+		if(!lowMemory){
+			pool = null;
+		}
+		return this;
+	}
+	/**
+	 * Use the low memory mode described in {@link #lowMemory(boolean)}
+	 * and use the given {@link ForkJoinPool} to compute
+	 * parts of the alignment in parallel.
+	 * 
+	 * @param pool the {@link ForkJoinPool} to use; if null,
+	 * then the alignment is computed in the calling thread.
+	 * @return this
+	 * 
+	 * @since 6.0.3
+	 */
+	public PairwiseAlignmentBuilder<R,S,A> lowMemory(ForkJoinPool pool){
+		this.lowMemory = true;
+		this.pool = pool;
+		return this;
+	}
 	/**
 	 * Compute the actual pairwise alignment.
 	 * This method may be computationally expensive
@@ -172,7 +263,18 @@ public final class PairwiseAlignmentBuilder<R extends Residue, S extends Residue
 		//or a NucleotideSequence so these casts should all be safe.
 		//The casts are so the user's interface is clean
 		//all ugliness is hidden here
-		
+		if(bandWidth !=null){
+			if(query instanceof NucleotideSequence){
+				return (A) BandedPairwiseAligner.align((NucleotideSequence)query, (NucleotideSequence)subject, (NucleotideSubstitutionMatrix)matrix, gapOpen, gapExtension, local, expectedDiagonal, bandWidth, ResiduePairwiseStrategy.getNucleotideStrategy(), subjectShift);
+			}
+			return (A) BandedPairwiseAligner.align((ProteinSequence)query, (ProteinSequence)subject, (AminoAcidSubstitutionMatrix)matrix, gapOpen, gapExtension, local, expectedDiagonal, bandWidth, ResiduePairwiseStrategy.getAminoAcidStrategy(), subjectShift);
+		}
+		if(lowMemory){
+			if(query instanceof NucleotideSequence){
+				return (A) DivideAndConquerPairwiseAligner.align((NucleotideSequence)query, (NucleotideSequence)subject, (NucleotideSubstitutionMatrix)matrix, gapOpen, gapExtension, local, pool, ResiduePairwiseStrategy.getNucleotideStrategy(), subjectShift);
+			}
+			return (A) DivideAndConquerPairwiseAligner.align((ProteinSequence)query, (ProteinSequence)subject, (AminoAcidSubstitutionMatrix)matrix, gapOpen, gapExtension, local, pool, ResiduePairwiseStrategy.getAminoAcidStrategy(), subjectShift);
+		}
 		if(query instanceof NucleotideSequence){
 			if(local){
 				 return (A)NucleotideSmithWatermanAligner.align((NucleotideSequence)query, (NucleotideSequence)subject, (NucleotideSubstitutionMatrix)matrix, gapOpen, gapExtension, subjectShift, queryShift);
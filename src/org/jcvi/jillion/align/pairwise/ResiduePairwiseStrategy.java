@@ -26,6 +26,7 @@ import java.util.List;
 import org.jcvi.jillion.align.NucleotideSequenceAlignment;
 import org.jcvi.jillion.align.ProteinSequenceAlignment;
 import org.jcvi.jillion.align.SequenceAlignment;
+import org.jcvi.jillion.align.SubstitutionMatrix;
 import org.jcvi.jillion.core.residue.Residue;
 import org.jcvi.jillion.core.residue.ResidueSequence;
 import org.jcvi.jillion.core.residue.ResidueSequenceBuilder;
@@ -86,6 +87,61 @@ abstract class ResiduePairwiseStrategy<R extends Residue, S extends ResidueSeque
 	 * via a traceback if specified.
 	 */
 	protected abstract SequenceAlignmentBuilder<R, S,B, A> createSequenceAlignmentBuilder(boolean builtFromTraceback, Integer subjectShiftAmount);
+	/**
+	 * Get the ordinals of the ungapped residues
+	 * in the given sequence.
+	 * @param sequence the sequence to convert; can not be null.
+	 * @return a new byte array of the ordinal values; never null.
+	 * 
+	 * @since 6.0.3
+	 */
+	byte[] toOrdinals(S sequence){
+		byte[] ordinals = new byte[(int) sequence.getUngappedLength()];
+		int i=0;
+		for(R residue : sequence.ungappedIterable()){
+			ordinals[i++] = residue.getOrdinalAsByte();
+		}
+		return ordinals;
+	}
+	/**
+	 * Flatten the substitution scores of all the residues
+	 * used by the given sequences into a single array indexed
+	 * by {@code queryOrdinal * getResidueList().size() + subjectOrdinal}
+	 * so aligners can look up scores without boxing or virtual calls.
+	 * Scores of residues not in either sequence are left as 0.
+	 * 
+	 * @param matrix the {@link SubstitutionMatrix} to flatten; can not be null.
+	 * @param queryOrdinals the ordinals of the query residues.
+	 * @param subjectOrdinals the ordinals of the subject residues.
+	 * @return a new float array; never null.
+	 * 
+	 * @since 6.0.3
+	 */
+	float[] createScoreTable(SubstitutionMatrix<R> matrix, byte[] queryOrdinals, byte[] subjectOrdinals){
+		List<R> residuesByOrdinal = getResidueList();
+		int size = residuesByOrdinal.size();
+		boolean[] inQuery = new boolean[size];
+		boolean[] inSubject = new boolean[size];
+		for(byte b : queryOrdinals){
+			inQuery[b] = true;
+		}
+		for(byte b : subjectOrdinals){
+			inSubject[b] = true;
+		}
+		float[] table = new float[size * size];
+		for(int q=0; q< size; q++){
+			if(!inQuery[q]){
+				continue;
+			}
+			R queryResidue = residuesByOrdinal.get(q);
+			for(int s=0; s< size; s++){
+				if(inSubject[s]){
+					table[q*size + s] = matrix.getValue(queryResidue, residuesByOrdinal.get(s));
+				}
+			}
+		}
+		return table;
+	}
 
 	
 	private static final class NucleotidePairwiseStrategy extends ResiduePairwiseStrategy<Nucleotide, NucleotideSequence, NucleotideSequenceBuilder, NucleotideSequenceAlignment, NucleotidePairwiseSequenceAlignment>{
@@ -592,6 +592,11 @@ private final AceContigReadVisitor readVisitor = new AceContigReadVisitor() {
     	
     
     private final class IdIteratorImpl extends AbstractBlockingStreamingIterator<String>{
+    	
+    	IdIteratorImpl(){
+    		super(ID_CACHE_SIZE);
+    	}
+    	
     	private class InnerVisitor implements AceFileVisitor{
 
 			@Override
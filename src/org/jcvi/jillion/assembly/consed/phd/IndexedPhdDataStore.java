@@ -39,9 +39,13 @@ import org.jcvi.jillion.core.util.MapUtil;
 import org.jcvi.jillion.core.util.iter.IteratorUtil;
 import org.jcvi.jillion.core.util.iter.StreamingIterator;
 import org.jcvi.jillion.internal.core.datastore.DataStoreStreamingIterator;
+import org.jcvi.jillion.internal.core.datastore.SidecarIndex;
 
 final class IndexedPhdDataStore implements PhdDataStore{
-
+	/**
+	 * Format name of the persistent index files.
+	 */
+	private static final String INDEX_FORMAT = "phdball";
 	
 
 
@@ -52,12 +56,43 @@ final class IndexedPhdDataStore implements PhdDataStore{
 	private final PhdBallParser parser;
 	
 	public static PhdDataStore create(File phdBall, DataStoreFilter filter) throws FileNotFoundException, IOException{
+		return create(phdBall, filter, false);
+	}
+	/**
+	 * Create a new {@link IndexedPhdDataStore} which may read or write
+	 * a persistent {@link SidecarIndex}.
+	 * @param phdBall the phd file to index.
+	 * @param filter the filter to use.
+	 * @param persistIndex if {@code true} then use a valid index file if 
+	 * one exists instead of parsing the phd file or else write one after parsing.
+	 * The filter must accept every record since the persisted index is not filtered.
+	 * @return a new {@link PhdDataStore}.
+	 * @throws IOException if there is a problem parsing the phd file.
+	 * 
+	 * @since 6.0.3
+	 */
+	public static PhdDataStore create(File phdBall, DataStoreFilter filter, boolean persistIndex) throws FileNotFoundException, IOException{
 		
 		PhdBallParser parser = PhdBallFileParser.create(phdBall);
-		
+		if(persistIndex){
+			Map<String, PhdBallVisitorMemento> mementos = SidecarIndex.read(phdBall, INDEX_FORMAT, PhdBallFileParser::createMementoForOffset);
+			if(mementos !=null){
+				return new IndexedPhdDataStore(parser, phdBall, mementos, filter);
+			}
+		}
 		BuilderVisitor visitor = new BuilderVisitor(parser, phdBall, filter);
 		parser.accept(visitor);
-		return visitor.build();
+		PhdDataStore datastore = visitor.build();
+		if(persistIndex){
+			try{
+				SidecarIndex.write(phdBall, INDEX_FORMAT, visitor.mementos, PhdBallFileParser::getOffsetOf);
+			}catch(IOException e){
+				//the index is only an optimization
+				//so don't fail if we can't write it
+				//(for example the directory is read only)
+			}
+		}
+		return datastore;
 	}
 	
 	private IndexedPhdDataStore(PhdBallParser parser,
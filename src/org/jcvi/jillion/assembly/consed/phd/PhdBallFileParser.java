@@ -454,6 +454,32 @@ public abstract class PhdBallFileParser implements PhdBallParser{
 		
 	}
 	
+	/**
+	 * Create a memento that will start parsing at the given
+	 * byte offset of a phd record.
+	 * @param offset the byte offset.
+	 * @return a new {@link PhdBallVisitorMemento}.
+	 * 
+	 * @since 6.0.3
+	 */
+	static PhdBallVisitorMemento createMementoForOffset(long offset){
+		return new PhdBallVisitorMementoImpl(offset);
+	}
+	/**
+	 * Get the byte offset of the given memento.
+	 * @param memento the memento.
+	 * @return the byte offset or -1 if the memento was not made
+	 * by a {@link PhdBallFileParser}.
+	 * 
+	 * @since 6.0.3
+	 */
+	static long getOffsetOf(PhdBallVisitorMemento memento){
+		if(memento instanceof PhdBallVisitorMementoImpl){
+			return ((PhdBallVisitorMementoImpl)memento).getOffset();
+		}
+		return -1;
+	}
+	
 	private static class PhdBallVisitorMementoImpl implements PhdBallVisitorMemento{
 		private final long offset;
 
@@ -46,6 +46,7 @@ final class PhdBallIdIterator extends AbstractBlockingStreamingIterator<String>{
         return iter;
     }
     private PhdBallIdIterator(File phdFile, DataStoreFilter filter) {
+        super(ID_CACHE_SIZE);
         this.phdFile = phdFile;
         this.filter = filter;
     }
@@ -38,6 +38,8 @@ public final class PhdFileDataStoreBuilder implements Builder<PhdDataStore>{
 	
 	private DataStoreProviderHint hint = DataStoreProviderHint.RANDOM_ACCESS_OPTIMIZE_SPEED;
 	
+	private boolean persistIndex = false;
+	
 	
 	public PhdFileDataStoreBuilder(File phdFile) {
 		if(phdFile==null){
@@ -74,6 +76,29 @@ public final class PhdFileDataStoreBuilder implements Builder<PhdDataStore>{
 		return this;
 	}
 
+	/**
+	 * Write the index of record offsets built by a 
+	 * {@link DataStoreProviderHint#RANDOM_ACCESS_OPTIMIZE_MEMORY} datastore 
+	 * to an index file next to the phd file (the phd file name
+	 * with {@code .jidx} appended) so that later builds of the same file
+	 * memory map the index instead of re-parsing the entire file.
+	 * The index file is ignored and re-written if the phd file has
+	 * changed since the index was written.  This is ignored if the input
+	 * is an InputStream or if a filter is used.
+	 * If this method is not called, then no index file is read or written.
+	 * 
+	 * @param persistIndex {@code true} if an index file should be used;
+	 * {@code false} otherwise.
+	 * 
+	 * @return this
+	 * 
+	 * @since 6.0.3
+	 */
+	public PhdFileDataStoreBuilder persistIndex(boolean persistIndex){
+		this.persistIndex = persistIndex;
+		return this;
+	}
+
 	@Override
 	public PhdDataStore build() {
 		
@@ -87,7 +112,8 @@ public final class PhdFileDataStoreBuilder implements Builder<PhdDataStore>{
 				case RANDOM_ACCESS_OPTIMIZE_SPEED : 
 					return DefaultPhdDataStore.create(phdFile, filter);
 				case RANDOM_ACCESS_OPTIMIZE_MEMORY:
-					return IndexedPhdDataStore.create(phdFile, filter);
+					return IndexedPhdDataStore.create(phdFile, filter, 
+							persistIndex && filter == DataStoreFilters.alwaysAccept());
 				case ITERATION_ONLY:
 					return new LargePhdballDataStore(phdFile, filter);
 				default: throw new IllegalStateException("unknown hint "+ hint);
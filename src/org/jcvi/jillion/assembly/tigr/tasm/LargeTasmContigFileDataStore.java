@@ -176,6 +176,10 @@ final class LargeTasmContigFileDataStore implements TasmContigDataStore{
 	
 	private class IdIterator extends AbstractBlockingStreamingIterator<String>{
 		
+		IdIterator(){
+			super(ID_CACHE_SIZE);
+		}
+		
 		@Override
 		protected void backgroundThreadRunMethod() throws RuntimeException {
 			TasmVisitor visitor = new TasmVisitor() {
@@ -33,7 +33,6 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.function.LongConsumer;
@@ -41,7 +40,6 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.jcvi.jillion.core.io.IOUtil;
-import org.jcvi.jillion.internal.core.util.Caches;
 import org.jcvi.jillion.internal.core.util.JillionUtil;
 
 
@@ -138,10 +136,6 @@ public abstract class Range implements Rangeable,Iterable<Long>, Serializable{
 	 * 2^32 -1.
 	 */
 	private static final long UNSIGNED_INT_MAX = 4294967295L;
-	/**
-	 * Initial size of our cache of ranges {@link #CACHE}.
-	 */
-    private static final int INITIAL_CACHE_SIZE = 1024;
 
     /**
      * Regular expression in the form (left) .. (right).
@@ -156,11 +150,10 @@ public abstract class Range implements Rangeable,Iterable<Long>, Serializable{
      */
     private static Pattern COMMA_PATTERN = Pattern.compile("(\\d+)\\s*,\\s*(\\d+)");
     /**
-     * Cache of previously built ranges.  
-     * This cache uses  {@link SoftReference}s
-     * so memory can be reclaimed if needed.
+     * Bounded, lock-free cache of previously built ranges
+     * shared by all threads.
      */
-    private static final Map<CacheKey, Range> CACHE;
+    private static final RangeCache CACHE = RangeCache.createShared();
     
     
     /**
@@ -411,12 +404,6 @@ public abstract class Range implements Rangeable,Iterable<Long>, Serializable{
 
     }
     
-    /**
-     * Initialize cache with a soft reference cache that will grow as needed.
-     */
-    static{
-         CACHE = Caches.createSoftReferencedValueCache(INITIAL_CACHE_SIZE);
-    }
     /**
      * Static Range of length 0 and start offset of 0.
      * @since 6.0
@@ -597,6 +584,13 @@ public abstract class Range implements Rangeable,Iterable<Long>, Serializable{
 		return new LongRange(zeroBasedStart, zeroBasedEnd);
 
 	}
+	private static Range buildNewRangeOrEmpty(long begin, long end) {
+		if(end >= begin) {
+			return buildNewRange(begin,end);
+		}
+		return buildNewEmptyRange(begin);
+	}
+	
 	private static Range buildNewEmptyRange(long zeroBasedStart) {
 		long absValue = Math.abs(zeroBasedStart);
 		if(absValue <=Byte.MAX_VALUE){
@@ -618,12 +612,41 @@ public abstract class Range implements Rangeable,Iterable<Long>, Serializable{
 	 * or null if the Range was not in the cache.
 	 * @throws NullPointerException if range is null.
 	 */
-	static synchronized Range removeFromCache(Range range){
-	    CacheKey key = CacheKey.createCacheKeyFor(range);
-	    if(key !=null){
-		return CACHE.remove(key);
-	    }
-	    return null;
+	static Range removeFromCache(Range range){
+	    return CACHE.remove(range);
+	}
+	/**
+	 * Get the number of times a {@link Range.Builder#build()}
+	 * (or any of the {@code Range.of()} factory methods)
+	 * returned a previously cached instance.
+	 * @return the number of cache hits since the JVM started
+	 * or since the last call to {@link #resetCacheStatistics()}.
+	 * 
+	 * @since 6.0.3
+	 */
+	public static long getCacheHitCount(){
+	    return CACHE.getHitCount();
+	}
+	/**
+	 * Get the number of times a {@link Range.Builder#build()}
+	 * (or any of the {@code Range.of()} factory methods)
+	 * had to create a new instance because it wasn't in the cache.
+	 * @return the number of cache misses since the JVM started
+	 * or since the last call to {@link #resetCacheStatistics()}.
+	 * 
+	 * @since 6.0.3
+	 */
+	public static long getCacheMissCount(){
+	    return CACHE.getMissCount();
+	}
+	/**
+	 * Reset the cache hit and miss counts back to zero.
+	 * The cached Ranges are not affected.
+	 * 
+	 * @since 6.0.3
+	 */
+	public static void resetCacheStatistics(){
+	    CACHE.resetCounts();
 	}
 
 
@@ -3224,6 +3247,29 @@ public abstract class Range implements Rangeable,Iterable<Long>, Serializable{
 	     * or if the resulting range length &gt; {@link Long#MAX_VALUE}.
     	 */
     	public Range build(){
+    		validateLength();
+    		return CACHE.get(begin, end, Range::buildNewRangeOrEmpty);
+    	}
+    	/**
+    	 * Use the current begin, end and length
+    	 * values of this Builder to return a new instance
+    	 * of a {@link Range} object with the same values
+    	 * without looking in or adding to the shared Range cache.
+    	 * This is useful for short-lived temporary Ranges
+    	 * that would otherwise evict longer lived Ranges
+    	 * from the cache.
+    	 * @return a new {@link Range}; never null.
+	     * @throws IllegalArgumentException if {@code end &lt; begin -1} 
+	     * or if the resulting range length &gt; {@link Long#MAX_VALUE}.
+	     * 
+	     * @since 6.0.3
+    	 */
+    	public Range buildWithoutCache(){
+    		validateLength();
+    		return buildNewRangeOrEmpty(begin, end);
+    	}
+    	
+    	private void validateLength(){
     		long length = end-begin+1;
     		if(length<0){
     			throw new IllegalArgumentException("length can not be negative");
@@ -3236,24 +3282,6 @@ public abstract class Range implements Rangeable,Iterable<Long>, Serializable{
         							end, begin));
         		}
         	}
-    		
-    		
-    		CacheKey cacheKey = CacheKey.createCacheKeyFor(begin, end);
-    		
-    		if(cacheKey!=null){
-    		    return CACHE.computeIfAbsent(cacheKey, k->{ 
-    		        if(k.end >= k.begin) {
-    		            return buildNewRange(k.begin,k.end); 
-    		        }
-    		        return buildNewEmptyRange(k.begin);
-    		    });
-    		}
-    		
-            if(end >= begin) {
-                return buildNewRange(begin,end);            
-            }
-            return buildNewEmptyRange(begin);
-            
     	}
 		@Override
 		public String toString() {
@@ -3328,59 +3356,6 @@ public abstract class Range implements Rangeable,Iterable<Long>, Serializable{
         }
     }
     
-    private static final class CacheKey{
-        private final int begin,end;
-        
-        public CacheKey(int begin, int end) {
-            this.begin = begin;
-            this.end = end;
-        }
-        
-        public static CacheKey createCacheKeyFor(Range range){
-           return createCacheKeyFor(range.getBegin(), range.getEnd());
-        }
-        
-        public static CacheKey createCacheKeyFor(long begin, long end){
-           if(begin <0 || begin > Integer.MAX_VALUE || end <0 || end > Integer.MAX_VALUE){
-               return null;
-           }
-           return new CacheKey( (int)begin, (int)end);
-        }
-
-        @Override
-        public int hashCode() {
-            final int prime = 31;
-            int result = 1;
-            result = prime * result + begin;
-            result = prime * result + end;
-            return result;
-        }
-
-        @Override
-        public boolean equals(Object obj) {
-            if (this == obj) {
-                return true;
-            }
-            if (obj == null) {
-                return false;
-            }
-            if (!(obj instanceof CacheKey)) {
-                return false;
-            }
-            CacheKey other = (CacheKey) obj;
-            if (begin != other.begin) {
-                return false;
-            }
-            if (end != other.end) {
-                return false;
-            }
-            return true;
-        }
-        
-        
-        
-        
-    }
     /**
      * Create a new Range.Builder instance
      * initialized to this Range's values.
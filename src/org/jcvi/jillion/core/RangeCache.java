@@ -0,0 +1,154 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.core;
+
+import java.util.concurrent.atomic.LongAdder;
+/**
+ * {@code RangeCache} is the bounded, lock-free flyweight
+ * cache used by {@link Range.Builder#build()}.
+ * <p>
+ * The cache is a fixed size direct mapped table: each begin/end
+ * pair hashes to a single slot which holds the last Range built 
+ * for any coordinates that hash there.  Reads and writes are plain
+ * array accesses without any locks; this is safe since all Range implementations
+ * are immutable with only final fields, so a thread will either see a fully
+ * constructed Range or an older value.  A collision just replaces
+ * the previous Range which keeps the memory bounded without
+ * any key objects or soft references.
+ * <p>
+ * Hit and miss counts are kept in {@link LongAdder}s so 
+ * many threads can update them without contention.
+ * 
+ * @author dkatzel
+ *
+ * @since 6.0.3
+ */
+final class RangeCache {
+	/**
+	 * The default number of slots (must be a power of 2).
+	 */
+	static final int DEFAULT_SIZE = 1 << 16;
+	/**
+	 * System property to override the number of slots
+	 * in the shared Range cache; will be rounded up to a power of 2.
+	 * A value &le; 0 turns off caching.
+	 */
+	static final String SIZE_PROPERTY = "jillion.range.cache.size";
+	
+	private final Range[] slots;
+	private final int mask;
+	
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	/**
+	 * Create a new cache with at least the given number of slots.
+	 * @param size the number of slots; will be rounded up to
+	 * the next power of 2; if &le; 0 then nothing is cached.
+	 */
+	RangeCache(int size){
+		if(size <= 0){
+			slots = null;
+			mask = 0;
+		}else{
+			int powerOf2 = size ==1 ? 1 : Integer.highestOneBit(Math.min(size, 1<<30) -1) << 1;
+			slots = new Range[powerOf2];
+			mask = powerOf2 -1;
+		}
+	}
+	/**
+	 * Create the cache shared by all Ranges using the size
+	 * from the {@value #SIZE_PROPERTY} system property if set.
+	 */
+	static RangeCache createShared(){
+		return new RangeCache(Integer.getInteger(SIZE_PROPERTY, DEFAULT_SIZE));
+	}
+	
+	private int slotFor(long begin, long end){
+		long h = begin * 0x9E3779B97F4A7C15L + end;
+		h ^= h >>> 29;
+		h *= 0xBF58476D1CE4E5B9L;
+		h ^= h >>> 32;
+		return (int) h & mask;
+	}
+	/**
+	 * Get the cached Range with the given coordinates
+	 * or create a new one with the given factory and cache it.
+	 * @param begin the begin coordinate.
+	 * @param end the end coordinate.
+	 * @param factory the function to create a new Range from the begin and end.
+	 * @return a Range with the given coordinates; never null.
+	 */
+	Range get(long begin, long end, RangeFactory factory){
+		if(slots ==null){
+			misses.increment();
+			return factory.create(begin, end);
+		}
+		int slot = slotFor(begin, end);
+		Range cached = slots[slot];
+		if(cached !=null && cached.getBegin() == begin && cached.getEnd() == end){
+			hits.increment();
+			return cached;
+		}
+		misses.increment();
+		Range range = factory.create(begin, end);
+		slots[slot] = range;
+		return range;
+	}
+	/**
+	 * Remove the given Range from the cache.
+	 * @param range the range to remove.
+	 * @return the Range that was removed or null
+	 * if it was not in the cache.
+	 */
+	Range remove(Range range){
+		if(slots ==null){
+			return null;
+		}
+		int slot = slotFor(range.getBegin(), range.getEnd());
+		Range cached = slots[slot];
+		if(cached !=null && cached.getBegin() == range.getBegin() && cached.getEnd() == range.getEnd()){
+			slots[slot] = null;
+			return cached;
+		}
+		return null;
+	}
+	
+	long getHitCount(){
+		return hits.sum();
+	}
+	
+	long getMissCount(){
+		return misses.sum();
+	}
+	
+	void resetCounts(){
+		hits.reset();
+		misses.reset();
+	}
+	/**
+	 * Creates a new Range for the given begin and end coordinates.
+	 * This is used instead of {@link java.util.function.LongBinaryOperator} since that returns a long.
+	 */
+	@FunctionalInterface
+	interface RangeFactory{
+		Range create(long begin, long end);
+	}
+}
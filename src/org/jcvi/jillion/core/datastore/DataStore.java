@@ -338,20 +338,20 @@ public interface DataStore<T> extends Closeable{
     }
     
     /**
-     * Create a new Dynamic Proxy wrapping the given DataStore.  The returned
+     * Create a new DataStore wrapping the given DataStore.  The returned
      * object is similar to the wrapped dataStore except
      * all {@link DataStore#get(String)} results are cached
-     * in an Least Recently Used (LRU) SoftReference cache of the specified size
+     * in a Thread-safe Least Recently Used (LRU) SoftReference cache of the specified size
      * and an additional interface, {@link CacheableDataStore} has been added
      * to the list of interfaces the returned {@link DataStore} implements.  This will
      * keep the Most recent {@code cacheSize} records in memory as long as the JVM doesn't
      * need the memory for other things.
-     * @param <D> interface of DataStore to proxy
+     * @param <D> interface of DataStore to implement
      * @param c class object of D
      * @param delegate instance of DataStore
      * @param cacheSize the size of the cache used to keep most recently
      * "gotten" objects.
-     * @return a proxy instance of type D which wraps the given delegate
+     * @return an instance of type D which wraps the given delegate
      * and caches all results returned by get in an LRU cache.
      * @see #clearCacheFrom(DataStore)
      * @see #isACachedDataStore(DataStore)
@@ -26,7 +26,6 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -40,8 +39,8 @@ import org.jcvi.jillion.core.util.ThrowingStream;
 import org.jcvi.jillion.core.util.iter.IteratorUtil;
 import org.jcvi.jillion.core.util.iter.StreamingIterator;
 import org.jcvi.jillion.core.util.streams.ThrowingBiConsumer;
+import org.jcvi.jillion.internal.core.datastore.DataStoreAdapters;
 import org.jcvi.jillion.internal.core.datastore.DataStoreStreamingIterator;
-import org.jcvi.jillion.internal.core.util.Caches;
 import org.jcvi.jillion.internal.core.util.Sneak;
 import org.jcvi.jillion.sam.SamRecord;
 /**
@@ -120,7 +119,10 @@ public final class DataStoreUtil {
      * and {@link DataStore#iterator()} are determined by the iteration
      * order of input Map <strong>at the time this method is called</strong>.
      * <p>
-     * This factory method uses the Java Dynamic Proxy classes
+     * The standard Jillion DataStore interfaces (for example
+     * {@code NucleotideFastaDataStore} or {@code FastqDataStore})
+     * are implemented by concrete adapter classes;
+     * any other interface uses the Java Dynamic Proxy classes
      * to create a new implementation of the given interface
      * which uses the map as a backing store.  This factory class
      * can only implement methods that conform to the DataStore interface,
@@ -155,7 +157,10 @@ public final class DataStoreUtil {
      * the iteration
      * order of input DataStore.
      * <p>
-     * This factory method uses the Java Dynamic Proxy classes
+     * The standard Jillion DataStore interfaces (for example
+     * {@code NucleotideFastaDataStore} or {@code FastqDataStore})
+     * are implemented by concrete adapter classes;
+     * any other interface uses the Java Dynamic Proxy classes
      * to create a new implementation of the given interface
      * which wraps the input DataStore as a backing store.  This factory class
      * can only implement methods that conform to the input DataStore interface,
@@ -179,6 +184,10 @@ public final class DataStoreUtil {
 
     @SuppressWarnings("unchecked")
 	public static final <T, D extends DataStore<T>> D adapt(Class<D> datastoreInterface, DataStore<T> delegate){
+    	D adapted = DataStoreAdapters.adapt(datastoreInterface, delegate);
+    	if(adapted !=null){
+    		return adapted;
+    	}
     	return (D) Proxy.newProxyInstance(datastoreInterface.getClassLoader(), new Class<?>[]{datastoreInterface},
     			new DataStoreInvocationHandler<T>(delegate));
     }
@@ -209,10 +218,8 @@ public final class DataStoreUtil {
      * require method calls or new object creation.
      * @param <D> the Database interface type we want the returned datastore to mimic.
      */
-    @SuppressWarnings("unchecked")
 	public static final <F, T, D extends DataStore<T>> D adapt(Class<D> datastoreInterface, DataStore<F> delegate, Function<F, T> callback){
-    	return (D) Proxy.newProxyInstance(datastoreInterface.getClassLoader(), new Class<?>[]{datastoreInterface},
-    			new DataStoreInvocationHandler<T>(new AdaptedDataStore<F, T>(delegate, callback)));
+    	return adapt(datastoreInterface, new AdaptedDataStore<F, T>(delegate, callback));
     }
     
     
@@ -300,26 +307,37 @@ public final class DataStoreUtil {
     
     
     /**
-     * Create a new Dynamic Proxy wrapping the given DataStore.  The returned
+     * Create a new DataStore wrapping the given DataStore.  The returned
      * object is similar to the wrapped dataStore except
      * all {@link DataStore#get(String)} results are cached
-     * in an Least Recently Used (LRU) SoftReference cache of the specified size
+     * in a Thread-safe Least Recently Used (LRU) SoftReference cache of the specified size
      * and an additional interface, {@link CacheableDataStore} has been added
      * to the list of interfaces the returned {@link DataStore} implements.  This will
      * keep the Most recent {@code cacheSize} records in memory as long as the JVM doesn't
-     * need the memory for other things.
-     * @param <D> interface of DataStore to proxy
+     * need the memory for other things and
+     * the number of cache hits and misses can be queried using
+     * {@link CacheableDataStore#getCacheHitCount()} and {@link CacheableDataStore#getCacheMissCount()}.
+     * <p>
+     * The standard Jillion DataStore interfaces
+     * are implemented by concrete classes; any other interface
+     * is implemented using a Java Dynamic Proxy.
+     * @param <D> interface of DataStore to implement
      * @param c class object of D
      * @param delegate instance of DataStore
      * @param cacheSize the size of the cache used to keep most recently
      * "gotten" objects.
-     * @return a proxy instance of type D which wraps the given delegate
+     * @return an instance of type D which wraps the given delegate
      * and caches all results returned by get in an LRU cache.
+     * @throws IllegalArgumentException if cacheSize &lt; 1.
      * @see #clearCacheFrom(DataStore)
      * @see #isACachedDataStore(DataStore)
      */
     @SuppressWarnings("unchecked")
     public static <D extends DataStore<?>> D createNewCachedDataStore(Class<D> c,D delegate, int cacheSize){
+    	D cached = DataStoreAdapters.cache(c, delegate, cacheSize);
+    	if(cached !=null){
+    		return cached;
+    	}
         return (D) Proxy.newProxyInstance(c.getClassLoader(), new Class<?>[]{c, CacheableDataStore.class}, 
                 new CachedDataStoreInvocationHandler<D>(delegate,cacheSize));
     }
@@ -715,9 +733,11 @@ public final class DataStoreUtil {
 
 	
 	/**
-	 * {@code CachedDataStore} uses the Java Proxy classes to
-	 * wrap a given DataStore instance with a cache for objects returned
-	 * by {@link DataStore#get(String)}.
+	 * {@code CachedDataStoreInvocationHandler} is used to
+	 * wrap DataStore interfaces that don't have a concrete implementation
+	 * in {@link DataStoreAdapters}; all the {@link CacheableDataStore}
+	 * methods are forwarded to a concrete cached DataStore
+	 * and any extension methods are invoked on the delegate directly.
 	 * @author dkatzel
 	 *
 	 *
@@ -725,53 +745,38 @@ public final class DataStoreUtil {
 	private static final class CachedDataStoreInvocationHandler <D extends DataStore<?>> implements InvocationHandler{
 
 	    private final D delegate;
-	    private final Map<String, Object> cache;
-	    private static final Class<?>[] GET_PARAMETERS = new Class<?>[]{String.class};
+	    private final CacheableDataStore<?> cached;
 	   
 	    private CachedDataStoreInvocationHandler(D delegate, int cacheSize){
 	        this.delegate = delegate;
-	        cache= Caches.createSoftReferencedValueLRUCache(cacheSize);
+	        DataStore<?> datastore = delegate;
+	        this.cached = DataStoreAdapters.cache(datastore, cacheSize);
 	    }
 	   
 	    @Override
-	    public synchronized Object invoke(Object proxy, Method method, Object[] args)
+	    public Object invoke(Object proxy, Method method, Object[] args)
 	            throws Throwable {
 	    	try{
-		        final String methodName = method.getName();
-		        if("close".equals(methodName) && args==null){
-		            cache.clear();
-		        }
-		        else if("clearCache".equals(methodName) && args==null){
-		            cache.clear();
-		            return null;
-		        }
-		        else if("get".equals(methodName) && Arrays.equals(GET_PARAMETERS,method.getParameterTypes())){
-		            String id = (String)args[0];
-		            //we are have to check for null
-		            //because the object could be removed
-		            //between checking and getting
-		            //even in a synchronized block?
-		            Object result =cache.get(id);
-		            if(result !=null){
-		                return result;
-		            }
-		            
-		            Object obj =method.invoke(delegate, args);
-		            if(obj==null){
-		            	//we don't put nulls in our cache because
-			            //it might kickout something else
-			            //and cause us to refetch anyway
-			            //since we assume a null value means it's not in the cache.
-		            	return null;
-		            }		            
-		            cache.put(id, obj);
-		            return obj;
-		        }
+	    		if(isCacheableDataStoreMethod(method)){
+	    			return method.invoke(cached, args);
+	    		}
 		        return method.invoke(delegate, args);
 	    	}catch(InvocationTargetException e){
 	    		throw e.getCause();
 	    	}
-	    }   
+	    }
+	    
+	    private static boolean isCacheableDataStoreMethod(Method method){
+	    	if(method.getDeclaringClass() == Object.class){
+	    		return false;
+	    	}
+	    	try {
+				CacheableDataStore.class.getMethod(method.getName(), method.getParameterTypes());
+				return true;
+			} catch (NoSuchMethodException e) {
+				return false;
+			}
+	    }
 	    
 	}
 	/**
@@ -787,6 +792,26 @@ public final class DataStoreUtil {
          * closing the datastore.
          */
         void clearCache();
+        /**
+         * Get the number of calls to {@link DataStore#get(String)}
+         * that were returned from the cache.
+         * @return the number of cache hits.
+         * 
+         * @since 6.0.3
+         */
+        default long getCacheHitCount(){
+        	return 0;
+        }
+        /**
+         * Get the number of calls to {@link DataStore#get(String)}
+         * that were not in the cache.
+         * @return the number of cache misses.
+         * 
+         * @since 6.0.3
+         */
+        default long getCacheMissCount(){
+        	return 0;
+        }
     }
     
     /**
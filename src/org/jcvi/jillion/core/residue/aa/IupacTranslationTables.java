@@ -37,6 +37,7 @@ import org.jcvi.jillion.core.Range;
 import org.jcvi.jillion.core.residue.Frame;
 import org.jcvi.jillion.core.residue.aa.TranslationVisitor.FoundStartResult;
 import org.jcvi.jillion.core.residue.aa.TranslationVisitor.FoundStopResult;
+import org.jcvi.jillion.core.residue.nt.Nucleotide;
 import org.jcvi.jillion.core.residue.nt.NucleotideSequence;
 import org.jcvi.jillion.core.residue.nt.Triplet;
 import org.jcvi.jillion.core.residue.nt.VariantNucleotideSequence;
@@ -181,10 +182,44 @@ public enum IupacTranslationTables implements TranslationTable{
 		}
 	}
 	
+	/**
+	 * Number of possible triplets of 4 bit DNA ordinals.
+	 */
+	private static final int CODON_LOOKUP_SIZE = 1<<12;
+	
+	/**
+	 * Ordinal constants used to build and index the codon lookup.
+	 * These can't be static fields of the enum since the
+	 * enum constructors (which build the codon lookup) run
+	 * before the enum's other static fields are initialized.
+	 */
+	private static final class Ordinals{
+		private static final int THYMINE = Nucleotide.Thymine.ordinal();
+		/**
+		 * The ordinal of the complement of each DNA ordinal.
+		 */
+		private static final int[] COMPLEMENTS;
+		
+		static{
+			List<Nucleotide> dnaValues = Nucleotide.getDnaValues();
+			COMPLEMENTS = new int[dnaValues.size()];
+			for(Nucleotide n : dnaValues){
+				COMPLEMENTS[n.ordinal()] = n.complement().ordinal();
+			}
+		}
+	}
+	
 	private final Map<Triplet, Codon> map = new HashMap<>(MapUtil.computeMinHashMapSizeWithoutRehashing(200));
 	private final byte tableNumber;
 	
 	private final Map<AminoAcid, Set<Triplet>> aaToTripletMap;
+	/**
+	 * The Codon of every triplet of DNA ordinals indexed by
+	 * {@link #codonIndexOf(int, int, int)} translated the same way
+	 * as {@link #_translate2(Iterator, TranslationOptions, TranslationVisitor)}
+	 * when ambiguities are exploded and merged.  Triplets with gaps are null.
+	 */
+	private final Codon[] codonLookup;
 	
 	private IupacTranslationTables(int tableNumber){
 		initialzeTable();
@@ -194,6 +229,42 @@ public enum IupacTranslationTables implements TranslationTable{
 		for(Entry<Triplet, Codon> entry : map.entrySet()) {
 			aaToTripletMap.computeIfAbsent(entry.getValue().getAminoAcid(), aa -> new HashSet<>()).add(entry.getKey());
 		}
+		codonLookup = createCodonLookup();
+	}
+	
+	private Codon[] createCodonLookup(){
+		Codon[] lookup = new Codon[CODON_LOOKUP_SIZE];
+		List<Nucleotide> dnaValues = Nucleotide.getDnaValues();
+		for(Nucleotide first : dnaValues){
+			for(Nucleotide second : dnaValues){
+				for(Nucleotide third : dnaValues){
+					if(first.isGap() || second.isGap() || third.isGap()){
+						continue;
+					}
+					Set<Codon> codons = new LinkedHashSet<>();
+					for(Triplet triplet : Triplet.create(first, second, third).explode()){
+						//don't use _translate() since we don't want to add to the map
+						Codon codon = map.get(triplet);
+						codons.add(codon ==null ? new Codon.Builder(triplet, AminoAcid.Unknown_Amino_Acid).build() : codon);
+					}
+					lookup[codonIndexOf(first.ordinal(), second.ordinal(), third.ordinal())] = 
+							codons.size()==1 ? codons.iterator().next() : Codon.merge(codons);
+				}
+			}
+		}
+		return lookup;
+	}
+	/**
+	 * Pack the given Nucleotide ordinals into an index into the codon lookup
+	 * using 4 bits per base.  Uracil is treated as Thymine.
+	 */
+	private static int codonIndexOf(int first, int second, int third){
+		return toDnaOrdinal(first)<<8 | toDnaOrdinal(second)<<4 | toDnaOrdinal(third);
+	}
+	
+	private static int toDnaOrdinal(int ordinal){
+		//Uracil is the only non-DNA value and it comes after Thymine
+		return Math.min(ordinal, Ordinals.THYMINE);
 	}
 
 
@@ -326,6 +397,70 @@ public enum IupacTranslationTables implements TranslationTable{
 		
 	}
 	
+	/**
+	 * Same as {@link #_translate2(Iterator, TranslationOptions, TranslationVisitor)}
+	 * when ambiguities are exploded and merged but on ungapped ordinals
+	 * so no Triplet or Map is created per codon.
+	 */
+	private void translateOrdinals(byte[] ordinals, long shift, TranslationVisitor visitor) {
+		boolean seenStart=false;
+		for(int i=0; i+2 < ordinals.length; i+=3){
+			Codon codon = codonLookup[codonIndexOf(ordinals[i], ordinals[i+1], ordinals[i+2])];
+			long begin = shift +i;
+			long end = begin +2;
+			if(!seenStart && codon.isStart()){
+				FoundStartResult result = visitor.foundStart(begin, end, codon);
+				if(result ==FoundStartResult.STOP){
+					break;
+				}
+				seenStart = result != FoundStartResult.FIND_ADDITIONAL_STARTS;
+			}else if(codon.isStop()){
+				FoundStopResult result = visitor.foundStop(begin, end, codon);
+				if(result == FoundStopResult.STOP){
+					break;
+				}
+			}else{
+				visitor.visitCodon(begin, end, codon);
+			}
+		}
+		visitor.end();
+	}
+	/**
+	 * Translate all 6 frames of the given ungapped sequence
+	 * in a single pass over its bases.  Each codon of both strands
+	 * is looked up by its packed ordinals so the reverse complement
+	 * of the sequence is never built.
+	 */
+	@Override
+	public SixFrameTranslation translateSixFrames(NucleotideSequence sequence) {
+		Objects.requireNonNull(sequence, "sequence can not be null");
+		if(sequence.hasGaps()){
+			throw new IllegalArgumentException("sequence can not contain gaps");
+		}
+		int length = (int) sequence.getLength();
+		byte[] ordinals = sequence.toOrdinals(Range.ofLength(length));
+		
+		Codon[][] codons = new Codon[6][];
+		for(Frame frame : Frame.values()){
+			codons[frame.ordinal()] = new Codon[(length - frame.getNumberOfBasesSkipped())/3];
+		}
+		int forward =0;
+		int reverse =0;
+		for(int i=0; i< length; i++){
+			int ordinal = toDnaOrdinal(ordinals[i]);
+			forward = (forward <<4 | ordinal) & (CODON_LOOKUP_SIZE -1);
+			//the reverse complement codon ending here starts with the complement of this base
+			reverse = reverse >>>4 | Ordinals.COMPLEMENTS[ordinal] <<8;
+			if(i >= 2){
+				int start = i-2;
+				codons[start%3][start/3] = codonLookup[forward];
+				int reverseStart = length -1 -i;
+				codons[3 + reverseStart%3][reverseStart/3] = codonLookup[reverse];
+			}
+		}
+		return new SixFrameTranslation(length, codons);
+	}
+	
 	private Map<Codon, Double> translateExplodedTriplets(List<VariantTriplet> triplets, boolean shouldExplode){
 		Map<Codon, Double> codons = new HashMap<>();
 		for(VariantTriplet variantTriplet: triplets) {
@@ -425,7 +560,13 @@ public enum IupacTranslationTables implements TranslationTable{
 					 		.build();
 		 }
 		 
-		 _translate2(sequence.getTriplets(Range.ofLength(sequence.getLength()).intersection(range)), options, visitor);
+		 Range translateRange = Range.ofLength(sequence.getLength()).intersection(range);
+		 if(options.isExplodeNucleotides() && options.isMergeCodons() && !sequence.hasGaps()){
+			 //fast path: look up each codon by its packed ordinals
+			 translateOrdinals(sequence.toOrdinals(translateRange), translateRange.getBegin(), visitor);
+		 }else{
+			 _translate2(sequence.getTriplets(translateRange), options, visitor);
+		 }
 //	     _translate((f, consumer) -> f.asTriplets(sequence, options.isIgnoreGaps(), options.getNumberOfBasesToTranslate(), consumer), options, visitor);
 	    
 	}
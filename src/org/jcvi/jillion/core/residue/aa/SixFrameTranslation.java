@@ -0,0 +1,186 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.core.residue.aa;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.jcvi.jillion.core.Range;
+import org.jcvi.jillion.core.residue.Frame;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequence;
+/**
+ * {@code SixFrameTranslation} is the {@link Codon}s of
+ * all 6 {@link Frame}s of an ungapped {@link NucleotideSequence}.
+ * <p>
+ * The forward frames are the same codons as
+ * {@link TranslationTable#translate(NucleotideSequence, Frame, TranslationVisitor)}
+ * and the reverse frames are the same codons as translating the reverse complement
+ * of the sequence using the {@link Frame#getOppositeFrame() opposite frame}.
+ * Coordinates of codons in the reverse frames are offsets
+ * into the reverse complement of the sequence.
+ * </p>
+ *
+ * @author dkatzel
+ *
+ * @since 6.0.3
+ *
+ * @see TranslationTable#translateSixFrames(NucleotideSequence)
+ */
+public final class SixFrameTranslation {
+
+	private final long sequenceLength;
+	/**
+	 * Codons indexed by frame ordinal.
+	 */
+	private final Codon[][] codons;
+
+	SixFrameTranslation(long sequenceLength, Codon[][] codons) {
+		this.sequenceLength = sequenceLength;
+		this.codons = codons;
+	}
+	/**
+	 * Translate each frame one at a time using the given TranslationTable.
+	 */
+	static SixFrameTranslation create(TranslationTable table, NucleotideSequence sequence){
+		Objects.requireNonNull(sequence, "sequence can not be null");
+		if(sequence.hasGaps()){
+			throw new IllegalArgumentException("sequence can not contain gaps");
+		}
+		NucleotideSequence reverseComplement = sequence.reverseComplement();
+		Codon[][] codons = new Codon[6][];
+		for(Frame frame : Frame.values()){
+			List<Codon> list = new ArrayList<>((int) sequence.getLength()/3);
+			TranslationVisitor visitor = new TranslationVisitor() {
+
+				@Override
+				public void visitCodon(long nucleotideStartCoordinate, long nucleotideEndCoordinate, Codon codon) {
+					list.add(codon);
+				}
+
+				@Override
+				public void visitVariantCodon(long nucleotideStartCoordinate, long nucleotideEndCoordinate,
+						Map<Codon, Double> variants) {
+					list.add(Codon.merge(variants.keySet()));
+				}
+
+				@Override
+				public FoundStopResult foundStop(long nucleotideStartCoordinate, long nucleotideEndCoordinate, Codon codon) {
+					list.add(codon);
+					return FoundStopResult.READ_THROUGH;
+				}
+
+				@Override
+				public FoundStartResult foundStart(long nucleotideStartCoordinate, long nucleotideEndCoordinate, Codon codon) {
+					list.add(codon);
+					return FoundStartResult.CONTINUE;
+				}
+
+				@Override
+				public void end() {
+					//no-op
+				}
+			};
+			if(frame.onReverseStrand()){
+				table.translate(reverseComplement, frame.getOppositeFrame(), visitor);
+			}else{
+				table.translate(sequence, frame, visitor);
+			}
+			codons[frame.ordinal()] = list.toArray(new Codon[list.size()]);
+		}
+		return new SixFrameTranslation(sequence.getLength(), codons);
+	}
+	/**
+	 * Get the length of the sequence that was translated.
+	 * @return the length.
+	 */
+	public long getSequenceLength() {
+		return sequenceLength;
+	}
+	/**
+	 * Get the number of complete codons in the given frame.
+	 * @param frame the Frame; can not be null.
+	 * @return the number of codons, may be 0.
+	 * @throws NullPointerException if frame is null.
+	 */
+	public int getNumberOfCodons(Frame frame){
+		return codons[frame.ordinal()].length;
+	}
+	/**
+	 * Get the given codon of the given frame.
+	 * @param frame the Frame; can not be null.
+	 * @param codonIndex the 0-based index of the codon in the frame.
+	 * @return the Codon; will never be null.
+	 * @throws NullPointerException if frame is null.
+	 * @throws ArrayIndexOutOfBoundsException if codonIndex is out of range.
+	 */
+	public Codon getCodon(Frame frame, int codonIndex){
+		return codons[frame.ordinal()][codonIndex];
+	}
+	/**
+	 * Get all the codons of the given frame in order.
+	 * @param frame the Frame; can not be null.
+	 * @return an unmodifiable List of the codons; will never be null but may be empty.
+	 * @throws NullPointerException if frame is null.
+	 */
+	public List<Codon> getCodons(Frame frame){
+		return Collections.unmodifiableList(Arrays.asList(codons[frame.ordinal()]));
+	}
+	/**
+	 * Get the Range of the given codon.  Codons in the reverse frames
+	 * are offsets into the reverse complement of the sequence.
+	 * @param frame the Frame; can not be null.
+	 * @param codonIndex the 0-based index of the codon in the frame.
+	 * @return the 3 base Range; will never be null.
+	 * @throws NullPointerException if frame is null.
+	 */
+	public Range getCodonRange(Frame frame, int codonIndex){
+		return new Range.Builder(3)
+						.shift(frame.getNumberOfBasesSkipped() + 3L*codonIndex)
+						.build();
+	}
+	/**
+	 * Get the translated ProteinSequence of the given frame.
+	 * Like {@link TranslationTable#translate(NucleotideSequence, Frame)},
+	 * the first start codon is always translated as a Methionine
+	 * and stop codons are read through.
+	 * @param frame the Frame; can not be null.
+	 * @return a new ProteinSequence; will never be null but may be empty.
+	 * @throws NullPointerException if frame is null.
+	 */
+	public ProteinSequence getProteinSequence(Frame frame){
+		Codon[] array = codons[frame.ordinal()];
+		ProteinSequenceBuilder builder = new ProteinSequenceBuilder(Math.max(1, array.length));
+		boolean seenStart=false;
+		for(Codon codon : array){
+			if(!seenStart && codon.isStart()){
+				builder.append(AminoAcid.Methionine);
+				seenStart=true;
+			}else{
+				builder.append(codon.getAminoAcid());
+			}
+		}
+		return builder.build();
+	}
+}
@@ -256,6 +256,27 @@ public interface TranslationTable {
 	}
 	
 	Map<Frame,List<Long>> findStops(NucleotideSequence sequence);
+	/**
+	 * Translate all 6 {@link Frame}s of the given <strong>ungapped</strong> 
+	 * {@link NucleotideSequence} using the default {@link TranslationOptions}.
+	 * The reverse frames are translated from the reverse complement
+	 * of the sequence.
+	 * 
+	 * @param sequence the sequence to translate; can not be null and can not contain gaps.
+	 * 
+	 * @return a new {@link SixFrameTranslation}; will never be null.
+	 * 
+	 * @throws NullPointerException if sequence is null.
+	 * @throws IllegalArgumentException if the sequence contains gaps.
+	 * 
+	 * @implNote the default implementation translates each frame separately 
+	 * using {@link #translate(NucleotideSequence, Frame, TranslationVisitor)}.
+	 * 
+	 * @since 6.0.3
+	 */
+	default SixFrameTranslation translateSixFrames(NucleotideSequence sequence) {
+		return SixFrameTranslation.create(this, sequence);
+	}
 	/**
 	 * Get the set of all {@link Triplet}s that translate to the given AminoAcid
 	 * for this translation table.
@@ -24,6 +24,9 @@ import java.nio.ByteBuffer;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 import java.util.PrimitiveIterator.OfInt;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import org.jcvi.jillion.core.Range;
 import org.jcvi.jillion.core.Rangeable;
@@ -96,6 +99,18 @@ abstract class AbstractNucleotideCodec implements NucleotideCodec{
         
         
        protected abstract Nucleotide getNucleotide(byte encodedByte, int index);
+       /**
+        * Get the 2 bit k-mer code (A=0, C=1, G=2, T=3) of the
+        * base at the given index of the encoded byte
+        * without creating the {@link Nucleotide}.
+        * @param encodedByte the encoded byte.
+        * @param index the index into the group.
+        * @return the 2 bit code or a negative number if the base
+        * is not an A,C,G,T or U.
+        * 
+        * @see PackedKmers
+        */
+       protected abstract int getTwoBitCode(byte encodedByte, int index);
        
        private ByteBuffer getBufferToComputeNumberOfGapsOnly(byte[] encodedBytes){
 	    	//at most we only need the first 12 bytes
@@ -847,6 +862,159 @@ abstract class AbstractNucleotideCodec implements NucleotideCodec{
 			return builder.toString();
 		}
 
+		@Override
+		public PackedKmerSpliterator createPackedKmerSpliterator(byte[] encodedData, int k, boolean canonical, Range range) {
+			return new EncodedPackedKmerSpliterator(encodedData, k, canonical, range);
+		}
+		/**
+		 * Reads the 2 bit codes straight out of the encoded
+		 * bytes.  Unlike {@link IteratorImpl}, the encoded
+		 * bases aren't copied; we just remember where they start.
+		 */
+		private final class EncodedPackedKmerSpliterator extends PackedKmerSpliterator{
+			private final byte[] encodedBytes;
+			private final int basesStart;
+			private final int numberOfBasesPerGroup = getNucleotidesPerGroup();
+			private final int[] sentinelArray;
+			private int sentinelIndex;
+			private int nextSentinel;
+			
+			EncodedPackedKmerSpliterator(byte[] encodedGlyphs, int k, boolean canonical, Range range){
+				super(k, canonical, range);
+				this.encodedBytes = encodedGlyphs;
+				ByteBuffer buf = ByteBuffer.wrap(encodedGlyphs);
+				this.sentinelArray = skipLengthAndParseSentinels(buf);
+				this.basesStart = buf.position();
+				int begin = (int) range.getBegin();
+				while(sentinelIndex < sentinelArray.length && sentinelArray[sentinelIndex] < begin){
+					sentinelIndex++;
+				}
+				nextSentinel = getNextSentinel();
+			}
+			
+			private int getNextSentinel() {
+				if(sentinelIndex>= sentinelArray.length){
+					return END_OF_ITER;
+				}
+				return sentinelArray[sentinelIndex++];
+			}
+			
+			@Override
+			protected int nextTwoBitCode(int offset) {
+				if(offset == nextSentinel){
+					//sentinels are always gaps or Ns
+					nextSentinel = getNextSentinel();
+					return -1;
+				}
+				return getTwoBitCode(encodedBytes[basesStart + offset/numberOfBasesPerGroup], offset%numberOfBasesPerGroup);
+			}
+		}
+
+		@Override
+		public NucleotidePatternSpliterator createPatternSpliterator(byte[] encodedData, NucleotidePattern pattern, Range range) {
+			return new EncodedNucleotidePatternSpliterator(encodedData, pattern, range);
+		}
+		
+		@Override
+		public byte[] toOrdinals(byte[] encodedData, Range range) {
+			ByteBuffer buf = ByteBuffer.wrap(encodedData);
+			int[] sentinelArray = skipLengthAndParseSentinels(buf);
+			int basesStart = buf.position();
+			int numberOfBasesPerGroup = getNucleotidesPerGroup();
+			int begin = (int) range.getBegin();
+			byte[] ordinals = new byte[(int) range.getLength()];
+			for(int i=0; i< ordinals.length; i++){
+				int offset = begin +i;
+				ordinals[i] = getNucleotide(encodedData[basesStart + offset/numberOfBasesPerGroup], offset%numberOfBasesPerGroup).getOrdinalAsByte();
+			}
+			byte sentinelOrdinal = sententialBase.getOrdinalAsByte();
+			for(int sentinel : sentinelArray){
+				if(sentinel >= begin && sentinel - begin < ordinals.length){
+					ordinals[sentinel - begin] = sentinelOrdinal;
+				}
+			}
+			return ordinals;
+		}
+		
+		@Override
+		public Stream<Range> matches(byte[] encodedData, Pattern pattern) {
+			return matches(encodedData, pattern, Range.ofLength(getLength(encodedData)));
+		}
+		
+		@Override
+		public Stream<Range> matches(byte[] encodedData, Pattern pattern, Range range) {
+			NucleotidePattern literal = NucleotidePattern.literalOf(pattern);
+			if(literal ==null || range.isEmpty() || range.getBegin() <0 || range.getEnd() >= getLength(encodedData)){
+				return NucleotideCodec.super.matches(encodedData, pattern, range);
+			}
+			//simple literals can be matched without decoding the bases into a String
+			return StreamSupport.stream(createPatternSpliterator(encodedData, literal, range), false)
+								.map(NucleotidePatternMatch::getRange);
+		}
+		/**
+		 * Skip over the length in the header and
+		 * return the sentinel offsets.  The buffer will be positioned
+		 * at the start of the encoded bases.
+		 */
+		private static int[] skipLengthAndParseSentinels(ByteBuffer buf){
+			ValueSizeStrategy offsetStrategy = VALUE_SIZE_STRATEGIES[buf.get()];
+			//need to skip length since we don't care about it
+			//but need to read it to advance pointer in buffer
+			offsetStrategy.getNext(buf);
+			ValueSizeStrategy sentinelStrategy = VALUE_SIZE_STRATEGIES[buf.get()];
+			if(sentinelStrategy == ValueSizeStrategy.NONE){
+				return new int[0];
+			}
+			int numberOfSentinels = sentinelStrategy.getNext(buf);
+			int[] sentinelArray = new int[numberOfSentinels];
+			for(int i = 0; i< numberOfSentinels; i++){
+				sentinelArray[i] =offsetStrategy.getNext(buf);
+			}
+			return sentinelArray;
+		}
+		/**
+		 * Reads the ordinal of each base straight out of the encoded
+		 * bytes the same way as {@link EncodedPackedKmerSpliterator}.
+		 */
+		private final class EncodedNucleotidePatternSpliterator extends NucleotidePatternSpliterator{
+			private final byte[] encodedBytes;
+			private final int basesStart;
+			private final int numberOfBasesPerGroup = getNucleotidesPerGroup();
+			private final int sentinelOrdinal = sententialBase.ordinal();
+			private final int[] sentinelArray;
+			private int sentinelIndex;
+			private int nextSentinel;
+			
+			EncodedNucleotidePatternSpliterator(byte[] encodedGlyphs, NucleotidePattern pattern, Range range){
+				super(pattern, range);
+				this.encodedBytes = encodedGlyphs;
+				ByteBuffer buf = ByteBuffer.wrap(encodedGlyphs);
+				this.sentinelArray = skipLengthAndParseSentinels(buf);
+				this.basesStart = buf.position();
+				int begin = (int) range.getBegin();
+				while(sentinelIndex < sentinelArray.length && sentinelArray[sentinelIndex] < begin){
+					sentinelIndex++;
+				}
+				nextSentinel = getNextSentinel();
+			}
+			
+			private int getNextSentinel() {
+				if(sentinelIndex>= sentinelArray.length){
+					return END_OF_ITER;
+				}
+				return sentinelArray[sentinelIndex++];
+			}
+			
+			@Override
+			protected int nextOrdinal(int offset) {
+				if(offset == nextSentinel){
+					nextSentinel = getNextSentinel();
+					return sentinelOrdinal;
+				}
+				return getNucleotide(encodedBytes[basesStart + offset/numberOfBasesPerGroup], offset%numberOfBasesPerGroup).ordinal();
+			}
+		}
+
 		private final class IteratorImpl implements Iterator<Nucleotide>{
 			
 			private final int length;
@@ -74,6 +74,10 @@ abstract class AbstractSimpleNucleotideSequence extends AbstractResidueSequence<
 
     @Override
     public Stream<Range> findMatches(Pattern pattern) {
+        NucleotidePattern literal = NucleotidePattern.literalOf(pattern);
+        if(literal !=null){
+            return findMatches(literal, Range.ofLength(data.length)).map(NucleotidePatternMatch::getRange);
+        }
         Matcher matcher = pattern.matcher(toString());
 
         return StreamUtil.newGeneratedStream(() -> matcher.find()
@@ -83,6 +87,10 @@ abstract class AbstractSimpleNucleotideSequence extends AbstractResidueSequence<
 
     @Override
     public Stream<Range> findMatches(Pattern pattern, Range subSequenceRange) {
+        NucleotidePattern literal = NucleotidePattern.literalOf(pattern);
+        if(literal !=null && !subSequenceRange.isEmpty()){
+            return findMatches(literal, subSequenceRange).map(NucleotidePatternMatch::getRange);
+        }
 
         StringBuilder builder = new StringBuilder((int) subSequenceRange.getLength());
         Arrays.stream(data, (int)subSequenceRange.getBegin(), (int) subSequenceRange.getEnd()+1)
@@ -97,6 +105,30 @@ abstract class AbstractSimpleNucleotideSequence extends AbstractResidueSequence<
                 : Optional.empty());
     }
 
+    PackedKmerSpliterator createPackedKmerSpliterator(int k, boolean canonical, Range range){
+        return new PackedKmerSpliterator.ArrayPackedKmerSpliterator(k, canonical, range, data);
+    }
+
+    NucleotidePatternSpliterator createPatternSpliterator(NucleotidePattern pattern, Range range){
+        return new NucleotidePatternSpliterator.ArrayNucleotidePatternSpliterator(pattern, range, data);
+    }
+
+    @Override
+    public byte[] toOrdinals(Range range) {
+        if(range.isEmpty()){
+            return new byte[0];
+        }
+        if(range.getBegin() <0 || range.getEnd() >= data.length){
+            throw new IndexOutOfBoundsException("range "+range +" is out of range of sequence which is only "+ Range.ofLength(data.length));
+        }
+        byte[] ordinals = new byte[(int) range.getLength()];
+        int begin = (int) range.getBegin();
+        for(int i=0; i< ordinals.length; i++){
+            ordinals[i] = data[begin +i].getOrdinalAsByte();
+        }
+        return ordinals;
+    }
+
     @Override
     public List<Range> getRangesOfNs() {
         return new ArrayList<>(nRangeSupplier.get());
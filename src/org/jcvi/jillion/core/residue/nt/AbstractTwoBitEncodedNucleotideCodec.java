@@ -67,6 +67,11 @@ abstract class AbstractTwoBitEncodedNucleotideCodec extends AbstractNucleotideCo
 		int j= (index%4) <<1;
 		return getGlyphFor((byte)((encodedByte >>j) &0x3));
     }
+	@Override
+	protected int getTwoBitCode(byte encodedByte, int index) {
+		//our encoding already uses the same values as packed kmers
+		return (encodedByte >> ((index & 3) <<1)) & 0x3;
+	}
 	@Override
 	protected void encodeLastGroup(Iterator<Nucleotide> glyphs, ByteBuffer result, int offset) {
         byte b0 = getNextByte(glyphs);
@@ -50,6 +50,11 @@ final class BasicNucleotideCodec extends AbstractNucleotideCodec{
 	 		  value = (byte)(encodedByte &0x0F);
 	 	   }
 	 	   return getGlyphFor(value);
+	    }
+	    @Override
+	    protected int getTwoBitCode(byte encodedByte, int index){
+	    	int ordinal = (index & 0x01)==0 ? (encodedByte>>4) &0x0F : encodedByte &0x0F;
+	    	return PackedKmers.twoBitCodeOf(ordinal);
 	    }
 		@Override
 		protected void encodeLastGroup(Iterator<Nucleotide> glyphs, ByteBuffer result, int offset) {
@@ -221,6 +221,23 @@ final class DefaultNucleotideSequence extends AbstractResidueSequence<Nucleotide
         }
     }
 
+	PackedKmerSpliterator createPackedKmerSpliterator(int k, boolean canonical, Range range){
+		return codec.createPackedKmerSpliterator(data, k, canonical, range);
+	}
+
+	NucleotidePatternSpliterator createPatternSpliterator(NucleotidePattern pattern, Range range){
+		return codec.createPatternSpliterator(data, pattern, range);
+	}
+	
+	@Override
+	public byte[] toOrdinals(Range range) {
+		if(range.isEmpty()){
+			return new byte[0];
+		}
+		ensureRangeWithinSequence(range, this::getLength);
+		return codec.toOrdinals(data, range);
+	}
+
 	@Override
     public List<Integer> getGapOffsets() {
     	return codec.getGapOffsets(data);
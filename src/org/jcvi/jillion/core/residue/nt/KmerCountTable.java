@@ -0,0 +1,251 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.core.residue.nt;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.jcvi.jillion.internal.core.util.LongIntCountMap;
+/**
+ * An immutable table of the number of times each packed k-mer
+ * was seen by a {@link KmerCounter}.
+ * The k-mers are split into the same hash partitions
+ * the counter used and each partition is stored as a sorted
+ * array of packed k-mers and a parallel array of counts
+ * so each distinct k-mer only takes 12 bytes
+ * and lookups are a binary search.
+ * 
+ * @author dkatzel
+ *
+ * @since 6.0.3
+ * 
+ * @see KmerCounter
+ * @see PackedKmers
+ */
+public final class KmerCountTable {
+	/**
+	 * Consumes each k-mer in a {@link KmerCountTable}
+	 * along with its count.
+	 * 
+	 * @author dkatzel
+	 *
+	 * @since 6.0.3
+	 */
+	@FunctionalInterface
+	public interface KmerCountConsumer{
+		/**
+		 * Performs this operation on the given k-mer.
+		 * @param kmer the packed k-mer.
+		 * @param count the number of times the k-mer was seen; always &ge; 1.
+		 */
+		void accept(long kmer, int count);
+	}
+	
+	private final int k;
+	private final boolean canonical;
+	private final long[][] kmers;
+	private final int[][] counts;
+	
+	private final long numberOfDistinctKmers;
+	private final long totalNumberOfKmers;
+	
+	KmerCountTable(int k, boolean canonical, long[][] kmers, int[][] counts) {
+		this.k = k;
+		this.canonical = canonical;
+		this.kmers = kmers;
+		this.counts = counts;
+		long distinct=0;
+		long total=0;
+		for(int[] partition : counts){
+			distinct += partition.length;
+			for(int count : partition){
+				total += count;
+			}
+		}
+		this.numberOfDistinctKmers = distinct;
+		this.totalNumberOfKmers = total;
+	}
+	/**
+	 * Get the partition the given packed k-mer belongs to.
+	 * @param kmer the packed k-mer.
+	 * @param numberOfPartitions the number of partitions.
+	 * @return the partition index.
+	 */
+	static int partitionOf(long kmer, int numberOfPartitions){
+		//the hash tables use the low bits so use the high bits here
+		return (int) ((LongIntCountMap.hash(kmer) >>> 32) % numberOfPartitions);
+	}
+	/**
+	 * Get the k-mer size.
+	 * @return the k-mer size.
+	 */
+	public int getK() {
+		return k;
+	}
+	/**
+	 * Were the k-mers counted as canonical k-mers
+	 * (so a k-mer and its reverse complement are counted together).
+	 * @return {@code true} if canonical; {@code false} otherwise.
+	 */
+	public boolean isCanonical() {
+		return canonical;
+	}
+	/**
+	 * Get the number of different k-mers in this table.
+	 * @return the number of distinct k-mers.
+	 */
+	public long getNumberOfDistinctKmers() {
+		return numberOfDistinctKmers;
+	}
+	/**
+	 * Get the sum of all the counts in this table.
+	 * @return the total number of k-mers counted.
+	 */
+	public long getTotalNumberOfKmers() {
+		return totalNumberOfKmers;
+	}
+	/**
+	 * Get the count of the given packed k-mer.  If this table
+	 * is canonical, the k-mer does not have to be canonical.
+	 * @param kmer the packed k-mer.
+	 * @return the count or 0 if the k-mer was never seen.
+	 * 
+	 * @see PackedKmers#encode(CharSequence)
+	 */
+	public int getCount(long kmer){
+		long key = canonical ? PackedKmers.canonical(kmer, k) : kmer;
+		int partition = partitionOf(key, kmers.length);
+		int index = Arrays.binarySearch(kmers[partition], key);
+		return index <0 ? 0 : counts[partition][index];
+	}
+	/**
+	 * Get the count of the given k-mer.  If this table
+	 * is canonical, the k-mer does not have to be canonical.
+	 * @param kmer the bases of the k-mer; can not be null.
+	 * @return the count or 0 if the k-mer was never seen.
+	 * 
+	 * @throws NullPointerException if kmer is null.
+	 * @throws IllegalArgumentException if the kmer is not length k
+	 * or contains a base other than A,C,G,T or U.
+	 */
+	public int getCount(CharSequence kmer){
+		if(kmer.length() != k){
+			throw new IllegalArgumentException("kmer must be length " + k + " : " + kmer);
+		}
+		return getCount(PackedKmers.encode(kmer));
+	}
+	/**
+	 * Pass each k-mer and its count to the given consumer.
+	 * The k-mers are grouped by partition and sorted within each partition.
+	 * @param consumer the consumer to call; can not be null.
+	 * @throws NullPointerException if consumer is null.
+	 */
+	public void forEach(KmerCountConsumer consumer){
+		for(int p=0; p< kmers.length; p++){
+			long[] partitionKmers = kmers[p];
+			int[] partitionCounts = counts[p];
+			for(int i=0; i< partitionKmers.length; i++){
+				consumer.accept(partitionKmers[i], partitionCounts[i]);
+			}
+		}
+	}
+	/**
+	 * Get the largest count in this table.
+	 * @return the max count or 0 if the table is empty.
+	 */
+	public int getMaxCount(){
+		int max=0;
+		for(int[] partition : counts){
+			for(int count : partition){
+				if(count > max){
+					max = count;
+				}
+			}
+		}
+		return max;
+	}
+	/**
+	 * Compute the histogram of counts.
+	 * This is the same as {@code getHistogram(getMaxCount())}.
+	 * @return a new array where the value at index {@code i}
+	 * is the number of distinct k-mers seen exactly {@code i} times.
+	 */
+	public long[] getHistogram(){
+		return getHistogram(getMaxCount());
+	}
+	/**
+	 * Compute the histogram of counts up to the given max.
+	 * 
+	 * @param maxCount the largest count to get its own bin;
+	 * all k-mers with larger counts are added to the last bin.
+	 * Must be &ge; 1.
+	 * 
+	 * @return a new array of length {@code maxCount +1} where the value at index {@code i}
+	 * is the number of distinct k-mers seen exactly {@code i} times.
+	 * Index 0 is always 0.
+	 * 
+	 * @throws IllegalArgumentException if maxCount &lt; 1.
+	 */
+	public long[] getHistogram(int maxCount){
+		if(maxCount <1){
+			throw new IllegalArgumentException("max count must be >= 1");
+		}
+		long[] histogram = new long[maxCount+1];
+		for(int[] partition : counts){
+			for(int count : partition){
+				histogram[Math.min(count, maxCount)]++;
+			}
+		}
+		return histogram;
+	}
+	/**
+	 * Write the histogram of counts as text, one line per count
+	 * that has any k-mers, with the count and the number of distinct
+	 * k-mers with that count separated by a space (the same format as 
+	 * {@code jellyfish histo}).
+	 * 
+	 * @param out the OutputStream to write to; can not be null.
+	 * The stream is flushed but not closed.
+	 * 
+	 * @throws IOException if there is a problem writing to the stream.
+	 * @throws NullPointerException if out is null.
+	 */
+	public void writeHistogram(OutputStream out) throws IOException{
+		long[] histogram = getHistogram();
+		PrintWriter writer = new PrintWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+		for(int i=1; i< histogram.length; i++){
+			if(histogram[i] >0){
+				writer.print(i);
+				writer.print(' ');
+				writer.print(histogram[i]);
+				writer.print('\n');
+			}
+		}
+		writer.flush();
+		if(writer.checkError()){
+			throw new IOException("error writing histogram");
+		}
+	}
+}
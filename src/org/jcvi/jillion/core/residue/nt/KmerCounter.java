@@ -0,0 +1,525 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.core.residue.nt;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+
+import org.jcvi.jillion.core.Range;
+import org.jcvi.jillion.core.io.IOUtil;
+import org.jcvi.jillion.core.qual.QualitySequence;
+import org.jcvi.jillion.core.util.iter.StreamingIterator;
+import org.jcvi.jillion.core.util.streams.ThrowingConsumer;
+import org.jcvi.jillion.internal.core.util.GrowableIntArray;
+import org.jcvi.jillion.internal.core.util.GrowableLongArray;
+import org.jcvi.jillion.internal.core.util.LongIntCountMap;
+import org.jcvi.jillion.internal.core.util.WorkerPool;
+import org.jcvi.jillion.trace.fastq.AbstractFastqVisitor;
+import org.jcvi.jillion.trace.fastq.FastqDataStore;
+import org.jcvi.jillion.trace.fastq.FastqParser;
+import org.jcvi.jillion.trace.fastq.FastqRecord;
+import org.jcvi.jillion.trace.fastq.FastqRecordVisitor;
+/**
+ * Counts the packed k-mers of every sequence
+ * in a datastore or fastq file.
+ * <p>
+ * The k-mers of each sequence are computed on the thread
+ * reading the sequences (or the parser's threads if the parser is multi-threaded)
+ * and handed off in batches to worker threads.  The k-mers are
+ * split into hash partitions and each partition is owned by a single worker
+ * which counts them in a primitive open addressing hash table, so
+ * no locking is needed.  If the tables grow beyond the max memory,
+ * the partition is sorted and spilled to a temp file and all the spilled
+ * runs of a partition are merged at the end.
+ * </p>
+ * Any k-mer that contains a gap or an ambiguous base is skipped.
+ * Instances are Thread-safe and can be reused to count different inputs.
+ * 
+ * @author dkatzel
+ *
+ * @since 6.0.3
+ * 
+ * @see KmerCounterBuilder
+ * @see KmerCountTable
+ */
+public final class KmerCounter {
+	/**
+	 * Number of k-mers handed to a worker at a time.
+	 */
+	private static final int BATCH_SIZE = 8192;
+	/**
+	 * Max number of batches waiting for each worker.
+	 */
+	private static final int MAX_BATCHES_IN_FLIGHT = 16;
+	/**
+	 * Smallest per partition table size before we spill
+	 * so we don't spill tiny runs.
+	 */
+	private static final long MIN_PARTITION_MEMORY = 64 * 1024;
+	
+	private static final long[] END_OF_INPUT = new long[0];
+	
+	private final int k;
+	private final boolean canonical;
+	private final int numberOfThreads;
+	private final int numberOfPartitions;
+	private final long partitionMemory;
+	private final File tmpDir;
+	
+	KmerCounter(KmerCounterBuilder builder){
+		this.k = builder.k;
+		this.canonical = builder.canonical;
+		this.numberOfThreads = builder.numberOfThreads;
+		this.numberOfPartitions = builder.numberOfPartitions >0 ? builder.numberOfPartitions : numberOfThreads * 4;
+		this.partitionMemory = Math.max(MIN_PARTITION_MEMORY, builder.maxMemory / numberOfPartitions);
+		this.tmpDir = builder.tmpDir;
+	}
+	/**
+	 * Count the k-mers of every sequence in the given datastore.
+	 * @param datastore the datastore to count; can not be null.
+	 * @return a new KmerCountTable; will never be null.
+	 * @throws IOException if there is a problem reading the datastore
+	 * or spilling to disk.
+	 * @throws NullPointerException if datastore is null.
+	 */
+	public KmerCountTable count(NucleotideSequenceDataStore datastore) throws IOException{
+		Objects.requireNonNull(datastore);
+		return count(session ->{
+			try(StreamingIterator<NucleotideSequence> iter = datastore.iterator()){
+				while(iter.hasNext()){
+					session.add(iter.next());
+				}
+			}
+		});
+	}
+	/**
+	 * Count the k-mers of every read in the given datastore.
+	 * @param datastore the datastore to count; can not be null.
+	 * @return a new KmerCountTable; will never be null.
+	 * @throws IOException if there is a problem reading the datastore
+	 * or spilling to disk.
+	 * @throws NullPointerException if datastore is null.
+	 */
+	public KmerCountTable count(FastqDataStore datastore) throws IOException{
+		Objects.requireNonNull(datastore);
+		return count(session ->{
+			try(StreamingIterator<FastqRecord> iter = datastore.iterator()){
+				while(iter.hasNext()){
+					session.add(iter.next().getNucleotideSequence());
+				}
+			}
+		});
+	}
+	/**
+	 * Count the k-mers of every read parsed by the given parser.
+	 * The bases are read straight from the parsed text
+	 * so no {@link FastqRecord}s are created.  Multi-threaded parsers
+	 * may call this counter from several threads at once.
+	 * @param parser the parser to use; can not be null.
+	 * @return a new KmerCountTable; will never be null.
+	 * @throws IOException if there is a problem parsing
+	 * or spilling to disk.
+	 * @throws NullPointerException if parser is null.
+	 */
+	public KmerCountTable count(FastqParser parser) throws IOException{
+		Objects.requireNonNull(parser);
+		return count(session ->
+			parser.parse(new AbstractFastqVisitor() {
+				@Override
+				public FastqRecordVisitor visitDefline(FastqVisitorCallback callback, String id, String optionalComment) {
+					return new BasesOnlyRecordVisitor(session);
+				}
+			}));
+	}
+	
+	private KmerCountTable count(ThrowingConsumer<Session, IOException> producer) throws IOException{
+		try(Session session = new Session()){
+			producer.accept(session);
+			return session.finish();
+		}catch(UncheckedIOException e){
+			//a worker failed
+			throw e.getCause();
+		}
+	}
+	
+	private static <T> T waitFor(Future<T> future) throws IOException{
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("interrupted while counting kmers", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if(cause instanceof IOException){
+				throw (IOException) cause;
+			}
+			throw new IOException("error counting kmers", cause);
+		}
+	}
+	
+	private static final class BasesOnlyRecordVisitor implements FastqRecordVisitor{
+		private final Session session;
+		
+		BasesOnlyRecordVisitor(Session session) {
+			this.session = session;
+		}
+
+		@Override
+		public void visitNucleotides(String nucleotides) {
+			session.add(nucleotides);
+		}
+
+		@Override
+		public void visitEncodedQualities(String encodedQualities) {
+			//no-op
+		}
+
+		@Override
+		public void visitQualities(QualitySequence qualities) {
+			//no-op
+		}
+
+		@Override
+		public void visitEnd() {
+			//no-op
+		}
+
+		@Override
+		public void halted() {
+			//no-op
+		}
+	}
+	/**
+	 * The state of a single call to count.
+	 */
+	private final class Session implements Closeable{
+		private final WorkerPool executor;
+		private final List<BlockingQueue<long[]>> queues = new ArrayList<>(numberOfThreads);
+		private final List<Future<Void>> futures = new ArrayList<>(numberOfThreads);
+		
+		private final long[][] partitionKmers = new long[numberOfPartitions][];
+		private final int[][] partitionCounts = new int[numberOfPartitions][];
+		/**
+		 * Each thread that adds sequences gets its own batches.
+		 */
+		private final Queue<Batcher> batchers = new ConcurrentLinkedQueue<>();
+		private final ThreadLocal<Batcher> threadBatcher = ThreadLocal.withInitial(()->{
+			Batcher batcher = new Batcher(this);
+			batchers.add(batcher);
+			return batcher;
+		});
+		
+		Session(){
+			//every worker runs until the end of input so the pool must run them all at once
+			executor = new WorkerPool(numberOfThreads);
+			for(int i=0; i< numberOfThreads; i++){
+				BlockingQueue<long[]> queue = new ArrayBlockingQueue<>(MAX_BATCHES_IN_FLIGHT);
+				queues.add(queue);
+				futures.add(executor.submit(new Worker(i, queue, this)));
+			}
+		}
+		
+		void add(NucleotideSequence sequence){
+			PackedKmerSpliterator.create(sequence, k, canonical, Range.ofLength(sequence.getLength()))
+								.forEachRemaining((LongConsumer) threadBatcher.get());
+		}
+		
+		void add(CharSequence bases){
+			PackedKmerSpliterator.create(bases, k, canonical)
+								.forEachRemaining((LongConsumer) threadBatcher.get());
+		}
+		
+		/**
+		 * Hand the batch to the given worker, blocking
+		 * if the worker is too far behind.
+		 * @throws UncheckedIOException if the worker failed.
+		 */
+		void send(int worker, long[] batch){
+			BlockingQueue<long[]> queue = queues.get(worker);
+			Future<Void> future = futures.get(worker);
+			try{
+				while(!queue.offer(batch, 100, TimeUnit.MILLISECONDS)){
+					if(future.isDone()){
+						waitFor(future);
+						throw new IOException("kmer counter worker stopped early");
+					}
+				}
+			}catch(InterruptedException e){
+				Thread.currentThread().interrupt();
+				throw new UncheckedIOException(new IOException("interrupted while counting kmers", e));
+			}catch(IOException e){
+				throw new UncheckedIOException(e);
+			}
+		}
+		
+		KmerCountTable finish() throws IOException{
+			for(Batcher batcher : batchers){
+				batcher.flush();
+			}
+			for(int i=0; i< numberOfThreads; i++){
+				send(i, END_OF_INPUT);
+			}
+			for(Future<Void> future : futures){
+				waitFor(future);
+			}
+			return new KmerCountTable(k, canonical, partitionKmers, partitionCounts);
+		}
+
+		@Override
+		public void close() {
+			threadBatcher.remove();
+			executor.cancelAll();
+		}
+	}
+	/**
+	 * Groups the k-mers by the worker that owns their partition.
+	 */
+	private final class Batcher implements LongConsumer{
+		private final Session session;
+		private final long[][] batches = new long[numberOfThreads][BATCH_SIZE];
+		private final int[] sizes = new int[numberOfThreads];
+		
+		Batcher(Session session) {
+			this.session = session;
+		}
+
+		@Override
+		public void accept(long kmer) {
+			int worker = KmerCountTable.partitionOf(kmer, numberOfPartitions) % numberOfThreads;
+			long[] batch = batches[worker];
+			batch[sizes[worker]++] = kmer;
+			if(sizes[worker] == BATCH_SIZE){
+				session.send(worker, batch);
+				batches[worker] = new long[BATCH_SIZE];
+				sizes[worker] =0;
+			}
+		}
+		
+		void flush(){
+			for(int i=0; i< numberOfThreads; i++){
+				if(sizes[i] >0){
+					session.send(i, Arrays.copyOf(batches[i], sizes[i]));
+					sizes[i]=0;
+				}
+			}
+		}
+	}
+	/**
+	 * Counts all the k-mers in the partitions {@code p}
+	 * where {@code p % numberOfThreads == workerIndex}.
+	 */
+	private final class Worker implements Callable<Void>{
+		private final int workerIndex;
+		private final BlockingQueue<long[]> queue;
+		private final Session session;
+		private final Partition[] partitions;
+		
+		Worker(int workerIndex, BlockingQueue<long[]> queue, Session session) {
+			this.workerIndex = workerIndex;
+			this.queue = queue;
+			this.session = session;
+			int numberOwned = (numberOfPartitions - workerIndex + numberOfThreads -1) / numberOfThreads;
+			partitions = new Partition[numberOwned];
+			for(int i=0; i< numberOwned; i++){
+				partitions[i] = new Partition();
+			}
+		}
+
+		@Override
+		public Void call() throws IOException, InterruptedException {
+			try{
+				while(true){
+					long[] batch = queue.take();
+					if(batch == END_OF_INPUT){
+						break;
+					}
+					for(long kmer : batch){
+						partitions[KmerCountTable.partitionOf(kmer, numberOfPartitions) / numberOfThreads].map.increment(kmer);
+					}
+					for(Partition partition : partitions){
+						if(partition.map.getSizeInBytes() > partitionMemory){
+							partition.spill();
+						}
+					}
+				}
+				for(int i=0; i< partitions.length; i++){
+					int partitionIndex = i * numberOfThreads + workerIndex;
+					partitions[i].finish(session, partitionIndex);
+					//let the table be garbage collected
+					partitions[i] = null;
+				}
+				return null;
+			}finally{
+				for(Partition partition : partitions){
+					if(partition !=null){
+						partition.deleteSpills();
+					}
+				}
+			}
+		}
+	}
+	/**
+	 * The counts of a single hash partition.
+	 */
+	private final class Partition{
+		private final LongIntCountMap map = new LongIntCountMap();
+		private final List<File> spills = new ArrayList<>();
+		
+		void spill() throws IOException{
+			File spillFile = File.createTempFile("kmers", ".spill", tmpDir);
+			spills.add(spillFile);
+			long[] kmers = map.getSortedKeys();
+			try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(spillFile)))){
+				out.writeInt(kmers.length);
+				for(long kmer : kmers){
+					out.writeLong(kmer);
+					out.writeInt(map.get(kmer));
+				}
+			}
+			map.clear();
+		}
+		
+		void finish(Session session, int partitionIndex) throws IOException{
+			if(spills.isEmpty()){
+				long[] kmers = map.getSortedKeys();
+				int[] counts = new int[kmers.length];
+				for(int i=0; i< kmers.length; i++){
+					counts[i] = map.get(kmers[i]);
+				}
+				map.clear();
+				session.partitionKmers[partitionIndex] = kmers;
+				session.partitionCounts[partitionIndex] = counts;
+				return;
+			}
+			if(!map.isEmpty()){
+				spill();
+			}
+			map.clear();
+			try{
+				merge(session, partitionIndex);
+			}finally{
+				deleteSpills();
+			}
+		}
+		
+		private void merge(Session session, int partitionIndex) throws IOException{
+			PriorityQueue<SpillReader> readers = new PriorityQueue<>(spills.size(),
+														(a,b)-> Long.compare(a.currentKmer, b.currentKmer));
+			List<SpillReader> opened = new ArrayList<>(spills.size());
+			int largestRun=0;
+			try{
+				for(File spill : spills){
+					SpillReader reader = new SpillReader(spill);
+					opened.add(reader);
+					largestRun = Math.max(largestRun, reader.remaining);
+					if(reader.advance()){
+						readers.add(reader);
+					}
+				}
+				//the merged partition has at least as many distinct k-mers
+				//as its largest run but is usually much smaller than all the runs combined
+				//since the same k-mers are spilled to every run
+				GrowableLongArray kmers = new GrowableLongArray(Math.max(16, largestRun));
+				GrowableIntArray counts = new GrowableIntArray(Math.max(16, largestRun));
+				int size=0;
+				while(!readers.isEmpty()){
+					SpillReader reader = readers.poll();
+					long kmer = reader.currentKmer;
+					if(size >0 && kmers.get(size-1) == kmer){
+						int sum = counts.get(size-1) + reader.currentCount;
+						counts.replace(size-1, sum <0 ? Integer.MAX_VALUE : sum);
+					}else{
+						kmers.append(kmer);
+						counts.append(reader.currentCount);
+						size++;
+					}
+					if(reader.advance()){
+						readers.add(reader);
+					}
+				}
+				session.partitionKmers[partitionIndex] = kmers.toArray();
+				session.partitionCounts[partitionIndex] = counts.toArray();
+			}finally{
+				for(SpillReader reader : opened){
+					IOUtil.closeAndIgnoreErrors(reader);
+				}
+			}
+		}
+		
+		void deleteSpills(){
+			for(File spill : spills){
+				IOUtil.deleteIgnoreError(spill);
+			}
+			spills.clear();
+		}
+	}
+	/**
+	 * Reads a sorted run of (kmer,count) pairs.
+	 */
+	private static final class SpillReader implements Closeable{
+		private final DataInputStream in;
+		private int remaining;
+		private long currentKmer;
+		private int currentCount;
+		
+		SpillReader(File spill) throws IOException{
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(spill)));
+			remaining = in.readInt();
+		}
+		
+		boolean advance() throws IOException{
+			if(remaining ==0){
+				return false;
+			}
+			remaining--;
+			currentKmer = in.readLong();
+			currentCount = in.readInt();
+			return true;
+		}
+
+		@Override
+		public void close() throws IOException {
+			in.close();
+		}
+	}
+}
@@ -0,0 +1,134 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.core.residue.nt;
+
+import java.io.File;
+/**
+ * Builder for {@link KmerCounter}.
+ * <pre>
+ * KmerCountTable counts = new KmerCounterBuilder(31)
+ *                               .numberOfThreads(8)
+ *                               .maxMemory(4L * 1024 * 1024 * 1024)
+ *                               .build()
+ *                               .count(fastqDataStore);
+ * </pre>
+ * 
+ * @author dkatzel
+ *
+ * @since 6.0.3
+ */
+public final class KmerCounterBuilder {
+
+	final int k;
+	boolean canonical = true;
+	int numberOfThreads = Runtime.getRuntime().availableProcessors();
+	int numberOfPartitions;
+	long maxMemory = Runtime.getRuntime().maxMemory() /4;
+	File tmpDir;
+	/**
+	 * Create a new builder that will count k-mers of the given size.
+	 * @param k the k-mer size; must be between 1 and {@value PackedKmers#MAX_K}.
+	 * @throws IllegalArgumentException if k is not between 1 and {@value PackedKmers#MAX_K}.
+	 */
+	public KmerCounterBuilder(int k){
+		PackedKmers.checkKmerSize(k);
+		this.k = k;
+	}
+	/**
+	 * Count canonical k-mers so a k-mer and its reverse complement
+	 * are counted together.
+	 * @param canonical {@code true} to count canonical k-mers (the default);
+	 * {@code false} to only count the forward strand.
+	 * @return this
+	 */
+	public KmerCounterBuilder canonical(boolean canonical){
+		this.canonical = canonical;
+		return this;
+	}
+	/**
+	 * Set the number of worker threads that update the count tables.
+	 * Each worker owns its own partitions so no locking is needed.
+	 * @param numberOfThreads the number of threads; must be &ge; 1
+	 * (defaults to the number of available processors).
+	 * @return this
+	 * @throws IllegalArgumentException if numberOfThreads &lt; 1.
+	 */
+	public KmerCounterBuilder numberOfThreads(int numberOfThreads){
+		if(numberOfThreads <1){
+			throw new IllegalArgumentException("number of threads must be >= 1");
+		}
+		this.numberOfThreads = numberOfThreads;
+		return this;
+	}
+	/**
+	 * Set the number of hash partitions the k-mers are split into.
+	 * Each partition is spilled to disk independently.
+	 * @param numberOfPartitions the number of partitions; must be &ge; 1
+	 * (defaults to 4 partitions per thread).
+	 * @return this
+	 * @throws IllegalArgumentException if numberOfPartitions &lt; 1.
+	 */
+	public KmerCounterBuilder numberOfPartitions(int numberOfPartitions){
+		if(numberOfPartitions <1){
+			throw new IllegalArgumentException("number of partitions must be >= 1");
+		}
+		this.numberOfPartitions = numberOfPartitions;
+		return this;
+	}
+	/**
+	 * Set the number of bytes the hash tables
+	 * may use before partitions are spilled to disk.
+	 * The final {@link KmerCountTable} is always kept in memory and needs
+	 * 12 bytes per distinct k-mer.
+	 * @param maxMemory the number of bytes; must be &ge; 1
+	 * (defaults to a quarter of the max heap).
+	 * @return this
+	 * @throws IllegalArgumentException if maxMemory &lt; 1.
+	 */
+	public KmerCounterBuilder maxMemory(long maxMemory){
+		if(maxMemory <1){
+			throw new IllegalArgumentException("max memory must be >= 1");
+		}
+		this.maxMemory = maxMemory;
+		return this;
+	}
+	/**
+	 * Set the directory to write spilled partitions to.
+	 * @param tmpDir the directory; if {@code null} then
+	 * the default temp directory is used.
+	 * @return this
+	 * @throws IllegalArgumentException if tmpDir is not a directory.
+	 */
+	public KmerCounterBuilder tmpDir(File tmpDir){
+		if(tmpDir !=null && !tmpDir.isDirectory()){
+			throw new IllegalArgumentException("tmpDir must be a directory : " + tmpDir);
+		}
+		this.tmpDir = tmpDir;
+		return this;
+	}
+	/**
+	 * Create a new {@link KmerCounter}.
+	 * @return a new KmerCounter; will never be null.
+	 */
+	public KmerCounter build(){
+		return new KmerCounter(this);
+	}
+}
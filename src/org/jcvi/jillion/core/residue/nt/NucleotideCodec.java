@@ -325,4 +325,43 @@ interface NucleotideCodec extends GlyphCodec<Nucleotide>{
 	OfInt createLeftFlankingNonGapIterator(byte[] encodedGlyphs, int startingGapOffset);
 	
 	OfInt createRightFlankingNonGapIterator(byte[] encodedGlyphs, int startingGapOffset);
+	/**
+	 * Create a new {@link PackedKmerSpliterator} that reads
+	 * the bases directly from the encoded data.
+	 * @param encodedData the encoded bytes which contain
+	 * all the nucleotides.
+	 * @param k the k-mer size; already validated.
+	 * @param canonical should the canonical k-mer be returned.
+	 * @param range the non-empty Range of gapped offsets to iterate over;
+	 * already validated to be within the sequence.
+	 * @return a new PackedKmerSpliterator; will never be null.
+	 * 
+	 * @since 6.0.3
+	 */
+	PackedKmerSpliterator createPackedKmerSpliterator(byte[] encodedData, int k, boolean canonical, Range range);
+	/**
+	 * Create a new {@link NucleotidePatternSpliterator} that reads
+	 * the bases directly from the encoded data.
+	 * @param encodedData the encoded bytes which contain
+	 * all the nucleotides.
+	 * @param pattern the pattern to search for.
+	 * @param range the non-empty Range of gapped offsets to search;
+	 * already validated to be within the sequence.
+	 * @return a new NucleotidePatternSpliterator; will never be null.
+	 * 
+	 * @since 6.0.3
+	 */
+	NucleotidePatternSpliterator createPatternSpliterator(byte[] encodedData, NucleotidePattern pattern, Range range);
+	/**
+	 * Get the ordinal of each {@link Nucleotide} in the given range
+	 * by reading the bases directly from the encoded data.
+	 * @param encodedData the encoded bytes which contain
+	 * all the nucleotides.
+	 * @param range the Range of gapped offsets to get;
+	 * already validated to be within the sequence.
+	 * @return a new byte array the length of the range; will never be null.
+	 * 
+	 * @since 6.0.3
+	 */
+	byte[] toOrdinals(byte[] encodedData, Range range);
 }
@@ -0,0 +1,375 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.core.residue.nt;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+/**
+ * A compiled nucleotide pattern that can be searched for
+ * directly in the encoded bases of a {@link NucleotideSequence}
+ * without converting the sequence into a String first.
+ * <p>
+ * Patterns may contain any of the IUPAC ambiguity codes.
+ * A base in the sequence matches a position in the pattern
+ * if all the bases it could represent are also represented by
+ * the pattern position, so an {@code R} in the pattern will match
+ * an {@code A}, {@code G} or {@code R} but an {@code N} in the sequence
+ * is only matched by an {@code N} in the pattern.
+ * This is stricter than {@link Nucleotide#matches(Nucleotide)}
+ * so that runs of Ns don't match everything.  {@code U} is treated
+ * the same as {@code T} and gaps never match.
+ * </p>
+ * <p>
+ * Patterns are searched for using bit-parallel algorithms
+ * (Shift-And for exact matches and mismatches, Myers' bit-vector
+ * algorithm for edits) so each base of the sequence is only looked at once
+ * no matter how long the pattern is.  Because the pattern is stored
+ * in a long, patterns can be at most {@value #MAX_LENGTH} bases long.
+ * </p>
+ * <pre>
+ * NucleotidePattern ecoRI = NucleotidePattern.compile("GAATTC");
+ * 
+ * NucleotidePattern primer = new NucleotidePattern.Builder("ACGTRYACGTNNACGT")
+ *                                   .maxEdits(2)
+ *                                   .bothStrands(true)
+ *                                   .build();
+ * 
+ * sequence.findMatches(primer).forEach(match -&gt; ...);
+ * </pre>
+ * 
+ * @author dkatzel
+ * 
+ * @since 6.0.3
+ * 
+ * @see NucleotideSequence#findMatches(NucleotidePattern)
+ */
+public final class NucleotidePattern {
+	/**
+	 * The longest pattern that can be searched for.
+	 */
+	public static final int MAX_LENGTH = Long.SIZE;
+	/**
+	 * Set of A,C,G,T bits (A=1,C=2,G=4,T=8) of each {@link Nucleotide}
+	 * indexed by ordinal.  Gaps are 0.
+	 */
+	private static final int[] BASE_SETS;
+	
+	private static final int NUMBER_OF_NUCLEOTIDES;
+	
+	private static final Pattern LITERAL_REGEX = Pattern.compile("[ACGTUNVHDBWMRSYK\\-]+");
+	
+	static{
+		Nucleotide[] values = Nucleotide.values();
+		NUMBER_OF_NUCLEOTIDES = values.length;
+		BASE_SETS = new int[NUMBER_OF_NUCLEOTIDES];
+		for(Nucleotide n : values){
+			if(n.isGap()){
+				continue;
+			}
+			int set=0;
+			for(Nucleotide base : n.getBasesFor()){
+				switch(base){
+					case Adenine : set |= 1; break;
+					case Cytosine : set |= 2; break;
+					case Guanine : set |= 4; break;
+					default : set |= 8; break;
+				}
+			}
+			BASE_SETS[n.ordinal()] = set;
+		}
+	}
+	
+	private final String pattern;
+	private final int length;
+	private final int maxErrors;
+	private final boolean allowIndels;
+	private final boolean literal;
+	/**
+	 * Bit i of the mask for each base ordinal
+	 * is set if that base matches pattern position i.
+	 */
+	private final long[] forwardMasks;
+	/**
+	 * Masks for the reverse complement of the pattern
+	 * or null if the reverse strand isn't searched.
+	 */
+	private final long[] reverseMasks;
+	
+	private NucleotidePattern(String pattern, long[] forwardMasks, long[] reverseMasks,
+			int maxErrors, boolean allowIndels, boolean literal){
+		this.pattern = pattern;
+		this.length = pattern.length();
+		this.forwardMasks = forwardMasks;
+		this.reverseMasks = reverseMasks;
+		this.maxErrors = maxErrors;
+		this.allowIndels = allowIndels;
+		this.literal = literal;
+	}
+	/**
+	 * Compile the given pattern into an exact match
+	 * {@link NucleotidePattern} that only searches the forward strand.
+	 * This is the same as {@code new Builder(pattern).build()}.
+	 * 
+	 * @param pattern the bases to search for which may contain
+	 * IUPAC ambiguity codes; can not be null.
+	 * 
+	 * @return a new NucleotidePattern; will never be null.
+	 * 
+	 * @throws NullPointerException if pattern is null.
+	 * @throws IllegalArgumentException if pattern is empty, too long,
+	 * or contains gaps or characters that aren't nucleotides.
+	 */
+	public static NucleotidePattern compile(String pattern){
+		return new Builder(pattern).build();
+	}
+	/**
+	 * Create a {@link NucleotidePattern} that has the same
+	 * results as the given regular expression if it is
+	 * just a literal String of uppercase nucleotides.  Each character
+	 * only matches itself (so an N only matches an N)
+	 * and matches don't overlap just like {@link java.util.regex.Matcher#find()}.
+	 * 
+	 * @param regex the regular expression to check.
+	 * 
+	 * @return a new NucleotidePattern or {@code null} if the regular expression
+	 * isn't a short enough literal.
+	 */
+	static NucleotidePattern literalOf(Pattern regex){
+		String pattern = regex.pattern();
+		if(regex.flags() !=0 || pattern.length() > MAX_LENGTH 
+				|| !LITERAL_REGEX.matcher(pattern).matches()){
+			return null;
+		}
+		long[] masks = new long[NUMBER_OF_NUCLEOTIDES];
+		for(int i=0; i< pattern.length(); i++){
+			masks[Nucleotide.parse(pattern.charAt(i)).ordinal()] |= 1L << i;
+		}
+		return new NucleotidePattern(pattern, masks, null, 0, false, true);
+	}
+	
+	private static long[] computeMasks(int[] patternSets){
+		long[] masks = new long[NUMBER_OF_NUCLEOTIDES];
+		for(int ordinal=0; ordinal < NUMBER_OF_NUCLEOTIDES; ordinal++){
+			int baseSet = BASE_SETS[ordinal];
+			if(baseSet ==0){
+				continue;
+			}
+			long mask=0;
+			for(int i=0; i< patternSets.length; i++){
+				if((baseSet & ~patternSets[i]) ==0){
+					mask |= 1L << i;
+				}
+			}
+			masks[ordinal] = mask;
+		}
+		return masks;
+	}
+	
+	private static int complementOf(int baseSet){
+		//swap A <-> T and C <-> G
+		return ((baseSet & 1) <<3) | ((baseSet & 8) >>3) 
+				| ((baseSet & 2) <<1) | ((baseSet & 4) >>1);
+	}
+	/**
+	 * Get the bases of this pattern.
+	 * @return the pattern as a String; will never be null.
+	 */
+	public String getPattern() {
+		return pattern;
+	}
+	/**
+	 * Get the number of bases in this pattern.
+	 * @return the length; always between 1 and {@value #MAX_LENGTH}.
+	 */
+	public int getLength() {
+		return length;
+	}
+	/**
+	 * Get the maximum number of mismatches (or edits
+	 * if {@link #allowsIndels()}) a match may have.
+	 * @return the max number of errors; will be 0 for exact matches.
+	 */
+	public int getMaxErrors() {
+		return maxErrors;
+	}
+	/**
+	 * Can matches contain insertions and deletions
+	 * as well as mismatches.
+	 * @return {@code true} if errors are edits;
+	 * {@code false} if they are only mismatches.
+	 */
+	public boolean allowsIndels() {
+		return allowIndels;
+	}
+	/**
+	 * Is the reverse complement of this pattern
+	 * also searched for.  Patterns that are their
+	 * own reverse complement (like most restriction sites)
+	 * only report matches on the forward strand.
+	 * @return {@code true} if both strands are searched.
+	 */
+	public boolean searchesBothStrands() {
+		return reverseMasks !=null;
+	}
+	
+	boolean isLiteral() {
+		return literal;
+	}
+	
+	long[] getForwardMasks() {
+		return forwardMasks;
+	}
+	
+	long[] getReverseMasks() {
+		return reverseMasks;
+	}
+	
+	@Override
+	public String toString() {
+		return "NucleotidePattern [pattern=" + pattern + ", maxErrors=" + maxErrors
+				+ ", allowIndels=" + allowIndels + ", bothStrands=" + searchesBothStrands() + "]";
+	}
+	/**
+	 * Builder for {@link NucleotidePattern}s.
+	 * By default, patterns are exact matches
+	 * on the forward strand only.
+	 * 
+	 * @author dkatzel
+	 * 
+	 * @since 6.0.3
+	 */
+	public static final class Builder{
+		private final String pattern;
+		private final int[] patternSets;
+		private int maxErrors;
+		private boolean allowIndels;
+		private boolean bothStrands;
+		/**
+		 * Create a new Builder for the given pattern.
+		 * @param pattern the bases to search for which may contain
+		 * IUPAC ambiguity codes; can not be null.
+		 * 
+		 * @throws NullPointerException if pattern is null.
+		 * @throws IllegalArgumentException if pattern is empty, longer than {@value NucleotidePattern#MAX_LENGTH},
+		 * or contains gaps or characters that aren't nucleotides.
+		 */
+		public Builder(String pattern){
+			Objects.requireNonNull(pattern, "pattern can not be null");
+			int length = pattern.length();
+			if(length ==0 || length > MAX_LENGTH){
+				throw new IllegalArgumentException("pattern length must be between 1 and " + MAX_LENGTH + " : " + length);
+			}
+			StringBuilder bases = new StringBuilder(length);
+			patternSets = new int[length];
+			for(int i=0; i< length; i++){
+				Nucleotide n = Nucleotide.parse(pattern.charAt(i));
+				if(n.isGap()){
+					throw new IllegalArgumentException("pattern can not contain gaps : " + pattern);
+				}
+				patternSets[i] = BASE_SETS[n.ordinal()];
+				bases.append(n.getCharacter());
+			}
+			this.pattern = bases.toString();
+		}
+		/**
+		 * Create a new Builder for the given sequence.
+		 * @param pattern the bases to search for which may contain
+		 * ambiguities; can not be null.
+		 * 
+		 * @throws NullPointerException if pattern is null.
+		 * @throws IllegalArgumentException if pattern is empty, longer than {@value NucleotidePattern#MAX_LENGTH},
+		 * or contains gaps.
+		 */
+		public Builder(NucleotideSequence pattern){
+			this(pattern.toString());
+		}
+		/**
+		 * Allow up to the given number of mismatches
+		 * but no insertions or deletions.
+		 * This overrides any previous call to {@link #maxEdits(int)}.
+		 * @param maxMismatches the max number of mismatches; can not be negative.
+		 * @return this.
+		 * @throws IllegalArgumentException if maxMismatches is negative.
+		 */
+		public Builder maxMismatches(int maxMismatches){
+			this.maxErrors = checkErrors(maxMismatches);
+			this.allowIndels = false;
+			return this;
+		}
+		/**
+		 * Allow up to the given number of edits
+		 * (mismatches, insertions or deletions).
+		 * This overrides any previous call to {@link #maxMismatches(int)}.
+		 * @param maxEdits the max edit distance; can not be negative.
+		 * @return this.
+		 * @throws IllegalArgumentException if maxEdits is negative.
+		 */
+		public Builder maxEdits(int maxEdits){
+			this.maxErrors = checkErrors(maxEdits);
+			this.allowIndels = true;
+			return this;
+		}
+		
+		private int checkErrors(int errors){
+			if(errors <0){
+				throw new IllegalArgumentException("number of errors can not be negative");
+			}
+			return errors;
+		}
+		/**
+		 * Should the reverse complement of the pattern
+		 * also be searched for.
+		 * @param bothStrands {@code true} to search both strands;
+		 * defaults to {@code false}.
+		 * @return this.
+		 */
+		public Builder bothStrands(boolean bothStrands){
+			this.bothStrands = bothStrands;
+			return this;
+		}
+		/**
+		 * Create a new {@link NucleotidePattern}.
+		 * @return a new NucleotidePattern; will never be null.
+		 * @throws IllegalArgumentException if the number of allowed errors
+		 * is not less than the pattern length.
+		 */
+		public NucleotidePattern build(){
+			int length = patternSets.length;
+			if(maxErrors >= length){
+				throw new IllegalArgumentException("max number of errors must be less than the pattern length");
+			}
+			long[] forwardMasks = computeMasks(patternSets);
+			long[] reverseMasks = null;
+			if(bothStrands){
+				int[] reverseSets = new int[length];
+				for(int i=0; i< length; i++){
+					reverseSets[i] = complementOf(patternSets[length -1 -i]);
+				}
+				if(!Arrays.equals(patternSets, reverseSets)){
+					reverseMasks = computeMasks(reverseSets);
+				}
+			}
+			return new NucleotidePattern(pattern, forwardMasks, reverseMasks, maxErrors, allowIndels, false);
+		}
+	}
+}
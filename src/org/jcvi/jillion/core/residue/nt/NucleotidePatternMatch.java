@@ -0,0 +1,98 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.core.residue.nt;
+
+import java.util.Objects;
+
+import org.jcvi.jillion.core.Direction;
+import org.jcvi.jillion.core.Range;
+/**
+ * A single match of a {@link NucleotidePattern}
+ * in a {@link NucleotideSequence}.
+ * 
+ * @author dkatzel
+ * 
+ * @since 6.0.3
+ * 
+ * @see NucleotideSequence#findMatches(NucleotidePattern)
+ */
+public final class NucleotidePatternMatch {
+
+	private final Range range;
+	private final Direction direction;
+	private final int numberOfErrors;
+	
+	NucleotidePatternMatch(Range range, Direction direction, int numberOfErrors) {
+		this.range = range;
+		this.direction = direction;
+		this.numberOfErrors = numberOfErrors;
+	}
+	/**
+	 * Get the gapped Range of the sequence that was matched.
+	 * Matches on the reverse strand are still given
+	 * in forward strand coordinates.
+	 * @return the Range; will never be null.
+	 */
+	public Range getRange() {
+		return range;
+	}
+	/**
+	 * Get which strand matched the pattern.
+	 * @return {@link Direction#FORWARD} if the pattern matched
+	 * or {@link Direction#REVERSE} if the reverse complement
+	 * of the pattern matched.
+	 */
+	public Direction getDirection() {
+		return direction;
+	}
+	/**
+	 * Get the number of mismatches (or edits) in this match.
+	 * @return the number of errors; will be 0 for exact matches.
+	 */
+	public int getNumberOfErrors() {
+		return numberOfErrors;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(range, direction, numberOfErrors);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof NucleotidePatternMatch)) {
+			return false;
+		}
+		NucleotidePatternMatch other = (NucleotidePatternMatch) obj;
+		return numberOfErrors == other.numberOfErrors
+				&& direction == other.direction
+				&& range.equals(other.range);
+	}
+
+	@Override
+	public String toString() {
+		return "NucleotidePatternMatch [range=" + range + ", direction=" + direction
+				+ ", numberOfErrors=" + numberOfErrors + "]";
+	}
+}
@@ -0,0 +1,370 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.core.residue.nt;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+import org.jcvi.jillion.core.Direction;
+import org.jcvi.jillion.core.Range;
+/**
+ * Internal class that searches for a {@link NucleotidePattern}
+ * one base at a time using bit-parallel algorithms.
+ * Both strands are searched in the same pass by
+ * looking for the reverse complement of the pattern
+ * so the sequence itself is never reverse complemented.
+ * <p>
+ * Subclasses only need to provide the ordinal of 
+ * each base in order.
+ * </p>
+ * @author dkatzel
+ * 
+ * @since 6.0.3
+ *
+ */
+abstract class NucleotidePatternSpliterator extends Spliterators.AbstractSpliterator<NucleotidePatternMatch>{
+
+	private final int begin;
+	private final int end;
+	private int position;
+	
+	private final StrandScanner forward;
+	private final StrandScanner reverse;
+	/**
+	 * Ring buffer of the last few ordinals which are
+	 * only needed to find where edit matches start.
+	 */
+	private final byte[] history;
+	private final int historyMask;
+	
+	private final ArrayDeque<NucleotidePatternMatch> found = new ArrayDeque<>();
+	private boolean finished;
+	/**
+	 * Create a new NucleotidePatternSpliterator.
+	 * @param pattern the pattern to search for.
+	 * @param range the range of offsets to search.
+	 */
+	protected NucleotidePatternSpliterator(NucleotidePattern pattern, Range range) {
+		super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+		this.begin = (int) range.getBegin();
+		this.position = begin;
+		this.end = (int) range.getEnd() +1;
+		
+		if(pattern.allowsIndels()){
+			int historySize = Integer.highestOneBit(pattern.getLength() + pattern.getMaxErrors() +1) <<1;
+			history = new byte[historySize];
+			historyMask = historySize -1;
+		}else{
+			history = null;
+			historyMask = 0;
+		}
+		forward = createScanner(pattern, pattern.getForwardMasks(), Direction.FORWARD);
+		long[] reverseMasks = pattern.getReverseMasks();
+		reverse = reverseMasks ==null ? null : createScanner(pattern, reverseMasks, Direction.REVERSE);
+	}
+	
+	private StrandScanner createScanner(NucleotidePattern pattern, long[] masks, Direction direction){
+		if(pattern.allowsIndels()){
+			return new EditScanner(pattern, masks, direction);
+		}
+		if(pattern.getMaxErrors() >0){
+			return new MismatchScanner(pattern, masks, direction);
+		}
+		return new ExactScanner(pattern, masks, direction);
+	}
+	/**
+	 * Create the best NucleotidePatternSpliterator for the given sequence.
+	 * 
+	 * @param seq the sequence to search.
+	 * @param pattern the pattern to search for.
+	 * @param range the range of offsets to search.
+	 * @return a new NucleotidePatternSpliterator.
+	 * 
+	 * @throws IndexOutOfBoundsException if range is not within the sequence.
+	 */
+	static NucleotidePatternSpliterator create(NucleotideSequence seq, NucleotidePattern pattern, Range range){
+		Objects.requireNonNull(pattern);
+		Objects.requireNonNull(range);
+		if(range.isEmpty()){
+			return new ArrayNucleotidePatternSpliterator(pattern, range, new Nucleotide[0]);
+		}
+		if(range.getBegin() <0 || range.getEnd() >= seq.getLength()){
+			throw new IndexOutOfBoundsException("range "+range +" is out of range of sequence which is only "+ Range.ofLength(seq.getLength()));
+		}
+		if(seq instanceof DefaultNucleotideSequence){
+			return ((DefaultNucleotideSequence) seq).createPatternSpliterator(pattern, range);
+		}
+		if(seq instanceof AbstractSimpleNucleotideSequence){
+			return ((AbstractSimpleNucleotideSequence) seq).createPatternSpliterator(pattern, range);
+		}
+		return new IteratorNucleotidePatternSpliterator(pattern, range, seq.iterator(range));
+	}
+	/**
+	 * Get the ordinal of the {@link Nucleotide} at the given offset.
+	 * This method will be called for each offset in the range
+	 * in increasing order.
+	 * 
+	 * @param offset the gapped offset into the sequence.
+	 * 
+	 * @return the ordinal.
+	 */
+	protected abstract int nextOrdinal(int offset);
+	
+	private boolean advance(){
+		while(found.isEmpty()){
+			if(position < end){
+				int ordinal = nextOrdinal(position);
+				if(history !=null){
+					history[position & historyMask] = (byte) ordinal;
+				}
+				forward.next(ordinal, position);
+				if(reverse !=null){
+					reverse.next(ordinal, position);
+				}
+				position++;
+			}else if(!finished){
+				finished = true;
+				forward.finish();
+				if(reverse !=null){
+					reverse.finish();
+				}
+			}else{
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	@Override
+	public boolean tryAdvance(Consumer<? super NucleotidePatternMatch> action) {
+		if(advance()){
+			action.accept(found.poll());
+			return true;
+		}
+		return false;
+	}
+	
+	@Override
+	public void forEachRemaining(Consumer<? super NucleotidePatternMatch> action) {
+		while(advance()){
+			action.accept(found.poll());
+		}
+	}
+	
+	private abstract class StrandScanner{
+		protected final long[] masks;
+		protected final long highBit;
+		protected final int length;
+		protected final int maxErrors;
+		private final Direction direction;
+		
+		StrandScanner(NucleotidePattern pattern, long[] masks, Direction direction){
+			this.masks = masks;
+			this.direction = direction;
+			this.length = pattern.getLength();
+			this.maxErrors = pattern.getMaxErrors();
+			this.highBit = 1L << (length -1);
+		}
+		
+		abstract void next(int ordinal, int offset);
+		
+		void finish(){
+			//no-op
+		}
+		
+		protected void add(int matchBegin, int matchEnd, int errors){
+			found.add(new NucleotidePatternMatch(Range.of(matchBegin, matchEnd), direction, errors));
+		}
+	}
+	/**
+	 * Shift-And: bit i of the state is set if the first i+1
+	 * bases of the pattern match the bases ending at the current offset.
+	 */
+	private final class ExactScanner extends StrandScanner{
+		private final boolean nonOverlapping;
+		private long state;
+		
+		ExactScanner(NucleotidePattern pattern, long[] masks, Direction direction){
+			super(pattern, masks, direction);
+			this.nonOverlapping = pattern.isLiteral();
+		}
+		
+		@Override
+		void next(int ordinal, int offset) {
+			state = ((state <<1) | 1L) & masks[ordinal];
+			if((state & highBit) !=0){
+				add(offset - length +1, offset, 0);
+				if(nonOverlapping){
+					state=0;
+				}
+			}
+		}
+	}
+	/**
+	 * Shift-And extended to mismatches (Wu-Manber):
+	 * one state per number of mismatches where bit i of state j
+	 * is set if the first i+1 bases of the pattern match with at most j mismatches.
+	 */
+	private final class MismatchScanner extends StrandScanner{
+		private final long[] states;
+		
+		MismatchScanner(NucleotidePattern pattern, long[] masks, Direction direction){
+			super(pattern, masks, direction);
+			this.states = new long[maxErrors +1];
+		}
+		
+		@Override
+		void next(int ordinal, int offset) {
+			long mask = masks[ordinal];
+			long previous = states[0];
+			states[0] = ((previous <<1) | 1L) & mask;
+			for(int j=1; j< states.length; j++){
+				long current = states[j];
+				states[j] = (((current <<1) | 1L) & mask) | ((previous <<1) | 1L);
+				previous = current;
+			}
+			for(int j=0; j< states.length; j++){
+				if((states[j] & highBit) !=0){
+					add(offset - length +1, offset, j);
+					return;
+				}
+			}
+		}
+	}
+	/**
+	 * Myers' bit-vector algorithm which keeps the vertical
+	 * deltas of the edit distance dynamic programming column
+	 * so the score of the best match ending at each offset
+	 * is computed in constant time.  Since neighboring offsets
+	 * usually match with one more error, only
+	 * offsets whose score is a local minimum are reported.
+	 */
+	private final class EditScanner extends StrandScanner{
+		private long pv = -1L;
+		private long mv;
+		private int score;
+		
+		private int previousScore = Integer.MAX_VALUE;
+		private int previousPreviousScore = Integer.MAX_VALUE;
+		
+		private final int[] column;
+		
+		EditScanner(NucleotidePattern pattern, long[] masks, Direction direction){
+			super(pattern, masks, direction);
+			this.score = length;
+			this.column = new int[length +1];
+		}
+		
+		@Override
+		void next(int ordinal, int offset) {
+			long eq = masks[ordinal];
+			long xv = eq | mv;
+			long xh = (((eq & pv) + pv) ^ pv) | eq;
+			long ph = mv | ~(xh | pv);
+			long mh = pv & xh;
+			if((ph & highBit) !=0){
+				score++;
+			}else if((mh & highBit) !=0){
+				score--;
+			}
+			ph <<=1;
+			mh <<=1;
+			pv = mh | ~(xv | ph);
+			mv = ph & xv;
+			
+			if(previousScore <= maxErrors && previousScore <= previousPreviousScore && previousScore <= score){
+				addEditMatch(offset -1, previousScore);
+			}
+			previousPreviousScore = previousScore;
+			previousScore = score;
+		}
+		
+		@Override
+		void finish() {
+			if(previousScore <= maxErrors && previousScore <= previousPreviousScore){
+				addEditMatch(end -1, previousScore);
+			}
+		}
+		
+		private void addEditMatch(int matchEnd, int errors){
+			add(findStart(matchEnd, errors), matchEnd, errors);
+		}
+		/**
+		 * Align the reversed pattern against the bases before
+		 * the end of the match to find the shortest match
+		 * with the given number of errors.
+		 */
+		private int findStart(int matchEnd, int errors){
+			int maxMatchLength = Math.min(length + maxErrors, matchEnd - begin +1);
+			for(int i=0; i<= length; i++){
+				column[i] =i;
+			}
+			for(int j=1; j<= maxMatchLength; j++){
+				long eq = masks[history[(matchEnd -j +1) & historyMask]];
+				int diagonal = column[0];
+				column[0] = j;
+				for(int i=1; i<= length; i++){
+					int cost = (int) (~(eq >>> (length -i)) & 1L);
+					int value = Math.min(diagonal + cost, Math.min(column[i], column[i-1]) +1);
+					diagonal = column[i];
+					column[i] = value;
+				}
+				if(column[length] == errors){
+					return matchEnd -j +1;
+				}
+			}
+			//shouldn't happen
+			return matchEnd - length +1;
+		}
+	}
+	
+	private static final class IteratorNucleotidePatternSpliterator extends NucleotidePatternSpliterator{
+		private final Iterator<Nucleotide> iter;
+		
+		IteratorNucleotidePatternSpliterator(NucleotidePattern pattern, Range range, Iterator<Nucleotide> iter) {
+			super(pattern, range);
+			this.iter = iter;
+		}
+
+		@Override
+		protected int nextOrdinal(int offset) {
+			return iter.next().ordinal();
+		}
+	}
+	
+	static final class ArrayNucleotidePatternSpliterator extends NucleotidePatternSpliterator{
+		private final Nucleotide[] bases;
+		
+		ArrayNucleotidePatternSpliterator(NucleotidePattern pattern, Range range, Nucleotide[] bases) {
+			super(pattern, range);
+			this.bases = bases;
+		}
+
+		@Override
+		protected int nextOrdinal(int offset) {
+			return bases[offset].ordinal();
+		}
+	}
+}
@@ -31,9 +31,12 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Objects;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import org.jcvi.jillion.assembly.AssemblyUtil;
@@ -331,6 +334,186 @@ public interface NucleotideSequence extends INucleotideSequence<NucleotideSequen
 		}
 		return ((double)gc)/ungappedLength;
 	}
+	/**
+	 * Get all the k-mers of this sequence packed into longs
+	 * 2 bits per base.  This is the same as {@code packedKmers(k, false)}.
+	 * 
+	 * @param k the k-mer size; must be between 1 and {@value PackedKmers#MAX_K}.
+	 * @return a new LongStream of packed k-mers; may be empty.
+	 * 
+	 * @throws IllegalArgumentException if k is not between 1 and {@value PackedKmers#MAX_K}.
+	 * 
+	 * @since 6.0.3
+	 * 
+	 * @see #packedKmers(int, boolean)
+	 */
+	default LongStream packedKmers(int k) {
+		return packedKmers(k, false);
+	}
+	/**
+	 * Get all the k-mers of this sequence packed into longs
+	 * 2 bits per base. Unlike {@link #kmers(int)}, no objects
+	 * are created per k-mer and each k-mer is computed in constant time
+	 * from the previous one.
+	 * Any k-mer that would contain a gap or an ambiguous base
+	 * is skipped.
+	 * 
+	 * @param k the k-mer size; must be between 1 and {@value PackedKmers#MAX_K}.
+	 * @param canonical if {@code true} then each k-mer is the smaller
+	 * of the k-mer and its reverse complement; if {@code false} then only
+	 * the forward strand k-mer is returned.
+	 * @return a new LongStream of packed k-mers; may be empty.
+	 * 
+	 * @throws IllegalArgumentException if k is not between 1 and {@value PackedKmers#MAX_K}.
+	 * 
+	 * @since 6.0.3
+	 * 
+	 * @see PackedKmers
+	 */
+	default LongStream packedKmers(int k, boolean canonical) {
+		return packedKmers(k, canonical, Range.ofLength(getLength()));
+	}
+	/**
+	 * Get all the k-mers in the given sub range of this sequence 
+	 * packed into longs 2 bits per base.
+	 * Any k-mer that would contain a gap or an ambiguous base
+	 * is skipped.
+	 * 
+	 * @param k the k-mer size; must be between 1 and {@value PackedKmers#MAX_K}.
+	 * @param canonical if {@code true} then each k-mer is the smaller
+	 * of the k-mer and its reverse complement; if {@code false} then only
+	 * the forward strand k-mer is returned.
+	 * @param range the Range of gapped offsets to get the k-mers of; can not be null.
+	 * @return a new LongStream of packed k-mers; may be empty.
+	 * 
+	 * @throws NullPointerException if range is null.
+	 * @throws IllegalArgumentException if k is not between 1 and {@value PackedKmers#MAX_K}.
+	 * @throws IndexOutOfBoundsException if range is not within this sequence.
+	 * 
+	 * @since 6.0.3
+	 */
+	default LongStream packedKmers(int k, boolean canonical, Range range) {
+		return StreamSupport.longStream(PackedKmerSpliterator.create(this, k, canonical, range), false);
+	}
+	/**
+	 * Pass each k-mer of this sequence, packed into a long 2 bits per base,
+	 * along with its start offset to the given consumer.
+	 * Any k-mer that would contain a gap or an ambiguous base
+	 * is skipped.
+	 * 
+	 * @param k the k-mer size; must be between 1 and {@value PackedKmers#MAX_K}.
+	 * @param canonical if {@code true} then each k-mer is the smaller
+	 * of the k-mer and its reverse complement; if {@code false} then only
+	 * the forward strand k-mer is returned.
+	 * @param consumer the consumer to call; can not be null.
+	 * 
+	 * @throws NullPointerException if consumer is null.
+	 * @throws IllegalArgumentException if k is not between 1 and {@value PackedKmers#MAX_K}.
+	 * 
+	 * @since 6.0.3
+	 */
+	default void forEachPackedKmer(int k, boolean canonical, PackedKmerConsumer consumer) {
+		forEachPackedKmer(k, canonical, Range.ofLength(getLength()), consumer);
+	}
+	/**
+	 * Pass each k-mer in the given sub range of this sequence,
+	 * packed into a long 2 bits per base,
+	 * along with its start offset to the given consumer.
+	 * Any k-mer that would contain a gap or an ambiguous base
+	 * is skipped.
+	 * 
+	 * @param k the k-mer size; must be between 1 and {@value PackedKmers#MAX_K}.
+	 * @param canonical if {@code true} then each k-mer is the smaller
+	 * of the k-mer and its reverse complement; if {@code false} then only
+	 * the forward strand k-mer is returned.
+	 * @param range the Range of gapped offsets to get the k-mers of; can not be null.
+	 * @param consumer the consumer to call; can not be null.
+	 * 
+	 * @throws NullPointerException if range or consumer is null.
+	 * @throws IllegalArgumentException if k is not between 1 and {@value PackedKmers#MAX_K}.
+	 * @throws IndexOutOfBoundsException if range is not within this sequence.
+	 * 
+	 * @since 6.0.3
+	 */
+	default void forEachPackedKmer(int k, boolean canonical, Range range, PackedKmerConsumer consumer) {
+		Objects.requireNonNull(consumer);
+		PackedKmerSpliterator.create(this, k, canonical, range).forEachRemaining(consumer);
+	}
+	/**
+	 * Find all the matches of the given {@link NucleotidePattern}
+	 * in this sequence.  Unlike {@link #findMatches(Pattern)},
+	 * the bases are searched for directly without
+	 * converting this sequence into a String and
+	 * matches may overlap.
+	 * 
+	 * @param pattern the pattern to search for; can not be null.
+	 * @return a new Stream of the matches in order of where they end;
+	 * may be empty.
+	 * 
+	 * @throws NullPointerException if pattern is null.
+	 * 
+	 * @since 6.0.3
+	 * 
+	 * @see NucleotidePattern
+	 */
+	default Stream<NucleotidePatternMatch> findMatches(NucleotidePattern pattern) {
+		return findMatches(pattern, Range.ofLength(getLength()));
+	}
+	/**
+	 * Find all the matches of the given {@link NucleotidePattern}
+	 * in the given sub range of this sequence.
+	 * 
+	 * @param pattern the pattern to search for; can not be null.
+	 * @param range the Range of gapped offsets to search; can not be null.
+	 * @return a new Stream of the matches in order of where they end;
+	 * may be empty.  The Ranges of the matches are still relative
+	 * to the full sequence.
+	 * 
+	 * @throws NullPointerException if pattern or range is null.
+	 * @throws IndexOutOfBoundsException if range is not within this sequence.
+	 * 
+	 * @since 6.0.3
+	 * 
+	 * @see NucleotidePattern
+	 */
+	default Stream<NucleotidePatternMatch> findMatches(NucleotidePattern pattern, Range range) {
+		return StreamSupport.stream(NucleotidePatternSpliterator.create(this, pattern, range), false);
+	}
+	/**
+	 * Get the {@link Nucleotide#ordinal()} of each base
+	 * in the given sub range of this sequence.
+	 * Since all the DNA values fit in 4 bits,
+	 * this is a compact way to look at many bases without 
+	 * creating an Iterator or boxing each base.
+	 * 
+	 * @param range the Range of gapped offsets to get; can not be null.
+	 * @return a new byte array the length of the range; will never be null
+	 * but may be empty if the range is empty.
+	 * 
+	 * @throws NullPointerException if range is null.
+	 * @throws IndexOutOfBoundsException if range is not within this sequence.
+	 * 
+	 * @implNote the default implementation iterates over the range;
+	 * the built in implementations read the ordinals directly
+	 * from their encoded bases.
+	 * 
+	 * @since 6.0.3
+	 */
+	default byte[] toOrdinals(Range range) {
+		Objects.requireNonNull(range);
+		if(range.isEmpty()){
+			return new byte[0];
+		}
+		if(range.getBegin() <0 || range.getEnd() >= getLength()){
+			throw new IndexOutOfBoundsException("range "+range +" is out of range of sequence which is only "+ Range.ofLength(getLength()));
+		}
+		byte[] ordinals = new byte[(int) range.getLength()];
+		Iterator<Nucleotide> iter = iterator(range);
+		for(int i=0; i< ordinals.length; i++){
+			ordinals[i] = iter.next().getOrdinalAsByte();
+		}
+		return ordinals;
+	}
 
 	
 }
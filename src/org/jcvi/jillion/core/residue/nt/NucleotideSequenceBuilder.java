@@ -21,6 +21,7 @@
 package org.jcvi.jillion.core.residue.nt;
 
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -108,6 +109,9 @@ public final class NucleotideSequenceBuilder implements INucleotideSequenceBuild
     	protected NewValues create(char[] sequence) {
     		return newValuesFactory.create(sequence, invalidCharacterHandler);
     	}
+    	protected NewValues create(ByteBuffer sequence) {
+    		return newValuesFactory.create(sequence, invalidCharacterHandler);
+    	}
     	protected NewValues create(NucleotideSequence sequence) {
     		return newValuesFactory.create(sequence);
     	}
@@ -644,6 +648,34 @@ public final class NucleotideSequenceBuilder implements INucleotideSequenceBuild
         return append(decodingOptions.create(sequence));
     }
     
+    /**
+     * Appends the ASCII encoded bases in the remaining bytes
+     * of the given buffer to the end
+     * of the builder's mutable sequence.
+     * The bytes are decoded directly without creating an intermediate
+     * String or char[] so this can be used to decode bases
+     * straight out of a memory mapped file.
+     * Any whitespace (including line terminators) in the buffer will be ignored.
+     *  This method is able to parse both
+     * '*' (consed) and '-' (TIGR) as gap characters. 
+     * 
+     * @param sequence the buffer of ASCII encoded bases whose bytes from
+     * its current position to its limit will be appended
+     * to the end our builder; the buffer's position is not changed.
+     * 
+     * @return this.
+     * 
+     * @throws NullPointerException if sequence is null.
+     * 
+     * @since 6.0.3
+     */
+    public NucleotideSequenceBuilder append(ByteBuffer sequence){
+    	if(sequence ==null){
+    		throw new NullPointerException(NULL_SEQUENCE_ERROR_MSG);
+    	}
+        return append(decodingOptions.create(sequence));
+    }
+    
     /**
      * Appends the given sequence to the end
      * of the builder's mutable sequence.
@@ -2221,6 +2253,8 @@ public final class NucleotideSequenceBuilder implements INucleotideSequenceBuild
     interface NewValuesFactory{
 		NewValues create(char[] sequence, InvalidCharacterHandler invalidCharacterHandler);
 
+		NewValues create(ByteBuffer sequence, InvalidCharacterHandler invalidCharacterHandler);
+
 		NewValues create(GrowableByteArray data);
 
 		NewValues create(Iterable<Nucleotide> nucleotides);
@@ -2245,6 +2279,11 @@ public final class NucleotideSequenceBuilder implements INucleotideSequenceBuild
 			return new NewValues(sequence, invalidCharacterHandler);
 		}
 
+		@Override
+		public NewValues create(ByteBuffer sequence, InvalidCharacterHandler invalidCharacterHandler) {
+			return new NewValues(sequence, invalidCharacterHandler);
+		}
+
 		@Override
 		public NewValues create(GrowableByteArray data) {
 			return new NewValues(data);
@@ -2295,6 +2334,11 @@ public final class NucleotideSequenceBuilder implements INucleotideSequenceBuild
 			return new AdjustedNewValues(sequence, invalidCharacterHandler);
 		}
 
+		@Override
+		public NewValues create(ByteBuffer sequence, InvalidCharacterHandler invalidCharacterHandler) {
+			return new AdjustedNewValues(sequence, invalidCharacterHandler);
+		}
+
 		@Override
 		public NewValues create(GrowableByteArray data) {
 			return new AdjustedNewValues(data);
@@ -2365,6 +2409,10 @@ public final class NucleotideSequenceBuilder implements INucleotideSequenceBuild
 			super(sequence, invalidCharacterHandler);
 		}
 
+		public AdjustedNewValues(ByteBuffer sequence, InvalidCharacterHandler invalidCharacterHandler) {
+			super(sequence, invalidCharacterHandler);
+		}
+
 		public AdjustedNewValues(GrowableByteArray data) {
 			super(data.replaceIf(i-> nonNAmbiguityOffsets[i], N_Ordinal ));
 		}
@@ -2480,6 +2528,25 @@ public final class NucleotideSequenceBuilder implements INucleotideSequenceBuild
     		}
     		
     	}
+    	public NewValues(ByteBuffer sequence, Nucleotide.InvalidCharacterHandler invalidCharacterHandler){
+    		nOffsets = new GrowableIntArray(12);
+			gapOffsets = new GrowableIntArray(12);
+			int start = sequence.position();
+			int end = sequence.limit();
+			data = new GrowableByteArray(end - start);
+			
+    		int offset=0;
+    		//absolute gets so we don't modify the buffer's position
+    		for(int i=start; i<end; i++){
+    			char c = (char) (sequence.get(i) & 0xFF);
+				Nucleotide n = Nucleotide.parseOrNull(c, invalidCharacterHandler);
+				if(n !=null){
+    				handle(n, offset);
+                	offset++;
+    			}
+    		}
+    		
+    	}
     	
     	
     	/**
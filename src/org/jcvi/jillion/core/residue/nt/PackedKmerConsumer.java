@@ -0,0 +1,51 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.core.residue.nt;
+
+import org.jcvi.jillion.core.residue.Kmer;
+
+/**
+ * Consumes k-mers that have been packed 2 bits per base
+ * into a long, along with the offset into the sequence
+ * where the k-mer starts.  This is the primitive
+ * equivalent of consuming {@link Kmer} objects.
+ * 
+ * @author dkatzel
+ * 
+ * @since 6.0.3
+ * 
+ * @see PackedKmers
+ * @see NucleotideSequence#forEachPackedKmer(int, boolean, PackedKmerConsumer)
+ */
+@FunctionalInterface
+public interface PackedKmerConsumer {
+	/**
+	 * Performs this operation on the given k-mer.
+	 * 
+	 * @param offset the 0-based gapped offset into the sequence 
+	 * of the first base of the k-mer.
+	 * 
+	 * @param kmer the packed k-mer.
+	 * 
+	 * @see PackedKmers
+	 */
+	void accept(long offset, long kmer);
+}
@@ -0,0 +1,221 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.core.residue.nt;
+
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.LongConsumer;
+
+import org.jcvi.jillion.core.Range;
+/**
+ * Internal class that uses a rolling 2 bit encoding
+ * to make streams of packed k-mers.  Each new base
+ * is shifted onto the forward (and if needed reverse complement)
+ * k-mer so each k-mer takes constant time to compute.
+ * Any base that isn't an A,C,G,T or U resets the window
+ * so no k-mer will contain an ambiguity or a gap.
+ * <p>
+ * Subclasses only need to provide the 2 bit code of 
+ * each base in order.
+ * </p>
+ * @author dkatzel
+ * 
+ * @since 6.0.3
+ *
+ */
+abstract class PackedKmerSpliterator extends Spliterators.AbstractLongSpliterator{
+
+	private final int k;
+	private final boolean canonical;
+	private final long mask;
+	private final int reverseShift;
+	
+	private final int end;
+	private int position;
+	
+	private int validBases;
+	private long forward;
+	private long reverse;
+	
+	private long current;
+	/**
+	 * Create a new PackedKmerSpliterator.
+	 * @param k the k-mer size.
+	 * @param canonical should the canonical k-mer be returned.
+	 * @param range the range of offsets to iterate over.
+	 */
+	protected PackedKmerSpliterator(int k, boolean canonical, Range range) {
+		super(Math.max(0, range.getLength() - k +1), Spliterator.ORDERED | Spliterator.NONNULL);
+		this.k = k;
+		this.canonical = canonical;
+		this.mask = PackedKmers.mask(k);
+		this.reverseShift = (k-1)<<1;
+		this.position = (int) range.getBegin();
+		this.end = (int) range.getEnd() +1;
+	}
+	/**
+	 * Create the best PackedKmerSpliterator for the given sequence.
+	 * 
+	 * @param seq the sequence to get the k-mers of.
+	 * @param k the k-mer size.
+	 * @param canonical should the canonical k-mer be returned.
+	 * @param range the range of offsets to iterate over.
+	 * @return a new PackedKmerSpliterator.
+	 * 
+	 * @throws IllegalArgumentException if k is not a valid k-mer size.
+	 * @throws IndexOutOfBoundsException if range is not within the sequence.
+	 */
+	static PackedKmerSpliterator create(NucleotideSequence seq, int k, boolean canonical, Range range){
+		PackedKmers.checkKmerSize(k);
+		Objects.requireNonNull(range);
+		if(range.isEmpty()){
+			return new ArrayPackedKmerSpliterator(k, canonical, range, new Nucleotide[0]);
+		}
+		if(range.getBegin() <0 || range.getEnd() >= seq.getLength()){
+			throw new IndexOutOfBoundsException("range "+range +" is out of range of sequence which is only "+ Range.ofLength(seq.getLength()));
+		}
+		if(seq instanceof DefaultNucleotideSequence){
+			return ((DefaultNucleotideSequence) seq).createPackedKmerSpliterator(k, canonical, range);
+		}
+		if(seq instanceof AbstractSimpleNucleotideSequence){
+			return ((AbstractSimpleNucleotideSequence) seq).createPackedKmerSpliterator(k, canonical, range);
+		}
+		return new IteratorPackedKmerSpliterator(k, canonical, range, seq.iterator(range));
+	}
+	/**
+	 * Create a new PackedKmerSpliterator for the given
+	 * String of bases, without having to create
+	 * a NucleotideSequence first.
+	 * 
+	 * @param bases the bases to get the k-mers of.
+	 * @param k the k-mer size.
+	 * @param canonical should the canonical k-mer be returned.
+	 * @return a new PackedKmerSpliterator.
+	 * 
+	 * @throws IllegalArgumentException if k is not a valid k-mer size.
+	 */
+	static PackedKmerSpliterator create(CharSequence bases, int k, boolean canonical){
+		PackedKmers.checkKmerSize(k);
+		return new CharSequencePackedKmerSpliterator(k, canonical, Range.ofLength(bases.length()), bases);
+	}
+	/**
+	 * Get the 2 bit code of the base at the given offset.
+	 * This method will be called for each offset in the range
+	 * in increasing order.
+	 * 
+	 * @param offset the gapped offset into the sequence.
+	 * 
+	 * @return the 2 bit code or a negative number
+	 * if the base is not an A,C,G,T or U.
+	 */
+	protected abstract int nextTwoBitCode(int offset);
+	
+	private boolean advance(){
+		while(position < end){
+			int code = nextTwoBitCode(position++);
+			if(code <0){
+				validBases=0;
+				continue;
+			}
+			forward = ((forward <<2) | code) & mask;
+			if(canonical){
+				reverse = (reverse >>>2) | ((long)(3-code) << reverseShift);
+			}
+			if(++validBases >= k){
+				current = canonical ? PackedKmers.min(forward, reverse) : forward;
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	@Override
+	public boolean tryAdvance(LongConsumer action) {
+		if(advance()){
+			action.accept(current);
+			return true;
+		}
+		return false;
+	}
+	
+	@Override
+	public void forEachRemaining(LongConsumer action) {
+		while(advance()){
+			action.accept(current);
+		}
+	}
+	/**
+	 * Pass the remaining k-mers along with their start offsets
+	 * to the given consumer.
+	 * @param consumer the consumer to call.
+	 */
+	public void forEachRemaining(PackedKmerConsumer consumer) {
+		while(advance()){
+			consumer.accept(position - k, current);
+		}
+	}
+	
+	private static final class IteratorPackedKmerSpliterator extends PackedKmerSpliterator{
+		private final Iterator<Nucleotide> iter;
+		
+		IteratorPackedKmerSpliterator(int k, boolean canonical, Range range, Iterator<Nucleotide> iter) {
+			super(k, canonical, range);
+			this.iter = iter;
+		}
+
+		@Override
+		protected int nextTwoBitCode(int offset) {
+			return PackedKmers.twoBitCodeOf(iter.next());
+		}
+	}
+	private static final class CharSequencePackedKmerSpliterator extends PackedKmerSpliterator{
+		private final CharSequence bases;
+		
+		CharSequencePackedKmerSpliterator(int k, boolean canonical, Range range, CharSequence bases) {
+			super(k, canonical, range);
+			this.bases = bases;
+		}
+
+		@Override
+		protected int nextTwoBitCode(int offset) {
+			return PackedKmers.twoBitCodeOfBase(bases.charAt(offset));
+		}
+	}
+	/**
+	 * {@link PackedKmerSpliterator} that reads from
+	 * an array of {@link Nucleotide}s.
+	 */
+	static final class ArrayPackedKmerSpliterator extends PackedKmerSpliterator{
+		private final Nucleotide[] data;
+		
+		ArrayPackedKmerSpliterator(int k, boolean canonical, Range range, Nucleotide[] data) {
+			super(k, canonical, range);
+			this.data = data;
+		}
+
+		@Override
+		protected int nextTwoBitCode(int offset) {
+			return PackedKmers.twoBitCodeOf(data[offset].ordinal());
+		}
+	}
+}
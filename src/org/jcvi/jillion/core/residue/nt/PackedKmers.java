@@ -0,0 +1,223 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.core.residue.nt;
+
+import java.util.Arrays;
+
+/**
+ * Utility methods for working with k-mers
+ * that have been packed into a long using 2 bits per base.
+ * <p>
+ * Bases are encoded as {@code A=0, C=1, G=2, T=3} (U is encoded the same as T)
+ * with the first base of the k-mer in the most significant bits
+ * so packed k-mers of the same size sort lexicographically.
+ * Since a long only has 64 bits, the largest k-mer that can be packed
+ * is {@value #MAX_K} bases long.
+ * </p>
+ * 
+ * @author dkatzel
+ * 
+ * @since 6.0.3
+ * 
+ * @see NucleotideSequence#packedKmers(int, boolean)
+ */
+public final class PackedKmers {
+	/**
+	 * The largest k-mer size that can be packed into a long.
+	 */
+	public static final int MAX_K = 32;
+	
+	private static final char[] BASES = {'A','C','G','T'};
+	/**
+	 * 2 bit value of each {@link Nucleotide} indexed by ordinal;
+	 * anything that isn't an A,C,G,T or U is -1.
+	 */
+	private static final byte[] TWO_BIT_CODES;
+	/**
+	 * 2 bit value of each ASCII character;
+	 * anything that isn't an A,C,G,T or U (upper or lowercase) is -1.
+	 */
+	private static final byte[] CHAR_CODES = new byte[128];
+	
+	static{
+		Arrays.fill(CHAR_CODES, (byte) -1);
+		String bases = "ACGTU";
+		for(int i=0; i< bases.length(); i++){
+			byte code = (byte) Math.min(i, 3);
+			CHAR_CODES[bases.charAt(i)] = code;
+			CHAR_CODES[Character.toLowerCase(bases.charAt(i))] = code;
+		}
+
+		Nucleotide[] values = Nucleotide.values();
+		TWO_BIT_CODES = new byte[values.length];
+		for(Nucleotide n : values){
+			final byte code;
+			switch(n){
+				case Adenine : code =0; break;
+				case Cytosine : code =1; break;
+				case Guanine : code =2; break;
+				case Thymine :
+				case Uracil : code =3; break;
+				default : code =-1; break;
+			}
+			TWO_BIT_CODES[n.ordinal()] = code;
+		}
+	}
+	
+	private PackedKmers(){
+		//can not instantiate
+	}
+	/**
+	 * Get the 2 bit code for the given Nucleotide ordinal.
+	 * @param ordinal the ordinal of the Nucleotide.
+	 * @return the 2 bit code or -1 if the Nucleotide is not A,C,G,T or U.
+	 */
+	static int twoBitCodeOf(int ordinal){
+		return TWO_BIT_CODES[ordinal];
+	}
+	/**
+	 * Get the 2 bit code for the given Nucleotide.
+	 * @param n the Nucleotide.
+	 * @return the 2 bit code or -1 if the Nucleotide is not A,C,G,T or U.
+	 */
+	static int twoBitCodeOf(Nucleotide n){
+		return TWO_BIT_CODES[n.ordinal()];
+	}
+	
+	/**
+	 * Get the 2 bit code for the given base character.
+	 * @param c the base.
+	 * @return the 2 bit code or -1 if the base is not A,C,G,T or U.
+	 */
+	static int twoBitCodeOfBase(char c){
+		return c < 128 ? CHAR_CODES[c] : -1;
+	}
+	
+	static void checkKmerSize(int k){
+		if(k <1 || k > MAX_K){
+			throw new IllegalArgumentException("kmer size must be between 1 and " + MAX_K + " : " + k);
+		}
+	}
+	/**
+	 * Get the bit mask of a packed kmer of the given size.
+	 */
+	static long mask(int k){
+		return k == MAX_K ? -1L : (1L << (k<<1)) -1;
+	}
+	/**
+	 * Pack the given bases into a long.
+	 * 
+	 * @param bases the bases to pack; can not be null
+	 * and must only contain A,C,G,T or U (case insensitive).
+	 * 
+	 * @return the packed k-mer where k is the length of the bases.
+	 * 
+	 * @throws NullPointerException if bases is null.
+	 * @throws IllegalArgumentException if bases is empty, longer than {@value #MAX_K}
+	 * or contains a base other than A,C,G,T or U.
+	 */
+	public static long encode(CharSequence bases){
+		int k = bases.length();
+		checkKmerSize(k);
+		long packed=0;
+		for(int i=0; i< k; i++){
+			int code = twoBitCodeOfBase(bases.charAt(i));
+			if(code <0){
+				throw new IllegalArgumentException("can only pack A,C,G,T or U : " + bases);
+			}
+			packed = (packed <<2) | code;
+		}
+		return packed;
+	}
+	/**
+	 * Unpack the given k-mer into a String of bases.
+	 * 
+	 * @param kmer the packed k-mer.
+	 * @param k the k-mer size; must be between 1 and {@value #MAX_K}.
+	 * 
+	 * @return a new String of length k containing only A,C,G, or T.
+	 * 
+	 * @throws IllegalArgumentException if k is not a valid k-mer size.
+	 */
+	public static String decode(long kmer, int k){
+		checkKmerSize(k);
+		char[] chars = new char[k];
+		long current = kmer;
+		for(int i= k-1; i>=0; i--){
+			chars[i] = BASES[(int) (current & 3)];
+			current >>>=2;
+		}
+		return new String(chars);
+	}
+	/**
+	 * Unpack the given k-mer into a {@link NucleotideSequence}.
+	 * 
+	 * @param kmer the packed k-mer.
+	 * @param k the k-mer size; must be between 1 and {@value #MAX_K}.
+	 * 
+	 * @return a new NucleotideSequence of length k.
+	 * 
+	 * @throws IllegalArgumentException if k is not a valid k-mer size.
+	 */
+	public static NucleotideSequence toNucleotideSequence(long kmer, int k){
+		return NucleotideSequence.of(decode(kmer, k));
+	}
+	/**
+	 * Compute the reverse complement of the given packed k-mer.
+	 * 
+	 * @param kmer the packed k-mer.
+	 * @param k the k-mer size; must be between 1 and {@value #MAX_K}.
+	 * 
+	 * @return the packed reverse complement.
+	 * 
+	 * @throws IllegalArgumentException if k is not a valid k-mer size.
+	 */
+	public static long reverseComplement(long kmer, int k){
+		checkKmerSize(k);
+		//complement is just flipping the bits since A=0 T=3 and C=1 G=2
+		long x = ~kmer;
+		//reverse the order of the 2 bit pairs
+		x = ((x >>> 2) & 0x3333333333333333L) | ((x & 0x3333333333333333L) << 2);
+		x = ((x >>> 4) & 0x0F0F0F0F0F0F0F0FL) | ((x & 0x0F0F0F0F0F0F0F0FL) << 4);
+		x = Long.reverseBytes(x);
+		//now the bases are in the top 2k bits
+		return x >>> (64 - (k<<1));
+	}
+	/**
+	 * Get the canonical form of the given packed k-mer
+	 * which is the smaller of the k-mer and its reverse complement.
+	 * 
+	 * @param kmer the packed k-mer.
+	 * @param k the k-mer size; must be between 1 and {@value #MAX_K}.
+	 * 
+	 * @return the canonical k-mer.
+	 * 
+	 * @throws IllegalArgumentException if k is not a valid k-mer size.
+	 */
+	public static long canonical(long kmer, int k){
+		return min(kmer, reverseComplement(kmer, k));
+	}
+	
+	static long min(long kmer, long reverseComplement){
+		//k=32 uses the sign bit
+		return Long.compareUnsigned(kmer, reverseComplement) <=0 ? kmer : reverseComplement;
+	}
+}
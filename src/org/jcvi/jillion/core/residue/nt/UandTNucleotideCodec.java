@@ -34,6 +34,11 @@ final class UandTNucleotideCodec  extends AbstractNucleotideCodec{
         return getGlyphFor(encodedByte);
     }
 
+    @Override
+    protected int getTwoBitCode(byte encodedByte, int index) {
+        return PackedKmers.twoBitCodeOf(encodedByte);
+    }
+
     @Override
     protected byte getByteFor(Nucleotide nuc) {
         return nuc.getOrdinalAsByte();
@@ -0,0 +1,528 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.core.util;
+
+import java.util.Collection;
+import java.util.function.IntConsumer;
+
+import org.jcvi.jillion.core.Range;
+import org.jcvi.jillion.core.Rangeable;
+import org.jcvi.jillion.internal.core.util.GrowableIntArray;
+import org.jcvi.jillion.internal.core.util.GrowableLongArray;
+
+/**
+ * {@code LongIntervalTree} is an immutable, static interval tree
+ * of inclusive {@code [begin, end]} long coordinates stored entirely
+ * in primitive arrays so millions of intervals can be held
+ * without any per-interval objects.
+ * <p>
+ * Each interval is identified by its id which is the order
+ * it was added to the {@link Builder} (starting at 0).  Callers
+ * can keep any data associated with each interval in their
+ * own arrays indexed by id.
+ * <p>
+ * The intervals are sorted by begin (then end) coordinate and 
+ * augmented with the max end coordinate of each subtree
+ * of an implicit binary tree laid out over the sorted array
+ * (similar to Heng Li's cgranges). Overlap and containing
+ * queries take O(log n + k) time where k is the number of intervals
+ * returned.  Results are always returned in begin (then end) coordinate order.
+ * <p>
+ * An interval whose end is before its begin is empty and will never
+ * overlap anything.
+ * 
+ * @author dkatzel
+ * 
+ * @since 6.0.3
+ */
+public final class LongIntervalTree {
+	/**
+	 * Subtrees this deep or smaller
+	 * are scanned linearly.
+	 */
+	private static final int LINEAR_SCAN_LEVEL = 3;
+	
+	private static final int[] EMPTY = new int[0];
+	/**
+	 * Sorted coordinates.
+	 */
+	private final long[] begins, ends;
+	/**
+	 * The max end coordinate of the subtree rooted at each
+	 * position in the implicit tree.
+	 */
+	private final long[] maxEnds;
+	/**
+	 * The position of the interval with the
+	 * largest end coordinate at or before each position.
+	 */
+	private final int[] prefixMaxEndPositions;
+	/**
+	 * Sorted position to id and id to sorted position.
+	 */
+	private final int[] ids, positions;
+	
+	private final int maxLevel;
+	
+	/**
+	 * Create a new {@link LongIntervalTree} of the given
+	 * Ranges; each id will be the index in the iteration order of the collection.
+	 * @param ranges the Ranges to add; can not be null or contain nulls.
+	 * @return a new {@link LongIntervalTree}; will never be null.
+	 * @throws NullPointerException if ranges is null or contains nulls.
+	 */
+	public static LongIntervalTree of(Collection<? extends Rangeable> ranges){
+		return new Builder(ranges.size())
+						.addAll(ranges)
+						.build();
+	}
+	
+	private LongIntervalTree(long[] unsortedBegins, long[] unsortedEnds){
+		int n = unsortedBegins.length;
+		ids = sortedOrder(unsortedBegins, unsortedEnds);
+		positions = new int[n];
+		begins = new long[n];
+		ends = new long[n];
+		for(int i=0; i< n; i++){
+			int id = ids[i];
+			positions[id] = i;
+			begins[i] = unsortedBegins[id];
+			ends[i] = unsortedEnds[id];
+		}
+		prefixMaxEndPositions = new int[n];
+		for(int i=0, best=0; i< n; i++){
+			if(ends[i] > ends[best]){
+				best = i;
+			}
+			prefixMaxEndPositions[i] = best;
+		}
+		maxEnds = new long[n];
+		maxLevel = computeMaxEnds();
+	}
+	/**
+	 * Get the ids sorted by begin and then end coordinates;
+	 * ties are kept in id order.
+	 */
+	private static int[] sortedOrder(long[] begins, long[] ends){
+		int n = begins.length;
+		int[] order = new int[n];
+		boolean sorted = true;
+		for(int i=0; i< n; i++){
+			order[i] = i;
+			if(sorted && i >0 && compare(begins, ends, i-1, i) >0){
+				sorted = false;
+			}
+		}
+		if(sorted){
+			return order;
+		}
+		//bottom up merge sort of the ids so we don't have to box anything
+		int[] buffer = new int[n];
+		for(int width = 1; width < n; width *=2){
+			for(int left = 0; left < n; left += 2*width){
+				int middle = Math.min(left + width, n);
+				int right = Math.min(left + 2*width, n);
+				int i = left, j= middle, k = left;
+				while(i < middle && j < right){
+					buffer[k++] = compare(begins, ends, order[i], order[j]) <= 0 ? order[i++] : order[j++];
+				}
+				while(i < middle){
+					buffer[k++] = order[i++];
+				}
+				while(j < right){
+					buffer[k++] = order[j++];
+				}
+			}
+			int[] tmp = order;
+			order = buffer;
+			buffer = tmp;
+		}
+		return order;
+	}
+	
+	private static int compare(long[] begins, long[] ends, int a, int b){
+		int cmp = Long.compare(begins[a], begins[b]);
+		if(cmp !=0){
+			return cmp;
+		}
+		return Long.compare(ends[a], ends[b]);
+	}
+	/**
+	 * Populate the max end of each node in the implicit tree.
+	 * Leaves are the even positions, and the nodes at level k
+	 * are the positions whose lowest k bits are all set.
+	 * @return the level of the root.
+	 */
+	private int computeMaxEnds(){
+		int n = begins.length;
+		if(n==0){
+			return -1;
+		}
+		int lastPosition = 0;
+		long last = 0;
+		for(int i=0; i< n; i+=2){
+			lastPosition = i;
+			maxEnds[i] = last = ends[i];
+		}
+		int k;
+		for(k =1; (1L << k) <= n; k++){
+			int x = 1 << (k-1);
+			int firstPosition = (x << 1) -1;
+			long step = x << 2;
+			for(long i = firstPosition; i < n; i += step){
+				int position = (int) i;
+				long leftMax = maxEnds[position - x];
+				//a missing right child uses the max of the
+				//last subtree
+				long rightMax = position + x < n ? maxEnds[position + x] : last;
+				maxEnds[position] = Math.max(ends[position], Math.max(leftMax, rightMax));
+			}
+			lastPosition = ((lastPosition >> k) & 1) !=0 ? lastPosition : lastPosition - x;
+			if(lastPosition >=0 && lastPosition < n && maxEnds[lastPosition] > last){
+				last = maxEnds[lastPosition];
+			}
+		}
+		return k-1;
+	}
+	/**
+	 * Get the number of intervals.
+	 * @return the number of intervals; will always be &ge; 0.
+	 */
+	public int size(){
+		return ids.length;
+	}
+	/**
+	 * Get the begin coordinate of the given interval.
+	 * @param id the id of the interval.
+	 * @return the begin coordinate.
+	 * @throws ArrayIndexOutOfBoundsException if the id is invalid.
+	 */
+	public long getBegin(int id){
+		return begins[positions[id]];
+	}
+	/**
+	 * Get the end coordinate of the given interval.
+	 * @param id the id of the interval.
+	 * @return the end coordinate.
+	 * @throws ArrayIndexOutOfBoundsException if the id is invalid.
+	 */
+	public long getEnd(int id){
+		return ends[positions[id]];
+	}
+	/**
+	 * Call the given consumer with the id of each interval
+	 * that overlaps the given inclusive coordinates.
+	 * @param begin the begin coordinate of the query.
+	 * @param end the end coordinate of the query.
+	 * @param consumer the consumer to call with each id; can not be null.
+	 * @throws NullPointerException if consumer is null.
+	 */
+	public void forEachOverlapping(long begin, long end, IntConsumer consumer){
+		if(begin > end){
+			return;
+		}
+		search(end, begin, position ->{
+			if(ends[position] >= begins[position]){
+				consumer.accept(ids[position]);
+			}
+			return true;
+		});
+	}
+	/**
+	 * Call the given consumer with the id of each interval
+	 * that overlaps the given Range.
+	 * @param range the Range to query; can not be null.
+	 * @param consumer the consumer to call with each id; can not be null.
+	 * @throws NullPointerException if either parameter is null.
+	 */
+	public void forEachOverlapping(Range range, IntConsumer consumer){
+		if(range.isEmpty()){
+			return;
+		}
+		forEachOverlapping(range.getBegin(), range.getEnd(), consumer);
+	}
+	/**
+	 * Get the ids of all the intervals that overlap
+	 * the given inclusive coordinates.
+	 * @param begin the begin coordinate of the query.
+	 * @param end the end coordinate of the query.
+	 * @return a new int array; will never be null but may be empty.
+	 */
+	public int[] getOverlapping(long begin, long end){
+		GrowableIntArray result = new GrowableIntArray(16);
+		forEachOverlapping(begin, end, result::append);
+		return result.getCurrentLength()==0 ? EMPTY : result.toArray();
+	}
+	/**
+	 * Count the number of intervals that overlap
+	 * the given inclusive coordinates.
+	 * @param begin the begin coordinate of the query.
+	 * @param end the end coordinate of the query.
+	 * @return the number of overlapping intervals.
+	 */
+	public int countOverlapping(long begin, long end){
+		int[] count = new int[1];
+		forEachOverlapping(begin, end, id -> count[0]++);
+		return count[0];
+	}
+	/**
+	 * Does any interval overlap the given inclusive coordinates.
+	 * @param begin the begin coordinate of the query.
+	 * @param end the end coordinate of the query.
+	 * @return {@code true} if at least one interval overlaps; {@code false} otherwise.
+	 */
+	public boolean overlapsAny(long begin, long end){
+		return firstOverlappingPosition(begin, end) >=0;
+	}
+	
+	private int firstOverlappingPosition(long begin, long end){
+		if(begin > end){
+			return -1;
+		}
+		int[] found = {-1};
+		search(end, begin, position ->{
+			if(ends[position] >= begins[position]){
+				found[0] = position;
+				return false;
+			}
+			return true;
+		});
+		return found[0];
+	}
+	/**
+	 * Call the given consumer with the id of each interval
+	 * that completely contains the given inclusive coordinates.
+	 * @param begin the begin coordinate of the query.
+	 * @param end the end coordinate of the query.
+	 * @param consumer the consumer to call with each id; can not be null.
+	 * @throws NullPointerException if consumer is null.
+	 */
+	public void forEachContaining(long begin, long end, IntConsumer consumer){
+		search(begin, end, position ->{
+			consumer.accept(ids[position]);
+			return true;
+		});
+	}
+	/**
+	 * Call the given consumer with the id of each interval
+	 * that is completely contained inside the given inclusive coordinates.
+	 * Unlike the other queries, this takes time proportional
+	 * to the number of intervals that begin inside the query.
+	 * @param begin the begin coordinate of the query.
+	 * @param end the end coordinate of the query.
+	 * @param consumer the consumer to call with each id; can not be null.
+	 * @throws NullPointerException if consumer is null.
+	 */
+	public void forEachContainedIn(long begin, long end, IntConsumer consumer){
+		for(int i = firstPositionAtOrAfter(begin); i< begins.length && begins[i] <= end; i++){
+			if(ends[i] <= end){
+				consumer.accept(ids[i]);
+			}
+		}
+	}
+	/**
+	 * Get the id of the interval closest to the given inclusive coordinates.
+	 * If any intervals overlap, then the first overlapping interval (in coordinate order) is returned;
+	 * otherwise the closest interval on either side is returned with ties 
+	 * going to the interval before the query.
+	 * @param begin the begin coordinate of the query.
+	 * @param end the end coordinate of the query.
+	 * @return the id of the nearest interval or -1 if there are no intervals.
+	 */
+	public int getNearest(long begin, long end){
+		int n = begins.length;
+		if(n==0){
+			return -1;
+		}
+		int overlap = firstOverlappingPosition(begin, end);
+		if(overlap >=0){
+			return ids[overlap];
+		}
+		int after = firstPositionAtOrAfter(end);
+		//skip anything that begins at the end but doesn't overlap (empty intervals)
+		while(after < n && begins[after] <= end){
+			after++;
+		}
+		int before = after ==0 ? -1 : prefixMaxEndPositions[after -1];
+		if(before <0){
+			return ids[after];
+		}
+		if(after >=n){
+			return ids[before];
+		}
+		long distanceBefore = begin - ends[before];
+		long distanceAfter = begins[after] - end;
+		return distanceAfter < distanceBefore ? ids[after] : ids[before];
+	}
+	
+	private int firstPositionAtOrAfter(long begin){
+		int low = 0;
+		int high = begins.length;
+		while(low < high){
+			int mid = (low + high) >>> 1;
+			if(begins[mid] < begin){
+				low = mid+1;
+			}else{
+				high = mid;
+			}
+		}
+		return low;
+	}
+	
+	@FunctionalInterface
+	private interface PositionVisitor{
+		/**
+		 * Visit the given sorted position.
+		 * @return {@code true} to keep searching; {@code false} to stop.
+		 */
+		boolean visit(int position);
+	}
+	/**
+	 * Visit every position whose begin is &le; maxBegin
+	 * and end is &ge; minEnd in sorted order.
+	 */
+	private void search(long maxBegin, long minEnd, PositionVisitor visitor){
+		int n = begins.length;
+		if(n==0){
+			return;
+		}
+		//each stack frame is a node, its level and if its left child has been visited
+		int[] nodes = new int[64];
+		int[] levels = new int[64];
+		boolean[] leftDone = new boolean[64];
+		int top = 0;
+		nodes[top] = (1 << maxLevel) -1;
+		levels[top] = maxLevel;
+		leftDone[top++] = false;
+		while(top >0){
+			top--;
+			int x = nodes[top];
+			int k = levels[top];
+			if(k <= LINEAR_SCAN_LEVEL){
+				int start = x >> k << k;
+				int stop = (int) Math.min(n, start + (1L << (k+1)) -1);
+				for(int i=start; i< stop && begins[i] <= maxBegin; i++){
+					if(ends[i] >= minEnd && !visitor.visit(i)){
+						return;
+					}
+				}
+			}else if(!leftDone[top]){
+				int leftChild = x - (1 << (k-1));
+				leftDone[top++] = true;
+				//missing nodes may still have children that exist
+				if(leftChild >= n || maxEnds[leftChild] >= minEnd){
+					nodes[top] = leftChild;
+					levels[top] = k-1;
+					leftDone[top++] = false;
+				}
+			}else if(x < n && begins[x] <= maxBegin){
+				if(ends[x] >= minEnd && !visitor.visit(x)){
+					return;
+				}
+				nodes[top] = x + (1 << (k-1));
+				levels[top] = k-1;
+				leftDone[top++] = false;
+			}
+		}
+	}
+	/**
+	 * {@code Builder} collects intervals to put into
+	 * a {@link LongIntervalTree}.
+	 * 
+	 * @author dkatzel
+	 *
+	 * @since 6.0.3
+	 */
+	public static final class Builder implements org.jcvi.jillion.core.util.Builder<LongIntervalTree>{
+		private final GrowableLongArray begins, ends;
+		/**
+		 * Create a new Builder with a default initial capacity.
+		 */
+		public Builder(){
+			this(1024);
+		}
+		/**
+		 * Create a new Builder with the given initial capacity.
+		 * @param initialCapacity the number of intervals expected; must be &ge; 0.
+		 * @throws IllegalArgumentException if initialCapacity is negative.
+		 */
+		public Builder(int initialCapacity){
+			if(initialCapacity < 0){
+				throw new IllegalArgumentException("initial capacity can not be negative");
+			}
+			//growable arrays don't allow 0 capacity
+			int capacity = Math.max(1, initialCapacity);
+			begins = new GrowableLongArray(capacity);
+			ends = new GrowableLongArray(capacity);
+		}
+		/**
+		 * Add the given inclusive interval; its id
+		 * will be the number of intervals added before it.
+		 * @param begin the begin coordinate.
+		 * @param end the inclusive end coordinate.
+		 * @return this.
+		 */
+		public Builder add(long begin, long end){
+			begins.append(begin);
+			ends.append(end);
+			return this;
+		}
+		/**
+		 * Add the given Range.
+		 * @param range the Range to add; can not be null.
+		 * @return this.
+		 * @throws NullPointerException if range is null.
+		 */
+		public Builder add(Rangeable range){
+			Range r = range.asRange();
+			return add(r.getBegin(), r.getEnd());
+		}
+		/**
+		 * Add all the given Ranges in iteration order.
+		 * @param ranges the Ranges to add; can not be null or contain nulls.
+		 * @return this.
+		 * @throws NullPointerException if ranges is null or contains nulls.
+		 */
+		public Builder addAll(Collection<? extends Rangeable> ranges){
+			for(Rangeable r : ranges){
+				add(r);
+			}
+			return this;
+		}
+		/**
+		 * Get the number of intervals added so far.
+		 * @return the number of intervals.
+		 */
+		public int size(){
+			return begins.getCurrentLength();
+		}
+		
+		@Override
+		public LongIntervalTree build() {
+			return new LongIntervalTree(begins.toArray(), ends.toArray());
+		}
+	}
+	
+	@Override
+	public String toString() {
+		return "LongIntervalTree [size=" + size() + "]";
+	}
+}
@@ -10,9 +10,14 @@ import org.jcvi.jillion.core.RangeCollectors;
 import org.jcvi.jillion.core.Rangeable;
 import org.jcvi.jillion.core.Ranges;
 import org.jcvi.jillion.core.util.streams.ThrowingTriConsumer;
+import org.jcvi.jillion.internal.core.util.GrowableIntArray;
 
 /**
  * Wrapper around a {@code Map<Range, T>} with methods to get values in the map that intersect ranges inside the map.
+ * As of 6.0.3, intersection queries whose {@link IntersectionOptions} know their
+ * {@link IntersectionOptions#getRangesOfInterest() ranges of interest} (which all the built in options do)
+ * use a {@link LongIntervalTree} that is built the first time it's needed after the map is modified
+ * so they take O(log n + k) time instead of checking every Range in the map.
  * @author dkatzel
  *
  * @param <T> the value type.
@@ -22,6 +27,12 @@ import org.jcvi.jillion.core.util.streams.ThrowingTriConsumer;
 public class RangeMap<T> {
 
 	private final NavigableMap<Range, T> map;
+	/**
+	 * Interval tree of the current entries
+	 * lazily built the first time it's needed after
+	 * the map has been modified.
+	 */
+	private Snapshot<T> snapshot;
 	
 	public static RangeMap<Boolean> setOf(Collection<? extends Rangeable> rangeables) {
 		RangeMap<Boolean> map = new RangeMap<>();
@@ -38,10 +49,12 @@ public class RangeMap<T> {
 	}
 	
 	public T put(Range range, T obj) {
+		snapshot = null;
 		return map.put(range, obj);
 	}
 	
 	public void putAll(RangeMap<T> other) {
+		snapshot = null;
 		map.putAll(other.map);
 
 	}
@@ -60,6 +73,7 @@ public class RangeMap<T> {
 		return map.get(range);
 	}
 	public T remove(Range range) {
+		snapshot = null;
 		return map.remove(range);
 	}
 	/**
@@ -86,22 +100,82 @@ public class RangeMap<T> {
 		Objects.requireNonNull(consumer);
 		Objects.requireNonNull(intersectionOptions);
 		CallbackImpl callback = new CallbackImpl();
-		for(Entry<Range, T> entry : map.entrySet()) {
-			if(intersectionOptions.intersects(entry.getKey(), callback)) {
-				consumer.accept(entry.getKey(), entry.getValue(), callback);
-				
+		Collection<Range> rangesOfInterest = intersectionOptions.getRangesOfInterest();
+		if(rangesOfInterest ==null) {
+			//have to check everything
+			for(Entry<Range, T> entry : map.entrySet()) {
+				if(intersectionOptions.intersects(entry.getKey(), callback)) {
+					consumer.accept(entry.getKey(), entry.getValue(), callback);
+					
+				}
+				if(callback.halt) {
+					break;
+				}
+			}
+			return;
+		}
+		Snapshot<T> current = getSnapshot();
+		for(int i : current.getIdsThatIntersect(rangesOfInterest)) {
+			Range range = current.ranges[i];
+			if(intersectionOptions.intersects(range, callback)) {
+				consumer.accept(range, current.getValue(i), callback);
 			}
 			if(callback.halt) {
 				break;
 			}
 		}
 	}
+	/**
+	 * Get the entry whose Range is closest to the given Range.
+	 * If any Ranges in this map intersect the given Range, then
+	 * the first intersecting Range (in begin coordinate order) is returned;
+	 * otherwise the closest Range on either side is returned with ties 
+	 * going to the Range before the given Range.
+	 * This takes O(log n) time.
+	 * 
+	 * @param range the Range to find the nearest neighbor of; can not be null.
+	 * @return the nearest entry or {@code null} if this map is empty.
+	 * @throws NullPointerException if range is null.
+	 * 
+	 * @since 6.0.3
+	 */
+	public Entry<Range, T> getNearest(Range range){
+		Objects.requireNonNull(range);
+		Snapshot<T> current = getSnapshot();
+		int id = current.tree.getNearest(range.getBegin(), range.getEnd());
+		if(id <0) {
+			return null;
+		}
+		return new AbstractMap.SimpleImmutableEntry<>(current.ranges[id], current.getValue(id));
+	}
+	
+	private Snapshot<T> getSnapshot(){
+		Snapshot<T> current = snapshot;
+		if(current ==null) {
+			current = new Snapshot<>(map);
+			snapshot = current;
+		}
+		return current;
+	}
 	public List<Range> computeMergedRanges() {
 		return Ranges.merge(map.keySet());
 	}
 	@FunctionalInterface
 	public interface IntersectionOptions{
 		boolean intersects(Range range, Callback callback);
+		/**
+		 * Get the Ranges that every Range accepted by {@link #intersects(Range, Callback)}
+		 * must intersect.  If known, only the Ranges in the map that intersect these
+		 * Ranges are checked which is much faster than checking every Range in the map.
+		 * 
+		 * @return a Collection of Ranges or {@code null} if every Range in the map
+		 * has to be checked; by default returns {@code null}.
+		 * 
+		 * @since 6.0.3
+		 */
+		default Collection<Range> getRangesOfInterest(){
+			return null;
+		}
 		
 		public static IntersectionOptions intersect(Range range) {
 			return new DefaultIntersectionOptions(Objects.requireNonNull(range));
@@ -126,7 +200,7 @@ public class RangeMap<T> {
 		}
 		
 		public static IntersectionOptions superRangeOf(Range range) {
-			return (r, callback)-> range.isSubRangeOf(r);
+			return new SuperRangeOfOptions(Objects.requireNonNull(range));
 			
 		}
 	}
@@ -142,6 +216,30 @@ public class RangeMap<T> {
 		public boolean intersects(Range range, Callback callback) {
 			return rangeOfInterest.intersects(range);
 		}
+
+		@Override
+		public Collection<Range> getRangesOfInterest() {
+			return Collections.singletonList(rangeOfInterest);
+		}
+	}
+	
+	private static class SuperRangeOfOptions implements IntersectionOptions{
+		private final Range subRange;
+
+		public SuperRangeOfOptions(Range subRange) {
+			this.subRange = subRange;
+		}
+
+		@Override
+		public boolean intersects(Range range, Callback callback) {
+			return subRange.isSubRangeOf(range);
+		}
+
+		@Override
+		public Collection<Range> getRangesOfInterest() {
+			//any super range of a non-empty range must intersect it
+			return subRange.isEmpty() ? null : Collections.singletonList(subRange);
+		}
 	}
 	
 	
@@ -158,6 +256,11 @@ public class RangeMap<T> {
 		public boolean intersects(Range range, Callback callback) {
 			return Ranges.intersects(rangesOfInterest, range);
 		}
+
+		@Override
+		public Collection<Range> getRangesOfInterest() {
+			return rangesOfInterest;
+		}
 	}
 	
 	
@@ -192,8 +295,11 @@ public class RangeMap<T> {
 			}
 			return false;
 		}
-		
-		
+
+		@Override
+		public Collection<Range> getRangesOfInterest() {
+			return Arrays.asList(leftRange, rightRange);
+		}
 	}
 	private static class CallbackImpl implements Callback{
 		private volatile boolean halt =false;
@@ -208,6 +314,57 @@ public class RangeMap<T> {
 	public interface Callback{
 		void halt();
 	}
+	/**
+	 * Immutable copy of the entries in the map
+	 * in {@link Range.Comparators#ARRIVAL} order
+	 * with an interval tree whose ids are the index into the arrays.
+	 */
+	private static final class Snapshot<T>{
+		private final Range[] ranges;
+		private final Object[] values;
+		private final LongIntervalTree tree;
+		
+		Snapshot(NavigableMap<Range, T> map){
+			int size = map.size();
+			ranges = new Range[size];
+			values = new Object[size];
+			LongIntervalTree.Builder builder = new LongIntervalTree.Builder(size);
+			int i=0;
+			for(Entry<Range, T> entry : map.entrySet()) {
+				ranges[i] = entry.getKey();
+				values[i++] = entry.getValue();
+				builder.add(entry.getKey());
+			}
+			//already sorted so the tree ids are the same as our indexes
+			tree = builder.build();
+		}
+		@SuppressWarnings("unchecked")
+		T getValue(int i) {
+			return (T) values[i];
+		}
+		/**
+		 * Get the sorted ids of the Ranges that intersect any of the given Ranges.
+		 */
+		int[] getIdsThatIntersect(Collection<Range> rangesOfInterest) {
+			GrowableIntArray ids = new GrowableIntArray(16);
+			for(Range r : rangesOfInterest) {
+				tree.forEachOverlapping(r, ids::append);
+			}
+			int[] array = ids.toArray();
+			if(rangesOfInterest.size() <2) {
+				return array;
+			}
+			//multiple query ranges might have found the same Range
+			Arrays.sort(array);
+			int length=0;
+			for(int i=0; i< array.length; i++) {
+				if(length ==0 || array[length-1] != array[i]) {
+					array[length++] = array[i];
+				}
+			}
+			return Arrays.copyOf(array, length);
+		}
+	}
 	
 	
 }
@@ -25,6 +25,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.function.BiConsumer;
 
 import org.jcvi.jillion.align.NucleotideSubstitutionMatrix;
 import org.jcvi.jillion.align.NucleotideSubstitutionMatrixBuilder;
@@ -35,6 +36,7 @@ import org.jcvi.jillion.core.Direction;
 import org.jcvi.jillion.core.Range;
 import org.jcvi.jillion.core.datastore.DataStoreException;
 import org.jcvi.jillion.core.io.IOUtil;
+import org.jcvi.jillion.core.residue.nt.Nucleotide;
 import org.jcvi.jillion.core.residue.nt.NucleotideSequence;
 import org.jcvi.jillion.core.residue.nt.NucleotideSequenceBuilder;
 import org.jcvi.jillion.core.residue.nt.NucleotideSequenceDataStore;
@@ -210,8 +212,7 @@ public class PrimerDetector {
         	NucleotideSequence primer = fasta.getSequence();
             if(primer.getLength()>=minLength){
 
-            	NucleotidePairwiseSequenceAlignment forwardAlignment =PairwiseAlignmentBuilder.createNucleotideAlignmentBuilder(primer, sequence, MATRIX)
-																		.gapPenalty(gapOpenPenalty, -1)
+            	NucleotidePairwiseSequenceAlignment forwardAlignment =createAlignmentBuilder(primer, sequence)
 																		.build();
 
                 final NucleotidePairwiseSequenceAlignment reverseAlignment;
@@ -220,13 +221,49 @@ public class PrimerDetector {
 												.reverseComplement()
 												.build();
 					
-					reverseAlignment =PairwiseAlignmentBuilder.createNucleotideAlignmentBuilder(reversePrimer, sequence, MATRIX)
-							.gapPenalty(gapOpenPenalty, -1)
+					reverseAlignment =createAlignmentBuilder(reversePrimer, sequence)
 							.build();
 
                 }else{
                     reverseAlignment = NullAlignment.INSTANCE;
                 }
+                PrimerHit hit = createHit(fasta.getId(), forwardAlignment, reverseAlignment);
+                if(hit !=null){
+                	hits.add(hit);
+                }
+            }
+        }
+        return hits;
+        } catch (DataStoreException e) {
+			throw new IllegalStateException("error iterating over nucleotide sequences",e);
+		}finally{
+        	IOUtil.closeAndIgnoreErrors(iter);
+        }
+    }
+
+
+    /**
+     * Create the alignment builder used to align a primer
+     * to a sequence.
+     * @param primer the primer (or its reverse complement).
+     * @param sequence the sequence to look for the primer in.
+     * @return a new local alignment builder with this detector's scoring.
+     */
+    PairwiseAlignmentBuilder<Nucleotide, NucleotideSequence, NucleotidePairwiseSequenceAlignment> createAlignmentBuilder(
+    		NucleotideSequence primer, NucleotideSequence sequence){
+    	return PairwiseAlignmentBuilder.createNucleotideAlignmentBuilder(primer, sequence, MATRIX)
+    							.gapPenalty(gapOpenPenalty, -1);
+    }
+    /**
+     * Decide if the best forward or reverse alignment of a primer
+     * is a hit.
+     * @param id the primer id.
+     * @param forwardAlignment the alignment of the primer.
+     * @param reverseAlignment the alignment of the reverse complement of the primer.
+     * @return a new PrimerHit or {@code null} if neither alignment is good enough.
+     */
+    PrimerHit createHit(String id, NucleotidePairwiseSequenceAlignment forwardAlignment,
+    		NucleotidePairwiseSequenceAlignment reverseAlignment){
                 if(maxNumMismatches ==null){
                 	
 	                if(forwardAlignment.getPercentIdentity() > minPercentIdentity || reverseAlignment.getPercentIdentity() > minPercentIdentity){
@@ -241,7 +278,7 @@ public class PrimerDetector {
 	                    }
 	                	DirectedRange range = DirectedRange.create(
 	                    		bestAlignment.getSubjectRange().asRange(), direction);
-	                    hits.add(new PrimerHit(fasta.getId(), range));
+	                    return new PrimerHit(id, range);
 	                }
                 }else{
                 	int maxAllowedMismatches = maxNumMismatches;
@@ -251,8 +288,8 @@ public class PrimerDetector {
                 	int numberOfForwardMismatchesAndMissingBases = forwardAlignment.getNumberOfMismatches() + numberOfMissingForwardBases;
                 	int numberOfReverseMismatchesAndMissingBases = reverseAlignment.getNumberOfMismatches() + numberOfMissingReverseBases;
                 	
-                	boolean forwardIsCandidate =  numberOfForwardMismatchesAndMissingBases <= maxAllowedMismatches;
-                	boolean reverseIsCandidate = numberOfReverseMismatchesAndMissingBases <= maxAllowedMismatches;
+                	boolean forwardIsCandidate =  forwardAlignment != NullAlignment.INSTANCE && numberOfForwardMismatchesAndMissingBases <= maxAllowedMismatches;
+                	boolean reverseIsCandidate = reverseAlignment != NullAlignment.INSTANCE && numberOfReverseMismatchesAndMissingBases <= maxAllowedMismatches;
                 	
                 	if(forwardIsCandidate && reverseIsCandidate){
                 		if(reverseAlignment.getScore() > forwardAlignment.getScore()){
@@ -262,14 +299,14 @@ public class PrimerDetector {
 	                    			.build(), 
 	                    			
 	                    			Direction.REVERSE);
-                			hits.add(new PrimerHit(fasta.getId(), range));
+                			return new PrimerHit(id, range);
                 		}else{
                 			DirectedRange range = DirectedRange.create(
                 					new Range.Builder(forwardAlignment.getSubjectRange().asRange())
                 					.expandEnd(numberOfMissingForwardBases)
                 					.build(), 
                 					Direction.FORWARD);
-                			hits.add(new PrimerHit(fasta.getId(), range));
+                			return new PrimerHit(id, range);
                 		}
                 	}else if(forwardIsCandidate){
                 		DirectedRange range = DirectedRange.create(
@@ -277,27 +314,19 @@ public class PrimerDetector {
                 				.expandEnd(numberOfMissingForwardBases)
                 				.build(),
                 				Direction.FORWARD);
-                		hits.add(new PrimerHit(fasta.getId(), range));
+                		return new PrimerHit(id, range);
                 	}else if(reverseIsCandidate){
                 		DirectedRange range = DirectedRange.create(
                 				new Range.Builder(reverseAlignment.getSubjectRange().asRange())
                 				.expandBegin(numberOfMissingReverseBases)
                 				.build(), Direction.REVERSE);
-                		hits.add(new PrimerHit(fasta.getId(), range));
+                		return new PrimerHit(id, range);
                 	}
 	                   
 
-                }
-            }
-        }
-        return hits;
-        } catch (DataStoreException e) {
-			throw new IllegalStateException("error iterating over nucleotide sequences",e);
-		}finally{
-        	IOUtil.closeAndIgnoreErrors(iter);
         }
+        return null;
     }
-
    
 
 	public static final class PrimerHit{
@@ -327,6 +356,92 @@ public class PrimerDetector {
 	public static PrimerDetector create(int minLength, int maxAllowedMismatches){
 		return new PrimerDetector(minLength, maxAllowedMismatches, true, -200);
 	}
+	/**
+	 * Create a new {@link PrimerIndex} of the given primers
+	 * which uses this detector's settings but only aligns each primer
+	 * to the regions of a sequence that share a seed k-mer with it.
+	 * The seed size is computed from the min length
+	 * and the max number of mismatches; percent identity detectors,
+	 * and max mismatch detectors whose seeds would be too small to guarantee the same hits,
+	 * get an index that aligns every primer to the whole sequence.
+	 * 
+	 * @param primersDataStore the primers to index; can not be null.
+	 * @return a new PrimerIndex; will never be null.
+	 * @throws DataStoreException if there is a problem iterating over the primers.
+	 * 
+	 * @since 6.0.3
+	 * 
+	 * @see PrimerIndex#computeSeedSize(int, int)
+	 */
+	public PrimerIndex createIndex(NucleotideFastaDataStore primersDataStore) throws DataStoreException{
+		int seedSize = usesPercentIdentity() ? PrimerIndex.FULL_ALIGNMENT 
+							: PrimerIndex.computeSeedSize(minLength, getMaxNumberOfDifferences());
+		return new PrimerIndex(this, primersDataStore, seedSize);
+	}
+	/**
+	 * Create a new {@link PrimerIndex} of the given primers
+	 * using the given seed size.
+	 * 
+	 * @param primersDataStore the primers to index; can not be null.
+	 * @param seedSize the length of the exact k-mer matches used as seeds;
+	 * must be between 1 and {@value PrimerIndex#MAX_SEED_SIZE}.
+	 * @return a new PrimerIndex; will never be null.
+	 * @throws DataStoreException if there is a problem iterating over the primers.
+	 * @throws IllegalArgumentException if seedSize is out of range.
+	 * 
+	 * @since 6.0.3
+	 */
+	public PrimerIndex createIndex(NucleotideFastaDataStore primersDataStore, int seedSize) throws DataStoreException{
+		if(seedSize < 1 || seedSize > PrimerIndex.MAX_SEED_SIZE){
+			throw new IllegalArgumentException("seed size must be between 1 and " + PrimerIndex.MAX_SEED_SIZE + " : " + seedSize);
+		}
+		return new PrimerIndex(this, primersDataStore, seedSize);
+	}
+	
+	/**
+	 * Find the primer hits of every sequence in the given DataStore
+	 * by building a {@link PrimerIndex} of the primers once 
+	 * and then detecting in parallel across the sequences.
+	 * 
+	 * @param sequences the sequences to look for primers in; can not be null.
+	 * @param primersDataStore the primers to look for; can not be null.
+	 * @param numberOfThreads the number of worker threads to use; must be &ge; 1.
+	 * @param consumer the consumer of each sequence id and its (possibly empty) list of hits,
+	 * called in the calling thread in the same order as the sequence DataStore's iterator;
+	 * can not be null.
+	 * @throws DataStoreException if there is a problem iterating over the sequences or primers.
+	 * @throws IllegalArgumentException if numberOfThreads &lt; 1.
+	 * 
+	 * @since 6.0.3
+	 * 
+	 * @see PrimerIndex#detect(NucleotideFastaDataStore, int, BiConsumer)
+	 */
+	public void detect(NucleotideFastaDataStore sequences, NucleotideFastaDataStore primersDataStore,
+			int numberOfThreads, BiConsumer<String, List<PrimerHit>> consumer) throws DataStoreException{
+		createIndex(primersDataStore).detect(sequences, numberOfThreads, consumer);
+	}
+	
+	int getMinLength() {
+		return minLength;
+	}
+	
+	boolean isAlsoCheckingReverseCompliment() {
+		return alsoCheckReverseCompliment;
+	}
+	
+	boolean usesPercentIdentity() {
+		return maxNumMismatches ==null;
+	}
+	/**
+	 * Get the max number of mismatches or gaps 
+	 * a primer alignment of min length can have and still be a hit.
+	 */
+	int getMaxNumberOfDifferences() {
+		if(maxNumMismatches ==null){
+			return Math.max(0, (int) Math.floor(minLength * (1D - minPercentIdentity)));
+		}
+		return maxNumMismatches;
+	}
 	/**
 	 * {@code NullAlignment} is a Null Object singleton
 	 * implementation of a {@link NucleotidePairwiseSequenceAlignment}
@@ -334,7 +449,7 @@ public class PrimerDetector {
 	 * @author dkatzel
 	 *
 	 */
-    private enum  NullAlignment implements NucleotidePairwiseSequenceAlignment{
+    enum  NullAlignment implements NucleotidePairwiseSequenceAlignment{
 
     	INSTANCE
     	;
@@ -0,0 +1,475 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.experimental.primer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+
+import org.jcvi.jillion.align.pairwise.NucleotidePairwiseSequenceAlignment;
+import org.jcvi.jillion.core.Range;
+import org.jcvi.jillion.core.datastore.DataStoreException;
+import org.jcvi.jillion.core.residue.nt.Nucleotide;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequence;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequenceBuilder;
+import org.jcvi.jillion.core.util.iter.StreamingIterator;
+import org.jcvi.jillion.experimental.primer.PrimerDetector.NullAlignment;
+import org.jcvi.jillion.experimental.primer.PrimerDetector.PrimerHit;
+import org.jcvi.jillion.fasta.nt.NucleotideFastaDataStore;
+import org.jcvi.jillion.fasta.nt.NucleotideFastaRecord;
+import org.jcvi.jillion.internal.core.datastore.ParallelDataStoreMapper;
+import org.jcvi.jillion.internal.core.util.GrowableIntArray;
+import org.jcvi.jillion.internal.core.util.GrowableLongArray;
+import org.jcvi.jillion.internal.core.util.LongIntCountMap;
+/**
+ * {@code PrimerIndex} is a k-mer index of a set of primers
+ * (and their reverse complements) that finds the same
+ * {@link PrimerHit}s as {@link PrimerDetector#detect(NucleotideSequence, NucleotideFastaDataStore)}
+ * without aligning every primer to the whole sequence.
+ * <p>
+ * Each k-mer of the sequence is looked up in the index and every 
+ * exact seed match votes for a primer and a diagonal (sequence offset minus primer offset).
+ * Only the diagonals that were voted for are aligned, using a banded
+ * local alignment over a small window of the sequence around them.
+ * Degenerate primer bases are expanded into each possible k-mer
+ * and a primer that has no k-mer without too many degenerate bases
+ * is aligned to the whole sequence like {@link PrimerDetector} does.
+ * </p>
+ * <p>
+ * The default seed size is chosen so that any alignment
+ * of at least the min length with no more than the max number of mismatches
+ * must contain a seed, so the hits of a {@link PrimerDetector#create(int, int) max mismatch} 
+ * detector are still found.  If no seed size can guarantee that
+ * (including all percent identity detectors, whose hits
+ * only need the best alignment of either strand to be above the min percent identity
+ * no matter how short it is) every primer is aligned to the whole sequence.
+ * </p>
+ * <p>
+ * A PrimerIndex is immutable and Thread-safe.
+ * </p>
+ * @author dkatzel
+ *
+ * @since 6.0.3
+ * 
+ * @see PrimerDetector#createIndex(NucleotideFastaDataStore)
+ */
+public final class PrimerIndex {
+	/**
+	 * The largest seed size allowed.
+	 */
+	public static final int MAX_SEED_SIZE = 16;
+	/**
+	 * The smallest seed size that will be computed;
+	 * anything smaller would seed almost everywhere.
+	 */
+	static final int MIN_COMPUTED_SEED_SIZE = 4;
+	/**
+	 * Seed size of an index that doesn't seed
+	 * and aligns every primer to the whole sequence.
+	 */
+	static final int FULL_ALIGNMENT = 0;
+	
+	private static final int MIN_BAND_WIDTH = 8;
+	/**
+	 * Max number of k-mers a single primer window
+	 * with degenerate bases can be expanded into.
+	 */
+	private static final int MAX_EXPANSIONS = 16;
+	
+	/**
+	 * Bit set of the 2 bit codes (A=0, C=1, G=2, T=3)
+	 * each Nucleotide (by ordinal) can be.
+	 */
+	private static final int[] BASE_SETS;
+	
+	static{
+		Nucleotide[] values = Nucleotide.values();
+		BASE_SETS = new int[values.length];
+		for(Nucleotide n : values){
+			if(n.isGap()){
+				continue;
+			}
+			int set =0;
+			for(Nucleotide base : n.getBasesFor()){
+				set |= 1 << twoBitCodeOf(base);
+			}
+			BASE_SETS[n.ordinal()] = set;
+		}
+	}
+	
+	private final PrimerDetector detector;
+	private final int seedSize;
+	private final int bandWidth;
+	
+	private final String[] ids;
+	/**
+	 * The forward and reverse complement of each primer
+	 * at offsets {@code 2*i} and {@code 2*i+1}; the reverse
+	 * complement is null if the detector doesn't check it.
+	 */
+	private final NucleotideSequence[] strands;
+	/**
+	 * Strands that have no seeds and must be fully aligned.
+	 */
+	private final int[] unseededStrands;
+	/**
+	 * Map of packed k-mer to its (slot + 1).
+	 */
+	private final LongIntCountMap slots;
+	/**
+	 * The postings of slot {@code i} are from
+	 * {@code starts[i]} (inclusive) to {@code starts[i+1]} (exclusive).
+	 */
+	private final int[] starts;
+	/**
+	 * Each posting is the strand index in the upper 32 bits
+	 * and the offset into the strand in the lower 32 bits.
+	 */
+	private final long[] postings;
+	
+	PrimerIndex(PrimerDetector detector, NucleotideFastaDataStore primersDataStore, int seedSize) throws DataStoreException{
+		this.detector = Objects.requireNonNull(detector);
+		this.seedSize = seedSize;
+		this.bandWidth = Math.max(MIN_BAND_WIDTH, detector.getMaxNumberOfDifferences());
+		
+		List<String> idList = new ArrayList<>();
+		List<NucleotideSequence> strandList = new ArrayList<>();
+		try(StreamingIterator<NucleotideFastaRecord> iter = primersDataStore.iterator()){
+			while(iter.hasNext()){
+				NucleotideFastaRecord fasta = iter.next();
+				NucleotideSequence primer = fasta.getSequence();
+				if(primer.getLength() >= detector.getMinLength()){
+					idList.add(fasta.getId());
+					strandList.add(primer);
+					strandList.add(detector.isAlsoCheckingReverseCompliment()
+										? new NucleotideSequenceBuilder(primer).reverseComplement().build()
+										: null);
+				}
+			}
+		}
+		this.ids = idList.toArray(new String[idList.size()]);
+		this.strands = strandList.toArray(new NucleotideSequence[strandList.size()]);
+		
+		GrowableLongArray seedKmers = new GrowableLongArray(1024);
+		GrowableLongArray seedPostings = new GrowableLongArray(1024);
+		GrowableIntArray unseeded = new GrowableIntArray(8);
+		for(int i=0; i< strands.length; i++){
+			if(strands[i] !=null && (seedSize == FULL_ALIGNMENT || !addSeeds(i, strands[i], seedKmers, seedPostings))){
+				unseeded.append(i);
+			}
+		}
+		this.unseededStrands = unseeded.toArray();
+		
+		int numberOfSeeds = seedKmers.getCurrentLength();
+		slots = new LongIntCountMap(numberOfSeeds);
+		int[] slotOfSeed = new int[numberOfSeeds];
+		GrowableIntArray counts = new GrowableIntArray(numberOfSeeds +1);
+		for(int i=0; i< numberOfSeeds; i++){
+			long kmer = seedKmers.get(i);
+			int slot = slots.get(kmer) -1;
+			if(slot <0){
+				slot = counts.getCurrentLength();
+				slots.add(kmer, slot +1);
+				counts.append(0);
+			}
+			counts.replace(slot, counts.get(slot) +1);
+			slotOfSeed[i] = slot;
+		}
+		int numberOfSlots = counts.getCurrentLength();
+		starts = new int[numberOfSlots +1];
+		for(int i=0; i< numberOfSlots; i++){
+			starts[i+1] = starts[i] + counts.get(i);
+		}
+		int[] next = Arrays.copyOf(starts, numberOfSlots);
+		postings = new long[numberOfSeeds];
+		for(int i=0; i< numberOfSeeds; i++){
+			postings[next[slotOfSeed[i]]++] = seedPostings.get(i);
+		}
+	}
+	/**
+	 * Compute the seed size that guarantees an alignment
+	 * of the given length with the given number of mismatches or gaps
+	 * has an exact match at least that long (pigeonhole principle).
+	 * Shorter alignments that are padded out to the min length
+	 * with missing bases have fewer mismatches left so they need the same seed.
+	 * 
+	 * @param minLength the min alignment length.
+	 * @param maxDifferences the max number of differences.
+	 * @return the seed size, capped at {@value #MAX_SEED_SIZE}
+	 * or {@value #FULL_ALIGNMENT} if it would be less than
+	 * {@value #MIN_COMPUTED_SEED_SIZE}.
+	 */
+	static int computeSeedSize(int minLength, int maxDifferences){
+		int seedSize = (minLength - maxDifferences) / (maxDifferences +1);
+		if(seedSize < MIN_COMPUTED_SEED_SIZE){
+			//a smaller seed would no longer be worth it
+			return FULL_ALIGNMENT;
+		}
+		return Math.min(MAX_SEED_SIZE, seedSize);
+	}
+	
+	private static int twoBitCodeOf(Nucleotide base){
+		switch(base){
+			case Adenine : return 0;
+			case Cytosine : return 1;
+			case Guanine : return 2;
+			default : return 3;
+		}
+	}
+	/**
+	 * Add every k-mer of the given strand.
+	 * @return {@code true} if at least one k-mer was added.
+	 */
+	private boolean addSeeds(int strandIndex, NucleotideSequence strand, 
+			GrowableLongArray seedKmers, GrowableLongArray seedPostings){
+		int length = (int) strand.getLength();
+		int[] sets = new int[length];
+		for(int i=0; i< length; i++){
+			sets[i] = BASE_SETS[strand.get(i).ordinal()];
+		}
+		boolean added = false;
+		long[] kmers = new long[MAX_EXPANSIONS];
+		for(int start=0; start + seedSize <= length; start++){
+			int numberOfKmers = expand(sets, start, kmers);
+			long posting = ((long) strandIndex << 32) | start;
+			for(int i=0; i< numberOfKmers; i++){
+				seedKmers.append(kmers[i]);
+				seedPostings.append(posting);
+			}
+			added |= numberOfKmers >0;
+		}
+		return added;
+	}
+	/**
+	 * Expand the window of the given base sets
+	 * into all the packed k-mers it could be.
+	 * @return the number of k-mers written to the array
+	 * which is 0 if there is a gap or too many possibilities.
+	 */
+	private int expand(int[] sets, int start, long[] kmers){
+		int numberOfKmers = 1;
+		kmers[0] = 0;
+		for(int i= start; i< start + seedSize; i++){
+			int set = sets[i];
+			int numberOfCodes = Integer.bitCount(set);
+			if(numberOfCodes ==0 || numberOfKmers * numberOfCodes > MAX_EXPANSIONS){
+				return 0;
+			}
+			int previous = numberOfKmers;
+			int firstCode = Integer.numberOfTrailingZeros(set);
+			//append the other codes first since
+			//the first code overwrites the previous k-mers in place
+			for(int code = firstCode +1; code<4; code++){
+				if((set & (1<<code)) !=0){
+					for(int j=0; j< previous; j++){
+						kmers[numberOfKmers++] = (kmers[j] <<2) | code;
+					}
+				}
+			}
+			for(int j=0; j< previous; j++){
+				kmers[j] = (kmers[j] <<2) | firstCode;
+			}
+		}
+		return numberOfKmers;
+	}
+	/**
+	 * Get the length of the exact k-mer matches used as seeds.
+	 * @return the seed size or 0 if every primer is
+	 * aligned to the whole sequence.
+	 */
+	public int getSeedSize(){
+		return seedSize;
+	}
+	/**
+	 * Get the number of primers in this index.
+	 * Primers shorter than the min length are not indexed.
+	 * @return the number of primers.
+	 */
+	public int getNumberOfPrimers(){
+		return ids.length;
+	}
+	/**
+	 * Find all the primer hits in the given sequence.
+	 * Any gaps in the sequence are ignored.
+	 * 
+	 * @param sequence the sequence to look for primers in; can not be null.
+	 * @return a new List of the primer hits which may be empty
+	 * but will never be null.
+	 * @throws NullPointerException if sequence is null.
+	 */
+	public List<PrimerHit> detect(NucleotideSequence sequence){
+		List<PrimerHit> hits = new ArrayList<>();
+		if(sequence.getLength() ==0){
+			return hits;
+		}
+		NucleotideSequence ungapped = sequence.getNumberOfGaps() ==0 ? sequence : sequence.toBuilder().ungap().build();
+		
+		NucleotidePairwiseSequenceAlignment[] bestAlignments = new NucleotidePairwiseSequenceAlignment[strands.length];
+		long[] candidates = seedSize == FULL_ALIGNMENT ? new long[0] : findCandidateDiagonals(ungapped);
+		int i=0;
+		while(i < candidates.length){
+			int strand = strandOf(candidates[i]);
+			int low = diagonalOf(candidates[i]);
+			int high = low;
+			int j = i+1;
+			//merge diagonals that would be in the same band
+			while(j < candidates.length && strandOf(candidates[j]) == strand 
+					&& diagonalOf(candidates[j]) - high <= bandWidth){
+				high = diagonalOf(candidates[j]);
+				j++;
+			}
+			updateBest(bestAlignments, strand, alignAround(strands[strand], ungapped, low, high));
+			i=j;
+		}
+		for(int strand : unseededStrands){
+			updateBest(bestAlignments, strand, detector.createAlignmentBuilder(strands[strand], ungapped).build());
+		}
+		for(int primer=0; primer< ids.length; primer++){
+			NucleotidePairwiseSequenceAlignment forward = bestAlignments[2*primer];
+			NucleotidePairwiseSequenceAlignment reverse = bestAlignments[2*primer +1];
+			if(forward ==null && reverse ==null){
+				continue;
+			}
+			PrimerHit hit = detector.createHit(ids[primer], 
+					forward ==null ? NullAlignment.INSTANCE : forward, 
+					reverse ==null ? NullAlignment.INSTANCE : reverse);
+			if(hit !=null){
+				hits.add(hit);
+			}
+		}
+		return hits;
+	}
+	/**
+	 * Find the primer hits of every sequence in the given DataStore
+	 * using at most the given number of threads from a shared
+	 * pool of daemon threads.  The sequences are
+	 * read and handed to the consumer in the calling thread, in the same order
+	 * as the DataStore's iterator, while the detection is done
+	 * by the worker threads in batches.
+	 * 
+	 * @param sequences the sequences to look for primers in; can not be null.
+	 * @param numberOfThreads the number of worker threads to use; must be &ge; 1.
+	 * @param consumer the consumer of each sequence id and its (possibly empty) list of hits;
+	 * can not be null.
+	 * @throws DataStoreException if there is a problem iterating over the sequences.
+	 * @throws IllegalArgumentException if numberOfThreads &lt; 1.
+	 * @throws NullPointerException if sequences or consumer is null.
+	 */
+	public void detect(NucleotideFastaDataStore sequences, int numberOfThreads, 
+			BiConsumer<String, List<PrimerHit>> consumer) throws DataStoreException{
+		Objects.requireNonNull(sequences);
+		Objects.requireNonNull(consumer);
+		if(numberOfThreads < 1){
+			throw new IllegalArgumentException("number of threads must be >= 1 : " + numberOfThreads);
+		}
+		ParallelDataStoreMapper.map(sequences, numberOfThreads, 
+				record -> new DetectedHits(record.getId(), detect(record.getSequence())), 
+				detected -> consumer.accept(detected.id, detected.hits));
+	}
+	/**
+	 * Look up every k-mer of the sequence in the index.
+	 * @return the sorted (and possibly repeated) strand and diagonal
+	 * of each seed match packed by {@link #encode(int, int)}.
+	 */
+	private long[] findCandidateDiagonals(NucleotideSequence sequence){
+		GrowableLongArray candidates = new GrowableLongArray(64);
+		long mask = (1L << (2*seedSize)) -1;
+		long kmer = 0;
+		int numberOfValidBases=0;
+		Iterator<Nucleotide> iter = sequence.iterator();
+		for(int offset=0; iter.hasNext(); offset++){
+			int set = BASE_SETS[iter.next().ordinal()];
+			if(Integer.bitCount(set) !=1){
+				//ambiguous bases in the sequence can't be exact seed matches
+				numberOfValidBases=0;
+				continue;
+			}
+			kmer = ((kmer <<2) | Integer.numberOfTrailingZeros(set)) & mask;
+			if(++numberOfValidBases < seedSize){
+				continue;
+			}
+			int slot = slots.get(kmer) -1;
+			if(slot <0){
+				continue;
+			}
+			int start = offset - seedSize +1;
+			for(int i= starts[slot]; i< starts[slot+1]; i++){
+				long posting = postings[i];
+				candidates.append(encode((int) (posting >>> 32), start - (int) posting));
+			}
+		}
+		long[] array = candidates.toArray();
+		Arrays.sort(array);
+		return array;
+	}
+	/**
+	 * Pack the strand and diagonal so that sorting
+	 * orders by strand and then by (signed) diagonal.
+	 */
+	private static long encode(int strand, int diagonal){
+		return ((long) strand << 32) | ((diagonal ^ Integer.MIN_VALUE) & 0xFFFFFFFFL);
+	}
+	
+	private static int strandOf(long encoded){
+		return (int) (encoded >>> 32);
+	}
+	
+	private static int diagonalOf(long encoded){
+		return ((int) encoded) ^ Integer.MIN_VALUE;
+	}
+	/**
+	 * Banded local alignment of the strand to only the part of
+	 * the sequence covered by the given diagonals.
+	 */
+	private NucleotidePairwiseSequenceAlignment alignAround(NucleotideSequence strand, NucleotideSequence sequence, int lowDiagonal, int highDiagonal){
+		int primerLength = (int) strand.getLength();
+		int windowBegin = Math.max(0, lowDiagonal - bandWidth);
+		int windowEnd = (int) Math.min(sequence.getLength() -1, (long) highDiagonal + primerLength + bandWidth -1);
+		
+		NucleotideSequence window = sequence.toBuilder(Range.of(windowBegin, windowEnd)).build();
+		int centerDiagonal = lowDiagonal + (highDiagonal - lowDiagonal)/2;
+		return detector.createAlignmentBuilder(strand, window)
+						.bandWidth(bandWidth + (highDiagonal - lowDiagonal +1)/2)
+						.expectedDiagonal(centerDiagonal - windowBegin)
+						.subjectShift(windowBegin)
+						.build();
+	}
+	
+	private void updateBest(NucleotidePairwiseSequenceAlignment[] bestAlignments, int strand, NucleotidePairwiseSequenceAlignment alignment){
+		NucleotidePairwiseSequenceAlignment best = bestAlignments[strand];
+		if(best ==null || alignment.getScore() > best.getScore()){
+			bestAlignments[strand] = alignment;
+		}
+	}
+	
+	private static final class DetectedHits{
+		private final String id;
+		private final List<PrimerHit> hits;
+		
+		DetectedHits(String id, List<PrimerHit> hits) {
+			this.id = id;
+			this.hits = hits;
+		}
+	}
+}
@@ -105,6 +105,40 @@ public abstract class FastaFileParser implements FastaParser{
 	public static FastaParser create(InputStream inputStream){
 		return new InputStreamFastaParser(inputStream);
 	}
+	/**
+	 * Create a {@link FastaVisitorMemento} that will start parsing
+	 * at the given byte offset which must be the beginning of a defline.
+	 * This can be used to recreate mementos that were persisted
+	 * using {@link #getOffsetOf(FastaVisitorMemento)}.
+	 * @param offset the byte offset of the defline; can not be negative.
+	 * @return a new {@link FastaVisitorMemento}; will never be null.
+	 * @throws IllegalArgumentException if offset is negative.
+	 * 
+	 * @since 6.0.3
+	 */
+	public static FastaVisitorMemento createMementoForOffset(long offset){
+		if(offset <0){
+			throw new IllegalArgumentException("offset can not be negative");
+		}
+		return new OffsetMemento(offset);
+	}
+	/**
+	 * Get the byte offset of the defline that the given memento 
+	 * will start parsing from.
+	 * @param memento the memento to get the offset of.
+	 * @return the byte offset; or {@code -1} if the memento
+	 * was not created by a {@link FastaFileParser} or the memento
+	 * is for one of several records that share a redundant defline
+	 * and can't be recreated from just the offset.
+	 * 
+	 * @since 6.0.3
+	 */
+	public static long getOffsetOf(FastaVisitorMemento memento){
+		if(memento ==null || memento.getClass() != OffsetMemento.class){
+			return -1;
+		}
+		return ((OffsetMemento)memento).getOffset();
+	}
 	/**
 	 * Parse the fasta file starting from the beginning 
 	 * of the file (or {@link InputStream}) and call the appropriate
@@ -25,8 +25,10 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
 
 import org.jcvi.jillion.core.Range;
 import org.jcvi.jillion.core.datastore.DataStoreClosedException;
@@ -34,11 +36,11 @@ import org.jcvi.jillion.core.datastore.DataStoreEntry;
 import org.jcvi.jillion.core.datastore.DataStoreException;
 import org.jcvi.jillion.core.io.IOUtil;
 import org.jcvi.jillion.core.io.InputStreamSupplier;
-import org.jcvi.jillion.core.residue.nt.NucleotideSequenceBuilder;
 import org.jcvi.jillion.core.residue.nt.NucleotideSequence;
 import org.jcvi.jillion.core.residue.nt.NucleotideSequenceBuilder;
 import org.jcvi.jillion.core.util.iter.StreamingIterator;
 import org.jcvi.jillion.core.util.streams.ThrowingBiConsumer;
+import org.jcvi.jillion.internal.core.io.MemoryMappedFile;
 import org.jcvi.jillion.internal.fasta.DefaultFastaIndex;
 import org.jcvi.jillion.internal.fasta.FastaIndex;
 import org.jcvi.jillion.internal.fasta.FastaIndexRecord;
@@ -46,6 +48,12 @@ import org.jcvi.jillion.internal.fasta.FastaIndexRecord;
  * {@link NucleotideFastaDataStore} implementation that uses
  * a FastaIndex to quickly seek to the appropriate part in
  * the fasta file to get a sequence or subsequence.
+ * <p>
+ * If the fasta file is memory mapped, then the file offsets
+ * of each sequence range are computed from the index
+ * and the bases are decoded straight out of the mapped region
+ * without any intermediate Strings or line parsing.
+ * </p>
  * 
  * @author dkatzel
  *
@@ -57,12 +65,37 @@ class FaiNucleotideFastaFileDataStore implements NucleotideFastaFileDataStore{
 	private final FastaIndex index;
 	
 	private final NucleotideFastaDataStore delegate;
-
+	/**
+	 * The memory mapped fasta file; will be
+	 * null if not using memory mapping.
+	 */
+	private final MemoryMappedFile mappedFasta;
 	
 	public static FaiNucleotideFastaFileDataStore create(File fastaFile, File faiFile,  NucleotideFastaDataStore delegate) throws IOException{
 		return new FaiNucleotideFastaFileDataStore(fastaFile, DefaultFastaIndex.parse(faiFile), delegate);
 	}
+	/**
+	 * Create a new {@link FaiNucleotideFastaFileDataStore} that memory maps
+	 * the fasta file to look up sequences and subsequences.
+	 * 
+	 * @param fastaFile the fasta file; must exist.
+	 * @param faiFile the fai file for the fasta file.
+	 * @param delegate the {@link NucleotideFastaDataStore} to delegate non-sequence
+	 * lookups to.
+	 * @return a new {@link FaiNucleotideFastaFileDataStore}.
+	 * @throws IOException if there is a problem parsing the fai file or mapping the fasta file.
+	 * 
+	 * @since 6.0.3
+	 */
+	public static FaiNucleotideFastaFileDataStore createMemoryMapped(File fastaFile, File faiFile,  NucleotideFastaDataStore delegate) throws IOException{
+		return new FaiNucleotideFastaFileDataStore(fastaFile, DefaultFastaIndex.parse(faiFile), delegate, true);
+	}
+	
 	public FaiNucleotideFastaFileDataStore(File fastaFile, FastaIndex index, NucleotideFastaDataStore delegate) throws IOException {
+		this(fastaFile, index, delegate, false);
+	}
+	
+	public FaiNucleotideFastaFileDataStore(File fastaFile, FastaIndex index, NucleotideFastaDataStore delegate, boolean memoryMap) throws IOException {
 		
 		Objects.requireNonNull(delegate);
 		Objects.requireNonNull(index);
@@ -71,8 +104,7 @@ class FaiNucleotideFastaFileDataStore implements NucleotideFastaFileDataStore{
 		this.fastaFileSupplier = InputStreamSupplier.forFile(fastaFile);		
 		this.delegate = delegate;		
 		this.index = index;
-		
-		
+		this.mappedFasta = memoryMap ? MemoryMappedFile.map(fastaFile) : null;
 		
 	}
 
@@ -88,9 +120,34 @@ class FaiNucleotideFastaFileDataStore implements NucleotideFastaFileDataStore{
 		}
 	}
 	@Override
-	public NucleotideSequence getSequence(String id) throws DataStoreException {		
+	public NucleotideSequence getSequence(String id) throws DataStoreException {	
+		if(mappedFasta !=null){
+			return getMappedSequence(id, (record)-> Range.ofLength(record.getSeqLength()));
+		}
 		return getSequence(id, (record)-> record.newInputStream(fastaFileSupplier));
 	}
+	
+	private NucleotideSequence getMappedSequence(String id, Function<FastaIndexRecord, Range> rangeFunction) throws DataStoreException {
+		throwExceptionIfClosed();
+		FastaIndexRecord record = index.getIndexFor(id);
+		if(record ==null){
+			return null;
+		}
+		Range sequenceRange = rangeFunction.apply(record);
+		if(sequenceRange.isEmpty()){
+			return new NucleotideSequenceBuilder().build();
+		}
+		Range fileRange = record.computeFileOffsetRange(sequenceRange);
+		ByteBuffer bases;
+		try{
+			bases = mappedFasta.slice(fileRange.getBegin(), (int) fileRange.getLength());
+		}catch(IndexOutOfBoundsException e){
+			throw new DataStoreException("error seeking to record location specified by fai file", e);
+		}
+		return new NucleotideSequenceBuilder((int) sequenceRange.getLength())
+							.append(bases)
+							.build();
+	}
 
 	private NucleotideSequence getSequence(String id, InputStreamFactory inputStreamFactory) throws DataStoreException {
 		throwExceptionIfClosed();
@@ -117,6 +174,11 @@ class FaiNucleotideFastaFileDataStore implements NucleotideFastaFileDataStore{
 
 	@Override
 	public NucleotideSequence getSubSequence(String id, long startOffset) throws DataStoreException {
+		if(mappedFasta !=null){
+			return getMappedSequence(id, (record)-> new Range.Builder(record.getSeqLength())
+																.contractBegin(startOffset)
+																.build());
+		}
 		return getSequence(id, (record)-> record.newInputStream(fastaFileSupplier, startOffset));
 	}
 
@@ -125,6 +187,9 @@ class FaiNucleotideFastaFileDataStore implements NucleotideFastaFileDataStore{
 
 	@Override
 	public NucleotideSequence getSubSequence(String id, Range includeRange) throws DataStoreException {
+		if(mappedFasta !=null){
+			return getMappedSequence(id, (record)-> includeRange);
+		}
 		return getSequence(id, (record)-> record.newInputStream(fastaFileSupplier, includeRange));
 	}
 
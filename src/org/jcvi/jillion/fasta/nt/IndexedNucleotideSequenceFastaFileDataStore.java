@@ -22,7 +22,6 @@ package org.jcvi.jillion.fasta.nt;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Optional;
 import java.util.function.Predicate;
@@ -42,6 +41,8 @@ import org.jcvi.jillion.fasta.FastaVisitor;
 import org.jcvi.jillion.fasta.FastaVisitorCallback;
 import org.jcvi.jillion.fasta.FastaVisitorCallback.FastaVisitorMemento;
 import org.jcvi.jillion.internal.core.datastore.DataStoreStreamingIterator;
+import org.jcvi.jillion.internal.core.datastore.SidecarIndex;
+import org.jcvi.jillion.internal.core.util.OffHeapStringLongMap;
 /**
  * {@code IndexedNucleotideFastaFileDataStore} is an implementation of 
  * {@link NucleotideSequenceFastaDataStore} that only stores an index containing
@@ -53,6 +54,10 @@ import org.jcvi.jillion.internal.core.datastore.DataStoreStreamingIterator;
  * @author dkatzel
  */
 final class IndexedNucleotideSequenceFastaFileDataStore implements NucleotideFastaFileDataStore{
+	/**
+	 * Format name of the persistent index files.
+	 */
+	private static final String INDEX_FORMAT = "fasta";
 	
 	private volatile boolean closed =false;
 	private final FastaParser parser;
@@ -261,8 +266,48 @@ final class IndexedNucleotideSequenceFastaFileDataStore implements NucleotideFas
 	public static NucleotideFastaFileDataStore create(FastaParser parser, Predicate<String> filter, 
 			Predicate<NucleotideFastaRecord> recordFilter,
 			DecodingOptions decodingOptions) throws IOException{
+		return create(parser, filter, recordFilter, decodingOptions, false);
+	}
+	/**
+	 * Creates a new {@link NucleotideFastaDataStore}
+	 * instance using the given parser which may read or write 
+	 * a persistent index file.
+	 * @param parser the {@link FastaParser} to use to create an {@link NucleotideFastaDataStore};
+	 * can not be null.
+	 * @param filter the {@link Predicate} to use to filter the records from the fasta file.
+	 * @param persistIndex if {@code true} and the parser is for a file, 
+	 * then use a valid {@link SidecarIndex} if one exists instead of parsing the file
+	 * or else write one after parsing.  The filters must accept every record
+	 * since the persisted index is not filtered.
+	 * @return a new instance of {@link NucleotideFastaDataStore};
+	 * never null.
+	 * @throws IOException if there is a problem parsing the fasta data.
+	 * @throws NullPointerException if either parameter is null.
+	 * 
+	 * @since 6.0.3
+	 */
+	public static NucleotideFastaFileDataStore create(FastaParser parser, Predicate<String> filter, 
+			Predicate<NucleotideFastaRecord> recordFilter,
+			DecodingOptions decodingOptions, boolean persistIndex) throws IOException{
+		File fastaFile = persistIndex && parser instanceof FastaFileParser ? 
+								((FastaFileParser)parser).getFile().orElse(null) : null;
+		if(fastaFile !=null){
+			Map<String, FastaVisitorMemento> mementos = SidecarIndex.read(fastaFile, INDEX_FORMAT, FastaFileParser::createMementoForOffset);
+			if(mementos !=null){
+				return new IndexedNucleotideSequenceFastaFileDataStore(parser, filter, recordFilter, decodingOptions, mementos);
+			}
+		}
 		BuilderVisitor builder = createBuilder(parser, filter, recordFilter, decodingOptions);
 		builder.initialize();
+		if(fastaFile !=null){
+			try{
+				SidecarIndex.write(fastaFile, INDEX_FORMAT, builder.mementos, FastaFileParser::getOffsetOf);
+			}catch(IOException e){
+				//the index is only an optimization
+				//so don't fail if we can't write it
+				//(for example the directory is read only)
+			}
+		}
 		return builder.build();
 	}
 	
@@ -327,7 +372,9 @@ final class IndexedNucleotideSequenceFastaFileDataStore implements NucleotideFas
 		private final FastaParser parser;
 		private final DecodingOptions decodingOptions;
 		
-		private final Map<String, FastaVisitorCallback.FastaVisitorMemento> mementos = new LinkedHashMap<String, FastaVisitorCallback.FastaVisitorMemento>();
+		//non-redundant mementos are just file offsets so store them off-heap;
+		//the rare redundant defline mementos are kept on-heap
+		private final Map<String, FastaVisitorCallback.FastaVisitorMemento> mementos = OffHeapStringLongMap.createMap(FastaFileParser::createMementoForOffset, FastaFileParser::getOffsetOf);
 		
 		public BuilderVisitor(File fastaFile, Predicate<String> filter, Predicate<NucleotideFastaRecord> recordFilter, DecodingOptions decodingOptions) throws IOException {
 			this(FastaFileParser.create(fastaFile), filter, recordFilter, decodingOptions);
@@ -60,6 +60,18 @@ public final class NucleotideFastaFileDataStoreBuilder extends AbstractFastaFile
 	 * @since 6.0
 	 */
 	private NucleotideSequenceBuilder.DecodingOptions decodingOptions = NucleotideSequenceBuilder.DecodingOptions.DEFAULT;
+	/**
+	 * Should the fasta file be memory mapped
+	 * if a fai file is used.
+	 * @since 6.0.3
+	 */
+	private boolean memoryMapFastaFile = false;
+	/**
+	 * Should the index of record offsets
+	 * be written to and read from an index file.
+	 * @since 6.0.3
+	 */
+	private boolean persistIndex = false;
 	
 	/**
 	 * Create a new Builder instance of 
@@ -160,7 +172,7 @@ public final class NucleotideFastaFileDataStoreBuilder extends AbstractFastaFile
 							break;
 				case RANDOM_ACCESS_OPTIMIZE_MEMORY: 
 							delegate = parser.canCreateMemento()?
-										IndexedNucleotideSequenceFastaFileDataStore.create(parser,filter, recordFilter, decodingOptions)
+										IndexedNucleotideSequenceFastaFileDataStore.create(parser,filter, recordFilter, decodingOptions, persistIndex && !hasFilters())
 										:
 										DefaultNucleotideFastaFileDataStore.create(parser,filter, recordFilter, decodingOptions);
 							break;
@@ -171,6 +183,9 @@ public final class NucleotideFastaFileDataStoreBuilder extends AbstractFastaFile
 			}
 			
 			if(faiFile !=null && faiFile.exists()){
+				if(memoryMapFastaFile){
+					return FaiNucleotideFastaFileDataStore.createMemoryMapped(fastaFile, faiFile, delegate);
+				}
 				return FaiNucleotideFastaFileDataStore.create(fastaFile, faiFile, delegate);
 			}
 			return delegate;
@@ -217,6 +232,49 @@ public final class NucleotideFastaFileDataStoreBuilder extends AbstractFastaFile
 		this.decodingOptions = decodingOptions==null? NucleotideSequenceBuilder.DecodingOptions.DEFAULT: decodingOptions;
 		return this;
 	}
+	/**
+	 * Memory map the fasta file to look up sequences and subsequences
+	 * if a Fasta Index ({@code .fai}) file is also used.
+	 * Memory mapping lets lookups of many small subsequences against
+	 * a large fasta file (such as a reference genome) decode
+	 * the bases directly from the mapped file without
+	 * opening streams or parsing lines.  This is ignored if 
+	 * there is no fai file.
+	 * If this method is not called, then the fasta file is not memory mapped.
+	 * 
+	 * @param memoryMap {@code true} if the fasta file should be memory mapped;
+	 * {@code false} otherwise.
+	 * 
+	 * @return this
+	 * 
+	 * @since 6.0.3
+	 */
+	public NucleotideFastaFileDataStoreBuilder memoryMapFastaFile(boolean memoryMap) {
+		this.memoryMapFastaFile = memoryMap;
+		return this;
+	}
+	/**
+	 * Write the index of record offsets built by a 
+	 * {@link DataStoreProviderHint#RANDOM_ACCESS_OPTIMIZE_MEMORY} datastore 
+	 * to an index file next to the fasta file (the fasta file name
+	 * with {@code .jidx} appended) so that later builds of the same file
+	 * memory map the index instead of re-parsing the entire file.
+	 * The index file is ignored and re-written if the fasta file has
+	 * changed since the index was written.  This is ignored if the input
+	 * is not a file or if any filters are used.
+	 * If this method is not called, then no index file is read or written.
+	 * 
+	 * @param persistIndex {@code true} if an index file should be used;
+	 * {@code false} otherwise.
+	 * 
+	 * @return this
+	 * 
+	 * @since 6.0.3
+	 */
+	public NucleotideFastaFileDataStoreBuilder persistIndex(boolean persistIndex) {
+		this.persistIndex = persistIndex;
+		return this;
+	}
 	/**
 	 * 
 	 * {@inheritDoc}
@@ -0,0 +1,666 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.internal.core.datastore;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.jcvi.jillion.assembly.consed.phd.Phd;
+import org.jcvi.jillion.assembly.consed.phd.PhdDataStore;
+import org.jcvi.jillion.core.datastore.DataStore;
+import org.jcvi.jillion.core.datastore.DataStoreEntry;
+import org.jcvi.jillion.core.datastore.DataStoreException;
+import org.jcvi.jillion.core.datastore.DataStoreUtil.CacheableDataStore;
+import org.jcvi.jillion.core.Range;
+import org.jcvi.jillion.core.pos.PositionSequence;
+import org.jcvi.jillion.core.qual.QualitySequence;
+import org.jcvi.jillion.core.qual.QualitySequenceDataStore;
+import org.jcvi.jillion.core.residue.aa.ProteinSequence;
+import org.jcvi.jillion.core.residue.aa.ProteinSequenceDataStore;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequence;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequenceDataStore;
+import org.jcvi.jillion.core.util.ThrowingStream;
+import org.jcvi.jillion.core.util.iter.StreamingIterator;
+import org.jcvi.jillion.core.util.streams.ThrowingBiConsumer;
+import org.jcvi.jillion.fasta.aa.ProteinFastaDataStore;
+import org.jcvi.jillion.fasta.aa.ProteinFastaRecord;
+import org.jcvi.jillion.fasta.nt.NucleotideFastaDataStore;
+import org.jcvi.jillion.fasta.nt.NucleotideFastaRecord;
+import org.jcvi.jillion.fasta.pos.PositionFastaDataStore;
+import org.jcvi.jillion.fasta.pos.PositionFastaRecord;
+import org.jcvi.jillion.fasta.pos.PositionSequenceDataStore;
+import org.jcvi.jillion.fasta.qual.QualityFastaDataStore;
+import org.jcvi.jillion.fasta.qual.QualityFastaRecord;
+import org.jcvi.jillion.internal.core.util.ConcurrentLruCache;
+import org.jcvi.jillion.trace.fastq.FastqDataStore;
+import org.jcvi.jillion.trace.fastq.FastqRecord;
+import org.jcvi.jillion.trace.sff.SffFileDataStore;
+import org.jcvi.jillion.trace.sff.SffFlowgram;
+/**
+ * {@code DataStoreAdapters} contains concrete (non-reflective)
+ * implementations of the standard {@link DataStore} interfaces
+ * that forward all calls to a delegate DataStore,
+ * optionally caching the results of {@link DataStore#get(String)}
+ * in a soft referenced {@link ConcurrentLruCache}.
+ * Methods specific to the adapted interface are forwarded
+ * to the delegate as well if it implements that interface
+ * so any optimized implementations of the default methods are kept.
+ * <p>
+ * These are used by {@link org.jcvi.jillion.core.datastore.DataStoreUtil}
+ * instead of {@link java.lang.reflect.Proxy} instances
+ * whenever the requested interface is supported
+ * since Proxy method calls have to go through reflection
+ * and box their arguments.
+ * 
+ * @author dkatzel
+ *
+ * @since 6.0.3
+ */
+public final class DataStoreAdapters {
+
+	private static final Map<Class<?>, Factory<?>> FACTORIES = new HashMap<>();
+	
+	static{
+		register(DataStore.class, DataStoreAdapter::new, CachedDataStoreAdapter::new);
+		register(NucleotideSequenceDataStore.class, NucleotideSequenceDataStoreAdapter::new, CachedNucleotideSequenceDataStoreAdapter::new);
+		register(QualitySequenceDataStore.class, QualitySequenceDataStoreAdapter::new, CachedQualitySequenceDataStoreAdapter::new);
+		register(ProteinSequenceDataStore.class, ProteinSequenceDataStoreAdapter::new, CachedProteinSequenceDataStoreAdapter::new);
+		register(PositionSequenceDataStore.class, PositionSequenceDataStoreAdapter::new, CachedPositionSequenceDataStoreAdapter::new);
+		register(NucleotideFastaDataStore.class, NucleotideFastaDataStoreAdapter::new, CachedNucleotideFastaDataStoreAdapter::new);
+		register(QualityFastaDataStore.class, QualityFastaDataStoreAdapter::new, CachedQualityFastaDataStoreAdapter::new);
+		register(ProteinFastaDataStore.class, ProteinFastaDataStoreAdapter::new, CachedProteinFastaDataStoreAdapter::new);
+		register(PositionFastaDataStore.class, PositionFastaDataStoreAdapter::new, CachedPositionFastaDataStoreAdapter::new);
+		register(FastqDataStore.class, FastqDataStoreAdapter::new, CachedFastqDataStoreAdapter::new);
+		register(SffFileDataStore.class, SffFileDataStoreAdapter::new, CachedSffFileDataStoreAdapter::new);
+		register(PhdDataStore.class, PhdDataStoreAdapter::new, CachedPhdDataStoreAdapter::new);
+	}
+	
+	private DataStoreAdapters(){
+		//can not instantiate
+	}
+	
+	private static <T> void register(Class<?> datastoreInterface, 
+			Function<DataStore<T>, ForwardingDataStore<T>> uncached,
+			CachedConstructor<T> cached){
+		FACTORIES.put(datastoreInterface, new Factory<>(uncached, cached));
+	}
+	/**
+	 * Can the given interface be implemented by this class
+	 * without using a Proxy.
+	 * @param datastoreInterface the DataStore interface to check.
+	 * @return {@code true} if supported; {@code false} otherwise.
+	 */
+	public static boolean isSupported(Class<?> datastoreInterface){
+		return FACTORIES.containsKey(datastoreInterface);
+	}
+	/**
+	 * Create a new instance of the given DataStore interface
+	 * that forwards all calls to the given delegate.
+	 * 
+	 * @param datastoreInterface the DataStore interface to implement.
+	 * @param delegate the DataStore to forward all calls to.
+	 * @return a new instance of D or {@code null} if the given interface
+	 * is not supported.
+	 * 
+	 * @param <T> the type of records in the DataStore.
+	 * @param <D> the DataStore interface to implement.
+	 */
+	public static <T, D extends DataStore<T>> D adapt(Class<D> datastoreInterface, DataStore<T> delegate){
+		Factory<?> factory = FACTORIES.get(datastoreInterface);
+		if(factory ==null){
+			return null;
+		}
+		return datastoreInterface.cast(factory.adapt(delegate));
+	}
+	/**
+	 * Create a new instance of the given DataStore interface
+	 * that also implements {@link CacheableDataStore}
+	 * that forwards all calls to the given delegate
+	 * except {@link DataStore#get(String)} results are cached
+	 * in a {@link ConcurrentLruCache}.
+	 * 
+	 * @param datastoreInterface the DataStore interface to implement.
+	 * @param delegate the DataStore to forward all calls to.
+	 * @param cacheSize the max number of records to cache.
+	 * @return a new instance of D or {@code null} if the given interface
+	 * is not supported.
+	 * 
+	 * @param <D> the DataStore interface to implement.
+	 * @throws IllegalArgumentException if cacheSize &lt; 1.
+	 */
+	public static <D extends DataStore<?>> D cache(Class<D> datastoreInterface, D delegate, int cacheSize){
+		Factory<?> factory = FACTORIES.get(datastoreInterface);
+		if(factory ==null){
+			return null;
+		}
+		return datastoreInterface.cast(factory.cache(delegate, cacheSize));
+	}
+	/**
+	 * Create a new {@link CacheableDataStore} that forwards all
+	 * the {@link DataStore} methods to the given delegate 
+	 * except {@link DataStore#get(String)} results are cached.
+	 * @param delegate the DataStore to forward all calls to.
+	 * @param cacheSize the max number of records to cache.
+	 * @return a new {@link CacheableDataStore}.
+	 * @throws IllegalArgumentException if cacheSize &lt; 1.
+	 */
+	public static <T> CacheableDataStore<T> cache(DataStore<T> delegate, int cacheSize){
+		return new CachedDataStoreAdapter<>(delegate, ConcurrentLruCache.createSoftReferencedValueCache(cacheSize));
+	}
+	
+	private static <D> D delegateAs(Class<D> datastoreInterface, DataStore<?> delegate){
+		return datastoreInterface.isInstance(delegate) ? datastoreInterface.cast(delegate) : null;
+	}
+	
+	@FunctionalInterface
+	private interface CachedConstructor<T>{
+		ForwardingDataStore<T> create(DataStore<T> delegate, ConcurrentLruCache<String, T> cache);
+	}
+	
+	private static final class Factory<T>{
+		private final Function<DataStore<T>, ForwardingDataStore<T>> uncached;
+		private final CachedConstructor<T> cached;
+		
+		Factory(Function<DataStore<T>, ForwardingDataStore<T>> uncached, CachedConstructor<T> cached){
+			this.uncached = uncached;
+			this.cached = cached;
+		}
+		
+		ForwardingDataStore<T> adapt(DataStore<?> delegate){
+			return uncached.apply(asRecordType(delegate));
+		}
+		
+		ForwardingDataStore<T> cache(DataStore<?> delegate, int cacheSize){
+			return cached.create(asRecordType(delegate), ConcurrentLruCache.createSoftReferencedValueCache(cacheSize));
+		}
+		/**
+		 * Factories are only looked up by the DataStore interface
+		 * they were registered for, so the delegate
+		 * always has the same record type as the adapter.
+		 */
+		@SuppressWarnings("unchecked")
+		private DataStore<T> asRecordType(DataStore<?> delegate){
+			return (DataStore<T>) delegate;
+		}
+	}
+	/**
+	 * Forwards all {@link DataStore} methods to a delegate
+	 * and optionally caches the results of {@link #get(String)}.
+	 * 
+	 * @author dkatzel
+	 *
+	 * @param <T> the type of records in the DataStore.
+	 */
+	private abstract static class ForwardingDataStore<T> implements DataStore<T>{
+		protected final DataStore<T> delegate;
+		private final ConcurrentLruCache<String, T> cache;
+		
+		ForwardingDataStore(DataStore<T> delegate, ConcurrentLruCache<String, T> cache){
+			if(delegate ==null){
+				throw new NullPointerException("delegate DataStore can not be null");
+			}
+			this.delegate = delegate;
+			this.cache = cache;
+		}
+
+		@Override
+		public T get(String id) throws DataStoreException {
+			if(cache ==null){
+				return delegate.get(id);
+			}
+			T result = cache.get(id);
+			if(result !=null){
+				return result;
+			}
+			result = delegate.get(id);
+			//we don't put nulls in our cache because
+			//it might kickout something else
+			//and cause us to refetch anyway
+			if(result !=null){
+				cache.put(id, result);
+			}
+			return result;
+		}
+		
+		public void clearCache(){
+			if(cache !=null){
+				cache.clear();
+			}
+		}
+		
+		public long getCacheHitCount(){
+			return cache ==null ? 0 : cache.getHitCount();
+		}
+		
+		public long getCacheMissCount(){
+			return cache ==null ? 0 : cache.getMissCount();
+		}
+		
+		@Override
+		public void close() throws IOException {
+			clearCache();
+			delegate.close();
+		}
+		
+		@Override
+		public StreamingIterator<String> idIterator() throws DataStoreException {
+			return delegate.idIterator();
+		}
+
+		@Override
+		public ThrowingStream<String> ids() throws DataStoreException {
+			return delegate.ids();
+		}
+
+		@Override
+		public boolean contains(String id) throws DataStoreException {
+			return delegate.contains(id);
+		}
+
+		@Override
+		public long getNumberOfRecords() throws DataStoreException {
+			return delegate.getNumberOfRecords();
+		}
+
+		@Override
+		public boolean isEmpty() throws DataStoreException {
+			return delegate.isEmpty();
+		}
+
+		@Override
+		public boolean isClosed() {
+			return delegate.isClosed();
+		}
+
+		@Override
+		public StreamingIterator<T> iterator() throws DataStoreException {
+			return delegate.iterator();
+		}
+
+		@Override
+		public StreamingIterator<DataStoreEntry<T>> entryIterator() throws DataStoreException {
+			return delegate.entryIterator();
+		}
+
+		@Override
+		public ThrowingStream<T> records() throws DataStoreException {
+			return delegate.records();
+		}
+
+		@Override
+		public ThrowingStream<DataStoreEntry<T>> entries() throws DataStoreException {
+			return delegate.entries();
+		}
+
+		@Override
+		public <E, D extends DataStore<E>> D adapt(Class<D> datastoreInterface, Function<T, E> adapter) {
+			return delegate.adapt(datastoreInterface, adapter);
+		}
+
+		@Override
+		public <E extends Throwable> void forEach(ThrowingBiConsumer<String, T, E> consumer) throws IOException, E {
+			delegate.forEach(consumer);
+		}
+
+		@Override
+		public int hashCode() {
+			return delegate.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return this == obj || delegate.equals(obj);
+		}
+
+		@Override
+		public String toString() {
+			return delegate.toString();
+		}
+		
+	}
+	
+	private static class DataStoreAdapter<T> extends ForwardingDataStore<T>{
+		DataStoreAdapter(DataStore<T> delegate) {
+			this(delegate, null);
+		}
+		DataStoreAdapter(DataStore<T> delegate, ConcurrentLruCache<String, T> cache) {
+			super(delegate, cache);
+		}
+	}
+	private static final class CachedDataStoreAdapter<T> extends DataStoreAdapter<T> implements CacheableDataStore<T>{
+		CachedDataStoreAdapter(DataStore<T> delegate, ConcurrentLruCache<String, T> cache) {
+			super(delegate, cache);
+		}
+	}
+	
+	private static class NucleotideSequenceDataStoreAdapter extends ForwardingDataStore<NucleotideSequence> implements NucleotideSequenceDataStore{
+		NucleotideSequenceDataStoreAdapter(DataStore<NucleotideSequence> delegate) {
+			this(delegate, null);
+		}
+		NucleotideSequenceDataStoreAdapter(DataStore<NucleotideSequence> delegate, ConcurrentLruCache<String, NucleotideSequence> cache) {
+			super(delegate, cache);
+		}
+	}
+	private static final class CachedNucleotideSequenceDataStoreAdapter extends NucleotideSequenceDataStoreAdapter implements CacheableDataStore<NucleotideSequence>{
+		CachedNucleotideSequenceDataStoreAdapter(DataStore<NucleotideSequence> delegate, ConcurrentLruCache<String, NucleotideSequence> cache) {
+			super(delegate, cache);
+		}
+	}
+	
+	private static class QualitySequenceDataStoreAdapter extends ForwardingDataStore<QualitySequence> implements QualitySequenceDataStore{
+		QualitySequenceDataStoreAdapter(DataStore<QualitySequence> delegate) {
+			this(delegate, null);
+		}
+		QualitySequenceDataStoreAdapter(DataStore<QualitySequence> delegate, ConcurrentLruCache<String, QualitySequence> cache) {
+			super(delegate, cache);
+		}
+	}
+	private static final class CachedQualitySequenceDataStoreAdapter extends QualitySequenceDataStoreAdapter implements CacheableDataStore<QualitySequence>{
+		CachedQualitySequenceDataStoreAdapter(DataStore<QualitySequence> delegate, ConcurrentLruCache<String, QualitySequence> cache) {
+			super(delegate, cache);
+		}
+	}
+	
+	private static class ProteinSequenceDataStoreAdapter extends ForwardingDataStore<ProteinSequence> implements ProteinSequenceDataStore{
+		ProteinSequenceDataStoreAdapter(DataStore<ProteinSequence> delegate) {
+			this(delegate, null);
+		}
+		ProteinSequenceDataStoreAdapter(DataStore<ProteinSequence> delegate, ConcurrentLruCache<String, ProteinSequence> cache) {
+			super(delegate, cache);
+		}
+	}
+	private static final class CachedProteinSequenceDataStoreAdapter extends ProteinSequenceDataStoreAdapter implements CacheableDataStore<ProteinSequence>{
+		CachedProteinSequenceDataStoreAdapter(DataStore<ProteinSequence> delegate, ConcurrentLruCache<String, ProteinSequence> cache) {
+			super(delegate, cache);
+		}
+	}
+	
+	private static class PositionSequenceDataStoreAdapter extends ForwardingDataStore<PositionSequence> implements PositionSequenceDataStore{
+		PositionSequenceDataStoreAdapter(DataStore<PositionSequence> delegate) {
+			this(delegate, null);
+		}
+		PositionSequenceDataStoreAdapter(DataStore<PositionSequence> delegate, ConcurrentLruCache<String, PositionSequence> cache) {
+			super(delegate, cache);
+		}
+	}
+	private static final class CachedPositionSequenceDataStoreAdapter extends PositionSequenceDataStoreAdapter implements CacheableDataStore<PositionSequence>{
+		CachedPositionSequenceDataStoreAdapter(DataStore<PositionSequence> delegate, ConcurrentLruCache<String, PositionSequence> cache) {
+			super(delegate, cache);
+		}
+	}
+	
+	private static class NucleotideFastaDataStoreAdapter extends ForwardingDataStore<NucleotideFastaRecord> implements NucleotideFastaDataStore{
+		/**
+		 * The delegate if it also implements NucleotideFastaDataStore
+		 * so its (possibly faster) implementations are used;
+		 * otherwise {@code null} and the interface defaults are used.
+		 */
+		private final NucleotideFastaDataStore fastaDelegate;
+		
+		NucleotideFastaDataStoreAdapter(DataStore<NucleotideFastaRecord> delegate) {
+			this(delegate, null);
+		}
+		NucleotideFastaDataStoreAdapter(DataStore<NucleotideFastaRecord> delegate, ConcurrentLruCache<String, NucleotideFastaRecord> cache) {
+			super(delegate, cache);
+			fastaDelegate = delegateAs(NucleotideFastaDataStore.class, delegate);
+		}
+		@Override
+		public NucleotideSequence getSequence(String id) throws DataStoreException {
+			return fastaDelegate ==null ? NucleotideFastaDataStore.super.getSequence(id) : fastaDelegate.getSequence(id);
+		}
+		@Override
+		public NucleotideSequence getSubSequence(String id, long startOffset) throws DataStoreException {
+			return fastaDelegate ==null ? NucleotideFastaDataStore.super.getSubSequence(id, startOffset) : fastaDelegate.getSubSequence(id, startOffset);
+		}
+		@Override
+		public NucleotideSequence getSubSequence(String id, Range includeRange) throws DataStoreException {
+			return fastaDelegate ==null ? NucleotideFastaDataStore.super.getSubSequence(id, includeRange) : fastaDelegate.getSubSequence(id, includeRange);
+		}
+		@Override
+		public NucleotideSequenceDataStore asSequenceDataStore() {
+			return fastaDelegate ==null ? NucleotideFastaDataStore.super.asSequenceDataStore() : fastaDelegate.asSequenceDataStore();
+		}
+	}
+	private static final class CachedNucleotideFastaDataStoreAdapter extends NucleotideFastaDataStoreAdapter implements CacheableDataStore<NucleotideFastaRecord>{
+		CachedNucleotideFastaDataStoreAdapter(DataStore<NucleotideFastaRecord> delegate, ConcurrentLruCache<String, NucleotideFastaRecord> cache) {
+			super(delegate, cache);
+		}
+	}
+	
+	private static class QualityFastaDataStoreAdapter extends ForwardingDataStore<QualityFastaRecord> implements QualityFastaDataStore{
+		/**
+		 * The delegate if it also implements QualityFastaDataStore
+		 * so its (possibly faster) implementations are used;
+		 * otherwise {@code null} and the interface defaults are used.
+		 */
+		private final QualityFastaDataStore fastaDelegate;
+		
+		QualityFastaDataStoreAdapter(DataStore<QualityFastaRecord> delegate) {
+			this(delegate, null);
+		}
+		QualityFastaDataStoreAdapter(DataStore<QualityFastaRecord> delegate, ConcurrentLruCache<String, QualityFastaRecord> cache) {
+			super(delegate, cache);
+			fastaDelegate = delegateAs(QualityFastaDataStore.class, delegate);
+		}
+		@Override
+		public QualitySequence getSequence(String id) throws DataStoreException {
+			return fastaDelegate ==null ? QualityFastaDataStore.super.getSequence(id) : fastaDelegate.getSequence(id);
+		}
+		@Override
+		public QualitySequence getSubSequence(String id, long startOffset) throws DataStoreException {
+			return fastaDelegate ==null ? QualityFastaDataStore.super.getSubSequence(id, startOffset) : fastaDelegate.getSubSequence(id, startOffset);
+		}
+		@Override
+		public QualitySequence getSubSequence(String id, Range includeRange) throws DataStoreException {
+			return fastaDelegate ==null ? QualityFastaDataStore.super.getSubSequence(id, includeRange) : fastaDelegate.getSubSequence(id, includeRange);
+		}
+		@Override
+		public QualitySequenceDataStore asSequenceDataStore() {
+			return fastaDelegate ==null ? QualityFastaDataStore.super.asSequenceDataStore() : fastaDelegate.asSequenceDataStore();
+		}
+	}
+	private static final class CachedQualityFastaDataStoreAdapter extends QualityFastaDataStoreAdapter implements CacheableDataStore<QualityFastaRecord>{
+		CachedQualityFastaDataStoreAdapter(DataStore<QualityFastaRecord> delegate, ConcurrentLruCache<String, QualityFastaRecord> cache) {
+			super(delegate, cache);
+		}
+	}
+	
+	private static class ProteinFastaDataStoreAdapter extends ForwardingDataStore<ProteinFastaRecord> implements ProteinFastaDataStore{
+		/**
+		 * The delegate if it also implements ProteinFastaDataStore
+		 * so its (possibly faster) implementations are used;
+		 * otherwise {@code null} and the interface defaults are used.
+		 */
+		private final ProteinFastaDataStore fastaDelegate;
+		
+		ProteinFastaDataStoreAdapter(DataStore<ProteinFastaRecord> delegate) {
+			this(delegate, null);
+		}
+		ProteinFastaDataStoreAdapter(DataStore<ProteinFastaRecord> delegate, ConcurrentLruCache<String, ProteinFastaRecord> cache) {
+			super(delegate, cache);
+			fastaDelegate = delegateAs(ProteinFastaDataStore.class, delegate);
+		}
+		@Override
+		public ProteinSequence getSequence(String id) throws DataStoreException {
+			return fastaDelegate ==null ? ProteinFastaDataStore.super.getSequence(id) : fastaDelegate.getSequence(id);
+		}
+		@Override
+		public ProteinSequence getSubSequence(String id, long startOffset) throws DataStoreException {
+			return fastaDelegate ==null ? ProteinFastaDataStore.super.getSubSequence(id, startOffset) : fastaDelegate.getSubSequence(id, startOffset);
+		}
+		@Override
+		public ProteinSequence getSubSequence(String id, Range includeRange) throws DataStoreException {
+			return fastaDelegate ==null ? ProteinFastaDataStore.super.getSubSequence(id, includeRange) : fastaDelegate.getSubSequence(id, includeRange);
+		}
+		@Override
+		public ProteinSequenceDataStore asSequenceDataStore() {
+			return fastaDelegate ==null ? ProteinFastaDataStore.super.asSequenceDataStore() : fastaDelegate.asSequenceDataStore();
+		}
+	}
+	private static final class CachedProteinFastaDataStoreAdapter extends ProteinFastaDataStoreAdapter implements CacheableDataStore<ProteinFastaRecord>{
+		CachedProteinFastaDataStoreAdapter(DataStore<ProteinFastaRecord> delegate, ConcurrentLruCache<String, ProteinFastaRecord> cache) {
+			super(delegate, cache);
+		}
+	}
+	
+	private static class PositionFastaDataStoreAdapter extends ForwardingDataStore<PositionFastaRecord> implements PositionFastaDataStore{
+		/**
+		 * The delegate if it also implements PositionFastaDataStore
+		 * so its (possibly faster) implementations are used;
+		 * otherwise {@code null} and the interface defaults are used.
+		 */
+		private final PositionFastaDataStore fastaDelegate;
+		
+		PositionFastaDataStoreAdapter(DataStore<PositionFastaRecord> delegate) {
+			this(delegate, null);
+		}
+		PositionFastaDataStoreAdapter(DataStore<PositionFastaRecord> delegate, ConcurrentLruCache<String, PositionFastaRecord> cache) {
+			super(delegate, cache);
+			fastaDelegate = delegateAs(PositionFastaDataStore.class, delegate);
+		}
+		@Override
+		public PositionSequence getSequence(String id) throws DataStoreException {
+			return fastaDelegate ==null ? PositionFastaDataStore.super.getSequence(id) : fastaDelegate.getSequence(id);
+		}
+		@Override
+		public PositionSequence getSubSequence(String id, long startOffset) throws DataStoreException {
+			return fastaDelegate ==null ? PositionFastaDataStore.super.getSubSequence(id, startOffset) : fastaDelegate.getSubSequence(id, startOffset);
+		}
+		@Override
+		public PositionSequence getSubSequence(String id, Range includeRange) throws DataStoreException {
+			return fastaDelegate ==null ? PositionFastaDataStore.super.getSubSequence(id, includeRange) : fastaDelegate.getSubSequence(id, includeRange);
+		}
+		@Override
+		public PositionSequenceDataStore asSequenceDataStore() {
+			return fastaDelegate ==null ? PositionFastaDataStore.super.asSequenceDataStore() : fastaDelegate.asSequenceDataStore();
+		}
+	}
+	private static final class CachedPositionFastaDataStoreAdapter extends PositionFastaDataStoreAdapter implements CacheableDataStore<PositionFastaRecord>{
+		CachedPositionFastaDataStoreAdapter(DataStore<PositionFastaRecord> delegate, ConcurrentLruCache<String, PositionFastaRecord> cache) {
+			super(delegate, cache);
+		}
+	}
+	
+	private static class FastqDataStoreAdapter extends ForwardingDataStore<FastqRecord> implements FastqDataStore{
+		/**
+		 * The delegate if it also implements FastqDataStore;
+		 * otherwise {@code null} and the interface defaults are used.
+		 */
+		private final FastqDataStore traceDelegate;
+		
+		FastqDataStoreAdapter(DataStore<FastqRecord> delegate) {
+			this(delegate, null);
+		}
+		FastqDataStoreAdapter(DataStore<FastqRecord> delegate, ConcurrentLruCache<String, FastqRecord> cache) {
+			super(delegate, cache);
+			traceDelegate = delegateAs(FastqDataStore.class, delegate);
+		}
+		@Override
+		public NucleotideSequenceDataStore asSequenceDataStore() {
+			return traceDelegate ==null ? FastqDataStore.super.asSequenceDataStore() : traceDelegate.asSequenceDataStore();
+		}
+		@Override
+		public QualitySequenceDataStore asQualityDataStore() {
+			return traceDelegate ==null ? FastqDataStore.super.asQualityDataStore() : traceDelegate.asQualityDataStore();
+		}
+	}
+	private static final class CachedFastqDataStoreAdapter extends FastqDataStoreAdapter implements CacheableDataStore<FastqRecord>{
+		CachedFastqDataStoreAdapter(DataStore<FastqRecord> delegate, ConcurrentLruCache<String, FastqRecord> cache) {
+			super(delegate, cache);
+		}
+	}
+	
+	private static class PhdDataStoreAdapter extends ForwardingDataStore<Phd> implements PhdDataStore{
+		/**
+		 * The delegate if it also implements PhdDataStore;
+		 * otherwise {@code null} and the interface defaults are used.
+		 */
+		private final PhdDataStore traceDelegate;
+		
+		PhdDataStoreAdapter(DataStore<Phd> delegate) {
+			this(delegate, null);
+		}
+		PhdDataStoreAdapter(DataStore<Phd> delegate, ConcurrentLruCache<String, Phd> cache) {
+			super(delegate, cache);
+			traceDelegate = delegateAs(PhdDataStore.class, delegate);
+		}
+		@Override
+		public NucleotideSequenceDataStore asSequenceDataStore() {
+			return traceDelegate ==null ? PhdDataStore.super.asSequenceDataStore() : traceDelegate.asSequenceDataStore();
+		}
+		@Override
+		public QualitySequenceDataStore asQualityDataStore() {
+			return traceDelegate ==null ? PhdDataStore.super.asQualityDataStore() : traceDelegate.asQualityDataStore();
+		}
+	}
+	private static final class CachedPhdDataStoreAdapter extends PhdDataStoreAdapter implements CacheableDataStore<Phd>{
+		CachedPhdDataStoreAdapter(DataStore<Phd> delegate, ConcurrentLruCache<String, Phd> cache) {
+			super(delegate, cache);
+		}
+	}
+	
+	private static class SffFileDataStoreAdapter extends ForwardingDataStore<SffFlowgram> implements SffFileDataStore{
+		/**
+		 * The delegate if it also implements SffFileDataStore;
+		 * otherwise {@code null}.
+		 */
+		private final SffFileDataStore traceDelegate;
+		
+		SffFileDataStoreAdapter(DataStore<SffFlowgram> delegate) {
+			this(delegate, null);
+		}
+		SffFileDataStoreAdapter(DataStore<SffFlowgram> delegate, ConcurrentLruCache<String, SffFlowgram> cache) {
+			super(delegate, cache);
+			traceDelegate = delegateAs(SffFileDataStore.class, delegate);
+		}
+		
+		private SffFileDataStore getSffDelegate(){
+			if(traceDelegate !=null){
+				return traceDelegate;
+			}
+			//same exception a Proxy would throw
+			throw new IllegalArgumentException("delegate DataStore is not a SffFileDataStore");
+		}
+		@Override
+		public NucleotideSequence getKeySequence() {
+			return getSffDelegate().getKeySequence();
+		}
+		@Override
+		public NucleotideSequence getFlowSequence() {
+			return getSffDelegate().getFlowSequence();
+		}
+		@Override
+		public NucleotideSequenceDataStore asSequenceDataStore() {
+			return traceDelegate ==null ? SffFileDataStore.super.asSequenceDataStore() : traceDelegate.asSequenceDataStore();
+		}
+		@Override
+		public QualitySequenceDataStore asQualityDataStore() {
+			return traceDelegate ==null ? SffFileDataStore.super.asQualityDataStore() : traceDelegate.asQualityDataStore();
+		}
+	}
+	private static final class CachedSffFileDataStoreAdapter extends SffFileDataStoreAdapter implements CacheableDataStore<SffFlowgram>{
+		CachedSffFileDataStoreAdapter(DataStore<SffFlowgram> delegate, ConcurrentLruCache<String, SffFlowgram> cache) {
+			super(delegate, cache);
+		}
+	}
+}
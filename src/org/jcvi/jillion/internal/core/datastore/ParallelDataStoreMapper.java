@@ -0,0 +1,135 @@
+/*******************************************************************************
+ * Jillion development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ *
+ *          http://www.gnu.org/copyleft/lesser.html
+ *
+ *
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ *
+ * Information about Jillion can be found on its homepage
+ *
+ *         http://jillion.sourceforge.net
+ *
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.internal.core.datastore;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.jcvi.jillion.core.datastore.DataStore;
+import org.jcvi.jillion.core.datastore.DataStoreException;
+import org.jcvi.jillion.core.util.iter.StreamingIterator;
+import org.jcvi.jillion.internal.core.util.WorkerPool;
+/**
+ * {@code ParallelDataStoreMapper} maps every record
+ * of a {@link DataStore} using worker threads from a {@link WorkerPool}
+ * while the records are read and the results are handed to the consumer
+ * in the calling thread, in the same order as the DataStore's iterator.
+ * <p>
+ * The records are mapped in batches and only a few batches per thread
+ * are in flight at a time so the whole DataStore is never read into memory.
+ * </p>
+ * @author dkatzel
+ *
+ * @since 6.0.3
+ */
+public final class ParallelDataStoreMapper {
+	/**
+	 * Number of records mapped by a worker at a time.
+	 */
+	private static final int BATCH_SIZE = 256;
+	
+	private ParallelDataStoreMapper(){
+		//can not instantiate
+	}
+	/**
+	 * Map every record in the given DataStore and
+	 * hand the results to the given consumer in iteration order.
+	 * 
+	 * @param datastore the DataStore to iterate over; can not be null.
+	 * @param numberOfThreads the max number of batches to map at the same time; must be &ge; 1.
+	 * @param mapper the function to run on the worker threads for each record; can not be null.
+	 * @param consumer the consumer of each result, called in the calling thread; can not be null.
+	 * 
+	 * @param <T> the type of records in the DataStore.
+	 * @param <R> the type of the mapped results.
+	 * 
+	 * @throws DataStoreException if there is a problem iterating over the records
+	 * or the calling thread is interrupted.
+	 * @throws IllegalArgumentException if numberOfThreads &lt; 1.
+	 * @throws NullPointerException if any parameter is null.
+	 */
+	public static <T, R> void map(DataStore<T> datastore, int numberOfThreads, 
+			Function<? super T, ? extends R> mapper, Consumer<? super R> consumer) throws DataStoreException{
+		WorkerPool workerPool = new WorkerPool(numberOfThreads);
+		//bound the number of batches in flight so we don't read the whole datastore into memory
+		int maxPendingBatches = numberOfThreads *2;
+		Deque<Future<List<R>>> pending = new ArrayDeque<>(maxPendingBatches +1);
+		try(StreamingIterator<T> iter = datastore.iterator()){
+			List<T> batch = new ArrayList<>(BATCH_SIZE);
+			while(iter.hasNext()){
+				batch.add(iter.next());
+				if(batch.size() == BATCH_SIZE){
+					pending.add(submit(workerPool, batch, mapper));
+					batch = new ArrayList<>(BATCH_SIZE);
+					while(pending.size() >= maxPendingBatches){
+						handOff(pending.removeFirst(), consumer);
+					}
+				}
+			}
+			if(!batch.isEmpty()){
+				pending.add(submit(workerPool, batch, mapper));
+			}
+			while(!pending.isEmpty()){
+				handOff(pending.removeFirst(), consumer);
+			}
+		}finally{
+			workerPool.cancelAll();
+		}
+	}
+	
+	private static <T, R> Future<List<R>> submit(WorkerPool workerPool, List<T> batch, Function<? super T, ? extends R> mapper){
+		return workerPool.submit(()->{
+			List<R> list = new ArrayList<>(batch.size());
+			for(T record : batch){
+				list.add(mapper.apply(record));
+			}
+			return list;
+		});
+	}
+	
+	private static <R> void handOff(Future<List<R>> future, Consumer<? super R> consumer) throws DataStoreException{
+		List<R> list;
+		try {
+			list = future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new DataStoreException("interrupted while mapping records", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if(cause instanceof RuntimeException){
+				throw (RuntimeException) cause;
+			}
+			if(cause instanceof Error){
+				throw (Error) cause;
+			}
+			throw new DataStoreException("error mapping records", cause);
+		}
+		for(R result : list){
+			consumer.accept(result);
+		}
+	}
+}
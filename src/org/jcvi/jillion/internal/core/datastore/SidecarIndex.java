@@ -0,0 +1,493 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.internal.core.datastore;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.LongFunction;
+import java.util.function.ToLongFunction;
+import java.util.zip.CRC32;
+
+import org.jcvi.jillion.internal.core.io.MemoryMappedFile;
+/**
+ * {@code SidecarIndex} reads and writes the persistent
+ * index files used by the Indexed DataStore implementations
+ * so that a large file only has to be fully parsed the first time
+ * it is indexed.
+ * <p>
+ * The index is written next to the data file with the extension {@value #FILE_EXTENSION}
+ * and records the length, last modified time and a checksum of the first and last
+ * {@value #CHECKSUM_SAMPLE_SIZE} bytes of the data file; if any of those change
+ * then the index is considered stale and is ignored.
+ * <p>
+ * Each entry is an id and a single non-negative long value (usually a file offset
+ * that can be turned back into a parser memento).  The ids are stored
+ * as UTF-8 bytes along with a permutation of the entries sorted by id bytes
+ * so lookups are a binary search over the memory mapped file
+ * and no per-entry objects are kept on the heap.
+ * <p>
+ * File layout (all values big endian):
+ * <pre>
+ * long   magic number
+ * int    version
+ * int    length of format name
+ * byte[] format name (UTF-8) padded to a multiple of 8 bytes
+ * long   data file length
+ * long   data file last modified time
+ * long   data file checksum
+ * long   number of entries (n)
+ * long   total length of all the id bytes
+ * long[n] values in the original order
+ * long[n] end offset of each id in the id bytes
+ * int[n]  indexes of the entries sorted by id bytes (padded to a multiple of 8 bytes)
+ * byte[]  id bytes (UTF-8)
+ * long   magic number
+ * </pre>
+ * 
+ * @author dkatzel
+ *
+ * @since 6.0.3
+ */
+public final class SidecarIndex {
+	/**
+	 * The file extension appended to the data file name.
+	 */
+	public static final String FILE_EXTENSION = ".jidx";
+	/**
+	 * Number of bytes from the beginning and end of the data file
+	 * used to compute the checksum.
+	 */
+	public static final int CHECKSUM_SAMPLE_SIZE = 64 * 1024;
+	
+	private static final long MAGIC_NUMBER = 0x4A494C4C49445800L; // "JILLIDX\0"
+	private static final int VERSION = 1;
+	
+	private SidecarIndex(){
+		//can not instantiate
+	}
+	/**
+	 * Get the index file to use for the given data file.
+	 * @param dataFile the data file; can not be null.
+	 * @return a new File; will not be null but might not exist.
+	 */
+	public static File getIndexFileFor(File dataFile){
+		return new File(dataFile.getParentFile(), dataFile.getName() + FILE_EXTENSION);
+	}
+	/**
+	 * Read the index for the given data file if it exists and is still valid.
+	 * 
+	 * @param dataFile the data file that was indexed; can not be null.
+	 * @param formatName the name of the index format which must match
+	 * the name used to write the index.
+	 * @param decoder function to convert the stored long values back into values.
+	 * @return a read-only Map view of the memory mapped index in the original insertion order;
+	 * or {@code null} if there is no index, or the index is stale or corrupt.
+	 * @throws IOException if there is a problem reading the data file.
+	 */
+	public static <V> Map<String, V> read(File dataFile, String formatName, LongFunction<V> decoder) throws IOException{
+		File indexFile = getIndexFileFor(dataFile);
+		if(!indexFile.isFile() || !dataFile.isFile()){
+			return null;
+		}
+		MemoryMappedFile mapped = MemoryMappedFile.map(indexFile);
+		try{
+			IndexView view = IndexView.parse(mapped, formatName, dataFile);
+			return view ==null ? null : new IndexMap<>(view, decoder);
+		}catch(IndexOutOfBoundsException | IllegalArgumentException | BufferUnderflowException e){
+			//truncated or corrupt in a way the header checks didn't catch
+			return null;
+		}
+	}
+	/**
+	 * Write an index for the given data file to {@link #getIndexFileFor(File)}
+	 * replacing any index already there.
+	 * 
+	 * @param dataFile the data file that was indexed; can not be null.
+	 * @param formatName the name of the index format.
+	 * @param index the entries to write; the iteration order is preserved.
+	 * @param encoder function to convert each value into a non-negative long;
+	 * a negative return value means the value can not be stored
+	 * and no index will be written.
+	 * @return {@code true} if the index was written; {@code false} if
+	 * any value could not be encoded.
+	 * @throws IOException if there is a problem writing the index.
+	 */
+	public static <V> boolean write(File dataFile, String formatName, Map<String, V> index, ToLongFunction<? super V> encoder) throws IOException{
+		int n = index.size();
+		long[] values = new long[n];
+		byte[][] ids = new byte[n][];
+		int i=0;
+		long idLength=0;
+		for(Map.Entry<String, V> entry : index.entrySet()){
+			long value = encoder.applyAsLong(entry.getValue());
+			if(value <0){
+				return false;
+			}
+			values[i] = value;
+			ids[i] = entry.getKey().getBytes(StandardCharsets.UTF_8);
+			idLength += ids[i].length;
+			i++;
+		}
+		int[] sorted = sortByIds(ids);
+		
+		File indexFile = getIndexFileFor(dataFile);
+		File tmp = File.createTempFile(indexFile.getName(), ".tmp", indexFile.getAbsoluteFile().getParentFile());
+		try{
+			try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp.toPath()), 1 << 16))){
+				out.writeLong(MAGIC_NUMBER);
+				out.writeInt(VERSION);
+				byte[] name = formatName.getBytes(StandardCharsets.UTF_8);
+				out.writeInt(name.length);
+				out.write(name);
+				pad(out, name.length);
+				out.writeLong(dataFile.length());
+				out.writeLong(dataFile.lastModified());
+				out.writeLong(checksum(dataFile));
+				out.writeLong(n);
+				out.writeLong(idLength);
+				for(long value : values){
+					out.writeLong(value);
+				}
+				long end=0;
+				for(byte[] id : ids){
+					end += id.length;
+					out.writeLong(end);
+				}
+				for(int s : sorted){
+					out.writeInt(s);
+				}
+				pad(out, n * 4L);
+				for(byte[] id : ids){
+					out.write(id);
+				}
+				out.writeLong(MAGIC_NUMBER);
+			}
+			Files.move(tmp.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}finally{
+			Files.deleteIfExists(tmp.toPath());
+		}
+		return true;
+	}
+	
+	private static void pad(DataOutputStream out, long length) throws IOException{
+		int remainder = (int) (length % 8);
+		if(remainder !=0){
+			out.write(new byte[8 - remainder]);
+		}
+	}
+	
+	private static long padded(long length){
+		return (length + 7) & ~7L;
+	}
+	/**
+	 * Compute the checksum of the first and last {@value #CHECKSUM_SAMPLE_SIZE}
+	 * bytes of the given file.
+	 */
+	static long checksum(File dataFile) throws IOException{
+		CRC32 crc = new CRC32();
+		try(RandomAccessFile in = new RandomAccessFile(dataFile, "r")){
+			long length = in.length();
+			byte[] buf = new byte[(int) Math.min(CHECKSUM_SAMPLE_SIZE, length)];
+			in.readFully(buf);
+			crc.update(buf);
+			in.seek(length - buf.length);
+			in.readFully(buf);
+			crc.update(buf);
+		}
+		return crc.getValue();
+	}
+	/**
+	 * Stable merge sort of the indexes by unsigned lexicographic id bytes.
+	 */
+	private static int[] sortByIds(byte[][] ids){
+		int n = ids.length;
+		int[] a = new int[n];
+		for(int i=0; i< n; i++){
+			a[i]=i;
+		}
+		int[] b = new int[n];
+		for(int width=1; width < n; width*=2){
+			for(int lo=0; lo < n; lo += 2*width){
+				int mid = Math.min(lo + width, n);
+				int hi = Math.min(lo + 2*width, n);
+				int i=lo, j=mid, k=lo;
+				while(i < mid && j < hi){
+					b[k++] = compare(ids[a[j]], ids[a[i]]) < 0 ? a[j++] : a[i++];
+				}
+				while(i < mid){
+					b[k++] = a[i++];
+				}
+				while(j < hi){
+					b[k++] = a[j++];
+				}
+			}
+			int[] tmp = a;
+			a = b;
+			b = tmp;
+		}
+		return a;
+	}
+	
+	private static int compare(byte[] a, byte[] b){
+		int length = Math.min(a.length, b.length);
+		for(int i=0; i< length; i++){
+			int cmp = Integer.compare(a[i] & 0xFF, b[i] & 0xFF);
+			if(cmp !=0){
+				return cmp;
+			}
+		}
+		return Integer.compare(a.length, b.length);
+	}
+	/**
+	 * The parsed section offsets of a memory mapped index.
+	 */
+	private static final class IndexView{
+		private final MemoryMappedFile mapped;
+		private final int size;
+		private final long valuesOffset;
+		private final long idEndsOffset;
+		private final long sortedOffset;
+		private final long idBytesOffset;
+		
+		static IndexView parse(MemoryMappedFile mapped, String formatName, File dataFile) throws IOException{
+			if(mapped.length() < 16 || mapped.getLong(0) != MAGIC_NUMBER || mapped.getInt(8) != VERSION){
+				return null;
+			}
+			int nameLength = mapped.getInt(12);
+			//the name plus the fixed length header fields and the trailer must fit in the file
+			if(nameLength < 0 || 16 + padded(nameLength) + 48 > mapped.length()){
+				return null;
+			}
+			byte[] name = new byte[nameLength];
+			mapped.slice(16, nameLength).get(name);
+			if(!formatName.equals(new String(name, StandardCharsets.UTF_8))){
+				return null;
+			}
+			long offset = 16 + padded(nameLength);
+			if(mapped.getLong(offset) != dataFile.length() 
+					|| mapped.getLong(offset +8) != dataFile.lastModified()
+					|| mapped.getLong(offset +16) != checksum(dataFile)){
+				return null;
+			}
+			long n = mapped.getLong(offset+24);
+			long idLength = mapped.getLong(offset+32);
+			if(n < 0 || n > Integer.MAX_VALUE || idLength < 0){
+				return null;
+			}
+			long valuesOffset = offset + 40;
+			long idEndsOffset = valuesOffset + 8*n;
+			long sortedOffset = idEndsOffset + 8*n;
+			long idBytesOffset = sortedOffset + padded(4*n);
+			long trailerOffset = idBytesOffset + idLength;
+			if(trailerOffset + 8 != mapped.length() || mapped.getLong(trailerOffset) != MAGIC_NUMBER){
+				return null;
+			}
+			//the last id must end where the id bytes end
+			if(n > 0 && mapped.getLong(idEndsOffset + 8*(n-1)) != idLength){
+				return null;
+			}
+			return new IndexView(mapped, (int) n, valuesOffset, idEndsOffset, sortedOffset, idBytesOffset);
+		}
+		
+		private IndexView(MemoryMappedFile mapped, int size, long valuesOffset,
+				long idEndsOffset, long sortedOffset, long idBytesOffset) {
+			this.mapped = mapped;
+			this.size = size;
+			this.valuesOffset = valuesOffset;
+			this.idEndsOffset = idEndsOffset;
+			this.sortedOffset = sortedOffset;
+			this.idBytesOffset = idBytesOffset;
+		}
+		
+		long getValue(int i){
+			return mapped.getLong(valuesOffset + 8L*i);
+		}
+		
+		private long idStart(int i){
+			return i==0 ? 0 : mapped.getLong(idEndsOffset + 8L*(i-1));
+		}
+		
+		String getId(int i){
+			long start = idStart(i);
+			int length = (int) (mapped.getLong(idEndsOffset + 8L*i) - start);
+			byte[] bytes = new byte[length];
+			mapped.slice(idBytesOffset + start, length).get(bytes);
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+		/**
+		 * Binary search the sorted ids.
+		 * @return the index in the original order or -1 if not found.
+		 */
+		int indexOf(byte[] id){
+			int low = 0;
+			int high = size -1;
+			while(low <= high){
+				int mid = (low + high) >>> 1;
+				int i = mapped.getInt(sortedOffset + 4L*mid);
+				int cmp = compareTo(i, id);
+				if(cmp < 0){
+					low = mid +1;
+				}else if(cmp > 0){
+					high = mid -1;
+				}else{
+					return i;
+				}
+			}
+			return -1;
+		}
+		
+		private int compareTo(int i, byte[] id){
+			long start = idStart(i);
+			long length = mapped.getLong(idEndsOffset + 8L*i) - start;
+			long offset = idBytesOffset + start;
+			int minLength = (int) Math.min(length, id.length);
+			for(int j=0; j< minLength; j++){
+				int cmp = Integer.compare(mapped.getByte(offset + j) & 0xFF, id[j] & 0xFF);
+				if(cmp !=0){
+					return cmp;
+				}
+			}
+			return Long.compare(length, id.length);
+		}
+	}
+	/**
+	 * Read-only Map view of an {@link IndexView}.
+	 * Clearing the map releases the index.
+	 */
+	private static final class IndexMap<V> extends AbstractMap<String, V>{
+		private volatile IndexView view;
+		private final LongFunction<V> decoder;
+		
+		IndexMap(IndexView view, LongFunction<V> decoder) {
+			this.view = view;
+			this.decoder = decoder;
+		}
+		
+		private static int indexOf(IndexView view, Object key){
+			if(view ==null || !(key instanceof String)){
+				return -1;
+			}
+			return view.indexOf(((String)key).getBytes(StandardCharsets.UTF_8));
+		}
+		
+		@Override
+		public V get(Object key) {
+			IndexView current = view;
+			int i = indexOf(current, key);
+			return i <0 ? null : decoder.apply(current.getValue(i));
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return indexOf(view, key) >=0;
+		}
+
+		@Override
+		public int size() {
+			IndexView current = view;
+			return current ==null ? 0 : current.size;
+		}
+
+		@Override
+		public void clear() {
+			view = null;
+		}
+		
+		@Override
+		public Set<String> keySet() {
+			return new AbstractSet<String>(){
+
+				@Override
+				public Iterator<String> iterator() {
+					return new IndexIterator<>(view, IndexView::getId);
+				}
+
+				@Override
+				public boolean contains(Object o) {
+					return containsKey(o);
+				}
+
+				@Override
+				public int size() {
+					return IndexMap.this.size();
+				}
+			};
+		}
+
+		@Override
+		public Set<Map.Entry<String, V>> entrySet() {
+			return new AbstractSet<Map.Entry<String, V>>(){
+
+				@Override
+				public Iterator<Map.Entry<String, V>> iterator() {
+					return new IndexIterator<>(view, (v, i)-> new SimpleImmutableEntry<>(v.getId(i), decoder.apply(v.getValue(i))));
+				}
+
+				@Override
+				public int size() {
+					return IndexMap.this.size();
+				}
+			};
+		}
+	}
+	
+	@FunctionalInterface
+	private interface IndexedGetter<T>{
+		T get(IndexView view, int i);
+	}
+	
+	private static final class IndexIterator<T> implements Iterator<T>{
+		private final IndexView view;
+		private final IndexedGetter<T> getter;
+		private int next=0;
+		
+		IndexIterator(IndexView view, IndexedGetter<T> getter) {
+			this.view = view;
+			this.getter = getter;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return view !=null && next < view.size;
+		}
+
+		@Override
+		public T next() {
+			if(!hasNext()){
+				throw new NoSuchElementException();
+			}
+			return getter.get(view, next++);
+		}
+	}
+}
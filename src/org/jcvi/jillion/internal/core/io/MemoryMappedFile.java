@@ -0,0 +1,201 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.internal.core.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+/**
+ * A read-only memory mapped view of an entire file.
+ * Since a single {@link MappedByteBuffer} can only
+ * map 2GB, large files are mapped as several segments
+ * that each overlap the next segment
+ * so that small reads never have to span two segments.
+ * <p>
+ * Instances are thread-safe; each call to {@link #slice(long, int)}
+ * returns a new buffer view.
+ * 
+ * @author dkatzel
+ *
+ * @since 6.0.3
+ */
+public final class MemoryMappedFile {
+	/**
+	 * Default size of each mapped segment (1GB).
+	 */
+	private static final long DEFAULT_SEGMENT_SIZE = 1L << 30;
+	/**
+	 * Default number of bytes that each segment
+	 * overlaps the next one (1MB).
+	 */
+	private static final int DEFAULT_OVERLAP = 1 << 20;
+	
+	private final MappedByteBuffer[] segments;
+	private final long segmentSize;
+	private final long length;
+	/**
+	 * Memory map the given file using the default segment sizes.
+	 * @param file the file to map; can not be null.
+	 * @return a new {@link MemoryMappedFile}.
+	 * @throws IOException if there is a problem opening or mapping the file.
+	 * @throws NullPointerException if file is null.
+	 */
+	public static MemoryMappedFile map(File file) throws IOException{
+		return map(file, DEFAULT_SEGMENT_SIZE, DEFAULT_OVERLAP);
+	}
+	/**
+	 * Memory map the given file.
+	 * @param file the file to map; can not be null.
+	 * @param segmentSize the number of bytes between the start of each segment; must be &gt; 0.
+	 * @param overlap the number of extra bytes each segment maps past the start
+	 * of the next segment; must be &ge; 0.  Reads of up to this many bytes
+	 * never need to be copied.
+	 * @return a new {@link MemoryMappedFile}.
+	 * @throws IOException if there is a problem opening or mapping the file.
+	 * @throws NullPointerException if file is null.
+	 * @throws IllegalArgumentException if segmentSize + overlap is not a valid
+	 * positive int or overlap is negative.
+	 */
+	public static MemoryMappedFile map(File file, long segmentSize, int overlap) throws IOException{
+		if(segmentSize < 1 || overlap < 0 || segmentSize + overlap > Integer.MAX_VALUE){
+			throw new IllegalArgumentException("invalid segment size " + segmentSize + " and overlap " + overlap);
+		}
+		try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)){
+			long length = channel.size();
+			int numberOfSegments = (int) Math.max(1, (length + segmentSize -1)/segmentSize);
+			MappedByteBuffer[] segments = new MappedByteBuffer[numberOfSegments];
+			for(int i=0; i< numberOfSegments; i++){
+				long start = i * segmentSize;
+				long size = Math.min(segmentSize + overlap, length - start);
+				segments[i] = channel.map(MapMode.READ_ONLY, start, Math.max(0, size));
+			}
+			//mappings stay valid after the channel is closed
+			return new MemoryMappedFile(segments, segmentSize, length);
+		}
+	}
+	
+	private MemoryMappedFile(MappedByteBuffer[] segments, long segmentSize, long length) {
+		this.segments = segments;
+		this.segmentSize = segmentSize;
+		this.length = length;
+	}
+	/**
+	 * Get the length of the mapped file in bytes.
+	 * @return the number of bytes.
+	 */
+	public long length() {
+		return length;
+	}
+	/**
+	 * Get the byte at the given offset.
+	 * @param offset the byte offset into the file.
+	 * @return the byte value.
+	 * @throws IndexOutOfBoundsException if the offset is not inside the file.
+	 */
+	public byte getByte(long offset){
+		checkRegion(offset, 1);
+		int segmentIndex = (int) (offset / segmentSize);
+		return segments[segmentIndex].get((int) (offset - segmentIndex * segmentSize));
+	}
+	/**
+	 * Get the big endian int at the given offset.
+	 * @param offset the byte offset into the file of the first byte of the int.
+	 * @return the int value.
+	 * @throws IndexOutOfBoundsException if the int is not entirely inside the file.
+	 */
+	public int getInt(long offset){
+		checkRegion(offset, 4);
+		int segmentIndex = (int) (offset / segmentSize);
+		MappedByteBuffer segment = segments[segmentIndex];
+		int segmentOffset = (int) (offset - segmentIndex * segmentSize);
+		if(segmentOffset + 4 <= segment.capacity()){
+			return segment.getInt(segmentOffset);
+		}
+		return slice(offset, 4).getInt();
+	}
+	/**
+	 * Get the big endian long at the given offset.
+	 * @param offset the byte offset into the file of the first byte of the long.
+	 * @return the long value.
+	 * @throws IndexOutOfBoundsException if the long is not entirely inside the file.
+	 */
+	public long getLong(long offset){
+		checkRegion(offset, 8);
+		int segmentIndex = (int) (offset / segmentSize);
+		MappedByteBuffer segment = segments[segmentIndex];
+		int segmentOffset = (int) (offset - segmentIndex * segmentSize);
+		if(segmentOffset + 8 <= segment.capacity()){
+			return segment.getLong(segmentOffset);
+		}
+		return slice(offset, 8).getLong();
+	}
+	
+	private void checkRegion(long offset, int numberOfBytes){
+		if(offset < 0 || numberOfBytes < 0 || offset + numberOfBytes > length){
+			throw new IndexOutOfBoundsException("region [" + offset + ", " + (offset + numberOfBytes) 
+									+ ") is outside of file of length " + length);
+		}
+	}
+	/**
+	 * Get a read-only view of the given region of the file
+	 * whose position is 0 and whose limit is the given length.
+	 * If the region fits in a single mapped segment (which it always will
+	 * if it is no longer than the overlap), then the returned buffer
+	 * is backed directly by the mapped file; otherwise the bytes
+	 * are copied into a new heap buffer.
+	 * 
+	 * @param offset the byte offset into the file of the first byte to include.
+	 * @param numberOfBytes the number of bytes to include.
+	 * @return a new {@link ByteBuffer}.
+	 * @throws IndexOutOfBoundsException if the region is not entirely inside the file.
+	 */
+	public ByteBuffer slice(long offset, int numberOfBytes){
+		checkRegion(offset, numberOfBytes);
+		int segmentIndex = (int) (offset / segmentSize);
+		ByteBuffer segment = segments[segmentIndex].duplicate();
+		int segmentOffset = (int) (offset - segmentIndex * segmentSize);
+		if(segmentOffset + numberOfBytes <= segment.capacity()){
+			segment.position(segmentOffset);
+			segment.limit(segmentOffset + numberOfBytes);
+			return segment.slice();
+		}
+		//spans segments
+		ByteBuffer copy = ByteBuffer.allocate(numberOfBytes);
+		long currentOffset = offset;
+		while(copy.hasRemaining()){
+			int index = (int) (currentOffset / segmentSize);
+			ByteBuffer current = segments[index].duplicate();
+			int start = (int) (currentOffset - index * segmentSize);
+			//only read up to the start of the next segment
+			int end = (int) Math.min(segmentSize, start + (long) copy.remaining());
+			current.position(start);
+			current.limit(end);
+			copy.put(current);
+			currentOffset += end - start;
+		}
+		copy.flip();
+		return copy;
+	}
+}
@@ -23,11 +23,12 @@ package org.jcvi.jillion.internal.core.io;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.Deque;
 
 import org.jcvi.jillion.core.io.IOUtil;
-import org.jcvi.jillion.internal.core.util.GrowableCharArray;
 
 /**
  * {@code TextLineParser} can read lines from on {@link InputStream}.  The main
@@ -56,9 +57,9 @@ public final class TextLineParser implements LineParser{
 	private static final int INITIAL_LINE_CAPACITY = 200;
 	
 	/**
-	 * Our pushed back byte is not set.
+	 * Number of bytes to read from the inputStream at a time.
 	 */
-	private static final int NOT_SET = -2;
+	private static final int BUFFER_SIZE = 8192;
 	/**
 	 * End of File.
 	 */
@@ -66,11 +67,11 @@ public final class TextLineParser implements LineParser{
 	/**
 	 * Line feed.
 	 */
-	private static final char LF = '\n';
+	private static final byte LF = '\n';
 	/**
 	 * Carriage return.
 	 */
-	private static final char CR = '\r';
+	private static final byte CR = '\r';
 	
 	private final InputStream in;
 	private final Object endOfFile = new Object();
@@ -80,24 +81,20 @@ public final class TextLineParser implements LineParser{
 	private long position;
 	private int numberOfBytesInNextLine;
 	/**
-	 * This is an extra byte we read from
-	 * the previous line that we
-	 * want to "unread" so we can read it again
-	 * in the next line.
-	 * 
-	 * This is used to distinguish from
-	 * some older operating systems which use 
-	 * '\r\n' from '\r' as end of line strings.
-	 * If it's the later, the byte after 
-	 * '\r' is "unread" so it can be read again
-	 * as the beginning of the next line.
-	 * 
-	 *  This is used instead of a PushBackInputStream
-	 *  because it is faster to only check
-	 *  the unread byte once per
-	 *  getLine() call instead of every read().
+	 * Bytes read from the inputStream but not yet
+	 * returned as part of a line.  Reading 
+	 * blocks at a time is much faster than
+	 * calling {@link InputStream#read()} for every byte
+	 * since most InputStream implementations synchronize each call.
+	 */
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+	private int bufferPosition;
+	private int bufferLength;
+	/**
+	 * Bytes of the current line when
+	 * the line spans more than one buffer.
 	 */
-	private int pushedBackValue=NOT_SET;
+	private byte[] lineBuffer = new byte[INITIAL_LINE_CAPACITY];
 
     /**
      * Parse the given InputStream into a single giant
@@ -153,54 +150,96 @@ public final class TextLineParser implements LineParser{
 		if(doneFile){
 			return;
 		}
-		GrowableCharArray builder = new GrowableCharArray(INITIAL_LINE_CAPACITY);
-		int value;
-		if(pushedBackValue ==NOT_SET){
-			value = in.read();
-		}else{			
-			value = pushedBackValue;
-			pushedBackValue=NOT_SET;
-		}
 		numberOfBytesInNextLine=0;
-		
-		
-		while(true){	
-			if(value == EOF){
+		int lineLength=0;
+		while(true){
+			if(bufferPosition == bufferLength && !fillBuffer()){
 				doneFile =true;
 				close();
 				break;
 			}
-			++numberOfBytesInNextLine;
-			builder.append((char)value);
-			if(value == CR){
+			int lineStart = bufferPosition;
+			int i= lineStart;
+			while(i < bufferLength && buffer[i] != LF && buffer[i] != CR){
+				i++;
+			}
+			if(i == bufferLength){
+				//no end of line in the buffer yet
+				lineLength = appendToLine(lineLength, lineStart, i);
+				bufferPosition = i;
+				continue;
+			}
+			byte eol = buffer[i];
+			bufferPosition = i+1;
+			if(eol == CR){
 				//check if next value is LF
 				//since CR+LF is how Windows represents an end of line
-				int nextChar = in.read();
-				if(nextChar == LF){
-					++numberOfBytesInNextLine;
-					builder.append(LF);
-				}else if(nextChar !=EOF){
-					//not windows formatted line
-					//could be Mac 0S 9 which only uses '\r'
-					//put that value back
-					pushedBackValue =nextChar;
+				//any other value (including Mac OS 9 which only uses '\r')
+				//is left in the buffer to be read again as the beginning of the next line
+				if(bufferPosition == bufferLength){
+					lineLength = appendToLine(lineLength, lineStart, bufferPosition);
+					lineStart = bufferPosition;
+					if(fillBuffer()){
+						lineStart = 0;
+					}
+				}
+				if(bufferPosition < bufferLength && buffer[bufferPosition] == LF){
+					bufferPosition++;
 				}
-				
-				break;
 			}
-			if(value == LF){
-				break;
+			if(lineLength ==0){
+				//the entire line is in the buffer
+				numberOfBytesInNextLine = bufferPosition - lineStart;
+				nextQueue.add(new String(buffer, lineStart, numberOfBytesInNextLine, StandardCharsets.ISO_8859_1));
+				return;
 			}
-			value = in.read();
+			lineLength = appendToLine(lineLength, lineStart, bufferPosition);
+			break;
 		}
-		if(builder.getCurrentLength()>0){
-			nextQueue.add(builder.createNewString());
+		numberOfBytesInNextLine = lineLength;
+		if(lineLength>0){
+			nextQueue.add(new String(lineBuffer, 0, lineLength, StandardCharsets.ISO_8859_1));
 		}
 		if(doneFile){
 			nextQueue.add(endOfFile);
 		}
 		
 	}
+	/**
+	 * Read the next block of bytes from the inputStream
+	 * into the buffer.
+	 * @return {@code false} if we have reached the end of the file.
+	 * @throws IOException if there is a problem reading the inputStream.
+	 */
+	private boolean fillBuffer() throws IOException{
+		int numberOfBytesRead;
+		do{
+			numberOfBytesRead = in.read(buffer);
+		}while(numberOfBytesRead ==0);
+		if(numberOfBytesRead == EOF){
+			return false;
+		}
+		bufferPosition=0;
+		bufferLength = numberOfBytesRead;
+		return true;
+	}
+	/**
+	 * Copy the given section of the buffer to the end of
+	 * the partial line we are building.
+	 * @return the new length of the partial line.
+	 */
+	private int appendToLine(int lineLength, int from, int to){
+		int length = to - from;
+		if(length ==0){
+			return lineLength;
+		}
+		int newLength = lineLength + length;
+		if(newLength > lineBuffer.length){
+			lineBuffer = Arrays.copyOf(lineBuffer, Math.max(newLength, lineBuffer.length *2));
+		}
+		System.arraycopy(buffer, from, lineBuffer, lineLength, length);
+		return newLength;
+	}
 	
 	/**
 	 * Get the number of bytes returned by
@@ -0,0 +1,266 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.internal.core.util;
+
+import java.lang.ref.SoftReference;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.jcvi.jillion.core.util.MapUtil;
+/**
+ * {@code ConcurrentLruCache} is a Thread-safe, size bounded
+ * Least Recently Used (LRU) cache that keeps
+ * track of the number of cache hits and misses.
+ * <p>
+ * Large caches are split into several independently locked
+ * segments chosen by key hash so that threads
+ * looking up different keys rarely contend; each segment
+ * evicts its own least recently used entry so eviction order
+ * is only approximately LRU across the whole cache.
+ * Small caches use a single segment and are exactly LRU.
+ * <p>
+ * By default values are strongly referenced so they stay
+ * in the cache until evicted by newer entries.  Caches created by
+ * {@link #createSoftReferencedValueCache(int)} wrap each value
+ * in a {@link SoftReference} so the garbage collector may also
+ * reclaim cached values when memory is low; such values
+ * are then treated as cache misses.
+ * 
+ * @author dkatzel
+ *
+ * @param <K> the type of keys.
+ * @param <V> the type of values.
+ * 
+ * @since 6.0.3
+ */
+public final class ConcurrentLruCache<K,V> {
+
+	private static final int MAX_NUMBER_OF_SEGMENTS = 16;
+	/**
+	 * Only split into segments when each segment
+	 * will hold at least this many entries.
+	 */
+	private static final int MIN_SEGMENT_SIZE = 64;
+	
+	private final Segment<K,V>[] segments;
+	private final boolean softValues;
+	private final int segmentMask;
+	private final int maxSize;
+	
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	/**
+	 * Create a new cache that will hold at most
+	 * the given number of entries.
+	 * @param maxSize the max number of entries; must be &ge; 1.
+	 * @throws IllegalArgumentException if maxSize &lt; 1.
+	 */
+	public ConcurrentLruCache(int maxSize){
+		this(maxSize, false);
+	}
+	/**
+	 * Create a new cache that will hold at most
+	 * the given number of entries whose values
+	 * are only softly referenced so they may be
+	 * garbage collected before they are evicted.
+	 * @param maxSize the max number of entries; must be &ge; 1.
+	 * @return a new cache; will never be null.
+	 * @throws IllegalArgumentException if maxSize &lt; 1.
+	 */
+	public static <K,V> ConcurrentLruCache<K,V> createSoftReferencedValueCache(int maxSize){
+		return new ConcurrentLruCache<>(maxSize, true);
+	}
+	
+	private ConcurrentLruCache(int maxSize, boolean softValues){
+		if(maxSize <1){
+			throw new IllegalArgumentException("max size must be >= 1");
+		}
+		this.maxSize = maxSize;
+		this.softValues = softValues;
+		int numberOfSegments = Math.min(MAX_NUMBER_OF_SEGMENTS, Integer.highestOneBit(Math.max(1, maxSize / MIN_SEGMENT_SIZE)));
+		//can't create generic arrays
+		@SuppressWarnings("unchecked")
+		Segment<K,V>[] array = (Segment<K,V>[]) new Segment<?,?>[numberOfSegments];
+		segments = array;
+		int remainder = maxSize % numberOfSegments;
+		for(int i=0; i< numberOfSegments; i++){
+			segments[i] = new Segment<>(maxSize / numberOfSegments + (i < remainder ? 1 : 0), evictions);
+		}
+		segmentMask = numberOfSegments -1;
+	}
+	
+	private Segment<K,V> segmentFor(Object key){
+		int h = key.hashCode();
+		return segments[(h ^ (h >>> 16)) & segmentMask];
+	}
+	/**
+	 * Get the cached value for the given key
+	 * and mark it as the most recently used.
+	 * @param key the key to look for; can not be null.
+	 * @return the cached value or {@code null} if the key
+	 * is not in the cache.
+	 * @throws NullPointerException if key is null.
+	 */
+	public V get(K key){
+		Segment<K,V> segment = segmentFor(key);
+		V value=null;
+		synchronized(segment){
+			ValueRef<V> ref = segment.get(key);
+			if(ref !=null){
+				value = ref.get();
+				if(value ==null){
+					//softly referenced value was garbage collected
+					segment.remove(key);
+				}
+			}
+		}
+		if(value ==null){
+			misses.increment();
+		}else{
+			hits.increment();
+		}
+		return value;
+	}
+	/**
+	 * Put the given key and value into the cache
+	 * evicting the least recently used entry if the cache is full.
+	 * @param key the key; can not be null.
+	 * @param value the value; can not be null.
+	 * @throws NullPointerException if either parameter is null.
+	 */
+	public void put(K key, V value){
+		if(value ==null){
+			throw new NullPointerException("value can not be null");
+		}
+		Segment<K,V> segment = segmentFor(key);
+		ValueRef<V> ref = softValues ? new SoftValueRef<>(value) : new StrongValueRef<>(value);
+		synchronized(segment){
+			segment.put(key, ref);
+		}
+	}
+	/**
+	 * Remove all entries from the cache.
+	 * The hit and miss counts are not reset.
+	 */
+	public void clear(){
+		for(Segment<K,V> segment : segments){
+			synchronized(segment){
+				segment.clear();
+			}
+		}
+	}
+	/**
+	 * Get the current number of entries in the cache.
+	 * For soft referenced caches, this may include
+	 * entries whose values have already been garbage collected.
+	 * @return the number of entries.
+	 */
+	public int size(){
+		int size=0;
+		for(Segment<K,V> segment : segments){
+			synchronized(segment){
+				size += segment.size();
+			}
+		}
+		return size;
+	}
+	/**
+	 * Get the max number of entries this cache can hold.
+	 * @return the max size.
+	 */
+	public int getMaxSize(){
+		return maxSize;
+	}
+	/**
+	 * Get the number of calls to {@link #get(Object)}
+	 * that found a cached value.
+	 * @return the hit count.
+	 */
+	public long getHitCount(){
+		return hits.sum();
+	}
+	/**
+	 * Get the number of calls to {@link #get(Object)}
+	 * that did not find a cached value.
+	 * @return the miss count.
+	 */
+	public long getMissCount(){
+		return misses.sum();
+	}
+	/**
+	 * Get the number of entries that were removed
+	 * to make room for newer entries.
+	 * @return the eviction count.
+	 */
+	public long getEvictionCount(){
+		return evictions.sum();
+	}
+	
+	private interface ValueRef<V>{
+		V get();
+	}
+	
+	private static final class StrongValueRef<V> implements ValueRef<V>{
+		private final V value;
+		
+		StrongValueRef(V value){
+			this.value = value;
+		}
+		@Override
+		public V get(){
+			return value;
+		}
+	}
+	
+	private static final class SoftValueRef<V> extends SoftReference<V> implements ValueRef<V>{
+		
+		SoftValueRef(V value){
+			super(value);
+		}
+	}
+	
+	private static final class Segment<K,V> extends LinkedHashMap<K, ValueRef<V>>{
+
+		private static final long serialVersionUID = 1L;
+		
+		private final int maxSize;
+		private final transient LongAdder evictions;
+		
+		Segment(int maxSize, LongAdder evictions){
+			//don't preallocate huge tables for caches that may never fill up
+			super(MapUtil.computeMinHashMapSizeWithoutRehashing(Math.min(maxSize, 1024) +1L), 0.75F, true);
+			this.maxSize = maxSize;
+			this.evictions = evictions;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<K, ValueRef<V>> eldest) {
+			if(size() > maxSize){
+				evictions.increment();
+				return true;
+			}
+			return false;
+		}
+		
+	}
+}
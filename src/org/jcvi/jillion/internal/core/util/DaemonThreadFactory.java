@@ -0,0 +1,61 @@
+/*******************************************************************************
+ * Jillion development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ *
+ *          http://www.gnu.org/copyleft/lesser.html
+ *
+ *
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ *
+ * Information about Jillion can be found on its homepage
+ *
+ *         http://jillion.sourceforge.net
+ *
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.internal.core.util;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+/**
+ * {@code DaemonThreadFactory} is a {@link ThreadFactory}
+ * that creates named daemon threads so that
+ * worker pools that aren't shutdown
+ * will not prevent the JVM from exiting.
+ *
+ * @author dkatzel
+ *
+ * @since 6.0.3
+ */
+public final class DaemonThreadFactory implements ThreadFactory{
+
+	private static final AtomicInteger POOL_COUNTER = new AtomicInteger();
+
+	private final String prefix;
+	private final AtomicInteger threadCounter = new AtomicInteger();
+	/**
+	 * Create a new {@link DaemonThreadFactory}
+	 * whose threads will be named {@code namePrefix-$poolNumber-$threadNumber}.
+	 * @param namePrefix the prefix of the thread names; can not be null.
+	 * @throws NullPointerException if namePrefix is null.
+	 */
+	public DaemonThreadFactory(String namePrefix){
+		if(namePrefix ==null){
+			throw new NullPointerException("name prefix can not be null");
+		}
+		this.prefix = namePrefix + "-" + POOL_COUNTER.incrementAndGet() + "-";
+	}
+
+	@Override
+	public Thread newThread(Runnable r) {
+		Thread t = new Thread(r, prefix + threadCounter.incrementAndGet());
+		t.setDaemon(true);
+		return t;
+	}
+
+}
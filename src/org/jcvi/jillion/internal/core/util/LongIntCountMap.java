@@ -0,0 +1,209 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.internal.core.util;
+
+import java.util.Arrays;
+/**
+ * {@code LongIntCountMap} is an open addressing
+ * (linear probing) hash table of primitive long keys
+ * to positive int counts.  Each entry takes 12 bytes
+ * in the backing arrays and no per-entry objects are created.
+ * <p>
+ * Any long can be a key (including 0) and a count of 0 means
+ * the key is not in the map.  Counts that would overflow
+ * stay at {@link Integer#MAX_VALUE}.
+ * This class is not Thread-safe.
+ * 
+ * @author dkatzel
+ *
+ * @since 6.0.3
+ */
+public final class LongIntCountMap {
+
+	private static final double MAX_LOAD_FACTOR = 0.7D;
+	private static final int DEFAULT_INITIAL_CAPACITY = 1024;
+	
+	private long[] keys;
+	private int[] counts;
+	private int mask;
+	private int size;
+	private int resizeThreshold;
+	
+	private final int initialCapacity;
+	
+	public LongIntCountMap(){
+		this(DEFAULT_INITIAL_CAPACITY);
+	}
+	/**
+	 * Create a new map that can hold the given number of entries
+	 * before it needs to grow.
+	 * @param expectedSize the expected number of entries; must be &ge; 0.
+	 * @throws IllegalArgumentException if expectedSize is negative.
+	 */
+	public LongIntCountMap(int expectedSize){
+		if(expectedSize <0){
+			throw new IllegalArgumentException("expected size can not be negative");
+		}
+		long capacity = Long.highestOneBit(Math.max(16, (long) Math.ceil(expectedSize / MAX_LOAD_FACTOR)) *2 -1);
+		if(capacity > 1<<30){
+			capacity = 1<<30;
+		}
+		this.initialCapacity = (int) capacity;
+		allocate(initialCapacity);
+	}
+	
+	private void allocate(int capacity){
+		keys = new long[capacity];
+		counts = new int[capacity];
+		mask = capacity -1;
+		resizeThreshold = (int) (capacity * MAX_LOAD_FACTOR);
+	}
+	/**
+	 * Spread the bits of the given value (the MurmurHash3 64 bit finalizer).
+	 * @param value the value to hash.
+	 * @return the hashed value.
+	 */
+	public static long hash(long value){
+		long h = value;
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+	/**
+	 * Get the number of keys in this map.
+	 * @return the number of keys.
+	 */
+	public int size(){
+		return size;
+	}
+	
+	public boolean isEmpty(){
+		return size ==0;
+	}
+	/**
+	 * Get the number of slots in the hash table.
+	 * @return the capacity which is always a power of 2.
+	 */
+	public int getCapacity(){
+		return keys.length;
+	}
+	/**
+	 * Get the number of bytes used by the backing arrays.
+	 * @return the number of bytes.
+	 */
+	public long getSizeInBytes(){
+		return keys.length * 12L;
+	}
+	/**
+	 * Increment the count of the given key by 1.
+	 * @param key the key.
+	 */
+	public void increment(long key){
+		add(key, 1);
+	}
+	/**
+	 * Add the given amount to the count of the given key.
+	 * @param key the key.
+	 * @param amount the amount to add; must be &ge; 1.
+	 */
+	public void add(long key, int amount){
+		int index = (int) hash(key) & mask;
+		while(true){
+			int count = counts[index];
+			if(count ==0){
+				keys[index] = key;
+				counts[index] = amount;
+				if(++size > resizeThreshold){
+					resize();
+				}
+				return;
+			}
+			if(keys[index] == key){
+				int sum = count + amount;
+				//overflow
+				counts[index] = sum <0 ? Integer.MAX_VALUE : sum;
+				return;
+			}
+			index = (index +1) & mask;
+		}
+	}
+	/**
+	 * Get the count of the given key.
+	 * @param key the key.
+	 * @return the count or 0 if the key is not in the map.
+	 */
+	public int get(long key){
+		int index = (int) hash(key) & mask;
+		while(true){
+			int count = counts[index];
+			if(count ==0 || keys[index] == key){
+				return count;
+			}
+			index = (index +1) & mask;
+		}
+	}
+	
+	private void resize(){
+		if(keys.length == 1<<30){
+			throw new IllegalStateException("map is too large");
+		}
+		long[] oldKeys = keys;
+		int[] oldCounts = counts;
+		allocate(oldKeys.length <<1);
+		for(int i=0; i< oldKeys.length; i++){
+			int count = oldCounts[i];
+			if(count !=0){
+				int index = (int) hash(oldKeys[i]) & mask;
+				while(counts[index] !=0){
+					index = (index +1) & mask;
+				}
+				keys[index] = oldKeys[i];
+				counts[index] = count;
+			}
+		}
+	}
+	/**
+	 * Get all the keys sorted in ascending (signed) order.
+	 * @return a new array of length {@link #size()}.
+	 */
+	public long[] getSortedKeys(){
+		long[] sorted = new long[size];
+		int j=0;
+		for(int i=0; i< counts.length; i++){
+			if(counts[i] !=0){
+				sorted[j++] = keys[i];
+			}
+		}
+		Arrays.sort(sorted);
+		return sorted;
+	}
+	/**
+	 * Remove all the entries and shrink
+	 * back to the initial capacity.
+	 */
+	public void clear(){
+		size=0;
+		allocate(initialCapacity);
+	}
+}
@@ -0,0 +1,682 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.internal.core.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.LongFunction;
+import java.util.function.ToLongFunction;
+/**
+ * {@code OffHeapStringLongMap} is a compact, insertion ordered
+ * map of String ids to non-negative long values (usually file offsets)
+ * that stores everything in direct (off-heap) memory
+ * and does not create any per-entry Java objects.
+ * <p>
+ * The ids are packed as length prefixed UTF-8 bytes into an append only arena,
+ * each value takes {@value #VALUE_SIZE} bytes (so values must be less than 2<sup>48</sup>)
+ * and an open addressing hash table holds a 4 byte entry index per slot
+ * so each entry costs roughly the number of id bytes plus 12-14 bytes.
+ * <p>
+ * The direct memory starts small (a few KB unless a larger expected
+ * number of entries is given to the constructor) and grows geometrically
+ * by copying, so the map of a small file only uses a little more direct memory
+ * than its entries need.  Id pages grow up to 16MB and value pages up to
+ * {@code 6 * 2^16} bytes, after which new pages are added.  Direct memory
+ * counts against {@code -XX:MaxDirectMemorySize} and, like all direct
+ * {@link ByteBuffer}s, is only returned once the buffers are garbage collected,
+ * even after {@link #clear()}.
+ * <p>
+ * Entries can not be removed.  Putting a value for an id already
+ * in the map replaces the value but keeps the original insertion order
+ * (like {@link java.util.LinkedHashMap}).
+ * This class is not Thread-safe while it is being modified
+ * but concurrent reads are safe once all puts are done.
+ * 
+ * @author dkatzel
+ *
+ * @since 6.0.3
+ */
+public final class OffHeapStringLongMap {
+	/**
+	 * The number of bytes used to store each value.
+	 */
+	public static final int VALUE_SIZE = 6;
+	/**
+	 * The largest value that can be stored.
+	 */
+	public static final long MAX_VALUE = (1L << 48) -1;
+	
+	private static final int ARENA_PAGE_SHIFT = 24; // 16MB
+	private static final int ARENA_PAGE_SIZE = 1 << ARENA_PAGE_SHIFT;
+	
+	private static final int VALUE_PAGE_SHIFT = 16;
+	private static final int VALUE_PAGE_MASK = (1 << VALUE_PAGE_SHIFT) -1;
+	private static final int VALUE_PAGE_SIZE = VALUE_SIZE << VALUE_PAGE_SHIFT;
+	
+	private static final int INT_PAGE_SHIFT = 18;
+	private static final int INT_PAGE_MASK = (1 << INT_PAGE_SHIFT) -1;
+	/**
+	 * The arena offset of every {@code 2^BLOCK_SHIFT}th entry is stored
+	 * so an entry is found by skipping at most {@code 2^BLOCK_SHIFT -1} ids.
+	 */
+	private static final int BLOCK_SHIFT = 4;
+	private static final int BLOCK_MASK = (1 << BLOCK_SHIFT) -1;
+	
+	private static final double MAX_LOAD_FACTOR = 0.8D;
+	/**
+	 * The number of entries to size the initial
+	 * pages for if no expected size is given.
+	 */
+	private static final int DEFAULT_EXPECTED_SIZE = 128;
+	/**
+	 * Guess of the number of id bytes per entry
+	 * used to size the first arena page.
+	 */
+	private static final int ESTIMATED_ID_LENGTH = 32;
+	
+	private final int initialArenaPageSize;
+	private final int initialValuePageSize;
+	private final int initialTableSize;
+	/**
+	 * Every page except the last is
+	 * {@value #ARENA_PAGE_SIZE} bytes, but
+	 * offsets are always {@code pageIndex << ARENA_PAGE_SHIFT | positionInPage}.
+	 */
+	private ByteBuffer[] arena;
+	/**
+	 * The arena offset where the data in each finished page ends;
+	 * ids never span pages so the remainder of a page may be unused.
+	 */
+	private final GrowableLongArray pageEnds = new GrowableLongArray(16);
+	/**
+	 * Arena offset of the next id to be written.
+	 */
+	private long arenaEnd;
+	
+	private ByteBuffer[] values;
+	private final GrowableLongArray blockOffsets = new GrowableLongArray(1024);
+	
+	private ByteBuffer[] table;
+	private int tableSize;
+	private int size;
+	
+	/**
+	 * Create a new empty map sized for a small number of entries.
+	 */
+	public OffHeapStringLongMap(){
+		this(DEFAULT_EXPECTED_SIZE);
+	}
+	/**
+	 * Create a new empty map whose initial direct memory
+	 * is sized for the given number of entries.
+	 * The map still grows past the expected size if needed.
+	 * @param expectedSize the expected number of entries;
+	 * values less than 1 are treated as 1.
+	 */
+	public OffHeapStringLongMap(int expectedSize){
+		int entries = Math.max(1, expectedSize);
+		initialArenaPageSize = (int) Math.min(ARENA_PAGE_SIZE, (long) entries * ESTIMATED_ID_LENGTH);
+		initialValuePageSize = (int) Math.min(VALUE_PAGE_SIZE, (long) entries * VALUE_SIZE);
+		initialTableSize = (int) Math.min(Integer.MAX_VALUE -8, Math.max(16, (long) Math.ceil(entries / MAX_LOAD_FACTOR) +1));
+		clear();
+	}
+	/**
+	 * Remove all the entries and drop
+	 * the direct memory used so it can be garbage collected.
+	 */
+	public void clear(){
+		arena = new ByteBuffer[0];
+		values = new ByteBuffer[0];
+		pageEnds.clear();
+		blockOffsets.clear();
+		arenaEnd =0;
+		size=0;
+		table = allocateTable(initialTableSize);
+		tableSize = initialTableSize;
+	}
+	/**
+	 * Get the number of ids in this map.
+	 * @return the number of entries.
+	 */
+	public int size(){
+		return size;
+	}
+	/**
+	 * Put the given id and value into the map
+	 * replacing the old value if the id is already present.
+	 * @param id the id; can not be null.
+	 * @param value the value; must be between 0 and {@link #MAX_VALUE}.
+	 * @return the previous value or -1 if the id was not already present.
+	 * @throws NullPointerException if id is null.
+	 * @throws IllegalArgumentException if the value is out of range
+	 * or the id is longer than 16MB.
+	 */
+	public long put(String id, long value){
+		if(value <0 || value > MAX_VALUE){
+			throw new IllegalArgumentException("value out of range " + value);
+		}
+		byte[] bytes = id.getBytes(StandardCharsets.UTF_8);
+		int slot = findSlot(bytes);
+		int entry = getInt(table, slot) -1;
+		if(entry >=0){
+			long old = getValue(entry);
+			setValue(entry, value);
+			return old;
+		}
+		if(size == Integer.MAX_VALUE -1){
+			throw new IllegalStateException("map is full");
+		}
+		entry = size;
+		appendId(bytes);
+		setValue(entry, value);
+		setInt(table, slot, entry+1);
+		size++;
+		if(size > tableSize * MAX_LOAD_FACTOR){
+			rehash();
+		}
+		return -1;
+	}
+	/**
+	 * Get the value for the given id.
+	 * @param id the id to look for.
+	 * @return the value or -1 if the id is not in the map.
+	 */
+	public long get(String id){
+		if(size==0){
+			return -1;
+		}
+		int entry = getInt(table, findSlot(id.getBytes(StandardCharsets.UTF_8))) -1;
+		return entry <0 ? -1 : getValue(entry);
+	}
+	/**
+	 * Is the given id in the map.
+	 * @param id the id to look for.
+	 * @return {@code true} if the map contains the id; {@code false} otherwise.
+	 */
+	public boolean containsKey(String id){
+		return get(id) >=0;
+	}
+	/**
+	 * Iterate over the ids in insertion order.
+	 * @return a new Iterator.
+	 */
+	public Iterator<String> idIterator(){
+		return new IdIterator();
+	}
+	/**
+	 * Get the number of bytes of direct memory
+	 * used by this map.
+	 * @return the number of bytes allocated.
+	 */
+	public long getAllocatedBytes(){
+		long bytes = 4L * tableSize;
+		for(ByteBuffer page : arena){
+			bytes += page.capacity();
+		}
+		for(ByteBuffer page : values){
+			bytes += page.capacity();
+		}
+		return bytes;
+	}
+	/**
+	 * Create a new {@link Map} backed by a new {@link OffHeapStringLongMap}
+	 * that converts values to and from longs.
+	 * Values that can not be converted (the encoder returns a negative value
+	 * or a value greater than {@link #MAX_VALUE})
+	 * are stored in a separate on-heap map, so they should be rare.
+	 * The returned map does not support removing entries or null keys
+	 * but {@link Map#clear()} releases all the memory.
+	 * 
+	 * @param decoder converts a stored long into a value.
+	 * @param encoder converts a value into a long between 0 and {@link #MAX_VALUE}
+	 * or returns a negative number if the value can not be converted.
+	 * @return a new Map.
+	 */
+	public static <V> Map<String, V> createMap(LongFunction<V> decoder, ToLongFunction<? super V> encoder){
+		return new LongEncodedMap<>(decoder, encoder);
+	}
+	
+	private static ByteBuffer[] allocateTable(int tableSize){
+		int numberOfPages = (int) ((tableSize + (long) INT_PAGE_MASK) >>> INT_PAGE_SHIFT);
+		ByteBuffer[] pages = new ByteBuffer[numberOfPages];
+		for(int i=0; i< numberOfPages; i++){
+			int slotsInPage = (int) Math.min(1 << INT_PAGE_SHIFT, tableSize - ((long) i << INT_PAGE_SHIFT));
+			pages[i] = ByteBuffer.allocateDirect(slotsInPage * 4);
+		}
+		return pages;
+	}
+	
+	private static int getInt(ByteBuffer[] pages, int index){
+		return pages[index >>> INT_PAGE_SHIFT].getInt((index & INT_PAGE_MASK) << 2);
+	}
+	
+	private static void setInt(ByteBuffer[] pages, int index, int value){
+		pages[index >>> INT_PAGE_SHIFT].putInt((index & INT_PAGE_MASK) << 2, value);
+	}
+	
+	private long getValue(int entry){
+		ByteBuffer page = values[entry >>> VALUE_PAGE_SHIFT];
+		int offset = (entry & VALUE_PAGE_MASK) * VALUE_SIZE;
+		return ((page.getShort(offset) & 0xFFFFL) << 32) | (page.getInt(offset +2) & 0xFFFFFFFFL);
+	}
+	
+	private void setValue(int entry, long value){
+		int pageIndex = entry >>> VALUE_PAGE_SHIFT;
+		int offset = (entry & VALUE_PAGE_MASK) * VALUE_SIZE;
+		if(pageIndex == values.length){
+			ByteBuffer[] newValues = new ByteBuffer[values.length +1];
+			System.arraycopy(values, 0, newValues, 0, values.length);
+			newValues[pageIndex] = ByteBuffer.allocateDirect(initialValuePageSize);
+			values = newValues;
+		}
+		ByteBuffer page = values[pageIndex];
+		if(offset + VALUE_SIZE > page.capacity()){
+			//entries are added in order so the whole page is in use
+			page = grow(page, page.capacity(), offset + VALUE_SIZE, VALUE_PAGE_SIZE);
+			values[pageIndex] = page;
+		}
+		page.putShort(offset, (short) (value >>> 32));
+		page.putInt(offset +2, (int) value);
+	}
+	
+	private void appendId(byte[] bytes){
+		int total = varIntLength(bytes.length) + bytes.length;
+		if(total > ARENA_PAGE_SIZE){
+			throw new IllegalArgumentException("id too long");
+		}
+		ensureArenaCapacity(total);
+		if((size & BLOCK_MASK) ==0){
+			blockOffsets.append(arenaEnd);
+		}
+		ByteBuffer page = arena[(int) (arenaEnd >>> ARENA_PAGE_SHIFT)];
+		int pos = (int) (arenaEnd & (ARENA_PAGE_SIZE -1));
+		int length = bytes.length;
+		while(length >= 0x80){
+			page.put(pos++, (byte) (length | 0x80));
+			length >>>= 7;
+		}
+		page.put(pos++, (byte) length);
+		for(byte b : bytes){
+			page.put(pos++, b);
+		}
+		arenaEnd += total;
+	}
+	
+	/**
+	 * Make sure the last arena page has room for the given number of bytes
+	 * by growing it or, if it is already as big as it can get, starting a new page.
+	 */
+	private void ensureArenaCapacity(int numberOfBytes){
+		int lastPage = arena.length -1;
+		if(lastPage >=0){
+			ByteBuffer page = arena[lastPage];
+			int used = (int) (arenaEnd - ((long) lastPage << ARENA_PAGE_SHIFT));
+			if(used + numberOfBytes <= page.capacity()){
+				return;
+			}
+			if(used + numberOfBytes <= ARENA_PAGE_SIZE){
+				arena[lastPage] = grow(page, used, used + numberOfBytes, ARENA_PAGE_SIZE);
+				return;
+			}
+			//ids never span pages
+			pageEnds.append(arenaEnd);
+		}
+		ByteBuffer[] newArena = new ByteBuffer[arena.length +1];
+		System.arraycopy(arena, 0, newArena, 0, arena.length);
+		int pageSize = lastPage <0 ? initialArenaPageSize : arena[lastPage].capacity();
+		newArena[arena.length] = ByteBuffer.allocateDirect(Math.max(pageSize, numberOfBytes));
+		arena = newArena;
+		arenaEnd = (long) (arena.length -1) << ARENA_PAGE_SHIFT;
+	}
+	/**
+	 * Copy the used part of the given page into a new bigger page.
+	 * @param page the page to grow.
+	 * @param used the number of bytes in the page to keep.
+	 * @param minCapacity the min size of the new page.
+	 * @param maxCapacity the max size of any page.
+	 * @return a new direct ByteBuffer at least twice as big as the old one
+	 * (but no bigger than maxCapacity).
+	 */
+	private static ByteBuffer grow(ByteBuffer page, int used, int minCapacity, int maxCapacity){
+		int newCapacity = (int) Math.min(maxCapacity, Math.max(minCapacity, 2L * page.capacity()));
+		ByteBuffer copy = page.duplicate();
+		copy.clear();
+		copy.limit(used);
+		ByteBuffer grown = ByteBuffer.allocateDirect(newCapacity);
+		grown.put(copy);
+		return grown;
+	}
+	
+	private static int varIntLength(int value){
+		int length=1;
+		int v = value;
+		while(v >= 0x80){
+			v >>>=7;
+			length++;
+		}
+		return length;
+	}
+	/**
+	 * Decode the varint length of the id at the given offset.
+	 * @return the length in the low 32 bits and the
+	 * number of bytes used to encode it in the high 32 bits.
+	 */
+	private long readLength(ByteBuffer page, int pos){
+		int length = 0;
+		int shift = 0;
+		int p = pos;
+		byte b;
+		do{
+			b = page.get(p++);
+			length |= (b & 0x7F) << shift;
+			shift +=7;
+		}while((b & 0x80) !=0);
+		return ((long)(p - pos) << 32) | length;
+	}
+	/**
+	 * Find the arena offset of the given entry.
+	 */
+	private long offsetOf(int entry){
+		long offset = blockOffsets.get(entry >>> BLOCK_SHIFT);
+		int skip = entry & BLOCK_MASK;
+		for(int i=0; i< skip; i++){
+			offset = nextOffset(offset);
+		}
+		return offset;
+	}
+	/**
+	 * Get the offset of the id after the id at the given offset.
+	 */
+	private long nextOffset(long offset){
+		int pageIndex = (int) (offset >>> ARENA_PAGE_SHIFT);
+		long encodedLength = readLength(arena[pageIndex], (int) (offset & (ARENA_PAGE_SIZE -1)));
+		long next = offset + (encodedLength >>> 32) + (int) encodedLength;
+		if(pageIndex < pageEnds.getCurrentLength() && next == pageEnds.get(pageIndex)){
+			return (long)(pageIndex +1) << ARENA_PAGE_SHIFT;
+		}
+		return next;
+	}
+	
+	private String readId(long offset){
+		ByteBuffer page = arena[(int) (offset >>> ARENA_PAGE_SHIFT)];
+		int pos = (int) (offset & (ARENA_PAGE_SIZE -1));
+		long encodedLength = readLength(page, pos);
+		int start = pos + (int) (encodedLength >>> 32);
+		byte[] bytes = new byte[(int) encodedLength];
+		for(int i=0; i< bytes.length; i++){
+			bytes[i] = page.get(start +i);
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+	
+	private boolean idEquals(long offset, byte[] id){
+		ByteBuffer page = arena[(int) (offset >>> ARENA_PAGE_SHIFT)];
+		int pos = (int) (offset & (ARENA_PAGE_SIZE -1));
+		long encodedLength = readLength(page, pos);
+		if((int) encodedLength != id.length){
+			return false;
+		}
+		int start = pos + (int) (encodedLength >>> 32);
+		for(int i=0; i< id.length; i++){
+			if(page.get(start +i) != id[i]){
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	private static int hash(byte[] bytes){
+		int h = FNV_OFFSET;
+		for(byte b : bytes){
+			h = (h ^ b) * FNV_PRIME;
+		}
+		return mix(h);
+	}
+	
+	private int hashAt(long offset){
+		ByteBuffer page = arena[(int) (offset >>> ARENA_PAGE_SHIFT)];
+		int pos = (int) (offset & (ARENA_PAGE_SIZE -1));
+		long encodedLength = readLength(page, pos);
+		int start = pos + (int) (encodedLength >>> 32);
+		int end = start + (int) encodedLength;
+		int h = FNV_OFFSET;
+		for(int i=start; i< end; i++){
+			h = (h ^ page.get(i)) * FNV_PRIME;
+		}
+		return mix(h);
+	}
+	
+	private static final int FNV_OFFSET = 0x811C9DC5;
+	private static final int FNV_PRIME = 0x01000193;
+	/**
+	 * murmur3 finalizer to spread the FNV-1a hash bits.
+	 */
+	private static int mix(int hash){
+		int h = hash;
+		h ^= h >>> 16;
+		h *= 0x85EBCA6B;
+		h ^= h >>> 13;
+		h *= 0xC2B2AE35;
+		h ^= h >>> 16;
+		return h;
+	}
+	/**
+	 * Map the hash to [0, tableSize) using multiply and shift
+	 * which doesn't require a power of 2 table size.
+	 */
+	private static int slotFor(int hash, int tableSize){
+		return (int) (((hash & 0xFFFFFFFFL) * tableSize) >>> 32);
+	}
+	/**
+	 * Linear probe for the slot containing the given id
+	 * or the empty slot where it should go.
+	 */
+	private int findSlot(byte[] id){
+		int slot = slotFor(hash(id), tableSize);
+		while(true){
+			int entry = getInt(table, slot) -1;
+			if(entry <0 || idEquals(offsetOf(entry), id)){
+				return slot;
+			}
+			slot++;
+			if(slot == tableSize){
+				slot=0;
+			}
+		}
+	}
+	
+	private void rehash(){
+		int newSize = (int) Math.min(Integer.MAX_VALUE -8, tableSize + (long) tableSize /2);
+		ByteBuffer[] newTable = allocateTable(newSize);
+		//walk the arena sequentially
+		long offset = 0;
+		for(int entry=0; entry< size; entry++){
+			offset = (entry & BLOCK_MASK) ==0 ? blockOffsets.get(entry >>> BLOCK_SHIFT) : nextOffset(offset);
+			int slot = slotFor(hashAt(offset), newSize);
+			while(getInt(newTable, slot) !=0){
+				slot++;
+				if(slot == newSize){
+					slot =0;
+				}
+			}
+			setInt(newTable, slot, entry+1);
+		}
+		table = newTable;
+		tableSize = newSize;
+	}
+	
+	private final class IdIterator implements Iterator<String>{
+		private int next=0;
+		private long offset;
+		
+		@Override
+		public boolean hasNext() {
+			return next < size;
+		}
+
+		@Override
+		public String next() {
+			if(!hasNext()){
+				throw new NoSuchElementException();
+			}
+			offset = (next & BLOCK_MASK) ==0 ? blockOffsets.get(next >>> BLOCK_SHIFT) : nextOffset(offset);
+			next++;
+			return readId(offset);
+		}
+	}
+	/**
+	 * {@link Map} implementation that encodes values as longs
+	 * in an {@link OffHeapStringLongMap}.
+	 * 
+	 * @author dkatzel
+	 *
+	 * @param <V> the type of values.
+	 */
+	private static final class LongEncodedMap<V> extends AbstractMap<String, V>{
+		/**
+		 * Stored in the off-heap map for values that
+		 * are in the overflow map.
+		 */
+		private static final long OVERFLOW = MAX_VALUE;
+		
+		private final LongFunction<V> decoder;
+		private final ToLongFunction<? super V> encoder;
+		
+		private final OffHeapStringLongMap delegate = new OffHeapStringLongMap();
+		private Map<String, V> overflow;
+		
+		LongEncodedMap(LongFunction<V> decoder, ToLongFunction<? super V> encoder) {
+			this.decoder = decoder;
+			this.encoder = encoder;
+		}
+
+		@Override
+		public V put(String key, V value) {
+			if(key ==null){
+				throw new NullPointerException("key can not be null");
+			}
+			long encoded = encoder.applyAsLong(value);
+			long old;
+			if(encoded <0 || encoded >= OVERFLOW){
+				old = delegate.put(key, OVERFLOW);
+				if(overflow ==null){
+					overflow = new HashMap<>();
+				}
+				V oldValue = overflow.put(key, value);
+				return old== OVERFLOW ? oldValue : decode(old);
+			}
+			old = delegate.put(key, encoded);
+			if(old == OVERFLOW){
+				return overflow.remove(key);
+			}
+			return decode(old);
+		}
+		
+		private V decode(long value){
+			return value <0 ? null : decoder.apply(value);
+		}
+		
+		@Override
+		public V get(Object key) {
+			if(!(key instanceof String)){
+				return null;
+			}
+			long value = delegate.get((String) key);
+			if(value == OVERFLOW){
+				return overflow.get(key);
+			}
+			return decode(value);
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return key instanceof String && delegate.containsKey((String) key);
+		}
+
+		@Override
+		public int size() {
+			return delegate.size();
+		}
+
+		@Override
+		public void clear() {
+			delegate.clear();
+			overflow = null;
+		}
+
+		@Override
+		public Set<String> keySet() {
+			return new AbstractSet<String>() {
+
+				@Override
+				public Iterator<String> iterator() {
+					return delegate.idIterator();
+				}
+
+				@Override
+				public boolean contains(Object o) {
+					return containsKey(o);
+				}
+
+				@Override
+				public int size() {
+					return delegate.size();
+				}
+			};
+		}
+
+		@Override
+		public Set<Map.Entry<String, V>> entrySet() {
+			return new AbstractSet<Map.Entry<String, V>>() {
+
+				@Override
+				public Iterator<Map.Entry<String, V>> iterator() {
+					Iterator<String> ids = delegate.idIterator();
+					return new Iterator<Map.Entry<String,V>>() {
+
+						@Override
+						public boolean hasNext() {
+							return ids.hasNext();
+						}
+
+						@Override
+						public Map.Entry<String, V> next() {
+							String id = ids.next();
+							return new SimpleImmutableEntry<>(id, get(id));
+						}
+					};
+				}
+
+				@Override
+				public int size() {
+					return delegate.size();
+				}
+			};
+		}
+	}
+}
@@ -0,0 +1,192 @@
+/*******************************************************************************
+ * Jillion development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ *
+ *          http://www.gnu.org/copyleft/lesser.html
+ *
+ *
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ *
+ * Information about Jillion can be found on its homepage
+ *
+ *         http://jillion.sourceforge.net
+ *
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.internal.core.util;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+/**
+ * {@code WorkerPool} runs tasks on a single
+ * daemon thread pool shared by all of Jillion
+ * while limiting how many tasks of this particular
+ * pool may run at the same time.
+ * <p>
+ * Creating a {@code WorkerPool} doesn't create any threads
+ * and it never needs to be shutdown, so multi-threaded readers, writers
+ * and parsers can make a new one each time they are opened
+ * without starting a new thread pool each time.
+ * The shared threads are reused across pools and
+ * time out when they are idle. A thread is added to the shared pool
+ * whenever all its threads are busy, so tasks that wait on
+ * tasks of another {@code WorkerPool} can't deadlock.
+ * </p>
+ * <p>
+ * Tasks that are submitted while {@code maxConcurrentTasks}
+ * tasks of this pool are already running are queued and run in submission order.
+ * To stop a task, cancel its {@link Future}; to stop
+ * all of them, call {@link #cancelAll()}.
+ * </p>
+ * @author dkatzel
+ *
+ * @since 6.0.3
+ */
+public final class WorkerPool implements Executor{
+
+	private static final ExecutorService SHARED_EXECUTOR = Executors.newCachedThreadPool(new DaemonThreadFactory("jillion-worker"));
+	
+	private final int maxConcurrentTasks;
+	private final Queue<Runnable> queuedTasks = new ArrayDeque<>();
+	private final Set<Future<?>> unfinishedTasks = ConcurrentHashMap.newKeySet();
+	private int numberOfRunningTasks;
+	/**
+	 * Create a new {@link WorkerPool}.
+	 * @param maxConcurrentTasks the max number of tasks of this pool
+	 * to run at the same time; must be &ge; 1.
+	 * @throws IllegalArgumentException if maxConcurrentTasks &lt; 1.
+	 */
+	public WorkerPool(int maxConcurrentTasks){
+		if(maxConcurrentTasks < 1){
+			throw new IllegalArgumentException("max concurrent tasks must be >= 1 : " + maxConcurrentTasks);
+		}
+		this.maxConcurrentTasks = maxConcurrentTasks;
+	}
+	/**
+	 * Get the max number of tasks of this pool
+	 * that can run at the same time.
+	 * @return the max number of tasks; will always be &ge; 1.
+	 */
+	public int getMaxConcurrentTasks(){
+		return maxConcurrentTasks;
+	}
+	/**
+	 * Submit the given task to be run by this pool.
+	 * @param task the task to run; can not be null.
+	 * @return the {@link Future} of the task's result.
+	 * 
+	 * @param <T> the type of result.
+	 * @throws NullPointerException if task is null.
+	 */
+	public <T> Future<T> submit(Callable<T> task){
+		return submit(new TrackedTask<>(task));
+	}
+	/**
+	 * Submit the given task to be run by this pool.
+	 * @param task the task to run; can not be null.
+	 * @return the {@link Future} whose get() returns null when the task completes.
+	 * 
+	 * @throws NullPointerException if task is null.
+	 */
+	public Future<?> submit(Runnable task){
+		return submit(new TrackedTask<Void>(Executors.callable(task, null)));
+	}
+	
+	private <T> Future<T> submit(TrackedTask<T> future){
+		unfinishedTasks.add(future);
+		try{
+			execute(future);
+		}catch(RuntimeException e){
+			unfinishedTasks.remove(future);
+			throw e;
+		}
+		return future;
+	}
+	/**
+	 * Cancel every task submitted to this pool
+	 * that hasn't finished yet, interrupting the ones that are running.
+	 * This is the equivalent of {@link ExecutorService#shutdownNow()}
+	 * except the shared threads keep running and this pool
+	 * may still be used afterwards.
+	 */
+	public void cancelAll(){
+		for(Future<?> future : unfinishedTasks){
+			future.cancel(true);
+		}
+	}
+	
+	@Override
+	public void execute(Runnable task) {
+		if(task ==null){
+			throw new NullPointerException("task can not be null");
+		}
+		synchronized(this){
+			if(numberOfRunningTasks >= maxConcurrentTasks){
+				queuedTasks.add(task);
+				return;
+			}
+			numberOfRunningTasks++;
+		}
+		try{
+			SHARED_EXECUTOR.execute(()-> runAll(task));
+		}catch(RuntimeException e){
+			synchronized(this){
+				numberOfRunningTasks--;
+			}
+			throw e;
+		}
+	}
+	/**
+	 * Run the given task and then keep running
+	 * queued tasks on the same thread until there aren't any left.
+	 */
+	private void runAll(Runnable firstTask){
+		Runnable task = firstTask;
+		while(task !=null){
+			try{
+				task.run();
+			}catch(RuntimeException e){
+				//submitted tasks are FutureTasks which keep their own exceptions
+				//so this only happens for tasks passed to execute()
+				Thread thread = Thread.currentThread();
+				thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+			}
+			//don't let cancelling a task that just finished interrupt the next one
+			Thread.interrupted();
+			task = nextTask();
+		}
+	}
+	
+	private final class TrackedTask<T> extends FutureTask<T>{
+
+		TrackedTask(Callable<T> callable) {
+			super(callable);
+		}
+
+		@Override
+		protected void done() {
+			unfinishedTasks.remove(this);
+		}
+	}
+	
+	private synchronized Runnable nextTask(){
+		Runnable next = queuedTasks.poll();
+		if(next ==null){
+			numberOfRunningTasks--;
+		}
+		return next;
+	}
+}
@@ -21,33 +21,57 @@
 package org.jcvi.jillion.internal.core.util.iter;
 
 import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.Arrays;
 import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 import org.jcvi.jillion.core.io.IOUtil;
 import org.jcvi.jillion.core.util.iter.StreamingIterator;
+import org.jcvi.jillion.internal.core.util.DaemonThreadFactory;
 
 /**
  * {@code AbstractBlockingStreamingIterator}
  * is a {@link StreamingIterator} that is
  * meant be used to iterate over a large computationally intensive
- * or memory intensive process.  Only 1 record (the next record
- * to be returned by {@link Iterator#next()}) will be referenced by this class.
- * This class will perform the intensive computation in a background Thread
- * and will block that Thread until the next item to be iterated 
- * is required.  Elements to be iterated over are placed onto the blocking
+ * or memory intensive process.  Only a bounded number of records
+ * (set by the cache size passed to the constructor) will be referenced by this class.
+ * This class will perform the intensive computation in a background task
+ * and will block that task until there is room for more items.
+ * Elements to be iterated over are placed onto the blocking
  * iterator by {@link #blockingPut(Object)}.
+ * <p/>
+ * Elements are handed from the background task to the iterating thread
+ * in batches of up to {@value #MAX_BATCH_SIZE} elements (but never more than the cache size)
+ * to reduce the per-element synchronization costs.  If the iterating thread
+ * runs out of elements and no full batch arrives within a few milliseconds,
+ * it takes the partially filled batch instead, so a slow background task
+ * (for example one parsing data from a pipe) doesn't hold elements back.
+ * The background task is run by an {@link Executor}
+ * which by default is a shared pool of daemon threads
+ * (or virtual threads on JDKs where they don't get pinned by monitors)
+ * so opening an iterator does not create a new Thread or register a shutdown hook.
  * <strong>WARNING:</strong> Client code must be very careful
  * to always make sure that this iterator is closed when finished.
  * If the iterator does not reach the end or
  * if the iterator is not explicitly closed via the {@link #close()}
- * method, then the background thread will block forever. This is 
+ * method, then the background task will block forever. This is 
  * especially true in situations when Exceptions are thrown by other objects.
  * Please make sure {@link StreamingIterator}s are closed in finally blocks.
  * <p/>
- * The background thread is not started until the {@link #start()}
+ * Once the iterator is closed, {@link #blockingPut(Object)} throws
+ * an unchecked exception to stop the background task early.
+ * The exception passes through whatever code
+ * (for example a parser and its visitor) called blockingPut,
+ * so that code should let RuntimeExceptions propagate.  Any exception
+ * thrown by the background task after the iterator is closed is ignored.
+ * <p/>
+ * The background task is not started until the {@link #start()}
  * method is called.  This allows for subclasses to set up
  * and initialize themselves in either the constructor
  * or other pre-process steps.
@@ -106,9 +130,59 @@ import org.jcvi.jillion.core.util.iter.StreamingIterator;
  * @param <T> the type of elements being iterated over.
  */
 public abstract class AbstractBlockingStreamingIterator<T> implements StreamingIterator<T>{
-
+	/**
+	 * The max number of elements handed to the iterating thread at a time.
+	 * 
+	 * @since 6.0.3
+	 */
+	public static final int MAX_BATCH_SIZE = 64;
+	/**
+	 * The cache size to use for iterators over record ids.
+	 * Ids are small so a lot of them can be buffered
+	 * which lets the background task parse further ahead.
+	 * 
+	 * @since 6.0.3
+	 */
+	public static final int ID_CACHE_SIZE = 10_000;
+	
+	private static final Executor BUILT_IN_EXECUTOR = createBuiltInExecutor();
+	
+	private static volatile Executor defaultExecutor = BUILT_IN_EXECUTOR;
+	
+	private static final Object[] END_OF_ITERATION = new Object[0];
+	/**
+	 * How long the iterating thread waits for a full batch
+	 * before taking the partially filled one.
+	 */
+	private static final long PARTIAL_BATCH_WAIT_MILLIS = 10;
+	/**
+	 * How long the iterating thread blocks at a time
+	 * before checking if the background task threw an exception.
+	 */
+	private static final long MAX_WAIT_MILLIS = 1000;
+	
 	private final Object endOfFileToken = new Object();
-    private final BlockingQueue<Object> queue;
+    private final BlockingQueue<Object[]> queue;
+    private final int batchSize;
+    private final Executor executor;
+    /**
+     * Guards the partially filled batch so that the iterating thread
+     * can take it while the background task is still filling it.
+     */
+    private final Object producerLock = new Object();
+    /**
+     * The batch the background task is currently filling;
+     * guarded by producerLock.
+     */
+    private Object[] producerBatch;
+    private int producerBatchSize;
+    /**
+     * The batch currently being iterated over;
+     * only accessed by the iterating thread.
+     */
+    private Object[] consumerBatch = END_OF_ITERATION;
+    private int consumerOffset;
+    
     private volatile Object nextRecord=null;
     private volatile boolean isClosed=false;
     
@@ -118,63 +192,136 @@ public abstract class AbstractBlockingStreamingIterator<T> implements StreamingI
     	this(1);
     }
     public AbstractBlockingStreamingIterator(int cacheSize) {
-    	queue = new LinkedBlockingQueue<Object>(cacheSize);
+    	this(cacheSize, null);
+    }
+    /**
+     * Create a new iterator that will buffer up to 
+     * approximately {@code cacheSize} elements and run its background
+     * task on the given Executor.
+     * @param cacheSize the number of elements to buffer; values less than 1 are treated as 1.
+     * @param executor the {@link Executor} to run the background task;
+     * if null, then {@link #getDefaultExecutor()} is used.
+     * Since the background task blocks until the iterator is consumed or closed,
+     * the Executor must be able to run as many tasks concurrently as 
+     * there are open iterators.
+     * 
+     * @since 6.0.3
+     */
+    public AbstractBlockingStreamingIterator(int cacheSize, Executor executor) {
+    	int size = Math.max(1, cacheSize);
+    	batchSize = Math.min(size, MAX_BATCH_SIZE);
+    	queue = new ArrayBlockingQueue<Object[]>(Math.max(1, size/batchSize));
+    	this.executor = executor ==null ? defaultExecutor : executor;
+    }
+    /**
+     * Get the {@link Executor} used to run background tasks
+     * of iterators that weren't given an Executor.
+     * @return the Executor; will never be null.
+     * 
+     * @since 6.0.3
+     */
+    public static Executor getDefaultExecutor(){
+    	return defaultExecutor;
     }
-
     /**
-     * @throws InterruptedException 
+     * Change the {@link Executor} used to run background tasks
+     * of iterators created after this call that aren't given an Executor.
+     * Since each background task blocks until its iterator is consumed or closed,
+     * the Executor must not have a bounded number of threads
+     * smaller than the number of iterators that will be open at the same time.
+     * @param executor the Executor to use; if null, then the built in 
+     * shared daemon thread pool (or virtual threads) is used.
      * 
+     * @since 6.0.3
      */
+    public static void setDefaultExecutor(Executor executor){
+    	defaultExecutor = executor ==null ? BUILT_IN_EXECUTOR : executor;
+    }
+    
+    private static Executor createBuiltInExecutor(){
+    	//before JDK 24 a virtual thread blocked inside a synchronized
+    	//block pins its carrier thread which could deadlock
+    	//if many iterators are open at the same time
+    	if(Runtime.version().feature() >= 24){
+    		try{
+    			Method m = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+    			return (ExecutorService) m.invoke(null);
+    		}catch(ReflectiveOperationException | RuntimeException e){
+    			//fall through to use platform threads
+    		}
+    	}
+    	return Executors.newCachedThreadPool(new DaemonThreadFactory("jillion-streaming-iterator"));
+    }
+
     private void blockingGetNextRecord(){
-        if(!isClosed){
-            try {
-            	Object obj =null;
-            	while(obj ==null){
-            		//to avoid a deadlock we will 
-            		//stop blocking after 1 second
-            		//to check if an exception was thrown
-            		obj = queue.poll(1, TimeUnit.SECONDS);
-            		if(obj ==null){
-            			//check exception
-            			if(uncaughtException !=null){
-            				nextRecord = null;
-            				break;
-            			}
-            		}else{
-            			nextRecord = obj;
-            		}
-            	}
-				
-			} catch (InterruptedException e) {
-				//assume interrupted is closed?
-				IOUtil.closeAndIgnoreErrors(this);
-			}     
+        if(isClosed){
+        	return;
         }
+        if(consumerOffset < consumerBatch.length){
+        	nextRecord = consumerBatch[consumerOffset];
+        	//don't hold on to records we've already returned
+        	consumerBatch[consumerOffset++] = null;
+        	return;
+        }
+        try {
+        	Object[] batch =null;
+        	long waitMillis = PARTIAL_BATCH_WAIT_MILLIS;
+        	while(batch ==null){
+        		//to avoid a deadlock we will 
+        		//stop blocking after a while
+        		//to check if an exception was thrown
+        		batch = queue.poll(waitMillis, TimeUnit.MILLISECONDS);
+        		if(batch ==null){
+        			batch = takePartialBatch();
+        		}
+        		if(batch ==null){
+        			//check exception
+        			if(uncaughtException !=null || isClosed){
+        				nextRecord = null;
+        				return;
+        			}
+        			waitMillis = Math.min(MAX_WAIT_MILLIS, waitMillis *2);
+        		}
+        	}
+        	if(batch == END_OF_ITERATION){
+        		nextRecord = endOfFileToken;
+        		return;
+        	}
+        	consumerBatch = batch;
+        	nextRecord = batch[0];
+        	batch[0] = null;
+        	consumerOffset = 1;
+		} catch (InterruptedException e) {
+			//assume interrupted is closed?
+			IOUtil.closeAndIgnoreErrors(this);
+		}     
     }
     /**
-     * This starts the visiting in a separate thread.
+     * This starts the visiting in a background task.
      * This method must be called before a client may call
      * {@link #hasNext()} or {@link #next()}.
      */
     public void start(){
-      final IteratorThread iteratorThread =new IteratorThread();
-        iteratorThread.start();
-        //if the vm exits while we are still blocking
-        //we will run forever...
-        //add shutdown hook to try to kill ourselves
-        Runtime.getRuntime().addShutdownHook(new Thread(){
-            @Override
-            public void run() {
-                iteratorThread.kill();
-            }
-        });
+    	executor.execute(this::runBackgroundTask);
         blockingGetNextRecord();
-		
+    }
+    
+    private void runBackgroundTask(){
+    	try{
+    		backgroundThreadRunMethod();
+    		finishedIterating();
+    	}catch(RuntimeException e){
+    		//if we were closed, then this is (possibly wrapped)
+    		//IteratorClosedException or a side effect of stopping early
+    		//and nobody is left to see it
+    		if(!isClosed){
+    			setErroredOut(e);
+    		}
+    	}
     }
     /**
-     * This is the method that is called by the {@link Thread#run()}
-     * instance in the background thread created and started 
-     * in {@link #start()}.  Please set up and start the items
+     * This is the method that is called by the background task
+     * started in {@link #start()}.  Please set up and start the items
      * being iterated over.  Make sure
      * to call
      * {@link #blockingPut(Object)} when appropriate. 
@@ -194,21 +341,88 @@ public abstract class AbstractBlockingStreamingIterator<T> implements StreamingI
 	 * are no more records left to block for.
 	 */
     private void finishedIterating(){
-    	blockingPut(endOfFileToken);
+    	flush();
+    	offer(END_OF_ITERATION);
     }
     /**
      * Put the given object onto the queue to be iterated over
      * and block until there is room for it in the queue.
+     * Objects are buffered into batches which are handed
+     * to the iterating thread when they are full, or sooner
+     * if the iterating thread has been waiting for more elements.
+     * This method should only be called by the background task.
      * @param obj the object to put.
+     * @throws RuntimeException if this iterator has been closed
+     * in order to stop the background task.
      */
     public final void blockingPut(Object obj){
-        if(!isClosed){
-	        try {
-	            queue.put(obj);
-	        } catch (InterruptedException e) {
-	            throw new IllegalStateException(e);
+        if(isClosed){
+        	throw new IteratorClosedException();
+        }
+        Object[] fullBatch = null;
+        synchronized(producerLock){
+	        if(producerBatch ==null){
+	        	producerBatch = new Object[batchSize];
 	        }
-	    }
+	        producerBatch[producerBatchSize++] = obj;
+	        if(producerBatchSize == batchSize){
+	        	fullBatch = removeProducerBatch();
+	        }
+        }
+        //don't hold the lock while blocking on a full queue
+        //or the iterating thread couldn't drain it
+        if(fullBatch !=null){
+        	offer(fullBatch);
+        }
+    }
+    
+    private void flush(){
+    	Object[] batch;
+    	synchronized(producerLock){
+    		batch = removeProducerBatch();
+    	}
+    	if(batch !=null){
+    		offer(batch);
+    	}
+    }
+    /**
+     * Must be called while holding producerLock.
+     * @return the elements put so far or {@code null}
+     * if there aren't any.
+     */
+    private Object[] removeProducerBatch(){
+    	if(producerBatchSize ==0){
+    		return null;
+    	}
+    	Object[] batch = producerBatchSize == producerBatch.length ? producerBatch : Arrays.copyOf(producerBatch, producerBatchSize);
+    	producerBatch = null;
+    	producerBatchSize=0;
+    	return batch;
+    }
+    /**
+     * Called by the iterating thread when
+     * the queue is empty.  The background task offers each
+     * batch it removes before it starts a new one, so while there
+     * is a partially filled batch, every earlier batch is already in the queue.
+     * @return the next batch or {@code null} if there isn't one yet.
+     */
+    private Object[] takePartialBatch(){
+    	synchronized(producerLock){
+    		Object[] batch = queue.poll();
+    		return batch ==null ? removeProducerBatch() : batch;
+    	}
+    }
+    
+    private void offer(Object[] batch){
+    	try {
+    		while(!queue.offer(batch, 1, TimeUnit.SECONDS)){
+    			if(isClosed){
+    				throw new IteratorClosedException();
+    			}
+    		}
+    	} catch (InterruptedException e) {
+    		throw new IllegalStateException(e);
+    	}
     }
     /**
      * 
@@ -294,27 +508,15 @@ public abstract class AbstractBlockingStreamingIterator<T> implements StreamingI
 	 	}
 
 	     /**
-	      * Background thread that runs this iterator
-	      * and can be killed
-	      * @author dkatzel
-	      *
-	      *
+	      * Thrown by {@link AbstractBlockingStreamingIterator#blockingPut(Object)}
+	      * to stop the background task once the iterator has been closed.
 	      */
-	     private class IteratorThread extends Thread{
-	         /**
-	          * closes the blocked iterator.
-	          */
-	         public void kill(){
-	             IOUtil.closeAndIgnoreErrors(AbstractBlockingStreamingIterator.this);                
-	         }
-	         @Override
-	         public void run() {
-	             try{
-	                 backgroundThreadRunMethod();
-	                 finishedIterating();
-	             }catch(RuntimeException e){
-	            	 setErroredOut(e);                
-	             }
-	         }
+	     private static final class IteratorClosedException extends RuntimeException{
+
+			private static final long serialVersionUID = 1L;
+			
+			IteratorClosedException(){
+				super("iterator closed", null, false, false);
+			}
 	     }
 }
@@ -64,7 +64,7 @@ public final class LargeFastaIdIterator extends AbstractBlockingStreamingIterato
      * @param fastaFile
      */
     private LargeFastaIdIterator(FastaParser parser, Predicate<String> filter, Long maxNumberOfIds) {
-    	super(10_000);// these are just ids so we can buffer a lot of them
+    	super(ID_CACHE_SIZE);
         this.parser = parser;
         this.filter = filter;
         this.maxNumberOfIds = maxNumberOfIds;
@@ -22,7 +22,6 @@ package org.jcvi.jillion.internal.fasta.aa;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.function.Predicate;
 
@@ -42,6 +41,7 @@ import org.jcvi.jillion.fasta.aa.AbstractProteinFastaRecordVisitor;
 import org.jcvi.jillion.fasta.aa.ProteinFastaFileDataStore;
 import org.jcvi.jillion.fasta.aa.ProteinFastaRecord;
 import org.jcvi.jillion.internal.core.datastore.DataStoreStreamingIterator;
+import org.jcvi.jillion.internal.core.util.OffHeapStringLongMap;
 
 /**
  * {@code IndexedProteinFastaFileDataStore} is an implementation of 
@@ -118,7 +118,9 @@ public final class IndexedProteinFastaFileDataStore{
 		private final  Predicate<ProteinFastaRecord> recordFilter;
 		private final FastaParser parser;
 		
-		private final Map<String, FastaVisitorCallback.FastaVisitorMemento> mementos = new LinkedHashMap<String, FastaVisitorCallback.FastaVisitorMemento>();
+		//non-redundant mementos are just file offsets so store them off-heap;
+		//the rare redundant defline mementos are kept on-heap
+		private final Map<String, FastaVisitorCallback.FastaVisitorMemento> mementos = OffHeapStringLongMap.createMap(FastaFileParser::createMementoForOffset, FastaFileParser::getOffsetOf);
 		
 		private IndexedProteinFastaDataStoreBuilderVisitor(FastaParser parser, Predicate<String> filter,  Predicate<ProteinFastaRecord> recordFilter) throws IOException {
 			this.filter = filter;
@@ -22,7 +22,6 @@ package org.jcvi.jillion.internal.fasta.qual;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.function.Predicate;
 
@@ -42,6 +41,7 @@ import org.jcvi.jillion.fasta.qual.AbstractQualityFastaRecordVisitor;
 import org.jcvi.jillion.fasta.qual.QualityFastaDataStore;
 import org.jcvi.jillion.fasta.qual.QualityFastaRecord;
 import org.jcvi.jillion.internal.core.datastore.DataStoreStreamingIterator;
+import org.jcvi.jillion.internal.core.util.OffHeapStringLongMap;
 
 /**
  * {@code IndexedProteinFastaFileDataStore} is an implementation of 
@@ -121,7 +121,9 @@ public final class IndexedQualityFastaFileDataStore{
 		private final Predicate<QualityFastaRecord> recordFilter;
 		private final FastaParser parser;
 		
-		private final Map<String, FastaVisitorCallback.FastaVisitorMemento> mementos = new LinkedHashMap<String, FastaVisitorCallback.FastaVisitorMemento>();
+		//non-redundant mementos are just file offsets so store them off-heap;
+		//the rare redundant defline mementos are kept on-heap
+		private final Map<String, FastaVisitorCallback.FastaVisitorMemento> mementos = OffHeapStringLongMap.createMap(FastaFileParser::createMementoForOffset, FastaFileParser::getOffsetOf);
 		
 		private IndexedQualitySequenceFastaDataStoreBuilderVisitor2(FastaParser parser, Predicate<String> filter, Predicate<QualityFastaRecord> recordFilter) throws IOException {
 			this.filter = filter;
@@ -24,4 +24,23 @@ import org.jcvi.jillion.sam.VirtualFileOffset;
 
 public interface IndexerCallback{
 	void encodedIndex(VirtualFileOffset start, VirtualFileOffset end);
+	/**
+	 * Get an {@link IndexerCallback} that captures
+	 * any state this callback currently has
+	 * so that {@link #encodedIndex(VirtualFileOffset, VirtualFileOffset)}
+	 * can be called later, after the compressed
+	 * offsets of the data being written right now are known.
+	 * Writers that compress blocks asynchronously
+	 * use this to delay the callback until the blocks
+	 * have actually been written.
+	 * 
+	 * @return an {@link IndexerCallback}; by default
+	 * returns this instance, implementations that have
+	 * mutable state must return a snapshot.
+	 * 
+	 * @since 6.0.3
+	 */
+	default IndexerCallback deferred(){
+		return this;
+	}
 }
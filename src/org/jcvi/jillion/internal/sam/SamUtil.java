@@ -238,7 +238,21 @@ public final class SamUtil {
 	public static NucleotideSequence readBamEncodedSequence(InputStream in, int seqLength) throws IOException {
 		byte[] seqBytes = new byte[(seqLength+1)/2];
 		IOUtil.blockingRead(in, seqBytes);
-		
+		return decodeBamEncodedSequence(seqBytes, 0, seqLength);
+	}
+	/**
+	 * Decode the BAM 4-bit encoded sequence
+	 * starting at the given offset of the given byte array.
+	 * 
+	 * @param seqBytes the array containing the encoded sequence; can not be null.
+	 * @param offset the offset into the array where the encoded sequence begins.
+	 * @param seqLength the number of bases in the sequence; must be &gt; 0.
+	 * @return a new {@link NucleotideSequence}.
+	 * 
+	 * @since 6.0.3
+	 */
+	public static NucleotideSequence decodeBamEncodedSequence(byte[] seqBytes, int offset, int seqLength) {
+		int numberOfBytes = (seqLength+1)/2;
 		//we turn off data compression since we
 		//usually stream through millions of these records and
 		//often throw the results away
@@ -247,10 +261,10 @@ public final class SamUtil {
 		Nucleotide[] bases = new Nucleotide[seqLength];
 		int j=0;
 		boolean acgtn=true;
-		if(seqBytes.length >1){
+		if(numberOfBytes >1){
         		
         		//first fully populate all but last byte
-        		for(int i=0; i<seqBytes.length-1; i++){
+        		for(int i=offset; i<offset + numberOfBytes-1; i++){
         		    Nucleotide[] pair = PAIR_OF_BAM_ENCODED_BASES[seqBytes[i] & 0xFF];
         		    bases[j++] = pair[0];
         		    bases[j++] = pair[1];
@@ -259,7 +273,7 @@ public final class SamUtil {
                     }
         		}
 		}
-		byte lastByte = seqBytes[seqBytes.length-1];
+		byte lastByte = seqBytes[offset + numberOfBytes-1];
 		//for last byte we should always include high nibble
 		Nucleotide secondToLast = (BAM_ENCODED_BASES[(lastByte>>4) & 0x0F]);
 		bases[j++]=secondToLast;
@@ -70,7 +70,6 @@ public final class IndexUtil {
 			//don't need to use builders
 			//since the file has everything
 			//"prebuilt" for us.
-			int numBins = IOUtil.readSignedInt(in, ByteOrder.LITTLE_ENDIAN);
 			if(!refSeqIer.hasNext()){
 				throw new NullPointerException("no ref " + i);
 			}
@@ -79,51 +78,7 @@ public final class IndexUtil {
 			int maxBin = SamUtil.computeBinFor(new Range.Builder(1)
 											.shift(refSeq.getLength())
 											.build());
-			Bin[] bins = new Bin[numBins];
-			int numOfBinsUsed=0;
-			VirtualFileOffset lowestStart=null, highestEnd =null;
-			Long alignedCount=null, unAlignedCount=null;
-			for(int j=0; j<numBins; j++){
-				int binId = IOUtil.readSignedInt(in, ByteOrder.LITTLE_ENDIAN);
-				int numChunks = IOUtil.readSignedInt(in, ByteOrder.LITTLE_ENDIAN);
-				Chunk[] chunks = new Chunk[numChunks];
-				
-				for(int k =0; k<numChunks; k++){
-					VirtualFileOffset begin = readVirtualFileOffset(in);					
-					VirtualFileOffset end = readVirtualFileOffset(in);
-					chunks[k] =new Chunk(begin, end);
-				}
-				if(binId==METADATA_BIN_ID && maxBin< METADATA_BIN_ID){
-					//picard and samtools violate their
-					//spec and put additional meta data in the
-					//the last bin
-					lowestStart = chunks[0].getBegin();
-					highestEnd = chunks[0].getEnd();
-					
-					alignedCount = chunks[1].getBegin().getEncodedValue();
-					unAlignedCount = chunks[1].getEnd().getEncodedValue();
-					
-				}else{
-					bins[j] = new BaiBin(binId, chunks);
-					numOfBinsUsed++;
-				}
-				
-			}
-			int numIntervals = IOUtil.readSignedInt(in, ByteOrder.LITTLE_ENDIAN);
-			VirtualFileOffset intervals[] = new VirtualFileOffset[numIntervals];
-			for(int j=0; j< numIntervals; j++){
-				intervals[j] =readVirtualFileOffset(in);
-			}
-			BaiRefIndex ref = new BaiRefIndex(Arrays.copyOf(bins, numOfBinsUsed),
-													intervals);
-
-			//set metadata if any
-			ref.setLowestStartOffset(lowestStart);
-			ref.setHighestEndOffset(highestEnd);
-			
-			ref.setAlignedCount(alignedCount);
-			ref.setUnalignedCount(unAlignedCount);
-			
+			ReferenceIndex ref = parseReferenceIndex(in, maxBin< METADATA_BIN_ID);
 			refIndexes.add(ref);
 		}
 		//see if there is any more data
@@ -140,6 +95,66 @@ public final class IndexUtil {
 		return new BamIndex(header, refIndexes, numUnMapped);
 	}
 
+	/**
+	 * Parse a single BAI encoded reference index which
+	 * is also the format used by each reference in a tabix index.
+	 * @param in the {@link InputStream} to parse; can not be null.
+	 * @param metaDataBinAllowed if {@code true}, then a bin with the
+	 * pseudo-bin id 37450 is treated as the samtools metadata bin
+	 * instead of a real bin.
+	 * @return a new {@link ReferenceIndex}; will never be null.
+	 * @throws IOException if there is a problem parsing the index.
+	 * 
+	 * @since 6.0.3
+	 */
+	public static ReferenceIndex parseReferenceIndex(InputStream in, boolean metaDataBinAllowed) throws IOException{
+		int numBins = IOUtil.readSignedInt(in, ByteOrder.LITTLE_ENDIAN);
+		Bin[] bins = new Bin[numBins];
+		int numOfBinsUsed=0;
+		VirtualFileOffset lowestStart=null, highestEnd =null;
+		Long alignedCount=null, unAlignedCount=null;
+		for(int j=0; j<numBins; j++){
+			int binId = IOUtil.readSignedInt(in, ByteOrder.LITTLE_ENDIAN);
+			int numChunks = IOUtil.readSignedInt(in, ByteOrder.LITTLE_ENDIAN);
+			Chunk[] chunks = new Chunk[numChunks];
+			
+			for(int k =0; k<numChunks; k++){
+				VirtualFileOffset begin = readVirtualFileOffset(in);					
+				VirtualFileOffset end = readVirtualFileOffset(in);
+				chunks[k] =new Chunk(begin, end);
+			}
+			if(binId==METADATA_BIN_ID && metaDataBinAllowed){
+				//picard and samtools violate their
+				//spec and put additional meta data in the
+				//the last bin
+				lowestStart = chunks[0].getBegin();
+				highestEnd = chunks[0].getEnd();
+				
+				alignedCount = chunks[1].getBegin().getEncodedValue();
+				unAlignedCount = chunks[1].getEnd().getEncodedValue();
+				
+			}else{
+				bins[numOfBinsUsed++] = new BaiBin(binId, chunks);
+			}
+			
+		}
+		int numIntervals = IOUtil.readSignedInt(in, ByteOrder.LITTLE_ENDIAN);
+		VirtualFileOffset intervals[] = new VirtualFileOffset[numIntervals];
+		for(int j=0; j< numIntervals; j++){
+			intervals[j] =readVirtualFileOffset(in);
+		}
+		BaiRefIndex ref = new BaiRefIndex(Arrays.copyOf(bins, numOfBinsUsed),
+												intervals);
+
+		//set metadata if any
+		ref.setLowestStartOffset(lowestStart);
+		ref.setHighestEndOffset(highestEnd);
+		
+		ref.setAlignedCount(alignedCount);
+		ref.setUnalignedCount(unAlignedCount);
+		return ref;
+	}
+
 	private static VirtualFileOffset readVirtualFileOffset(InputStream in)
 			throws IOException {
 		return new VirtualFileOffset(
@@ -157,45 +172,7 @@ public final class IndexUtil {
 		int numberOfIndexes = indexes.getNumberOfReferenceIndexes();
 		IOUtil.putInt(out,numberOfIndexes, ByteOrder.LITTLE_ENDIAN);
 		for(int i =0; i<numberOfIndexes; i++){
-			ReferenceIndex refIndex = indexes.getReferenceIndex(i);
-			List<Bin> bins;
-			if(includeMetaData){
-				bins = new ArrayList<Bin>(refIndex.getBins());
-				Bin metaDataBin = createFakeMetaDataBin(refIndex);
-				//only write metadata if we have bins
-				if(metaDataBin !=null){
-					bins.add(metaDataBin);
-				}
-			}else{
-				bins = refIndex.getBins();
-			}
-			IOUtil.putInt(out,bins.size(), ByteOrder.LITTLE_ENDIAN);
-			for(Bin bin : bins){
-				IOUtil.putInt(out,bin.getBinNumber(), ByteOrder.LITTLE_ENDIAN);
-				List<Chunk> chunks = bin.getChunks();
-				IOUtil.putInt(out,chunks.size(), ByteOrder.LITTLE_ENDIAN);
-				for(Chunk chunk : chunks){
-					IOUtil.putLong(out,chunk.getBegin().getEncodedValue(), ByteOrder.LITTLE_ENDIAN);
-					IOUtil.putLong(out,chunk.getEnd().getEncodedValue(), ByteOrder.LITTLE_ENDIAN);
-				}
-			}
-			
-			//intervals
-			VirtualFileOffset[] intervals =refIndex.getIntervals();
-			IOUtil.putInt(out,intervals.length, ByteOrder.LITTLE_ENDIAN);
-			long prev =0;
-			for(int j=0; j<intervals.length; j++){
-				VirtualFileOffset current = intervals[j];
-				if(current ==null){
-					//no offset for this interval
-					//use previous?
-					IOUtil.putLong(out, prev, ByteOrder.LITTLE_ENDIAN);
-				}else{
-					long encodedValue = current.getEncodedValue();
-					IOUtil.putLong(out, encodedValue, ByteOrder.LITTLE_ENDIAN);
-					prev = encodedValue;
-				}
-			}
+			writeReferenceIndex(out, indexes.getReferenceIndex(i), includeMetaData);
 		}
 		if(includeMetaData){
 			Long count =indexes.getTotalNumberOfUnmappedReads();
@@ -207,6 +184,58 @@ public final class IndexUtil {
 		
 	}
 
+	/**
+	 * Write a single BAI encoded reference index which
+	 * is also the format used by each reference in a tabix index.
+	 * @param out the {@link OutputStream} to write to; can not be null.
+	 * @param refIndex the {@link ReferenceIndex} to write; can not be null.
+	 * @param includeMetaData should the samtools metadata pseudo-bin
+	 * be written if the reference index has metadata.
+	 * @throws IOException if there is a problem writing the index.
+	 * 
+	 * @since 6.0.3
+	 */
+	public static void writeReferenceIndex(OutputStream out, ReferenceIndex refIndex, boolean includeMetaData) throws IOException{
+		List<Bin> bins;
+		if(includeMetaData){
+			bins = new ArrayList<Bin>(refIndex.getBins());
+			Bin metaDataBin = createFakeMetaDataBin(refIndex);
+			//only write metadata if we have bins
+			if(metaDataBin !=null){
+				bins.add(metaDataBin);
+			}
+		}else{
+			bins = refIndex.getBins();
+		}
+		IOUtil.putInt(out,bins.size(), ByteOrder.LITTLE_ENDIAN);
+		for(Bin bin : bins){
+			IOUtil.putInt(out,bin.getBinNumber(), ByteOrder.LITTLE_ENDIAN);
+			List<Chunk> chunks = bin.getChunks();
+			IOUtil.putInt(out,chunks.size(), ByteOrder.LITTLE_ENDIAN);
+			for(Chunk chunk : chunks){
+				IOUtil.putLong(out,chunk.getBegin().getEncodedValue(), ByteOrder.LITTLE_ENDIAN);
+				IOUtil.putLong(out,chunk.getEnd().getEncodedValue(), ByteOrder.LITTLE_ENDIAN);
+			}
+		}
+		
+		//intervals
+		VirtualFileOffset[] intervals =refIndex.getIntervals();
+		IOUtil.putInt(out,intervals.length, ByteOrder.LITTLE_ENDIAN);
+		long prev =0;
+		for(int j=0; j<intervals.length; j++){
+			VirtualFileOffset current = intervals[j];
+			if(current ==null){
+				//no offset for this interval
+				//use previous?
+				IOUtil.putLong(out, prev, ByteOrder.LITTLE_ENDIAN);
+			}else{
+				long encodedValue = current.getEncodedValue();
+				IOUtil.putLong(out, encodedValue, ByteOrder.LITTLE_ENDIAN);
+				prev = encodedValue;
+			}
+		}
+	}
+
 	private static Bin createFakeMetaDataBin(ReferenceIndex refIndex) {
 		if(!refIndex.hasMetaData() || refIndex.getNumberOfBins()==0){
 			//no meta data
@@ -0,0 +1,407 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.internal.sam.index;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import org.jcvi.jillion.core.Range;
+import org.jcvi.jillion.core.io.IOUtil;
+import org.jcvi.jillion.sam.BgzfOutputStream;
+import org.jcvi.jillion.sam.VirtualFileOffset;
+import org.jcvi.jillion.sam.index.Chunk;
+import org.jcvi.jillion.sam.index.ReferenceIndex;
+/**
+ * {@code TabixIndex} is the in memory representation
+ * of a tabix ({@code .tbi}) index of a BGZF compressed, position sorted
+ * tab delimited file such as a bgzipped VCF file.
+ * <p>
+ * Each reference in a tabix index is encoded exactly the same
+ * way as a reference in a BAI file so the same binning scheme
+ * and {@link ReferenceIndex} implementations are used.
+ * </p>
+ * @author dkatzel
+ *
+ * @since 6.0.3
+ */
+public final class TabixIndex {
+
+	private static final byte[] TABIX_MAGIC = new byte[]{'T','B','I',1};
+	/**
+	 * The tabix format code for VCF files.
+	 */
+	public static final int FORMAT_VCF = 2;
+	/**
+	 * The largest reference length the BAI binning scheme supports.
+	 */
+	public static final int MAX_REFERENCE_LENGTH = 1<<29;
+	
+	private final int format;
+	private final int sequenceColumn, beginColumn, endColumn;
+	private final int metaCharacter;
+	private final int linesToSkip;
+	
+	private final List<String> referenceNames;
+	private final Map<String, Integer> referenceOffsets;
+	private final List<ReferenceIndex> referenceIndexes;
+	/**
+	 * The linear index for each reference; 
+	 * kept here since {@link ReferenceIndex#getIntervals()}
+	 * returns a defensive copy.
+	 */
+	private final VirtualFileOffset[][] intervals;
+	
+	private TabixIndex(int format, int sequenceColumn, int beginColumn, int endColumn, int metaCharacter,
+			int linesToSkip, List<String> referenceNames, List<ReferenceIndex> referenceIndexes) {
+		this.format = format;
+		this.sequenceColumn = sequenceColumn;
+		this.beginColumn = beginColumn;
+		this.endColumn = endColumn;
+		this.metaCharacter = metaCharacter;
+		this.linesToSkip = linesToSkip;
+		this.referenceNames = Collections.unmodifiableList(new ArrayList<>(referenceNames));
+		this.referenceIndexes = Collections.unmodifiableList(new ArrayList<>(referenceIndexes));
+		
+		referenceOffsets = new HashMap<>();
+		intervals = new VirtualFileOffset[referenceIndexes.size()][];
+		for(int i=0; i< intervals.length; i++){
+			referenceOffsets.put(referenceNames.get(i), i);
+			intervals[i] = referenceIndexes.get(i).getIntervals();
+		}
+	}
+	/**
+	 * Parse the given tabix index file.
+	 * @param tbiFile the BGZF compressed tabix index file to parse; can not be null.
+	 * @return a new {@link TabixIndex}; will never be null.
+	 * @throws IOException if there is a problem parsing the file.
+	 */
+	public static TabixIndex parse(File tbiFile) throws IOException{
+		try(InputStream in = new GZIPInputStream(new BufferedInputStream(new FileInputStream(tbiFile)))){
+			return parse(in);
+		}
+	}
+	/**
+	 * Parse an already uncompressed tabix index.
+	 * @param in the uncompressed {@link InputStream} to parse; can not be null.
+	 * @return a new {@link TabixIndex}; will never be null.
+	 * @throws IOException if there is a problem parsing the index.
+	 */
+	public static TabixIndex parse(InputStream in) throws IOException{
+		byte[] magicNumber = IOUtil.readByteArray(in, 4);
+		if(!Arrays.equals(TABIX_MAGIC, magicNumber)){
+			throw new IOException("invalid magic number : " + Arrays.toString(magicNumber));
+		}
+		int numRefs = IOUtil.readSignedInt(in, ByteOrder.LITTLE_ENDIAN);
+		int format = IOUtil.readSignedInt(in, ByteOrder.LITTLE_ENDIAN);
+		int sequenceColumn = IOUtil.readSignedInt(in, ByteOrder.LITTLE_ENDIAN);
+		int beginColumn = IOUtil.readSignedInt(in, ByteOrder.LITTLE_ENDIAN);
+		int endColumn = IOUtil.readSignedInt(in, ByteOrder.LITTLE_ENDIAN);
+		int meta = IOUtil.readSignedInt(in, ByteOrder.LITTLE_ENDIAN);
+		int skip = IOUtil.readSignedInt(in, ByteOrder.LITTLE_ENDIAN);
+		int namesLength = IOUtil.readSignedInt(in, ByteOrder.LITTLE_ENDIAN);
+		byte[] names = IOUtil.readByteArray(in, namesLength);
+		
+		List<String> referenceNames = new ArrayList<>(numRefs);
+		int start=0;
+		for(int i=0; i< names.length; i++){
+			if(names[i]==0){
+				referenceNames.add(new String(names, start, i-start, StandardCharsets.UTF_8));
+				start = i+1;
+			}
+		}
+		if(referenceNames.size() != numRefs){
+			throw new IOException("expected " + numRefs + " reference names but found " + referenceNames.size());
+		}
+		List<ReferenceIndex> refIndexes = new ArrayList<>(numRefs);
+		for(int i=0; i< numRefs; i++){
+			refIndexes.add(IndexUtil.parseReferenceIndex(in, true));
+		}
+		//there might be an optional number of unplaced records
+		//which we don't use.
+		PushbackInputStream in2 = new PushbackInputStream(in, 1);
+		int value = in2.read();
+		if(value != -1){
+			in2.unread(value);
+			IOUtil.readSignedLong(in2, ByteOrder.LITTLE_ENDIAN);
+		}
+		return new TabixIndex(format, sequenceColumn, beginColumn, endColumn, meta, skip, referenceNames, refIndexes);
+	}
+	/**
+	 * Write this index as a BGZF compressed tabix index file.
+	 * @param tbiFile the file to write to; can not be null.
+	 * If the file, or any parent directories
+	 * do not exist, then they will be created.
+	 * @throws IOException if there is a problem writing the file.
+	 */
+	public void write(File tbiFile) throws IOException{
+		try(OutputStream out = new BgzfOutputStream(tbiFile, null)){
+			write(out);
+		}
+	}
+	/**
+	 * Write this index uncompressed to the given {@link OutputStream}.
+	 * The stream is not closed.
+	 * @param out the {@link OutputStream} to write to; can not be null.
+	 * @throws IOException if there is a problem writing the index.
+	 */
+	public void write(OutputStream out) throws IOException{
+		OutputStream buffered = new BufferedOutputStream(out);
+		buffered.write(TABIX_MAGIC);
+		IOUtil.putInt(buffered, referenceNames.size(), ByteOrder.LITTLE_ENDIAN);
+		IOUtil.putInt(buffered, format, ByteOrder.LITTLE_ENDIAN);
+		IOUtil.putInt(buffered, sequenceColumn, ByteOrder.LITTLE_ENDIAN);
+		IOUtil.putInt(buffered, beginColumn, ByteOrder.LITTLE_ENDIAN);
+		IOUtil.putInt(buffered, endColumn, ByteOrder.LITTLE_ENDIAN);
+		IOUtil.putInt(buffered, metaCharacter, ByteOrder.LITTLE_ENDIAN);
+		IOUtil.putInt(buffered, linesToSkip, ByteOrder.LITTLE_ENDIAN);
+		
+		ByteArrayOutputStream names = new ByteArrayOutputStream();
+		for(String name : referenceNames){
+			names.write(name.getBytes(StandardCharsets.UTF_8));
+			names.write(0);
+		}
+		IOUtil.putInt(buffered, names.size(), ByteOrder.LITTLE_ENDIAN);
+		names.writeTo(buffered);
+		for(ReferenceIndex refIndex : referenceIndexes){
+			IndexUtil.writeReferenceIndex(buffered, refIndex, true);
+		}
+		//number of unplaced records
+		IOUtil.putLong(buffered, 0L, ByteOrder.LITTLE_ENDIAN);
+		buffered.flush();
+	}
+	
+	public int getFormat() {
+		return format;
+	}
+
+	public int getSequenceColumn() {
+		return sequenceColumn;
+	}
+
+	public int getBeginColumn() {
+		return beginColumn;
+	}
+
+	public int getEndColumn() {
+		return endColumn;
+	}
+
+	public char getMetaCharacter() {
+		return (char) metaCharacter;
+	}
+
+	public int getLinesToSkip() {
+		return linesToSkip;
+	}
+	/**
+	 * Get the names of all the references
+	 * in this index in the order they appear in the file.
+	 * @return an unmodifiable List; will never be null.
+	 */
+	public List<String> getReferenceNames(){
+		return referenceNames;
+	}
+	/**
+	 * Get the {@link ReferenceIndex} for the given reference name.
+	 * @param referenceName the name of the reference.
+	 * @return the {@link ReferenceIndex} or {@code null} if
+	 * there is no reference with that name in the index.
+	 */
+	public ReferenceIndex getReferenceIndex(String referenceName){
+		Integer offset = referenceOffsets.get(referenceName);
+		return offset==null? null : referenceIndexes.get(offset);
+	}
+	/**
+	 * Find the {@link VirtualFileOffset} of the first
+	 * record that might overlap the given region.  Since
+	 * the file is sorted, every record that overlaps the region
+	 * will be at or after this offset.
+	 * @param referenceName the name of the reference.
+	 * @param begin the 0-based begin coordinate inclusive.
+	 * @param endExclusive the 0-based end coordinate exclusive.
+	 * @return the {@link VirtualFileOffset} to start reading from
+	 * or {@code null} if no records overlap the region.
+	 * @throws IllegalArgumentException if endExclusive &le; begin.
+	 */
+	public VirtualFileOffset findStartOffset(String referenceName, int begin, int endExclusive){
+		if(endExclusive <= begin){
+			throw new IllegalArgumentException("end must be > begin : " +  begin + "  " + endExclusive );
+		}
+		Integer offset = referenceOffsets.get(referenceName);
+		if(offset ==null){
+			return null;
+		}
+		VirtualFileOffset[] linearIndex = intervals[offset];
+		int intervalOffset = IndexUtil.getIntervalOffsetFor(begin);
+		if(intervalOffset >= linearIndex.length){
+			//no records overlap any window this far into the reference
+			return null;
+		}
+		VirtualFileOffset minOffset = linearIndex[intervalOffset];
+		VirtualFileOffset[] best = new VirtualFileOffset[1];
+		referenceIndexes.get(offset).findBinsForAlignmentRange(Range.of(begin, endExclusive-1), bin->{
+			for(Chunk chunk : bin.getChunks()){
+				if(chunk.getEnd().compareTo(minOffset) <= 0){
+					//chunk ends before anything we care about
+					continue;
+				}
+				VirtualFileOffset start = chunk.getBegin().compareTo(minOffset) < 0 ? minOffset : chunk.getBegin();
+				if(best[0] ==null || start.compareTo(best[0]) < 0){
+					best[0] = start;
+				}
+			}
+		});
+		return best[0];
+	}
+	
+	/**
+	 * Builds a {@link TabixIndex} on the fly as 
+	 * sorted records are written to a BGZF compressed file.
+	 * 
+	 * @author dkatzel
+	 *
+	 * @since 6.0.3
+	 */
+	public static final class Builder{
+		private final int format;
+		private final int sequenceColumn, beginColumn, endColumn;
+		private final int metaCharacter;
+		
+		private final Map<String, Integer> referenceLengths = new HashMap<>();
+		private final Map<String, ReferenceIndexBuilder> builders = new LinkedHashMap<>();
+		
+		private String currentReference;
+		private ReferenceIndexBuilder currentBuilder;
+		private int previousBegin;
+		/**
+		 * Create a new Builder for an index of a VCF file.
+		 * @return a new Builder; will never be null.
+		 */
+		public static Builder forVcf(){
+			return new Builder(FORMAT_VCF, 1,2,0, '#');
+		}
+		
+		private Builder(int format, int sequenceColumn, int beginColumn, int endColumn, int metaCharacter) {
+			this.format = format;
+			this.sequenceColumn = sequenceColumn;
+			this.beginColumn = beginColumn;
+			this.endColumn = endColumn;
+			this.metaCharacter = metaCharacter;
+		}
+		/**
+		 * Set the length of the given reference which
+		 * is used to size the index for that reference.  References
+		 * without a known length use {@link TabixIndex#MAX_REFERENCE_LENGTH}.
+		 * @param referenceName the name of the reference; can not be null.
+		 * @param length the length of the reference.
+		 * @return this.
+		 */
+		public Builder setReferenceLength(String referenceName, long length){
+			if(referenceName ==null){
+				throw new NullPointerException("reference name can not be null");
+			}
+			if(length >0){
+				referenceLengths.put(referenceName, (int) Math.min(length, MAX_REFERENCE_LENGTH));
+			}
+			return this;
+		}
+		/**
+		 * Check that a record with the given coordinates
+		 * could be added next without adding it so callers can
+		 * reject a record before writing it out.
+		 * @param referenceName the name of the reference the record is on; can not be null.
+		 * @param begin the 0-based begin coordinate inclusive.
+		 * @param endExclusive the 0-based end coordinate exclusive.
+		 * @throws IllegalArgumentException if the record is not
+		 * in sorted order or is beyond the end of the reference
+		 * (or the largest coordinate supported by tabix).
+		 */
+		public void validateRecord(String referenceName, int begin, int endExclusive){
+			if(referenceName.equals(currentReference)){
+				if(begin < previousBegin){
+					throw new IllegalArgumentException("records must be sorted by position to be indexed: " + referenceName + " " + (begin+1) + " is before " + (previousBegin +1));
+				}
+			}else if(builders.containsKey(referenceName)){
+				throw new IllegalArgumentException("records must be sorted by reference to be indexed: " + referenceName + " seen out of order");
+			}
+			int length = referenceLengths.getOrDefault(referenceName, MAX_REFERENCE_LENGTH);
+			if(endExclusive > length){
+				throw new IllegalArgumentException("record " + referenceName + " [" + begin + ", " + endExclusive + ") extends beyond the reference length " + length);
+			}
+		}
+		/**
+		 * Add a record to the index.  If the record is invalid,
+		 * the index is left unchanged.
+		 * @param referenceName the name of the reference the record is on; can not be null.
+		 * @param begin the 0-based begin coordinate inclusive.
+		 * @param endExclusive the 0-based end coordinate exclusive.
+		 * @param start the {@link VirtualFileOffset} of the beginning of the record.
+		 * @param end the {@link VirtualFileOffset} of the end of the record.
+		 * @return this.
+		 * @throws IllegalArgumentException if the records are not
+		 * added in sorted order or the record is beyond the end of the reference
+		 * (or the largest coordinate supported by tabix).
+		 * @see #validateRecord(String, int, int)
+		 */
+		public Builder addRecord(String referenceName, int begin, int endExclusive, VirtualFileOffset start, VirtualFileOffset end){
+			validateRecord(referenceName, begin, endExclusive);
+			if(!referenceName.equals(currentReference)){
+				currentReference = referenceName;
+				currentBuilder = new ReferenceIndexBuilder(referenceLengths.getOrDefault(referenceName, MAX_REFERENCE_LENGTH));
+				builders.put(referenceName, currentBuilder);
+			}
+			previousBegin = begin;
+			currentBuilder.addAlignment(begin, Math.max(begin+1, endExclusive), start, end);
+			return this;
+		}
+		/**
+		 * Create a new {@link TabixIndex} of all the
+		 * records added so far.
+		 * @return a new {@link TabixIndex}; will never be null.
+		 */
+		public TabixIndex build(){
+			List<String> names = new ArrayList<>(builders.size());
+			List<ReferenceIndex> refIndexes = new ArrayList<>(builders.size());
+			for(Map.Entry<String, ReferenceIndexBuilder> entry : builders.entrySet()){
+				names.add(entry.getKey());
+				refIndexes.add(entry.getValue().build());
+			}
+			return new TabixIndex(format, sequenceColumn, beginColumn, endColumn, metaCharacter, 0, names, refIndexes);
+		}
+	}
+}
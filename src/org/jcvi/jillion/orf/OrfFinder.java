@@ -23,21 +23,28 @@ package org.jcvi.jillion.orf;
 import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.BiConsumer;
 
 import org.jcvi.jillion.core.Range;
+import org.jcvi.jillion.core.datastore.DataStoreException;
 import org.jcvi.jillion.core.residue.Frame;
 import org.jcvi.jillion.core.residue.aa.AminoAcid;
 import org.jcvi.jillion.core.residue.aa.Codon;
 import org.jcvi.jillion.core.residue.aa.IupacTranslationTables;
 import org.jcvi.jillion.core.residue.aa.ProteinSequenceBuilder;
+import org.jcvi.jillion.core.residue.aa.SixFrameTranslation;
 import org.jcvi.jillion.core.residue.aa.TranslationTable;
 import org.jcvi.jillion.core.residue.aa.TranslationVisitor;
 import org.jcvi.jillion.core.residue.nt.NucleotideSequence;
+import org.jcvi.jillion.fasta.nt.NucleotideFastaDataStore;
+import org.jcvi.jillion.internal.core.datastore.ParallelDataStoreMapper;
 
 public class OrfFinder {
     
+    
     public enum FinderOptions{
         SEARCH_FORWARD,
         SEARCH_REVERSE
@@ -53,7 +60,21 @@ public class OrfFinder {
         for(FinderOptions o : finderOptions){
             options.add(o);
         }
-        
+        if(!seq.hasGaps()){
+            //translate all the frames we need in one pass
+            SixFrameTranslation translation = translationTable.translateSixFrames(seq);
+            if(options.contains(FinderOptions.SEARCH_FORWARD)){
+                for(Frame f : Frame.forwardFrames()){
+                    findOrf(translation, f).ifPresent(orfs::add);
+                }
+            }
+            if(options.contains(FinderOptions.SEARCH_REVERSE)){
+                for(Frame f : Frame.reverseFrames()){
+                    findOrf(translation, f).ifPresent(orfs::add);
+                }
+            }
+            return orfs;
+        }
         if(options.contains(FinderOptions.SEARCH_FORWARD)){
             for(Frame f : Frame.forwardFrames()){
                 OrfVisitor visitor = new OrfVisitor(f);
@@ -73,6 +94,98 @@ public class OrfFinder {
         return orfs;
     }
     
+    /**
+     * Find the ORFs of every sequence in the given DataStore
+     * using the {@link IupacTranslationTables#STANDARD} translation table
+     * on both strands.
+     * 
+     * @param datastore the sequences to search; can not be null.
+     * @param numberOfThreads the number of worker threads to use; must be &ge; 1.
+     * @param consumer the consumer of each sequence id and its (possibly empty) list of ORFs; 
+     * can not be null.
+     * @throws DataStoreException if there is a problem iterating over the sequences.
+     * @throws IllegalArgumentException if numberOfThreads &lt; 1.
+     * 
+     * @since 6.0.3
+     * 
+     * @see #find(NucleotideFastaDataStore, int, BiConsumer, TranslationTable, FinderOptions...)
+     */
+    public void find(NucleotideFastaDataStore datastore, int numberOfThreads, BiConsumer<String, List<Orf>> consumer) throws DataStoreException{
+        find(datastore, numberOfThreads, consumer, IupacTranslationTables.STANDARD, FinderOptions.SEARCH_FORWARD, FinderOptions.SEARCH_REVERSE);
+    }
+    /**
+     * Find the ORFs of every sequence in the given DataStore
+     * using the given number of threads.  The sequences are
+     * read and handed to the consumer in the calling thread, in the same order
+     * as the DataStore's iterator, while the ORFs are found
+     * by the worker threads in batches.
+     * 
+     * @param datastore the sequences to search; can not be null.
+     * @param numberOfThreads the number of worker threads to use; must be &ge; 1.
+     * @param consumer the consumer of each sequence id and its (possibly empty) list of ORFs; 
+     * can not be null.
+     * @param translationTable the TranslationTable to use; can not be null.
+     * @param finderOptions the strands to search.
+     * @throws DataStoreException if there is a problem iterating over the sequences.
+     * @throws IllegalArgumentException if numberOfThreads &lt; 1.
+     * @throws NullPointerException if any parameter is null.
+     * 
+     * @since 6.0.3
+     */
+    public void find(NucleotideFastaDataStore datastore, int numberOfThreads, BiConsumer<String, List<Orf>> consumer,
+            TranslationTable translationTable, FinderOptions...finderOptions) throws DataStoreException{
+        Objects.requireNonNull(datastore);
+        Objects.requireNonNull(consumer);
+        Objects.requireNonNull(translationTable);
+        if(numberOfThreads < 1){
+            throw new IllegalArgumentException("number of threads must be >= 1 : " + numberOfThreads);
+        }
+        ParallelDataStoreMapper.map(datastore, numberOfThreads, 
+                record -> new FoundOrfs(record.getId(), find(record.getSequence(), translationTable, finderOptions)), 
+                found -> consumer.accept(found.id, found.orfs));
+    }
+    
+    /**
+     * Same as {@link OrfVisitor}: the ORF goes from the first start
+     * to the next stop, but there is no ORF if a stop comes before
+     * the first start.
+     */
+    private static Optional<Orf> findOrf(SixFrameTranslation translation, Frame frame){
+        int numberOfCodons = translation.getNumberOfCodons(frame);
+        int start = -1;
+        for(int i=0; i< numberOfCodons; i++){
+            Codon codon = translation.getCodon(frame, i);
+            if(start <0){
+                if(codon.isStart()){
+                    start = i;
+                }else if(codon.isStop()){
+                    return Optional.empty();
+                }
+            }else if(codon.isStop()){
+                ProteinSequenceBuilder builder = new ProteinSequenceBuilder(i - start +1);
+                //hardcode an M for the first start
+                builder.append(AminoAcid.Methionine);
+                for(int j= start+1; j<=i; j++){
+                    builder.append(translation.getCodon(frame, j).getAminoAcid());
+                }
+                Range range = Range.of(translation.getCodonRange(frame, start).getBegin(), 
+                                        translation.getCodonRange(frame, i).getEnd());
+                return Optional.of(new Orf(frame, builder.build(), range));
+            }
+        }
+        return Optional.empty();
+    }
+    
+    private static final class FoundOrfs{
+        private final String id;
+        private final List<Orf> orfs;
+        
+        FoundOrfs(String id, List<Orf> orfs) {
+            this.id = id;
+            this.orfs = orfs;
+        }
+    }
+    
     private static class OrfVisitor implements TranslationVisitor{
 
         ProteinSequenceBuilder builder = new ProteinSequenceBuilder();
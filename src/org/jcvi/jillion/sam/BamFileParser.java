@@ -20,7 +20,6 @@
  ******************************************************************************/
 package org.jcvi.jillion.sam;
 
-import java.io.ByteArrayInputStream;
 import java.io.EOFException;
 import java.io.File;
 import java.io.FileNotFoundException;
@@ -37,22 +36,11 @@ import java.util.function.Predicate;
 import org.jcvi.jillion.core.Range;
 import org.jcvi.jillion.core.io.FileUtil;
 import org.jcvi.jillion.core.io.IOUtil;
-import org.jcvi.jillion.core.qual.QualitySequence;
-import org.jcvi.jillion.core.qual.QualitySequenceBuilder;
-import org.jcvi.jillion.core.residue.nt.NucleotideSequence;
-import org.jcvi.jillion.internal.core.io.OpenAwareInputStream;
 import org.jcvi.jillion.internal.core.io.TextLineParser;
 import org.jcvi.jillion.internal.sam.SamUtil;
 import org.jcvi.jillion.sam.SamVisitor.SamVisitorCallback.SamVisitorMemento;
-import org.jcvi.jillion.sam.attribute.InvalidAttributeException;
 import org.jcvi.jillion.sam.attribute.ReservedAttributeValidator;
-import org.jcvi.jillion.sam.attribute.SamAttribute;
-import org.jcvi.jillion.sam.attribute.SamAttributeKey;
-import org.jcvi.jillion.sam.attribute.SamAttributeKeyFactory;
-import org.jcvi.jillion.sam.attribute.SamAttributeType;
 import org.jcvi.jillion.sam.attribute.SamAttributeValidator;
-import org.jcvi.jillion.sam.cigar.Cigar;
-import org.jcvi.jillion.sam.cigar.CigarOperation;
 import org.jcvi.jillion.sam.header.SamHeader;
 import org.jcvi.jillion.sam.header.SamHeaderBuilder;
 import org.jcvi.jillion.sam.header.SamReferenceSequenceBuilder;
@@ -71,11 +59,25 @@ class BamFileParser extends AbstractSamFileParser {
 	protected final String[] refNames;
 	protected final SamHeader header;
 	
+	private final int inflaterThreads;
+	private final int readAheadBlocks;
+	private final boolean lazyRecordDecoding;
 	
 	public BamFileParser(File bamFile) throws IOException {
 		this(bamFile, ReservedAttributeValidator.INSTANCE);
 	}
 	public BamFileParser(File bamFile, SamAttributeValidator validator) throws IOException {
+		this(bamFile, validator, 0, 0, false);
+	}
+	
+	public BamFileParser(File bamFile, SamParserFactory.Parameters parameters) throws IOException {
+		this(bamFile, parameters.getAttributeValidator(), 
+				parameters.getBgzfInflaterThreads(), parameters.computeBgzfReadAheadBlocks(),
+				parameters.isLazyBamRecordDecoding());
+	}
+	
+	private BamFileParser(File bamFile, SamAttributeValidator validator, int inflaterThreads, int readAheadBlocks,
+			boolean lazyRecordDecoding) throws IOException {
 		if(bamFile ==null){
 			throw new NullPointerException("bam file can not be null");
 		}
@@ -93,6 +95,9 @@ class BamFileParser extends AbstractSamFileParser {
 		}
 		this.bamFile = bamFile;
 		this.validator = validator;
+		this.inflaterThreads = inflaterThreads;
+		this.readAheadBlocks = readAheadBlocks;
+		this.lazyRecordDecoding = lazyRecordDecoding;
 		
 		try(BgzfInputStream in = new BgzfInputStream(bamFile)){
 			
@@ -106,6 +111,27 @@ class BamFileParser extends AbstractSamFileParser {
 	
 	
 	
+	/**
+	 * Open a new {@link BgzfInputStream} to the beginning
+	 * of our BAM file using our inflater settings.
+	 * @return a new {@link BgzfInputStream}; will never be null.
+	 * @throws IOException if there is a problem opening the file.
+	 */
+	protected BgzfInputStream openBgzfStream() throws IOException{
+		return BgzfInputStream.create(bamFile, inflaterThreads, readAheadBlocks);
+	}
+	/**
+	 * Open a new {@link BgzfInputStream} to our BAM file
+	 * that has already been seeked to the given {@link VirtualFileOffset}
+	 * using our inflater settings.
+	 * @param start the {@link VirtualFileOffset} to start from; can not be null.
+	 * @return a new {@link BgzfInputStream}; will never be null.
+	 * @throws IOException if there is a problem opening the file.
+	 */
+	protected BgzfInputStream openBgzfStream(VirtualFileOffset start) throws IOException{
+		return BgzfInputStream.create(bamFile, start, inflaterThreads, readAheadBlocks);
+	}
+	
 	@Override
 	public SamHeader getHeader() throws IOException {
 		return header;
@@ -200,7 +226,7 @@ class BamFileParser extends AbstractSamFileParser {
 		
 		
 		
-		try(BgzfInputStream in = BgzfInputStream.create(bamFile, vfs)){
+		try(BgzfInputStream in = openBgzfStream(vfs)){
 			AtomicBoolean keepParsing = new AtomicBoolean(true);
 			
 			parseBamRecords(visitor, options.filterAsPredicate(), (v)->true, in, keepParsing, options.shouldCreateMementos()?new BamCallback(keepParsing, vfs):new MementoLessBamCallback(keepParsing), null);
@@ -213,7 +239,7 @@ class BamFileParser extends AbstractSamFileParser {
 		if(visitor ==null){
 			throw new NullPointerException("visitor can not be null");
 		}
-		try(BgzfInputStream in=new BgzfInputStream(bamFile)){			
+		try(BgzfInputStream in=openBgzfStream()){			
 			if(recordFilter==null) {
 				parseBamFromBeginning(visitor, enableMementos, predicate, (vfs)->true, in);
 			}else {
@@ -255,6 +281,24 @@ class BamFileParser extends AbstractSamFileParser {
 			Predicate<VirtualFileOffset> keepParsingPredicate, BgzfInputStream in, 
 			AtomicBoolean keepParsing, AbstractBamCallback callback,
 			VirtualFileOffset readUntilAtLeast) throws IOException {
+		parseBamRecords(visitor, filter, keepParsingPredicate, r-> true, in, keepParsing, callback, readUntilAtLeast);
+	}
+	/**
+	 * Parse the records from the given stream until either 
+	 * the end of the stream is reached, the visitor halts parsing
+	 * or one of the keep parsing predicates returns false.
+	 * 
+	 * @param keepParsingRecordPredicate a predicate that is tested 
+	 * on each parsed record before the filter; if it returns false 
+	 * the record is not visited and parsing stops.
+	 * 
+	 * @since 6.0.3
+	 */
+	protected void parseBamRecords(SamVisitor visitor, Predicate<SamRecord> filter,
+			Predicate<VirtualFileOffset> keepParsingPredicate, 
+			Predicate<SamRecord> keepParsingRecordPredicate, BgzfInputStream in, 
+			AtomicBoolean keepParsing, AbstractBamCallback callback,
+			VirtualFileOffset readUntilAtLeast) throws IOException {
 		
 		boolean canceledByPredicate=false;
 		VirtualFileOffset end=null;
@@ -265,7 +309,7 @@ class BamFileParser extends AbstractSamFileParser {
 				SamRecord record = parseNextSamRecord(in, refNames, header);
 				
 				end = in.getCurrentVirutalFileOffset();
-				if(keepParsingPredicate.test(start)){
+				if(keepParsingPredicate.test(start) && keepParsingRecordPredicate.test(record)){
 					if(filter.test(record)){
 					    callback.updateCurrentPosition(start);
 					    visitor.visitRecord(callback, record, start,end);
@@ -301,96 +345,12 @@ class BamFileParser extends AbstractSamFileParser {
 	private SamRecord parseNextSamRecord(InputStream in, String[] refNames, SamHeader header) throws IOException {
 		//next alignment
 		int blockSize = getSignedInt(in);
-		SamRecordBuilder builder = new SamRecordBuilder(header, validator);
-		
-		int refId = getSignedInt(in);
-		if(refId >=0){
-			builder.setReferenceName(refNames[refId]);
-		}
-		//NOTE bam is 0-based while
-		//SAM is 1-based
-		int startPos = getSignedInt(in)+1;
-		builder.setStartPosition(startPos);
-		long binMqReadLength = getUnsignedInt(in);
-		//don't care about bin we can recompute it 
-		//if we need it
-		//int bin = (int)((binMqReadLength>>16) & 0xFFFF);
-
-		byte mapQuality = (byte)((binMqReadLength>>8) & 0xFF);
-		builder.setMappingQuality(mapQuality);
-		int readNameLength = (int)(binMqReadLength & 0xFF);
-		
-		long flagsNumCigarOps = getUnsignedInt(in);
-		int bitFlags = (int)((flagsNumCigarOps>>16) & 0xFFFF);
-		
-		builder.setFlags(bitFlags);
-		int numCigarOps = (int)(flagsNumCigarOps & 0xFFFF);
-		int seqLength = getSignedInt(in);
-		
-		
-		int nextRefId = getSignedInt(in);
-		if(nextRefId >=0){
-			builder.setNextReferenceName(refNames[nextRefId]);
-		}
-		//NOTE bam is 0-based while
-		//SAM is 1-based
-		builder.setNextPosition(getSignedInt(in)+1);
-		builder.setObservedTemplateLength(getSignedInt(in));
-		
-		String readId = readNullTerminatedString(in, readNameLength);
-		builder.setQueryName(readId);
-		
-		
-		if(numCigarOps >0){
-			Cigar cigar = parseCigar(in, numCigarOps);
-			builder.setCigar(cigar);
-		}
-		if(seqLength >0){			
-			NucleotideSequence seq = SamUtil.readBamEncodedSequence(in,seqLength);
-			builder.setSequence(seq);
-			builder.setQualities(readQualities(in, seqLength));			
-		}
-		//bytes read so far
-		//8*int32s + char[readNameLength) + int32[numCigarOps] +uint8[(l_seq+1)/2] +char[l_seq])
-		int bytesReadSoFar = 32+ 4*numCigarOps + readNameLength+ (seqLength+1)/2+ seqLength;
-
-		parseAttributesIfAnyAndAddToBuilder(in, builder, blockSize,	bytesReadSoFar);
-		
-		
-		return builder.build();
-	}
-	private Cigar parseCigar(InputStream in, int numCigarOps)
-			throws IOException {
-		Cigar.Builder cigarBuilder = new Cigar.Builder(numCigarOps);
-		for(int i=0; i<numCigarOps; i++){
-			long bits = getUnsignedInt(in);
-			int opCode = (int)(bits &0xF);
-			int length = (int)(bits>>4);
-			cigarBuilder.addElement(CigarOperation.parseBinary(opCode), length);
-		}
-		return cigarBuilder.build();
-	}
-	private void parseAttributesIfAnyAndAddToBuilder(InputStream in,
-			SamRecordBuilder builder, int blockSize, int bytesReadSoFar)
-			throws IOException {
-		int attributeByteLength =  blockSize - bytesReadSoFar;
-		if(attributeByteLength >0){
-			//to simplify parsing
-			//to slurp up the all the bytes for the attributes
-			//and read through them as a new InputStream
-			byte[] attributeBytes = new byte[attributeByteLength];
-			IOUtil.blockingRead(in, attributeBytes);
-			OpenAwareInputStream attributeStream = new OpenAwareInputStream(new ByteArrayInputStream(attributeBytes));
-			while(attributeStream.isOpen()){
-				
-				SamAttribute attribute = parseAttribute(attributeStream);
-				try {
-					builder.addAttribute(attribute);
-				} catch (InvalidAttributeException e) {
-					throw new IOException("invalid attribute " + attribute, e);
-				}
-			}
+		byte[] data = new byte[blockSize];
+		IOUtil.blockingRead(in, data);
+		if(lazyRecordDecoding){
+			return new LazyBamSamRecord(data, header, validator, refNames);
 		}
+		return BamRecordDecoder.decode(data, header, validator, refNames);
 	}
 	private String[] parseReferenceNamesAndAddToHeader(InputStream in,
 			SamHeaderBuilder headerBuilder) throws IOException {
@@ -419,111 +379,6 @@ class BamFileParser extends AbstractSamFileParser {
 		}
 		return refNames;
 	}
-	private SamAttribute parseAttribute(OpenAwareInputStream in) throws IOException {
-		SamAttributeKey key = SamAttributeKeyFactory.getKey((char) in.read(), (char) in.read());
-		
-		char type = (char) in.read();
-		switch(type){
-		//all single integer types are actually just SIGNED_INT in SAM
-			case 'i' :  return new SamAttribute(key, SamAttributeType.SIGNED_INT,  IOUtil.readSignedInt(in));
-			case 'I' : return new SamAttribute(key, SamAttributeType.UNSIGNED_INT, IOUtil.readUnsignedInt(in));
-
-			case 'Z' : return new SamAttribute(key, SamAttributeType.STRING, readNullTerminatedStringAttribute(in));
-			case 'B' : return handleArray(key,in);
-			case 'A':
-				return new SamAttribute(key, SamAttributeType.PRINTABLE_CHARACTER,  Character.valueOf((char)in.read()));
-			case 'c':
-				return new SamAttribute(key, SamAttributeType.SIGNED_INT,  in.read());
-			case 'C' : return new SamAttribute(key, SamAttributeType.SIGNED_INT,  IOUtil.readUnsignedByte(in));
-			case 's' : return new SamAttribute(key, SamAttributeType.SIGNED_INT,  IOUtil.readSignedShort(in));
-			case 'S' : return new SamAttribute(key, SamAttributeType.SIGNED_INT,  IOUtil.readUnsignedShort(in));
-			
-			case 'f' : return new SamAttribute(key, SamAttributeType.FLOAT,  IOUtil.readFloat(in));
-			
-			
-			case 'H' : return new SamAttribute(key, SamAttributeType.BYTE_ARRAY_IN_HEX,  toByteArray(readNullTerminatedStringAttribute(in))); 
-			default : throw new IOException("unknown type : " + type);
-		}
-		
-	}
-	
-	
-	private SamAttribute handleArray(SamAttributeKey key, OpenAwareInputStream in) throws IOException {
-		char arrayType = (char) in.read();
-		int length = IOUtil.readSignedInt(in);
-		//for memory packing, we read everything as
-		//signed primitives. The SamAttributeType
-		//class will handle converting the signed to unsigned
-		//values for us without having to take up 2x the memory.
-		switch(arrayType){
-			case 'i' : return new SamAttribute(key, SamAttributeType.SIGNED_INT_ARRAY, IOUtil.readIntArray(in, length));
-			case 'I' : return new SamAttribute(key, SamAttributeType.UNSIGNED_INT_ARRAY, IOUtil.readIntArray(in, length));
-			
-			case 'c':
-				return new SamAttribute(key, SamAttributeType.SIGNED_BYTE_ARRAY, IOUtil.readByteArray(in, length));
-			case 'C' : return new SamAttribute(key, SamAttributeType.UNSIGNED_BYTE_ARRAY, IOUtil.readByteArray(in, length));
-			case 's' : return new SamAttribute(key, SamAttributeType.SIGNED_SHORT_ARRAY, IOUtil.readShortArray(in, length));
-			case 'S' : return new SamAttribute(key, SamAttributeType.UNSIGNED_SHORT_ARRAY, IOUtil.readShortArray(in, length));
-			
-			case 'f' : return new SamAttribute(key, SamAttributeType.FLOAT_ARRAY, IOUtil.readFloatArray(in, length));
-			
-			default : throw new IOException("unknown array type : " + arrayType);
-		}
-
-	}
-
-	private byte[] toByteArray(String hex) {
-		//2 chars per byte
-		byte[] array = new byte[hex.length()/2];
-		char[] chars = hex.toCharArray();
-		for(int i=0; i<chars.length; i+=2){
-			array[i] = Byte.parseByte(new String(chars, i, 2),16);
-		}
-		return array;
-	}
-	
-	private String readNullTerminatedStringAttribute(OpenAwareInputStream in) throws IOException {
-		//it looks like Strings are just null terminated
-		//the length is not encoded
-		//so just keep reading till we get to '\0'
-		boolean done = false;
-		StringBuilder builder = new StringBuilder();
-		do{
-			int value = in.read();
-			if(value == -1 || value ==0){
-				done =true;
-			}else{
-				builder.append((char)value);
-			}
-		}while(!done && in.isOpen());
-		return builder.toString();
-	}
-	
-	
-	private QualitySequence readQualities(InputStream in, int seqLength) throws IOException{
-		byte[] bytes = new byte[seqLength];
-		IOUtil.blockingRead(in, bytes);
-		if(bytes[0] == -1){
-			//assume all values are negative
-			/*
-			//check all neg
-			for(int i=1; i<bytes.length; i++){
-				if(bytes[i] != -1){
-					throw new IllegalStateException("invalid qualities some but not all values are set");
-				}
-			}
-			*/
-			//if we are here all are -1 (not set)
-			return null;
-		}
-		return new QualitySequenceBuilder(bytes)
-					//we turn off data compression since we
-					//usually stream through millions of these records and
-					//often throw the results away
-					//so we don't care if temporarily we take up more memory
-					.turnOffDataCompression(true)
-					.build();
-	}
 	private long getUnsignedInt(InputStream in) throws IOException {
 		return IOUtil.readUnsignedInt(in, ByteOrder.LITTLE_ENDIAN);
 	}
@@ -0,0 +1,344 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.sam;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.jcvi.jillion.core.io.IOUtil;
+import org.jcvi.jillion.core.qual.QualitySequence;
+import org.jcvi.jillion.core.qual.QualitySequenceBuilder;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequence;
+import org.jcvi.jillion.internal.core.io.OpenAwareInputStream;
+import org.jcvi.jillion.internal.sam.SamUtil;
+import org.jcvi.jillion.sam.attribute.InvalidAttributeException;
+import org.jcvi.jillion.sam.attribute.SamAttribute;
+import org.jcvi.jillion.sam.attribute.SamAttributeKey;
+import org.jcvi.jillion.sam.attribute.SamAttributeKeyFactory;
+import org.jcvi.jillion.sam.attribute.SamAttributeType;
+import org.jcvi.jillion.sam.attribute.SamAttributeValidator;
+import org.jcvi.jillion.sam.cigar.Cigar;
+import org.jcvi.jillion.sam.cigar.CigarOperation;
+import org.jcvi.jillion.sam.header.SamHeader;
+/**
+ * Utility class to decode the fields of a single
+ * BAM encoded alignment record directly from its raw bytes.
+ * The byte arrays passed to these methods contain
+ * everything in the record after the {@code block_size} field.
+ * 
+ * @author dkatzel
+ *
+ * @since 6.0.3
+ */
+final class BamRecordDecoder {
+
+	private static final int REF_ID_OFFSET = 0;
+	private static final int POS_OFFSET = 4;
+	private static final int READ_NAME_LENGTH_OFFSET = 8;
+	private static final int MAPQ_OFFSET = 9;
+	private static final int NUM_CIGAR_OPS_OFFSET = 12;
+	private static final int FLAG_OFFSET = 14;
+	private static final int SEQ_LENGTH_OFFSET = 16;
+	private static final int NEXT_REF_ID_OFFSET = 20;
+	private static final int NEXT_POS_OFFSET = 24;
+	private static final int TEMPLATE_LENGTH_OFFSET = 28;
+	private static final int READ_NAME_OFFSET = 32;
+	
+	private BamRecordDecoder(){
+		//can not instantiate
+	}
+	
+	private static int getInt(byte[] data, int offset){
+		return (data[offset] & 0xFF)
+				| (data[offset+1] & 0xFF) << 8
+				| (data[offset+2] & 0xFF) << 16
+				| (data[offset+3] & 0xFF) << 24;
+	}
+	
+	private static int getUnsignedShort(byte[] data, int offset){
+		return (data[offset] & 0xFF) | (data[offset+1] & 0xFF) << 8;
+	}
+	
+	static int getReferenceIndex(byte[] data){
+		return getInt(data, REF_ID_OFFSET);
+	}
+	/**
+	 * Get the 1-based start position.
+	 */
+	static int getStartPosition(byte[] data){
+		//NOTE bam is 0-based while
+		//SAM is 1-based
+		return getInt(data, POS_OFFSET) +1;
+	}
+	
+	static byte getMappingQuality(byte[] data){
+		return data[MAPQ_OFFSET];
+	}
+	
+	static int getFlags(byte[] data){
+		return getUnsignedShort(data, FLAG_OFFSET);
+	}
+	
+	static int getNextReferenceIndex(byte[] data){
+		return getInt(data, NEXT_REF_ID_OFFSET);
+	}
+	/**
+	 * Get the 1-based mate start position.
+	 */
+	static int getNextPosition(byte[] data){
+		return getInt(data, NEXT_POS_OFFSET) +1;
+	}
+	
+	static int getObservedTemplateLength(byte[] data){
+		return getInt(data, TEMPLATE_LENGTH_OFFSET);
+	}
+	
+	private static int getReadNameLength(byte[] data){
+		return data[READ_NAME_LENGTH_OFFSET] & 0xFF;
+	}
+	
+	private static int getNumberOfCigarOps(byte[] data){
+		return getUnsignedShort(data, NUM_CIGAR_OPS_OFFSET);
+	}
+	
+	private static int getSequenceLength(byte[] data){
+		return getInt(data, SEQ_LENGTH_OFFSET);
+	}
+	
+	private static int getCigarOffset(byte[] data){
+		return READ_NAME_OFFSET + getReadNameLength(data);
+	}
+	
+	private static int getSequenceOffset(byte[] data){
+		return getCigarOffset(data) + 4 * getNumberOfCigarOps(data);
+	}
+	
+	private static int getQualitiesOffset(byte[] data){
+		return getSequenceOffset(data) + (getSequenceLength(data) +1)/2;
+	}
+	
+	private static int getAttributesOffset(byte[] data){
+		return getQualitiesOffset(data) + getSequenceLength(data);
+	}
+	
+	static String decodeQueryName(byte[] data){
+		int lengthIncludingNull = getReadNameLength(data);
+		if(lengthIncludingNull ==0){
+			return "";
+		}
+		//don't include \0 at end of string
+		return new String(data, READ_NAME_OFFSET, lengthIncludingNull-1, IOUtil.UTF_8);
+	}
+	/**
+	 * Decode the Cigar.
+	 * @return the {@link Cigar} or {@code null} if there are no cigar operations.
+	 */
+	static Cigar decodeCigar(byte[] data){
+		int numCigarOps = getNumberOfCigarOps(data);
+		if(numCigarOps ==0){
+			return null;
+		}
+		int offset = getCigarOffset(data);
+		Cigar.Builder cigarBuilder = new Cigar.Builder(numCigarOps);
+		for(int i=0; i<numCigarOps; i++, offset+=4){
+			int bits = getInt(data, offset);
+			int opCode = bits &0xF;
+			int length = bits>>>4;
+			cigarBuilder.addElement(CigarOperation.parseBinary(opCode), length);
+		}
+		return cigarBuilder.build();
+	}
+	/**
+	 * Decode the sequence.
+	 * @return the {@link NucleotideSequence} or {@code null} if there is no sequence.
+	 */
+	static NucleotideSequence decodeSequence(byte[] data){
+		int seqLength = getSequenceLength(data);
+		if(seqLength <=0){
+			return null;
+		}
+		return SamUtil.decodeBamEncodedSequence(data, getSequenceOffset(data), seqLength);
+	}
+	/**
+	 * Decode the qualities.
+	 * @return the {@link QualitySequence} or {@code null} if there is no sequence
+	 * or the qualities are not set.
+	 */
+	static QualitySequence decodeQualities(byte[] data){
+		int seqLength = getSequenceLength(data);
+		if(seqLength <=0){
+			return null;
+		}
+		int offset = getQualitiesOffset(data);
+		if(data[offset] == -1){
+			//assume all values are negative
+			//if we are here all are -1 (not set)
+			return null;
+		}
+		return new QualitySequenceBuilder(Arrays.copyOfRange(data, offset, offset + seqLength))
+					//we turn off data compression since we
+					//usually stream through millions of these records and
+					//often throw the results away
+					//so we don't care if temporarily we take up more memory
+					.turnOffDataCompression(true)
+					.build();
+	}
+	/**
+	 * Fully decode all the fields of the record into a new {@link SamRecord}
+	 * validating the attributes as they are added.
+	 * 
+	 * @param data the raw bytes of the record.
+	 * @param header the {@link SamHeader} of the file.
+	 * @param validator the {@link SamAttributeValidator} to use.
+	 * @param refNames the reference names in the order of the BAM reference indexes.
+	 * @return a new {@link SamRecord}.
+	 * @throws IOException if any attributes are invalid.
+	 */
+	static SamRecord decode(byte[] data, SamHeader header, SamAttributeValidator validator, String[] refNames) throws IOException{
+		SamRecordBuilder builder = new SamRecordBuilder(header, validator);
+		
+		int refId = getReferenceIndex(data);
+		if(refId >=0){
+			builder.setReferenceName(refNames[refId]);
+		}
+		builder.setStartPosition(getStartPosition(data));
+		builder.setMappingQuality(getMappingQuality(data));
+		builder.setFlags(getFlags(data));
+		
+		int nextRefId = getNextReferenceIndex(data);
+		if(nextRefId >=0){
+			builder.setNextReferenceName(refNames[nextRefId]);
+		}
+		builder.setNextPosition(getNextPosition(data));
+		builder.setObservedTemplateLength(getObservedTemplateLength(data));
+		
+		builder.setQueryName(decodeQueryName(data));
+		
+		Cigar cigar = decodeCigar(data);
+		if(cigar !=null){
+			builder.setCigar(cigar);
+		}
+		NucleotideSequence seq = decodeSequence(data);
+		if(seq !=null){
+			builder.setSequence(seq);
+			builder.setQualities(decodeQualities(data));
+		}
+		
+		int attributesOffset = getAttributesOffset(data);
+		if(attributesOffset < data.length){
+			OpenAwareInputStream attributeStream = new OpenAwareInputStream(
+					new ByteArrayInputStream(data, attributesOffset, data.length - attributesOffset));
+			while(attributeStream.isOpen()){
+				
+				SamAttribute attribute = parseAttribute(attributeStream);
+				try {
+					builder.addAttribute(attribute);
+				} catch (InvalidAttributeException e) {
+					throw new IOException("invalid attribute " + attribute, e);
+				}
+			}
+		}
+		return builder.build();
+	}
+	
+	private static SamAttribute parseAttribute(OpenAwareInputStream in) throws IOException {
+		SamAttributeKey key = SamAttributeKeyFactory.getKey((char) in.read(), (char) in.read());
+		
+		char type = (char) in.read();
+		switch(type){
+		//all single integer types are actually just SIGNED_INT in SAM
+			case 'i' :  return new SamAttribute(key, SamAttributeType.SIGNED_INT,  IOUtil.readSignedInt(in));
+			case 'I' : return new SamAttribute(key, SamAttributeType.UNSIGNED_INT, IOUtil.readUnsignedInt(in));
+
+			case 'Z' : return new SamAttribute(key, SamAttributeType.STRING, readNullTerminatedStringAttribute(in));
+			case 'B' : return handleArray(key,in);
+			case 'A':
+				return new SamAttribute(key, SamAttributeType.PRINTABLE_CHARACTER,  Character.valueOf((char)in.read()));
+			case 'c':
+				return new SamAttribute(key, SamAttributeType.SIGNED_INT,  in.read());
+			case 'C' : return new SamAttribute(key, SamAttributeType.SIGNED_INT,  IOUtil.readUnsignedByte(in));
+			case 's' : return new SamAttribute(key, SamAttributeType.SIGNED_INT,  IOUtil.readSignedShort(in));
+			case 'S' : return new SamAttribute(key, SamAttributeType.SIGNED_INT,  IOUtil.readUnsignedShort(in));
+			
+			case 'f' : return new SamAttribute(key, SamAttributeType.FLOAT,  IOUtil.readFloat(in));
+			
+			
+			case 'H' : return new SamAttribute(key, SamAttributeType.BYTE_ARRAY_IN_HEX,  toByteArray(readNullTerminatedStringAttribute(in))); 
+			default : throw new IOException("unknown type : " + type);
+		}
+		
+	}
+	
+	
+	private static SamAttribute handleArray(SamAttributeKey key, OpenAwareInputStream in) throws IOException {
+		char arrayType = (char) in.read();
+		int length = IOUtil.readSignedInt(in);
+		//for memory packing, we read everything as
+		//signed primitives. The SamAttributeType
+		//class will handle converting the signed to unsigned
+		//values for us without having to take up 2x the memory.
+		switch(arrayType){
+			case 'i' : return new SamAttribute(key, SamAttributeType.SIGNED_INT_ARRAY, IOUtil.readIntArray(in, length));
+			case 'I' : return new SamAttribute(key, SamAttributeType.UNSIGNED_INT_ARRAY, IOUtil.readIntArray(in, length));
+			
+			case 'c':
+				return new SamAttribute(key, SamAttributeType.SIGNED_BYTE_ARRAY, IOUtil.readByteArray(in, length));
+			case 'C' : return new SamAttribute(key, SamAttributeType.UNSIGNED_BYTE_ARRAY, IOUtil.readByteArray(in, length));
+			case 's' : return new SamAttribute(key, SamAttributeType.SIGNED_SHORT_ARRAY, IOUtil.readShortArray(in, length));
+			case 'S' : return new SamAttribute(key, SamAttributeType.UNSIGNED_SHORT_ARRAY, IOUtil.readShortArray(in, length));
+			
+			case 'f' : return new SamAttribute(key, SamAttributeType.FLOAT_ARRAY, IOUtil.readFloatArray(in, length));
+			
+			default : throw new IOException("unknown array type : " + arrayType);
+		}
+
+	}
+
+	private static byte[] toByteArray(String hex) {
+		//2 chars per byte
+		byte[] array = new byte[hex.length()/2];
+		char[] chars = hex.toCharArray();
+		for(int i=0; i<chars.length; i+=2){
+			array[i] = Byte.parseByte(new String(chars, i, 2),16);
+		}
+		return array;
+	}
+	
+	private static String readNullTerminatedStringAttribute(OpenAwareInputStream in) throws IOException {
+		//it looks like Strings are just null terminated
+		//the length is not encoded
+		//so just keep reading till we get to '\0'
+		boolean done = false;
+		StringBuilder builder = new StringBuilder();
+		do{
+			int value = in.read();
+			if(value == -1 || value ==0){
+				done =true;
+			}else{
+				builder.append((char)value);
+			}
+		}while(!done && in.isOpen());
+		return builder.toString();
+	}
+	
+	
+}
@@ -0,0 +1,78 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.sam;
+
+import org.jcvi.jillion.core.Range;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+/**
+ * A {@code BamShard} is a contiguous region of a single reference
+ * in a coordinate sorted BAM file that can be visited independently
+ * of the other shards by a {@link ShardedBamParser}.
+ * <p>
+ * Every record in the BAM belongs to exactly one shard:
+ * the shard of its reference whose {@link #getAlignmentStartRange()} contains
+ * the record's 0-based start position.  Records not placed on any reference
+ * belong to the single shard whose {@link #getReferenceName()} is {@code null}.
+ * 
+ * @author dkatzel
+ *
+ * @since 6.0.3
+ * 
+ * @see ShardedBamParser#createShards(int)
+ */
+@Data
+@AllArgsConstructor(access = AccessLevel.PACKAGE)
+public final class BamShard {
+	/**
+	 * The name of the reference this shard is on
+	 * or {@code null} if this shard contains the unplaced reads
+	 * at the end of the BAM file.
+	 */
+	private final String referenceName;
+	/**
+	 * The 0-based Range of start positions that records in this
+	 * shard must start in or {@code null} if this shard contains the unplaced reads.
+	 */
+	private final Range alignmentStartRange;
+	/**
+	 * The {@link VirtualFileOffset} to seek to before looking for
+	 * the first record of this shard.  Records before the first record
+	 * in this shard may be encountered (and skipped) after this offset.
+	 */
+	private final VirtualFileOffset startOffset;
+	/**
+	 * Approximate number of compressed bytes
+	 * that have to be read to visit this shard
+	 * as estimated from the BAM index.
+	 */
+	private final long estimatedCompressedSize;
+	/**
+	 * Is this the shard of unplaced reads.
+	 * @return {@code true} if this shard contains only
+	 * records that don't have a reference; {@code false} otherwise.
+	 */
+	public boolean isUnplaced(){
+		return referenceName ==null;
+	}
+}
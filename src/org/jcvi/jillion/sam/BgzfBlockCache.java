@@ -0,0 +1,169 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.sam;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.jcvi.jillion.internal.core.util.ConcurrentLruCache;
+import org.jcvi.jillion.sam.ConcurrentBgzfBlockReader.InflatedBlock;
+/**
+ * {@code BgzfBlockCache} is a Thread-safe, size bounded
+ * Least Recently Used cache of inflated BGZF blocks
+ * keyed by BAM file and compressed block offset.
+ * <p>
+ * A single cache can be shared by any number of
+ * BAM parsers (and BAM files) using 
+ * {@link SamParserFactory.Parameters#getBgzfBlockCache()}
+ * so that repeated or overlapping region queries
+ * reuse blocks that have already been inflated instead of
+ * reading and inflating them again.  Each inflated
+ * block is at most 64KB.
+ * 
+ * @author dkatzel
+ *
+ * @since 6.0.3
+ */
+public final class BgzfBlockCache {
+	/**
+	 * The max number of blocks in the shared cache
+	 * which will use at most 64MB.
+	 */
+	public static final int DEFAULT_MAX_NUMBER_OF_BLOCKS = 1024;
+	
+	private static volatile BgzfBlockCache sharedInstance;
+	
+	private final ConcurrentLruCache<BlockKey, InflatedBlock> cache;
+	/**
+	 * Create a new cache that will hold at most the given
+	 * number of inflated blocks.
+	 * @param maxNumberOfBlocks the max number of blocks to cache; must be &ge; 1.
+	 * @return a new {@link BgzfBlockCache}; will never be null.
+	 * @throws IllegalArgumentException if maxNumberOfBlocks &lt; 1.
+	 */
+	public static BgzfBlockCache create(int maxNumberOfBlocks){
+		return new BgzfBlockCache(maxNumberOfBlocks);
+	}
+	/**
+	 * Get the JVM wide shared cache which
+	 * holds {@value #DEFAULT_MAX_NUMBER_OF_BLOCKS} blocks.
+	 * @return the shared {@link BgzfBlockCache}; will never be null.
+	 */
+	public static BgzfBlockCache getSharedInstance(){
+		BgzfBlockCache instance = sharedInstance;
+		if(instance ==null){
+			synchronized(BgzfBlockCache.class){
+				instance = sharedInstance;
+				if(instance ==null){
+					instance = new BgzfBlockCache(DEFAULT_MAX_NUMBER_OF_BLOCKS);
+					sharedInstance = instance;
+				}
+			}
+		}
+		return instance;
+	}
+	
+	private BgzfBlockCache(int maxNumberOfBlocks){
+		cache = new ConcurrentLruCache<>(maxNumberOfBlocks);
+	}
+	/**
+	 * Get the max number of blocks this cache can hold.
+	 * @return the max number of blocks.
+	 */
+	public int getMaxNumberOfBlocks(){
+		return cache.getMaxSize();
+	}
+	/**
+	 * Get the number of blocks currently in the cache.
+	 * @return the number of blocks.
+	 */
+	public int getNumberOfBlocks(){
+		return cache.size();
+	}
+	/**
+	 * Get the number of block lookups that were
+	 * found in the cache.
+	 * @return the number of cache hits.
+	 */
+	public long getHitCount(){
+		return cache.getHitCount();
+	}
+	/**
+	 * Get the number of block lookups that
+	 * had to be read and inflated.
+	 * @return the number of cache misses.
+	 */
+	public long getMissCount(){
+		return cache.getMissCount();
+	}
+	/**
+	 * Remove all the blocks from the cache.
+	 */
+	public void clear(){
+		cache.clear();
+	}
+	
+	InflatedBlock get(String fileKey, long compressedOffset){
+		return cache.get(new BlockKey(fileKey, compressedOffset));
+	}
+	
+	void put(String fileKey, InflatedBlock block){
+		cache.put(new BlockKey(fileKey, block.compressedOffset), block);
+	}
+	/**
+	 * Create the key that identifies the given file in the cache.
+	 * The key includes the file length and modification time
+	 * so blocks from a file that has been rewritten are not reused.
+	 * @param file the file to create a key for.
+	 * @return a new key.
+	 * @throws IOException if there is a problem resolving the canonical path.
+	 */
+	static String createFileKey(File file) throws IOException{
+		return file.getCanonicalPath() + '@' + file.length() + ':' + file.lastModified();
+	}
+	
+	private static final class BlockKey{
+		private final String fileKey;
+		private final long compressedOffset;
+		
+		BlockKey(String fileKey, long compressedOffset) {
+			this.fileKey = fileKey;
+			this.compressedOffset = compressedOffset;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * fileKey.hashCode() + Long.hashCode(compressedOffset);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof BlockKey)) {
+				return false;
+			}
+			BlockKey other = (BlockKey) obj;
+			return compressedOffset == other.compressedOffset && fileKey.equals(other.fileKey);
+		}
+	}
+}
@@ -0,0 +1,56 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.sam;
+
+import java.io.Closeable;
+import java.io.IOException;
+/**
+ * {@code BgzfBlockReader} is a source of inflated
+ * BGZF bytes that a {@link BgzfInputStream} can delegate
+ * all of its reads to instead of inflating
+ * the blocks itself.
+ * 
+ * @author dkatzel
+ *
+ * @since 6.0.3
+ */
+interface BgzfBlockReader extends Closeable{
+	/**
+	 * Are there any more uncompressed bytes to read.
+	 * @return {@code true} if there is more data; {@code false} otherwise.
+	 */
+	boolean hasMoreData();
+	/**
+	 * Get the {@link VirtualFileOffset} of the next
+	 * byte to be read.
+	 * @return a {@link VirtualFileOffset}; will never be null.
+	 */
+	VirtualFileOffset getCurrentVirtualFileOffset();
+	/**
+	 * Read uncompressed bytes into the given array.
+	 * @param buf the array to read into.
+	 * @param off the offset into the array to start writing.
+	 * @param len the max number of bytes to read.
+	 * @return the number of bytes read or -1 if there are no more bytes.
+	 * @throws IOException if there is a problem reading or inflating the data.
+	 */
+	int read(byte[] buf, int off, int len) throws IOException;
+}
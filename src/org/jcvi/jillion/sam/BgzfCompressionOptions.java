@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * Jillion development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ *
+ *          http://www.gnu.org/copyleft/lesser.html
+ *
+ *
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ *
+ * Information about Jillion can be found on its homepage
+ *
+ *         http://jillion.sourceforge.net
+ *
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.sam;
+
+import java.util.zip.Deflater;
+/**
+ * {@code BgzfCompressionOptions} is a value object
+ * of the settings used to create {@link BgzfOutputStream}s
+ * when writing BAM files.
+ *
+ * @author dkatzel
+ *
+ * @since 6.0.3
+ */
+final class BgzfCompressionOptions {
+	/**
+	 * The default settings: compression level {@value BgzfOutputStream#DEFAULT_COMPRESSION_LEVEL}
+	 * on the calling thread.
+	 */
+	static final BgzfCompressionOptions DEFAULT = new BgzfCompressionOptions(BgzfOutputStream.DEFAULT_COMPRESSION_LEVEL, 1);
+
+	private final int compressionLevel;
+	private final int numberOfThreads;
+	/**
+	 * Create a new {@link BgzfCompressionOptions}.
+	 * @param compressionLevel the {@link Deflater} compression level to use
+	 * must be between 0 and 9 or {@link Deflater#DEFAULT_COMPRESSION}.
+	 * @param numberOfThreads the number of threads to compress blocks with;
+	 * values less than 2 mean compress on the calling thread.
+	 * @throws IllegalArgumentException if the compression level is invalid.
+	 */
+	BgzfCompressionOptions(int compressionLevel, int numberOfThreads){
+		this.compressionLevel = validateCompressionLevel(compressionLevel);
+		this.numberOfThreads = Math.max(1, numberOfThreads);
+	}
+
+	/**
+	 * Make sure the given compression level is valid.
+	 * @param compressionLevel the compression level to check.
+	 * @return the given compression level.
+	 * @throws IllegalArgumentException if the compression level is not
+	 * between 0 and 9 or {@link Deflater#DEFAULT_COMPRESSION}.
+	 */
+	static int validateCompressionLevel(int compressionLevel){
+		if(compressionLevel != Deflater.DEFAULT_COMPRESSION && (compressionLevel < Deflater.NO_COMPRESSION || compressionLevel > Deflater.BEST_COMPRESSION)){
+			throw new IllegalArgumentException("invalid compression level " + compressionLevel);
+		}
+		return compressionLevel;
+	}
+
+	int getCompressionLevel() {
+		return compressionLevel;
+	}
+
+	int getNumberOfThreads() {
+		return numberOfThreads;
+	}
+	/**
+	 * Create a new {@link BgzfCompressionOptions} with the same number
+	 * of threads but with the given compression level.
+	 * @param compressionLevel the new compression level.
+	 * @return a new {@link BgzfCompressionOptions}.
+	 */
+	BgzfCompressionOptions withCompressionLevel(int compressionLevel){
+		return new BgzfCompressionOptions(compressionLevel, numberOfThreads);
+	}
+}
@@ -37,6 +37,7 @@ import java.util.zip.InflaterInputStream;
 import java.util.zip.ZipException;
 
 import org.jcvi.jillion.core.io.IOUtil;
+import org.jcvi.jillion.internal.core.io.MemoryMappedFile;
 import org.jcvi.jillion.internal.core.io.RandomAccessFileInputStream;
 
 /**
@@ -59,11 +60,14 @@ import org.jcvi.jillion.internal.core.io.RandomAccessFileInputStream;
  * 
  * Therefore, it was decided to write a new implementation
  * to work around those problems.
- * 
+ * <p>
+ * As of 6.0.3, this class is public so other BGZF compressed
+ * formats, such as bgzipped VCF files, can be read.
+ * </p>
  * @author		dkatzel
  *
  */
-class BgzfInputStream extends InflaterInputStream {
+public class BgzfInputStream extends InflaterInputStream {
 	
 	 private static final int BGZF_XLEN_LENGTH = 6;
 
@@ -124,6 +128,13 @@ class BgzfInputStream extends InflaterInputStream {
 
     
     private int currentBlockSize;
+    /**
+     * Optional reader that inflates blocks
+     * on worker threads or from a cache; if not null, then all 
+     * reads are delegated to it instead of
+     * using our own {@link Inflater}.
+     */
+    private final BgzfBlockReader blockReader;
 
     /**
      * Creates a new BgzfInputStream with a default buffer size.
@@ -139,6 +150,39 @@ class BgzfInputStream extends InflaterInputStream {
     public static BgzfInputStream create(File bamFile) throws IOException{
     	return new BgzfInputStream(bamFile);
     }
+    /**
+     * Is the given file BGZF compressed.  Only
+     * the header of the first block is checked.
+     * 
+     * @param file the file to check; can not be null.
+     * @return {@code true} if the file starts with a gzip
+     * block header that has the BGZF extra subfield;
+     * {@code false} otherwise (including empty files).
+     * 
+     * @throws IOException if there is a problem reading the file.
+     * @throws NullPointerException if file is null.
+     * 
+     * @since 6.0.3
+     */
+    public static boolean isBgzf(File file) throws IOException{
+    	byte[] header = new byte[16];
+    	try(InputStream in = new FileInputStream(file)){
+    		int length=0;
+    		int bytesRead;
+    		while(length < header.length && (bytesRead = in.read(header, length, header.length - length)) != -1){
+    			length += bytesRead;
+    		}
+    		if(length < header.length){
+    			return false;
+    		}
+    	}
+    	try{
+    		ConcurrentBgzfBlockReader.validateHeader(header);
+    		return true;
+    	}catch(IOException e){
+    		return false;
+    	}
+    }
     /**
      * Creates a new {@link BgzfInputStream} starting
      * from the given {@link VirtualFileOffset}.
@@ -155,7 +199,7 @@ class BgzfInputStream extends InflaterInputStream {
      * 
      * @since 5.0
      */
-    static BgzfInputStream create(File bamFile, VirtualFileOffset vfs) throws IOException{
+    public static BgzfInputStream create(File bamFile, VirtualFileOffset vfs) throws IOException{
     	if(bamFile==null) {
     		throw new NullPointerException("bam file can not be null");
     	}
@@ -177,6 +221,109 @@ class BgzfInputStream extends InflaterInputStream {
     	return bgzfStream;
     	
     }
+    /**
+     * Creates a new {@link BgzfInputStream} that inflates
+     * BGZF blocks using a shared pool of worker threads.
+     * The returned stream returns exactly the same bytes
+     * and {@link VirtualFileOffset}s as a single threaded stream.
+     * 
+     * @param bamFile The bam file to parse; can not be null.
+     * @param numberOfThreads the max number of blocks to inflate in parallel
+     * on the worker threads shared by all streams;
+     * if less than 2, then a normal single threaded stream is returned.
+     * @param readAheadBlocks the maximum number of blocks to inflate ahead
+     * of what has been read so far.  Values less than the number of threads
+     * are rounded up to the number of threads.
+     * 
+     * @throws IOException if an I/O error has occurred.
+     * 
+     * @since 6.0.3
+     */
+    public static BgzfInputStream create(File bamFile, int numberOfThreads, int readAheadBlocks) throws IOException{
+    	return create(bamFile, new VirtualFileOffset(0L), numberOfThreads, readAheadBlocks);
+    }
+    /**
+     * Creates a new {@link BgzfInputStream} starting
+     * from the given {@link VirtualFileOffset} that inflates
+     * BGZF blocks using a shared pool of worker threads.
+     * The returned stream returns exactly the same bytes
+     * and {@link VirtualFileOffset}s as a single threaded stream.
+     * 
+     * @param bamFile The bam file to parse; can not be null.
+     * @param vfs the {@link VirtualFileOffset} to use to seek to before reading
+     *any bytes from the stream; can not be null.
+     * @param numberOfThreads the max number of blocks to inflate in parallel
+     * on the worker threads shared by all streams;
+     * if less than 2, then a normal single threaded stream is returned.
+     * @param readAheadBlocks the maximum number of blocks to inflate ahead
+     * of what has been read so far.  Values less than the number of threads
+     * are rounded up to the number of threads.
+     * 
+     * @throws IOException if an I/O error has occurred.
+     * @throws NullPointerException if either bamFile or vfs is null.
+     * 
+     * @since 6.0.3
+     */
+    static BgzfInputStream create(File bamFile, VirtualFileOffset vfs, int numberOfThreads, int readAheadBlocks) throws IOException{
+    	if(numberOfThreads < 2){
+    		if(vfs !=null && vfs.getEncodedValue()==0L){
+    			return create(bamFile);
+    		}
+    		return create(bamFile, vfs);
+    	}
+    	if(bamFile==null) {
+    		throw new NullPointerException("bam file can not be null");
+    	}
+    	if(vfs==null) {
+    		throw new NullPointerException("vfs can not be null");
+    	}
+    	long compressedBamBlockOffset = vfs.getCompressedBamBlockOffset();
+    	InputStream in;
+    	if(compressedBamBlockOffset>0){
+    		in = new BufferedInputStream(new RandomAccessFileInputStream(bamFile, compressedBamBlockOffset), BUFFER_SIZE);
+    	}else{
+    		in = new BufferedInputStream(new FileInputStream(bamFile), BUFFER_SIZE);
+    	}
+    	ConcurrentBgzfBlockReader reader;
+    	try{
+    		reader = new ConcurrentBgzfBlockReader(in, compressedBamBlockOffset, numberOfThreads, readAheadBlocks);
+    	}catch(IOException | RuntimeException e){
+    		IOUtil.closeAndIgnoreErrors(in);
+    		throw e;
+    	}
+    	BgzfInputStream bgzfStream = new BgzfInputStream(in, reader);
+    	IOUtil.blockingSkip(bgzfStream, vfs.getUncompressedOffset());
+    	return bgzfStream;
+    }
+    
+    /**
+     * Creates a new {@link BgzfInputStream} starting
+     * from the given {@link VirtualFileOffset} that reads
+     * blocks from the given memory mapped BAM file
+     * and reuses any blocks already inflated in the given cache.
+     * The returned stream returns exactly the same bytes
+     * and {@link VirtualFileOffset}s as a normal stream.
+     * 
+     * @param mappedBam the memory mapped BAM file; can not be null.
+     * @param fileKey the key that identifies the BAM file in the cache; can not be null.
+     * @param vfs the {@link VirtualFileOffset} to use to seek to before reading
+     *any bytes from the stream; can not be null.
+     * @param cache the {@link BgzfBlockCache} to use; can not be null.
+     * 
+     * @throws IOException if an I/O error has occurred.
+     * @throws NullPointerException if any parameter is null.
+     * 
+     * @since 6.0.3
+     */
+    static BgzfInputStream create(MemoryMappedFile mappedBam, String fileKey, VirtualFileOffset vfs, BgzfBlockCache cache) throws IOException{
+    	if(vfs==null) {
+    		throw new NullPointerException("vfs can not be null");
+    	}
+    	MappedBgzfBlockReader reader = new MappedBgzfBlockReader(mappedBam, fileKey, cache, vfs.getCompressedBamBlockOffset());
+    	BgzfInputStream bgzfStream = new BgzfInputStream(InputStream.nullInputStream(), reader);
+    	IOUtil.blockingSkip(bgzfStream, vfs.getUncompressedOffset());
+    	return bgzfStream;
+    }
     
     /**
      * Creates a new input stream with the specified buffer size.
@@ -190,8 +337,21 @@ class BgzfInputStream extends InflaterInputStream {
      */
     private BgzfInputStream(InputStream in, int size) throws IOException {
         super(in, new Inflater(true), size);
+        this.blockReader = null;
         parseBlockHeader(in);
     }
+    /**
+     * Creates a new input stream that delegates all 
+     * reads to the given {@link BgzfBlockReader}.
+     * @param in the input stream the reader wraps.
+     * @param blockReader the reader to delegate to.
+     */
+    private BgzfInputStream(InputStream in, BgzfBlockReader blockReader){
+    	//our inflater and buffer are never used
+    	//so keep the buffer as small as possible
+    	super(in, new Inflater(true), 1);
+    	this.blockReader = blockReader;
+    }
 
     /**
      * Creates a new input stream with a default buffer size.
@@ -239,6 +399,9 @@ class BgzfInputStream extends InflaterInputStream {
      */
     public int read(byte[] buf, int off, int len) throws IOException {
         assertNotClosed();
+        if(blockReader !=null){
+        	return blockReader.read(buf, off, len);
+        }
         if (!hasMoreData()) {
             return -1;
         }
@@ -294,6 +457,9 @@ class BgzfInputStream extends InflaterInputStream {
     }
     
     public boolean hasMoreData() {
+    	if(blockReader !=null){
+    		return blockReader.hasMoreData();
+    	}
 		return !eof;
 	}
 
@@ -309,7 +475,10 @@ class BgzfInputStream extends InflaterInputStream {
      * will return equal file offsets (but
      * may not be the same instance).
      */
-    VirtualFileOffset getCurrentVirutalFileOffset(){    	
+    VirtualFileOffset getCurrentVirutalFileOffset(){
+    	if(blockReader !=null){
+    		return blockReader.getCurrentVirtualFileOffset();
+    	}
     	int uncompressedBytesReadInCurrentBlock = (int)this.inf.getBytesWritten();
     	if(uncompressedBytesReadInCurrentBlock > BUFFER_SIZE){
     		//this will cause an overflow in the encoded virtual file offset
@@ -329,6 +498,9 @@ class BgzfInputStream extends InflaterInputStream {
      */
     public void close() throws IOException {
         if (!closed) {
+            if(blockReader !=null){
+            	blockReader.close();
+            }
             super.close();
             eof = true;
             closed = true;
@@ -27,10 +27,15 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.zip.CRC32;
 import java.util.zip.Deflater;
 
 import org.jcvi.jillion.core.io.IOUtil;
+import org.jcvi.jillion.internal.core.util.WorkerPool;
 import org.jcvi.jillion.internal.sam.IndexerCallback;
 /**
  * {@code BgzfOutputStream} is an {@link OutputStream}
@@ -40,12 +45,26 @@ import org.jcvi.jillion.internal.sam.IndexerCallback;
  * to conform to the BGZF format
  * specified in the BAM file format specification.
  * <p>
+ * If more than one compression thread is requested,
+ * then each block is filled on the calling thread
+ * but deflated on a pool of worker threads
+ * and written out in order by the calling thread
+ * as the compressed blocks become available.
+ * {@link IndexerCallback}s are delayed until the compressed
+ * offsets of the blocks they refer to are known so the offsets 
+ * passed to the callbacks are the same as if the blocks were compressed serially.
+ * </p>
+ * <p>
+ * As of 6.0.3, this class is public so other BGZF compressed
+ * formats, such as bgzipped VCF files, can be written.
+ * </p>
+ * <p>
  * NOT THREAD SAFE
  * </p>
  * @author dkatzel
  *
  */
-final class BgzfOutputStream extends OutputStream{
+public final class BgzfOutputStream extends OutputStream{
 	
 	/**
 	 * Max compressed block size should never be > max uncompressed block size.
@@ -72,7 +91,13 @@ final class BgzfOutputStream extends OutputStream{
 	 * Use the compression level SAMTool's Picard uses,
 	 * not sure why they use {@value} instead of the default.
 	 */
-	private static final int GZIP_COMPRESSION_LEVEL = 5;
+	static final int DEFAULT_COMPRESSION_LEVEL = 5;
+	/**
+	 * The number of compressed blocks per compression thread
+	 * that may be waiting to be written out before {@link #write(byte[], int, int)}
+	 * blocks.
+	 */
+	private static final int PENDING_BLOCKS_PER_THREAD = 4;
 	
 	/**
 	 * Common header to all BGZF encoded blocks
@@ -121,9 +146,11 @@ final class BgzfOutputStream extends OutputStream{
 	private long compressedBytesWrittenSoFar=0;
 	/**
 	 * Our buffer storing the bytes to be flushed to our
-	 * wrapped outputStream.
+	 * wrapped outputStream.  If we are compressing
+	 * blocks on other threads, then a new buffer is 
+	 * used for each block.
 	 */
-	private final byte[] uncompressedBuffer = new byte[MAX_UNCOMPRESSED_BLOCK_SIZE];
+	private byte[] uncompressedBuffer = new byte[MAX_UNCOMPRESSED_BLOCK_SIZE];
 	/**
 	 * Temparary buffer to store our compressed version of the 
 	 * uncompressed data when we are flushing.
@@ -153,6 +180,47 @@ final class BgzfOutputStream extends OutputStream{
 	 */
 	private final byte[] singleByteArray = new byte[1];
 	
+	private final int compressionLevel;
+	/**
+	 * The pool of threads to compress blocks
+	 * with; will be {@code null} if we compress
+	 * each block on the calling thread.
+	 */
+	private final WorkerPool compressionExecutor;
+	/**
+	 * Compressed blocks that have been submitted
+	 * to our executor but not written out yet
+	 * in the order they need to be written.
+	 */
+	private final Deque<Future<byte[]>> pendingBlocks;
+	private final int maxPendingBlocks;
+	/**
+	 * The number of blocks that have been handed
+	 * to the compression executor so far, which is also the 
+	 * block number of the block currently being filled.
+	 */
+	private long blocksSubmitted;
+	/**
+	 * The number of blocks that have been
+	 * written to the wrapped outputStream so far.
+	 */
+	private long blocksWritten;
+	/**
+	 * Compressed start offsets of the written blocks
+	 * still referenced by pending callbacks; 
+	 * the first element is the offset of block number {@link #firstTrackedBlock}.
+	 */
+	private final Deque<Long> trackedBlockOffsets;
+	private long firstTrackedBlock;
+	private final Deque<PendingCallback> pendingCallbacks;
+	/**
+	 * The block number the current call to write() started in,
+	 * or -1 if not currently writing. Needed so we don't
+	 * forget the offset of that block if it gets written out
+	 * before the callback for the current write is queued.
+	 */
+	private long currentWriteStartBlock = -1;
+	
 
 	static{
 		EOF_MARKER = new byte[28];
@@ -178,13 +246,53 @@ final class BgzfOutputStream extends OutputStream{
 	 * @throws NullPointerException if out is null.
 	 * @throws IOException if there is a problem creating the output file.
 	 */
-	BgzfOutputStream(File outputBam, IndexerCallback callback) throws IOException {
+	public BgzfOutputStream(File outputBam, IndexerCallback callback) throws IOException {
+		this(outputBam, callback, BgzfCompressionOptions.DEFAULT);
+	}
+	/**
+	 * Create a new {@link BgzfOutputStream}
+	 * that will write BGZF encoded data to the given
+	 * outputStream.
+	 * @param outputBam the {@link File} to write to;
+	 * can not be null.  If the file, or any parent directories
+	 * do not exist, then they will be created.
+	 * @param callback the {@link IndexerCallback} to call back to
+	 * on during when writing to this {@link BgzfOutputStream};
+	 * if {@code null} then no callbacks will be called.
+	 * @param options the {@link BgzfCompressionOptions} to use
+	 * which include the compression level and how many threads
+	 * to compress blocks with; can not be null.
+	 * 
+	 * @throws NullPointerException if out or options are null.
+	 * @throws IOException if there is a problem creating the output file.
+	 * 
+	 * @since 6.0.3
+	 */
+	BgzfOutputStream(File outputBam, IndexerCallback callback, BgzfCompressionOptions options) throws IOException {
 		if(outputBam ==null){
 			throw new NullPointerException("output can not be null");
 		}
+		if(options ==null){
+			throw new NullPointerException("compression options can not be null");
+		}
 		IOUtil.mkdirs(outputBam.getParentFile());
 		this.out = new BufferedOutputStream(new FileOutputStream(outputBam), MAX_COMPRESSED_BLOCK_SIZE);
 		this.callback = callback;
+		this.compressionLevel = options.getCompressionLevel();
+		int numberOfCompressionThreads = options.getNumberOfThreads();
+		if(numberOfCompressionThreads > 1){
+			compressionExecutor = new WorkerPool(numberOfCompressionThreads);
+			maxPendingBlocks = PENDING_BLOCKS_PER_THREAD * numberOfCompressionThreads;
+			pendingBlocks = new ArrayDeque<>(maxPendingBlocks);
+			trackedBlockOffsets = new ArrayDeque<>();
+			pendingCallbacks = new ArrayDeque<>();
+		}else{
+			compressionExecutor = null;
+			maxPendingBlocks = 0;
+			pendingBlocks = null;
+			trackedBlockOffsets = null;
+			pendingCallbacks = null;
+		}
 	}
 	
 	/**
@@ -233,6 +341,19 @@ final class BgzfOutputStream extends OutputStream{
 		}
 		if(callback ==null){
 			handleWriteBody(b, off, bytesToWriteLength);
+		}else if(compressionExecutor !=null){
+			long startBlock = blocksSubmitted;
+			int startOffset = currentUsedBufferLength;
+			currentWriteStartBlock = startBlock;
+			try{
+				handleWriteBody(b, off, bytesToWriteLength);
+			}finally{
+				currentWriteStartBlock = -1;
+			}
+			pendingCallbacks.add(new PendingCallback(callback.deferred(), 
+									startBlock, startOffset, 
+									blocksSubmitted, currentUsedBufferLength));
+			firePendingCallbacks();
 		}else{
 			//get before and after values
 			//for our callback
@@ -249,7 +370,19 @@ final class BgzfOutputStream extends OutputStream{
 	}
 	
 	
-	public VirtualFileOffset getVirtualFileOffset(){
+	/**
+	 * Get the {@link VirtualFileOffset} of the next byte
+	 * to be written.  If blocks are being compressed
+	 * on other threads, then this method will block until
+	 * all the pending blocks have been compressed and written
+	 * so the returned offset is exact.
+	 * @return a new {@link VirtualFileOffset}; will never be null.
+	 * @throws IOException if there is a problem writing any pending blocks.
+	 */
+	public VirtualFileOffset getVirtualFileOffset() throws IOException{
+		if(compressionExecutor !=null){
+			writePendingBlocks(0);
+		}
 		return VirtualFileOffset.create(compressedBytesWrittenSoFar, currentUsedBufferLength);
 	}
 	/**
@@ -294,7 +427,11 @@ final class BgzfOutputStream extends OutputStream{
 			if(currentUsedBufferLength == MAX_UNCOMPRESSED_BLOCK_SIZE){
 				//we have filled our uncompressedBuffer
 				//write one block to the wrapped outputStream
-				flush();
+				if(compressionExecutor ==null){
+					flush();
+				}else{
+					submitCurrentBlock();
+				}
 			}
 		}
 		
@@ -304,51 +441,18 @@ final class BgzfOutputStream extends OutputStream{
 	 * Flush the current buffer out to the wrapped {@link OutputStream}
 	 * as concatenated BGZF blocks - 
 	 * <strong>This method should not be called directly.</strong>
+	 * If blocks are being compressed on other threads, then this 
+	 * method blocks until all pending blocks have been written.
 	 */
 	@Override
 	public void flush() throws IOException {
+		if(compressionExecutor !=null){
+			submitCurrentBlock();
+			writePendingBlocks(0);
+			return;
+		}
 		if(currentUsedBufferLength >0){
-			//create a new Deflater each time.
-			//There were problems caused by re-using
-			//the deflater across blocks
-			//probably because we call finish() ?
-			Deflater currentDeflater = new Deflater(GZIP_COMPRESSION_LEVEL, true);
-			
-			currentDeflater.setInput(uncompressedBuffer, 0, currentUsedBufferLength);
-			currentDeflater.finish();
-			
-			int compressedLength =currentDeflater.deflate(compressedBuffer);
-			if(!currentDeflater.finished()){
-				Deflater noCompresessionDeflater = new Deflater(Deflater.NO_COMPRESSION, true);
-				noCompresessionDeflater.setInput(uncompressedBuffer, 0, currentUsedBufferLength);
-				noCompresessionDeflater.finish();
-				
-				compressedLength =noCompresessionDeflater.deflate(compressedBuffer);
-				if(!noCompresessionDeflater.finished()){
-					//shouldn't happen
-					throw new IOException("could not compress block to fit max size");
-				}
-			}
-			currentCrc32.reset();
-			//CRC is the check sum of the UNCOMPRESSED data
-			currentCrc32.update(uncompressedBuffer, 0, currentUsedBufferLength);
-
-			ByteBuffer bgzfBlockBuffer = ByteBuffer.allocate(compressedLength + BGZF_BLOCK_FULL_HEADER_LENGTH);
-			bgzfBlockBuffer.order(ByteOrder.LITTLE_ENDIAN);
-			bgzfBlockBuffer.put(BGZF_BLOCK_HEADER);
-			//spec says write BSIZE -1
-			//I guess to make sure the 
-			//size will always fit in unsigned short.
-			//
-			//since we don't write out empty blocks
-			//in this format subtracting 1 will never make a negative number.
-			bgzfBlockBuffer.putShort((short)(bgzfBlockBuffer.capacity() -1));
-			bgzfBlockBuffer.put(compressedBuffer,0,compressedLength);
-			bgzfBlockBuffer.putInt((int)currentCrc32.getValue());
-			bgzfBlockBuffer.putInt(currentUsedBufferLength);
-			bgzfBlockBuffer.flip();
-			byte[] asBytes = new byte[bgzfBlockBuffer.remaining()];
-			bgzfBlockBuffer.get(asBytes);
+			byte[] asBytes = compressBlock(uncompressedBuffer, currentUsedBufferLength, compressionLevel, compressedBuffer, currentCrc32);
 			out.write(asBytes);
 			//out.flush();
 			//update counters
@@ -357,13 +461,216 @@ final class BgzfOutputStream extends OutputStream{
 			currentUsedBufferLength = 0;
 		}
 	}
+	/**
+	 * Compress the given uncompressed data into a single BGZF block.
+	 * 
+	 * @param uncompressed the uncompressed data.
+	 * @param length the number of bytes in the uncompressed array to compress.
+	 * @param compressionLevel the compression level to use.
+	 * @param compressedBuffer a temp buffer to deflate into; must be
+	 * at least {@value #MAX_COMPRESSED_BLOCK_SIZE} bytes long.
+	 * @param crc32 the {@link CRC32} instance to use to compute the CRC of the uncompressed data.
+	 * @return a new byte array of the full BGZF block including header and footer.
+	 * @throws IOException if the data could not be compressed to fit in a BGZF block.
+	 */
+	private static byte[] compressBlock(byte[] uncompressed, int length, int compressionLevel, byte[] compressedBuffer, CRC32 crc32) throws IOException{
+		//create a new Deflater each time.
+		//There were problems caused by re-using
+		//the deflater across blocks
+		//probably because we call finish() ?
+		int compressedLength = deflate(uncompressed, length, compressionLevel, compressedBuffer);
+		if(compressedLength <0){
+			compressedLength = deflate(uncompressed, length, Deflater.NO_COMPRESSION, compressedBuffer);
+			if(compressedLength <0){
+				//shouldn't happen
+				throw new IOException("could not compress block to fit max size");
+			}
+		}
+		crc32.reset();
+		//CRC is the check sum of the UNCOMPRESSED data
+		crc32.update(uncompressed, 0, length);
+
+		ByteBuffer bgzfBlockBuffer = ByteBuffer.allocate(compressedLength + BGZF_BLOCK_FULL_HEADER_LENGTH);
+		bgzfBlockBuffer.order(ByteOrder.LITTLE_ENDIAN);
+		bgzfBlockBuffer.put(BGZF_BLOCK_HEADER);
+		//spec says write BSIZE -1
+		//I guess to make sure the 
+		//size will always fit in unsigned short.
+		//
+		//since we don't write out empty blocks
+		//in this format subtracting 1 will never make a negative number.
+		bgzfBlockBuffer.putShort((short)(bgzfBlockBuffer.capacity() -1));
+		bgzfBlockBuffer.put(compressedBuffer,0,compressedLength);
+		bgzfBlockBuffer.putInt((int)crc32.getValue());
+		bgzfBlockBuffer.putInt(length);
+		//the buffer is exactly the size of the block
+		//so we can return the backing array directly
+		return bgzfBlockBuffer.array();
+	}
+	/**
+	 * Deflate the given data.
+	 * @return the number of compressed bytes or -1 if the compressed
+	 * data did not fit in the compressedBuffer.
+	 */
+	private static int deflate(byte[] uncompressed, int length, int compressionLevel, byte[] compressedBuffer){
+		Deflater deflater = new Deflater(compressionLevel, true);
+		try{
+			deflater.setInput(uncompressed, 0, length);
+			deflater.finish();
+			int compressedLength =deflater.deflate(compressedBuffer);
+			if(!deflater.finished()){
+				return -1;
+			}
+			return compressedLength;
+		}finally{
+			//release native resources now
+			//instead of waiting for GC
+			deflater.end();
+		}
+	}
+	/**
+	 * Hand the current uncompressed buffer off to our
+	 * compression threads and start a new buffer.
+	 * Only called if we have a compression executor.
+	 * @throws IOException if there is a problem writing out
+	 * previously compressed blocks.
+	 */
+	private void submitCurrentBlock() throws IOException{
+		if(currentUsedBufferLength ==0){
+			return;
+		}
+		byte[] toCompress = uncompressedBuffer;
+		int length = currentUsedBufferLength;
+		int level = compressionLevel;
+		pendingBlocks.add(compressionExecutor.submit(()-> 
+						compressBlock(toCompress, length, level, new byte[MAX_COMPRESSED_BLOCK_SIZE], new CRC32())));
+		blocksSubmitted++;
+		uncompressedBuffer = new byte[MAX_UNCOMPRESSED_BLOCK_SIZE];
+		currentUsedBufferLength =0;
+		
+		writeFinishedBlocks();
+		//apply back pressure so we don't
+		//use unbounded memory if the compression
+		//threads can't keep up.
+		writePendingBlocks(maxPendingBlocks);
+	}
+	/**
+	 * Write out any blocks at the head of our pending queue
+	 * that have already finished compressing without waiting.
+	 */
+	private void writeFinishedBlocks() throws IOException{
+		while(!pendingBlocks.isEmpty() && pendingBlocks.peek().isDone()){
+			writeNextPendingBlock();
+		}
+	}
+	/**
+	 * Write out pending blocks, waiting for them to finish compressing
+	 * if needed, until there are at most the given number of blocks still pending.
+	 * @param maxBlocksLeftPending the number of blocks that may still be pending.
+	 */
+	private void writePendingBlocks(int maxBlocksLeftPending) throws IOException{
+		while(pendingBlocks.size() > maxBlocksLeftPending){
+			writeNextPendingBlock();
+		}
+	}
+	
+	private void writeNextPendingBlock() throws IOException{
+		byte[] block;
+		try {
+			block = pendingBlocks.poll().get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("interrupted while waiting for BGZF block to compress", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if(cause instanceof IOException){
+				throw (IOException) cause;
+			}
+			throw new IOException("error compressing BGZF block", cause);
+		}
+		trackedBlockOffsets.add(compressedBytesWrittenSoFar);
+		out.write(block);
+		compressedBytesWrittenSoFar += block.length;
+		blocksWritten++;
+		firePendingCallbacks();
+	}
+	/**
+	 * Call any pending callbacks, in order, whose compressed
+	 * start and end offsets are now known.
+	 */
+	private void firePendingCallbacks(){
+		while(!pendingCallbacks.isEmpty()){
+			PendingCallback next = pendingCallbacks.peek();
+			//the start offset of block N is only known
+			//once all the blocks before it have been written
+			if(next.endBlock > blocksWritten){
+				break;
+			}
+			pendingCallbacks.poll();
+			next.callback.encodedIndex(
+					VirtualFileOffset.create(getCompressedOffsetOfBlock(next.startBlock), next.startOffset),
+					VirtualFileOffset.create(getCompressedOffsetOfBlock(next.endBlock), next.endOffset));
+		}
+		//we only need to remember offsets of blocks
+		//still referenced by a pending callback
+		long oldestNeededBlock = pendingCallbacks.isEmpty()? blocksWritten : pendingCallbacks.peek().startBlock;
+		if(currentWriteStartBlock >=0){
+			oldestNeededBlock = Math.min(oldestNeededBlock, currentWriteStartBlock);
+		}
+		while(firstTrackedBlock < oldestNeededBlock){
+			trackedBlockOffsets.poll();
+			firstTrackedBlock++;
+		}
+	}
+	
+	private long getCompressedOffsetOfBlock(long blockNumber){
+		if(blockNumber == blocksWritten){
+			return compressedBytesWrittenSoFar;
+		}
+		//should be rare for a single write to span
+		//more than a couple of blocks so just walk the deque
+		long current = firstTrackedBlock;
+		for(Long offset : trackedBlockOffsets){
+			if(current == blockNumber){
+				return offset;
+			}
+			current++;
+		}
+		throw new IllegalStateException("offset of block " + blockNumber + " not tracked");
+	}
 
 	@Override
 	public void close() throws IOException {
-		flush();
-		out.write(EOF_MARKER);
-		out.close();
+		try{
+			flush();
+			out.write(EOF_MARKER);
+			out.close();
+		}finally{
+			if(compressionExecutor !=null){
+				//only left over if flushing failed
+				for(Future<byte[]> future : pendingBlocks){
+					future.cancel(true);
+				}
+				pendingBlocks.clear();
+			}
+		}
+	}
+	
+	private static final class PendingCallback{
+		private final IndexerCallback callback;
+		private final long startBlock;
+		private final int startOffset;
+		private final long endBlock;
+		private final int endOffset;
+		
+		PendingCallback(IndexerCallback callback, long startBlock,
+				int startOffset, long endBlock, int endOffset) {
+			this.callback = callback;
+			this.startBlock = startBlock;
+			this.startOffset = startOffset;
+			this.endBlock = endBlock;
+			this.endOffset = endOffset;
+		}
 	}
-
 	
 }
@@ -0,0 +1,367 @@
+/*******************************************************************************
+ * Jillion development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ *
+ *          http://www.gnu.org/copyleft/lesser.html
+ *
+ *
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ *
+ * Information about Jillion can be found on its homepage
+ *
+ *         http://jillion.sourceforge.net
+ *
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.sam;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+import org.jcvi.jillion.core.io.IOUtil;
+import org.jcvi.jillion.internal.core.util.WorkerPool;
+/**
+ * {@code ConcurrentBgzfBlockReader} reads
+ * whole compressed BGZF blocks from a wrapped
+ * {@link InputStream} on the calling thread
+ * but inflates them on at most {@code numberOfThreads}
+ * threads of the {@link WorkerPool} shared by all readers so that opening many streams
+ * (for example one per indexed region query) doesn't
+ * create a new thread pool each time.
+ * Up to {@code readAheadBlocks} blocks are inflated
+ * ahead of the consumer and are handed back
+ * in the same order they appear in the file
+ * so the uncompressed byte stream (and the
+ * {@link VirtualFileOffset}s computed from it)
+ * are identical to inflating serially.
+ * <p>
+ * NOT THREAD SAFE - only the shared worker pool is multi-threaded.
+ * </p>
+ * @author dkatzel
+ *
+ * @since 6.0.3
+ */
+final class ConcurrentBgzfBlockReader implements BgzfBlockReader{
+	/**
+	 * Length of the fixed portion of a BGZF block header
+	 * up to and including the BSIZE field.
+	 */
+	static final int BGZF_HEADER_LENGTH = 18;
+	/**
+	 * Length of the CRC32 and ISIZE footer fields.
+	 */
+	private static final int GZIP_FOOTER_LENGTH = 8;
+	/**
+	 * The largest uncompressed offset we can encode
+	 * into a {@link VirtualFileOffset}.
+	 */
+	private static final int MAX_UNCOMPRESSED_OFFSET = 0xFFFF;
+
+	private static final int FHCRC      = 2;
+	private static final int FEXTRA     = 4;
+	private static final int FNAME      = 8;
+	private static final int FCOMMENT   = 16;
+
+	private final InputStream in;
+	private final WorkerPool workerPool;
+	private final Deque<Future<InflatedBlock>> pendingBlocks;
+	private final int readAheadBlocks;
+	/**
+	 * The compressed file offset of the next
+	 * block to be read from the wrapped stream.
+	 */
+	private long nextCompressedOffset;
+
+	private boolean noMoreCompressedBlocks;
+
+	private InflatedBlock currentBlock;
+	private int positionInBlock;
+	private boolean eof;
+	private boolean closed;
+	/**
+	 * Create a new {@link ConcurrentBgzfBlockReader}.
+	 *
+	 * @param in the {@link InputStream} positioned at the beginning
+	 * of a BGZF block; can not be null.
+	 * @param startingCompressedOffset the compressed offset in the file
+	 * the stream is currently positioned at; must be >=0.
+	 * @param numberOfThreads the max number of blocks to inflate in parallel; must be >=1.
+	 * @param readAheadBlocks the max number of blocks to inflate ahead of the consumer;
+	 * if less than numberOfThreads, then numberOfThreads is used.
+	 * @throws IOException if there is a problem reading the first block.
+	 */
+	ConcurrentBgzfBlockReader(InputStream in, long startingCompressedOffset, int numberOfThreads, int readAheadBlocks) throws IOException{
+		if(in ==null){
+			throw new NullPointerException("input stream can not be null");
+		}
+		if(numberOfThreads < 1){
+			throw new IllegalArgumentException("number of threads must be >= 1");
+		}
+		if(startingCompressedOffset < 0){
+			throw new IllegalArgumentException("starting offset can not be negative");
+		}
+		this.in = in;
+		this.nextCompressedOffset = startingCompressedOffset;
+		this.readAheadBlocks = Math.max(numberOfThreads, readAheadBlocks);
+		this.pendingBlocks = new ArrayDeque<>(this.readAheadBlocks);
+		this.workerPool = new WorkerPool(numberOfThreads);
+		try{
+			fillReadAheadQueue(true);
+			currentBlock = takeNextBlock();
+			if(currentBlock ==null){
+				eof = true;
+			}
+		}catch(IOException | RuntimeException e){
+			cancelPendingBlocks();
+			throw e;
+		}
+	}
+
+	@Override
+	public boolean hasMoreData(){
+		return !eof;
+	}
+
+	@Override
+	public VirtualFileOffset getCurrentVirtualFileOffset(){
+		if(positionInBlock > MAX_UNCOMPRESSED_OFFSET){
+			return VirtualFileOffset.create(currentBlock.compressedOffset + currentBlock.compressedLength, 0);
+		}
+		return VirtualFileOffset.create(currentBlock.compressedOffset, positionInBlock);
+	}
+
+	@Override
+	public int read(byte[] buf, int off, int len) throws IOException{
+		if(closed){
+			throw new IOException("BAM file is closed");
+		}
+		if(eof){
+			return -1;
+		}
+		if(len ==0){
+			return 0;
+		}
+		while(positionInBlock == currentBlock.uncompressedLength){
+			InflatedBlock next = takeNextBlock();
+			if(next ==null){
+				//move the pointer to the end of the file
+				//like a serial inflater would
+				long endOfFile = currentBlock.compressedOffset + currentBlock.compressedLength;
+				currentBlock = new InflatedBlock(endOfFile, 0, new byte[0], 0);
+				positionInBlock=0;
+				eof = true;
+				return -1;
+			}
+			currentBlock = next;
+			positionInBlock=0;
+		}
+		int bytesToCopy = Math.min(len, currentBlock.uncompressedLength - positionInBlock);
+		System.arraycopy(currentBlock.data, positionInBlock, buf, off, bytesToCopy);
+		positionInBlock += bytesToCopy;
+		return bytesToCopy;
+	}
+
+	private InflatedBlock takeNextBlock() throws IOException{
+		Future<InflatedBlock> future = pendingBlocks.poll();
+		if(future ==null){
+			return null;
+		}
+		InflatedBlock block;
+		try {
+			block = future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("interrupted while waiting for BGZF block to inflate", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if(cause instanceof IOException){
+				throw (IOException) cause;
+			}
+			throw new IOException("error inflating BGZF block", cause);
+		}
+		fillReadAheadQueue(false);
+		return block;
+	}
+
+	private void fillReadAheadQueue(boolean isFirstBlock) throws IOException{
+		boolean first = isFirstBlock;
+		while(!noMoreCompressedBlocks && pendingBlocks.size() < readAheadBlocks){
+			byte[] compressedBlock = readCompressedBlock(first);
+			first=false;
+			if(compressedBlock ==null){
+				noMoreCompressedBlocks = true;
+				return;
+			}
+			long offset = nextCompressedOffset;
+			nextCompressedOffset += compressedBlock.length;
+			pendingBlocks.add(workerPool.submit(()-> inflate(offset, compressedBlock)));
+		}
+	}
+	/**
+	 * Read the next entire compressed BGZF block
+	 * including its header and footer.
+	 * @param isFirstBlock is this the first block we are reading;
+	 * invalid headers in the first block throw an Exception
+	 * but later malformed blocks are treated as the end of the file
+	 * to match how {@link BgzfInputStream} handles trailing data.
+	 * @return the bytes of the block or {@code null} if there are no more blocks.
+	 * @throws IOException if there is a problem reading the block.
+	 */
+	private byte[] readCompressedBlock(boolean isFirstBlock) throws IOException{
+		byte[] header = new byte[BGZF_HEADER_LENGTH];
+		int bytesRead = IOUtil.tryBlockingRead(in, header, 0, header.length);
+		if(bytesRead < header.length){
+			if(isFirstBlock){
+				throw new ZipException("Not in GZIP format");
+			}
+			return null;
+		}
+		try{
+			validateHeader(header);
+		}catch(IOException e){
+			if(isFirstBlock){
+				throw e;
+			}
+			return null;
+		}
+		int blockSize = ((header[16] & 0xFF) | (header[17] & 0xFF) <<8 ) +1;
+		byte[] block = new byte[blockSize];
+		System.arraycopy(header, 0, block, 0, header.length);
+		try{
+			IOUtil.blockingRead(in, block, header.length, blockSize - header.length);
+		}catch(EOFException e){
+			throw new IOException("BGZF block truncated at compressed offset " + nextCompressedOffset, e);
+		}
+		return block;
+	}
+
+	static void validateHeader(byte[] header) throws IOException{
+		if((header[0] & 0xFF) != 0x1f || (header[1] & 0xFF) != 0x8b){
+			throw new ZipException("Not in GZIP format");
+		}
+		if(header[2] != 8){
+			throw new ZipException("Unsupported compression method");
+		}
+		if((header[3] & FEXTRA) != FEXTRA){
+			throw new IOException("invalid BGZF file, F.EXTRA not set");
+		}
+		if((header[10] & 0xFF) !=6 || header[11] !=0){
+			throw new IOException("invalid BGZF file, F.EXTRA not correct length");
+		}
+		if(header[12] != 0x42 || header[13] != 0x43){
+			throw new IOException("invalid BGZF file, F.EXTRA Subfield IDs are wrong");
+		}
+		if(header[14] !=2 || header[15] !=0){
+			throw new IOException("invalid BGZF file, F.EXTRA payload length not 2");
+		}
+	}
+
+	/**
+	 * Inflate an entire BGZF block and validate its CRC and size.
+	 * @param compressedOffset the compressed offset of the block in the file.
+	 * @param block the bytes of the block including its header and footer.
+	 * @return a new {@link InflatedBlock}.
+	 * @throws IOException if the block is corrupt.
+	 */
+	static InflatedBlock inflate(long compressedOffset, byte[] block) throws IOException{
+		int flags = block[3];
+		int dataStart = BGZF_HEADER_LENGTH;
+		if((flags & FNAME) == FNAME){
+			while(block[dataStart++] !=0){
+				//skip file name
+			}
+		}
+		if((flags & FCOMMENT) == FCOMMENT){
+			while(block[dataStart++] !=0){
+				//skip comment
+			}
+		}
+		if((flags & FHCRC) == FHCRC){
+			dataStart+=2;
+		}
+		int footerStart = block.length - GZIP_FOOTER_LENGTH;
+		long expectedCrc = readUnsignedIntLittleEndian(block, footerStart);
+		long expectedSize = readUnsignedIntLittleEndian(block, footerStart +4);
+
+		byte[] uncompressed = new byte[(int) expectedSize];
+		Inflater inflater = new Inflater(true);
+		try{
+			inflater.setInput(block, dataStart, footerStart - dataStart);
+			int inflatedLength=0;
+			while(inflatedLength < uncompressed.length && !inflater.finished()){
+				int n = inflater.inflate(uncompressed, inflatedLength, uncompressed.length - inflatedLength);
+				if(n==0 && (inflater.needsInput() || inflater.needsDictionary())){
+					break;
+				}
+				inflatedLength+=n;
+			}
+			if(inflatedLength != uncompressed.length){
+				throw new ZipException("invalid ISIZE");
+			}
+		}catch(DataFormatException e){
+			String s = e.getMessage();
+			throw new IOException(s == null ? "Invalid ZLIB data format" : s, e);
+		}finally{
+			inflater.end();
+		}
+		CRC32 crc = new CRC32();
+		crc.update(uncompressed, 0, uncompressed.length);
+		if(crc.getValue() != expectedCrc){
+			throw new ZipException("invalid CRC: expected " + expectedCrc + " actual " + crc.getValue());
+		}
+		return new InflatedBlock(compressedOffset, block.length, uncompressed, uncompressed.length);
+	}
+
+	private static long readUnsignedIntLittleEndian(byte[] array, int offset){
+		return  (array[offset] & 0xFFL)
+				| (array[offset+1] & 0xFFL) <<8
+				| (array[offset+2] & 0xFFL) <<16
+				| (array[offset+3] & 0xFFL) <<24;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if(closed){
+			return;
+		}
+		closed=true;
+		eof=true;
+		cancelPendingBlocks();
+		in.close();
+	}
+
+	private void cancelPendingBlocks(){
+		for(Future<InflatedBlock> future : pendingBlocks){
+			future.cancel(true);
+		}
+		pendingBlocks.clear();
+	}
+	static final class InflatedBlock{
+		final long compressedOffset;
+		final int compressedLength;
+		final byte[] data;
+		final int uncompressedLength;
+
+		InflatedBlock(long compressedOffset, int compressedLength,
+				byte[] data, int uncompressedLength) {
+			this.compressedOffset = compressedOffset;
+			this.compressedLength = compressedLength;
+			this.data = data;
+			this.uncompressedLength = uncompressedLength;
+		}
+	}
+}
@@ -41,10 +41,11 @@ enum Encoding{
 	 */
 	SAM(".sam"){
 		@Override
-		SamWriter createPreSortedOutputWriter(File out, SamHeader header, SamAttributeValidator validator, BamIndexer indexer, boolean includeIndexMetaData)
+		SamWriter createPreSortedOutputWriter(File out, SamHeader header, SamAttributeValidator validator, BamIndexer indexer, boolean includeIndexMetaData,
+				BgzfCompressionOptions compressionOptions)
 				throws IOException {
-			//indexer parameter ignored
-			//since it is only used in BAM files.
+			//indexer and compression parameters ignored
+			//since they are only used in BAM files.
 			return new PresortedSamFileWriter(out, header, validator);
 		}
 		@Override
@@ -57,9 +58,10 @@ enum Encoding{
 	 */
 	BAM(".bam"){
 		@Override
-		SamWriter createPreSortedOutputWriter(File out, SamHeader header, SamAttributeValidator validator, BamIndexer indexer, boolean includeIndexMetaData)
+		SamWriter createPreSortedOutputWriter(File out, SamHeader header, SamAttributeValidator validator, BamIndexer indexer, boolean includeIndexMetaData,
+				BgzfCompressionOptions compressionOptions)
 				throws IOException {
-			return new PresortedBamFileWriter(header, out, indexer, validator,includeIndexMetaData);
+			return new PresortedBamFileWriter(header, out, indexer, validator,includeIndexMetaData, compressionOptions);
 		}
 
 		@Override
@@ -94,13 +96,16 @@ enum Encoding{
 	 * @param out the output file to write to if the file
 	 * already exists, it will be overwritten.
 	 * @param header the {@link SamHeader} to use.
+	 * @param compressionOptions the {@link BgzfCompressionOptions} to use
+	 * if writing BAM files.
 	 * @return a new {@link SamWriter} will never be null.
 	 * @throws IOException if there is a problem creating the new output file.
 	 */
-	SamWriter createPreSortedNoValidationOutputWriter(File out, SamHeader header, BamIndexer indexer, boolean includeIndexMetaData) throws IOException{
+	SamWriter createPreSortedNoValidationOutputWriter(File out, SamHeader header, BamIndexer indexer, boolean includeIndexMetaData,
+			BgzfCompressionOptions compressionOptions) throws IOException{
 		//no validation since we have already validated
 		//the reads when we added them to our in memcheck
-		return createPreSortedOutputWriter(out, header, NullSamAttributeValidator.INSTANCE, indexer, includeIndexMetaData);
+		return createPreSortedOutputWriter(out, header, NullSamAttributeValidator.INSTANCE, indexer, includeIndexMetaData, compressionOptions);
 	}
 	
 	
@@ -118,10 +123,13 @@ enum Encoding{
 	 * @param header the {@link SamHeader} to use; can not be null.
 	 * @param validator the {@link SamAttributeValidator} to use;
 	 * can not be null.
+	 * @param compressionOptions the {@link BgzfCompressionOptions} to use
+	 * if writing BAM files.
 	 * @return a new {@link SamWriter} will never be null.
 	 * @throws IOException if there is a problem creating the new output file.
 	 */
-	abstract SamWriter createPreSortedOutputWriter(File out, SamHeader header, SamAttributeValidator validator, BamIndexer indexer, boolean includeIndexMetaData)throws IOException;
+	abstract SamWriter createPreSortedOutputWriter(File out, SamHeader header, SamAttributeValidator validator, BamIndexer indexer, boolean includeIndexMetaData,
+			BgzfCompressionOptions compressionOptions)throws IOException;
 
 	/**
 	 * Create a new {@link SamWriter} implementation
@@ -133,21 +141,24 @@ enum Encoding{
 	 * @param tmpDirRoot the temp directory root to write temp files underneath.
 	 * If this value is null, then the system default temp dir is used.
 	 * @param header the {@link SamHeader} to write and to validate against.
-	 * @param maxRecordsToKeepInMemory the maximum number of {@link SamRecord}s
-	 * to save in memory at any one time, once this threshold has been reached,
+	 * @param sortOptions the {@link ExternalSortOptions} of the maximum number of {@link SamRecord}s
+	 * (and bytes) to save in memory at any one time, once this threshold has been reached,
 	 * the records are persisted to a temp file under the given tempDirRoot.
 	 * @param validator  the {@link SamAttributeValidator} to use;
 	 * can not be null. 
 	 * @param includeIndexMetaData if the provided {@link BamIndexer} is not null,
 	 * should the samtools/picard specific additional metadata be included also.
+	 * @param compressionOptions the {@link BgzfCompressionOptions} to use
+	 * if writing BAM files.
 	 * 
 	 * @return a new {@link SamWriter} will never be null.
 	 * @throws IOException if there is a problem creating the new output file.
 	 */
 	SamWriter createReSortedOutputWriter(File out, File tmpDirRoot,
-			SamHeader header, int maxRecordsToKeepInMemory, SamAttributeValidator validator, BamIndexer indexer, boolean includeIndexMetaData)
+			SamHeader header, ExternalSortOptions sortOptions, SamAttributeValidator validator, BamIndexer indexer, boolean includeIndexMetaData,
+			BgzfCompressionOptions compressionOptions)
 			throws IOException {
-		return new ReSortSamFileWriter(out, tmpDirRoot,header, maxRecordsToKeepInMemory, validator, this, indexer, includeIndexMetaData);
+		return new ReSortSamFileWriter(out, tmpDirRoot,header, sortOptions, validator, this, indexer, includeIndexMetaData, compressionOptions);
 	}
 	
 	
@@ -0,0 +1,94 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.sam;
+/**
+ * {@code ExternalSortOptions} is a value object
+ * of the settings used by {@link ReSortSamFileWriter}
+ * to decide how many records to keep in memory
+ * before spilling a sorted run to disk and how many threads
+ * to sort and spill those runs with.
+ *
+ * @author dkatzel
+ *
+ * @since 6.0.3
+ */
+final class ExternalSortOptions {
+
+	private final int maxRecordsInMemory;
+	private final long maxBytesInMemory;
+	private final int numberOfThreads;
+	/**
+	 * Create a new {@link ExternalSortOptions}.
+	 * @param maxRecordsInMemory the max number of records to keep in memory at a time;
+	 * must be &gt; 0.
+	 * @param maxBytesInMemory the max number of (estimated) bytes of records to keep in memory
+	 * at a time; must be &gt; 0.
+	 * @param numberOfThreads the number of threads to sort and spill runs with;
+	 * values less than 2 mean sort on the calling thread.
+	 * @throws IllegalArgumentException if either memory limit is not positive.
+	 */
+	ExternalSortOptions(int maxRecordsInMemory, long maxBytesInMemory, int numberOfThreads){
+		if(maxRecordsInMemory < 1){
+			throw new IllegalArgumentException("max records to keep in memory must be positive");
+		}
+		if(maxBytesInMemory < 1){
+			throw new IllegalArgumentException("max bytes to keep in memory must be positive");
+		}
+		this.maxRecordsInMemory = maxRecordsInMemory;
+		this.maxBytesInMemory = maxBytesInMemory;
+		this.numberOfThreads = Math.max(1, numberOfThreads);
+	}
+
+	int getMaxRecordsInMemory() {
+		return maxRecordsInMemory;
+	}
+
+	long getMaxBytesInMemory() {
+		return maxBytesInMemory;
+	}
+
+	int getNumberOfThreads() {
+		return numberOfThreads;
+	}
+	/**
+	 * Get the max number of records in a single run.
+	 * When sorting on background threads, the caller
+	 * keeps filling a new run while the other threads are still
+	 * sorting and spilling, so the memory limits
+	 * are divided among all the runs that can be in memory at once.
+	 * @return the max number of records per run; always &gt; 0.
+	 */
+	int getMaxRecordsPerRun(){
+		return Math.max(1, maxRecordsInMemory / getNumberOfRunsInMemory());
+	}
+	/**
+	 * Get the max number of (estimated) bytes in a single run.
+	 * @return the max number of bytes per run; always &gt; 0.
+	 * @see #getMaxRecordsPerRun()
+	 */
+	long getMaxBytesPerRun(){
+		return Math.max(1, maxBytesInMemory / getNumberOfRunsInMemory());
+	}
+	
+	private int getNumberOfRunsInMemory(){
+		return numberOfThreads < 2 ? 1 : numberOfThreads +1;
+	}
+}
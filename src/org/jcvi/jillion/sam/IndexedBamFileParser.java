@@ -31,6 +31,7 @@ import java.util.function.Predicate;
 
 import org.jcvi.jillion.core.Range;
 import org.jcvi.jillion.core.Ranges;
+import org.jcvi.jillion.internal.core.io.MemoryMappedFile;
 import org.jcvi.jillion.internal.sam.index.IndexUtil;
 import org.jcvi.jillion.sam.attribute.SamAttributeValidator;
 import org.jcvi.jillion.sam.index.BamIndex;
@@ -40,12 +41,64 @@ import org.jcvi.jillion.sam.index.ReferenceIndex;
 
 class IndexedBamFileParser extends BamFileParser{
 	private final BamIndex index;
+	/**
+	 * The cache of inflated blocks to use
+	 * for random access; if null, then the BAM
+	 * file is not memory mapped.
+	 */
+	private final BgzfBlockCache blockCache;
+	private final MemoryMappedFile mappedBam;
+	private final String mappedBamKey;
 	private static VirtualFileOffset BEGINING_OF_FILE = new VirtualFileOffset(0L);
+	/**
+	 * Unplaced reads are always sorted to the end of the file.
+	 */
+	private static final int UNPLACED_REFERENCE_INDEX = Integer.MAX_VALUE;
 	
 	public IndexedBamFileParser(File bamFile, File baiFile, SamAttributeValidator validator) throws IOException {
 		super(bamFile, validator);
+		index = parseIndex(baiFile);
+		blockCache = null;
+		mappedBam = null;
+		mappedBamKey = null;
+	}
+	
+	public IndexedBamFileParser(File bamFile, File baiFile, SamParserFactory.Parameters parameters) throws IOException {
+		super(bamFile, parameters);
+		index = parseIndex(baiFile);
+		blockCache = parameters.getBgzfBlockCache();
+		if(blockCache ==null){
+			mappedBam = null;
+			mappedBamKey = null;
+		}else{
+			mappedBam = MemoryMappedFile.map(bamFile);
+			mappedBamKey = BgzfBlockCache.createFileKey(bamFile);
+		}
+	}
+	
+	@Override
+	protected BgzfInputStream openBgzfStream(VirtualFileOffset start) throws IOException {
+		if(mappedBam ==null){
+			return super.openBgzfStream(start);
+		}
+		return BgzfInputStream.create(mappedBam, mappedBamKey, start, blockCache);
+	}
+	/**
+	 * Open a new {@link BgzfInputStream} at the beginning
+	 * of the file to parse the header.
+	 * @return a new {@link BgzfInputStream}; will never be null.
+	 * @throws IOException if there is a problem opening the file.
+	 */
+	private BgzfInputStream openHeaderStream() throws IOException {
+		if(mappedBam ==null){
+			return BgzfInputStream.create(bamFile);
+		}
+		return openBgzfStream(BEGINING_OF_FILE);
+	}
+	
+	private BamIndex parseIndex(File baiFile) throws IOException {
 		try(InputStream in = new BufferedInputStream(new FileInputStream(baiFile))){
-			index = IndexUtil.parseIndex(in, this.getHeader());
+			BamIndex index = IndexUtil.parseIndex(in, this.getHeader());
 //			System.out.println(index.getNumberOfReferenceIndexes());
 //			System.out.println(index.getTotalNumberOfUnmappedReads());
 //			System.out.println("\t"+index.getReferenceIndex(0).getNumberOfAlignedReads());
@@ -56,6 +109,7 @@ class IndexedBamFileParser extends BamFileParser{
 //				System.out.println("\t\t"+ bin);
 //				bin.getChunks().forEach(c-> System.out.println("\t\t\t"+ c));
 //			}
+			return index;
 		}
 	}
 
@@ -134,18 +188,18 @@ class IndexedBamFileParser extends BamFileParser{
 			boolean parsedHeaderAlready=false;
 			if(!BEGINING_OF_FILE.equals(start[0])) {
 				//parse the header
-				try(BgzfInputStream in = BgzfInputStream.create(bamFile)){
+				try(BgzfInputStream in = openHeaderStream()){
 					parseHeaderOnly(visitor, in);
 				}
 				parsedHeaderAlready=true;
 			}
-			try(BgzfInputStream in = BgzfInputStream.create(bamFile, start[0])){
+			try(BgzfInputStream in = openBgzfStream(start[0])){
 				//assume anything in this interval matches?
 		
 				options.getFilter().ifPresent(f->f.begin());
 				if(!parsedHeaderAlready) {
 					//parse the header
-					try(BgzfInputStream in2 = BgzfInputStream.create(bamFile)){
+					try(BgzfInputStream in2 = openHeaderStream()){
 						parseHeaderOnly(visitor, in2);
 					}
 				}
@@ -176,7 +230,7 @@ class IndexedBamFileParser extends BamFileParser{
 				recordMatchPredicate = recordMatchPredicate.and(options.getFilter().get().asPredicate());
 			}
 			Predicate<VirtualFileOffset> endPredicate =(vfs) ->vfs.compareTo(end) <=0;
-			try(BgzfInputStream in = BgzfInputStream.create(bamFile, start)){
+			try(BgzfInputStream in = openBgzfStream(start)){
 				options.getFilter().ifPresent(f->f.begin());
 				if(BEGINING_OF_FILE.equals(start)){
 					this.parseBamFromBeginning(visitor, 
@@ -204,4 +258,72 @@ class IndexedBamFileParser extends BamFileParser{
 
 	
 
+	BamIndex getIndex() {
+		return index;
+	}
+	/**
+	 * Find the {@link VirtualFileOffset} of the first record
+	 * in the BAM file which is right after the header.
+	 * @return the {@link VirtualFileOffset}; will never be null.
+	 * @throws IOException if there is a problem parsing the header.
+	 */
+	VirtualFileOffset findFirstRecordOffset() throws IOException{
+		try(BgzfInputStream in = openHeaderStream()){
+			parseHeaderOnly(new AbstractSamVisitor(){}, in);
+			return in.getCurrentVirutalFileOffset();
+		}
+	}
+	/**
+	 * Visit only the records that belong to the given shard.
+	 * Records are assumed to be coordinate sorted so parsing
+	 * stops as soon as a record past the end of the shard is found.
+	 * 
+	 * @param shard the shard to parse; can not be null.
+	 * @param visitor the visitor to visit; can not be null.
+	 * @throws IOException if there is a problem parsing the BAM file.
+	 */
+	void parseShard(BamShard shard, SamVisitor visitor) throws IOException{
+		Predicate<SamRecord> recordMatchPredicate;
+		Predicate<SamRecord> keepParsingPredicate;
+		if(shard.isUnplaced()){
+			recordMatchPredicate = record -> referenceIndexOf(record) == UNPLACED_REFERENCE_INDEX;
+			keepParsingPredicate = record -> true;
+		}else{
+			int shardRefIndex = index.getReferenceIndexOffset(shard.getReferenceName());
+			Range range = shard.getAlignmentStartRange();
+			recordMatchPredicate = record -> shardRefIndex == referenceIndexOf(record) && range.getBegin() <= startOffsetOf(record);
+			//records are sorted by reference then start position
+			//so keep going until we are past the end of this shard
+			keepParsingPredicate = record ->{
+				int refIndex = referenceIndexOf(record);
+				if(refIndex == shardRefIndex){
+					return startOffsetOf(record) <= range.getEnd();
+				}
+				return refIndex < shardRefIndex;
+			};
+		}
+		AtomicBoolean keepParsing = new AtomicBoolean(true);
+		visitor.visitHeader(new MementoLessBamCallback(keepParsing), header);
+		if(!keepParsing.get()){
+			visitor.halted();
+			return;
+		}
+		try(BgzfInputStream in = openBgzfStream(shard.getStartOffset())){
+			parseBamRecords(visitor, recordMatchPredicate, vfs -> true, keepParsingPredicate, in, 
+					keepParsing, new MementoLessBamCallback(keepParsing), null);
+		}
+	}
+	
+	private int referenceIndexOf(SamRecord record){
+		String refName = record.getReferenceName();
+		if(refName ==null || SamRecord.UNAVAILABLE.equals(refName)){
+			return UNPLACED_REFERENCE_INDEX;
+		}
+		return index.getReferenceIndexOffset(refName);
+	}
+	
+	private static long startOffsetOf(SamRecord record){
+		return Math.max(0, record.getStartPosition() -1);
+	}
+
 }
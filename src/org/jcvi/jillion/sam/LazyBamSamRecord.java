@@ -0,0 +1,318 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.sam;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Collection;
+import java.util.Objects;
+
+import org.jcvi.jillion.core.Direction;
+import org.jcvi.jillion.core.Range;
+import org.jcvi.jillion.core.qual.QualitySequence;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequence;
+import org.jcvi.jillion.sam.attribute.ReservedSamAttributeKeys;
+import org.jcvi.jillion.sam.attribute.SamAttribute;
+import org.jcvi.jillion.sam.attribute.SamAttributeKey;
+import org.jcvi.jillion.sam.attribute.SamAttributeValidator;
+import org.jcvi.jillion.sam.cigar.Cigar;
+import org.jcvi.jillion.sam.header.SamHeader;
+/**
+ * A {@link SamRecord} that is backed by the raw
+ * BAM encoded bytes of the record and only decodes
+ * each field the first time it is requested.
+ * The fixed length fields such as flags, positions,
+ * mapping quality and reference are read directly from the bytes
+ * without allocating any objects so filtering records
+ * on those fields is cheap.
+ * <p>
+ * Instances are safe to share between threads since
+ * decoding the same bytes always produces equal values.
+ * 
+ * @author dkatzel
+ *
+ * @since 6.0.3
+ */
+final class LazyBamSamRecord implements SamRecord {
+
+	private final byte[] data;
+	private final SamHeader header;
+	private final SamAttributeValidator validator;
+	private final String[] refNames;
+	
+	private String queryName;
+	private Cigar cigar;
+	private NucleotideSequence sequence;
+	private QualitySequence qualities;
+	private boolean qualitiesDecoded;
+	private Range alignmentRange;
+	/**
+	 * The fully decoded (and validated) record
+	 * used for attributes, equality checks and serialization.
+	 */
+	private SamRecord decoded;
+	
+	LazyBamSamRecord(byte[] data, SamHeader header, SamAttributeValidator validator, String[] refNames) {
+		this.data = data;
+		this.header = header;
+		this.validator = validator;
+		this.refNames = refNames;
+	}
+	/**
+	 * Fully decode this record.
+	 * @return the decoded {@link SamRecord}.
+	 * @throws UncheckedIOException if the record can not be decoded
+	 * because of invalid attributes.
+	 */
+	SamRecord decode(){
+		SamRecord result = decoded;
+		if(result ==null){
+			try {
+				result = BamRecordDecoder.decode(data, header, validator, refNames);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			decoded = result;
+		}
+		return result;
+	}
+	
+	/**
+	 * Has this record been fully decoded yet.
+	 * @return {@code true} if all the fields have been decoded;
+	 * {@code false} otherwise.
+	 */
+	boolean isFullyDecoded(){
+		return decoded !=null;
+	}
+	
+	/**
+	 * Is this record's encoding (specifically the reference indexes)
+	 * relative to the given header.
+	 * @param header the header to check.
+	 * @return {@code true} if the raw bytes can be copied as is
+	 * into a BAM file using the given header; {@code false} otherwise.
+	 */
+	boolean isEncodedFor(SamHeader header){
+		return this.header == header;
+	}
+	/**
+	 * Get the number of bytes used to encode this record,
+	 * not including the leading block size.
+	 * @return the number of encoded bytes.
+	 */
+	int getEncodedLength(){
+		return data.length;
+	}
+	/**
+	 * Write the BAM encoded form of this record, including the
+	 * leading block size, to the given {@link OutputStream}
+	 * in a single write call, like SamUtil.writeAsBamRecord()
+	 * does, since a BgzfOutputStream with an IndexerCallback
+	 * counts each write as a new record.
+	 * @param out the {@link OutputStream} to write to.
+	 * @throws IOException if there is a problem writing the bytes.
+	 */
+	void writeEncodedTo(OutputStream out) throws IOException{
+		ByteBuffer buf = ByteBuffer.allocate(4 + data.length);
+		buf.order(ByteOrder.LITTLE_ENDIAN);
+		buf.putInt(data.length);
+		buf.put(data);
+		out.write(buf.array());
+	}
+	
+	private boolean hasFlag(SamRecordFlag flag){
+		return flag.matches(BamRecordDecoder.getFlags(data));
+	}
+	
+	@Override
+	public String getQueryName() {
+		String result = queryName;
+		if(result ==null){
+			result = BamRecordDecoder.decodeQueryName(data);
+			queryName = result;
+		}
+		return result;
+	}
+
+	@Override
+	public boolean isPrimary() {
+		return !(hasFlag(SamRecordFlag.SECONDARY_ALIGNMENT) || hasFlag(SamRecordFlag.SUPPLEMENTARY_ALIGNMENT));
+	}
+
+	@Override
+	public boolean useForAnalysis() {
+		return !hasFlag(SamRecordFlag.SECONDARY_ALIGNMENT);
+	}
+
+	@Override
+	public String getReferenceName() {
+		int refId = BamRecordDecoder.getReferenceIndex(data);
+		return refId < 0 ? null : refNames[refId];
+	}
+
+	@Override
+	public String getNextName() {
+		int refId = BamRecordDecoder.getNextReferenceIndex(data);
+		return refId < 0 ? null : refNames[refId];
+	}
+
+	@Override
+	public SamRecordFlags getFlags() {
+		return SamRecordFlags.valueOf(BamRecordDecoder.getFlags(data));
+	}
+
+	@Override
+	public int getStartPosition() {
+		return BamRecordDecoder.getStartPosition(data);
+	}
+
+	@Override
+	public int getNextPosition() {
+		return BamRecordDecoder.getNextPosition(data);
+	}
+
+	@Override
+	public byte getMappingQuality() {
+		//same as SamRecordBuilder, unmapped reads have a mapping quality of 0
+		if(hasFlag(SamRecordFlag.READ_UNMAPPED)){
+			return 0;
+		}
+		return BamRecordDecoder.getMappingQuality(data);
+	}
+
+	@Override
+	public Cigar getCigar() {
+		Cigar result = cigar;
+		if(result ==null){
+			result = BamRecordDecoder.decodeCigar(data);
+			cigar = result;
+		}
+		return result;
+	}
+
+	@Override
+	public NucleotideSequence getSequence() {
+		NucleotideSequence result = sequence;
+		if(result ==null){
+			result = BamRecordDecoder.decodeSequence(data);
+			sequence = result;
+		}
+		return result;
+	}
+
+	@Override
+	public QualitySequence getQualities() {
+		if(!qualitiesDecoded){
+			qualities = BamRecordDecoder.decodeQualities(data);
+			qualitiesDecoded = true;
+		}
+		return qualities;
+	}
+
+	@Override
+	public int getObservedTemplateLength() {
+		return BamRecordDecoder.getObservedTemplateLength(data);
+	}
+
+	@Override
+	public boolean hasAttribute(SamAttributeKey key) {
+		return decode().hasAttribute(key);
+	}
+
+	@Override
+	public SamAttribute getAttribute(SamAttributeKey key) {
+		return decode().getAttribute(key);
+	}
+
+	@Override
+	public Collection<SamAttribute> getAttributes() {
+		return decode().getAttributes();
+	}
+
+	@Override
+	public boolean hasAttribute(ReservedSamAttributeKeys key) {
+		Objects.requireNonNull(key);
+		return hasAttribute(key.getKey());
+	}
+
+	@Override
+	public SamAttribute getAttribute(ReservedSamAttributeKeys key) {
+		Objects.requireNonNull(key);
+		return getAttribute(key.getKey());
+	}
+
+	@Override
+	public boolean mapped() {
+		return !hasFlag(SamRecordFlag.READ_UNMAPPED);
+	}
+
+	@Override
+	public Direction getDirection() {
+		return hasFlag(SamRecordFlag.REVERSE_COMPLEMENTED) ? Direction.REVERSE : Direction.FORWARD;
+	}
+
+	@Override
+	public Range getAlignmentRange() {
+		if(!mapped()){
+			return null;
+		}
+		Range result = alignmentRange;
+		if(result ==null){
+			result = new Range.Builder(getCigar().getNumberOfReferenceBasesAligned())
+							.shift(getStartPosition() -1)
+							.build();
+			alignmentRange = result;
+		}
+		return result;
+	}
+
+	@Override
+	public boolean hasMatePair() {
+		return hasFlag(SamRecordFlag.HAS_MATE_PAIR);
+	}
+
+	@Override
+	public SamRecordBuilder toBuilder() {
+		return decode().toBuilder();
+	}
+
+	@Override
+	public int hashCode() {
+		return decode().hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		return decode().equals(obj);
+	}
+
+	@Override
+	public String toString() {
+		return decode().toString();
+	}
+}
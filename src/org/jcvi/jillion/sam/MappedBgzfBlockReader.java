@@ -0,0 +1,172 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.sam;
+
+import java.io.IOException;
+import java.util.zip.ZipException;
+
+import org.jcvi.jillion.internal.core.io.MemoryMappedFile;
+import org.jcvi.jillion.sam.ConcurrentBgzfBlockReader.InflatedBlock;
+/**
+ * {@code MappedBgzfBlockReader} reads BGZF blocks
+ * directly from a memory mapped BAM file
+ * and gets inflated blocks from (and puts newly inflated blocks into)
+ * a shared {@link BgzfBlockCache}.
+ * <p>
+ * NOT THREAD SAFE - but any number of instances
+ * can share the same {@link MemoryMappedFile} and {@link BgzfBlockCache}.
+ * </p>
+ * @author dkatzel
+ *
+ * @since 6.0.3
+ */
+final class MappedBgzfBlockReader implements BgzfBlockReader{
+	
+	private static final int MAX_UNCOMPRESSED_OFFSET = 0xFFFF;
+	
+	private final MemoryMappedFile file;
+	private final String fileKey;
+	private final BgzfBlockCache cache;
+	
+	private InflatedBlock currentBlock;
+	private int positionInBlock;
+	private boolean eof;
+	private boolean closed;
+	/**
+	 * Create a new {@link MappedBgzfBlockReader}.
+	 * @param file the memory mapped BAM file; can not be null.
+	 * @param fileKey the key used to identify this file in the cache; can not be null.
+	 * @param cache the cache of inflated blocks; can not be null.
+	 * @param startingCompressedOffset the compressed offset of the first block to read; must be &ge; 0.
+	 * @throws IOException if there is a problem reading the first block.
+	 */
+	MappedBgzfBlockReader(MemoryMappedFile file, String fileKey, BgzfBlockCache cache, long startingCompressedOffset) throws IOException{
+		if(file ==null || fileKey ==null || cache ==null){
+			throw new NullPointerException("parameters can not be null");
+		}
+		if(startingCompressedOffset < 0){
+			throw new IllegalArgumentException("starting offset can not be negative");
+		}
+		this.file = file;
+		this.fileKey = fileKey;
+		this.cache = cache;
+		currentBlock = loadBlock(startingCompressedOffset, true);
+		if(currentBlock ==null){
+			currentBlock = new InflatedBlock(startingCompressedOffset, 0, new byte[0], 0);
+			eof = true;
+		}
+	}
+	/**
+	 * Get the block at the given offset from the cache
+	 * or read and inflate it.
+	 * @param compressedOffset the offset of the block.
+	 * @param isFirstBlock invalid headers in the first block throw an Exception
+	 * but later malformed blocks are treated as the end of the file
+	 * to match how {@link BgzfInputStream} handles trailing data.
+	 * @return the inflated block or {@code null} if there are no more blocks.
+	 * @throws IOException if the block is corrupt.
+	 */
+	private InflatedBlock loadBlock(long compressedOffset, boolean isFirstBlock) throws IOException{
+		if(compressedOffset >= file.length()){
+			return null;
+		}
+		InflatedBlock block = cache.get(fileKey, compressedOffset);
+		if(block !=null){
+			return block;
+		}
+		if(compressedOffset + ConcurrentBgzfBlockReader.BGZF_HEADER_LENGTH > file.length()){
+			if(isFirstBlock){
+				throw new ZipException("Not in GZIP format");
+			}
+			return null;
+		}
+		byte[] header = new byte[ConcurrentBgzfBlockReader.BGZF_HEADER_LENGTH];
+		file.slice(compressedOffset, header.length).get(header);
+		try{
+			ConcurrentBgzfBlockReader.validateHeader(header);
+		}catch(IOException e){
+			if(isFirstBlock){
+				throw e;
+			}
+			return null;
+		}
+		int blockSize = ((header[16] & 0xFF) | (header[17] & 0xFF) <<8 ) +1;
+		if(compressedOffset + blockSize > file.length()){
+			throw new IOException("BGZF block truncated at compressed offset " + compressedOffset);
+		}
+		byte[] compressed = new byte[blockSize];
+		file.slice(compressedOffset, blockSize).get(compressed);
+		block = ConcurrentBgzfBlockReader.inflate(compressedOffset, compressed);
+		cache.put(fileKey, block);
+		return block;
+	}
+
+	@Override
+	public boolean hasMoreData() {
+		return !eof;
+	}
+
+	@Override
+	public VirtualFileOffset getCurrentVirtualFileOffset() {
+		if(positionInBlock > MAX_UNCOMPRESSED_OFFSET){
+			return VirtualFileOffset.create(currentBlock.compressedOffset + currentBlock.compressedLength, 0);
+		}
+		return VirtualFileOffset.create(currentBlock.compressedOffset, positionInBlock);
+	}
+
+	@Override
+	public int read(byte[] buf, int off, int len) throws IOException {
+		if(closed){
+			throw new IOException("BAM file is closed");
+		}
+		if(eof){
+			return -1;
+		}
+		if(len ==0){
+			return 0;
+		}
+		while(positionInBlock == currentBlock.uncompressedLength){
+			long nextOffset = currentBlock.compressedOffset + currentBlock.compressedLength;
+			InflatedBlock next = loadBlock(nextOffset, false);
+			if(next ==null){
+				//move the pointer to the end of the file
+				//like a serial inflater would
+				currentBlock = new InflatedBlock(nextOffset, 0, new byte[0], 0);
+				positionInBlock=0;
+				eof = true;
+				return -1;
+			}
+			currentBlock = next;
+			positionInBlock=0;
+		}
+		int bytesToCopy = Math.min(len, currentBlock.uncompressedLength - positionInBlock);
+		System.arraycopy(currentBlock.data, positionInBlock, buf, off, bytesToCopy);
+		positionInBlock += bytesToCopy;
+		return bytesToCopy;
+	}
+
+	@Override
+	public void close() {
+		closed = true;
+		eof = true;
+	}
+
+}
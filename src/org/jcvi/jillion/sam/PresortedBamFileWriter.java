@@ -73,13 +73,20 @@ class PresortedBamFileWriter implements SamWriter{
     public PresortedBamFileWriter(SamHeader header, File outputFile,
             BamIndexer optionalIndexer, SamAttributeValidator attributeValidator, boolean includeIndexMetaData)
             throws IOException {
+        this(header, outputFile, optionalIndexer, attributeValidator, includeIndexMetaData, BgzfCompressionOptions.DEFAULT);
+    }
+    
+    public PresortedBamFileWriter(SamHeader header, File outputFile,
+            BamIndexer optionalIndexer, SamAttributeValidator attributeValidator, boolean includeIndexMetaData,
+            BgzfCompressionOptions compressionOptions)
+            throws IOException {
         this.header = header;
         this.bamFile = outputFile;
         this.attributeValidator = attributeValidator;
         this.optionalIndexer = optionalIndexer;
         this.includeIndexMetaData = includeIndexMetaData;
         
-        out = new BgzfOutputStream(bamFile, optionalIndexer);
+        out = new BgzfOutputStream(bamFile, optionalIndexer, compressionOptions);
         int i = 0;
         for (SamReferenceSequence refSeq : header.getReferenceSequences()) {
             refSeqIndexMap.put(refSeq.getName(), Integer.valueOf(i));
@@ -142,6 +149,16 @@ class PresortedBamFileWriter implements SamWriter{
 
 	@Override
 	public void writeRecord(SamRecord record) throws IOException {
+		if(attributeValidator == NullSamAttributeValidator.INSTANCE && record instanceof LazyBamSamRecord
+				&& ((LazyBamSamRecord) record).isEncodedFor(header)){
+			//already encoded using our header (usually read back from a re-sort temp file)
+			//so the references must be valid and we can copy the bytes as is.
+			if(optionalIndexer !=null){
+				optionalIndexer.setCurrentRecord(record);
+			}
+			((LazyBamSamRecord) record).writeEncodedTo(out);
+			return;
+		}
 		try{
 			header.validateRecord(record, attributeValidator);
 		}catch(SamValidationException e){
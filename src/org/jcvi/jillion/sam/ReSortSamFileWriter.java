@@ -24,20 +24,23 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.Comparator;
-import java.util.Iterator;
+import java.util.HashMap;
 import java.util.List;
-import java.util.NoSuchElementException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import org.jcvi.jillion.core.io.IOUtil;
-import org.jcvi.jillion.core.util.iter.IteratorUtil;
-import org.jcvi.jillion.core.util.iter.PeekableStreamingIterator;
-import org.jcvi.jillion.core.util.iter.StreamingIterator;
-import org.jcvi.jillion.internal.core.util.iter.AbstractBlockingStreamingIterator;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequence;
+import org.jcvi.jillion.internal.core.util.WorkerPool;
 import org.jcvi.jillion.internal.sam.index.BamIndexer;
+import org.jcvi.jillion.sam.SortedSamRecordMerger.RecordRun;
 import org.jcvi.jillion.sam.attribute.SamAttributeValidator;
+import org.jcvi.jillion.sam.cigar.Cigar;
 import org.jcvi.jillion.sam.header.SamHeader;
+import org.jcvi.jillion.sam.header.SamReferenceSequence;
 /**
  * {@code ReSortSamFileWriter}
  * is a {@link SamWriter} implementation
@@ -47,24 +50,33 @@ import org.jcvi.jillion.sam.header.SamHeader;
  * sorted by the specified manner.
  * Subclasses handle the actual SAM/BAM encoding.
  * <p>
- * Algorithm: Keep an array of records in memory
- * (size of array specified by user).  When we
- * have filled the array, sort the in memory records
- * and write out a SAM/BAM file to a temp file and
- * clear the in memory array to make room for more
- * records.
+ * Algorithm: this is an external merge sort.
+ * Keep an array of records in memory
+ * until either the max number of records or the max
+ * (estimated) number of bytes specified by the {@link ExternalSortOptions}
+ * has been reached.  Then sort the in memory records
+ * and spill them to a {@link SamRecordRunFile} in the temp directory
+ * and start a new array to make room for more
+ * records.  If more than one thread is used, the sorting and spilling
+ * is done on background threads while the caller keeps filling the next run.
  * When {@link SamWriter#close()} is called,
  * write the combined sorted
  * records to the specified output file.
  * Since 
- * we know each temp file and the in memory array are 
- * each sorted, we can use a merge sort like algorithm
+ * we know each run file and the in memory array are 
+ * each sorted, we use a k-way merge ({@link SortedSamRecordMerger})
  * to combine the records into one giant sorted list. 
  * </p>
  * @author dkatzel
  *
  */
 class ReSortSamFileWriter implements SamWriter {
+	/**
+	 * Rough number of bytes of object overhead
+	 * of a decoded {@link SamRecord} not counting
+	 * the variable length fields.
+	 */
+	private static final int RECORD_OVERHEAD_BYTES = 256;
 
 	private final SamHeader header;
 	private final Comparator<SamRecord> recordComparator;
@@ -73,23 +85,33 @@ class ReSortSamFileWriter implements SamWriter {
 	
 	private SamRecord[] inMemoryArray;
 	private int currentInMemSize;
-	private final int maxRecordsToKeepInMemory;
-	private final List<File> tempFiles = new ArrayList<File>();
+	private long currentInMemBytes;
+	private final int maxRecordsPerRun;
+	private final long maxBytesPerRun;
+	
+	private final List<Future<SamRecordRunFile>> runFiles = new ArrayList<>();
+	private final WorkerPool sortExecutor;
+	private final int maxRunsInFlight;
+	
 	private final SamAttributeValidator attributeValidator;
 	
 	private final Encoding encoding;
 	private final BamIndexer indexer;
 	private final boolean includeIndexMetaData;
+	private final BgzfCompressionOptions compressionOptions;
 	
+	private final Map<String, Integer> refIndexes = new HashMap<>();
+	private final String[] refNames;
 	
 	/**
 	 * 
 	 * @param outputFile The output File to write.
 	 * @param tmpDirRoot the root directory to create child temp directories to write temp data to.
 	 * @param header the {@link SamHeader} to use in the output file.
-	 * @param maxRecordsToKeepInMemory the max number of SamRecords to keep in memory at a time.  When 
+	 * @param sortOptions the {@link ExternalSortOptions} of how many records to keep in memory
+	 * at a time and how many threads to use to sort them.  When 
 	 * more than this amount of records have been written to memory, they will be flushed to a temp file under the tmpDirRoot.
-	 * Value must be &ge; 0.
+	 * Can not be null.
 	 * 
 	 * @param attributeValidator the {@link SamAttributeValidator} to use to validate the records to be written;
 	 * can not be null.
@@ -97,18 +119,20 @@ class ReSortSamFileWriter implements SamWriter {
 	 * @param encodingToUse The {@link Encoding} to use to write the output file; can not be null.
 	 * @param indexer the {@link BamIndexer} to use to index the files
 	 * @param includeIndexMetaData  should the index also include metadata.
+	 * @param compressionOptions the {@link BgzfCompressionOptions} to use for the final output
+	 * if it is a BAM file. Can not be null.
 	 * 
 	 * @throws NullPointerException if any of the parameters that can't be null are null.
-	 * @throws IllegalArgumentException if maxRecordsToKeepInMemory is negative.
 	 * 
 	 * @throws IOException if there is a problem creating the output file or creating a temp directory under tmpDirRoot.
 	 */
 	ReSortSamFileWriter(File outputFile, File tmpDirRoot, SamHeader header, 
-	        int maxRecordsToKeepInMemory, SamAttributeValidator attributeValidator,
-	        Encoding encodingToUse, BamIndexer indexer, boolean includeIndexMetaData) throws IOException {
+	        ExternalSortOptions sortOptions, SamAttributeValidator attributeValidator,
+	        Encoding encodingToUse, BamIndexer indexer, boolean includeIndexMetaData,
+	        BgzfCompressionOptions compressionOptions) throws IOException {
 		
-		if(maxRecordsToKeepInMemory <0){
-			throw new IllegalArgumentException("max records to keep in memory must be >=1");
+		if(sortOptions ==null){
+			throw new NullPointerException("sort options can not be null");
 		}
 		if(attributeValidator ==null){
 			throw new NullPointerException("attribute valiator can not be null");
@@ -116,7 +140,11 @@ class ReSortSamFileWriter implements SamWriter {
 		if(encodingToUse ==null){
 			throw new NullPointerException("Encoding can not be null");
 		}
-		this.maxRecordsToKeepInMemory = maxRecordsToKeepInMemory;
+		if(compressionOptions ==null){
+			throw new NullPointerException("compression options can not be null");
+		}
+		this.maxRecordsPerRun = sortOptions.getMaxRecordsPerRun();
+		this.maxBytesPerRun = sortOptions.getMaxBytesPerRun();
 		
 		this.header = header;
 		recordComparator = createRecordComparatorFor(header);
@@ -126,7 +154,7 @@ class ReSortSamFileWriter implements SamWriter {
 		
 		IOUtil.mkdirs(outputFile.getParentFile());
 		tmpDir = IOUtil.createTempDir("jillion", "samWriterTmp", tmpDirRoot);		
-        inMemoryArray = new SamRecord[maxRecordsToKeepInMemory];
+        inMemoryArray = new SamRecord[maxRecordsPerRun];
         currentInMemSize=0;
         this.outputFile = outputFile;
         this.attributeValidator = attributeValidator;
@@ -134,6 +162,23 @@ class ReSortSamFileWriter implements SamWriter {
         this.indexer = indexer;
         
         this.includeIndexMetaData = includeIndexMetaData;
+        this.compressionOptions = compressionOptions;
+        
+        refNames = new String[header.getReferenceSequences().size()];
+        int i=0;
+        for(SamReferenceSequence ref : header.getReferenceSequences()){
+        	refNames[i] = ref.getName();
+        	refIndexes.put(ref.getName(), i);
+        	i++;
+        }
+        int numberOfThreads = sortOptions.getNumberOfThreads();
+        if(numberOfThreads > 1){
+        	sortExecutor = new WorkerPool(numberOfThreads);
+        	maxRunsInFlight = numberOfThreads;
+        }else{
+        	sortExecutor = null;
+        	maxRunsInFlight = 0;
+        }
 	}
 
 
@@ -158,79 +203,126 @@ class ReSortSamFileWriter implements SamWriter {
 		}
 		
 		inMemoryArray[currentInMemSize++] = record;
+		currentInMemBytes += estimateMemorySize(record);
+	}
+	/**
+	 * Estimate how many bytes of heap the given record
+	 * takes up.  This doesn't have to be exact, it is only
+	 * used to decide when to spill a run to disk.
+	 * @param record the record to estimate.
+	 * @return the estimated number of bytes.
+	 */
+	static long estimateMemorySize(SamRecord record){
+		if(record instanceof LazyBamSamRecord){
+			return RECORD_OVERHEAD_BYTES + ((LazyBamSamRecord) record).getEncodedLength();
+		}
+		long size = RECORD_OVERHEAD_BYTES + 2L * record.getQueryName().length();
+		NucleotideSequence seq = record.getSequence();
+		if(seq !=null){
+			//bases and qualities
+			size += 2 * seq.getLength();
+		}
+		Cigar cigar = record.getCigar();
+		if(cigar !=null){
+			size += 16L * cigar.getNumberOfElements();
+		}
+		size += 64L * record.getAttributes().size();
+		return size;
 	}
 
 	/**
-	 * Write all the records currently in memory
-	 * to a temp file encoded using the given encoding
-	 * @throws IOException
+	 * Sort and spill all the records currently in memory
+	 * to a new run file if we are at our memory limits.
+	 * @throws IOException if there is a problem writing the run
+	 * or a problem writing a previous run on a background thread.
 	 */
 	private void persistInMemoryCacheIfNeeded() throws IOException {
-		if(currentInMemSize == maxRecordsToKeepInMemory){
-			
-			sortInMemoryRecords();
-			
-			File tempFile= File.createTempFile(outputFile.getName(), encoding.getSuffix(), tmpDir);
-			tempFiles.add(tempFile);
-			//never pass indexer to temp files
-			//only use in final if at all.
-			SamWriter writer = encoding.createPreSortedNoValidationOutputWriter(tempFile, header,null, false);
-			try{
-				for(int i=0; i<currentInMemSize; i++){
-					writer.writeRecord(inMemoryArray[i]);
-				}
-			}finally{
-				IOUtil.closeAndIgnoreErrors(writer);
-				clearInMemoryArray();
+		if(currentInMemSize < maxRecordsPerRun && currentInMemBytes < maxBytesPerRun){
+			return;
+		}
+		SamRecord[] records = inMemoryArray;
+		int length = currentInMemSize;
+		File tempFile= File.createTempFile(outputFile.getName(), ".run", tmpDir);
+		if(sortExecutor ==null){
+			runFiles.add(CompletableFuture.completedFuture(sortAndWrite(tempFile, records, length)));
+			clearInMemoryArray();
+		}else{
+			//limit the number of runs in memory at a time
+			int numberOfRuns = runFiles.size();
+			if(numberOfRuns >= maxRunsInFlight){
+				waitFor(runFiles.get(numberOfRuns - maxRunsInFlight));
 			}
-			
+			runFiles.add(sortExecutor.submit(()-> sortAndWrite(tempFile, records, length)));
+			//hand off the full array to the background thread
+			inMemoryArray = new SamRecord[maxRecordsPerRun];
+			currentInMemSize=0;
+			currentInMemBytes=0;
+		}
+	}
+	
+	private SamRecordRunFile sortAndWrite(File tempFile, SamRecord[] records, int length) throws IOException{
+		//sort records while they are still in memory
+		Arrays.sort(records, 0, length, recordComparator);
+		return SamRecordRunFile.write(tempFile, records, length, header, refIndexes);
+	}
+	
+	private static SamRecordRunFile waitFor(Future<SamRecordRunFile> future) throws IOException{
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("interrupted while sorting temp run", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if(cause instanceof IOException){
+				throw (IOException) cause;
+			}
+			throw new IOException("error sorting temp run", cause);
 		}
-		
 	}
 
 
 	private void clearInMemoryArray() {
 		currentInMemSize=0;
+		currentInMemBytes=0;
 		//clear references to free up GC
 		Arrays.fill(inMemoryArray, null);
 	}
 
-
-	private void sortInMemoryRecords() {
-		//sort records while they are still in memory
-		//our comparators in SortOrder
-		//handle nulls and sort them last
-		//so we don't have to worry about those
-		//throwing NPE.
-		Arrays.sort(inMemoryArray, recordComparator);
-	}
-
-
-	
 	
 	@Override
 	public void close() throws IOException {
-		List<PeekableStreamingIterator<SamRecord>> iterators =new ArrayList<PeekableStreamingIterator<SamRecord>>(1 + tempFiles.size());
+		List<RecordRun> runs =new ArrayList<>(1 + runFiles.size());
+		SortedSamRecordMerger merger = null;
 		SamWriter writer =null;
 		try{
-			sortInMemoryRecords();
-
-			iterators.add(IteratorUtil.createPeekableStreamingIterator(new InMemoryStreamingIterator(currentInMemSize)));
-			
-			for(File tempFile : tempFiles){
-				iterators.add(IteratorUtil.createPeekableStreamingIterator(new StreamingSamRecordIterator(tempFile, encoding)));
+			for(Future<SamRecordRunFile> future : runFiles){
+				runs.add(waitFor(future).open(header, refNames));
 			}
+			//in memory records are the last ones written
+			//so they go last to keep the merge stable
+			Arrays.sort(inMemoryArray, 0, currentInMemSize, recordComparator);
+			runs.add(new InMemoryRun(inMemoryArray, currentInMemSize));
 			
-			Iterator<SamRecord> sortedIterator = new MergedSortedRecordIterator(iterators, recordComparator);
-			writer = encoding.createPreSortedNoValidationOutputWriter(outputFile, header, indexer, includeIndexMetaData);
-			while(sortedIterator.hasNext()){
-				writer.writeRecord(sortedIterator.next());
+			merger = new SortedSamRecordMerger(runs, recordComparator);
+			writer = encoding.createPreSortedNoValidationOutputWriter(outputFile, header, indexer, includeIndexMetaData, compressionOptions);
+			SamRecord next;
+			while((next = merger.next()) !=null){
+				writer.writeRecord(next);
 			}
 		}finally{
-			for(StreamingIterator<?> iter : iterators){
-				IOUtil.closeAndIgnoreErrors(iter);
+			if(merger ==null){
+				for(RecordRun run : runs){
+					IOUtil.closeAndIgnoreErrors(run);
+				}
+			}else{
+				merger.close();
 			}
 			IOUtil.closeAndIgnoreErrors(writer);
+			//only stops anything if the merge failed
+			for(Future<SamRecordRunFile> future : runFiles){
+				future.cancel(true);
+			}
 			clearInMemoryArray();
 			//delete temp dir
 			IOUtil.recursiveDelete(tmpDir);
@@ -238,205 +330,28 @@ class ReSortSamFileWriter implements SamWriter {
 		
 	}
 
+	private static final class InMemoryRun implements RecordRun{
 
-	
-
-	
-
-	private final class InMemoryStreamingIterator implements StreamingIterator<SamRecord>{
-
+		private final SamRecord[] records;
 		private final int length;
 		private int counter=0;
 		
-		InMemoryStreamingIterator(int numOfInMemoryRecords){
-			this.length = numOfInMemoryRecords;
+		InMemoryRun(SamRecord[] records, int length){
+			this.records = records;
+			this.length = length;
 		}
 		
-		@Override
-		public boolean hasNext() {
-			return counter<length;
-		}
-
-		@Override
-		public void close() {
-			//no-op
-			
-		}
-
 		@Override
 		public SamRecord next() {
-			if(!hasNext()){
-				throw new NoSuchElementException();
+			if(counter < length){
+				return records[counter++];
 			}
-			return inMemoryArray[counter++];
+			return null;
 		}
 
 		@Override
-		public void remove() {
-			throw new UnsupportedOperationException();
-			
-		}
-		
-	}
-	/**
-	 * Combine a list of pre-sorted Iterators into a single sorted iterator.
-	 * Each call to {@link #next()} will peek at the next elements in the wrapped
-	 * iterators and return the value that has the lowest sort value as determined
-	 * by the comparator (and advance that iterator).
-	 * @author dkatzel
-	 *
-	 */
-	public static class MergedSortedRecordIterator implements Iterator<SamRecord> {
-			private final List<PeekableStreamingIterator<SamRecord>> iterators;
-			
-			private SamRecord next;
-			private final SortedSamRecordElementComparator comparator;
-			private final List<SortedSamRecordElement> elementList;
-			
-			
-			public MergedSortedRecordIterator(List<PeekableStreamingIterator<SamRecord>> iterators, Comparator<SamRecord> comparator) {
-				this.iterators = iterators;
-				this.comparator = new SortedSamRecordElementComparator(comparator);
-				elementList = new ArrayList<SortedSamRecordElement>(iterators.size());
-				
-				next= getNext();
-			}
-			
-			private SamRecord getNext(){
-				elementList.clear();
-				for(PeekableStreamingIterator<SamRecord> iter : iterators){
-					if(iter.hasNext()){
-						//we peek instead of next()
-						//incase we don't pick this record yet
-						elementList.add(new SortedSamRecordElement(iter.peek(), iter));
-					}
-				}
-				if(elementList.isEmpty()){
-					return null;
-				}
-				Collections.sort(elementList, comparator);
-				SortedSamRecordElement element= elementList.get(0);
-				//advance iterator
-				element.source.next();
-				return element.record;
-			}
-
-			@Override
-			public boolean hasNext() {
-				return next!=null;
-			}
-			
-			
-			@Override
-			public SamRecord next() {
-				//don't need to check has next
-				//since we can make sure we don't call it incorrectly
-				SamRecord ret= next;
-				next = getNext();
-				return ret;
-			}
-			
-			@Override
-			public void remove() {
-				throw new UnsupportedOperationException();				
-			}
-
-	}
-	/**
-	 * Struct that has a {@link SamRecord} and which
-	 * iterator that record belong to so we can advance
-	 * the iterator if selected.
-	 * @author dkatzel
-	 *
-	 */
-	private static class SortedSamRecordElement{
-		SamRecord record;
-		Iterator<SamRecord> source;
-		
-		public SortedSamRecordElement(SamRecord record,
-				Iterator<SamRecord> source) {
-			this.record = record;
-			this.source = source;
-		}
-
-		@Override
-		public String toString() {
-			return "SortedSamRecordElement [record=" + record + ", source="
-					+ source + "]";
-		}
-		
-	}
-	
-	private static class SortedSamRecordElementComparator implements Comparator<SortedSamRecordElement>{
-		private final Comparator<SamRecord> comparator;
-		
-
-		public SortedSamRecordElementComparator(Comparator<SamRecord> comparator) {
-			this.comparator = comparator;
-		}
-
-
-		@Override
-		public int compare(SortedSamRecordElement o1, SortedSamRecordElement o2) {
-			return comparator.compare(o1.record, o2.record);
-		}
-		
-	}
-	/**
-	 * Iterates over a sam (or bam) encoded file as a {@link StreamingIterator}.
-	 * @author dkatzel
-	 *
-	 */
-	private static class StreamingSamRecordIterator extends AbstractBlockingStreamingIterator<SamRecord>{
-
-		private final File samFile;
-		private final Encoding encoding;
-		
-		public StreamingSamRecordIterator(File samFile, Encoding encoding) {
-			this.samFile = samFile;
-			this.encoding = encoding;
-			this.start();
-		}
-
-
-		@Override
-		protected void backgroundThreadRunMethod() throws RuntimeException {
-			try {
-				encoding.createNewNoValidationSamParser(samFile).parse(new SamVisitor() {
-					
-					
-					@Override
-					public void visitRecord(SamVisitorCallback callback, SamRecord record,
-							VirtualFileOffset start, VirtualFileOffset end) {
-						StreamingSamRecordIterator.this.blockingPut(record);
-						
-					}
-					
-					
-					@Override
-					public void visitHeader(SamVisitorCallback callback, SamHeader header) {
-						//no-op
-						
-					}
-					
-					@Override
-					public void visitEnd() {
-						//no-op
-						
-					}
-					@Override
-					public void halted() {
-						
-					}
-
-
-
-					
-				});
-			} catch (IOException e) {
-				throw new RuntimeException("error parsing temp sam file " + samFile.getAbsolutePath(), e);
-			}
-			
+		public void close() {
+			//no-op
 		}
 		
 	}
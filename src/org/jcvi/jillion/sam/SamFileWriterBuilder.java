@@ -62,6 +62,14 @@ public final class SamFileWriterBuilder {
 	
 	private boolean includeIndexMetadata=false;
 	
+	private int bamCompressionLevel = BgzfOutputStream.DEFAULT_COMPRESSION_LEVEL;
+	
+	private int bamCompressionThreads = 1;
+	
+	private long maxBytesToKeepInMemory = getDefaultBytesToKeepInMemory();
+	
+	private int reSortThreads = 1;
+	
 	/**
 	 * Get the max number of {@link SamRecord}s
 	 * to keep in memory at any one time if
@@ -71,6 +79,18 @@ public final class SamFileWriterBuilder {
 	public static int getDefaultRecordsToKeepInMemory() {
 		return DEFAULT_RECORDS_IN_MEMORY;
 	}
+	/**
+	 * Get the default max number of bytes
+	 * of {@link SamRecord}s to keep in memory at any one time if
+	 * re-sorting on the fly.  This is a quarter of the 
+	 * max heap size of this JVM.
+	 * @return a long will always be &gt; 0.
+	 * 
+	 * @since 6.0.3
+	 */
+	public static long getDefaultBytesToKeepInMemory() {
+		return Math.max(1, Runtime.getRuntime().maxMemory() / 4);
+	}
 	/**
 	 * Create a new {@link SamFileWriterBuilder} instance
 	 * that will write out {@link SamRecord}s
@@ -203,6 +223,85 @@ public final class SamFileWriterBuilder {
 		this.includeIndexMetadata = includeMetadata;
 		return this;
 	}
+	/**
+	 * Set the GZIP compression level to use when writing
+	 * BAM files.  This is ignored when writing SAM files.
+	 * If this method is not called, then
+	 * a compression level of {@value BgzfOutputStream#DEFAULT_COMPRESSION_LEVEL}
+	 * is used.
+	 * @param compressionLevel the compression level to use; must be between 0 (no compression)
+	 * and 9 (best compression) inclusive or -1 (the zlib default).
+	 * @return this.
+	 * @throws IllegalArgumentException if the compression level is not valid.
+	 * 
+	 * @since 6.0.3
+	 */
+	public SamFileWriterBuilder setBamCompressionLevel(int compressionLevel){
+		this.bamCompressionLevel = BgzfCompressionOptions.validateCompressionLevel(compressionLevel);
+		return this;
+	}
+	/**
+	 * Set the number of threads to use to compress
+	 * BAM blocks.  This is ignored when writing SAM files.
+	 * BAM files are written as a series of independently compressed
+	 * blocks, so using more than one thread lets blocks
+	 * be compressed in parallel while the caller keeps writing records.
+	 * The output is exactly the same no matter how many threads are used.
+	 * If this method is not called, then blocks are compressed on the writing thread.
+	 * 
+	 * @param numberOfThreads the number of threads to use; values less than 2
+	 * mean compress on the writing thread.
+	 * @return this.
+	 * 
+	 * @since 6.0.3
+	 */
+	public SamFileWriterBuilder setBamCompressionThreads(int numberOfThreads){
+		this.bamCompressionThreads = Math.max(1, numberOfThreads);
+		return this;
+	}
+	/**
+	 * Set the max number of bytes of {@link SamRecord}s
+	 * to keep in memory at any one time if re-sorting on the fly.
+	 * The size of each record is an estimate of the heap it uses.
+	 * Once either this limit or the max number of records
+	 * set by {@link #reSortBy(SortOrder, int)} is reached,
+	 * the in memory records are sorted and written to a temp file.
+	 * This is ignored if not re-sorting.
+	 * If this method is not called, then {@link #getDefaultBytesToKeepInMemory()}
+	 * is used.
+	 * 
+	 * @param maxBytes the max number of bytes to keep in memory; must be &gt; 0.
+	 * @return this.
+	 * @throws IllegalArgumentException if maxBytes &lt; 1.
+	 * 
+	 * @since 6.0.3
+	 */
+	public SamFileWriterBuilder setReSortMemoryLimit(long maxBytes){
+		if(maxBytes < 1){
+			throw new IllegalArgumentException("max bytes to keep in memory must be positive");
+		}
+		this.maxBytesToKeepInMemory = maxBytes;
+		return this;
+	}
+	/**
+	 * Set the number of threads to use to sort and write
+	 * temp files if re-sorting on the fly.  This is ignored if not re-sorting.
+	 * Using more than one thread lets full batches of records be sorted
+	 * and written to temp files in parallel while the caller keeps writing records;
+	 * the memory limits are then shared by all the batches in memory at once.
+	 * The output is exactly the same no matter how many threads are used.
+	 * If this method is not called, then records are sorted on the writing thread.
+	 * 
+	 * @param numberOfThreads the number of threads to use; values less than 2
+	 * mean sort on the writing thread.
+	 * @return this.
+	 * 
+	 * @since 6.0.3
+	 */
+	public SamFileWriterBuilder setReSortThreads(int numberOfThreads){
+		this.reSortThreads = Math.max(1, numberOfThreads);
+		return this;
+	}
 	/**
 	 * Convenience method to resort 
 	 * using the default number of records to get in memory
@@ -292,10 +391,12 @@ public final class SamFileWriterBuilder {
 		}else{
 			indexer =null;
 		}
+		BgzfCompressionOptions compressionOptions = new BgzfCompressionOptions(bamCompressionLevel, bamCompressionThreads);
 		if(writeUnSortedRecords()){
-			return encoding.createPreSortedNoValidationOutputWriter(outputFile, header, indexer,includeIndexMetadata);
+			return encoding.createPreSortedNoValidationOutputWriter(outputFile, header, indexer,includeIndexMetadata, compressionOptions);
 		}
-		return encoding.createReSortedOutputWriter(outputFile, tmpDirRoot, header, maxRecordsToKeepInMemory, attributeValidator, indexer, includeIndexMetadata);
+		ExternalSortOptions sortOptions = new ExternalSortOptions(maxRecordsToKeepInMemory, maxBytesToKeepInMemory, reSortThreads);
+		return encoding.createReSortedOutputWriter(outputFile, tmpDirRoot, header, sortOptions, attributeValidator, indexer, includeIndexMetadata, compressionOptions);
 		
 	}
 
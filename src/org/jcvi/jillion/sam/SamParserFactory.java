@@ -71,10 +71,61 @@ public final class SamParserFactory {
 		
 		@Builder.Default
 		private SamAttributeValidator attributeValidator = ReservedAttributeValidator.INSTANCE;
+		/**
+		 * The number of threads to use to inflate
+		 * BAM encoded BGZF blocks.  Values less than 2
+		 * (the default) inflate each block on the parsing thread.
+		 * 
+		 * @since 6.0.3
+		 */
+		private int bgzfInflaterThreads;
+		/**
+		 * The maximum number of BGZF blocks to read ahead
+		 * and inflate while the current block is being parsed.
+		 * Only used if {@link #getBgzfInflaterThreads()} is greater than 1;
+		 * if not set, then 4 blocks per thread are read ahead.
+		 * 
+		 * @since 6.0.3
+		 */
+		private int bgzfReadAheadBlocks;
+		/**
+		 * Should records parsed from BAM files
+		 * be decoded lazily.  If set to {@code true}, each {@link SamRecord}
+		 * only keeps the raw BAM encoded bytes and decodes each field
+		 * the first time it is requested.  This makes filtering records by
+		 * fields such as flags, mapping quality or reference much cheaper, 
+		 * but invalid attributes are not detected until the attributes are requested
+		 * in which case an {@link java.io.UncheckedIOException} is thrown.
+		 * Defaults to {@code false}.
+		 * 
+		 * @since 6.0.3
+		 */
+		private boolean lazyBamRecordDecoding;
+		/**
+		 * The {@link BgzfBlockCache} to use for random access
+		 * of indexed BAM files.  If set, then indexed BAM files
+		 * are memory mapped and every BGZF block inflated
+		 * by a region query is kept in the given cache so that repeated or
+		 * overlapping region queries (even from different parsers)
+		 * reuse the already inflated blocks.  A cache
+		 * may be shared by many parsers, see {@link BgzfBlockCache#getSharedInstance()}.
+		 * Defaults to {@code null} which means region queries
+		 * stream the BAM file without caching.
+		 * 
+		 * @since 6.0.3
+		 */
+		private BgzfBlockCache bgzfBlockCache;
 		
 		public boolean shouldIgnoreBai() {
 			return ignoreBai;
 		}
+		
+		int computeBgzfReadAheadBlocks() {
+			if(bgzfReadAheadBlocks >0) {
+				return bgzfReadAheadBlocks;
+			}
+			return 4 * bgzfInflaterThreads;
+		}
 	}
 	private SamParserFactory(){
 		//can not instantiate
@@ -176,12 +227,12 @@ public final class SamParserFactory {
 	
 	
 	private static SamParser createFromBamFile(File f, Parameters parameters) throws IOException {
-		SamParser unsortedBamParser= new BamFileParser(f, parameters.attributeValidator);
+		SamParser unsortedBamParser= new BamFileParser(f, parameters);
 		if(!parameters.shouldIgnoreBai() && unsortedBamParser.getHeader().getSortOrder() == SortOrder.COORDINATE){
 			//is there an indexed bam file that goes with it?
 			File bai = new File(f.getParentFile(), f.getName() +".bai");
 			if(bai.exists()){
-				return createUsingIndex(f, bai, parameters.attributeValidator);
+				return new IndexedBamFileParser(f, bai, parameters);
 			}
 		
 		}
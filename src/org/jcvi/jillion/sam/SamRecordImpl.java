@@ -236,7 +236,7 @@ class SamRecordImpl implements SamRecord, Serializable {
 				+ ((qualities == null) ? 0 : qualities.hashCode());
 		result = prime * result
 				+ ((queryName == null) ? 0 : queryName.hashCode());
-		result = prime * result	+ referenceName.hashCode();
+		result = prime * result	+ ((referenceName == null) ? 0 : referenceName.hashCode());
 		result = prime * result
 				+ ((sequence == null) ? 0 : sequence.hashCode());
 		result = prime * result + startPosition;
@@ -251,6 +251,9 @@ class SamRecordImpl implements SamRecord, Serializable {
 		if (obj == null) {
 			return false;
 		}
+		if (obj instanceof LazyBamSamRecord) {
+			return equals(((LazyBamSamRecord) obj).decode());
+		}
 		if (!(obj instanceof SamRecordImpl)) {
 			return false;
 		}
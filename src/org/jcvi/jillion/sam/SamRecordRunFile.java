@@ -0,0 +1,146 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.sam;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteOrder;
+import java.util.Map;
+
+import org.jcvi.jillion.core.io.IOUtil;
+import org.jcvi.jillion.internal.sam.SamUtil;
+import org.jcvi.jillion.sam.SortedSamRecordMerger.RecordRun;
+import org.jcvi.jillion.sam.header.SamHeader;
+/**
+ * {@code SamRecordRunFile} is a temp file
+ * of sorted {@link SamRecord}s spilled to disk
+ * by {@link ReSortSamFileWriter}.
+ * <p>
+ * Each record is stored as its uncompressed BAM encoding
+ * (the block size followed by the record bytes) with no
+ * file header.  This is much cheaper to write and read back
+ * than a SAM or BGZF compressed BAM file and the records
+ * read back are {@link LazyBamSamRecord}s so the merge
+ * only decodes the fields the comparator needs and
+ * BAM output can copy the bytes without re-encoding.
+ * 
+ * @author dkatzel
+ *
+ * @since 6.0.3
+ */
+final class SamRecordRunFile {
+
+	private static final int BUFFER_SIZE = 1 << 16;
+	
+	private final File file;
+	private final int numberOfRecords;
+	
+	private SamRecordRunFile(File file, int numberOfRecords) {
+		this.file = file;
+		this.numberOfRecords = numberOfRecords;
+	}
+	/**
+	 * Write the given already sorted records to a new run file.
+	 * @param file the file to write.
+	 * @param records the sorted records.
+	 * @param length the number of records in the array to write.
+	 * @param header the {@link SamHeader} the records are valid for.
+	 * @param refIndexes the reference name to reference index map of the header.
+	 * @return a new {@link SamRecordRunFile}.
+	 * @throws IOException if there is a problem writing the file.
+	 */
+	static SamRecordRunFile write(File file, SamRecord[] records, int length, SamHeader header, Map<String, Integer> refIndexes) throws IOException{
+		try(OutputStream out = new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE)){
+			for(int i=0; i< length; i++){
+				SamRecord record = records[i];
+				if(record instanceof LazyBamSamRecord && ((LazyBamSamRecord) record).isEncodedFor(header)){
+					((LazyBamSamRecord) record).writeEncodedTo(out);
+				}else{
+					SamUtil.writeAsBamRecord(out, header, record, 
+							getRefIndexFor(refIndexes, record.getReferenceName()),
+							getRefIndexFor(refIndexes, record.getNextName()));
+				}
+			}
+		}
+		return new SamRecordRunFile(file, length);
+	}
+	
+	private static int getRefIndexFor(Map<String, Integer> refIndexes, String refName){
+		Integer refIndex = refIndexes.get(refName);
+		if(refIndex ==null){
+			return -1;
+		}
+		return refIndex;
+	}
+	
+	int getNumberOfRecords() {
+		return numberOfRecords;
+	}
+	/**
+	 * Open this file to read the records back in sorted order.
+	 * @param header the {@link SamHeader} used to write this file.
+	 * @param refNames the reference names of the header in index order.
+	 * @return a new {@link RecordRun}; the caller is responsible for closing it.
+	 * @throws IOException if there is a problem opening the file.
+	 */
+	RecordRun open(SamHeader header, String[] refNames) throws IOException{
+		return new RunFileReader(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE), header, refNames, numberOfRecords);
+	}
+	
+	private static final class RunFileReader implements RecordRun{
+		private final InputStream in;
+		private final SamHeader header;
+		private final String[] refNames;
+		private int remaining;
+		
+		RunFileReader(InputStream in, SamHeader header, String[] refNames, int numberOfRecords) {
+			this.in = in;
+			this.header = header;
+			this.refNames = refNames;
+			this.remaining = numberOfRecords;
+		}
+
+		@Override
+		public SamRecord next() throws IOException {
+			if(remaining ==0){
+				return null;
+			}
+			remaining--;
+			int blockSize = IOUtil.readSignedInt(in, ByteOrder.LITTLE_ENDIAN);
+			byte[] data = new byte[blockSize];
+			IOUtil.blockingRead(in, data);
+			//records were already validated when they were written
+			return new LazyBamSamRecord(data, header, NullSamAttributeValidator.INSTANCE, refNames);
+		}
+
+		@Override
+		public void close() throws IOException {
+			in.close();
+		}
+		
+	}
+}
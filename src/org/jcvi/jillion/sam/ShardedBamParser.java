@@ -0,0 +1,318 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.sam;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+import org.jcvi.jillion.core.Range;
+import org.jcvi.jillion.core.io.IOUtil;
+import org.jcvi.jillion.internal.core.util.WorkerPool;
+import org.jcvi.jillion.sam.attribute.ReservedAttributeValidator;
+import org.jcvi.jillion.sam.header.SamHeader;
+import org.jcvi.jillion.sam.header.SamReferenceSequence;
+import org.jcvi.jillion.sam.index.BamIndex;
+import org.jcvi.jillion.sam.index.Bin;
+import org.jcvi.jillion.sam.index.Chunk;
+import org.jcvi.jillion.sam.index.ReferenceIndex;
+/**
+ * {@code ShardedBamParser} splits a coordinate sorted
+ * and indexed BAM file into {@link BamShard}s 
+ * that can be visited concurrently, each by its own {@link SamVisitor}.
+ * This lets per-region computations such as coverage
+ * or variant counting scale with the number of cores.
+ * <p>
+ * Shards are cut on the 16kb tile boundaries of the BAM index's linear index
+ * and never span references.  Each record is visited by exactly one shard.
+ * <pre>
+ * ShardedBamParser parser = ShardedBamParser.create(bam, bai);
+ * List&lt;BamShard&gt; shards = parser.createShards(32);
+ * parser.parse(shards, 8, shard -&gt; new MyCoverageVisitor(shard));
+ * </pre>
+ * 
+ * @author dkatzel
+ *
+ * @since 6.0.3
+ */
+public final class ShardedBamParser {
+	/**
+	 * Each entry in the linear index covers 16kb of the reference.
+	 */
+	private static final int TILE_SIZE = 1 << 14;
+	
+	private final IndexedBamFileParser parser;
+	/**
+	 * Create a new {@link ShardedBamParser} using the 
+	 * {@link ReservedAttributeValidator}.
+	 * 
+	 * @param bam the Coordinate sorted BAM file to be parsed;
+	 * can not be null, must exist.
+	 * 
+	 * @param bamIndex the corresponding BAI encoded file to be parsed;
+	 * can not be null, must exist.
+	 * 
+	 * @return a new {@link ShardedBamParser}; will never be null.
+	 * 
+	 * @throws IOException if there is a problem parsing the header or index.
+	 * @throws NullPointerException if any parameter is null.
+	 */
+	public static ShardedBamParser create(File bam, File bamIndex) throws IOException{
+		return create(bam, bamIndex, SamParserFactory.Parameters.createDefault());
+	}
+	/**
+	 * Create a new {@link ShardedBamParser} using the given parameters.
+	 * 
+	 * @param bam the Coordinate sorted BAM file to be parsed;
+	 * can not be null, must exist.
+	 * 
+	 * @param bamIndex the corresponding BAI encoded file to be parsed;
+	 * can not be null, must exist.
+	 * 
+	 * @param parameters the {@link SamParserFactory.Parameters} to use
+	 * when parsing each shard; can not be null.
+	 * 
+	 * @return a new {@link ShardedBamParser}; will never be null.
+	 * 
+	 * @throws IOException if there is a problem parsing the header or index.
+	 * @throws NullPointerException if any parameter is null.
+	 */
+	public static ShardedBamParser create(File bam, File bamIndex, SamParserFactory.Parameters parameters) throws IOException{
+		IOUtil.verifyIsReadable(bam);
+		IOUtil.verifyIsReadable(bamIndex);
+		Objects.requireNonNull(parameters);
+		
+		return new ShardedBamParser(new IndexedBamFileParser(bam, bamIndex, parameters));
+	}
+	
+	private ShardedBamParser(IndexedBamFileParser parser){
+		this.parser = parser;
+	}
+	/**
+	 * Get the {@link SamHeader} of the BAM file.
+	 * @return the {@link SamHeader}; will never be null.
+	 * @throws IOException if there is a problem parsing the header.
+	 */
+	public SamHeader getHeader() throws IOException{
+		return parser.getHeader();
+	}
+	/**
+	 * Get the {@link BamIndex} used to create the shards.
+	 * @return the {@link BamIndex}; will never be null.
+	 */
+	public BamIndex getIndex(){
+		return parser.getIndex();
+	}
+	/**
+	 * Split the BAM file into approximately the given number of shards
+	 * of roughly equal compressed size.  Shards never span references
+	 * so there may be more shards than requested if there are many references,
+	 * and there may be fewer shards if the index is too coarse to split further.
+	 * 
+	 * @param targetNumberOfShards the number of shards to aim for; must be >=1.
+	 * 
+	 * @return a List of {@link BamShard}s in file order; will never be null.
+	 * If the BAM index may have unplaced reads, the last shard will be the shard of unplaced reads.
+	 * 
+	 * @throws IOException if there is a problem parsing the BAM header.
+	 * @throws IllegalArgumentException if targetNumberOfShards &lt; 1.
+	 */
+	public List<BamShard> createShards(int targetNumberOfShards) throws IOException{
+		if(targetNumberOfShards < 1){
+			throw new IllegalArgumentException("target number of shards must be >= 1");
+		}
+		BamIndex index = parser.getIndex();
+		List<SamReferenceSequence> refs = new ArrayList<>(parser.getHeader().getReferenceSequences());
+		
+		VirtualFileOffset endOfPreviousReference = parser.findFirstRecordOffset();
+		
+		long endOfMappedReads = endOfPreviousReference.getCompressedBamBlockOffset();
+		for(int i=0; i< index.getNumberOfReferenceIndexes(); i++){
+			VirtualFileOffset end = findEndOffset(index.getReferenceIndex(i));
+			if(end !=null){
+				endOfMappedReads = Math.max(endOfMappedReads, end.getCompressedBamBlockOffset());
+			}
+		}
+		long targetShardSize = Math.max(1, 
+				(endOfMappedReads - endOfPreviousReference.getCompressedBamBlockOffset())/ targetNumberOfShards);
+		
+		List<BamShard> shards = new ArrayList<>();
+		for(int i=0; i< index.getNumberOfReferenceIndexes(); i++){
+			ReferenceIndex refIndex = index.getReferenceIndex(i);
+			VirtualFileOffset refEnd = findEndOffset(refIndex);
+			if(refEnd ==null){
+				//no reads mapped to this reference
+				continue;
+			}
+			SamReferenceSequence ref = refs.get(i);
+			VirtualFileOffset[] intervals = refIndex.getIntervals();
+			
+			long shardBegin = 0;
+			VirtualFileOffset shardStart = endOfPreviousReference;
+			VirtualFileOffset previousTileStart = endOfPreviousReference;
+			//can't split on the first tile
+			for(int tile=1; tile< intervals.length; tile++){
+				VirtualFileOffset tileStart = intervals[tile];
+				if(tileStart ==null){
+					continue;
+				}
+				long size = tileStart.getCompressedBamBlockOffset() - shardStart.getCompressedBamBlockOffset();
+				if(size >= targetShardSize){
+					long tileBegin = (long) tile * TILE_SIZE;
+					shards.add(new BamShard(ref.getName(), Range.of(shardBegin, tileBegin -1), shardStart, size));
+					shardBegin = tileBegin;
+					//the linear index entry is the first read that overlaps the tile
+					//which might start after reads (like unmapped placed reads) that don't,
+					//so start at the previous tile
+					shardStart = previousTileStart;
+				}
+				previousTileStart = tileStart;
+			}
+			long shardEnd = Math.max(ref.getLength(), (long) intervals.length * TILE_SIZE) -1;
+			shards.add(new BamShard(ref.getName(), Range.of(shardBegin, shardEnd), shardStart, 
+					Math.max(0, refEnd.getCompressedBamBlockOffset() - shardStart.getCompressedBamBlockOffset())));
+			
+			if(refEnd.compareTo(endOfPreviousReference) > 0){
+				endOfPreviousReference = refEnd;
+			}
+		}
+		Long numberOfUnmappedReads = index.getTotalNumberOfUnmappedReads();
+		if(numberOfUnmappedReads ==null || numberOfUnmappedReads.longValue() > 0){
+			shards.add(new BamShard(null, null, endOfPreviousReference, 
+					Math.max(0, parser.bamFile.length() - endOfPreviousReference.getCompressedBamBlockOffset())));
+		}
+		return shards;
+	}
+	
+	private static VirtualFileOffset findEndOffset(ReferenceIndex refIndex){
+		VirtualFileOffset end = refIndex.getHighestEndOffset();
+		for(Bin bin : refIndex.getBins()){
+			for(Chunk chunk : bin.getChunks()){
+				if(end ==null || chunk.getEnd().compareTo(end) > 0){
+					end = chunk.getEnd();
+				}
+			}
+		}
+		return end;
+	}
+	/**
+	 * Visit all the records in the given shard.  
+	 * The visitor's {@link SamVisitor#visitHeader(SamVisitor.SamVisitorCallback, SamHeader)}
+	 * is called first, followed by only the records that belong to the shard
+	 * and then either {@link SamVisitor#visitEnd()} or {@link SamVisitor#halted()}.
+	 * Mementos are not supported.
+	 * 
+	 * @param shard the shard to visit; can not be null.
+	 * @param visitor the visitor to visit; can not be null.
+	 * 
+	 * @throws IOException if there is a problem parsing the BAM file.
+	 * @throws NullPointerException if any parameter is null.
+	 */
+	public void parse(BamShard shard, SamVisitor visitor) throws IOException{
+		Objects.requireNonNull(shard);
+		Objects.requireNonNull(visitor);
+		parser.parseShard(shard, visitor);
+	}
+	/**
+	 * Visit each of the given shards concurrently, each with its
+	 * own visitor.  This method blocks until all the shards have been visited.
+	 * 
+	 * @param shards the shards to visit; can not be null.
+	 * @param numberOfThreads the maximum number of shards to visit
+	 * at the same time; must be >=1.
+	 * @param visitorFactory function to create the {@link SamVisitor} for a shard; will be called
+	 * on the calling thread once per shard before any shards are visited, 
+	 * the returned visitors can not be null.
+	 * 
+	 * @throws IOException if there is a problem parsing any of the shards.
+	 * @throws NullPointerException if any parameter is null.
+	 * @throws IllegalArgumentException if numberOfThreads &lt; 1.
+	 */
+	public void parse(List<BamShard> shards, int numberOfThreads, Function<? super BamShard, ? extends SamVisitor> visitorFactory) throws IOException{
+		Objects.requireNonNull(shards);
+		Objects.requireNonNull(visitorFactory);
+		if(numberOfThreads < 1){
+			throw new IllegalArgumentException("number of threads must be >= 1");
+		}
+		List<ShardTask> tasks = new ArrayList<>(shards.size());
+		for(BamShard shard : shards){
+			tasks.add(new ShardTask(shard, Objects.requireNonNull(visitorFactory.apply(shard))));
+		}
+		if(numberOfThreads ==1 || tasks.size() < 2){
+			for(ShardTask task : tasks){
+				parse(task.shard, task.visitor);
+			}
+			return;
+		}
+		//start the biggest shards first so we don't end up waiting on one big shard at the end
+		tasks.sort(Comparator.comparingLong((ShardTask t) -> t.shard.getEstimatedCompressedSize()).reversed());
+		
+		WorkerPool workerPool = new WorkerPool(numberOfThreads);
+		List<Future<Void>> futures = new ArrayList<>(tasks.size());
+		try{
+			for(ShardTask task : tasks){
+				futures.add(workerPool.submit(() -> {
+					parse(task.shard, task.visitor);
+					return null;
+				}));
+			}
+			for(Future<Void> future : futures){
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("interrupted while waiting for shards to be parsed", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if(cause instanceof IOException){
+				throw (IOException) cause;
+			}
+			if(cause instanceof RuntimeException){
+				throw (RuntimeException) cause;
+			}
+			if(cause instanceof Error){
+				throw (Error) cause;
+			}
+			throw new IOException("error parsing shard", cause);
+		}finally{
+			//only stops anything if a shard failed
+			for(Future<Void> future : futures){
+				future.cancel(true);
+			}
+		}
+	}
+	
+	private static final class ShardTask{
+		private final BamShard shard;
+		private final SamVisitor visitor;
+		
+		ShardTask(BamShard shard, SamVisitor visitor) {
+			this.shard = shard;
+			this.visitor = visitor;
+		}
+	}
+}
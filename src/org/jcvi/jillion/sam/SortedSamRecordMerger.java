@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.sam;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.List;
+
+import org.jcvi.jillion.core.io.IOUtil;
+/**
+ * {@code SortedSamRecordMerger} combines several
+ * runs of already sorted {@link SamRecord}s into a single
+ * sorted stream using a k-way merge.
+ * The current head of each run is kept in a binary heap
+ * of run indexes so that each record costs O(log k) comparisons
+ * no matter how many runs there are.
+ * Records that compare as equal are returned in run order,
+ * so if the runs were created in the order the records were written,
+ * the merge is stable.
+ * 
+ * @author dkatzel
+ *
+ * @since 6.0.3
+ */
+final class SortedSamRecordMerger implements Closeable{
+	/**
+	 * A sorted run of {@link SamRecord}s.
+	 * 
+	 * @author dkatzel
+	 *
+	 */
+	interface RecordRun extends Closeable{
+		/**
+		 * Get the next record in this run.
+		 * @return the next {@link SamRecord} or {@code null}
+		 * if there are no more records.
+		 * @throws IOException if there is a problem reading the next record.
+		 */
+		SamRecord next() throws IOException;
+	}
+	
+	private final RecordRun[] runs;
+	private final SamRecord[] heads;
+	private final int[] heap;
+	private int heapSize;
+	private final Comparator<SamRecord> comparator;
+	/**
+	 * Create a new {@link SortedSamRecordMerger}.
+	 * @param runs the runs to merge, each run must already be sorted
+	 * by the given comparator.
+	 * @param comparator the {@link Comparator} used to sort the runs.
+	 * @throws IOException if there is a problem reading the first record of any run.
+	 */
+	SortedSamRecordMerger(List<? extends RecordRun> runs, Comparator<SamRecord> comparator) throws IOException{
+		this.runs = runs.toArray(new RecordRun[runs.size()]);
+		this.comparator = comparator;
+		heads = new SamRecord[this.runs.length];
+		heap = new int[this.runs.length];
+		for(int i=0; i< this.runs.length; i++){
+			SamRecord head = this.runs[i].next();
+			if(head !=null){
+				heads[i] = head;
+				heap[heapSize++] = i;
+			}
+		}
+		for(int i= heapSize/2 -1; i>=0; i--){
+			siftDown(i);
+		}
+	}
+	/**
+	 * Get the next record in sorted order.
+	 * @return the next {@link SamRecord} or {@code null}
+	 * if all the runs have been consumed.
+	 * @throws IOException if there is a problem reading from a run.
+	 */
+	SamRecord next() throws IOException{
+		if(heapSize ==0){
+			return null;
+		}
+		int run = heap[0];
+		SamRecord ret = heads[run];
+		SamRecord replacement = runs[run].next();
+		heads[run] = replacement;
+		if(replacement ==null){
+			heap[0] = heap[--heapSize];
+		}
+		siftDown(0);
+		return ret;
+	}
+	
+	private void siftDown(int index){
+		int i = index;
+		int value = heap[i];
+		int half = heapSize >>>1;
+		while(i < half){
+			int child = 2*i +1;
+			int right = child +1;
+			if(right < heapSize && isBefore(heap[right], heap[child])){
+				child = right;
+			}
+			if(!isBefore(heap[child], value)){
+				break;
+			}
+			heap[i] = heap[child];
+			i = child;
+		}
+		heap[i] = value;
+	}
+	
+	private boolean isBefore(int run1, int run2){
+		int cmp = comparator.compare(heads[run1], heads[run2]);
+		if(cmp ==0){
+			return run1 < run2;
+		}
+		return cmp < 0;
+	}
+
+	@Override
+	public void close() {
+		for(RecordRun run : runs){
+			IOUtil.closeAndIgnoreErrors(run);
+		}
+	}
+}
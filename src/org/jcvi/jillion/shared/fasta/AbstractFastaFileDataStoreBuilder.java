@@ -48,7 +48,9 @@ import org.jcvi.jillion.fasta.FastaRecord;
 public abstract class AbstractFastaFileDataStoreBuilder<T, S extends Sequence<T>, F extends FastaRecord<T,S>,SD extends DataStore<S>, D extends FastaDataStore<T,S, F, SD>> {
 
 	private final FastaParser parser;
-	private Predicate<String> filter = id->true;
+	private static final Predicate<String> ACCEPT_ALL_IDS = id->true;
+	
+	private Predicate<String> filter = ACCEPT_ALL_IDS;
 	private Predicate<F> recordFilter = null;
 	private DataStoreProviderHint hint = DataStoreProviderHint.RANDOM_ACCESS_OPTIMIZE_SPEED;
 	
@@ -295,6 +297,18 @@ public abstract class AbstractFastaFileDataStoreBuilder<T, S extends Sequence<T>
 				maxNumberOfRecords==null? OptionalLong.empty(): OptionalLong.of(maxNumberOfRecords.longValue()));
 	}
 
+	/**
+	 * Does this builder have any id or record filters set.
+	 * @return {@code true} if {@link #filter(Predicate)}, {@link #onlyIncludeIds(Set)}
+	 * or {@link #filterRecords(Predicate)} have been used; {@code false} if 
+	 * all records will be included.
+	 * 
+	 * @since 6.0.3
+	 */
+	protected boolean hasFilters(){
+		return filter != ACCEPT_ALL_IDS || recordFilter !=null;
+	}
+
 	/**
 	 * Create a new {@link FastaDataStore} instance.
 	 * @param parser the {@link FastaParser} to use to make the datastore for;
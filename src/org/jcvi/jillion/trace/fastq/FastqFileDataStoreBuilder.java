@@ -41,7 +41,9 @@ public final class FastqFileDataStoreBuilder{
 	private FastqParser parser;
 	private InputStreamSupplier inputStreamSupplier;
 	
-	private Predicate<String> idFilter = (id)-> true;
+	private static final Predicate<String> ACCEPT_ALL_IDS = (id)-> true;
+	
+	private Predicate<String> idFilter = ACCEPT_ALL_IDS;
 	//default to null which we can use
 	//in the datastore implementations as a short circuit
 	//to skip building records if we don't need to 
@@ -56,6 +58,8 @@ public final class FastqFileDataStoreBuilder{
 	private boolean hasComments;
 	private boolean isMultiLine;
 	
+	private boolean persistIndex;
+	
 	/**
 	 * Create a new instance of {@code FastqFileDataStoreBuilder}
 	 * which will build a {@link FastqDataStore} for the given
@@ -308,6 +312,29 @@ public final class FastqFileDataStoreBuilder{
 	}
 	
 	
+	/**
+	 * Write the index of record offsets built by a 
+	 * {@link DataStoreProviderHint#RANDOM_ACCESS_OPTIMIZE_MEMORY} datastore 
+	 * to an index file next to the fastq file (the fastq file name
+	 * with {@code .jidx} appended) so that later builds of the same file
+	 * memory map the index instead of re-parsing the entire file.
+	 * The index file is ignored and re-written if the fastq file has
+	 * changed since the index was written.  This is ignored if the input
+	 * is not a file or if any filters are used.
+	 * If this method is not called, then no index file is read or written.
+	 * 
+	 * @param persistIndex {@code true} if an index file should be used;
+	 * {@code false} otherwise.
+	 * 
+	 * @return this
+	 * 
+	 * @since 6.0.3
+	 */
+	public FastqFileDataStoreBuilder persistIndex(boolean persistIndex){
+		this.persistIndex = persistIndex;
+		return this;
+	}
+	
 	/**
 	 * Parse the given fastq file and return
 	 * a new instance of a {@link FastqDataStore}
@@ -377,7 +404,7 @@ public final class FastqFileDataStoreBuilder{
 			case RANDOM_ACCESS_OPTIMIZE_MEMORY:
 			        
 				return parser.canCreateMemento()?
-				        IndexedFastqFileDataStore.create(parser,  codec, idFilter, recordFilter)
+				        IndexedFastqFileDataStore.create(parser,  codec, idFilter, recordFilter, getIndexFormat())
 				        : DefaultFastqFileDataStore.create(parser, codec, idFilter, recordFilter);
 			case ITERATION_ONLY:
 				return LargeFastqFileDataStore.create(parser, codec, idFilter, recordFilter);
@@ -386,7 +413,13 @@ public final class FastqFileDataStoreBuilder{
 				throw new IllegalArgumentException("unknown provider hint : "+ hint);
 		}
 	}
-
-
+	
+	private String getIndexFormat(){
+		if(!persistIndex || idFilter != ACCEPT_ALL_IDS || recordFilter !=null){
+			return null;
+		}
+		//comment parsing changes the ids
+		return hasComments ? "fastq-comments" : "fastq";
+	}
 	
 }
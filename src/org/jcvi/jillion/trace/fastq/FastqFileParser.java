@@ -72,9 +72,6 @@ public abstract class FastqFileParser implements FastqParser{
 
 	private static final Pattern CASAVA_1_8_DEFLINE_PATTERN = Pattern.compile("^@(\\S+\\s+\\d:[N|Y]:\\d+:(\\S+)?)\\s*$");
 	
-	private final StringBuilder sequenceBuilder = new StringBuilder(2000);
-	private final StringBuilder qualityBuilder = new StringBuilder(2000);
-	
 	private final boolean hasComments;
 	
 	private final  boolean multiLine;
@@ -176,6 +173,35 @@ public abstract class FastqFileParser implements FastqParser{
 	
 	
 	
+	/**
+	 * Parse consecutive records from the given parser
+	 * as long as each record starts before the given end offset.
+	 * This is used to parse a single chunk of a larger
+	 * file when parsing chunks concurrently, so neither
+	 * {@link FastqVisitor#visitEnd()} nor {@link FastqVisitor#halted()}
+	 * are called.
+	 * 
+	 * @param visitor the visitor to visit.
+	 * @param parser the parser which must be at the start of a record
+	 * and track the position in the file.
+	 * @param endOffset the offset to stop parsing at; any record
+	 * that starts at or beyond this offset is not parsed.
+	 * @param keepParsing the flag shared by all chunks
+	 * which will be set to {@code false} if the visitor halts parsing.
+	 * @return {@code true} if parsing should continue; {@code false}
+	 * if the visitor halted parsing.
+	 * @throws IOException if there is a problem parsing the records.
+	 * 
+	 * @since 6.0.3
+	 */
+	boolean parseRecordsBefore(FastqVisitor visitor, LineParser parser, long endOffset, AtomicBoolean keepParsing) throws IOException{
+		ParserState parserState = new ParserState(parser.getPosition(), keepParsing);
+		while(parserState.keepParsing() && parser.hasNextLine() && parser.getPosition() < endOffset){
+			parserState=parseNextRecord(visitor, parser, parserState);
+		}
+		return parserState.keepParsing();
+	}
+	
 	ParserState parseNextRecord(FastqVisitor visitor, LineParser parser, ParserState parserState) throws IOException{
 		String deflineText = parser.nextLine();
 		 AbstractFastqVisitorCallback callback = createCallback(parserState);
@@ -213,8 +239,10 @@ public abstract class FastqFileParser implements FastqParser{
 			return parserState.updatePosition(parser);
 		}
 		
-		//default to 2000 bp since most sequences are only that much anyway
-        //builder will grow if we get too big
+		//the builders are per parse (not per parser)
+		//so the same file can be parsed by several threads at once
+		StringBuilder sequenceBuilder = parserState.sequenceBuilder;
+		StringBuilder qualityBuilder = parserState.qualityBuilder;
         
         String line = parser.nextLine();
         if(line ==null){
@@ -468,7 +496,10 @@ public abstract class FastqFileParser implements FastqParser{
 	private static class ParserState{
 		private final long currentOffset;
 		private final AtomicBoolean keepParsing;
-		
+		//default to 2000 bp since most sequences are only that much anyway
+		//builder will grow if we get too big
+		private final StringBuilder sequenceBuilder;
+		private final StringBuilder qualityBuilder;
 		
 		ParserState(long startOffset){
 			this(startOffset, new AtomicBoolean(true));
@@ -479,8 +510,14 @@ public abstract class FastqFileParser implements FastqParser{
 			return currentOffset;
 		}
 		private ParserState(long startOffset, AtomicBoolean keepParsing){
+			this(startOffset, keepParsing, new StringBuilder(2000), new StringBuilder(2000));
+		}
+		private ParserState(long startOffset, AtomicBoolean keepParsing, 
+				StringBuilder sequenceBuilder, StringBuilder qualityBuilder){
 			this.currentOffset = startOffset;
 			this.keepParsing = keepParsing;
+			this.sequenceBuilder = sequenceBuilder;
+			this.qualityBuilder = qualityBuilder;
 		}
 		
 		void stopParsing(){
@@ -492,7 +529,7 @@ public abstract class FastqFileParser implements FastqParser{
 		}
 		
 		ParserState setOffset(long newOffset){
-			return new ParserState(newOffset, keepParsing);
+			return new ParserState(newOffset, keepParsing, sequenceBuilder, qualityBuilder);
 		}
 		
 		ParserState updatePosition(LineParser parser){
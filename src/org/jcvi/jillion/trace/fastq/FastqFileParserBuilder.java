@@ -61,6 +61,9 @@ public final class FastqFileParserBuilder {
     private boolean multiline;
     private final boolean mementoSupport;
     
+    private int numberOfThreads = 1;
+    private boolean preserveOrder = true;
+    
     /**
 	 * Create a new Builder instance
 	 * that will parse the given fastq encoded
@@ -193,6 +196,48 @@ public final class FastqFileParserBuilder {
         this.multiline = multiline;
         return this;
     }
+    /**
+     * Parse the fastq file using the given number of threads.
+     * If more than 1 thread is used, the file is split into chunks
+     * which are parsed concurrently.  Only uncompressed and BGZF compressed
+     * files that do not have multiline records can be split into chunks;
+     * all other files, as well as {@link InputStream}s, are always parsed
+     * using only the calling thread.
+     * 
+     * @param numberOfThreads the number of threads to use; values less than 2
+     * mean only parse on the calling thread (defaults to 1).
+     * 
+     * @return this
+     * 
+     * @see #preserveOrder(boolean)
+     * 
+     * @since 6.0.3
+     */
+    public FastqFileParserBuilder numberOfThreads(int numberOfThreads){
+        this.numberOfThreads = Math.max(1, numberOfThreads);
+        return this;
+    }
+    /**
+     * When parsing using multiple threads, should the records be visited
+     * in the same order as they are in the file.  If {@code true}, then
+     * each chunk's records are buffered and the visitor is called only by the calling thread
+     * in file order.  If {@code false}, then the visitor is called concurrently from the 
+     * worker threads as soon as each record is parsed so the visitor <strong>must be thread-safe</strong>.
+     * This option is ignored if only 1 thread is used.
+     * 
+     * @param preserveOrder {@code true} if the records should be visited in file order;
+     * {@code false} otherwise (defaults to {@code true}).
+     * 
+     * @return this
+     * 
+     * @see #numberOfThreads(int)
+     * 
+     * @since 6.0.3
+     */
+    public FastqFileParserBuilder preserveOrder(boolean preserveOrder){
+        this.preserveOrder = preserveOrder;
+        return this;
+    }
     /**
      * Creates a new {@link FastqParser} object
      * which will parse the given Fastq encoded file
@@ -203,6 +248,10 @@ public final class FastqFileParserBuilder {
      */
     public FastqParser build() throws IOException{
         if(in ==null){
+            if(numberOfThreads > 1 && !multiline && inputStreamSupplier.getFile().isPresent()){
+                return new ParallelFastqFileParser(inputStreamSupplier.getFile().get(), inputStreamSupplier,
+                        hasComments, mementoSupport, numberOfThreads, preserveOrder, ParallelFastqFileParser.DEFAULT_CHUNK_SIZE);
+            }
             return FastqFileParser.create(inputStreamSupplier, hasComments, multiline, mementoSupport);
         }
         return FastqFileParser.create(in, hasComments, multiline);
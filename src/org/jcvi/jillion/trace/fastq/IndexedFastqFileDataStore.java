@@ -22,7 +22,6 @@ package org.jcvi.jillion.trace.fastq;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Optional;
 import java.util.function.Predicate;
@@ -33,6 +32,9 @@ import org.jcvi.jillion.core.datastore.DataStoreException;
 import org.jcvi.jillion.core.util.iter.StreamingIterator;
 import org.jcvi.jillion.core.util.streams.ThrowingBiConsumer;
 import org.jcvi.jillion.internal.core.datastore.DataStoreStreamingIterator;
+import org.jcvi.jillion.internal.core.datastore.SidecarIndex;
+import org.jcvi.jillion.internal.core.util.OffHeapStringLongMap;
+import org.jcvi.jillion.trace.fastq.FastqFileParser.OffsetMemento;
 import org.jcvi.jillion.trace.fastq.FastqVisitor.FastqVisitorCallback.FastqVisitorMemento;
 
 /**
@@ -46,7 +48,6 @@ import org.jcvi.jillion.trace.fastq.FastqVisitor.FastqVisitorCallback.FastqVisit
  * @author dkatzel
  */
 final class IndexedFastqFileDataStore{
-
    
     /**
    	 * Creates a new {@link IndexedFastqFileDataStore}
@@ -72,19 +73,71 @@ final class IndexedFastqFileDataStore{
 	static FastqFileDataStore create(FastqParser parser,
 			FastqQualityCodec qualityCodec, Predicate<String> filter, Predicate<FastqRecord> recordFilter)
 			throws IOException {
+		return create(parser, qualityCodec, filter, recordFilter, null);
+	}
+	/**
+	 * Creates a new {@link IndexedFastqFileDataStore}
+	 * instance which may read or write a persistent index file.
+	 * 
+	 * @param parser the {@link FastqParser} instance used to 
+   	 * to create an {@link IndexedFastqFileDataStore}.
+   	 * @param qualityCodec the {@link FastqQualityCodec} that should
+	 * be used to decode the encoded qualities of each record in the file.
+	 * @param filter the id filter.
+	 * @param recordFilter the record filter; may be null.
+	 * @param indexFormat if not null and the parser is for a file, 
+	 * then use a valid {@link SidecarIndex} of this format if one exists instead of parsing the file
+	 * or else write one after parsing.  The filters must accept every record
+	 * since the persisted index is not filtered.
+	 * @return a new instance of {@link FastqFileDataStore};
+   	 * never null.
+	 * @throws IOException if there is a problem parsing the file.
+	 * 
+	 * @since 6.0.3
+	 */
+	static FastqFileDataStore create(FastqParser parser,
+			FastqQualityCodec qualityCodec, Predicate<String> filter, Predicate<FastqRecord> recordFilter,
+			String indexFormat)
+			throws IOException {
+		File fastqFile = indexFormat ==null ? null : parser.getFile().orElse(null);
+		if(fastqFile !=null){
+			Map<String, FastqVisitorMemento> mementos = SidecarIndex.read(fastqFile, indexFormat, OffsetMemento::valueOf);
+			if(mementos !=null){
+				return new IndexedFastqFileDataStoreImpl(parser, qualityCodec, filter, recordFilter, mementos);
+			}
+		}
 		MementoedFastqDataStoreBuilderVisitor visitor = new MementoedFastqDataStoreBuilderVisitor(parser, qualityCodec,
 		        filter, recordFilter);
     	
     	parser.parse(visitor);
+    	if(fastqFile !=null){
+    		writeIndexQuietly(fastqFile, indexFormat, visitor.mementos);
+    	}
     	return visitor.build();
 	}
+	
+	private static void writeIndexQuietly(File fastqFile, String indexFormat, Map<String, FastqVisitorMemento> mementos){
+		try{
+			SidecarIndex.write(fastqFile, indexFormat, mementos, IndexedFastqFileDataStore::encode);
+		}catch(IOException e){
+			//the index is only an optimization
+			//so don't fail if we can't write it
+			//(for example the directory is read only)
+		}
+	}
 
     
     
     
     
+	private static long encode(FastqVisitorMemento memento){
+		return memento instanceof OffsetMemento ? ((OffsetMemento)memento).getValue() : -1;
+	}
+    
     private static final class MementoedFastqDataStoreBuilderVisitor extends AbstractFastqVisitor{
-    	private final Map<String, FastqVisitorMemento> mementos = new LinkedHashMap<String,FastqVisitorMemento>();
+    	//mementos are just file offsets so store them off-heap
+    	//to keep the index small for files with millions of reads
+    	private final Map<String, FastqVisitorMemento> mementos = OffHeapStringLongMap.createMap(OffsetMemento::valueOf, IndexedFastqFileDataStore::encode);
     	private final FastqQualityCodec qualityCodec;
     	 private final FastqParser parser;
     	 private final Predicate<String> filter;
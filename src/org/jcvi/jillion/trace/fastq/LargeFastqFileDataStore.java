@@ -297,7 +297,9 @@ final class LargeFastqFileDataStore implements FastqFileDataStore {
     }
 	private final class NoLambdaFastqIdIterator extends AbstractBlockingStreamingIterator<String> implements StreamingIterator<String>{
 
-    	
+    	NoLambdaFastqIdIterator(){
+    		super(ID_CACHE_SIZE);
+    	}
 
 
 		@Override
@@ -354,7 +356,9 @@ final class LargeFastqFileDataStore implements FastqFileDataStore {
      */
     private final class LargeFastqFileIterator extends AbstractBlockingStreamingIterator<FastqRecord> implements StreamingIterator<FastqRecord>{
 
-    	
+    	LargeFastqFileIterator(){
+    		super(1_000); // fastq records are small
+    	}
 
 
 		@Override
@@ -0,0 +1,575 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.trace.fastq;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPInputStream;
+
+import org.jcvi.jillion.core.io.IOUtil;
+import org.jcvi.jillion.core.io.InputStreamSupplier;
+import org.jcvi.jillion.core.qual.QualitySequence;
+import org.jcvi.jillion.internal.core.io.TextLineParser;
+import org.jcvi.jillion.internal.core.util.GrowableLongArray;
+import org.jcvi.jillion.internal.core.util.WorkerPool;
+import org.jcvi.jillion.trace.fastq.FastqVisitor.FastqVisitorCallback.FastqVisitorMemento;
+/**
+ * A {@link FastqParser} that splits an uncompressed
+ * or BGZF compressed fastq file into chunks of bytes
+ * and parses the chunks concurrently.
+ * Each chunk resynchronizes on the first record boundary
+ * inside the chunk and parses every record that starts inside the chunk
+ * so every record is parsed exactly once.
+ * <p>
+ * Records are either given to the visitor in any order
+ * from the worker threads as soon as they are parsed
+ * (so the visitor must be thread-safe) or
+ * the records in each chunk are buffered and replayed to the visitor
+ * on the calling thread in the same order as the file.
+ * {@link FastqVisitor#visitEnd()} and {@link FastqVisitor#halted()}
+ * are always called once, on the calling thread, after all the chunks
+ * have been parsed.
+ * </p>
+ * <p>
+ * Only 4 line fastq records can be split into chunks.  Files that are compressed
+ * in other formats as well as parsing from {@link FastqVisitorMemento}s and iterating
+ * are handled by a single threaded {@link FastqFileParser}.
+ * </p>
+ * @author dkatzel
+ *
+ * @since 6.0.3
+ */
+final class ParallelFastqFileParser implements FastqParser{
+	/**
+	 * Default number of uncompressed bytes per chunk.
+	 */
+	static final int DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+	
+	private static final int GZIP_ID1 = 0x1f;
+	private static final int GZIP_ID2 = 0x8b;
+	private static final int BGZF_HEADER_LENGTH = 18;
+	
+	private final File fastqFile;
+	private final InputStreamSupplier supplier;
+	private final boolean hasComments;
+	private final int numberOfThreads;
+	private final boolean preserveOrder;
+	private final long chunkSize;
+	
+	private final FastqParser singleThreadedParser;
+	
+	ParallelFastqFileParser(File fastqFile, InputStreamSupplier supplier, boolean hasComments, boolean trackPosition,
+			int numberOfThreads, boolean preserveOrder, long chunkSize) throws IOException {
+		if(chunkSize < 1){
+			throw new IllegalArgumentException("chunk size must be positive");
+		}
+		this.fastqFile = fastqFile;
+		this.supplier = supplier;
+		this.hasComments = hasComments;
+		this.numberOfThreads = Math.max(1, numberOfThreads);
+		this.preserveOrder = preserveOrder;
+		this.chunkSize = chunkSize;
+		this.singleThreadedParser = FastqFileParser.create(supplier, hasComments, false, trackPosition);
+	}
+
+	@Override
+	public boolean canParse() {
+		return true;
+	}
+
+	@Override
+	public boolean canCreateMemento() {
+		return singleThreadedParser.canCreateMemento();
+	}
+
+	@Override
+	public boolean isReadOnceOnly() {
+		return false;
+	}
+
+	@Override
+	public Optional<File> getFile() {
+		return Optional.of(fastqFile);
+	}
+
+	@Override
+	public void parse(FastqVisitor visitor, FastqVisitorMemento memento) throws IOException {
+		singleThreadedParser.parse(visitor, memento);
+	}
+
+	@Override
+	public FastqSingleVisitIterator iterator() throws IOException {
+		return singleThreadedParser.iterator();
+	}
+
+	@Override
+	public FastqSingleVisitIterator iterator(FastqVisitorMemento memento) throws IOException {
+		return singleThreadedParser.iterator(memento);
+	}
+
+	@Override
+	public void parse(FastqVisitor visitor) throws IOException {
+		if(visitor ==null){
+			throw new NullPointerException("visitor can not be null");
+		}
+		ChunkableFile chunkableFile = ChunkableFile.create(fastqFile);
+		if(chunkableFile ==null){
+			//can't split this file into chunks
+			singleThreadedParser.parse(visitor);
+			return;
+		}
+		List<Chunk> chunks = chunkableFile.createChunks(chunkSize);
+		AtomicBoolean keepParsing = new AtomicBoolean(true);
+		WorkerPool executor = new WorkerPool(numberOfThreads);
+		try{
+			if(preserveOrder){
+				parseInOrder(visitor, chunkableFile, chunks, keepParsing, executor);
+			}else{
+				parseUnordered(visitor, chunkableFile, chunks, keepParsing, executor);
+			}
+		}finally{
+			executor.cancelAll();
+		}
+		if(keepParsing.get()){
+			visitor.visitEnd();
+		}else{
+			visitor.halted();
+		}
+	}
+	
+	private void parseUnordered(FastqVisitor visitor, ChunkableFile chunkableFile, List<Chunk> chunks,
+			AtomicBoolean keepParsing, WorkerPool executor) throws IOException{
+		List<Future<?>> futures = new ArrayList<>(chunks.size());
+		for(Chunk chunk : chunks){
+			futures.add(executor.submit(()->{
+				parseChunk(visitor, chunkableFile, chunk, keepParsing);
+				return null;
+			}));
+		}
+		for(Future<?> future : futures){
+			waitFor(future);
+		}
+	}
+	
+	private void parseInOrder(FastqVisitor visitor, ChunkableFile chunkableFile, List<Chunk> chunks,
+			AtomicBoolean keepParsing, WorkerPool executor) throws IOException{
+		//limit how many parsed chunks are buffered in memory at once
+		int maxChunksInFlight = numberOfThreads * 2;
+		Deque<Future<List<BufferedRecord>>> pending = new ArrayDeque<>(maxChunksInFlight);
+		int nextChunk=0;
+		while(keepParsing.get() && (nextChunk < chunks.size() || !pending.isEmpty())){
+			while(nextChunk < chunks.size() && pending.size() < maxChunksInFlight){
+				Chunk chunk = chunks.get(nextChunk++);
+				pending.add(executor.submit(()->{
+					BufferingVisitor bufferingVisitor = new BufferingVisitor();
+					parseChunk(bufferingVisitor, chunkableFile, chunk, keepParsing);
+					return bufferingVisitor.records;
+				}));
+			}
+			List<BufferedRecord> records = waitFor(pending.poll());
+			for(BufferedRecord record : records){
+				if(!keepParsing.get()){
+					break;
+				}
+				record.replay(visitor, keepParsing);
+			}
+		}
+	}
+	
+	private static <T> T waitFor(Future<T> future) throws IOException{
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("interrupted while parsing fastq chunk", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if(cause instanceof IOException){
+				throw (IOException) cause;
+			}
+			throw new IOException("error parsing fastq chunk", cause);
+		}
+	}
+	
+	private void parseChunk(FastqVisitor visitor, ChunkableFile chunkableFile, Chunk chunk, AtomicBoolean keepParsing) throws IOException{
+		long recordStart = chunkableFile.findFirstRecordStart(chunk);
+		if(recordStart <0 || recordStart >= chunk.end){
+			//no records start in this chunk
+			return;
+		}
+		//each chunk gets its own parser instance
+		//that always tracks the position
+		FastqFileParser parser = FastqFileParser.create(supplier, hasComments, false, true);
+		try(TextLineParser lineParser = new TextLineParser(chunkableFile.open(recordStart), recordStart)){
+			parser.parseRecordsBefore(visitor, lineParser, chunk.end, keepParsing);
+		}
+	}
+	/**
+	 * A range of uncompressed bytes of the file.
+	 */
+	private static final class Chunk{
+		private final long start;
+		private final long end;
+		
+		Chunk(long start, long end) {
+			this.start = start;
+			this.end = end;
+		}
+	}
+	/**
+	 * A fastq file that we can open at any uncompressed offset.
+	 */
+	private abstract static class ChunkableFile{
+		
+		protected final File file;
+		
+		ChunkableFile(File file) {
+			this.file = file;
+		}
+		/**
+		 * Create a new {@link ChunkableFile} for the given file.
+		 * @param file the fastq file.
+		 * @return a new {@link ChunkableFile} or {@code null} if the file
+		 * is compressed in a way that can not be split.
+		 * @throws IOException if there is a problem reading the file.
+		 */
+		static ChunkableFile create(File file) throws IOException{
+			try(InputStream in = new FileInputStream(file)){
+				int first = in.read();
+				if(first == -1 || first == '@'){
+					return new UncompressedFile(file);
+				}
+				if(first == GZIP_ID1 && in.read() == GZIP_ID2){
+					return BgzfFile.createIfBgzf(file);
+				}
+			}
+			return null;
+		}
+		
+		abstract long getUncompressedLength();
+		/**
+		 * Open an {@link InputStream} of the uncompressed bytes
+		 * starting at the given uncompressed offset.
+		 * @param uncompressedOffset the offset to start at.
+		 * @return a new InputStream.
+		 * @throws IOException if there is a problem opening the file.
+		 */
+		abstract InputStream open(long uncompressedOffset) throws IOException;
+		
+		List<Chunk> createChunks(long chunkSize){
+			long length = getUncompressedLength();
+			List<Chunk> chunks = new ArrayList<>((int)(length / chunkSize) +1);
+			for(long start=0; start < length; start+=chunkSize){
+				chunks.add(new Chunk(start, Math.min(length, start + chunkSize)));
+			}
+			return chunks;
+		}
+		/**
+		 * Find the offset of the first record that starts
+		 * at or after the start of the given chunk.
+		 * A record start is a line that starts with '@'
+		 * whose line 2 lines later starts with '+'.
+		 * The quality line is the only other line
+		 * that can start with '@', but the line 2 lines after that
+		 * is a sequence line which can't start with '+'.
+		 * 
+		 * @param chunk the chunk to check.
+		 * @return the offset of the first record start or -1 if there
+		 * are no more records in the file.
+		 * @throws IOException if there is a problem reading the file.
+		 */
+		long findFirstRecordStart(Chunk chunk) throws IOException{
+			if(chunk.start ==0){
+				return 0;
+			}
+			//start 1 byte early and skip the rest of that line
+			//so we know we are at the beginning of a line
+			long offset = chunk.start -1;
+			try(TextLineParser parser = new TextLineParser(open(offset), offset)){
+				parser.nextLine();
+				String[] lines = new String[3];
+				long[] lineStarts = new long[3];
+				int numberOfLines=0;
+				while(parser.hasNextLine()){
+					if(numberOfLines ==3){
+						//shift window
+						lines[0] = lines[1];
+						lines[1] = lines[2];
+						lineStarts[0] = lineStarts[1];
+						lineStarts[1] = lineStarts[2];
+						numberOfLines=2;
+					}
+					lineStarts[numberOfLines] = parser.getPosition();
+					lines[numberOfLines++] = parser.nextLine();
+					if(numberOfLines==3 && lines[0].startsWith("@") && lines[2].startsWith("+")){
+						return lineStarts[0];
+					}
+					if(lineStarts[0] >= chunk.end && numberOfLines ==3){
+						//went past the end of the chunk
+						return lineStarts[0];
+					}
+				}
+			}
+			return -1;
+		}
+	}
+	
+	private static final class UncompressedFile extends ChunkableFile{
+
+		UncompressedFile(File file) {
+			super(file);
+		}
+
+		@Override
+		long getUncompressedLength() {
+			return file.length();
+		}
+
+		@Override
+		InputStream open(long uncompressedOffset) throws IOException {
+			FileInputStream in = new FileInputStream(file);
+			try{
+				//seek directly instead of skipping through a buffered stream
+				in.getChannel().position(uncompressedOffset);
+			}catch(IOException e){
+				IOUtil.closeAndIgnoreErrors(in);
+				throw e;
+			}
+			return new BufferedInputStream(in);
+		}
+		
+	}
+	/**
+	 * A BGZF compressed file, which is a series of 
+	 * independently compressed gzip blocks.  The file
+	 * is opened at the start of the block that contains the offset
+	 * and since BGZF is a valid multi-member gzip file
+	 * a {@link GZIPInputStream} will keep reading into the following blocks.
+	 */
+	private static final class BgzfFile extends ChunkableFile{
+		private final long[] compressedBlockStarts;
+		private final long[] uncompressedBlockStarts;
+		private final long uncompressedLength;
+		
+		private BgzfFile(File file, long[] compressedBlockStarts, long[] uncompressedBlockStarts, long uncompressedLength) {
+			super(file);
+			this.compressedBlockStarts = compressedBlockStarts;
+			this.uncompressedBlockStarts = uncompressedBlockStarts;
+			this.uncompressedLength = uncompressedLength;
+		}
+		/**
+		 * Scan the block headers (and footers) of the given gzip file
+		 * to find where each block starts.
+		 * @param file the gzip compressed file.
+		 * @return a new {@link BgzfFile} or {@code null} if the file
+		 * is not BGZF compressed.
+		 * @throws IOException if there is a problem reading the file.
+		 */
+		static BgzfFile createIfBgzf(File file) throws IOException{
+			GrowableLongArray compressedStarts = new GrowableLongArray(1024);
+			GrowableLongArray uncompressedStarts = new GrowableLongArray(1024);
+			long uncompressedOffset=0;
+			byte[] header = new byte[BGZF_HEADER_LENGTH];
+			byte[] isize = new byte[4];
+			try(RandomAccessFile raf = new RandomAccessFile(file, "r")){
+				long length = raf.length();
+				long offset=0;
+				while(offset < length){
+					raf.seek(offset);
+					IOUtil.blockingRead(raf, header);
+					if(!isBgzfHeader(header)){
+						return null;
+					}
+					int blockSize = ((header[16] & 0xFF) | (header[17] & 0xFF)<<8) +1;
+					raf.seek(offset + blockSize -4);
+					IOUtil.blockingRead(raf, isize);
+					long uncompressedBlockSize = (isize[0] & 0xFF) | (isize[1] & 0xFF)<<8 | (isize[2] & 0xFF)<<16 | (isize[3] & 0xFFL)<<24;
+					compressedStarts.append(offset);
+					uncompressedStarts.append(uncompressedOffset);
+					uncompressedOffset += uncompressedBlockSize;
+					offset += blockSize;
+				}
+			}
+			return new BgzfFile(file, compressedStarts.toArray(), uncompressedStarts.toArray(), uncompressedOffset);
+		}
+		
+		private static boolean isBgzfHeader(byte[] header){
+			return (header[0] & 0xFF) == GZIP_ID1 && (header[1] & 0xFF)== GZIP_ID2
+					//FEXTRA flag
+					&& (header[3] & 4) !=0
+					//XLEN of 6 with a single BC subfield of length 2
+					&& header[10] == 6 && header[11] ==0
+					&& header[12] == 'B' && header[13] == 'C'
+					&& header[14] == 2 && header[15] == 0;
+		}
+
+		@Override
+		long getUncompressedLength() {
+			return uncompressedLength;
+		}
+
+		@Override
+		InputStream open(long uncompressedOffset) throws IOException {
+			int index = Arrays.binarySearch(uncompressedBlockStarts, uncompressedOffset);
+			if(index < 0){
+				//offset is inside block before insertion point
+				index = -index -2;
+			}else{
+				//skip over any empty blocks that start at the same offset
+				while(index >0 && uncompressedBlockStarts[index-1] == uncompressedOffset){
+					index--;
+				}
+			}
+			FileInputStream fileIn = new FileInputStream(file);
+			InputStream in = fileIn;
+			try{
+				fileIn.getChannel().position(compressedBlockStarts[index]);
+				in = new BufferedInputStream(new GZIPInputStream(new BufferedInputStream(fileIn)));
+				IOUtil.blockingSkip(in, uncompressedOffset - uncompressedBlockStarts[index]);
+			}catch(IOException e){
+				IOUtil.closeAndIgnoreErrors(in);
+				throw e;
+			}
+			return in;
+		}
+	}
+	/**
+	 * The parts of a fastq record that were parsed on a worker
+	 * thread to be replayed to the visitor on the calling thread.
+	 */
+	private static final class BufferedRecord{
+		private final String id;
+		private final String comment;
+		private final FastqVisitorMemento memento;
+		private String nucleotides;
+		private String encodedQualities;
+		
+		BufferedRecord(String id, String comment, FastqVisitorMemento memento) {
+			this.id = id;
+			this.comment = comment;
+			this.memento = memento;
+		}
+		
+		void replay(FastqVisitor visitor, AtomicBoolean keepParsing){
+			FastqVisitor.FastqVisitorCallback callback = new ReplayCallback(memento, keepParsing);
+			FastqRecordVisitor recordVisitor = visitor.visitDefline(callback, id, comment);
+			if(recordVisitor ==null || !keepParsing.get()){
+				return;
+			}
+			recordVisitor.visitNucleotides(nucleotides);
+			if(!keepParsing.get()){
+				recordVisitor.halted();
+				return;
+			}
+			recordVisitor.visitEncodedQualities(encodedQualities);
+			if(keepParsing.get()){
+				recordVisitor.visitEnd();
+			}else{
+				recordVisitor.halted();
+			}
+		}
+	}
+	
+	private static final class ReplayCallback implements FastqVisitor.FastqVisitorCallback{
+		private final FastqVisitorMemento memento;
+		private final AtomicBoolean keepParsing;
+		
+		ReplayCallback(FastqVisitorMemento memento, AtomicBoolean keepParsing) {
+			this.memento = memento;
+			this.keepParsing = keepParsing;
+		}
+
+		@Override
+		public boolean canCreateMemento() {
+			return true;
+		}
+
+		@Override
+		public FastqVisitorMemento createMemento() {
+			return memento;
+		}
+
+		@Override
+		public void haltParsing() {
+			keepParsing.set(false);
+		}
+	}
+	
+	private static final class BufferingVisitor implements FastqVisitor{
+		private final List<BufferedRecord> records = new ArrayList<>();
+		
+		@Override
+		public FastqRecordVisitor visitDefline(FastqVisitorCallback callback, String id, String optionalComment) {
+			BufferedRecord record = new BufferedRecord(id, optionalComment, callback.createMemento());
+			records.add(record);
+			return new FastqRecordVisitor() {
+				
+				@Override
+				public void visitNucleotides(String nucleotides) {
+					record.nucleotides = nucleotides;
+				}
+				
+				@Override
+				public void visitEncodedQualities(String encodedQualities) {
+					record.encodedQualities = encodedQualities;
+				}
+
+				@Override
+				public void visitQualities(QualitySequence qualities) {
+					//no-op parser only gives us encoded qualities
+				}
+
+				@Override
+				public void visitEnd() {
+					//no-op
+				}
+
+				@Override
+				public void halted() {
+					//no-op
+				}
+			};
+		}
+
+		@Override
+		public void visitEnd() {
+			//no-op
+		}
+
+		@Override
+		public void halted() {
+			//no-op
+		}
+	}
+}
@@ -249,6 +249,7 @@ final class LargeSffFileDataStore extends AbstractDataStore<SffFlowgram> impleme
         }
     	
     	private SffFileIdIterator(File sffFile, DataStoreFilter filter){
+    		super(ID_CACHE_SIZE);
     		this.sffFile = sffFile;
     		 this.filter =filter;
     	}
@@ -30,8 +30,6 @@ import java.io.InputStream;
 import java.io.RandomAccessFile;
 import java.math.BigInteger;
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Map;
 
 import org.jcvi.jillion.core.datastore.DataStoreClosedException;
 import org.jcvi.jillion.core.datastore.DataStoreEntry;
@@ -40,9 +38,9 @@ import org.jcvi.jillion.core.datastore.DataStoreFilter;
 import org.jcvi.jillion.core.datastore.DataStoreFilters;
 import org.jcvi.jillion.core.io.IOUtil;
 import org.jcvi.jillion.core.residue.nt.NucleotideSequence;
-import org.jcvi.jillion.core.util.MapUtil;
 import org.jcvi.jillion.core.util.iter.StreamingIterator;
 import org.jcvi.jillion.internal.core.datastore.DataStoreStreamingIterator;
+import org.jcvi.jillion.internal.core.util.OffHeapStringLongMap;
 import org.jcvi.jillion.internal.core.io.RandomAccessFileInputStream;
 /**
  * 454 includes an optional index at the 
@@ -76,12 +74,11 @@ final class ManifestIndexed454SffFileDataStore implements SffFileDataStore{
 	private final File sffFile;
 	private final SffCommonHeader commonHeader;
 	/**
-	 * It appears that 454 will
-	 * only make an index if the file size <4GB
-	 * so we can use unsigned ints to save memory
-	 * in the index.
+	 * Map of read id to file offset
+	 * stored off-heap since sff files
+	 * can have millions of reads.
 	 */
-	private final Map<String, Integer> map;
+	private final OffHeapStringLongMap map;
 	private boolean isClosed=false;
 	private final DataStoreFilter filter;
 	/**
@@ -181,11 +178,11 @@ final class ManifestIndexed454SffFileDataStore implements SffFileDataStore{
 	 * with that name in the manifest.
 	 */
 	private Long getOffsetFor(String id){
-		Integer offset= map.get(id);
-		if(offset ==null){
+		long offset= map.get(id);
+		if(offset <0){
 			return null;
 		}
-		return IOUtil.toUnsignedInt(offset.intValue());
+		return offset;
 	}
 	@Override
 	public boolean contains(String id) throws DataStoreException {
@@ -259,7 +256,7 @@ final class ManifestIndexed454SffFileDataStore implements SffFileDataStore{
 		
 		private final File sffFile;
 		private SffCommonHeader commonHeader;
-		private Map<String, Integer> map;
+		private OffHeapStringLongMap map;
 		private boolean useableManifest=false;
 		
 		private final DataStoreFilter filter;
@@ -357,8 +354,8 @@ final class ManifestIndexed454SffFileDataStore implements SffFileDataStore{
 
 		
 		private void populateOffsetMap(InputStream in) throws IOException {
-			int mapSize = MapUtil.computeMinHashMapSizeWithoutRehashing(commonHeader.getNumberOfReads());
-			map = new HashMap<String, Integer>(mapSize);
+			//the filter may reject some reads but this is still a better guess than the default
+			map = new OffHeapStringLongMap((int) Math.min(Integer.MAX_VALUE, commonHeader.getNumberOfReads()));
 			for(long i =0; i< commonHeader.getNumberOfReads(); i++){
 				String id = parseNextId(in);
 				if(id ==null){
@@ -370,8 +367,7 @@ final class ManifestIndexed454SffFileDataStore implements SffFileDataStore{
 				//only include id in index if we care about it.
 				if(filter.accept(id)){
 					long offset =SffUtil.parseSffIndexOffsetValue(index);
-					//signed int to save space
-					map.put(id,IOUtil.toSignedInt(offset));
+					map.put(id,offset);
 				}
 				//next byte is a separator
 				//between entries so we can skip it
@@ -51,6 +51,7 @@ final class SffFileIterator extends AbstractBlockingStreamingIterator<SffFlowgra
     }
 	
 	private SffFileIterator(File sffFile, DataStoreFilter filter){
+		super(1_000); // flowgrams are small
 		this.sffFile = sffFile;
 		 this.filter =filter;
 	}
@@ -0,0 +1,75 @@
+package org.jcvi.jillion.vcf;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Predicate;
+/**
+ * A {@link VcfRecordVisitor} that only passes
+ * the records that match a {@link Predicate}
+ * to a wrapped visitor.  All the header callbacks
+ * are always passed through.
+ * 
+ * @author dkatzel
+ *
+ * @since 6.0.3
+ */
+final class FilteredVcfVisitor implements VcfRecordVisitor{
+	private final VcfVisitor delegate;
+	private final Predicate<VcfRecord> filter;
+
+	FilteredVcfVisitor(VcfVisitor delegate, Predicate<VcfRecord> filter) {
+		this.delegate = Objects.requireNonNull(delegate, "visitor can not be null");
+		this.filter = Objects.requireNonNull(filter, "filter can not be null");
+	}
+
+	@Override
+	public void visitEnd() {
+		delegate.visitEnd();
+	}
+
+	@Override
+	public void halted() {
+		delegate.halted();
+	}
+
+	@Override
+	public void visitMetaInfo(VcfVisitorCallback callback, String key, String value) {
+		delegate.visitMetaInfo(callback, key, value);
+	}
+
+	@Override
+	public void visitFilter(VcfVisitorCallback callback, String key, String description) {
+		delegate.visitFilter(callback, key, description);
+	}
+
+	@Override
+	public void visitInfo(VcfVisitorCallback callback, String id, VcfValueType type,
+			VcfNumber numberTypeAndValue, String description, Map<String, String> parameters) {
+		delegate.visitInfo(callback, id, type, numberTypeAndValue, description, parameters);
+	}
+
+	@Override
+	public void visitFormat(VcfVisitorCallback callback, String id, VcfValueType infoType,
+			VcfNumber numberTypeAndValue, String description, Map<String, String> parameters) {
+		delegate.visitFormat(callback, id, infoType, numberTypeAndValue, description, parameters);
+	}
+
+	@Override
+	public void visitContigInfo(VcfVisitorCallback callback, String contigId, Long length,
+			Map<String, String> parameters) {
+		delegate.visitContigInfo(callback, contigId, length, parameters);
+	}
+
+	@Override
+	public void visitHeader(VcfVisitorCallback callback, List<String> extraColumns) {
+		delegate.visitHeader(callback, extraColumns);
+	}
+
+	@Override
+	public void visitRecord(VcfVisitorCallback callback, VcfRecord record) {
+		if(filter.test(record)){
+			LazyVcfRecord.accept(delegate, callback, record);
+		}
+	}
+}
@@ -0,0 +1,372 @@
+package org.jcvi.jillion.vcf;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+/**
+ * {@link VcfRecord} implementation that
+ * only keeps the line text and the offsets of the
+ * tabs that have been found so far.  The tabs
+ * after the FORMAT column are only found if
+ * a sample is requested.
+ * 
+ * @author dkatzel
+ *
+ * @since 6.0.3
+ */
+final class LazyVcfRecord implements VcfRecord{
+
+	static final int QUALITY_COLUMN = 5;
+	private static final int FORMAT_COLUMN = 8;
+	private static final int FIRST_SAMPLE_COLUMN = 9;
+	private static final String GT = "GT";
+	
+	private final String line;
+	private final int start, end;
+	/**
+	 * Offsets of the tabs found so far.
+	 */
+	private int[] tabs = new int[FIRST_SAMPLE_COLUMN];
+	private int numberOfTabs;
+	private int nextSearchOffset;
+	private boolean allTabsFound;
+	
+	private String[] formatKeys;
+	private int gtIndex = -2;
+	/**
+	 * Create a new {@link LazyVcfRecord}.
+	 * @param line the line which may include leading
+	 * and trailing whitespace such as end of line characters.
+	 */
+	LazyVcfRecord(String line) {
+		this.line = line;
+		int s=0, e = line.length();
+		while(s < e && line.charAt(s) <= ' ' && line.charAt(s) !='\t'){
+			s++;
+		}
+		while(e > s && line.charAt(e-1) <= ' ' && line.charAt(e-1) !='\t'){
+			e--;
+		}
+		this.start = s;
+		this.end = e;
+		this.nextSearchOffset = s;
+	}
+	/**
+	 * Pass the given record to the visitor either as a 
+	 * record if the visitor is a {@link VcfRecordVisitor}
+	 * or fully decoded.
+	 * @param visitor the visitor to visit.
+	 * @param callback the callback to pass to the visitor.
+	 * @param record the record to visit.
+	 */
+	static void accept(VcfVisitor visitor, VcfVisitor.VcfVisitorCallback callback, VcfRecord record){
+		if(visitor instanceof VcfRecordVisitor){
+			((VcfRecordVisitor) visitor).visitRecord(callback, record);
+			return;
+		}
+		visitor.visitData(callback, 
+				record.getChromId(), record.getPosition(), 
+				record.getId(), record.getRefBase(), record.getAltBase(),
+				Integer.parseInt(record.getColumn(QUALITY_COLUMN)),
+				record.getFilter(), record.getInfo(), record.getFormat(), record.getSampleColumns());
+	}
+	/**
+	 * Make sure the tabs up to and including the tab
+	 * after the given column have been found.
+	 * @param columnIndex the column index.
+	 * @return {@code true} if the column exists.
+	 */
+	private boolean findColumn(int columnIndex){
+		while(numberOfTabs < columnIndex && !allTabsFound){
+			findNextTab();
+		}
+		return numberOfTabs >= columnIndex;
+	}
+	
+	private void findNextTab(){
+		int tab = line.indexOf('\t', nextSearchOffset);
+		if(tab <0 || tab >= end){
+			allTabsFound = true;
+			return;
+		}
+		if(numberOfTabs == tabs.length){
+			tabs = Arrays.copyOf(tabs, tabs.length *2);
+		}
+		tabs[numberOfTabs++] = tab;
+		nextSearchOffset = tab+1;
+	}
+	
+	private int columnStart(int columnIndex){
+		return columnIndex ==0 ? start : tabs[columnIndex -1] +1;
+	}
+	
+	private int columnEnd(int columnIndex){
+		if(columnIndex < numberOfTabs){
+			return tabs[columnIndex];
+		}
+		//make sure we know if there is another tab
+		findColumn(columnIndex+1);
+		return columnIndex < numberOfTabs ? tabs[columnIndex] : end;
+	}
+	
+	@Override
+	public int getNumberOfColumns() {
+		while(!allTabsFound){
+			findNextTab();
+		}
+		return start==end ? 0 : numberOfTabs +1;
+	}
+
+	@Override
+	public String getColumn(int columnIndex) {
+		if(columnIndex <0 || !findColumn(columnIndex)){
+			return null;
+		}
+		return line.substring(columnStart(columnIndex), columnEnd(columnIndex));
+	}
+	
+	private String getRequiredColumn(int columnIndex){
+		String column = getColumn(columnIndex);
+		if(column ==null){
+			throw new IllegalStateException("vcf line missing column " + (columnIndex +1) + " : " + line);
+		}
+		return column;
+	}
+	@Override
+	public String getChromId() {
+		return getRequiredColumn(0);
+	}
+
+	@Override
+	public int getPosition() {
+		if(!findColumn(1)){
+			throw new IllegalStateException("vcf line missing position : " + line);
+		}
+		return Integer.parseInt(line, columnStart(1), columnEnd(1), 10);
+	}
+
+	@Override
+	public String getId() {
+		return getRequiredColumn(2);
+	}
+
+	@Override
+	public String getRefBase() {
+		return getRequiredColumn(3);
+	}
+
+	@Override
+	public String getAltBase() {
+		return getRequiredColumn(4);
+	}
+
+	@Override
+	public Double getQuality() {
+		String qual = getRequiredColumn(QUALITY_COLUMN);
+		if(".".equals(qual)){
+			return null;
+		}
+		return Double.valueOf(qual);
+	}
+
+	@Override
+	public String getFilter() {
+		return getRequiredColumn(6);
+	}
+
+	@Override
+	public String getInfo() {
+		return getRequiredColumn(7);
+	}
+
+	@Override
+	public String getInfoValue(String key) {
+		if(!findColumn(7)){
+			return null;
+		}
+		int infoStart = columnStart(7);
+		int infoEnd = columnEnd(7);
+		int keyLength = key.length();
+		int entryStart = infoStart;
+		while(entryStart < infoEnd){
+			int entryEnd = line.indexOf(';', entryStart);
+			if(entryEnd <0 || entryEnd > infoEnd){
+				entryEnd = infoEnd;
+			}
+			if(entryEnd - entryStart >= keyLength && line.regionMatches(entryStart, key, 0, keyLength)){
+				int afterKey = entryStart + keyLength;
+				if(afterKey == entryEnd){
+					//flag
+					return "";
+				}
+				if(line.charAt(afterKey) == '='){
+					return line.substring(afterKey+1, entryEnd);
+				}
+			}
+			entryStart = entryEnd+1;
+		}
+		return null;
+	}
+
+	@Override
+	public String getFormat() {
+		return getColumn(FORMAT_COLUMN);
+	}
+
+	@Override
+	public int getFormatKeyIndex(String formatKey) {
+		if(formatKeys ==null){
+			String format = getFormat();
+			formatKeys = format==null? new String[0] : format.split(":");
+		}
+		for(int i=0; i< formatKeys.length; i++){
+			if(formatKeys[i].equals(formatKey)){
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public int getNumberOfSamples() {
+		return Math.max(0, getNumberOfColumns() - FIRST_SAMPLE_COLUMN);
+	}
+	
+	private int sampleColumn(int sampleIndex){
+		int column = sampleIndex + FIRST_SAMPLE_COLUMN;
+		if(sampleIndex <0 || !findColumn(column)){
+			throw new IndexOutOfBoundsException("sample index " + sampleIndex + " is out of range");
+		}
+		return column;
+	}
+	@Override
+	public String getSampleColumn(int sampleIndex) {
+		int column = sampleColumn(sampleIndex);
+		return line.substring(columnStart(column), columnEnd(column));
+	}
+
+	@Override
+	public List<String> getSampleColumns() {
+		int numberOfSamples = getNumberOfSamples();
+		List<String> list = new ArrayList<>(numberOfSamples);
+		for(int i=0; i< numberOfSamples; i++){
+			list.add(getSampleColumn(i));
+		}
+		return list;
+	}
+	/**
+	 * Find the start of the given FORMAT field in the sample
+	 * and store the end in {@code bounds[0]}.
+	 * @return the start offset or -1 if the sample doesn't have that field.
+	 */
+	private int findSampleValue(int sampleIndex, int formatKeyIndex, int[] bounds){
+		int column = sampleColumn(sampleIndex);
+		int valueStart = columnStart(column);
+		int columnEnd = columnEnd(column);
+		for(int i=0; i< formatKeyIndex; i++){
+			int colon = line.indexOf(':', valueStart);
+			if(colon <0 || colon >= columnEnd){
+				return -1;
+			}
+			valueStart = colon+1;
+		}
+		int valueEnd = line.indexOf(':', valueStart);
+		bounds[0] = valueEnd <0 || valueEnd > columnEnd ? columnEnd : valueEnd;
+		return valueStart;
+	}
+	
+	@Override
+	public String getSampleValue(int sampleIndex, int formatKeyIndex) {
+		if(formatKeyIndex <0){
+			return null;
+		}
+		int[] bounds = new int[1];
+		int valueStart = findSampleValue(sampleIndex, formatKeyIndex, bounds);
+		return valueStart <0 ? null : line.substring(valueStart, bounds[0]);
+	}
+	/**
+	 * Find the end of the first value of a possibly multi-valued field.
+	 */
+	private int firstValueEnd(int valueStart, int valueEnd){
+		int comma = line.indexOf(',', valueStart);
+		return comma <0 || comma > valueEnd ? valueEnd : comma;
+	}
+	
+	private boolean isMissing(int valueStart, int valueEnd){
+		return valueStart <0 || valueStart == valueEnd || 
+				(valueEnd - valueStart ==1 && line.charAt(valueStart) == '.');
+	}
+	
+	@Override
+	public int getSampleValueAsInt(int sampleIndex, int formatKeyIndex, int missingValue) {
+		if(formatKeyIndex <0){
+			return missingValue;
+		}
+		int[] bounds = new int[1];
+		int valueStart = findSampleValue(sampleIndex, formatKeyIndex, bounds);
+		int valueEnd = valueStart <0 ? -1 : firstValueEnd(valueStart, bounds[0]);
+		if(isMissing(valueStart, valueEnd)){
+			return missingValue;
+		}
+		return Integer.parseInt(line, valueStart, valueEnd, 10);
+	}
+
+	@Override
+	public float getSampleValueAsFloat(int sampleIndex, int formatKeyIndex, float missingValue) {
+		if(formatKeyIndex <0){
+			return missingValue;
+		}
+		int[] bounds = new int[1];
+		int valueStart = findSampleValue(sampleIndex, formatKeyIndex, bounds);
+		int valueEnd = valueStart <0 ? -1 : firstValueEnd(valueStart, bounds[0]);
+		if(isMissing(valueStart, valueEnd)){
+			return missingValue;
+		}
+		return Float.parseFloat(line.substring(valueStart, valueEnd));
+	}
+
+	@Override
+	public int getNonReferenceAlleleCount(int sampleIndex) {
+		if(gtIndex == -2){
+			gtIndex = getFormatKeyIndex(GT);
+		}
+		if(gtIndex <0){
+			return MISSING_GENOTYPE;
+		}
+		int[] bounds = new int[1];
+		int valueStart = findSampleValue(sampleIndex, gtIndex, bounds);
+		if(valueStart <0 || valueStart == bounds[0]){
+			return MISSING_GENOTYPE;
+		}
+		int count=0;
+		boolean inAllele = false;
+		boolean nonZero = false;
+		for(int i=valueStart; i< bounds[0]; i++){
+			char c = line.charAt(i);
+			if(c =='.'){
+				return MISSING_GENOTYPE;
+			}
+			if(c =='/' || c =='|'){
+				if(inAllele && nonZero){
+					count++;
+				}
+				inAllele = false;
+				nonZero = false;
+			}else{
+				inAllele = true;
+				if(c !='0'){
+					nonZero = true;
+				}
+			}
+		}
+		if(inAllele && nonZero){
+			count++;
+		}
+		return count;
+	}
+
+	@Override
+	public String toString() {
+		return line.substring(start, end);
+	}
+}
@@ -0,0 +1,366 @@
+package org.jcvi.jillion.vcf;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import org.jcvi.jillion.core.Range;
+import org.jcvi.jillion.core.io.IOUtil;
+import org.jcvi.jillion.core.io.InputStreamSupplier;
+import org.jcvi.jillion.internal.core.util.WorkerPool;
+import org.jcvi.jillion.sam.BgzfInputStream;
+import org.jcvi.jillion.vcf.VcfVisitor.VcfMemento;
+import org.jcvi.jillion.vcf.VcfVisitor.VcfVisitorCallback;
+/**
+ * A {@link VcfParser} that pipelines the parsing of the data lines.
+ * The calling thread reads large blocks of (uncompressed) bytes
+ * that end on a line boundary and hands each block to a pool of
+ * worker threads which split the block into lines,
+ * filter and decode them.  BGZF compressed files are also
+ * inflated on a pool of worker threads.
+ * <p>
+ * Records are either given to the visitor in any order
+ * from the worker threads as soon as they are decoded
+ * (so the visitor must be thread-safe) or
+ * the records in each block are buffered and replayed to the visitor
+ * on the calling thread in the same order as the file with a bounded
+ * number of blocks in flight.  The header callbacks, {@link VcfVisitor#visitEnd()} and {@link VcfVisitor#halted()}
+ * are always called on the calling thread.
+ * </p>
+ * <p>
+ * Parsing from {@link VcfMemento}s, region queries and
+ * parsing with only 1 thread are handled by a single threaded {@link VcfFileParser}
+ * and records visited by the pipeline can not create mementos.
+ * </p>
+ * @author dkatzel
+ *
+ * @since 6.0.3
+ */
+final class ParallelVcfFileParser implements VcfParser{
+	/**
+	 * Default number of uncompressed bytes per block.
+	 */
+	static final int DEFAULT_BLOCK_SIZE = 256 * 1024;
+
+	private final File vcfFile;
+	private final InputStreamSupplier supplier;
+	private final int numberOfThreads;
+	private final boolean preserveOrder;
+	private final Predicate<VcfRecord> filter;
+	private final int blockSize;
+
+	private final VcfFileParser singleThreadedParser;
+
+	ParallelVcfFileParser(File vcfFile, int numberOfThreads, boolean preserveOrder, Predicate<VcfRecord> filter, int blockSize) throws IOException {
+		if(blockSize < 1){
+			throw new IllegalArgumentException("block size must be positive");
+		}
+		this.vcfFile = Objects.requireNonNull(vcfFile);
+		this.supplier = InputStreamSupplier.forFile(vcfFile);
+		this.numberOfThreads = Math.max(1, numberOfThreads);
+		this.preserveOrder = preserveOrder;
+		this.filter = filter;
+		this.blockSize = blockSize;
+		this.singleThreadedParser = VcfFileParser.create(vcfFile);
+	}
+
+	private VcfVisitor filtered(VcfVisitor visitor){
+		return filter ==null ? visitor : new FilteredVcfVisitor(visitor, filter);
+	}
+
+	@Override
+	public void parse(VcfVisitor visitor, VcfMemento momento) throws IOException {
+		singleThreadedParser.parse(filtered(visitor), momento);
+	}
+
+	@Override
+	public void parse(String chromId, Range range, VcfVisitor visitor) throws IOException {
+		singleThreadedParser.parse(chromId, range, filtered(visitor));
+	}
+
+	@Override
+	public void parse(VcfVisitor visitor) throws IOException {
+		Objects.requireNonNull(visitor, "visitor can not be null");
+		if(numberOfThreads < 2){
+			singleThreadedParser.parse(filtered(visitor));
+			return;
+		}
+		long firstDataOffset = singleThreadedParser.parseHeader(visitor);
+		if(firstDataOffset <0){
+			//visitor was already told we are done
+			return;
+		}
+		AtomicBoolean keepParsing = new AtomicBoolean(true);
+		VcfVisitorCallback callback = new PipelineCallback(keepParsing);
+		WorkerPool executor = new WorkerPool(numberOfThreads);
+		try(InputStream in = open(firstDataOffset)){
+			BlockReader reader = new BlockReader(in, blockSize);
+			if(preserveOrder){
+				parseInOrder(visitor, callback, reader, keepParsing, executor);
+			}else{
+				parseUnordered(visitor, callback, reader, keepParsing, executor);
+			}
+		}finally{
+			executor.cancelAll();
+		}
+		if(keepParsing.get()){
+			visitor.visitEnd();
+		}else{
+			visitor.halted();
+		}
+	}
+
+	private InputStream open(long uncompressedOffset) throws IOException{
+		if(!BgzfInputStream.isBgzf(vcfFile)){
+			return supplier.get(uncompressedOffset);
+		}
+		InputStream in = BgzfInputStream.create(vcfFile, numberOfThreads, numberOfThreads *4);
+		try{
+			IOUtil.blockingSkip(in, uncompressedOffset);
+		}catch(IOException e){
+			IOUtil.closeAndIgnoreErrors(in);
+			throw e;
+		}
+		return in;
+	}
+
+	private void parseUnordered(VcfVisitor visitor, VcfVisitorCallback callback, BlockReader reader,
+			AtomicBoolean keepParsing, WorkerPool executor) throws IOException{
+		//limit how many blocks are read ahead of the workers
+		int maxBlocksInFlight = numberOfThreads * 2;
+		Deque<Future<Void>> pending = new ArrayDeque<>(maxBlocksInFlight);
+		Block block;
+		while(keepParsing.get() && (block = reader.next()) !=null){
+			if(pending.size() == maxBlocksInFlight){
+				waitFor(pending.poll());
+			}
+			Block currentBlock = block;
+			pending.add(executor.submit(()->{
+				forEachRecord(currentBlock, keepParsing, record-> LazyVcfRecord.accept(visitor, callback, record));
+				return null;
+			}));
+		}
+		while(!pending.isEmpty()){
+			waitFor(pending.poll());
+		}
+	}
+
+	private void parseInOrder(VcfVisitor visitor, VcfVisitorCallback callback, BlockReader reader,
+			AtomicBoolean keepParsing, WorkerPool executor) throws IOException{
+		boolean isRecordVisitor = visitor instanceof VcfRecordVisitor;
+		//limit how many decoded blocks are buffered in memory at once;
+		//decoded blocks are much larger than the raw bytes so only keep
+		//enough to keep every worker busy
+		int maxBlocksInFlight = numberOfThreads + 1;
+		Deque<Future<List<DecodedRecord>>> pending = new ArrayDeque<>(maxBlocksInFlight);
+		boolean moreBlocks = true;
+		while(keepParsing.get() && (moreBlocks || !pending.isEmpty())){
+			while(moreBlocks && pending.size() < maxBlocksInFlight){
+				Block block = reader.next();
+				if(block ==null){
+					moreBlocks = false;
+				}else{
+					pending.add(executor.submit(()-> decode(block, isRecordVisitor, keepParsing)));
+				}
+			}
+			if(pending.isEmpty()){
+				break;
+			}
+			for(DecodedRecord record : waitFor(pending.poll())){
+				if(!keepParsing.get()){
+					break;
+				}
+				record.replay(visitor, callback);
+			}
+		}
+	}
+
+	private List<DecodedRecord> decode(Block block, boolean isRecordVisitor, AtomicBoolean keepParsing){
+		List<DecodedRecord> records = new ArrayList<>();
+		forEachRecord(block, keepParsing, record ->{
+			if(isRecordVisitor){
+				//find all the tabs now so the calling thread doesn't have to
+				record.getNumberOfColumns();
+				records.add((visitor, callback)-> ((VcfRecordVisitor) visitor).visitRecord(callback, record));
+			}else{
+				records.add(new DecodedFields(record));
+			}
+		});
+		return records;
+	}
+	/**
+	 * Split the given block into lines and pass each
+	 * record that isn't filtered out to the given consumer.
+	 */
+	private void forEachRecord(Block block, AtomicBoolean keepParsing, Consumer<LazyVcfRecord> consumer){
+		byte[] bytes = block.bytes;
+		int lineStart=0;
+		while(lineStart < block.length && keepParsing.get()){
+			int lineEnd = lineStart;
+			while(lineEnd < block.length && bytes[lineEnd] != '\n'){
+				lineEnd++;
+			}
+			if(lineEnd > lineStart && bytes[lineStart] != '#' && bytes[lineStart] != '\r'){
+				LazyVcfRecord record = new LazyVcfRecord(new String(bytes, lineStart, lineEnd - lineStart, StandardCharsets.ISO_8859_1));
+				if(filter ==null || filter.test(record)){
+					consumer.accept(record);
+				}
+			}
+			lineStart = lineEnd +1;
+		}
+	}
+
+	private static <T> T waitFor(Future<T> future) throws IOException{
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("interrupted while parsing vcf", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if(cause instanceof IOException){
+				throw (IOException) cause;
+			}
+			throw new IOException("error parsing vcf: " + cause.getMessage(), cause);
+		}
+	}
+	/**
+	 * Bytes of whole lines.
+	 */
+	private static final class Block{
+		private final byte[] bytes;
+		private final int length;
+
+		Block(byte[] bytes, int length) {
+			this.bytes = bytes;
+			this.length = length;
+		}
+	}
+	/**
+	 * Reads blocks of at least {@code blockSize} bytes
+	 * (unless it's the end of the file) from an InputStream
+	 * that end on a line boundary.  The partial line at the end
+	 * of each read is carried over to the start of the next block.
+	 */
+	private static final class BlockReader{
+		private final InputStream in;
+		private final int blockSize;
+		private byte[] leftover = new byte[0];
+		private boolean endOfFile;
+
+		BlockReader(InputStream in, int blockSize) {
+			this.in = in;
+			this.blockSize = blockSize;
+		}
+		/**
+		 * Read the next block.
+		 * @return the next block or {@code null} if there are no more bytes.
+		 * @throws IOException if there is a problem reading the stream.
+		 */
+		Block next() throws IOException{
+			byte[] buffer = new byte[Math.max(blockSize, leftover.length *2)];
+			System.arraycopy(leftover, 0, buffer, 0, leftover.length);
+			int length = leftover.length;
+			leftover = new byte[0];
+			while(true){
+				while(!endOfFile && length < buffer.length){
+					int bytesRead = in.read(buffer, length, buffer.length - length);
+					if(bytesRead <0){
+						endOfFile = true;
+					}else{
+						length += bytesRead;
+					}
+				}
+				if(endOfFile){
+					return length ==0 ? null : new Block(buffer, length);
+				}
+				int lastEndOfLine = length -1;
+				while(lastEndOfLine >=0 && buffer[lastEndOfLine] != '\n'){
+					lastEndOfLine--;
+				}
+				if(lastEndOfLine >=0){
+					leftover = Arrays.copyOfRange(buffer, lastEndOfLine +1, length);
+					return new Block(buffer, lastEndOfLine +1);
+				}
+				//a single line is longer than the buffer
+				buffer = Arrays.copyOf(buffer, buffer.length *2);
+			}
+		}
+	}
+	/**
+	 * A record that was decoded on a worker thread
+	 * to be replayed to the visitor on the calling thread.
+	 */
+	private interface DecodedRecord{
+		void replay(VcfVisitor visitor, VcfVisitorCallback callback);
+	}
+	/**
+	 * All the fields of a record that will be passed to
+	 * {@link VcfVisitor#visitData(VcfVisitorCallback, String, int, String, String, String, int, String, String, String, List)}.
+	 */
+	private static final class DecodedFields implements DecodedRecord{
+		private final String chromId;
+		private final int position;
+		private final String id;
+		private final String refBase;
+		private final String altBase;
+		private final int quality;
+		private final String filter;
+		private final String info;
+		private final String format;
+		private final List<String> samples;
+
+		DecodedFields(VcfRecord record) {
+			this.chromId = record.getChromId();
+			this.position = record.getPosition();
+			this.id = record.getId();
+			this.refBase = record.getRefBase();
+			this.altBase = record.getAltBase();
+			this.quality = Integer.parseInt(record.getColumn(LazyVcfRecord.QUALITY_COLUMN));
+			this.filter = record.getFilter();
+			this.info = record.getInfo();
+			this.format = record.getFormat();
+			this.samples = record.getSampleColumns();
+		}
+
+		@Override
+		public void replay(VcfVisitor visitor, VcfVisitorCallback callback) {
+			visitor.visitData(callback, chromId, position, id, refBase, altBase, quality, filter, info, format, samples);
+		}
+	}
+
+	private static final class PipelineCallback implements VcfVisitorCallback{
+		private final AtomicBoolean keepParsing;
+
+		PipelineCallback(AtomicBoolean keepParsing) {
+			this.keepParsing = keepParsing;
+		}
+
+		@Override
+		public boolean canCreateMemento() {
+			return false;
+		}
+
+		@Override
+		public void haltParsing() {
+			keepParsing.set(false);
+		}
+
+		@Override
+		public VcfMemento createMemento() {
+			throw new UnsupportedOperationException("momento not supported");
+		}
+	}
+}
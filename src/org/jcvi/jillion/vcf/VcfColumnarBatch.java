@@ -0,0 +1,216 @@
+package org.jcvi.jillion.vcf;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+/**
+ * A batch of VCF records whose selected per-sample
+ * FORMAT fields have been decoded into primitive arrays.
+ * Each array is laid out record major so the value
+ * for record {@code r} and sample {@code s} is at
+ * offset {@code r * getNumberOfSamples() + s}.
+ * <p>
+ * Batches are reused by the {@link VcfColumnarVisitor}
+ * that created them so they are only valid during the call
+ * to the batch consumer; copy out anything that needs
+ * to be kept.
+ * </p>
+ *
+ * @author dkatzel
+ *
+ * @since 6.0.3
+ *
+ * @see VcfColumnarVisitor
+ */
+public final class VcfColumnarBatch {
+	/**
+	 * Value stored in int columns for missing values.
+	 */
+	public static final int MISSING_INT = Integer.MIN_VALUE;
+	/**
+	 * Value stored in the genotype column for missing genotypes.
+	 */
+	public static final byte MISSING_GENOTYPE = (byte) VcfRecord.MISSING_GENOTYPE;
+
+	private final List<String> sampleNames;
+	private final int numberOfSamples;
+	private final String[] chromIds;
+	private final int[] positions;
+
+	private final Map<String, int[]> intColumns;
+	private final Map<String, float[]> floatColumns;
+	private final byte[] genotypes;
+
+	private int numberOfRecords;
+
+	VcfColumnarBatch(List<String> sampleNames, int capacity,
+			Map<String, int[]> intColumns, Map<String, float[]> floatColumns, byte[] genotypes){
+		this.sampleNames = Collections.unmodifiableList(sampleNames);
+		this.numberOfSamples = sampleNames.size();
+		this.chromIds = new String[capacity];
+		this.positions = new int[capacity];
+		this.intColumns = intColumns;
+		this.floatColumns = floatColumns;
+		this.genotypes = genotypes;
+	}
+
+	int getCapacity(){
+		return positions.length;
+	}
+
+	void clear(){
+		Arrays.fill(chromIds, 0, numberOfRecords, null);
+		numberOfRecords =0;
+	}
+	/**
+	 * Add the fixed fields of the given record
+	 * and return the offset in the sample arrays
+	 * the sample values should be written to.
+	 */
+	int addRecord(String chromId, int position){
+		chromIds[numberOfRecords] = chromId;
+		positions[numberOfRecords] = position;
+		return numberOfRecords++ * numberOfSamples;
+	}
+
+	int[] intColumn(String key){
+		return intColumns.get(key);
+	}
+
+	float[] floatColumn(String key){
+		return floatColumns.get(key);
+	}
+
+	byte[] genotypeColumn(){
+		return genotypes;
+	}
+	/**
+	 * Get the number of records in this batch.
+	 * @return the number of records; always {@code >= 1}.
+	 */
+	public int getNumberOfRecords() {
+		return numberOfRecords;
+	}
+	/**
+	 * Get the number of samples per record.
+	 * @return the number of samples.
+	 */
+	public int getNumberOfSamples() {
+		return numberOfSamples;
+	}
+	/**
+	 * Get the sample names from the VCF header.
+	 * @return an unmodifiable List of the sample names.
+	 */
+	public List<String> getSampleNames() {
+		return sampleNames;
+	}
+
+	private void checkRecordIndex(int recordIndex){
+		if(recordIndex <0 || recordIndex >= numberOfRecords){
+			throw new IndexOutOfBoundsException("record index " + recordIndex + " is out of range [0, " + numberOfRecords + ")");
+		}
+	}
+	/**
+	 * Get the CHROM of the given record.
+	 * @param recordIndex the 0-based record index in this batch.
+	 * @return the chromosome id.
+	 * @throws IndexOutOfBoundsException if the record index is out of range.
+	 */
+	public String getChromId(int recordIndex){
+		checkRecordIndex(recordIndex);
+		return chromIds[recordIndex];
+	}
+	/**
+	 * Get the 1-based POS of the given record.
+	 * @param recordIndex the 0-based record index in this batch.
+	 * @return the position.
+	 * @throws IndexOutOfBoundsException if the record index is out of range.
+	 */
+	public int getPosition(int recordIndex){
+		checkRecordIndex(recordIndex);
+		return positions[recordIndex];
+	}
+	/**
+	 * Get the backing array of the given int FORMAT field.
+	 * Only the first {@code getNumberOfRecords() * getNumberOfSamples()}
+	 * elements are valid; missing values are {@link #MISSING_INT}.
+	 * @param formatKey the FORMAT key that was requested as an int field.
+	 * @return the array (not a copy).
+	 * @throws IllegalArgumentException if the key was not requested as an int field.
+	 */
+	public int[] getIntColumn(String formatKey){
+		int[] column = intColumns.get(formatKey);
+		if(column ==null){
+			throw new IllegalArgumentException("not an int field : " + formatKey);
+		}
+		return column;
+	}
+	/**
+	 * Get the backing array of the given float FORMAT field.
+	 * Only the first {@code getNumberOfRecords() * getNumberOfSamples()}
+	 * elements are valid; missing values are {@link Float#NaN}.
+	 * @param formatKey the FORMAT key that was requested as a float field.
+	 * @return the array (not a copy).
+	 * @throws IllegalArgumentException if the key was not requested as a float field.
+	 */
+	public float[] getFloatColumn(String formatKey){
+		float[] column = floatColumns.get(formatKey);
+		if(column ==null){
+			throw new IllegalArgumentException("not a float field : " + formatKey);
+		}
+		return column;
+	}
+	/**
+	 * Get the backing array of the non-reference allele counts
+	 * of each sample's GT field.
+	 * Only the first {@code getNumberOfRecords() * getNumberOfSamples()}
+	 * elements are valid; missing genotypes are {@link #MISSING_GENOTYPE}.
+	 * @return the array (not a copy).
+	 * @throws IllegalStateException if genotypes were not requested.
+	 */
+	public byte[] getGenotypes(){
+		if(genotypes ==null){
+			throw new IllegalStateException("genotypes were not requested");
+		}
+		return genotypes;
+	}
+	/**
+	 * Get the int value of the given FORMAT field for one record and sample.
+	 * @param formatKey the FORMAT key that was requested as an int field.
+	 * @param recordIndex the 0-based record index in this batch.
+	 * @param sampleIndex the 0-based sample index.
+	 * @return the value or {@link #MISSING_INT}.
+	 */
+	public int getInt(String formatKey, int recordIndex, int sampleIndex){
+		return getIntColumn(formatKey)[offset(recordIndex, sampleIndex)];
+	}
+	/**
+	 * Get the float value of the given FORMAT field for one record and sample.
+	 * @param formatKey the FORMAT key that was requested as a float field.
+	 * @param recordIndex the 0-based record index in this batch.
+	 * @param sampleIndex the 0-based sample index.
+	 * @return the value or {@link Float#NaN}.
+	 */
+	public float getFloat(String formatKey, int recordIndex, int sampleIndex){
+		return getFloatColumn(formatKey)[offset(recordIndex, sampleIndex)];
+	}
+	/**
+	 * Get the number of non-reference alleles for one record and sample.
+	 * @param recordIndex the 0-based record index in this batch.
+	 * @param sampleIndex the 0-based sample index.
+	 * @return the count or {@link #MISSING_GENOTYPE}.
+	 */
+	public byte getGenotype(int recordIndex, int sampleIndex){
+		return getGenotypes()[offset(recordIndex, sampleIndex)];
+	}
+
+	private int offset(int recordIndex, int sampleIndex){
+		checkRecordIndex(recordIndex);
+		if(sampleIndex <0 || sampleIndex >= numberOfSamples){
+			throw new IndexOutOfBoundsException("sample index " + sampleIndex + " is out of range [0, " + numberOfSamples + ")");
+		}
+		return recordIndex * numberOfSamples + sampleIndex;
+	}
+}
@@ -0,0 +1,234 @@
+package org.jcvi.jillion.vcf;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+/**
+ * A {@link VcfRecordVisitor} that streams selected per-sample
+ * FORMAT fields into primitive arrays a batch of records at a time.
+ * Only the requested fields of each sample are decoded
+ * so no per-sample Strings are created.
+ * <p>
+ * Multi-valued fields only store their first value.
+ * </p>
+ * <pre>
+ * VcfColumnarVisitor visitor = VcfColumnarVisitor.builder(batch -&gt; {
+ *                                         byte[] gt = batch.getGenotypes();
+ *                                         int[] dp = batch.getIntColumn("DP");
+ *                                         ...
+ *                                     })
+ *                                     .genotypes()
+ *                                     .intField("DP")
+ *                                     .batchSize(1024)
+ *                                     .build();
+ * VcfFileParser.createParserFor(vcf).parse(visitor);
+ * </pre>
+ *
+ * @author dkatzel
+ *
+ * @since 6.0.3
+ *
+ * @see VcfColumnarBatch
+ */
+public final class VcfColumnarVisitor implements VcfRecordVisitor{
+	/**
+	 * Default number of records per batch.
+	 */
+	public static final int DEFAULT_BATCH_SIZE = 1024;
+
+	private final Consumer<VcfColumnarBatch> consumer;
+	private final int batchSize;
+	private final String[] intFields;
+	private final String[] floatFields;
+	private final boolean includeGenotypes;
+
+	private VcfColumnarBatch batch;
+
+	private VcfColumnarVisitor(Builder builder){
+		this.consumer = builder.consumer;
+		this.batchSize = builder.batchSize;
+		this.intFields = builder.intFields.toArray(new String[0]);
+		this.floatFields = builder.floatFields.toArray(new String[0]);
+		this.includeGenotypes = builder.includeGenotypes;
+	}
+	/**
+	 * Create a new {@link Builder} that will pass each batch
+	 * to the given consumer.
+	 * @param consumer the consumer of each batch; can not be null.
+	 * @return a new Builder.
+	 * @throws NullPointerException if consumer is null.
+	 */
+	public static Builder builder(Consumer<VcfColumnarBatch> consumer){
+		return new Builder(consumer);
+	}
+
+	@Override
+	public void visitHeader(VcfVisitorCallback callback, List<String> extraColumns) {
+		List<String> sampleNames = extraColumns ==null ? Collections.emptyList() : new ArrayList<>(extraColumns);
+		int arrayLength = batchSize * sampleNames.size();
+
+		Map<String, int[]> ints = new LinkedHashMap<>();
+		for(String key : intFields){
+			ints.put(key, new int[arrayLength]);
+		}
+		Map<String, float[]> floats = new LinkedHashMap<>();
+		for(String key : floatFields){
+			floats.put(key, new float[arrayLength]);
+		}
+		batch = new VcfColumnarBatch(sampleNames, batchSize, ints, floats,
+				includeGenotypes ? new byte[arrayLength] : null);
+	}
+
+	@Override
+	public void visitRecord(VcfVisitorCallback callback, VcfRecord record) {
+		if(batch ==null){
+			throw new IllegalStateException("data line visited before header");
+		}
+		int numberOfSamples = batch.getNumberOfSamples();
+		int samplesInRecord = Math.min(numberOfSamples, record.getNumberOfSamples());
+		int offset = batch.addRecord(record.getChromId(), record.getPosition());
+
+		for(String key : intFields){
+			int[] column = batch.intColumn(key);
+			int keyIndex = record.getFormatKeyIndex(key);
+			for(int i=0; i< samplesInRecord; i++){
+				column[offset+i] = record.getSampleValueAsInt(i, keyIndex, VcfColumnarBatch.MISSING_INT);
+			}
+			Arrays.fill(column, offset + samplesInRecord, offset + numberOfSamples, VcfColumnarBatch.MISSING_INT);
+		}
+		for(String key : floatFields){
+			float[] column = batch.floatColumn(key);
+			int keyIndex = record.getFormatKeyIndex(key);
+			for(int i=0; i< samplesInRecord; i++){
+				column[offset+i] = record.getSampleValueAsFloat(i, keyIndex, Float.NaN);
+			}
+			Arrays.fill(column, offset + samplesInRecord, offset + numberOfSamples, Float.NaN);
+		}
+		if(includeGenotypes){
+			byte[] column = batch.genotypeColumn();
+			for(int i=0; i< samplesInRecord; i++){
+				column[offset+i] = (byte) record.getNonReferenceAlleleCount(i);
+			}
+			Arrays.fill(column, offset + samplesInRecord, offset + numberOfSamples, VcfColumnarBatch.MISSING_GENOTYPE);
+		}
+		if(batch.getNumberOfRecords() == batch.getCapacity()){
+			flush();
+		}
+	}
+
+	private void flush(){
+		if(batch !=null && batch.getNumberOfRecords() >0){
+			consumer.accept(batch);
+			batch.clear();
+		}
+	}
+
+	@Override
+	public void visitEnd() {
+		flush();
+	}
+
+	@Override
+	public void halted() {
+		flush();
+	}
+
+	@Override
+	public void visitMetaInfo(VcfVisitorCallback callback, String key, String value) {
+		//no-op
+	}
+
+	@Override
+	public void visitFilter(VcfVisitorCallback callback, String key, String description) {
+		//no-op
+	}
+
+	@Override
+	public void visitInfo(VcfVisitorCallback callback, String id, VcfValueType infoType,
+			VcfNumber numberTypeAndValue, String description, Map<String, String> parameters) {
+		//no-op
+	}
+
+	@Override
+	public void visitFormat(VcfVisitorCallback callback, String id, VcfValueType infoType,
+			VcfNumber numberTypeAndValue, String description, Map<String, String> parameters) {
+		//no-op
+	}
+
+	@Override
+	public void visitContigInfo(VcfVisitorCallback callback, String contigId, Long length,
+			Map<String, String> parameters) {
+		//no-op
+	}
+	/**
+	 * Builder for {@link VcfColumnarVisitor}.
+	 *
+	 * @author dkatzel
+	 *
+	 * @since 6.0.3
+	 */
+	public static final class Builder{
+		private final Consumer<VcfColumnarBatch> consumer;
+		private int batchSize = DEFAULT_BATCH_SIZE;
+		private final Set<String> intFields = new LinkedHashSet<>();
+		private final Set<String> floatFields = new LinkedHashSet<>();
+		private boolean includeGenotypes;
+
+		private Builder(Consumer<VcfColumnarBatch> consumer){
+			this.consumer = Objects.requireNonNull(consumer);
+		}
+		/**
+		 * Set the maximum number of records per batch.
+		 * @param batchSize the batch size; must be &ge; 1.
+		 * @return this.
+		 * @throws IllegalArgumentException if batchSize is &lt; 1.
+		 */
+		public Builder batchSize(int batchSize){
+			if(batchSize <1){
+				throw new IllegalArgumentException("batch size must be >= 1");
+			}
+			this.batchSize = batchSize;
+			return this;
+		}
+		/**
+		 * Decode the given FORMAT field as an int.
+		 * @param formatKey the FORMAT key such as {@code "DP"}; can not be null.
+		 * @return this.
+		 */
+		public Builder intField(String formatKey){
+			intFields.add(Objects.requireNonNull(formatKey));
+			return this;
+		}
+		/**
+		 * Decode the given FORMAT field as a float.
+		 * @param formatKey the FORMAT key such as {@code "GL"}; can not be null.
+		 * @return this.
+		 */
+		public Builder floatField(String formatKey){
+			floatFields.add(Objects.requireNonNull(formatKey));
+			return this;
+		}
+		/**
+		 * Decode the GT field as the number of non-reference alleles.
+		 * @return this.
+		 */
+		public Builder genotypes(){
+			includeGenotypes = true;
+			return this;
+		}
+		/**
+		 * Create a new {@link VcfColumnarVisitor}.
+		 * @return a new VcfColumnarVisitor; will never be null.
+		 */
+		public VcfColumnarVisitor build(){
+			return new VcfColumnarVisitor(this);
+		}
+	}
+}
@@ -5,7 +5,6 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.Constructor;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -14,9 +13,14 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
+import org.jcvi.jillion.core.Range;
+import org.jcvi.jillion.core.io.IOUtil;
 import org.jcvi.jillion.core.io.InputStreamSupplier;
 import org.jcvi.jillion.core.util.streams.ThrowingSupplier;
 import org.jcvi.jillion.internal.core.io.TextLineParser;
+import org.jcvi.jillion.internal.sam.index.TabixIndex;
+import org.jcvi.jillion.sam.BgzfInputStream;
+import org.jcvi.jillion.sam.VirtualFileOffset;
 import org.jcvi.jillion.vcf.VcfVisitor.VcfMemento;
 import org.jcvi.jillion.vcf.VcfVisitor.VcfVisitorCallback;
 
@@ -43,15 +47,63 @@ public class VcfFileParser implements VcfParser{
 	
 	
 	private final InputStreamSupplier inputStreamSupplier;
+	/**
+	 * The bgzipped VCF file and its tabix index
+	 * used for region queries; both are null if the
+	 * file isn't indexed.
+	 */
+	private final File bgzfFile;
+	private final TabixIndex tabixIndex;
 	
 	private static final String DESCRIPTION = "Description";
 	
 	private VcfFileParser(InputStreamSupplier inputStreamSupplier) {
 		this.inputStreamSupplier = Objects.requireNonNull(inputStreamSupplier);
+		this.bgzfFile = null;
+		this.tabixIndex = null;
 	}
 	
+	private VcfFileParser(File bgzfFile, TabixIndex tabixIndex) throws IOException {
+		this.inputStreamSupplier = InputStreamSupplier.forFile(bgzfFile);
+		this.bgzfFile = bgzfFile;
+		this.tabixIndex = Objects.requireNonNull(tabixIndex);
+	}
+	/**
+	 * Create a new {@link VcfParser} for the given file.
+	 * If the file is bgzipped and there is a tabix index
+	 * named {@code f.getName() + ".tbi"} in the same directory,
+	 * then the index is used for region queries.
+	 * @param f the VCF file to parse; can not be null.
+	 * @return a new {@link VcfParser}; will never be null.
+	 * @throws IOException if there is a problem reading the file or its index.
+	 */
 	public static VcfParser createParserFor(File f) throws IOException{
-		return createParserFor(InputStreamSupplier.forFile(f));
+		return create(f);
+	}
+	
+	static VcfFileParser create(File f) throws IOException{
+		File tbi = new File(f.getParentFile(), f.getName() + ".tbi");
+		if(tbi.exists()){
+			IOUtil.verifyIsReadable(f);
+			return new VcfFileParser(f, TabixIndex.parse(tbi));
+		}
+		return new VcfFileParser(InputStreamSupplier.forFile(f));
+	}
+	/**
+	 * Create a new {@link VcfParser} for the given bgzipped VCF file
+	 * and its tabix index.  Region queries using 
+	 * {@link VcfParser#parse(String, Range, VcfVisitor)} seek directly
+	 * to the BGZF blocks that might contain variants in the region.
+	 * @param bgzfVcf the bgzipped VCF file; can not be null.
+	 * @param tabixIndex the tabix index of the VCF file; can not be null.
+	 * @return a new {@link VcfParser}; will never be null.
+	 * @throws IOException if there is a problem reading the file or its index.
+	 * 
+	 * @since 6.0.3
+	 */
+	public static VcfParser createParserFor(File bgzfVcf, File tabixIndex) throws IOException{
+		IOUtil.verifyIsReadable(bgzfVcf);
+		return new VcfFileParser(bgzfVcf, TabixIndex.parse(tabixIndex));
 	}
 
 	public static VcfParser createParserFor(InputStreamSupplier inputStreamSupplier) {
@@ -235,25 +287,7 @@ public class VcfFileParser implements VcfParser{
 			
 			callback.setPosition(parser.getPosition());
 			while(!callback.wasHalted() && (line =parser.nextLine()) !=null) {
-				String trimmed = line.trim();
-				String[] fields = TAB_PATTERN.split(trimmed);
-				//there are 9 mandatory fields but there might be others
-				
-				if(fields.length>9) {
-					List<String> extraFields = Arrays.stream(fields).skip(9).collect(Collectors.toList());
-					
-					visitor.visitData(callback, 
-							fields[0], Integer.parseInt(fields[1]), 
-							fields[2], fields[3], fields[4],
-							Integer.parseInt(fields[5]),
-							fields[6], fields[7], fields[8], extraFields);
-				}else {
-					visitor.visitData(callback, 
-							fields[0], Integer.parseInt(fields[1]), 
-							fields[2], fields[3], fields[4],
-							Integer.parseInt(fields[5]),
-							fields[6], fields[7], fields[8], Collections.emptyList());
-				}
+				LazyVcfRecord.accept(visitor, callback, new LazyVcfRecord(line));
 				callback.setPosition(parser.getPosition());
 			}
 			
@@ -401,6 +435,78 @@ public class VcfFileParser implements VcfParser{
 		parse(visitor, currentState, ()->inputStreamSupplier.get(myMomento.getOffset()));
 		
 	}
+	@Override
+	public void parse(String chromId, Range range, VcfVisitor visitor) throws IOException {
+		if(tabixIndex ==null) {
+			VcfParser.super.parse(chromId, range, visitor);
+			return;
+		}
+		VcfRegion region = new VcfRegion(chromId, range);
+		Objects.requireNonNull(visitor, "visitor can not be null");
+		AbstractParserCallback callback = new NoMementoParserCallback();
+		if(parseHeader(visitor, callback) <0) {
+			return;
+		}
+		if(region.getEndExclusive() <= region.getBegin()) {
+			visitor.visitEnd();
+			return;
+		}
+		VirtualFileOffset start = tabixIndex.findStartOffset(chromId, region.getBegin(), region.getEndExclusive());
+		if(start !=null) {
+			try(TextLineParser parser = new TextLineParser(BgzfInputStream.create(bgzfFile, start))){
+				String line;
+				while(!callback.wasHalted() && (line =parser.nextLine()) !=null) {
+					LazyVcfRecord record = new LazyVcfRecord(line);
+					String chrom = record.getColumn(0);
+					if(chrom==null || chrom.isEmpty() || chrom.charAt(0)=='#') {
+						continue;
+					}
+					//the file is sorted so once we see a different chromosome
+					//or a variant that starts after the region we are done
+					if(!chromId.equals(chrom) || record.getPosition() -1 >= region.getEndExclusive()) {
+						break;
+					}
+					if(region.overlaps(record)) {
+						LazyVcfRecord.accept(visitor, callback, record);
+					}
+				}
+			}catch(NumberFormatException | IllegalStateException e) {
+				throw new IOException("error parsing vcf: " + e.getMessage(), e);
+			}
+		}
+		if(callback.wasHalted()) {
+			visitor.halted();
+		}else {
+			visitor.visitEnd();
+		}
+	}
+	
+	/**
+	 * Parse only the meta-information and header lines.
+	 * @param visitor the visitor to visit.
+	 * @return the uncompressed offset of the first data line; or -1
+	 * if the visitor was already told the parsing ended or was halted.
+	 * @throws IOException if there is a problem parsing the header.
+	 */
+	long parseHeader(VcfVisitor visitor) throws IOException{
+		return parseHeader(visitor, new NoMementoParserCallback());
+	}
+	
+	private long parseHeader(VcfVisitor visitor, AbstractParserCallback callback) throws IOException{
+		try(TextLineParser parser = new TextLineParser(inputStreamSupplier.get())) {
+			VcfStateMachine state = new BEGIN().parse(parser, visitor, callback);
+			if(!state.keepParsing()) {
+				//END already told the visitor
+				return -1;
+			}
+			if(callback.wasHalted()) {
+				visitor.halted();
+				return -1;
+			}
+			return parser.getPosition();
+		}
+	}
+	
 	@Override
 	public void parse(VcfVisitor visitor) throws IOException {
 		
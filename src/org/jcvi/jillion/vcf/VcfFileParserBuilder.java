@@ -0,0 +1,117 @@
+package org.jcvi.jillion.vcf;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.function.Predicate;
+
+import org.jcvi.jillion.core.io.IOUtil;
+/**
+ * Creates a {@link VcfParser} for a VCF file
+ * with additional options to parse the data lines
+ * using multiple threads and to filter records.
+ * 
+ * @apiNote
+ * Example usage for creating a VcfParser that decodes
+ * a large bgzipped cohort VCF file on 8 threads
+ * would look like this:
+ * 
+ * <pre>
+ * {@code 
+ * VcfParser parser = new VcfFileParserBuilder(new File("cohort.vcf.gz"))
+ *                                   .numberOfThreads(8)
+ *                                   .filter(record -> "PASS".equals(record.getFilter()))
+ *                                   .build();
+ *                            }
+ * </pre>
+ * 
+ * @author dkatzel
+ * 
+ * @since 6.0.3
+ */
+public final class VcfFileParserBuilder {
+
+	private final File vcfFile;
+	
+	private int numberOfThreads = 1;
+	private boolean preserveOrder = true;
+	private Predicate<VcfRecord> filter;
+	/**
+	 * Create a Builder that will parse the given
+	 * VCF file.
+	 * 
+	 * @param vcfFile the VCF file to be parsed; can not be null
+	 * but may be uncompressed, gzipped or bgzipped.
+	 * 
+	 * @throws IOException if the file is not readable.
+	 * @throws NullPointerException if file is null.
+	 */
+	public VcfFileParserBuilder(File vcfFile) throws IOException{
+		IOUtil.verifyIsReadable(vcfFile);
+		this.vcfFile = vcfFile;
+	}
+	/**
+	 * Parse the data lines using the given number of threads.
+	 * If more than 1 thread is used, the calling thread reads
+	 * large blocks of lines which are split into records,
+	 * filtered and decoded concurrently.  BGZF compressed files
+	 * are also decompressed concurrently.
+	 * 
+	 * @param numberOfThreads the number of threads to use; values less than 2
+	 * mean only parse on the calling thread (defaults to 1).
+	 * 
+	 * @return this
+	 * 
+	 * @see #preserveOrder(boolean)
+	 */
+	public VcfFileParserBuilder numberOfThreads(int numberOfThreads){
+		this.numberOfThreads = Math.max(1, numberOfThreads);
+		return this;
+	}
+	/**
+	 * When parsing using multiple threads, should the records be visited
+	 * in the same order as they are in the file.  If {@code true}, then
+	 * each block's records are buffered and the visitor is called only by the calling thread
+	 * in file order.  If {@code false}, then the visitor is called concurrently from the 
+	 * worker threads as soon as each record is decoded so the visitor <strong>must be thread-safe</strong>.
+	 * This option is ignored if only 1 thread is used.
+	 * 
+	 * @param preserveOrder {@code true} if the records should be visited in file order;
+	 * {@code false} otherwise (defaults to {@code true}).
+	 * 
+	 * @return this
+	 * 
+	 * @see #numberOfThreads(int)
+	 */
+	public VcfFileParserBuilder preserveOrder(boolean preserveOrder){
+		this.preserveOrder = preserveOrder;
+		return this;
+	}
+	/**
+	 * Only visit the records that match the given filter.
+	 * The filter is tested against the lazily decoded {@link VcfRecord}
+	 * before the rest of the record is decoded and, when using
+	 * multiple threads, is called concurrently from the worker threads.
+	 * 
+	 * @param filter the filter to use; or {@code null} to visit all records
+	 * (the default).
+	 * 
+	 * @return this
+	 */
+	public VcfFileParserBuilder filter(Predicate<VcfRecord> filter){
+		this.filter = filter;
+		return this;
+	}
+	/**
+	 * Creates a new {@link VcfParser} object
+	 * using the provided options.
+	 * 
+	 * @return a new {@link VcfParser}; will never be null.
+	 * @throws IOException if there is a problem creating the parser object.
+	 */
+	public VcfParser build() throws IOException{
+		if(numberOfThreads > 1 || filter !=null){
+			return new ParallelVcfFileParser(vcfFile, numberOfThreads, preserveOrder, filter, ParallelVcfFileParser.DEFAULT_BLOCK_SIZE);
+		}
+		return VcfFileParser.createParserFor(vcfFile);
+	}
+}
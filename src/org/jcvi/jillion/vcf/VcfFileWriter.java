@@ -1,114 +1,195 @@
-package org.jcvi.jillion.vcf;
-
-import java.io.Closeable;
-import java.io.IOException;
-import java.io.PrintWriter;
-import java.util.List;
-import java.util.Map.Entry;
-import java.util.Objects;
-import java.util.stream.Collectors;
-
-
-public class VcfFileWriter implements Closeable{
-	
-	private final VcfHeader header;
-
-	private final PrintWriter out;
-	
-	private String newLine = "\n";
-	
-	public VcfFileWriter(VcfHeader header, PrintWriter out) {
-		this.header = Objects.requireNonNull(header);
-		this.out = Objects.requireNonNull(out);
-		
-		//write header out right away?
-		StringBuilder builder = new StringBuilder(2000);
-		builder.append("##fileformat=VCFv").append(header.getVersion()==null?"4.0": header.getVersion()).append(newLine);
-		for(Entry<String, String> prop : header.getProperties().entrySet()) {
-			if("fileformat".equals(prop.getKey())) {
-				//don't write out fileformat 2x
-				continue;
-			}
-			builder.append("##").append(prop.getKey()).append('=').append(prop.getValue()).append(newLine);
-		}
-		
-		for(VcfContigInfo contig: header.getContigInfos()) {
-			builder.append("##contig=<ID=").append(contig.getId())
-					.append(",length=").append(contig.getLength())
-					.append(contig.getParameters().entrySet().stream()
-									.filter(e-> !("length".equals(e.getKey())) && !("ID".equals(e.getKey())))
-									.map( e-> e.getKey() +"="+e.getValue())
-									.collect(Collectors.joining(",", ",", ">"+newLine)));
-		}
-		for(VcfInfo info : header.getInfos()) {
-			builder.append("##INFO=<ID=").append(info.getId())
-								.append(",Number=").append(info.getNumber().toEncodedString())
-								.append(",Type=").append(info.getType())
-								.append(",Description=\"").append(info.getDescription()).append("\">")
-								.append(newLine);
-		}
-		
-		for(VcfFilter filter : header.getFilters()) {
-			builder.append("##FILTER=<ID=").append(filter.getId())
-			.append(",Description=\"").append(filter.getDescription()).append("\">")
-			.append(newLine);
-		}
-		
-		for(VcfFormat format : header.getFormats()) {
-			builder.append("##FORMAT=<ID=").append(format.getId())
-			.append(",Number=").append(format.getNumber().toEncodedString())
-			.append(",Type=").append(format.getType())
-			.append(",Description=\"").append(format.getDescription()).append("\">")
-			.append(newLine);
-		}
-		//chrom line with extra headers
-		String extraCols= header.getExtraColumns().stream().collect(Collectors.joining("\t", "\t", ""));
-		
-		builder.append("#CHROM\tPOS\tID\tREF\tALT\tQUAL\tFILTER\tINFO\tFORMAT");
-		if(!extraCols.isEmpty()) {
-			builder.append(extraCols);
-		}
-		builder.append(newLine);
-		
-		
-		out.write(builder.toString());
-	}
-	
-	private String handleBlank(String f) {
-		if(f==null || f.isBlank()) {
-			return ".";
-		}
-		return f;
-	}
-	public void writeData(String chromId, int position, String id, String refBase, String altBase,
-			Integer quality, String filter, String info, String format, List<String> extraFields) throws IOException {
-		//TODO should we do any validation on info and format?
-		
-		StringBuilder builder = new StringBuilder(2000);
-		builder.append(handleBlank(chromId)).append('\t')
-				.append(position).append('\t')
-				.append(handleBlank(id)).append('\t')
-				.append(refBase).append('\t')
-				.append(handleBlank(altBase)).append('\t')
-				.append(quality==null? "." : quality.intValue()).append('\t')
-				.append(handleBlank(filter)).append('\t')
-				.append(handleBlank(info)).append('\t')
-				.append(handleBlank(format));
-		if(extraFields !=null) {
-			for(String extra : extraFields) {
-				builder.append('\t').append(handleBlank(extra));
-			}
-		}
-		builder.append(newLine);
-		out.write(builder.toString()); 
-	}
-
-	@Override
-	public void close() throws IOException {
-		out.close();
-		
-	}
-	
-	
-
-}
+package org.jcvi.jillion.vcf;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+import org.jcvi.jillion.internal.sam.index.TabixIndex;
+import org.jcvi.jillion.sam.BgzfOutputStream;
+import org.jcvi.jillion.sam.VirtualFileOffset;
+
+
+public class VcfFileWriter implements Closeable{
+	
+	private final VcfHeader header;
+
+	private final PrintWriter out;
+	/**
+	 * The BGZF stream to write to if
+	 * we are writing a bgzipped VCF; null
+	 * if writing to {@link #out}.
+	 */
+	private final BgzfOutputStream bgzfOut;
+	private final TabixIndex.Builder indexBuilder;
+	private final File indexFile;
+	
+	private String newLine = "\n";
+	
+	public VcfFileWriter(VcfHeader header, PrintWriter out) {
+		this.header = Objects.requireNonNull(header);
+		this.out = Objects.requireNonNull(out);
+		this.bgzfOut = null;
+		this.indexBuilder = null;
+		this.indexFile = null;
+		
+		//write header out right away?
+		out.write(encodeHeader());
+	}
+	/**
+	 * Create a new {@link VcfFileWriter} that writes
+	 * a BGZF compressed (bgzipped) VCF file and optionally
+	 * builds a tabix index of it on the fly.  If an index is created,
+	 * it is written to {@code bgzfVcf.getName() + ".tbi"} in the same
+	 * directory when this writer is closed and the records must be written
+	 * sorted by chromosome and position.
+	 * 
+	 * @param header the {@link VcfHeader} to write; can not be null.
+	 * @param bgzfVcf the output file; can not be null.  By convention
+	 * the file name should end in {@code .vcf.gz}.
+	 * @param createTabixIndex should a tabix index be created.
+	 * @throws IOException if there is a problem creating the output file.
+	 * @throws NullPointerException if any parameter is null.
+	 * 
+	 * @since 6.0.3
+	 */
+	public VcfFileWriter(VcfHeader header, File bgzfVcf, boolean createTabixIndex) throws IOException {
+		this.header = Objects.requireNonNull(header);
+		this.out = null;
+		this.bgzfOut = new BgzfOutputStream(bgzfVcf, null);
+		if(createTabixIndex) {
+			indexFile = new File(bgzfVcf.getParentFile(), bgzfVcf.getName() + ".tbi");
+			indexBuilder = TabixIndex.Builder.forVcf();
+			for(VcfContigInfo contig: header.getContigInfos()) {
+				if(contig.getLength() !=null) {
+					indexBuilder.setReferenceLength(contig.getId(), contig.getLength());
+				}
+			}
+		}else {
+			indexFile = null;
+			indexBuilder = null;
+		}
+		bgzfOut.write(encodeHeader().getBytes(StandardCharsets.UTF_8));
+	}
+	
+	private String encodeHeader() {
+		StringBuilder builder = new StringBuilder(2000);
+		builder.append("##fileformat=VCFv").append(header.getVersion()==null?"4.0": header.getVersion()).append(newLine);
+		for(Entry<String, String> prop : header.getProperties().entrySet()) {
+			if("fileformat".equals(prop.getKey())) {
+				//don't write out fileformat 2x
+				continue;
+			}
+			builder.append("##").append(prop.getKey()).append('=').append(prop.getValue()).append(newLine);
+		}
+		
+		for(VcfContigInfo contig: header.getContigInfos()) {
+			builder.append("##contig=<ID=").append(contig.getId())
+					.append(",length=").append(contig.getLength())
+					.append(contig.getParameters().entrySet().stream()
+									.filter(e-> !("length".equals(e.getKey())) && !("ID".equals(e.getKey())))
+									.map( e-> e.getKey() +"="+e.getValue())
+									.collect(Collectors.joining(",", ",", ">"+newLine)));
+		}
+		for(VcfInfo info : header.getInfos()) {
+			builder.append("##INFO=<ID=").append(info.getId())
+								.append(",Number=").append(info.getNumber().toEncodedString())
+								.append(",Type=").append(info.getType())
+								.append(",Description=\"").append(info.getDescription()).append("\">")
+								.append(newLine);
+		}
+		
+		for(VcfFilter filter : header.getFilters()) {
+			builder.append("##FILTER=<ID=").append(filter.getId())
+			.append(",Description=\"").append(filter.getDescription()).append("\">")
+			.append(newLine);
+		}
+		
+		for(VcfFormat format : header.getFormats()) {
+			builder.append("##FORMAT=<ID=").append(format.getId())
+			.append(",Number=").append(format.getNumber().toEncodedString())
+			.append(",Type=").append(format.getType())
+			.append(",Description=\"").append(format.getDescription()).append("\">")
+			.append(newLine);
+		}
+		//chrom line with extra headers
+		String extraCols= header.getExtraColumns().stream().collect(Collectors.joining("\t", "\t", ""));
+		
+		builder.append("#CHROM\tPOS\tID\tREF\tALT\tQUAL\tFILTER\tINFO\tFORMAT");
+		if(!extraCols.isEmpty()) {
+			builder.append(extraCols);
+		}
+		builder.append(newLine);
+		
+		return builder.toString();
+	}
+	
+	private String handleBlank(String f) {
+		if(f==null || f.isBlank()) {
+			return ".";
+		}
+		return f;
+	}
+	/**
+	 * Write a single variant.
+	 * 
+	 * @throws IOException if there is a problem writing the variant.
+	 * @throws IllegalArgumentException if a tabix index is being created
+	 * and this variant is not sorted after the previously written variant.
+	 */
+	public void writeData(String chromId, int position, String id, String refBase, String altBase,
+			Integer quality, String filter, String info, String format, List<String> extraFields) throws IOException {
+		//TODO should we do any validation on info and format?
+		
+		StringBuilder builder = new StringBuilder(2000);
+		builder.append(handleBlank(chromId)).append('\t')
+				.append(position).append('\t')
+				.append(handleBlank(id)).append('\t')
+				.append(refBase).append('\t')
+				.append(handleBlank(altBase)).append('\t')
+				.append(quality==null? "." : quality.intValue()).append('\t')
+				.append(handleBlank(filter)).append('\t')
+				.append(handleBlank(info)).append('\t')
+				.append(handleBlank(format));
+		if(extraFields !=null) {
+			for(String extra : extraFields) {
+				builder.append('\t').append(handleBlank(extra));
+			}
+		}
+		builder.append(newLine);
+		if(out !=null) {
+			out.write(builder.toString()); 
+			return;
+		}
+		if(indexBuilder ==null) {
+			bgzfOut.write(builder.toString().getBytes(StandardCharsets.UTF_8));
+			return;
+		}
+		int endExclusive = VcfRegion.computeEndExclusive(position, refBase, info);
+		//reject unsortable records before any of their bytes are written
+		indexBuilder.validateRecord(chromId, position-1, endExclusive);
+		VirtualFileOffset start = bgzfOut.getVirtualFileOffset();
+		bgzfOut.write(builder.toString().getBytes(StandardCharsets.UTF_8));
+		indexBuilder.addRecord(chromId, position-1, endExclusive, start, bgzfOut.getVirtualFileOffset());
+	}
+
+	@Override
+	public void close() throws IOException {
+		if(out !=null) {
+			out.close();
+			return;
+		}
+		bgzfOut.close();
+		if(indexBuilder !=null) {
+			indexBuilder.build().write(indexFile);
+		}
+	}
+	
+	
+
+}
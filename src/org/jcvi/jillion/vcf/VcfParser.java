@@ -2,6 +2,7 @@ package org.jcvi.jillion.vcf;
 
 import java.io.IOException;
 
+import org.jcvi.jillion.core.Range;
 import org.jcvi.jillion.vcf.VcfVisitor.VcfMemento;
 
 public interface VcfParser {
@@ -9,4 +10,26 @@ public interface VcfParser {
 	void parse(VcfVisitor visitor) throws IOException;
 	
 	void parse(VcfVisitor visitor, VcfMemento momento) throws IOException;
+	/**
+	 * Parse the header and only the variants on the given chromosome
+	 * that overlap the given Range.  If the VCF file
+	 * is bgzipped and has a tabix index, then implementations
+	 * should seek directly to the variants in the region;
+	 * by default, the whole file is parsed and 
+	 * the variants outside of the region are skipped.
+	 * 
+	 * @param chromId the chromosome to look for; can not be null.
+	 * @param range the 0-based Range on the chromosome; can not be null.
+	 * A variant overlaps the range if any base of its reference allele
+	 * (or up to its INFO END) intersects it.  Use {@link Range.CoordinateSystem#RESIDUE_BASED}
+	 * to create a Range from 1-based VCF positions.
+	 * @param visitor the visitor to visit; can not be null.
+	 * @throws IOException if there is a problem parsing the file.
+	 * @throws NullPointerException if any parameter is null.
+	 * 
+	 * @since 6.0.3
+	 */
+	default void parse(String chromId, Range range, VcfVisitor visitor) throws IOException{
+		parse(new VcfRegion(chromId, range).filter(visitor));
+	}
 }
@@ -0,0 +1,149 @@
+package org.jcvi.jillion.vcf;
+
+import java.util.List;
+/**
+ * A single VCF data line which is
+ * decoded lazily: each column, INFO value or per-sample
+ * FORMAT value is only decoded when it is requested
+ * so visitors that only need a few fields don't pay
+ * to decode the whole (possibly very wide) line.
+ * <p>
+ * Column indexes are 0-based so {@code CHROM} is column 0
+ * and the first sample is column 9.
+ * </p>
+ * 
+ * @author dkatzel
+ *
+ * @since 6.0.3
+ */
+public interface VcfRecord {
+	/**
+	 * Value returned by the primitive sample accessors
+	 * for genotypes that are missing.
+	 */
+	int MISSING_GENOTYPE = -1;
+	/**
+	 * Get the number of tab delimited columns in this line
+	 * including the samples.
+	 * @return the number of columns.
+	 */
+	int getNumberOfColumns();
+	/**
+	 * Get the raw text of the given column.
+	 * @param columnIndex the 0-based column index.
+	 * @return the column text; or {@code null} if there is no such column.
+	 */
+	String getColumn(int columnIndex);
+	
+	String getChromId();
+	/**
+	 * Get the 1-based position.
+	 * @return the position.
+	 */
+	int getPosition();
+	
+	String getId();
+	
+	String getRefBase();
+	
+	String getAltBase();
+	/**
+	 * Get the QUAL value.
+	 * @return the quality or {@code null} if missing.
+	 */
+	Double getQuality();
+	
+	String getFilter();
+	/**
+	 * Get the entire INFO column.
+	 * @return the INFO text; will be {@code "."} if there is no info.
+	 */
+	String getInfo();
+	/**
+	 * Get the value of a single INFO key without decoding the other keys.
+	 * @param key the INFO key to look for; can not be null.
+	 * @return the value; an empty String if the key is a flag; or
+	 * {@code null} if the key is not present.
+	 */
+	String getInfoValue(String key);
+	/**
+	 * Does the INFO column contain the given key.
+	 * @param key the INFO key to look for; can not be null.
+	 * @return {@code true} if the key is present (with or without a value).
+	 */
+	default boolean hasInfoKey(String key) {
+		return getInfoValue(key) !=null;
+	}
+	/**
+	 * Get the FORMAT column.
+	 * @return the FORMAT text or {@code null} if this line has no FORMAT column.
+	 */
+	String getFormat();
+	/**
+	 * Get the offset of the given key in the FORMAT column
+	 * which can be used to look up sample values.
+	 * @param formatKey the FORMAT key; can not be null.
+	 * @return the 0-based offset; or -1 if the key isn't in the FORMAT.
+	 */
+	int getFormatKeyIndex(String formatKey);
+	
+	int getNumberOfSamples();
+	/**
+	 * Get the raw text for the given sample.
+	 * @param sampleIndex the 0-based sample index.
+	 * @return the sample column text.
+	 * @throws IndexOutOfBoundsException if the sample index is out of range.
+	 */
+	String getSampleColumn(int sampleIndex);
+	/**
+	 * Get all the sample columns.
+	 * @return a new List; will never be null but may be empty.
+	 */
+	List<String> getSampleColumns();
+	/**
+	 * Get the value of one FORMAT field of one sample.
+	 * @param sampleIndex the 0-based sample index.
+	 * @param formatKeyIndex the index of the FORMAT key from {@link #getFormatKeyIndex(String)}.
+	 * @return the value or {@code null} if the sample doesn't have that many fields.
+	 * @throws IndexOutOfBoundsException if the sample index is out of range.
+	 */
+	String getSampleValue(int sampleIndex, int formatKeyIndex);
+	/**
+	 * Get the value of one FORMAT field of one sample.
+	 * @param sampleIndex the 0-based sample index.
+	 * @param formatKey the FORMAT key.
+	 * @return the value or {@code null} if the key isn't present.
+	 * @throws IndexOutOfBoundsException if the sample index is out of range.
+	 */
+	default String getSampleValue(int sampleIndex, String formatKey) {
+		int keyIndex = getFormatKeyIndex(formatKey);
+		return keyIndex <0 ? null : getSampleValue(sampleIndex, keyIndex);
+	}
+	/**
+	 * Get the first value of one FORMAT field of one sample as an int
+	 * without creating any intermediate objects.
+	 * @param sampleIndex the 0-based sample index.
+	 * @param formatKeyIndex the index of the FORMAT key from {@link #getFormatKeyIndex(String)}.
+	 * @param missingValue the value to return if the value is missing or {@code "."}.
+	 * @return the int value.
+	 * @throws NumberFormatException if the value is not an int.
+	 */
+	int getSampleValueAsInt(int sampleIndex, int formatKeyIndex, int missingValue);
+	/**
+	 * Get the first value of one FORMAT field of one sample as a float.
+	 * @param sampleIndex the 0-based sample index.
+	 * @param formatKeyIndex the index of the FORMAT key from {@link #getFormatKeyIndex(String)}.
+	 * @param missingValue the value to return if the value is missing or {@code "."}.
+	 * @return the float value.
+	 * @throws NumberFormatException if the value is not a number.
+	 */
+	float getSampleValueAsFloat(int sampleIndex, int formatKeyIndex, float missingValue);
+	/**
+	 * Get the number of non-reference alleles in the
+	 * GT field of the given sample.
+	 * @param sampleIndex the 0-based sample index.
+	 * @return the number of non-reference alleles (so 0,1 or 2 for diploid calls)
+	 * or {@link #MISSING_GENOTYPE} if there is no GT or any allele is missing.
+	 */
+	int getNonReferenceAlleleCount(int sampleIndex);
+}
@@ -0,0 +1,51 @@
+package org.jcvi.jillion.vcf;
+
+import java.util.List;
+/**
+ * A {@link VcfVisitor} that is given each data line
+ * as a lazily decoded {@link VcfRecord} instead of
+ * as fully decoded Strings.  Visitors that only need a few fields
+ * (or a few samples) of each line should implement this interface 
+ * to avoid decoding the rest of the line.
+ * 
+ * @author dkatzel
+ *
+ * @since 6.0.3
+ */
+public interface VcfRecordVisitor extends VcfVisitor{
+	/**
+	 * Visit a single data line.  Parsers call this method
+	 * instead of {@link #visitData(VcfVisitorCallback, String, int, String, String, String, int, String, String, String, List)}.
+	 * 
+	 * @param callback the {@link VcfVisitorCallback}; will not be null.
+	 * @param record the {@link VcfRecord} which is only valid
+	 * during this method call; will not be null.
+	 */
+	void visitRecord(VcfVisitorCallback callback, VcfRecord record);
+	/**
+	 * Wraps the given fields as a {@link VcfRecord}
+	 * and calls {@link #visitRecord(VcfVisitorCallback, VcfRecord)}.
+	 */
+	@Override
+	default void visitData(VcfVisitorCallback callback, String chromId, int position, String id, String refBase,
+			String altBase, int quality, String filter, String info, String format, List<String> extraFields) {
+		StringBuilder builder = new StringBuilder(200);
+		builder.append(chromId).append('\t')
+				.append(position).append('\t')
+				.append(id).append('\t')
+				.append(refBase).append('\t')
+				.append(altBase).append('\t')
+				.append(quality).append('\t')
+				.append(filter).append('\t')
+				.append(info);
+		if(format !=null){
+			builder.append('\t').append(format);
+			if(extraFields !=null){
+				for(String extra : extraFields){
+					builder.append('\t').append(extra);
+				}
+			}
+		}
+		visitRecord(callback, new LazyVcfRecord(builder.toString()));
+	}
+}
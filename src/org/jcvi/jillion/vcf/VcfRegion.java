@@ -0,0 +1,102 @@
+package org.jcvi.jillion.vcf;
+
+import java.util.Objects;
+
+import org.jcvi.jillion.core.Range;
+/**
+ * A region of a single chromosome used 
+ * for VCF region queries.  All coordinates are 0-based
+ * with an exclusive end to match the tabix binning scheme.
+ * 
+ * @author dkatzel
+ *
+ * @since 6.0.3
+ */
+final class VcfRegion {
+
+	private static final String END_KEY = "END=";
+	
+	private final String chromId;
+	private final int begin;
+	private final int endExclusive;
+	
+	VcfRegion(String chromId, Range range) {
+		this.chromId = Objects.requireNonNull(chromId, "chromId can not be null");
+		Objects.requireNonNull(range, "range can not be null");
+		this.begin = (int) Math.max(0, range.getBegin());
+		this.endExclusive = (int) Math.min(Integer.MAX_VALUE, range.getEnd() +1);
+	}
+	
+	String getChromId() {
+		return chromId;
+	}
+
+	int getBegin() {
+		return begin;
+	}
+
+	int getEndExclusive() {
+		return endExclusive;
+	}
+	/**
+	 * Does the given variant overlap this region.
+	 * @param chromId the chromosome of the variant.
+	 * @param position the 1-based VCF position of the variant.
+	 * @param refBase the reference allele.
+	 * @param info the INFO column which may contain an END key.
+	 * @return {@code true} if it overlaps; {@code false} otherwise.
+	 */
+	boolean overlaps(String chromId, int position, String refBase, String info){
+		if(!this.chromId.equals(chromId)){
+			return false;
+		}
+		int variantBegin = position -1;
+		return variantBegin < endExclusive && computeEndExclusive(position, refBase, info) > begin;
+	}
+	/**
+	 * Does the given record overlap this region.
+	 * @param record the record to check.
+	 * @return {@code true} if it overlaps; {@code false} otherwise.
+	 */
+	boolean overlaps(VcfRecord record){
+		return overlaps(record.getChromId(), record.getPosition(), record.getRefBase(), record.getInfo());
+	}
+	/**
+	 * Compute the 0-based exclusive end coordinate of a variant
+	 * which is the end of the reference allele unless the INFO column
+	 * has an END key (used by structural variants and gVCF blocks).
+	 * @param position the 1-based VCF position of the variant.
+	 * @param refBase the reference allele.
+	 * @param info the INFO column; may be null.
+	 * @return the 0-based exclusive end; always greater than {@code position -1}.
+	 */
+	static int computeEndExclusive(int position, String refBase, String info){
+		int begin = position -1;
+		int end = begin + Math.max(1, refBase==null? 1: refBase.length());
+		if(info !=null){
+			int index = info.startsWith(END_KEY)? 0 : info.indexOf(";" + END_KEY);
+			if(index >=0){
+				int valueStart = index==0? END_KEY.length() : index + END_KEY.length() +1;
+				int valueEnd = info.indexOf(';', valueStart);
+				try{
+					int infoEnd = Integer.parseInt(info.substring(valueStart, valueEnd <0? info.length() : valueEnd));
+					if(infoEnd > begin){
+						end = infoEnd;
+					}
+				}catch(NumberFormatException e){
+					//ignore malformed END and use the reference allele
+				}
+			}
+		}
+		return end;
+	}
+	/**
+	 * Create a {@link VcfVisitor} that only passes variants
+	 * that overlap this region to the given visitor.
+	 * @param delegate the visitor to wrap.
+	 * @return a new {@link VcfVisitor}.
+	 */
+	VcfVisitor filter(VcfVisitor delegate){
+		return new FilteredVcfVisitor(delegate, this::overlaps);
+	}
+}
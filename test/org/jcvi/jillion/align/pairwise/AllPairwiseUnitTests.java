@@ -33,7 +33,10 @@ import org.junit.runners.Suite.SuiteClasses;
     	TestNucleotideNeedlemanWunschAligner.class,
     	TestProteinNeedlemanWunschAligner.class,
     	
-    	TestMultipleLocalAlignment.class
+    	TestMultipleLocalAlignment.class,
+    	
+    	TestBandedPairwiseAligner.class,
+    	TestDivideAndConquerPairwiseAligner.class
     }
     )
 public class AllPairwiseUnitTests {
@@ -0,0 +1,223 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.align.pairwise;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.jcvi.jillion.align.BlosumMatrices;
+import org.jcvi.jillion.core.Range;
+import org.jcvi.jillion.core.residue.aa.ProteinSequence;
+import org.jcvi.jillion.core.residue.aa.ProteinSequenceBuilder;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequence;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequenceBuilder;
+import org.junit.Test;
+
+public class TestBandedPairwiseAligner extends AbstractTestNucleotideAligner{
+
+	private final Random random = new Random(1234);
+	
+	private String randomString(int length, String alphabet){
+		StringBuilder builder = new StringBuilder(length);
+		for(int i=0; i< length; i++){
+			builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+		}
+		return builder.toString();
+	}
+	/**
+	 * Add a few substitutions and small indels.
+	 */
+	private String mutate(String seq, String alphabet){
+		StringBuilder builder = new StringBuilder(seq.length());
+		for(int i=0; i< seq.length(); i++){
+			int r = random.nextInt(100);
+			if(r < 3){
+				builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+			}else if(r <4){
+				//deletion
+				continue;
+			}else if(r <5){
+				builder.append(randomString(1 + random.nextInt(3), alphabet));
+				builder.append(seq.charAt(i));
+			}else{
+				builder.append(seq.charAt(i));
+			}
+		}
+		return builder.toString();
+	}
+	
+	private NucleotideSequence nuc(String s){
+		return new NucleotideSequenceBuilder(s).build();
+	}
+	
+	private void assertSameAsUnbanded(PairwiseAlignmentBuilder<?, ?, ?> builder, int expectedDiagonal, int bandWidth){
+		PairwiseSequenceAlignment<?,?> expected = builder.build();
+		PairwiseSequenceAlignment<?,?> actual = builder.expectedDiagonal(expectedDiagonal)
+													.bandWidth(bandWidth)
+													.build();
+		assertEquals(expected, actual);
+		assertEquals(expected.getScore(), actual.getScore(), 0F);
+	}
+	
+	@Test
+	public void bandCoveringWholeMatrixIsSameAsUnbanded(){
+		for(int i=0; i< 20; i++){
+			NucleotideSequence query = nuc(randomString(1+ random.nextInt(60), "ACGT"));
+			NucleotideSequence subject = nuc(randomString(1+ random.nextInt(60), "ACGTN"));
+			
+			assertSameAsUnbanded(PairwiseAlignmentBuilder.createNucleotideAlignmentBuilder(query, subject, matrix)
+														.gapPenalty(-2, -1)
+														.useLocalAlignment(), 0, 200);
+			assertSameAsUnbanded(PairwiseAlignmentBuilder.createNucleotideAlignmentBuilder(query, subject, matrix)
+														.gapPenalty(-2, -1)
+														.useGlobalAlignment(), 0, 200);
+		}
+	}
+	
+	@Test
+	public void narrowBandOnSimilarSequencesIsSameAsUnbanded(){
+		for(int i=0; i< 10; i++){
+			String seq = randomString(500, "ACGT");
+			NucleotideSequence query = nuc(seq);
+			NucleotideSequence subject = nuc(mutate(seq, "ACGT"));
+			
+			assertSameAsUnbanded(PairwiseAlignmentBuilder.createNucleotideAlignmentBuilder(query, subject, matrix)
+														.gapPenalty(-8, -1)
+														.useLocalAlignment(), 0, 40);
+			assertSameAsUnbanded(PairwiseAlignmentBuilder.createNucleotideAlignmentBuilder(query, subject, matrix)
+														.gapPenalty(-8, -1)
+														.useGlobalAlignment(), 0, 40);
+		}
+	}
+	
+	@Test
+	public void sameAsUnbandedWithoutExtensionPenalty(){
+		String seq = randomString(300, "ACGT");
+		NucleotideSequence query = nuc(seq);
+		NucleotideSequence subject = nuc(mutate(seq, "ACGT"));
+		assertSameAsUnbanded(PairwiseAlignmentBuilder.createNucleotideAlignmentBuilder(query, subject, matrix)
+															.gapPenalty(-2)
+															.useLocalAlignment(), 0, 30);
+		assertSameAsUnbanded(PairwiseAlignmentBuilder.createNucleotideAlignmentBuilder(query, subject, matrix)
+															.gapPenalty(-2)
+															.useGlobalAlignment(), 0, 30);
+	}
+	
+	@Test
+	public void expectedDiagonalFindsQueryInsideLongerSubject(){
+		String read = randomString(200, "ACGT");
+		String subjectString = randomString(3000, "ACGT") + mutate(read, "ACGT") + randomString(2000, "ACGT");
+		NucleotideSequence query = nuc(read);
+		NucleotideSequence subject = nuc(subjectString);
+		
+		assertSameAsUnbanded(PairwiseAlignmentBuilder.createNucleotideAlignmentBuilder(query, subject, matrix)
+				.gapPenalty(-8, -1)
+				.useLocalAlignment(), 3000, 20);
+		
+		NucleotidePairwiseSequenceAlignment actual = PairwiseAlignmentBuilder.createNucleotideAlignmentBuilder(query, subject, matrix)
+				.gapPenalty(-8, -1)
+				.expectedDiagonal(3000)
+				.bandWidth(20)
+				.build();
+		assertTrue(actual.getSubjectRange().getBegin() >= 2980);
+	}
+	
+	@Test
+	public void negativeExpectedDiagonal(){
+		String subjectString = randomString(300, "ACGT");
+		NucleotideSequence query = nuc(randomString(500, "ACGT") + mutate(subjectString, "ACGT"));
+		NucleotideSequence subject = nuc(subjectString);
+		
+		assertSameAsUnbanded(PairwiseAlignmentBuilder.createNucleotideAlignmentBuilder(query, subject, matrix)
+				.gapPenalty(-8, -1)
+				.useLocalAlignment(), -500, 20);
+	}
+	
+	@Test
+	public void globalAlignmentOfDifferentLengthsWidensBand(){
+		String seq = randomString(400, "ACGT");
+		NucleotideSequence query = nuc(seq);
+		NucleotideSequence subject = nuc(seq.substring(0, 150) + seq.substring(200));
+		
+		NucleotidePairwiseSequenceAlignment actual = PairwiseAlignmentBuilder.createNucleotideAlignmentBuilder(query, subject, matrix)
+				.gapPenalty(-8, -1)
+				.useGlobalAlignment()
+				.bandWidth(0)
+				.build();
+		assertEquals(Range.ofLength(400), actual.getQueryRange().asRange());
+		assertEquals(Range.ofLength(350), actual.getSubjectRange().asRange());
+		assertSameAsUnbanded(PairwiseAlignmentBuilder.createNucleotideAlignmentBuilder(query, subject, matrix)
+				.gapPenalty(-8, -1)
+				.useGlobalAlignment(), 0, 0);
+	}
+	
+	@Test
+	public void subjectShift(){
+		String seq = randomString(100, "ACGT");
+		NucleotideSequence query = nuc(seq);
+		NucleotideSequence subject = nuc(mutate(seq, "ACGT"));
+		assertSameAsUnbanded(PairwiseAlignmentBuilder.createNucleotideAlignmentBuilder(query, subject, matrix)
+				.gapPenalty(-8, -1)
+				.subjectShift(50), 0, 10);
+	}
+	
+	@Test
+	public void protein(){
+		String alphabet = "ACDEFGHIKLMNPQRSTVWY";
+		for(int i=0; i< 5; i++){
+			String seq = randomString(300, alphabet);
+			ProteinSequence query = new ProteinSequenceBuilder(seq).build();
+			ProteinSequence subject = new ProteinSequenceBuilder(mutate(seq, alphabet)).build();
+			
+			assertSameAsUnbanded(PairwiseAlignmentBuilder.createProteinAlignmentBuilder(query, subject, BlosumMatrices.blosum62())
+					.gapPenalty(-11, -1)
+					.useLocalAlignment(), 0, 30);
+			assertSameAsUnbanded(PairwiseAlignmentBuilder.createProteinAlignmentBuilder(query, subject, BlosumMatrices.blosum62())
+					.gapPenalty(-11, -1)
+					.useGlobalAlignment(), 0, 30);
+		}
+	}
+	
+	@Test
+	public void longSequencesOnlyUseBandedMemory(){
+		//a full matrix for these would need over 600MB of traceback
+		String seq = randomString(50_000, "ACGT");
+		NucleotideSequence query = nuc(seq);
+		NucleotideSequence subject = nuc(mutate(seq, "ACGT"));
+		
+		NucleotidePairwiseSequenceAlignment actual = PairwiseAlignmentBuilder.createNucleotideAlignmentBuilder(query, subject, matrix)
+				.gapPenalty(-8, -1)
+				.useGlobalAlignment()
+				.bandWidth(100)
+				.build();
+		assertEquals(Range.ofLength(50_000), actual.getQueryRange().asRange());
+		assertEquals(Range.ofLength(subject.getLength()), actual.getSubjectRange().asRange());
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void negativeBandWidthShouldThrowIllegalArgumentException(){
+		NucleotideSequence seq = nuc("ACGT");
+		PairwiseAlignmentBuilder.createNucleotideAlignmentBuilder(seq, seq, matrix)
+								.bandWidth(-1);
+	}
+}
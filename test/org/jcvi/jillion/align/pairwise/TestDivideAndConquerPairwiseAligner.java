@@ -0,0 +1,170 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.align.pairwise;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.jcvi.jillion.align.BlosumMatrices;
+import org.jcvi.jillion.core.residue.aa.ProteinSequence;
+import org.jcvi.jillion.core.residue.aa.ProteinSequenceBuilder;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequence;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequenceBuilder;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class TestDivideAndConquerPairwiseAligner extends AbstractTestNucleotideAligner{
+
+	private static ForkJoinPool pool;
+	
+	private final Random random = new Random(5678);
+	
+	@BeforeClass
+	public static void createPool(){
+		pool = new ForkJoinPool(4);
+	}
+	
+	@AfterClass
+	public static void shutdownPool(){
+		pool.shutdown();
+	}
+	
+	private String randomString(int length, String alphabet){
+		StringBuilder builder = new StringBuilder(length);
+		for(int i=0; i< length; i++){
+			builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+		}
+		return builder.toString();
+	}
+	
+	private String mutate(String seq, String alphabet){
+		StringBuilder builder = new StringBuilder(seq.length());
+		for(int i=0; i< seq.length(); i++){
+			int r = random.nextInt(100);
+			if(r < 5){
+				builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+			}else if(r <7){
+				continue;
+			}else if(r <9){
+				builder.append(randomString(1 + random.nextInt(5), alphabet));
+				builder.append(seq.charAt(i));
+			}else{
+				builder.append(seq.charAt(i));
+			}
+		}
+		return builder.toString();
+	}
+	
+	private NucleotideSequence nuc(String s){
+		return new NucleotideSequenceBuilder(s).build();
+	}
+	
+	private void assertNucleotideSameAsFullMatrix(NucleotideSequence query, NucleotideSequence subject, float open, float extend, boolean local){
+		NucleotidePairwiseSequenceAlignment expected = local ? NucleotideSmithWatermanAligner.align(query, subject, matrix, open, extend)
+															: NucleotideNeedlemanWunschAligner.align(query, subject, matrix, open, extend);
+		for(long blockSize : new long[]{1, 16, 300, Long.MAX_VALUE}){
+			for(ForkJoinPool p : new ForkJoinPool[]{null, pool}){
+				NucleotidePairwiseSequenceAlignment actual = DivideAndConquerPairwiseAligner.align(query, subject, matrix, open, extend, local, p, 
+						ResiduePairwiseStrategy.getNucleotideStrategy(), null, blockSize);
+				assertEquals(expected, actual);
+				assertEquals(expected.getScore(), actual.getScore(), 0F);
+			}
+		}
+	}
+	
+	@Test
+	public void randomSequences(){
+		for(int i=0; i< 20; i++){
+			NucleotideSequence query = nuc(randomString(1+ random.nextInt(80), "ACGT"));
+			NucleotideSequence subject = nuc(randomString(1+ random.nextInt(80), "ACGTN"));
+			assertNucleotideSameAsFullMatrix(query, subject, -2, -1, true);
+			assertNucleotideSameAsFullMatrix(query, subject, -2, -1, false);
+			assertNucleotideSameAsFullMatrix(query, subject, -2, 0, false);
+		}
+	}
+	
+	@Test
+	public void similarSequences(){
+		for(int i=0; i< 10; i++){
+			String seq = randomString(400, "ACGT");
+			NucleotideSequence query = nuc(seq);
+			NucleotideSequence subject = nuc(mutate(seq, "ACGT"));
+			assertNucleotideSameAsFullMatrix(query, subject, -8, -1, true);
+			assertNucleotideSameAsFullMatrix(query, subject, -8, -1, false);
+		}
+	}
+	
+	@Test
+	public void queryInsideSubject(){
+		String read = randomString(150, "ACGT");
+		NucleotideSequence query = nuc(read);
+		NucleotideSequence subject = nuc(randomString(300, "ACGT") + mutate(read, "ACGT") + randomString(200, "ACGT"));
+		assertNucleotideSameAsFullMatrix(query, subject, -8, -1, true);
+		assertNucleotideSameAsFullMatrix(query, subject, -8, -1, false);
+		assertNucleotideSameAsFullMatrix(subject, query, -8, -1, false);
+	}
+	
+	@Test
+	public void singleBases(){
+		assertNucleotideSameAsFullMatrix(nuc("A"), nuc("A"), -2, -1, true);
+		assertNucleotideSameAsFullMatrix(nuc("A"), nuc("C"), -2, -1, false);
+		assertNucleotideSameAsFullMatrix(nuc("A"), nuc("ACGTACGT"), -2, -1, false);
+		assertNucleotideSameAsFullMatrix(nuc("ACGTACGT"), nuc("T"), -2, -1, false);
+	}
+	
+	@Test
+	public void protein(){
+		String alphabet = "ACDEFGHIKLMNPQRSTVWY";
+		for(int i=0; i< 5; i++){
+			String seq = randomString(200, alphabet);
+			ProteinSequence query = new ProteinSequenceBuilder(seq).build();
+			ProteinSequence subject = new ProteinSequenceBuilder(mutate(seq, alphabet)).build();
+			for(boolean local : new boolean[]{true, false}){
+				PairwiseAlignmentBuilder<?,?,?> builder = PairwiseAlignmentBuilder.createProteinAlignmentBuilder(query, subject, BlosumMatrices.blosum62())
+																					.gapPenalty(-11, -1)
+																					.useLocalAlignment(local);
+				PairwiseSequenceAlignment<?,?> expected = builder.build();
+				
+				assertEquals(expected, builder.lowMemory(true).build());
+				assertEquals(expected, builder.lowMemory(pool).build());
+				assertEquals(expected, DivideAndConquerPairwiseAligner.align(query, subject, BlosumMatrices.blosum62(), -11, -1, local, pool, 
+											ResiduePairwiseStrategy.getAminoAcidStrategy(), null, 100));
+			}
+		}
+	}
+	
+	@Test
+	public void builderWithSubjectShift(){
+		String seq = randomString(300, "ACGT");
+		NucleotideSequence query = nuc(seq);
+		NucleotideSequence subject = nuc(mutate(seq, "ACGT"));
+		PairwiseAlignmentBuilder<?,?,?> builder = PairwiseAlignmentBuilder.createNucleotideAlignmentBuilder(query, subject, matrix)
+				.gapPenalty(-8, -1)
+				.useGlobalAlignment()
+				.subjectShift(100);
+		PairwiseSequenceAlignment<?,?> expected = builder.build();
+		assertEquals(expected, builder.lowMemory(true).build());
+		assertEquals(expected, builder.lowMemory(pool).build());
+	}
+}
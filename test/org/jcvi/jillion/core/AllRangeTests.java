@@ -29,6 +29,7 @@ import org.junit.runners.Suite.SuiteClasses;
     {
     	 TestRange.class,
     	 TestRangeWithEdgeCases.class,
+    	 TestRangeCache.class,
     	 
     	 
     	 TestByteRange.class,
@@ -0,0 +1,154 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+public class TestRangeCache {
+
+	private static Range create(long begin, long end){
+		return new Range.Builder(begin, end).buildWithoutCache();
+	}
+	
+	@Test
+	public void secondLookupIsCacheHit(){
+		RangeCache sut = new RangeCache(16);
+		Range r1 = sut.get(10, 20, TestRangeCache::create);
+		Range r2 = sut.get(10, 20, TestRangeCache::create);
+		
+		assertSame(r1, r2);
+		assertEquals(1, sut.getHitCount());
+		assertEquals(1, sut.getMissCount());
+		
+		sut.resetCounts();
+		assertEquals(0, sut.getHitCount());
+		assertEquals(0, sut.getMissCount());
+	}
+	
+	@Test
+	public void emptyAndNonEmptyRangesAreNotConfused(){
+		RangeCache sut = new RangeCache(16);
+		Range empty = sut.get(10, 9, TestRangeCache::create);
+		Range nonEmpty = sut.get(10, 10, TestRangeCache::create);
+		
+		assertEquals(0, empty.getLength());
+		assertEquals(1, nonEmpty.getLength());
+		assertSame(empty, sut.get(10, 9, TestRangeCache::create));
+	}
+	
+	@Test
+	public void sizeIsBoundedSoCollisionsReplaceOldValues(){
+		RangeCache sut = new RangeCache(1);
+		Range r1 = sut.get(10, 20, TestRangeCache::create);
+		Range r2 = sut.get(30, 40, TestRangeCache::create);
+		
+		assertEquals(Range.of(30,40), r2);
+		Range r3 = sut.get(10, 20, TestRangeCache::create);
+		assertEquals(r1, r3);
+		assertNotSame(r1, r3);
+		assertEquals(0, sut.getHitCount());
+	}
+	
+	@Test
+	public void sizeOfZeroDisablesCache(){
+		RangeCache sut = new RangeCache(0);
+		Range r1 = sut.get(10, 20, TestRangeCache::create);
+		Range r2 = sut.get(10, 20, TestRangeCache::create);
+		
+		assertEquals(r1, r2);
+		assertNotSame(r1, r2);
+		assertEquals(2, sut.getMissCount());
+		assertNull(sut.remove(r1));
+	}
+	
+	@Test
+	public void remove(){
+		RangeCache sut = new RangeCache(16);
+		Range r1 = sut.get(-10, 20, TestRangeCache::create);
+		
+		assertSame(r1, sut.remove(Range.of(-10, 20)));
+		assertNull(sut.remove(r1));
+		assertNotSame(r1, sut.get(-10, 20, TestRangeCache::create));
+	}
+	
+	@Test
+	public void buildWithoutCacheAlwaysReturnsNewInstance(){
+		Range cached = Range.of(1234, 5678);
+		Range uncached = new Range.Builder(1234, 5678).buildWithoutCache();
+		
+		assertEquals(cached, uncached);
+		assertNotSame(cached, uncached);
+		assertSame(cached, Range.of(1234, 5678));
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void buildWithoutCacheInvalidLengthShouldThrowIllegalArgumentException(){
+		new Range.Builder(10, 5).buildWithoutCache();
+	}
+	
+	@Test
+	public void rangeCacheStatisticsAreUpdated(){
+		Range.of(98765, 99999);
+		long hits = Range.getCacheHitCount();
+		Range.of(98765, 99999);
+		
+		assertTrue(Range.getCacheHitCount() > hits);
+	}
+	
+	@Test
+	public void concurrentLookupsAlwaysReturnCorrectRanges() throws Exception{
+		RangeCache sut = new RangeCache(64);
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try{
+			List<Future<?>> futures = new ArrayList<>();
+			for(int t=0; t< 8; t++){
+				int offset = t;
+				futures.add(executor.submit(()->{
+					for(int i=0; i< 100_000; i++){
+						long begin = (i + offset) % 500;
+						long end = begin + i % 7 -1;
+						Range r = sut.get(begin, end, TestRangeCache::create);
+						assertEquals(begin, r.getBegin());
+						assertEquals(end, r.getEnd());
+					}
+				}));
+			}
+			for(Future<?> f : futures){
+				f.get();
+			}
+		}finally{
+			executor.shutdownNow();
+		}
+		assertEquals(800_000, sut.getHitCount() + sut.getMissCount());
+	}
+}
@@ -43,7 +43,10 @@ import org.junit.runners.Suite.SuiteClasses;
      TestCachedDataStore.class,
      TestMapDataStoreAdapter.class,
      TestMapDataStoreAdapterProxy.class,
-     TestChainedDataStore.class
+     TestChainedDataStore.class,
+     TestSidecarIndex.class,
+     TestDataStoreAdapters.class,
+     TestParallelDataStoreMapper.class
      
     }
     )
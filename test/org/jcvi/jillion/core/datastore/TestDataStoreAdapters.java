@@ -0,0 +1,184 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.core.datastore;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.jcvi.jillion.core.Range;
+import org.jcvi.jillion.core.qual.QualitySequenceDataStore;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequence;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequenceBuilder;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequenceDataStore;
+import org.jcvi.jillion.core.datastore.DataStoreUtil.CacheableDataStore;
+import org.jcvi.jillion.fasta.nt.NucleotideFastaDataStore;
+import org.jcvi.jillion.fasta.nt.NucleotideFastaRecord;
+import org.jcvi.jillion.fasta.nt.NucleotideFastaRecordBuilder;
+import org.jcvi.jillion.trace.fastq.FastqDataStore;
+import org.jcvi.jillion.trace.sff.SffFileDataStore;
+import org.junit.Test;
+
+public class TestDataStoreAdapters {
+
+	private final NucleotideSequence seq1 = new NucleotideSequenceBuilder("ACGTACGT").build();
+	private final NucleotideSequence seq2 = new NucleotideSequenceBuilder("AAAACCCCGGGGTTTT").build();
+	
+	private Map<String, NucleotideFastaRecord> createFastaMap(){
+		Map<String, NucleotideFastaRecord> map = new LinkedHashMap<>();
+		map.put("read1", new NucleotideFastaRecordBuilder("read1", seq1).build());
+		map.put("read2", new NucleotideFastaRecordBuilder("read2", seq2).build());
+		return map;
+	}
+	
+	@Test
+	public void standardInterfacesAreNotProxies() throws DataStoreException{
+		NucleotideFastaDataStore sut = DataStore.of(createFastaMap(), NucleotideFastaDataStore.class);
+		assertFalse(Proxy.isProxyClass(sut.getClass()));
+		assertEquals(2, sut.getNumberOfRecords());
+		assertEquals(seq2, sut.get("read2").getSequence());
+		//default method of the sub interface works on a map backed datastore
+		assertEquals(seq1, sut.getSequence("read1"));
+	}
+	
+	@Test
+	public void adaptWithCallbackIsNotAProxy() throws DataStoreException{
+		NucleotideFastaDataStore fasta = DataStore.of(createFastaMap(), NucleotideFastaDataStore.class);
+		NucleotideSequenceDataStore sut = DataStore.adapt(NucleotideSequenceDataStore.class, fasta, NucleotideFastaRecord::getSequence);
+		assertFalse(Proxy.isProxyClass(sut.getClass()));
+		assertEquals(seq1, sut.get("read1"));
+		assertNull(sut.get("notInDataStore"));
+	}
+	
+	@Test
+	public void unknownInterfacesStillUseProxy() throws DataStoreException{
+		Map<String, Long> map = new LinkedHashMap<>();
+		map.put("id", 1L);
+		LongDataStore sut = DataStore.of(map, LongDataStore.class);
+		assertTrue(Proxy.isProxyClass(sut.getClass()));
+		assertEquals(Long.valueOf(1), sut.get("id"));
+	}
+	
+	@Test
+	public void cachedStandardInterfaceCountsHitsAndMisses() throws DataStoreException{
+		NucleotideSequenceDataStore delegate = createMock(NucleotideSequenceDataStore.class);
+		expect(delegate.get("read1")).andReturn(seq1);
+		expect(delegate.get("read2")).andReturn(null);
+		replay(delegate);
+		NucleotideSequenceDataStore sut = DataStore.cache(NucleotideSequenceDataStore.class, delegate, 10);
+		assertFalse(Proxy.isProxyClass(sut.getClass()));
+		assertTrue(DataStoreUtil.isACachedDataStore(sut));
+		
+		assertSame(seq1, sut.get("read1"));
+		assertSame(seq1, sut.get("read1"));
+		assertNull(sut.get("read2"));
+		
+		CacheableDataStore<?> cached = (CacheableDataStore<?>) sut;
+		assertEquals(1, cached.getCacheHitCount());
+		assertEquals(2, cached.getCacheMissCount());
+		verify(delegate);
+	}
+	
+	@Test
+	public void cachedProxyCountsHitsAndMisses() throws DataStoreException{
+		LongDataStore delegate = createMock(LongDataStore.class);
+		expect(delegate.get("id")).andReturn(1L);
+		replay(delegate);
+		LongDataStore sut = DataStore.cache(LongDataStore.class, delegate, 10);
+		assertTrue(Proxy.isProxyClass(sut.getClass()));
+		
+		assertEquals(Long.valueOf(1), sut.get("id"));
+		assertEquals(Long.valueOf(1), sut.get("id"));
+		
+		CacheableDataStore<?> cached = (CacheableDataStore<?>) sut;
+		assertEquals(1, cached.getCacheHitCount());
+		assertEquals(1, cached.getCacheMissCount());
+		verify(delegate);
+	}
+	
+	@Test
+	public void extensionMethodsAreForwardedToDelegate(){
+		SffFileDataStore delegate = createMock(SffFileDataStore.class);
+		expect(delegate.getKeySequence()).andReturn(seq1);
+		replay(delegate);
+		SffFileDataStore sut = DataStore.cache(SffFileDataStore.class, delegate, 10);
+		assertSame(seq1, sut.getKeySequence());
+		verify(delegate);
+	}
+	
+	@Test
+	public void defaultMethodsOverriddenByDelegateAreForwarded() throws DataStoreException{
+		NucleotideFastaDataStore delegate = createMock(NucleotideFastaDataStore.class);
+		NucleotideSequenceDataStore sequences = createMock(NucleotideSequenceDataStore.class);
+		Range range = Range.of(2,5);
+		expect(delegate.getSequence("read1")).andReturn(seq1);
+		expect(delegate.getSubSequence("read2", range)).andReturn(seq1);
+		expect(delegate.getSubSequence("read2", 4L)).andReturn(seq2);
+		expect(delegate.asSequenceDataStore()).andReturn(sequences);
+		replay(delegate, sequences);
+		
+		NucleotideFastaDataStore sut = DataStore.cache(NucleotideFastaDataStore.class, delegate, 10);
+		assertSame(seq1, sut.getSequence("read1"));
+		assertSame(seq1, sut.getSubSequence("read2", range));
+		assertSame(seq2, sut.getSubSequence("read2", 4L));
+		assertSame(sequences, sut.asSequenceDataStore());
+		verify(delegate, sequences);
+	}
+	
+	@Test
+	public void traceDefaultMethodsOverriddenByDelegateAreForwarded(){
+		FastqDataStore delegate = createMock(FastqDataStore.class);
+		QualitySequenceDataStore qualities = createMock(QualitySequenceDataStore.class);
+		expect(delegate.asQualityDataStore()).andReturn(qualities);
+		replay(delegate, qualities);
+		
+		FastqDataStore sut = DataStore.cache(FastqDataStore.class, delegate, 10);
+		assertSame(qualities, sut.asQualityDataStore());
+		verify(delegate, qualities);
+	}
+	
+	@Test
+	public void defaultMethodsUseInterfaceDefaultIfDelegateIsNotOfThatType() throws DataStoreException{
+		NucleotideFastaDataStore sut = DataStore.of(createFastaMap(), NucleotideFastaDataStore.class);
+		assertEquals(new NucleotideSequenceBuilder("AACCCC").build(), sut.getSubSequence("read2", Range.of(2,7)));
+		assertEquals(seq2, sut.asSequenceDataStore().get("read2"));
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void extensionMethodNotImplementedByDelegateShouldThrowIllegalArgumentException(){
+		SffFileDataStore sut = DataStore.of(new LinkedHashMap<>(), SffFileDataStore.class);
+		sut.getFlowSequence();
+	}
+	
+	interface LongDataStore extends DataStore<Long>{
+		
+	}
+}
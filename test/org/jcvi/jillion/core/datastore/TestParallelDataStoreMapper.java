@@ -0,0 +1,86 @@
+/*******************************************************************************
+ * Jillion development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ *
+ *          http://www.gnu.org/copyleft/lesser.html
+ *
+ *
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ *
+ * Information about Jillion can be found on its homepage
+ *
+ *         http://jillion.sourceforge.net
+ *
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.core.datastore;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jcvi.jillion.internal.core.datastore.ParallelDataStoreMapper;
+import org.junit.Test;
+
+public class TestParallelDataStoreMapper {
+
+	private static DataStore<Integer> createDataStore(int numberOfRecords){
+		Map<String, Integer> map = new LinkedHashMap<>();
+		for(int i=0; i< numberOfRecords; i++){
+			map.put("id" + i, i);
+		}
+		return DataStore.of(map);
+	}
+	
+	@Test
+	public void resultsAreHandedOffInIterationOrder() throws DataStoreException{
+		int numberOfRecords = 10_000;
+		List<Integer> actual = new ArrayList<>(numberOfRecords);
+		ParallelDataStoreMapper.map(createDataStore(numberOfRecords), 4, i -> i *2, actual::add);
+		
+		assertEquals(numberOfRecords, actual.size());
+		for(int i=0; i< numberOfRecords; i++){
+			assertEquals(i *2, actual.get(i).intValue());
+		}
+	}
+	
+	@Test
+	public void emptyDataStoreMapsNothing() throws DataStoreException{
+		List<Integer> actual = new ArrayList<>();
+		ParallelDataStoreMapper.map(createDataStore(0), 2, i -> i, actual::add);
+		assertTrue(actual.isEmpty());
+	}
+	
+	@Test
+	public void mapperExceptionIsRethrown() throws DataStoreException{
+		AtomicInteger consumed = new AtomicInteger();
+		try{
+			ParallelDataStoreMapper.map(createDataStore(1000), 2, i -> {
+				if(i == 500){
+					throw new IllegalStateException("bad record");
+				}
+				return i;
+			}, i -> consumed.incrementAndGet());
+			throw new AssertionError("should throw IllegalStateException");
+		}catch(IllegalStateException expected){
+			assertEquals("bad record", expected.getMessage());
+		}
+		//everything before the bad record's batch was still handed off
+		assertTrue(consumed.get() <= 500);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void zeroThreadsShouldThrowIllegalArgumentException() throws DataStoreException{
+		ParallelDataStoreMapper.map(createDataStore(10), 0, i -> i, i -> {});
+	}
+}
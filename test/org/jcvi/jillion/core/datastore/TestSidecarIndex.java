@@ -0,0 +1,172 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.core.datastore;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Consumer;
+
+import org.jcvi.jillion.internal.core.datastore.SidecarIndex;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestSidecarIndex {
+
+	@Rule
+	public TemporaryFolder tmpDir = new TemporaryFolder();
+	
+	private File dataFile;
+	private Map<String, Long> expected;
+	
+	@Before
+	public void setup() throws IOException{
+		dataFile = tmpDir.newFile("data.txt");
+		Files.write(dataFile.toPath(), "some data to index".getBytes(StandardCharsets.UTF_8));
+		
+		Random random = new Random(1234);
+		expected = new LinkedHashMap<>();
+		for(int i=0; i< 5_000; i++){
+			expected.put("read_" + random.nextInt(1_000_000) + (i%7==0 ? "é中" : ""), Long.valueOf(random.nextInt(Integer.MAX_VALUE) * 3L));
+		}
+		expected.put("", 12L);
+	}
+	
+	private Map<String, Long> read(String format) throws IOException{
+		return SidecarIndex.read(dataFile, format, Long::valueOf);
+	}
+	
+	@Test
+	public void noIndexFileReturnsNull() throws IOException{
+		assertNull(read("test"));
+	}
+	
+	@Test
+	public void roundTrip() throws IOException{
+		assertTrue(SidecarIndex.write(dataFile, "test", expected, Long::longValue));
+		assertTrue(SidecarIndex.getIndexFileFor(dataFile).exists());
+		
+		Map<String, Long> actual = read("test");
+		assertEquals(expected.size(), actual.size());
+		for(Map.Entry<String, Long> entry : expected.entrySet()){
+			assertTrue(actual.containsKey(entry.getKey()));
+			assertEquals(entry.getValue(), actual.get(entry.getKey()));
+		}
+		assertFalse(actual.containsKey("not an id"));
+		assertNull(actual.get("not an id"));
+		assertNull(actual.get(Integer.valueOf(5)));
+		//same insertion order
+		assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(actual.keySet()));
+		assertEquals(expected, actual);
+	}
+	
+	@Test
+	public void emptyIndex() throws IOException{
+		assertTrue(SidecarIndex.write(dataFile, "test", new LinkedHashMap<String, Long>(), Long::longValue));
+		Map<String, Long> actual = read("test");
+		assertTrue(actual.isEmpty());
+		assertNull(actual.get("id"));
+	}
+	
+	@Test
+	public void differentFormatNameIsIgnored() throws IOException{
+		SidecarIndex.write(dataFile, "test", expected, Long::longValue);
+		assertNull(read("other"));
+	}
+	
+	@Test
+	public void changedDataFileIsIgnored() throws IOException{
+		SidecarIndex.write(dataFile, "test", expected, Long::longValue);
+		long lastModified = dataFile.lastModified();
+		Files.write(dataFile.toPath(), "Some data to index".getBytes(StandardCharsets.UTF_8));
+		//same length and time but different content
+		dataFile.setLastModified(lastModified);
+		
+		assertNull(read("test"));
+	}
+	
+	@Test
+	public void truncatedIndexIsIgnored() throws IOException{
+		SidecarIndex.write(dataFile, "test", expected, Long::longValue);
+		File indexFile = SidecarIndex.getIndexFileFor(dataFile);
+		byte[] bytes = Files.readAllBytes(indexFile.toPath());
+		Files.write(indexFile.toPath(), Arrays.copyOf(bytes, bytes.length -20));
+		
+		assertNull(read("test"));
+	}
+	
+	@Test
+	public void negativeFormatNameLengthIsIgnored() throws IOException{
+		assertNull(readCorrupted(buf-> buf.putInt(12, -5)));
+	}
+	
+	@Test
+	public void formatNameLongerThanFileIsIgnored() throws IOException{
+		assertNull(readCorrupted(buf-> buf.putInt(12, Integer.MAX_VALUE)));
+	}
+	
+	@Test
+	public void corruptIdEndIsIgnored() throws IOException{
+		int n = expected.size();
+		//header with the padded "test" format name, then the values, then the id ends
+		int lastIdEndOffset = 16 + 8 + 40 + 8*n + 8*(n-1);
+		assertNull(readCorrupted(buf-> buf.putLong(lastIdEndOffset, 3)));
+	}
+	
+	private Map<String, Long> readCorrupted(Consumer<ByteBuffer> corruption) throws IOException{
+		SidecarIndex.write(dataFile, "test", expected, Long::longValue);
+		File indexFile = SidecarIndex.getIndexFileFor(dataFile);
+		byte[] bytes = Files.readAllBytes(indexFile.toPath());
+		corruption.accept(ByteBuffer.wrap(bytes));
+		Files.write(indexFile.toPath(), bytes);
+		
+		return read("test");
+	}
+	
+	@Test
+	public void valuesThatCanNotBeEncodedDoNotWriteIndex() throws IOException{
+		assertFalse(SidecarIndex.write(dataFile, "test", expected, v-> -1L));
+		assertFalse(SidecarIndex.getIndexFileFor(dataFile).exists());
+	}
+	
+	@Test
+	public void clearReleasesIndex() throws IOException{
+		SidecarIndex.write(dataFile, "test", expected, Long::longValue);
+		Map<String, Long> actual = read("test");
+		actual.clear();
+		assertTrue(actual.isEmpty());
+		assertFalse(actual.keySet().iterator().hasNext());
+	}
+}
@@ -51,6 +51,7 @@ import org.junit.runners.Suite.SuiteClasses;
         TestMagicNumberInputStream.class,
         TestOpenAwareInputStream.class,
         TestRandomAccessFileInputStream.class,
+        TestMemoryMappedFile.class,
         
         TestInputStreamSupplierForFile.class,
         TestInputStreamSupplierWithEmptyFile.class,
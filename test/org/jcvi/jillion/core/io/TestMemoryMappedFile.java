@@ -0,0 +1,102 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.core.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.jcvi.jillion.internal.core.io.MemoryMappedFile;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestMemoryMappedFile {
+
+	@Rule
+	public TemporaryFolder tmpDir = new TemporaryFolder();
+	
+	private byte[] data;
+	private File file;
+	
+	@Before
+	public void writeFile() throws IOException{
+		data = new byte[1000];
+		for(int i=0; i< data.length; i++){
+			data[i] = (byte) i;
+		}
+		file = tmpDir.newFile();
+		Files.write(file.toPath(), data);
+	}
+	
+	private static byte[] toArray(ByteBuffer buf){
+		byte[] array = new byte[buf.remaining()];
+		buf.get(array);
+		return array;
+	}
+	
+	@Test
+	public void singleSegment() throws IOException{
+		MemoryMappedFile sut = MemoryMappedFile.map(file);
+		assertEquals(data.length, sut.length());
+		assertArrayEquals(data, toArray(sut.slice(0, data.length)));
+		assertArrayEquals(Arrays.copyOfRange(data, 123, 456), toArray(sut.slice(123, 333)));
+	}
+	
+	@Test
+	public void smallSlicesNeverCopiedEvenIfTheyCrossSegmentStart() throws IOException{
+		MemoryMappedFile sut = MemoryMappedFile.map(file, 100, 10);
+		ByteBuffer slice = sut.slice(95, 10);
+		assertTrue(slice.isDirect());
+		assertArrayEquals(Arrays.copyOfRange(data, 95, 105), toArray(slice));
+	}
+	
+	@Test
+	public void everySliceAcrossManySegments() throws IOException{
+		MemoryMappedFile sut = MemoryMappedFile.map(file, 64, 8);
+		for(int start=0; start< data.length; start+=7){
+			for(int length : new int[]{0, 1, 8, 9, 65, 300}){
+				if(start + length <= data.length){
+					assertArrayEquals(start + " " + length, Arrays.copyOfRange(data, start, start+length), toArray(sut.slice(start, length)));
+				}
+			}
+		}
+	}
+	
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void sliceBeyondEndShouldThrowException() throws IOException{
+		MemoryMappedFile.map(file).slice(990, 11);
+	}
+	
+	@Test
+	public void emptyFile() throws IOException{
+		MemoryMappedFile sut = MemoryMappedFile.map(tmpDir.newFile());
+		assertEquals(0, sut.length());
+		assertEquals(0, sut.slice(0, 0).remaining());
+	}
+}
@@ -47,7 +47,8 @@ import org.junit.runners.Suite.SuiteClasses;
         TestIupacTranslationTableAmbiguity.class,
         TestVariantProteinSequence.class,
         TestIupacTranslationTableUracil.class,
-        TestVariantRNA.class
+        TestVariantRNA.class,
+        TestSixFrameTranslation.class
     }
     )
 public class AllAminoAcidUnitTests {
@@ -0,0 +1,134 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.core.residue.aa;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+
+import org.jcvi.jillion.core.Range;
+import org.jcvi.jillion.core.residue.Frame;
+import org.jcvi.jillion.core.residue.nt.Nucleotide;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequence;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequenceBuilder;
+import org.junit.Test;
+
+public class TestSixFrameTranslation {
+
+	private static final NucleotideSequence SEQ = NucleotideSequence.of(
+			"ATGCAATGGGGAAATGTTACCAGGTCCGAACTTATTGAGGTAAGACAGATTTAACTNRATGYTAGKKWTAA");
+	/**
+	 * Every triplet of non-gap DNA bases one after another.
+	 */
+	private static NucleotideSequence allTriplets(){
+		NucleotideSequenceBuilder builder = new NucleotideSequenceBuilder();
+		for(Nucleotide first : Nucleotide.getDnaValues()){
+			for(Nucleotide second : Nucleotide.getDnaValues()){
+				for(Nucleotide third : Nucleotide.getDnaValues()){
+					if(!first.isGap() && !second.isGap() && !third.isGap()){
+						builder.append(first).append(second).append(third);
+					}
+				}
+			}
+		}
+		return builder.build();
+	}
+	/**
+	 * A trailing gap makes the translation use the Triplet lookup
+	 * instead of the packed ordinal lookup without changing any codons.
+	 */
+	private static ProteinSequence translateUsingTriplets(TranslationTable table, NucleotideSequence seq, Frame frame){
+		return table.translate(seq.toBuilder().append(Nucleotide.Gap).build(), frame);
+	}
+	
+	@Test
+	public void codonLookupSameAsTripletLookupForAllTables(){
+		NucleotideSequence seq = allTriplets();
+		for(IupacTranslationTables table : IupacTranslationTables.values()){
+			for(Frame frame : Frame.forwardFrames()){
+				assertEquals(table + " " + frame, translateUsingTriplets(table, seq, frame), table.translate(seq, frame));
+			}
+		}
+	}
+	
+	@Test
+	public void rnaCodonLookupSameAsTripletLookup(){
+		NucleotideSequence rna = NucleotideSequence.of("AUGUUUUAAUKUCUNGGU");
+		assertEquals(translateUsingTriplets(IupacTranslationTables.STANDARD, rna, Frame.ONE), 
+				IupacTranslationTables.STANDARD.translate(rna));
+	}
+	
+	@Test
+	public void sixFramesSameAsTranslatingEachFrame(){
+		for(IupacTranslationTables table : IupacTranslationTables.values()){
+			SixFrameTranslation expected = SixFrameTranslation.create(table, SEQ);
+			SixFrameTranslation actual = table.translateSixFrames(SEQ);
+			
+			assertEquals(SEQ.getLength(), actual.getSequenceLength());
+			for(Frame frame : Frame.values()){
+				assertEquals(table + " " + frame, expected.getCodons(frame), actual.getCodons(frame));
+			}
+		}
+	}
+	
+	@Test
+	public void forwardProteinSequences(){
+		SixFrameTranslation translation = IupacTranslationTables.STANDARD.translateSixFrames(SEQ);
+		for(Frame frame : Frame.forwardFrames()){
+			assertEquals(IupacTranslationTables.STANDARD.translate(SEQ, frame), translation.getProteinSequence(frame));
+		}
+	}
+	
+	@Test
+	public void reverseProteinSequencesAreFromReverseComplement(){
+		SixFrameTranslation translation = IupacTranslationTables.STANDARD.translateSixFrames(SEQ);
+		NucleotideSequence reverseComplement = SEQ.reverseComplement();
+		for(Frame frame : Frame.reverseFrames()){
+			assertEquals(IupacTranslationTables.STANDARD.translate(reverseComplement, frame.getOppositeFrame()), 
+					translation.getProteinSequence(frame));
+		}
+	}
+	
+	@Test
+	public void codonRanges(){
+		SixFrameTranslation translation = IupacTranslationTables.STANDARD.translateSixFrames(SEQ);
+		assertEquals(Range.of(0, 2), translation.getCodonRange(Frame.ONE, 0));
+		assertEquals(Range.of(7, 9), translation.getCodonRange(Frame.TWO, 2));
+		assertEquals(Range.of(5, 7), translation.getCodonRange(Frame.NEGATIVE_THREE, 1));
+		
+		List<Codon> codons = translation.getCodons(Frame.TWO);
+		assertEquals((SEQ.getLength() -1)/3, codons.size());
+		assertEquals(codons.get(2), translation.getCodon(Frame.TWO, 2));
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void gappedSequenceShouldThrowIllegalArgumentException(){
+		IupacTranslationTables.STANDARD.translateSixFrames(NucleotideSequence.of("ATG-CAT"));
+	}
+	
+	@Test
+	public void shortSequenceHasNoCodons(){
+		SixFrameTranslation translation = IupacTranslationTables.STANDARD.translateSixFrames(NucleotideSequence.of("AT"));
+		for(Frame frame : Frame.values()){
+			assertEquals(0, translation.getNumberOfCodons(frame));
+		}
+	}
+}
@@ -64,6 +64,9 @@ import org.junit.runners.Suite.SuiteClasses;
         TestNucleotideSequencePermuter.class,
         
         TestNucleotideKmers.class,
+        TestPackedKmers.class,
+        TestKmerCounter.class,
+        TestNucleotidePattern.class,
         TestNucleotideRangesOfNs.class,
         TestNucleotideSequenceMatches.class,
         TestNucleotideForEach.class,
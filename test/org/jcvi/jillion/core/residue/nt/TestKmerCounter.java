@@ -0,0 +1,209 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.core.residue.nt;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.jcvi.jillion.core.datastore.DataStore;
+import org.jcvi.jillion.trace.fastq.FastqDataStore;
+import org.jcvi.jillion.trace.fastq.FastqFileDataStoreBuilder;
+import org.jcvi.jillion.trace.fastq.FastqFileParserBuilder;
+import org.jcvi.jillion.trace.fastq.FastqQualityCodec;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestKmerCounter {
+
+	@Rule
+	public TemporaryFolder tmpDir = new TemporaryFolder();
+	
+	private static Map<String, String> randomReads(int numberOfReads, int readLength){
+		Random random = new Random(1234);
+		String bases = "ACGTACGTACGTACGTACGTN";
+		Map<String, String> reads = new LinkedHashMap<>();
+		for(int i=0; i< numberOfReads; i++){
+			StringBuilder builder = new StringBuilder(readLength);
+			for(int j=0; j< readLength; j++){
+				builder.append(bases.charAt(random.nextInt(bases.length())));
+			}
+			reads.put("read"+i, builder.toString());
+		}
+		return reads;
+	}
+	
+	private static Map<Long, Integer> naiveCounts(Map<String, String> reads, int k, boolean canonical){
+		Map<Long, Integer> counts = new HashMap<>();
+		for(String read : reads.values()){
+			for(int i=0; i+k <= read.length(); i++){
+				String kmer = read.substring(i, i+k);
+				if(kmer.indexOf('N') <0){
+					long packed = PackedKmers.encode(kmer);
+					counts.merge(canonical ? PackedKmers.canonical(packed, k) : packed, 1, Integer::sum);
+				}
+			}
+		}
+		return counts;
+	}
+	
+	private static NucleotideSequenceDataStore asDataStore(Map<String, String> reads){
+		Map<String, NucleotideSequence> map = new LinkedHashMap<>();
+		reads.forEach((id, bases)-> map.put(id, NucleotideSequence.of(bases)));
+		return DataStore.of(map, NucleotideSequenceDataStore.class);
+	}
+	
+	private File writeFastq(Map<String, String> reads) throws IOException{
+		File fastq = tmpDir.newFile("reads.fastq");
+		try(PrintWriter writer = new PrintWriter(fastq, "UTF-8")){
+			reads.forEach((id, bases)->{
+				writer.print("@"+id+"\n"+bases+"\n+\n");
+				for(int i=0; i< bases.length(); i++){
+					writer.print('I');
+				}
+				writer.print('\n');
+			});
+		}
+		return fastq;
+	}
+	
+	private static void assertCountsMatch(Map<Long, Integer> expected, KmerCountTable actual){
+		assertEquals(expected.size(), actual.getNumberOfDistinctKmers());
+		assertEquals(expected.values().stream().mapToLong(Integer::longValue).sum(), actual.getTotalNumberOfKmers());
+		expected.forEach((kmer, count)-> assertEquals(count.intValue(), actual.getCount(kmer)));
+		
+		Map<Long, Integer> seen = new HashMap<>();
+		actual.forEach((kmer, count)-> seen.put(kmer, count));
+		assertEquals(expected, seen);
+	}
+	
+	@Test
+	public void canonicalCountsFromDataStore() throws IOException{
+		Map<String, String> reads = randomReads(200, 100);
+		KmerCountTable table = new KmerCounterBuilder(11)
+										.numberOfThreads(3)
+										.numberOfPartitions(7)
+										.build()
+										.count(asDataStore(reads));
+		assertEquals(11, table.getK());
+		assertEquals(true, table.isCanonical());
+		assertCountsMatch(naiveCounts(reads, 11, true), table);
+	}
+	
+	@Test
+	public void forwardOnlyCounts() throws IOException{
+		Map<String, String> reads = randomReads(50, 100);
+		KmerCountTable table = new KmerCounterBuilder(5)
+										.canonical(false)
+										.numberOfThreads(2)
+										.build()
+										.count(asDataStore(reads));
+		assertEquals(false, table.isCanonical());
+		assertCountsMatch(naiveCounts(reads, 5, false), table);
+	}
+	
+	@Test
+	public void canonicalCountIncludesReverseComplement() throws IOException{
+		Map<String, String> reads = new HashMap<>();
+		reads.put("fwd", "AACGG");
+		reads.put("rev", "CCGTT");
+		KmerCountTable table = new KmerCounterBuilder(5).build().count(asDataStore(reads));
+		assertEquals(1, table.getNumberOfDistinctKmers());
+		assertEquals(2, table.getCount("AACGG"));
+		assertEquals(2, table.getCount("CCGTT"));
+		assertEquals(0, table.getCount("AAAAA"));
+	}
+	
+	@Test
+	public void spilledPartitionsAreMerged() throws IOException{
+		Map<String, String> reads = randomReads(600, 150);
+		File spillDir = tmpDir.newFolder();
+		KmerCountTable table = new KmerCounterBuilder(21)
+										.numberOfThreads(2)
+										.numberOfPartitions(2)
+										.maxMemory(1)
+										.tmpDir(spillDir)
+										.build()
+										.count(asDataStore(reads));
+		assertCountsMatch(naiveCounts(reads, 21, true), table);
+		//spill files are cleaned up
+		assertEquals(0, spillDir.list().length);
+	}
+	
+	@Test
+	public void fastqDataStoreAndParserGiveSameCounts() throws IOException{
+		Map<String, String> reads = randomReads(300, 100);
+		File fastq = writeFastq(reads);
+		KmerCounter counter = new KmerCounterBuilder(15).numberOfThreads(2).build();
+		Map<Long, Integer> expected = naiveCounts(reads, 15, true);
+		
+		try(FastqDataStore datastore = new FastqFileDataStoreBuilder(fastq)
+												.qualityCodec(FastqQualityCodec.SANGER)
+												.build()){
+			assertCountsMatch(expected, counter.count(datastore));
+		}
+		assertCountsMatch(expected, counter.count(new FastqFileParserBuilder(fastq).build()));
+		assertCountsMatch(expected, counter.count(new FastqFileParserBuilder(fastq)
+																.numberOfThreads(2)
+																.build()));
+	}
+	
+	@Test
+	public void histogram() throws IOException{
+		Map<String, String> reads = new HashMap<>();
+		reads.put("read", "ACGTACGT");
+		KmerCountTable table = new KmerCounterBuilder(4)
+										.canonical(false)
+										.build()
+										.count(asDataStore(reads));
+		//ACGT x2 , CGTA, GTAC, TACG
+		assertEquals(2, table.getMaxCount());
+		assertArrayEquals(new long[]{0, 3, 1}, table.getHistogram());
+		assertArrayEquals(new long[]{0, 4}, table.getHistogram(1));
+		
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		table.writeHistogram(out);
+		assertEquals("1 3\n2 1\n", new String(out.toByteArray(), StandardCharsets.UTF_8));
+	}
+	
+	@Test
+	public void emptyDataStore() throws IOException{
+		KmerCountTable table = new KmerCounterBuilder(4).build().count(asDataStore(new HashMap<>()));
+		assertEquals(0, table.getNumberOfDistinctKmers());
+		assertEquals(0, table.getMaxCount());
+		assertEquals(0, table.getCount("ACGT"));
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void kmerTooBigShouldThrowException(){
+		new KmerCounterBuilder(PackedKmers.MAX_K +1);
+	}
+}
@@ -0,0 +1,328 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.core.residue.nt;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import org.jcvi.jillion.core.Direction;
+import org.jcvi.jillion.core.Range;
+import org.junit.Test;
+
+public class TestNucleotidePattern {
+
+	private static final char[] BASES = "ACGT".toCharArray();
+	
+	private static List<NucleotideSequence> allImplementationsOf(String seq){
+		List<NucleotideSequence> list = new ArrayList<>();
+		List<Nucleotide> bases = Nucleotides.parse(seq);
+		list.add(new NucleotideSequenceBuilder(seq).build());
+		list.add(new NucleotideSequenceBuilder(seq).turnOffDataCompression(true).build());
+		list.add(new DefaultNucleotideSequence(BasicNucleotideCodec.INSTANCE,
+				Nucleotides.encodeWithGapSentientals(BasicNucleotideCodec.INSTANCE, bases), false, false));
+		list.add(new DefaultNucleotideSequence(UandTNucleotideCodec.INSTANCE,
+				Nucleotides.encodeWithGapSentientals(UandTNucleotideCodec.INSTANCE, bases), false, false));
+		if(seq.matches("[ACGTN]*")){
+			list.add(new DefaultNucleotideSequence(AcgtnNucloetideCodec.INSTANCE,
+					Nucleotides.encodeWithNSentientals(AcgtnNucloetideCodec.INSTANCE, bases), false, false));
+		}
+		if(seq.matches("[ACGT-]*")){
+			list.add(new DefaultNucleotideSequence(AcgtGapNucleotideCodec.INSTANCE,
+					Nucleotides.encodeWithGapSentientals(AcgtGapNucleotideCodec.INSTANCE, bases), false, false));
+		}
+		list.add(NucleotideSequence.wrap(bases.toArray(new Nucleotide[0])));
+		//reference encoded uses the default iterator implementation
+		NucleotideSequence reference = new NucleotideSequenceBuilder(seq.replaceAll("[^ACGT]", "A")).build();
+		list.add(new NucleotideSequenceBuilder(seq)
+						.setReferenceHint(reference, 0)
+						.buildReferenceEncodedNucleotideSequence());
+		return list;
+	}
+	
+	private static String randomSequence(Random random, int length, String extraBases){
+		StringBuilder builder = new StringBuilder(length);
+		for(int i=0; i< length; i++){
+			if(!extraBases.isEmpty() && random.nextInt(20)==0){
+				builder.append(extraBases.charAt(random.nextInt(extraBases.length())));
+			}else{
+				builder.append(BASES[random.nextInt(4)]);
+			}
+		}
+		return builder.toString();
+	}
+	
+	private static boolean baseMatches(char patternBase, char base){
+		Nucleotide n = Nucleotide.parse(base);
+		if(n.isGap()){
+			return false;
+		}
+		Set<Nucleotide> patternBases = Nucleotide.parse(patternBase == 'U' ? 'T' : patternBase).getBasesFor();
+		return patternBases.containsAll(Nucleotide.parse(base == 'U' ? 'T' : base).getBasesFor());
+	}
+	
+	private static int editDistance(String pattern, String text){
+		int[] column = new int[pattern.length()+1];
+		for(int i=0; i< column.length; i++){
+			column[i] =i;
+		}
+		for(int j=1; j<= text.length(); j++){
+			int diagonal = column[0];
+			column[0] = j;
+			for(int i=1; i<= pattern.length(); i++){
+				int cost = baseMatches(pattern.charAt(i-1), text.charAt(j-1)) ? 0 : 1;
+				int value = Math.min(diagonal + cost, Math.min(column[i], column[i-1]) +1);
+				diagonal = column[i];
+				column[i] = value;
+			}
+		}
+		return column[pattern.length()];
+	}
+	
+	private static List<NucleotidePatternMatch> expectedMismatches(String seq, String pattern, int maxMismatches, Range range){
+		List<NucleotidePatternMatch> list = new ArrayList<>();
+		int m = pattern.length();
+		for(int end = (int) range.getBegin() + m -1; end <= range.getEnd(); end++){
+			int begin = end - m +1;
+			int errors=0;
+			for(int i=0; i< m; i++){
+				if(!baseMatches(pattern.charAt(i), seq.charAt(begin +i))){
+					errors++;
+				}
+			}
+			if(errors <= maxMismatches){
+				list.add(new NucleotidePatternMatch(Range.of(begin, end), Direction.FORWARD, errors));
+			}
+		}
+		return list;
+	}
+	
+	private static List<NucleotidePatternMatch> expectedEdits(String seq, String pattern, int maxEdits, Range range){
+		int rangeBegin = (int) range.getBegin();
+		int rangeEnd = (int) range.getEnd();
+		int[] scores = new int[rangeEnd - rangeBegin +1];
+		for(int end = rangeBegin; end <= rangeEnd; end++){
+			int best = pattern.length();
+			for(int begin = rangeBegin; begin <= end; begin++){
+				best = Math.min(best, editDistance(pattern, seq.substring(begin, end+1)));
+			}
+			scores[end - rangeBegin] = best;
+		}
+		List<NucleotidePatternMatch> list = new ArrayList<>();
+		for(int i=0; i< scores.length; i++){
+			int score = scores[i];
+			boolean localMin = (i==0 || score <= scores[i-1]) && (i== scores.length-1 || score <= scores[i+1]);
+			if(score <= maxEdits && localMin){
+				int end = rangeBegin +i;
+				int begin = end;
+				while(editDistance(pattern, seq.substring(begin, end+1)) != score){
+					begin--;
+				}
+				list.add(new NucleotidePatternMatch(Range.of(begin, end), Direction.FORWARD, score));
+			}
+		}
+		return list;
+	}
+	
+	private static void assertMatches(List<NucleotidePatternMatch> expected, NucleotideSequence seq, NucleotidePattern pattern, Range range){
+		assertEquals(seq.getClass().getSimpleName(), expected, seq.findMatches(pattern, range).collect(Collectors.toList()));
+	}
+	
+	@Test
+	public void exactMatchesSameAsNaiveSearch(){
+		Random random = new Random(1234);
+		for(int trial=0; trial < 20; trial++){
+			String seq = randomSequence(random, 200, "NR-");
+			String pattern = randomSequence(random, 3 + random.nextInt(4), "NRY");
+			NucleotidePattern sut = NucleotidePattern.compile(pattern);
+			Range range = Range.ofLength(seq.length());
+			Range subRange = Range.of(17, 150);
+			for(NucleotideSequence s : allImplementationsOf(seq)){
+				assertMatches(expectedMismatches(seq, pattern, 0, range), s, sut, range);
+				assertMatches(expectedMismatches(seq, pattern, 0, subRange), s, sut, subRange);
+			}
+		}
+	}
+	
+	@Test
+	public void mismatchesSameAsNaiveSearch(){
+		Random random = new Random(5678);
+		for(int trial=0; trial < 20; trial++){
+			String seq = randomSequence(random, 200, "NW-");
+			String pattern = randomSequence(random, 6 + random.nextInt(6), "NS");
+			int maxMismatches = 1 + random.nextInt(2);
+			NucleotidePattern sut = new NucleotidePattern.Builder(pattern).maxMismatches(maxMismatches).build();
+			Range range = Range.ofLength(seq.length());
+			Range subRange = Range.of(3, 190);
+			for(NucleotideSequence s : allImplementationsOf(seq)){
+				assertMatches(expectedMismatches(seq, pattern, maxMismatches, range), s, sut, range);
+				assertMatches(expectedMismatches(seq, pattern, maxMismatches, subRange), s, sut, subRange);
+			}
+		}
+	}
+	
+	@Test
+	public void editsSameAsNaiveSearch(){
+		Random random = new Random(91011);
+		for(int trial=0; trial < 20; trial++){
+			String seq = randomSequence(random, 120, "NK-");
+			String pattern = randomSequence(random, 6 + random.nextInt(6), "NM");
+			int maxEdits = 1 + random.nextInt(2);
+			NucleotidePattern sut = new NucleotidePattern.Builder(pattern).maxEdits(maxEdits).build();
+			Range range = Range.ofLength(seq.length());
+			Range subRange = Range.of(10, 100);
+			for(NucleotideSequence s : allImplementationsOf(seq)){
+				assertMatches(expectedEdits(seq, pattern, maxEdits, range), s, sut, range);
+				assertMatches(expectedEdits(seq, pattern, maxEdits, subRange), s, sut, subRange);
+			}
+		}
+	}
+	
+	@Test
+	public void editMatchWithInsertion(){
+		NucleotideSequence seq = NucleotideSequence.of("TTTTACGTTACGTTTT");
+		NucleotidePattern sut = new NucleotidePattern.Builder("ACGTACGT").maxEdits(1).build();
+		
+		assertEquals(Collections.singletonList(new NucleotidePatternMatch(Range.of(4, 12), Direction.FORWARD, 1)),
+				seq.findMatches(sut).collect(Collectors.toList()));
+	}
+	
+	@Test
+	public void longestPattern(){
+		Random random = new Random(1213);
+		String pattern = randomSequence(random, NucleotidePattern.MAX_LENGTH, "");
+		String seq = randomSequence(random, 100, "") + pattern + randomSequence(random, 100, "");
+		NucleotidePattern exact = NucleotidePattern.compile(pattern);
+		NucleotidePattern edits = new NucleotidePattern.Builder(pattern).maxEdits(3).build();
+		Range expected = Range.ofLength(pattern.length()).shift(100);
+		for(NucleotideSequence s : allImplementationsOf(seq)){
+			assertEquals(Collections.singletonList(new NucleotidePatternMatch(expected, Direction.FORWARD, 0)),
+					s.findMatches(exact).collect(Collectors.toList()));
+			assertEquals(Collections.singletonList(new NucleotidePatternMatch(expected, Direction.FORWARD, 0)),
+					s.findMatches(edits).collect(Collectors.toList()));
+		}
+	}
+	
+	@Test
+	public void bothStrands(){
+		NucleotideSequence seq = NucleotideSequence.of("TTCCGGTTTTAGCAGGCCAAAA");
+		NucleotidePattern sut = new NucleotidePattern.Builder("CCGRT").bothStrands(true).build();
+		assertTrue(sut.searchesBothStrands());
+		//AYCGG is the reverse complement
+		assertEquals(Arrays.asList(new NucleotidePatternMatch(Range.of(2, 6), Direction.FORWARD, 0)),
+				seq.findMatches(sut).collect(Collectors.toList()));
+		
+		NucleotideSequence seq2 = NucleotideSequence.of("TTCCGGTTTTACCGGAA");
+		assertEquals(Arrays.asList(new NucleotidePatternMatch(Range.of(2, 6), Direction.FORWARD, 0),
+									new NucleotidePatternMatch(Range.of(10, 14), Direction.REVERSE, 0)),
+				seq2.findMatches(sut).collect(Collectors.toList()));
+	}
+	
+	@Test
+	public void reverseStrandMismatches(){
+		String forward = "ACGTTGCAAGGC";
+		String reverse = new NucleotideSequenceBuilder(forward).reverseComplement().toString();
+		//one mismatch
+		String mutated = reverse.substring(0, 5) + (reverse.charAt(5)=='A' ? 'C' : 'A') + reverse.substring(6);
+		NucleotideSequence seq = NucleotideSequence.of("TTTT" + mutated + "TTTT");
+		NucleotidePattern sut = new NucleotidePattern.Builder(forward).maxMismatches(1).bothStrands(true).build();
+		
+		assertEquals(Collections.singletonList(new NucleotidePatternMatch(Range.of(4, 15), Direction.REVERSE, 1)),
+				seq.findMatches(sut).collect(Collectors.toList()));
+	}
+	
+	@Test
+	public void palindromeOnlySearchesForwardStrand(){
+		NucleotidePattern sut = new NucleotidePattern.Builder("GAATTC").bothStrands(true).build();
+		assertFalse(sut.searchesBothStrands());
+		assertEquals(Collections.singletonList(new NucleotidePatternMatch(Range.of(3, 8), Direction.FORWARD, 0)),
+				NucleotideSequence.of("AAAGAATTCAAA").findMatches(sut).collect(Collectors.toList()));
+	}
+	
+	@Test
+	public void ambiguitiesInSequenceOnlyMatchedByPatternsThatContainThem(){
+		NucleotideSequence seq = NucleotideSequence.of("ACNTARTT");
+		assertEquals(0, seq.findMatches(NucleotidePattern.compile("ACGT")).count());
+		assertEquals(1, seq.findMatches(NucleotidePattern.compile("ACNT")).count());
+		assertEquals(1, seq.findMatches(NucleotidePattern.compile("ACST")).count() 
+							+ seq.findMatches(NucleotidePattern.compile("ARTT")).count());
+		assertEquals(0, seq.findMatches(NucleotidePattern.compile("AATT")).count());
+	}
+	
+	@Test
+	public void overlappingMatches(){
+		assertEquals(Arrays.asList(Range.of(0,1), Range.of(1,2), Range.of(2,3)),
+				NucleotideSequence.of("AAAA").findMatches(NucleotidePattern.compile("AA"))
+										.map(NucleotidePatternMatch::getRange)
+										.collect(Collectors.toList()));
+	}
+	
+	@Test
+	public void literalRegexSameAsStringMatching(){
+		Random random = new Random(1415);
+		String seq = randomSequence(random, 500, "N-");
+		for(String regex : Arrays.asList("AA", "ACG", "N", "A-", "TTTT")){
+			Pattern pattern = Pattern.compile(regex);
+			List<Range> expected = new ArrayList<>();
+			java.util.regex.Matcher matcher = pattern.matcher(seq);
+			while(matcher.find()){
+				expected.add(Range.of(matcher.start(), matcher.end()-1));
+			}
+			for(NucleotideSequence s : allImplementationsOf(seq)){
+				assertEquals(s.getClass().getSimpleName(), expected, s.findMatches(pattern).collect(Collectors.toList()));
+			}
+		}
+	}
+	
+	@Test
+	public void emptyRange(){
+		assertEquals(0, NucleotideSequence.of("ACGT").findMatches(NucleotidePattern.compile("A"), Range.ofLength(0)).count());
+	}
+	
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void rangeOutOfBoundsShouldThrowException(){
+		NucleotideSequence.of("ACGT").findMatches(NucleotidePattern.compile("A"), Range.of(2, 10));
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void patternTooLongShouldThrowException(){
+		NucleotidePattern.compile(randomSequence(new Random(1), NucleotidePattern.MAX_LENGTH +1, ""));
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void gapInPatternShouldThrowException(){
+		NucleotidePattern.compile("AC-GT");
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void tooManyErrorsShouldThrowException(){
+		new NucleotidePattern.Builder("ACGT").maxEdits(4).build();
+	}
+}
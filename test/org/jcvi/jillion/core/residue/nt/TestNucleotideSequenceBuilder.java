@@ -27,11 +27,13 @@ import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
 import org.jcvi.jillion.core.Range;
+import org.jcvi.jillion.core.io.IOUtil;
 import org.jcvi.jillion.core.residue.nt.NucleotideSequenceBuilder.DecodingOptions;
 import org.jcvi.jillion.core.testUtil.TestUtil;
 import org.jcvi.jillion.testutils.NucleotideSequenceTestUtil;
@@ -125,6 +127,17 @@ public class TestNucleotideSequenceBuilder {
         assertBuiltDnaSequenceEquals("ACGTGGTGCA",sut);
     } 
     @Test
+    public void appendByteBufferWithLineTerminators(){
+        NucleotideSequenceBuilder sut = new NucleotideSequenceBuilder("ACGT");
+        ByteBuffer buf = ByteBuffer.wrap("xxGGT\r\nGCAxx".getBytes(IOUtil.UTF_8));
+        buf.position(2);
+        buf.limit(buf.capacity()-2);
+        sut.append(buf);
+        assertBuiltDnaSequenceEquals("ACGTGGTGCA",sut);
+        //position not changed
+        assertEquals(2, buf.position());
+    } 
+    @Test
     public void appendCharArrayWithNullsShouldIgnoreNull(){
         NucleotideSequenceBuilder sut = new NucleotideSequenceBuilder("ACGT");
         char[] array = new char[7];
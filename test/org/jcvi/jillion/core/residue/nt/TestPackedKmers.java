@@ -0,0 +1,180 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.core.residue.nt;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.jcvi.jillion.core.Range;
+import org.junit.Test;
+
+public class TestPackedKmers {
+
+	private static long[] expectedKmers(String seq, int k, boolean canonical, Range range){
+		List<Long> list = new ArrayList<>();
+		for(int i= (int) range.getBegin(); i + k -1 <= range.getEnd(); i++){
+			String kmer = seq.substring(i, i+k);
+			if(kmer.matches("[ACGTU]+")){
+				long packed = PackedKmers.encode(kmer);
+				list.add(canonical ? PackedKmers.canonical(packed, k) : packed);
+			}
+		}
+		return list.stream().mapToLong(Long::longValue).toArray();
+	}
+	
+	private static List<NucleotideSequence> allImplementationsOf(String seq){
+		List<NucleotideSequence> list = new ArrayList<>();
+		List<Nucleotide> bases = Nucleotides.parse(seq);
+		list.add(new NucleotideSequenceBuilder(seq).build());
+		list.add(new NucleotideSequenceBuilder(seq).turnOffDataCompression(true).build());
+		list.add(new DefaultNucleotideSequence(BasicNucleotideCodec.INSTANCE,
+				Nucleotides.encodeWithGapSentientals(BasicNucleotideCodec.INSTANCE, bases), false, false));
+		list.add(new DefaultNucleotideSequence(UandTNucleotideCodec.INSTANCE,
+				Nucleotides.encodeWithGapSentientals(UandTNucleotideCodec.INSTANCE, bases), false, false));
+		if(seq.matches("[ACGTN]*")){
+			list.add(new DefaultNucleotideSequence(AcgtnNucloetideCodec.INSTANCE,
+					Nucleotides.encodeWithNSentientals(AcgtnNucloetideCodec.INSTANCE, bases), false, false));
+		}
+		if(seq.matches("[ACGT-]*")){
+			list.add(new DefaultNucleotideSequence(AcgtGapNucleotideCodec.INSTANCE,
+					Nucleotides.encodeWithGapSentientals(AcgtGapNucleotideCodec.INSTANCE, bases), false, false));
+		}
+		list.add(NucleotideSequence.wrap(bases.toArray(new Nucleotide[0])));
+		//reference encoded uses the default iterator implementation
+		NucleotideSequence reference = new NucleotideSequenceBuilder(seq.replaceAll("[^ACGT]", "A")).build();
+		list.add(new NucleotideSequenceBuilder(seq)
+						.setReferenceHint(reference, 0)
+						.buildReferenceEncodedNucleotideSequence());
+		return list;
+	}
+	
+	private static void assertKmersCorrect(String seq, int k){
+		Range fullRange = Range.ofLength(seq.length());
+		for(NucleotideSequence s : allImplementationsOf(seq)){
+			String message = s.getClass().getSimpleName();
+			assertArrayEquals(message, expectedKmers(seq, k, false, fullRange), s.packedKmers(k).toArray());
+			assertArrayEquals(message, expectedKmers(seq, k, true, fullRange), s.packedKmers(k, true).toArray());
+			if(seq.length() > 4){
+				Range subRange = Range.of(2, seq.length()-2);
+				assertArrayEquals(message, expectedKmers(seq, k, true, subRange), s.packedKmers(k, true, subRange).toArray());
+			}
+		}
+	}
+	
+	@Test
+	public void emptySequenceHasNoKmers(){
+		assertEquals(0, NucleotideSequence.of("").packedKmers(3).count());
+	}
+	
+	@Test
+	public void sequenceShorterThanKHasNoKmers(){
+		assertEquals(0, NucleotideSequence.of("AC").packedKmers(3).count());
+	}
+	
+	@Test
+	public void acgtOnly(){
+		assertKmersCorrect("AGATCGAGTGACGTTTGCAGGCATTA", 5);
+	}
+	
+	@Test
+	public void ambiguitiesAndGapsAreSkipped(){
+		assertKmersCorrect("AGATNCGAGTG-ACGTTRTGCAGGCA-NNTTA", 3);
+		assertKmersCorrect("ACGTNACGTACGT", 4);
+		assertKmersCorrect("AC-GTA-CGTTT--TTGC", 2);
+	}
+	
+	@Test
+	public void uracilSameAsThymine(){
+		assertArrayEquals(NucleotideSequence.of("ACGTTA").packedKmers(4).toArray(),
+				NucleotideSequence.of("ACGUUA").packedKmers(4).toArray());
+	}
+	
+	@Test
+	public void maxKmerSize(){
+		Random random = new Random(1234);
+		StringBuilder builder = new StringBuilder();
+		String bases = "ACGTACGTACGTACGTN-";
+		for(int i=0; i< 300; i++){
+			builder.append(bases.charAt(random.nextInt(bases.length())));
+		}
+		assertKmersCorrect(builder.toString(), PackedKmers.MAX_K);
+		assertKmersCorrect(builder.toString().replaceAll("[N-]", ""), PackedKmers.MAX_K);
+	}
+	
+	@Test
+	public void offsetsOfKmersAreStartOfKmer(){
+		NucleotideSequence seq = NucleotideSequence.of("ACGNTACG");
+		List<Long> offsets = new ArrayList<>();
+		List<String> kmers = new ArrayList<>();
+		seq.forEachPackedKmer(3, false, (offset, kmer)->{
+			offsets.add(offset);
+			kmers.add(PackedKmers.decode(kmer, 3));
+		});
+		assertEquals(List.of(0L, 4L, 5L), offsets);
+		assertEquals(List.of("ACG", "TAC", "ACG"), kmers);
+	}
+	
+	@Test
+	public void reverseComplement(){
+		assertEquals("CGTTA", PackedKmers.decode(PackedKmers.reverseComplement(PackedKmers.encode("TAACG"), 5), 5));
+		String longest = "ACGTTGCAAAGGCTAGCTTTACGATGCCATGA";
+		String expected = new NucleotideSequenceBuilder(longest).reverseComplement().toString();
+		assertEquals(expected, PackedKmers.decode(PackedKmers.reverseComplement(PackedKmers.encode(longest), 32), 32));
+	}
+	
+	@Test
+	public void canonicalIsSmallerStrand(){
+		assertEquals("AAC", PackedKmers.decode(PackedKmers.canonical(PackedKmers.encode("GTT"), 3), 3));
+		assertEquals("AAC", PackedKmers.decode(PackedKmers.canonical(PackedKmers.encode("AAC"), 3), 3));
+		//k=32 needs unsigned comparison
+		long allTs = PackedKmers.encode("TTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTT");
+		assertEquals(0L, PackedKmers.canonical(allTs, 32));
+	}
+	
+	@Test
+	public void toNucleotideSequence(){
+		assertEquals(NucleotideSequence.of("GATTACA"), PackedKmers.toNucleotideSequence(PackedKmers.encode("GATTACA"), 7));
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void kTooBigShouldThrowException(){
+		NucleotideSequence.of("ACGT").packedKmers(PackedKmers.MAX_K +1);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void kZeroShouldThrowException(){
+		NucleotideSequence.of("ACGT").packedKmers(0);
+	}
+	
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void rangeOutsideSequenceShouldThrowException(){
+		NucleotideSequence.of("ACGT").packedKmers(2, false, Range.of(2, 4));
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void encodingAmbiguityShouldThrowException(){
+		PackedKmers.encode("ACNT");
+	}
+}
@@ -21,6 +21,7 @@
 package org.jcvi.jillion.core.util;
 
 import org.jcvi.jillion.core.util.iter.TestAbstractBlockingClosableIteratorExceptions;
+import org.jcvi.jillion.core.util.iter.TestAbstractBlockingStreamingIteratorBatching;
 import org.jcvi.jillion.core.util.iter.TestArrayIterator;
 import org.jcvi.jillion.core.util.iter.TestByteArrayIterator;
 import org.jcvi.jillion.core.util.iter.TestChainedIterator;
@@ -65,6 +66,7 @@ import org.junit.runners.Suite.SuiteClasses;
         TestPeekableStreamingIterator.class,
         
         TestAbstractBlockingClosableIteratorExceptions.class,
+        TestAbstractBlockingStreamingIteratorBatching.class,
         TestDateUtilElapsedTime.class,
         TestGrowableByteArray.class,
         TestGrowableShortArray.class,
@@ -103,7 +105,12 @@ import org.junit.runners.Suite.SuiteClasses;
         
         TestBoundedPriorityQueue.class,
         TestRangeMap.class,
-        TestRangeIntersectOrAbut.class
+        TestLongIntervalTree.class,
+        TestRangeIntersectOrAbut.class,
+        TestOffHeapStringLongMap.class,
+        TestLongIntCountMap.class,
+        TestConcurrentLruCache.class,
+        TestWorkerPool.class
         
     }
     )
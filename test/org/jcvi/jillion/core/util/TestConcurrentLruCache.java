@@ -0,0 +1,125 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.core.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.jcvi.jillion.internal.core.util.ConcurrentLruCache;
+import org.junit.Test;
+
+public class TestConcurrentLruCache {
+
+	@Test(expected = IllegalArgumentException.class)
+	public void zeroSizeShouldThrowIllegalArgumentException(){
+		new ConcurrentLruCache<String, String>(0);
+	}
+	
+	@Test(expected = NullPointerException.class)
+	public void nullValueShouldThrowNPE(){
+		new ConcurrentLruCache<String, String>(2).put("a", null);
+	}
+	
+	@Test
+	public void leastRecentlyUsedIsEvicted(){
+		ConcurrentLruCache<String, Integer> sut = new ConcurrentLruCache<>(2);
+		sut.put("a", 1);
+		sut.put("b", 2);
+		//touch a so b is the eldest
+		assertEquals(Integer.valueOf(1), sut.get("a"));
+		sut.put("c", 3);
+		
+		assertEquals(2, sut.size());
+		assertNull(sut.get("b"));
+		assertEquals(Integer.valueOf(1), sut.get("a"));
+		assertEquals(Integer.valueOf(3), sut.get("c"));
+		assertEquals(1, sut.getEvictionCount());
+	}
+	
+	@Test
+	public void softReferencedCacheEvictsLeastRecentlyUsed(){
+		ConcurrentLruCache<String, Integer> sut = ConcurrentLruCache.createSoftReferencedValueCache(2);
+		sut.put("a", 1);
+		sut.put("b", 2);
+		assertEquals(Integer.valueOf(1), sut.get("a"));
+		sut.put("c", 3);
+		
+		assertEquals(2, sut.size());
+		assertNull(sut.get("b"));
+		assertEquals(Integer.valueOf(1), sut.get("a"));
+		assertEquals(Integer.valueOf(3), sut.get("c"));
+	}
+	
+	@Test
+	public void hitAndMissCounts(){
+		ConcurrentLruCache<String, Integer> sut = new ConcurrentLruCache<>(10);
+		sut.get("a");
+		sut.put("a", 1);
+		sut.get("a");
+		sut.get("a");
+		sut.get("b");
+		assertEquals(2, sut.getHitCount());
+		assertEquals(2, sut.getMissCount());
+	}
+	
+	@Test
+	public void clear(){
+		ConcurrentLruCache<String, Integer> sut = new ConcurrentLruCache<>(10);
+		sut.put("a", 1);
+		sut.clear();
+		assertEquals(0, sut.size());
+		assertNull(sut.get("a"));
+	}
+	
+	@Test
+	public void segmentedCacheNeverExceedsMaxSize() throws Exception{
+		int maxSize = 1000;
+		ConcurrentLruCache<Integer, Integer> sut = new ConcurrentLruCache<>(maxSize);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try{
+			List<Future<?>> futures = new ArrayList<>();
+			for(int t=0; t< 4; t++){
+				int offset = t * 10_000;
+				futures.add(executor.submit(()->{
+					for(int i=0; i< 10_000; i++){
+						sut.put(offset + i, i);
+						sut.get(offset + i/2);
+					}
+				}));
+			}
+			for(Future<?> f : futures){
+				f.get();
+			}
+		}finally{
+			executor.shutdown();
+		}
+		assertTrue(sut.size() <= maxSize);
+		assertEquals(40_000, sut.getHitCount() + sut.getMissCount());
+		assertEquals(40_000 - sut.size(), sut.getEvictionCount());
+	}
+}
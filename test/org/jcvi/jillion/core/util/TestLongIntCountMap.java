@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.core.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.jcvi.jillion.internal.core.util.LongIntCountMap;
+import org.junit.Test;
+
+public class TestLongIntCountMap {
+
+	private final LongIntCountMap sut = new LongIntCountMap();
+	
+	@Test
+	public void emptyMap(){
+		assertEquals(0, sut.size());
+		assertTrue(sut.isEmpty());
+		assertEquals(0, sut.get(0L));
+		assertEquals(0, sut.get(1234L));
+		assertEquals(0, sut.getSortedKeys().length);
+	}
+	
+	@Test
+	public void zeroAndNegativeKeys(){
+		sut.increment(0L);
+		sut.increment(0L);
+		sut.increment(-1L);
+		sut.add(Long.MIN_VALUE, 5);
+		
+		assertEquals(3, sut.size());
+		assertEquals(2, sut.get(0L));
+		assertEquals(1, sut.get(-1L));
+		assertEquals(5, sut.get(Long.MIN_VALUE));
+		assertArrayEquals(new long[]{Long.MIN_VALUE, -1L, 0L}, sut.getSortedKeys());
+	}
+	
+	@Test
+	public void countsSaturate(){
+		sut.add(42L, Integer.MAX_VALUE -1);
+		sut.increment(42L);
+		sut.increment(42L);
+		assertEquals(Integer.MAX_VALUE, sut.get(42L));
+	}
+	
+	@Test
+	public void growsPastInitialCapacity(){
+		Random random = new Random(1234);
+		Map<Long, Integer> expected = new HashMap<>();
+		for(int i=0; i< 50_000; i++){
+			long key = random.nextInt(20_000) * 0x100000001L;
+			sut.increment(key);
+			expected.merge(key, 1, Integer::sum);
+		}
+		assertEquals(expected.size(), sut.size());
+		assertTrue(sut.getCapacity() > 20_000);
+		for(Map.Entry<Long, Integer> entry : expected.entrySet()){
+			assertEquals(entry.getValue().intValue(), sut.get(entry.getKey()));
+		}
+		long[] keys = sut.getSortedKeys();
+		assertEquals(expected.size(), keys.length);
+		for(int i=1; i< keys.length; i++){
+			assertTrue(keys[i-1] < keys[i]);
+		}
+	}
+	
+	@Test
+	public void clear(){
+		int initialCapacity = sut.getCapacity();
+		for(int i=0; i< 5000; i++){
+			sut.increment(i);
+		}
+		sut.clear();
+		assertEquals(0, sut.size());
+		assertEquals(0, sut.get(10));
+		assertEquals(initialCapacity, sut.getCapacity());
+	}
+}
@@ -0,0 +1,172 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.core.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.jcvi.jillion.core.Range;
+import org.junit.Test;
+
+public class TestLongIntervalTree {
+
+	private final Random random = new Random(42);
+	
+	private LongIntervalTree randomTree(int size, long[][] intervals){
+		LongIntervalTree.Builder builder = new LongIntervalTree.Builder(size);
+		for(int i=0; i< size; i++){
+			long begin = random.nextInt(10_000);
+			long end = begin + random.nextInt(random.nextBoolean()? 20 : 2_000);
+			intervals[i] = new long[]{begin, end};
+			builder.add(begin, end);
+		}
+		assertEquals(size, builder.size());
+		return builder.build();
+	}
+	/**
+	 * Sort the expected ids by coordinate like the tree does.
+	 */
+	private int[] sorted(List<Integer> ids, long[][] intervals){
+		return ids.stream()
+				.sorted((a,b)-> {
+					int cmp = Long.compare(intervals[a][0], intervals[b][0]);
+					if(cmp !=0){
+						return cmp;
+					}
+					cmp = Long.compare(intervals[a][1], intervals[b][1]);
+					return cmp !=0? cmp : Integer.compare(a, b);
+				})
+				.mapToInt(Integer::intValue)
+				.toArray();
+	}
+	
+	private int[] collect(java.util.function.Consumer<java.util.function.IntConsumer> query){
+		List<Integer> list = new ArrayList<>();
+		query.accept(list::add);
+		return list.stream().mapToInt(Integer::intValue).toArray();
+	}
+	
+	@Test
+	public void emptyTree(){
+		LongIntervalTree sut = new LongIntervalTree.Builder().build();
+		assertEquals(0, sut.size());
+		assertEquals(0, sut.getOverlapping(0, 100).length);
+		assertFalse(sut.overlapsAny(0, 100));
+		assertEquals(-1, sut.getNearest(0, 100));
+	}
+	
+	@Test
+	public void idsAreInsertionOrder(){
+		LongIntervalTree sut = LongIntervalTree.of(Arrays.asList(Range.of(50, 60), Range.of(1, 10), Range.of(20, 30)));
+		assertEquals(3, sut.size());
+		assertEquals(50, sut.getBegin(0));
+		assertEquals(60, sut.getEnd(0));
+		assertEquals(1, sut.getBegin(1));
+		assertEquals(30, sut.getEnd(2));
+		
+		assertArrayEquals(new int[]{1,2,0}, sut.getOverlapping(0, 100));
+		assertArrayEquals(new int[]{2}, sut.getOverlapping(25, 25));
+		assertArrayEquals(new int[]{1,2}, sut.getOverlapping(10, 20));
+		assertEquals(0, sut.countOverlapping(11, 19));
+	}
+	
+	@Test
+	public void nearest(){
+		LongIntervalTree sut = LongIntervalTree.of(Arrays.asList(Range.of(50, 60), Range.of(1, 10), Range.of(20, 30)));
+		assertEquals(1, sut.getNearest(12, 13));
+		assertEquals(2, sut.getNearest(17, 18));
+		//tie goes to the one before
+		assertEquals(1, sut.getNearest(15, 15));
+		assertEquals(0, sut.getNearest(1000, 2000));
+		assertEquals(1, sut.getNearest(-100, -50));
+		assertEquals(2, sut.getNearest(25, 55));
+	}
+	
+	@Test
+	public void emptyIntervalsNeverOverlap(){
+		LongIntervalTree sut = LongIntervalTree.of(Arrays.asList(Range.of(1, 10), new Range.Builder().shift(5).build(), Range.of(20, 30)));
+		assertTrue(new Range.Builder().shift(5).build().isEmpty());
+		assertArrayEquals(new int[]{0,2}, sut.getOverlapping(0, 100));
+	}
+	
+	@Test
+	public void randomQueriesMatchBruteForce(){
+		for(int size : new int[]{1, 2, 3, 7, 8, 9, 15, 16, 17, 100, 1023, 1024, 1025, 5000}){
+			long[][] intervals = new long[size][];
+			LongIntervalTree sut = randomTree(size, intervals);
+			for(int q=0; q< 200; q++){
+				long begin = random.nextInt(12_000) - 1_000;
+				long end = begin + random.nextInt(500);
+				
+				List<Integer> overlapping = new ArrayList<>();
+				List<Integer> containing = new ArrayList<>();
+				List<Integer> containedIn = new ArrayList<>();
+				for(int i=0; i< size; i++){
+					long b = intervals[i][0];
+					long e = intervals[i][1];
+					if(e >= b && b <= end && e >= begin){
+						overlapping.add(i);
+					}
+					if(b <= begin && e >= end){
+						containing.add(i);
+					}
+					if(b >= begin && e <= end){
+						containedIn.add(i);
+					}
+				}
+				assertArrayEquals(sorted(overlapping, intervals), sut.getOverlapping(begin, end));
+				assertEquals(overlapping.size(), sut.countOverlapping(begin, end));
+				assertEquals(!overlapping.isEmpty(), sut.overlapsAny(begin, end));
+				assertArrayEquals(sorted(containing, intervals), collect(c-> sut.forEachContaining(begin, end, c)));
+				assertArrayEquals(sorted(containedIn, intervals), collect(c-> sut.forEachContainedIn(begin, end, c)));
+				
+				int nearest = sut.getNearest(begin, end);
+				long expectedDistance = Long.MAX_VALUE;
+				for(int i=0; i< size; i++){
+					expectedDistance = Math.min(expectedDistance, distance(intervals[i], begin, end));
+				}
+				assertEquals(expectedDistance, distance(intervals[nearest], begin, end));
+			}
+		}
+	}
+	
+	private static long distance(long[] interval, long begin, long end){
+		if(interval[0] <= end && interval[1] >= begin){
+			return 0;
+		}
+		if(interval[1] < begin){
+			return begin - interval[1];
+		}
+		return interval[0] - end;
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void negativeCapacityShouldThrowIllegalArgumentException(){
+		new LongIntervalTree.Builder(-1);
+	}
+}
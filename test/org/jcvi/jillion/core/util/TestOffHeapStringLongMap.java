@@ -0,0 +1,219 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.core.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.jcvi.jillion.internal.core.util.OffHeapStringLongMap;
+import org.junit.Test;
+
+public class TestOffHeapStringLongMap {
+
+	private final OffHeapStringLongMap sut = new OffHeapStringLongMap();
+	
+	private static List<String> toList(Iterator<String> iter){
+		List<String> list = new ArrayList<>();
+		iter.forEachRemaining(list::add);
+		return list;
+	}
+	
+	@Test
+	public void emptyMap(){
+		assertEquals(0, sut.size());
+		assertEquals(-1, sut.get("id"));
+		assertFalse(sut.containsKey("id"));
+		assertFalse(sut.idIterator().hasNext());
+	}
+	
+	@Test
+	public void putAndGet(){
+		assertEquals(-1, sut.put("read1", 1234));
+		assertEquals(-1, sut.put("read2", 0));
+		assertEquals(-1, sut.put("", OffHeapStringLongMap.MAX_VALUE));
+		
+		assertEquals(3, sut.size());
+		assertEquals(1234, sut.get("read1"));
+		assertEquals(0, sut.get("read2"));
+		assertEquals(OffHeapStringLongMap.MAX_VALUE, sut.get(""));
+		assertTrue(sut.containsKey("read2"));
+		assertFalse(sut.containsKey("read3"));
+	}
+	
+	@Test
+	public void putSameIdReplacesValueButKeepsOrder(){
+		sut.put("a", 1);
+		sut.put("b", 2);
+		assertEquals(1, sut.put("a", 3));
+		
+		assertEquals(2, sut.size());
+		assertEquals(3, sut.get("a"));
+		assertEquals(List.of("a", "b"), toList(sut.idIterator()));
+	}
+	
+	@Test
+	public void unicodeAndLongIds(){
+		StringBuilder builder = new StringBuilder();
+		for(int i=0; i< 500; i++){
+			builder.append("é中");
+		}
+		String longId = builder.toString();
+		sut.put(longId, 42);
+		sut.put("é", 43);
+		assertEquals(42, sut.get(longId));
+		assertEquals(43, sut.get("é"));
+		assertEquals(List.of(longId, "é"), toList(sut.idIterator()));
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void negativeValueShouldThrowIllegalArgumentException(){
+		sut.put("id", -1);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void valueTooLargeShouldThrowIllegalArgumentException(){
+		sut.put("id", OffHeapStringLongMap.MAX_VALUE +1);
+	}
+	
+	@Test
+	public void manyRandomIdsMatchLinkedHashMap(){
+		Random random = new Random(1234);
+		Map<String, Long> expected = new LinkedHashMap<>();
+		for(int i=0; i< 100_000; i++){
+			String id = "read_" + random.nextInt(80_000);
+			long value = random.nextLong() & OffHeapStringLongMap.MAX_VALUE;
+			expected.put(id, value);
+			sut.put(id, value);
+		}
+		assertEquals(expected.size(), sut.size());
+		for(Map.Entry<String, Long> entry : expected.entrySet()){
+			assertEquals(entry.getValue().longValue(), sut.get(entry.getKey()));
+		}
+		assertEquals(new ArrayList<>(expected.keySet()), toList(sut.idIterator()));
+		assertEquals(-1, sut.get("read_80000"));
+	}
+	
+	@Test
+	public void idsSpanningSeveralArenaPages(){
+		//~1KB ids so 20,000 of them won't fit in one 16MB page
+		char[] padding = new char[1000];
+		Arrays.fill(padding, 'x');
+		String suffix = new String(padding);
+		List<String> ids = new ArrayList<>();
+		for(int i=0; i< 20_000; i++){
+			String id = i + suffix;
+			ids.add(id);
+			sut.put(id, i);
+		}
+		for(int i=0; i< ids.size(); i++){
+			assertEquals(i, sut.get(ids.get(i)));
+		}
+		assertEquals(ids, toList(sut.idIterator()));
+	}
+	
+	@Test
+	public void smallMapOnlyAllocatesAFewKilobytes(){
+		for(int i=0; i< 10; i++){
+			sut.put("read" + i, i);
+		}
+		assertTrue(Long.toString(sut.getAllocatedBytes()), sut.getAllocatedBytes() < 8 * 1024);
+	}
+	
+	@Test
+	public void idLongerThanInitialPageGrowsPage(){
+		OffHeapStringLongMap small = new OffHeapStringLongMap(1);
+		char[] chars = new char[100_000];
+		Arrays.fill(chars, 'y');
+		String longId = new String(chars);
+		small.put("a", 1);
+		small.put(longId, 2);
+		small.put("b", 3);
+		
+		assertEquals(1, small.get("a"));
+		assertEquals(2, small.get(longId));
+		assertEquals(3, small.get("b"));
+		assertEquals(List.of("a", longId, "b"), toList(small.idIterator()));
+	}
+	
+	@Test
+	public void expectedSizeOnlyChangesInitialAllocation(){
+		OffHeapStringLongMap presized = new OffHeapStringLongMap(100_000);
+		assertTrue(presized.getAllocatedBytes() > sut.getAllocatedBytes());
+		for(int i=0; i< 200_000; i++){
+			presized.put("read" + i, i);
+		}
+		assertEquals(200_000, presized.size());
+		for(int i=0; i< 200_000; i+=997){
+			assertEquals(i, presized.get("read" + i));
+		}
+	}
+	
+	@Test
+	public void clear(){
+		sut.put("a", 1);
+		sut.clear();
+		assertEquals(0, sut.size());
+		assertEquals(-1, sut.get("a"));
+		sut.put("b", 2);
+		assertEquals(List.of("b"), toList(sut.idIterator()));
+	}
+	
+	@Test
+	public void mapViewStoresValuesThatCanNotBeEncodedOnHeap(){
+		Map<String, String> map = OffHeapStringLongMap.createMap(Long::toString, s-> s.startsWith("-")? -1 : Long.parseLong(s));
+		assertNull(map.put("a", "10"));
+		assertNull(map.put("b", "-5"));
+		assertNull(map.put("c", "20"));
+		
+		assertEquals("10", map.get("a"));
+		assertEquals("-5", map.get("b"));
+		assertEquals("20", map.get("c"));
+		assertNull(map.get("d"));
+		assertNull(map.get(Integer.valueOf(1)));
+		assertEquals(3, map.size());
+		assertEquals(List.of("a", "b", "c"), new ArrayList<>(map.keySet()));
+		
+		assertEquals("-5", map.put("b", "7"));
+		assertEquals("7", map.get("b"));
+		assertEquals("10", map.put("a", "-2"));
+		assertEquals("-2", map.get("a"));
+		
+		Map<String, String> expected = new LinkedHashMap<>();
+		expected.put("a", "-2");
+		expected.put("b", "7");
+		expected.put("c", "20");
+		assertEquals(expected, map);
+		
+		map.clear();
+		assertTrue(map.isEmpty());
+		assertFalse(map.containsKey("a"));
+	}
+}
@@ -7,8 +7,11 @@ import static org.junit.Assert.*;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map.Entry;
+import java.util.Random;
 
 import org.jcvi.jillion.core.Range;
+import org.jcvi.jillion.core.util.RangeMap.IntersectionOptions;
 import org.junit.Before;
 public class TestRangeMap {
 
@@ -71,4 +74,77 @@ public class TestRangeMap {
 		
 		assertEquals(Collections.emptyList(), found2);
 	}
+	
+	private List<Integer> query(IntersectionOptions options){
+		List<Integer> found = new ArrayList<Integer>();
+		sut.getAllThatIntersect(options, (r, v, callback)-> found.add(v));
+		return found;
+	}
+	/**
+	 * Same as the intersection options but always
+	 * checks every Range in the map.
+	 */
+	private List<Integer> bruteForce(IntersectionOptions options){
+		return query((r, callback)-> options.intersects(r, callback));
+	}
+	
+	@Test
+	public void indexedQueriesSameAsCheckingEveryRange() {
+		Random random = new Random(1);
+		for(int i=0; i< 500; i++) {
+			long begin = random.nextInt(5000);
+			sut.put(Range.of(begin, begin + random.nextInt(200)), i);
+		}
+		for(int i=0; i< 100; i++) {
+			long begin = random.nextInt(5000);
+			Range range = Range.of(begin, begin + random.nextInt(300));
+			Range range2 = Range.of(begin +500, begin + 500 + random.nextInt(30));
+			
+			assertEquals(bruteForce(IntersectionOptions.intersect(range)), query(IntersectionOptions.intersect(range)));
+			assertEquals(bruteForce(IntersectionOptions.intersect(List.of(range, range2))), query(IntersectionOptions.intersect(List.of(range, range2))));
+			assertEquals(bruteForce(IntersectionOptions.abuts(range)), query(IntersectionOptions.abuts(range)));
+			assertEquals(bruteForce(IntersectionOptions.abuts(List.of(range, range2))), query(IntersectionOptions.abuts(List.of(range, range2))));
+			assertEquals(bruteForce(IntersectionOptions.intersectEdgesAtMostOnceEach(range, 5)), query(IntersectionOptions.intersectEdgesAtMostOnceEach(range, 5)));
+			assertEquals(bruteForce(IntersectionOptions.superRangeOf(range2)), query(IntersectionOptions.superRangeOf(range2)));
+		}
+	}
+	
+	@Test
+	public void haltStopsIndexedQuery() {
+		sut.put(Range.of(1,10), 1);
+		sut.put(Range.of(5,15), 2);
+		sut.put(Range.of(8,20), 3);
+		List<Integer> found = new ArrayList<Integer>();
+		sut.getAllThatIntersect(Range.of(9,9), (r, v, callback)-> {
+			found.add(v);
+			callback.halt();
+		});
+		assertEquals(List.of(1), found);
+	}
+	
+	@Test
+	public void modificationsAfterQueryAreSeen() {
+		sut.put(Range.of(1,10), 1);
+		assertEquals(List.of(1), query(IntersectionOptions.intersect(Range.of(5,25))));
+		
+		sut.put(Range.of(20,30), 2);
+		assertEquals(List.of(1, 2), query(IntersectionOptions.intersect(Range.of(5,25))));
+		
+		sut.remove(Range.of(1,10));
+		assertEquals(List.of(2), query(IntersectionOptions.intersect(Range.of(5,25))));
+	}
+	
+	@Test
+	public void nearest() {
+		assertNull(sut.getNearest(Range.of(1,10)));
+		sut.put(Range.of(1,10), 1);
+		sut.put(Range.of(50,60), 2);
+		
+		Entry<Range, Integer> nearest = sut.getNearest(Range.of(40,42));
+		assertEquals(Range.of(50,60), nearest.getKey());
+		assertEquals(Integer.valueOf(2), nearest.getValue());
+		
+		assertEquals(Integer.valueOf(1), sut.getNearest(Range.of(12,14)).getValue());
+		assertEquals(Integer.valueOf(2), sut.getNearest(Range.of(55,100)).getValue());
+	}
 }
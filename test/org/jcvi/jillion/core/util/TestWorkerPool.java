@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Jillion development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ *
+ *          http://www.gnu.org/copyleft/lesser.html
+ *
+ *
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ *
+ * Information about Jillion can be found on its homepage
+ *
+ *         http://jillion.sourceforge.net
+ *
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.core.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jcvi.jillion.internal.core.util.WorkerPool;
+import org.junit.Test;
+
+public class TestWorkerPool {
+
+	@Test(expected = IllegalArgumentException.class)
+	public void zeroMaxConcurrentTasksShouldThrowIllegalArgumentException(){
+		new WorkerPool(0);
+	}
+	
+	@Test
+	public void neverRunsMoreThanMaxConcurrentTasks() throws InterruptedException, ExecutionException{
+		WorkerPool sut = new WorkerPool(3);
+		AtomicInteger running = new AtomicInteger();
+		AtomicInteger maxRunning = new AtomicInteger();
+		List<Future<Integer>> futures = new ArrayList<>();
+		for(int i=0; i< 100; i++){
+			int value = i;
+			futures.add(sut.submit(()->{
+				int current = running.incrementAndGet();
+				maxRunning.accumulateAndGet(current, Math::max);
+				Thread.sleep(1);
+				running.decrementAndGet();
+				return value;
+			}));
+		}
+		for(int i=0; i< futures.size(); i++){
+			assertEquals(Integer.valueOf(i), futures.get(i).get());
+		}
+		assertTrue(Integer.toString(maxRunning.get()), maxRunning.get() <= 3);
+	}
+	
+	@Test
+	public void tasksOfDifferentPoolsDontBlockEachOther() throws InterruptedException, ExecutionException{
+		CountDownLatch latch = new CountDownLatch(1);
+		WorkerPool outer = new WorkerPool(1);
+		WorkerPool inner = new WorkerPool(1);
+		
+		Future<Boolean> waiting = outer.submit(()-> latch.await(10, TimeUnit.SECONDS));
+		inner.submit(latch::countDown).get();
+		
+		assertTrue(waiting.get());
+	}
+	
+	@Test
+	public void cancelAllStopsRunningAndQueuedTasks() throws Exception{
+		WorkerPool sut = new WorkerPool(1);
+		CountDownLatch started = new CountDownLatch(1);
+		Future<?> running = sut.submit(()->{
+			started.countDown();
+			Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+			return null;
+		});
+		Future<?> queued = sut.submit(()-> "never run");
+		started.await();
+		
+		sut.cancelAll();
+		
+		assertTrue(running.isCancelled());
+		assertTrue(queued.isCancelled());
+		//pool still usable
+		assertEquals("still usable", sut.submit(()-> "still usable").get(10, TimeUnit.SECONDS));
+	}
+	
+	@Test(expected = ExecutionException.class)
+	public void exceptionThrownByTaskIsThrownByFuture() throws InterruptedException, ExecutionException{
+		new WorkerPool(1).submit((Callable<Void>) ()->{ throw new IllegalStateException("expected");}).get();
+	}
+}
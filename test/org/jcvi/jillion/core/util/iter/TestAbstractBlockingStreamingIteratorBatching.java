@@ -0,0 +1,142 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.core.util.iter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jcvi.jillion.internal.core.util.iter.AbstractBlockingStreamingIterator;
+import org.junit.Test;
+
+public class TestAbstractBlockingStreamingIteratorBatching {
+
+	private static class CountingIterator extends AbstractBlockingStreamingIterator<Integer>{
+		private final int numberOfElements;
+		private final CountDownLatch finished = new CountDownLatch(1);
+		
+		CountingIterator(int numberOfElements, int cacheSize, Executor executor){
+			super(cacheSize, executor);
+			this.numberOfElements = numberOfElements;
+		}
+		
+		@Override
+		protected void backgroundThreadRunMethod() throws RuntimeException {
+			try{
+				for(int i=0; i< numberOfElements; i++){
+					blockingPut(Integer.valueOf(i));
+				}
+			}finally{
+				finished.countDown();
+			}
+		}
+	}
+	
+	private void assertIteratesInOrder(int numberOfElements, int cacheSize){
+		try(CountingIterator iter = new CountingIterator(numberOfElements, cacheSize, null)){
+			iter.start();
+			for(int i=0; i< numberOfElements; i++){
+				assertTrue(iter.hasNext());
+				assertEquals(i, iter.next().intValue());
+			}
+			assertFalse(iter.hasNext());
+		}
+	}
+	
+	@Test
+	public void cacheSizeOfOne(){
+		assertIteratesInOrder(1_000, 1);
+	}
+	
+	@Test
+	public void partialLastBatch(){
+		assertIteratesInOrder(AbstractBlockingStreamingIterator.MAX_BATCH_SIZE *3 +5, 10_000);
+	}
+	
+	@Test
+	public void cacheSizeSmallerThanMaxBatchSize(){
+		assertIteratesInOrder(1_003, 10);
+	}
+	
+	@Test
+	public void noElements(){
+		assertIteratesInOrder(0, 100);
+	}
+	
+	@Test
+	public void givenExecutorIsUsed(){
+		AtomicInteger count = new AtomicInteger();
+		Executor executor = r -> {
+			count.incrementAndGet();
+			new Thread(r).start();
+		};
+		try(CountingIterator iter = new CountingIterator(10, 5, executor)){
+			iter.start();
+			assertEquals(0, iter.next().intValue());
+		}
+		assertEquals(1, count.get());
+	}
+	
+	@Test(timeout = 10_000)
+	public void slowProducerDoesNotHoldBackPartialBatch() throws InterruptedException{
+		CountDownLatch firstElementSeen = new CountDownLatch(1);
+		AbstractBlockingStreamingIterator<Integer> iter = new AbstractBlockingStreamingIterator<Integer>(10_000){
+
+			@Override
+			protected void backgroundThreadRunMethod() throws RuntimeException {
+				blockingPut(Integer.valueOf(0));
+				//like waiting on a pipe for more data
+				try {
+					firstElementSeen.await();
+				} catch (InterruptedException e) {
+					throw new IllegalStateException(e);
+				}
+				blockingPut(Integer.valueOf(1));
+			}
+		};
+		try{
+			//start() blocks until the first element is available
+			iter.start();
+			firstElementSeen.countDown();
+			assertEquals(0, iter.next().intValue());
+			assertEquals(1, iter.next().intValue());
+			assertFalse(iter.hasNext());
+		}finally{
+			iter.close();
+		}
+	}
+	
+	@Test
+	public void closingEarlyStopsBackgroundTask() throws InterruptedException{
+		CountingIterator iter = new CountingIterator(Integer.MAX_VALUE, 1, null);
+		iter.start();
+		assertEquals(0, iter.next().intValue());
+		iter.close();
+		
+		assertFalse(iter.hasNext());
+		assertTrue(iter.finished.await(10, TimeUnit.SECONDS));
+	}
+}
@@ -29,6 +29,7 @@ import org.junit.runners.Suite.SuiteClasses;
 	TestPrimerDetector.class,
 	TestPrimerDetector_ActualData.class,
 	TestPrimerDetectorInternalPrimerHit.class,
+	TestPrimerIndex.class,
 	
 	TestSaltCorrectionStrategy.class,
 	TestOptimalMeltingTemperatureEstimatorMatchesDnaMate.class
@@ -0,0 +1,137 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.experimental.primer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.jcvi.jillion.core.datastore.DataStoreException;
+import org.jcvi.jillion.core.util.iter.StreamingIterator;
+import org.jcvi.jillion.experimental.primer.PrimerDetector.PrimerHit;
+import org.jcvi.jillion.fasta.nt.NucleotideFastaDataStore;
+import org.jcvi.jillion.fasta.nt.NucleotideFastaFileDataStore;
+import org.jcvi.jillion.fasta.nt.NucleotideFastaRecord;
+import org.jcvi.jillion.internal.ResourceHelper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestPrimerIndex {
+	private static final ResourceHelper RESOURCES = new ResourceHelper(TestPrimerIndex.class);
+	
+	private NucleotideFastaDataStore primerDataStore;
+	private NucleotideFastaDataStore sequences;
+	
+	@Before
+	public void setup() throws IOException{
+		primerDataStore =  NucleotideFastaFileDataStore.fromFile(RESOURCES.getFile("files/primers.fasta"));
+		sequences =  NucleotideFastaFileDataStore.fromFile(RESOURCES.getFile("files/fullLength.fasta"));
+	}
+	
+	@After
+	public void closeDataStores() throws IOException{
+		primerDataStore.close();
+		sequences.close();
+	}
+	
+	private static List<String> asStrings(List<PrimerHit> hits){
+		return hits.stream()
+				.map(PrimerHit::toString)
+				.collect(Collectors.toList());
+	}
+	
+	private void assertSameHitsAsFullAlignment(PrimerDetector detector, int expectedSeedSize) throws DataStoreException{
+		PrimerIndex index = detector.createIndex(primerDataStore);
+		assertEquals(2, index.getNumberOfPrimers());
+		assertEquals(expectedSeedSize, index.getSeedSize());
+		int numberOfHits=0;
+		try(StreamingIterator<NucleotideFastaRecord> iter = sequences.iterator()){
+			while(iter.hasNext()){
+				NucleotideFastaRecord record = iter.next();
+				List<String> expected = asStrings(detector.detect(record.getSequence(), primerDataStore));
+				
+				assertEquals(record.getId(), expected, asStrings(index.detect(record.getSequence())));
+				numberOfHits += expected.size();
+			}
+		}
+		assertTrue(numberOfHits >0);
+	}
+	
+	@Test
+	public void percentIdentityAlignsWholeSequence() throws DataStoreException{
+		assertSameHitsAsFullAlignment(new PrimerDetector(13, .9F), PrimerIndex.FULL_ALIGNMENT);
+	}
+	
+	@Test
+	public void maxMismatchesTooManyForSeedsAlignsWholeSequence() throws DataStoreException{
+		assertSameHitsAsFullAlignment(PrimerDetector.create(13, 2), PrimerIndex.FULL_ALIGNMENT);
+	}
+	
+	@Test
+	public void maxMismatchesSeeded() throws DataStoreException{
+		assertSameHitsAsFullAlignment(PrimerDetector.create(20, 1), 9);
+	}
+	
+	@Test
+	public void computedSeedSize(){
+		assertEquals(PrimerIndex.FULL_ALIGNMENT, PrimerIndex.computeSeedSize(13, 2));
+		assertEquals(4, PrimerIndex.computeSeedSize(14, 2));
+		assertEquals(9, PrimerIndex.computeSeedSize(20, 1));
+		assertEquals(PrimerIndex.MAX_SEED_SIZE, PrimerIndex.computeSeedSize(100, 0));
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void seedSizeTooLargeShouldThrowIllegalArgumentException() throws DataStoreException{
+		new PrimerDetector(13, .9F).createIndex(primerDataStore, PrimerIndex.MAX_SEED_SIZE +1);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void seedSizeZeroShouldThrowIllegalArgumentException() throws DataStoreException{
+		new PrimerDetector(13, .9F).createIndex(primerDataStore, 0);
+	}
+	
+	@Test
+	public void multiThreadedDetectShouldHandOffInOrder() throws IOException{
+		PrimerDetector detector = PrimerDetector.create(20, 1);
+		PrimerIndex index = detector.createIndex(primerDataStore);
+		
+		List<String> expectedIds = new ArrayList<>();
+		List<List<String>> expectedHits = new ArrayList<>();
+		sequences.forEach((id, record)->{
+			expectedIds.add(id);
+			expectedHits.add(asStrings(index.detect(record.getSequence())));
+		});
+		
+		List<String> actualIds = new ArrayList<>();
+		List<List<String>> actualHits = new ArrayList<>();
+		detector.detect(sequences, primerDataStore, 4, (id, hits)->{
+			actualIds.add(id);
+			actualHits.add(asStrings(hits));
+		});
+		assertEquals(expectedIds, actualIds);
+		assertEquals(expectedHits, actualHits);
+	}
+}
@@ -39,12 +39,14 @@ import org.junit.runners.Suite.SuiteClasses;
      
      TestLargeNucleotideFastaFileDataStore.class,
      TestIndexedNucleotideFastaFileDataStore.class,
+     TestPersistentIndexNucleotideFastaFileDataStore.class,
      TestLargeSequenceFastaMapWithNoComment.class,
      TestNucleotideDataStoreFastaAdatper.class,
      TestFastaSequenceDataStoreAdapter.class,
      TestStreamingDefaultSequenceDataStore.class,
      
      TestFaiNucleotideFastaFileDataStore.class,
+     TestMemoryMappedFaiNucleotideFastaFileDataStore.class,
      TestNucleotideFastaFileDataStoreWithFaiFile.class,
      
      
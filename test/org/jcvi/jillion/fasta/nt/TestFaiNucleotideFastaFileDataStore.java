@@ -21,6 +21,7 @@
 package org.jcvi.jillion.fasta.nt;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 
 import java.io.File;
 import java.io.IOException;
@@ -42,11 +43,15 @@ public class TestFaiNucleotideFastaFileDataStore {
 		File fasta = helper.getFile("files/no_extra_on_defline.XXXXX.combo2.i.contigs");
 		File fai = helper.getFile("files/no_extra_on_defline.XXXXX.combo2.i.contigs.fai");
 		delegate = DefaultNucleotideFastaFileDataStore.create(fasta);
-		sut = FaiNucleotideFastaFileDataStore.create(fasta, fai, delegate);
+		sut = createSut(fasta, fai, delegate);
 		
 		
 	}
 	
+	protected NucleotideFastaDataStore createSut(File fasta, File fai, NucleotideFastaDataStore delegate) throws IOException{
+		return FaiNucleotideFastaFileDataStore.create(fasta, fai, delegate);
+	}
+	
 	@Test
 	public void getSequence() throws DataStoreException{
 		String id = "MAINb";
@@ -74,4 +79,20 @@ public class TestFaiNucleotideFastaFileDataStore {
 		Range range = Range.of(123, 456);
 		assertEquals(delegate.getSubSequence(id, range), sut.getSubSequence(id, range));
 	}
+	
+	@Test
+	public void subSequencesSpanningLines() throws DataStoreException{
+		String id = "MAINb";
+		long length = delegate.getSequence(id).getLength();
+		for(long start = 0; start < length; start+=37){
+			Range range = Range.of(start, Math.min(length -1, start + 150));
+			assertEquals(range.toString(), delegate.getSubSequence(id, range), sut.getSubSequence(id, range));
+		}
+	}
+	
+	@Test
+	public void unknownIdShouldReturnNull() throws DataStoreException{
+		assertNull(sut.getSequence("not an id"));
+		assertNull(sut.getSubSequence("not an id", Range.of(1,2)));
+	}
 }
@@ -71,6 +71,16 @@ public class TestNucleotideFastaFileDataStoreWithFaiFile {
 			}
 		});
 		
+		//memory mapped
+		supplierList.add(()->{
+			try {
+				return new NucleotideFastaFileDataStoreBuilder(fastaFile, faiFile)
+								.memoryMapFastaFile(true);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+		
 		List<Object[]> ret = new ArrayList<>();
 		Consumer<NucleotideFastaFileDataStoreBuilder> noHint = (builder)->{};
 		Consumer<NucleotideFastaFileDataStoreBuilder> allInMemory = (builder)->builder.hint(DataStoreProviderHint.RANDOM_ACCESS_OPTIMIZE_SPEED);
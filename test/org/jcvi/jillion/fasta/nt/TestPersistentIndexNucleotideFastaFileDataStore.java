@@ -0,0 +1,94 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.fasta.nt;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.jcvi.jillion.core.datastore.DataStoreProviderHint;
+import org.jcvi.jillion.core.util.iter.StreamingIterator;
+import org.jcvi.jillion.internal.ResourceHelper;
+import org.jcvi.jillion.internal.core.datastore.SidecarIndex;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestPersistentIndexNucleotideFastaFileDataStore {
+
+	@Rule
+	public TemporaryFolder tmpDir = new TemporaryFolder();
+	
+	private NucleotideFastaFileDataStore create(File fastaFile) throws IOException{
+		return new NucleotideFastaFileDataStoreBuilder(fastaFile)
+							.hint(DataStoreProviderHint.RANDOM_ACCESS_OPTIMIZE_MEMORY)
+							.persistIndex(true)
+							.build();
+	}
+	
+	private static Map<String, NucleotideFastaRecord> toMap(NucleotideFastaDataStore datastore) throws IOException{
+		Map<String, NucleotideFastaRecord> map = new LinkedHashMap<>();
+		try(StreamingIterator<String> ids = datastore.idIterator()){
+			while(ids.hasNext()){
+				String id = ids.next();
+				map.put(id, datastore.get(id));
+			}
+		}
+		return map;
+	}
+	
+	@Test
+	public void reopeningUsesIndexFile() throws IOException{
+		File original = new ResourceHelper(TestPersistentIndexNucleotideFastaFileDataStore.class).getFile("files/19150.fasta");
+		File fastaFile = new File(tmpDir.getRoot(), "19150.fasta");
+		Files.copy(original.toPath(), fastaFile.toPath());
+		
+		Map<String, NucleotideFastaRecord> expected;
+		try(NucleotideFastaFileDataStore datastore = create(fastaFile)){
+			expected = toMap(datastore);
+		}
+		assertTrue(SidecarIndex.getIndexFileFor(fastaFile).exists());
+		
+		try(NucleotideFastaFileDataStore datastore = create(fastaFile)){
+			assertEquals(expected.size(), datastore.getNumberOfRecords());
+			assertEquals(expected, toMap(datastore));
+		}
+	}
+	
+	@Test
+	public void changedFastaFileRebuildsIndex() throws IOException{
+		File fastaFile = tmpDir.newFile("changed.fasta");
+		Files.write(fastaFile.toPath(), ">a\nACGT\n>b\nGGGG\n".getBytes());
+		try(NucleotideFastaFileDataStore datastore = create(fastaFile)){
+			assertEquals(2, datastore.getNumberOfRecords());
+		}
+		Files.write(fastaFile.toPath(), ">c\nACGT\n>a\nTT\n>b\nGGGG\n".getBytes());
+		try(NucleotideFastaFileDataStore datastore = create(fastaFile)){
+			assertEquals(3, datastore.getNumberOfRecords());
+			assertEquals("TT", datastore.get("a").getSequence().toString());
+		}
+	}
+}
@@ -0,0 +1,122 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.orf;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.jcvi.jillion.core.residue.aa.IupacTranslationTables;
+import org.jcvi.jillion.core.residue.nt.Nucleotide;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequence;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequenceBuilder;
+import org.jcvi.jillion.fasta.FastaCollectors;
+import org.jcvi.jillion.fasta.nt.NucleotideFastaDataStore;
+import org.jcvi.jillion.fasta.nt.NucleotideFastaRecordBuilder;
+import org.jcvi.jillion.orf.OrfFinder.FinderOptions;
+import org.junit.Test;
+
+public class TestOrfFinderSixFrame {
+
+	private static final List<NucleotideSequence> SEQUENCES = Stream.of(
+			"ATGCAATGGGGAAATGTTACCAGGTCCGAACTTATTGAGGTAAGACAGATTTAA",
+			"TTACTNATGRAATGGTTTCCCAGGTAAATGCATGGTGCTAGCATTTCATAA",
+			"TTAAATCTGTCTTACCTCAATAAGTTCGGACCTGGTAACATTTCCCCATTGCAT",
+			"CCCATGAAATTTGGGTAG",
+			"AT")
+			.map(NucleotideSequence::of)
+			.collect(Collectors.toList());
+	
+	private final OrfFinder sut = new OrfFinder();
+	/**
+	 * A trailing gap makes the OrfFinder translate each frame separately
+	 * without changing any forward coordinates.
+	 */
+	private List<Orf> findForwardTranslatingEachFrame(NucleotideSequence seq){
+		return sut.find(seq.toBuilder().append(Nucleotide.Gap).build(), 
+				IupacTranslationTables.STANDARD, FinderOptions.SEARCH_FORWARD);
+	}
+	
+	@Test
+	public void forwardOrfsSameAsTranslatingEachFrame(){
+		for(NucleotideSequence seq : SEQUENCES){
+			assertEquals(seq.toString(), findForwardTranslatingEachFrame(seq), 
+					sut.find(seq, IupacTranslationTables.STANDARD, FinderOptions.SEARCH_FORWARD));
+		}
+	}
+	
+	@Test
+	public void reverseOrfsSameAsTranslatingEachFrame(){
+		for(NucleotideSequence seq : SEQUENCES){
+			//a leading gap becomes a trailing gap of the reverse complement
+			NucleotideSequence gapped = new NucleotideSequenceBuilder()
+												.append(Nucleotide.Gap)
+												.append(seq)
+												.build();
+			assertEquals(seq.toString(), 
+					sut.find(gapped, IupacTranslationTables.STANDARD, FinderOptions.SEARCH_REVERSE), 
+					sut.find(seq, IupacTranslationTables.STANDARD, FinderOptions.SEARCH_REVERSE));
+		}
+	}
+	
+	@Test
+	public void multiThreadedDataStoreHandsOffInOrder() throws IOException{
+		List<String> expectedIds = new ArrayList<>();
+		List<List<Orf>> expectedOrfs = new ArrayList<>();
+		List<NucleotideFastaRecordBuilder> builders = new ArrayList<>();
+		//enough sequences for several batches
+		for(int i=0; i< 1000; i++){
+			NucleotideSequence seq = SEQUENCES.get(i % SEQUENCES.size());
+			String id = "seq" + i;
+			expectedIds.add(id);
+			expectedOrfs.add(sut.find(seq));
+			builders.add(new NucleotideFastaRecordBuilder(id, seq));
+		}
+		try(NucleotideFastaDataStore datastore = builders.stream()
+									.map(NucleotideFastaRecordBuilder::build)
+									.collect(FastaCollectors.toDataStore(NucleotideFastaDataStore.class))){
+			List<String> actualIds = new ArrayList<>();
+			List<List<Orf>> actualOrfs = new ArrayList<>();
+			sut.find(datastore, 3, (id, orfs)->{
+				actualIds.add(id);
+				actualOrfs.add(orfs);
+			});
+			assertEquals(expectedIds.size(), actualIds.size());
+			//in memory datastores may iterate in any order
+			for(int i=0; i< actualIds.size(); i++){
+				int index = Integer.parseInt(actualIds.get(i).substring(3));
+				assertEquals(expectedOrfs.get(index), actualOrfs.get(i));
+			}
+		}
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void zeroThreadsShouldThrowIllegalArgumentException() throws IOException{
+		try(NucleotideFastaDataStore datastore = Stream.of(new NucleotideFastaRecordBuilder("id", SEQUENCES.get(0)).build())
+									.collect(FastaCollectors.toDataStore(NucleotideFastaDataStore.class))){
+			sut.find(datastore, 0, (id, orfs)->{});
+		}
+	}
+}
@@ -54,12 +54,41 @@ public abstract class AbstractTestResortedSamFileWriter extends AbstractTestSamW
 		
 	}
 
+	@Test
+	public void coordinateSortSpillingTempFiles() throws IOException{
+		writeShuffledRecordsAndAssertWrittenInSortedOrder(SortOrder.COORDINATE, 2, Long.MAX_VALUE, 1);
+	}
+	@Test
+	public void queryNameSortSpillingTempFiles() throws IOException{
+		writeShuffledRecordsAndAssertWrittenInSortedOrder(SortOrder.QUERY_NAME, 2, Long.MAX_VALUE, 1);
+	}
+	@Test
+	public void coordinateSortSpillingTempFilesOnMultipleThreads() throws IOException{
+		writeShuffledRecordsAndAssertWrittenInSortedOrder(SortOrder.COORDINATE, 4, Long.MAX_VALUE, 3);
+	}
+	@Test
+	public void queryNameSortLimitedByMemory() throws IOException{
+		//every record is bigger than 1 byte so every record is its own temp file
+		writeShuffledRecordsAndAssertWrittenInSortedOrder(SortOrder.QUERY_NAME, 1000, 1, 1);
+	}
+	@Test
+	public void coordinateSortLimitedByMemoryOnMultipleThreads() throws IOException{
+		writeShuffledRecordsAndAssertWrittenInSortedOrder(SortOrder.COORDINATE, 1000, 1, 2);
+	}
+	
 	private void writeShuffledRecordsAndAssertWrittenInSortedOrder(
 			SortOrder sortOrder) throws IOException {
+		writeShuffledRecordsAndAssertWrittenInSortedOrder(sortOrder, SamFileWriterBuilder.getDefaultRecordsToKeepInMemory(),
+				SamFileWriterBuilder.getDefaultBytesToKeepInMemory(), 1);
+	}
+	private void writeShuffledRecordsAndAssertWrittenInSortedOrder(
+			SortOrder sortOrder, int maxRecordsInMemory, long maxBytesInMemory, int numberOfThreads) throws IOException {
 		File f = createOutputSamOrBamFile();
 		SamWriter writer = new SamFileWriterBuilder(f, getHeader())
 									.setTempRootDir(tempDir.getRoot())
-									.reSortBy(sortOrder)
+									.reSortBy(sortOrder, maxRecordsInMemory)
+									.setReSortMemoryLimit(maxBytesInMemory)
+									.setReSortThreads(numberOfThreads)
 									.build();
 		List<SamRecord> unsortedRecords = getShuffledRecords();
 		
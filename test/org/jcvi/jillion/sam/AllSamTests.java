@@ -48,12 +48,17 @@ import org.junit.runners.Suite.SuiteClasses;
     	
     	TestResortedBamFileWriter.class,
     	TestResortedSamFileWriter.class,
+    	TestParallelBgzfCompression.class,
+    	TestMemoryMappedIndexedBam.class,
     	
     	AllBamIndexTests.class,
     	
     	AllSamTransformationServiceTests.class,
     	
     	TestBamParserImplementations.class,
+    	TestConcurrentBgzfInflation.class,
+    	TestShardedBamParser.class,
+    	TestLazyBamSamRecord.class,
     	
     	TestBamDataStore.class,
     	TestQuerySortedSamDataStore.class,
@@ -86,9 +86,20 @@ public class TestBamParserImplementations {
 					}};
 				
 			
+		Supplier<SamParser> memoryMapped = ()->{
+					try{
+						return SamParserFactory.create(RESOURCES.getFile("wgEncodeUwRepliSeqK562G1AlnRep1.bam"),
+								SamParserFactory.Parameters.builder()
+												.bgzfBlockCache(BgzfBlockCache.create(16))
+												.build());
+					}catch(IOException e){
+						throw new UncheckedIOException(e);
+					}};
+			
 		return Arrays.asList(new Object[]{ notIndexed},
 				new Object[]{implicitlyIndexed},
-				new Object[]{explicitlyIndexed});
+				new Object[]{explicitlyIndexed},
+				new Object[]{memoryMapped});
 	}
 	
 	
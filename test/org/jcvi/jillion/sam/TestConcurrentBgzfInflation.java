@@ -0,0 +1,151 @@
+/*******************************************************************************
+ * Jillion development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ *
+ *          http://www.gnu.org/copyleft/lesser.html
+ *
+ *
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ *
+ * Information about Jillion can be found on its homepage
+ *
+ *         http://jillion.sourceforge.net
+ *
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.sam;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jcvi.jillion.sam.SamParser.SamParserOptions;
+import org.jcvi.jillion.sam.SamVisitor.SamVisitorCallback.SamVisitorMemento;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestConcurrentBgzfInflation extends AbstractTestSamWriter{
+
+	@ClassRule
+	public static TemporaryFolder TMP_DIR = new TemporaryFolder();
+
+	private static File BAM_FILE;
+
+	@BeforeClass
+	public static void writeMultiBlockBam() throws IOException{
+		BAM_FILE = TMP_DIR.newFile("multiBlock.bam");
+		TestConcurrentBgzfInflation instance = new TestConcurrentBgzfInflation();
+		List<SamRecord> records = instance.getRecords();
+		try(SamWriter writer = new SamFileWriterBuilder(BAM_FILE, instance.getHeader()).build()){
+			//enough records to span many BGZF blocks
+			for(int i=0; i< 20_000; i++){
+				for(SamRecord r : records){
+					writer.writeRecord(r);
+				}
+			}
+		}
+	}
+
+	private static SamParser createParser(int numberOfThreads, int readAhead) throws IOException{
+		return SamParserFactory.create(BAM_FILE, SamParserFactory.Parameters.builder()
+														.bgzfInflaterThreads(numberOfThreads)
+														.bgzfReadAheadBlocks(readAhead)
+														.build());
+	}
+
+	@Test
+	public void recordsAndOffsetsMatchSingleThreadedParser() throws IOException{
+		OffsetCollector expected = new OffsetCollector();
+		createParser(1, 0).parse(expected);
+
+		OffsetCollector actual = new OffsetCollector();
+		createParser(4, 0).parse(actual);
+
+		assertTrue(expected.offsets.size() > 100_000);
+		assertEquals(expected.records, actual.records);
+		assertEquals(expected.offsets, actual.offsets);
+	}
+
+	@Test
+	public void readAheadSmallerThanThreadCount() throws IOException{
+		OffsetCollector expected = new OffsetCollector();
+		createParser(1, 0).parse(expected);
+
+		OffsetCollector actual = new OffsetCollector();
+		createParser(3, 1).parse(actual);
+
+		assertEquals(expected.offsets, actual.offsets);
+	}
+
+	@Test
+	public void resumeFromMementoInMiddleOfFile() throws IOException{
+		SamParser sut = createParser(4, 8);
+		SamVisitorMemento[] memento = new SamVisitorMemento[1];
+		List<VirtualFileOffset> expectedOffsets = new ArrayList<>();
+		sut.parse(SamParserOptions.builder().createMementos(true).build(), new AbstractSamVisitor() {
+			int counter=0;
+			@Override
+			public void visitRecord(SamVisitorCallback callback, SamRecord record,
+					VirtualFileOffset start, VirtualFileOffset end) {
+				counter++;
+				if(counter == 50_000){
+					memento[0] = callback.createMemento();
+				}
+				if(counter >= 50_000){
+					expectedOffsets.add(start);
+				}
+			}
+		});
+
+		List<VirtualFileOffset> actualOffsets = new ArrayList<>();
+		sut.parse(new AbstractSamVisitor() {
+			@Override
+			public void visitRecord(SamVisitorCallback callback, SamRecord record,
+					VirtualFileOffset start, VirtualFileOffset end) {
+				actualOffsets.add(start);
+			}
+		}, memento[0]);
+
+		assertEquals(expectedOffsets, actualOffsets);
+	}
+
+	@Test
+	public void manyStreamsShareInflaterThreads() throws IOException{
+		for(int i=0; i< 50; i++){
+			try(BgzfInputStream in = BgzfInputStream.create(BAM_FILE, new VirtualFileOffset(0L), 4, 8)){
+				in.read();
+			}
+		}
+		//idle worker threads are reused instead of each stream starting 4 more
+		long workerThreads = Thread.getAllStackTraces().keySet().stream()
+										.filter(t-> t.getName().startsWith("jillion-worker"))
+										.count();
+		assertTrue(Long.toString(workerThreads), workerThreads < 50);
+	}
+
+	private static final class OffsetCollector extends AbstractSamVisitor{
+		private final List<VirtualFileOffset> offsets = new ArrayList<>();
+		private final List<SamRecord> records = new ArrayList<>();
+
+		@Override
+		public void visitRecord(SamVisitorCallback callback, SamRecord record,
+				VirtualFileOffset start, VirtualFileOffset end) {
+			offsets.add(start);
+			offsets.add(end);
+			if(records.size() < 1000){
+				records.add(record);
+			}
+		}
+	}
+}
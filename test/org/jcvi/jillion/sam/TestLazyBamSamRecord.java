@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.sam;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jcvi.jillion.core.Direction;
+import org.jcvi.jillion.internal.ResourceHelper;
+import org.jcvi.jillion.sam.SamParser.SamParserOptions;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class TestLazyBamSamRecord {
+
+	private static ResourceHelper RESOURCES = new ResourceHelper(TestLazyBamSamRecord.class);
+	
+	private static File BAM;
+	private static List<SamRecord> EXPECTED;
+	
+	@BeforeClass
+	public static void parseEagerly() throws IOException{
+		BAM = RESOURCES.getFile("index/index_test.bam");
+		EXPECTED = parse(SamParserFactory.create(BAM), SamParserOptions.DEFAULT);
+	}
+	
+	private static SamParser createLazyParser() throws IOException{
+		return SamParserFactory.create(BAM, SamParserFactory.Parameters.builder()
+													.lazyBamRecordDecoding(true)
+													.build());
+	}
+	
+	private static List<SamRecord> parse(SamParser parser, SamParserOptions options) throws IOException{
+		List<SamRecord> list = new ArrayList<>();
+		parser.parse(options, new AbstractSamVisitor() {
+			@Override
+			public void visitRecord(SamVisitorCallback callback, SamRecord record,
+					VirtualFileOffset start, VirtualFileOffset end) {
+				list.add(record);
+			}
+		});
+		return list;
+	}
+	
+	@Test
+	public void lazyRecordsEqualEagerRecords() throws IOException{
+		List<SamRecord> actual = parse(createLazyParser(), SamParserOptions.DEFAULT);
+		
+		assertTrue(actual.get(0) instanceof LazyBamSamRecord);
+		assertEquals(EXPECTED, actual);
+		//check the other direction too
+		assertEquals(actual, EXPECTED);
+		for(int i=0; i< actual.size(); i++){
+			assertEquals(EXPECTED.get(i).hashCode(), actual.get(i).hashCode());
+		}
+	}
+	
+	@Test
+	public void eachFieldDecodedOnDemandMatchesEagerRecord() throws IOException{
+		List<SamRecord> actual = parse(createLazyParser(), SamParserOptions.DEFAULT);
+		for(int i=0; i< actual.size(); i++){
+			SamRecord expected = EXPECTED.get(i);
+			SamRecord lazy = actual.get(i);
+			
+			assertEquals(expected.getFlags(), lazy.getFlags());
+			assertEquals(expected.getReferenceName(), lazy.getReferenceName());
+			assertEquals(expected.getStartPosition(), lazy.getStartPosition());
+			assertEquals(expected.getMappingQuality(), lazy.getMappingQuality());
+			assertEquals(expected.mapped(), lazy.mapped());
+			assertEquals(expected.getDirection(), lazy.getDirection());
+			assertEquals(expected.isPrimary(), lazy.isPrimary());
+			assertEquals(expected.getNextName(), lazy.getNextName());
+			assertEquals(expected.getNextPosition(), lazy.getNextPosition());
+			assertEquals(expected.getObservedTemplateLength(), lazy.getObservedTemplateLength());
+			assertEquals(expected.getQueryName(), lazy.getQueryName());
+			assertEquals(expected.getCigar(), lazy.getCigar());
+			assertEquals(expected.getAlignmentRange(), lazy.getAlignmentRange());
+			assertEquals(expected.getSequence(), lazy.getSequence());
+			assertEquals(expected.getQualities(), lazy.getQualities());
+			assertEquals(new ArrayList<>(expected.getAttributes()), new ArrayList<>(lazy.getAttributes()));
+		}
+	}
+	
+	@Test
+	public void filterOnFlagsOnlyDoesNotDecodeRecord() throws IOException{
+		List<SamRecord> actual = parse(createLazyParser(), SamParserOptions.builder()
+															.filter(SamRecordFilter.wrap(r-> r.mapped() && r.getDirection() == Direction.REVERSE))
+															.build());
+		List<SamRecord> expected = new ArrayList<>();
+		for(SamRecord r : EXPECTED){
+			if(r.mapped() && r.getDirection() == Direction.REVERSE){
+				expected.add(r);
+			}
+		}
+		assertFalse(expected.isEmpty());
+		assertEquals(expected.size(), actual.size());
+		for(SamRecord r : actual){
+			assertFalse(((LazyBamSamRecord) r).isFullyDecoded());
+		}
+		assertEquals(expected, actual);
+	}
+}
@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.sam;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jcvi.jillion.core.Range;
+import org.jcvi.jillion.internal.ResourceHelper;
+import org.jcvi.jillion.sam.header.SamReferenceSequence;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestMemoryMappedIndexedBam {
+
+	private static final ResourceHelper RESOURCES = new ResourceHelper(TestMemoryMappedIndexedBam.class);
+	
+	private File bam;
+	private String referenceName;
+	private Range range;
+	
+	@Before
+	public void setup() throws IOException{
+		bam = RESOURCES.getFile("index/index_test.bam");
+		SamReferenceSequence ref = SamParserFactory.create(bam).getHeader().getReferenceSequences().iterator().next();
+		referenceName = ref.getName();
+		range = Range.of(0, ref.getLength()/2);
+	}
+	
+	private SamParser createParser(BgzfBlockCache cache) throws IOException{
+		return SamParserFactory.create(bam, SamParserFactory.Parameters.builder()
+															.bgzfBlockCache(cache)
+															.build());
+	}
+	private static List<SamRecord> query(SamParser parser, String referenceName, Range range) throws IOException{
+		List<SamRecord> list = new ArrayList<>();
+		parser.parse(referenceName, range, new AbstractSamVisitor() {
+			@Override
+			public void visitRecord(SamVisitorCallback callback, SamRecord record,
+					VirtualFileOffset start, VirtualFileOffset end) {
+				list.add(record);
+			}
+		});
+		return list;
+	}
+	
+	@Test
+	public void sameRecordsAsStreamingQuery() throws IOException{
+		List<SamRecord> expected = query(SamParserFactory.create(bam), referenceName, range);
+		assertFalse(expected.isEmpty());
+		
+		assertEquals(expected, query(createParser(BgzfBlockCache.create(64)), referenceName, range));
+	}
+	
+	@Test
+	public void repeatedQueryReusesInflatedBlocks() throws IOException{
+		BgzfBlockCache cache = BgzfBlockCache.create(1024);
+		SamParser parser = createParser(cache);
+		List<SamRecord> expected = query(parser, referenceName, range);
+		long misses = cache.getMissCount();
+		assertTrue(misses > 0);
+		
+		assertEquals(expected, query(parser, referenceName, range));
+		assertEquals(misses, cache.getMissCount());
+		assertTrue(cache.getHitCount() > 0);
+	}
+	
+	@Test
+	public void cacheIsSharedAcrossParsers() throws IOException{
+		BgzfBlockCache cache = BgzfBlockCache.create(1024);
+		List<SamRecord> expected = query(createParser(cache), referenceName, range);
+		long misses = cache.getMissCount();
+		
+		assertEquals(expected, query(createParser(cache), referenceName, range));
+		assertEquals(misses, cache.getMissCount());
+	}
+	
+	@Test
+	public void cacheIsBounded() throws IOException{
+		BgzfBlockCache cache = BgzfBlockCache.create(2);
+		List<SamRecord> expected = query(SamParserFactory.create(bam), referenceName, range);
+		
+		assertEquals(expected, query(createParser(cache), referenceName, range));
+		assertTrue(cache.getNumberOfBlocks() <= 2);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void zeroSizedCacheShouldThrowIllegalArgumentException(){
+		BgzfBlockCache.create(0);
+	}
+}
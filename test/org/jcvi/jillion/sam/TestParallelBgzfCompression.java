@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Jillion development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ *
+ *          http://www.gnu.org/copyleft/lesser.html
+ *
+ *
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ *
+ * Information about Jillion can be found on its homepage
+ *
+ *         http://jillion.sourceforge.net
+ *
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.sam;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestParallelBgzfCompression extends AbstractTestSamWriter{
+
+	@Rule
+	public TemporaryFolder tmpDir = new TemporaryFolder();
+
+	private File write(String name, int numberOfThreads, int compressionLevel, SortOrder sortOrder, boolean createIndex) throws IOException{
+		File out = new File(tmpDir.getRoot(), name);
+		SamFileWriterBuilder builder = new SamFileWriterBuilder(out, getHeader())
+												.setTempRootDir(tmpDir.getRoot())
+												.setBamCompressionThreads(numberOfThreads)
+												.setBamCompressionLevel(compressionLevel)
+												.createBamIndex(createIndex);
+		if(sortOrder !=null){
+			//only 100 records in memory to force temp files
+			builder.reSortBy(sortOrder, 100);
+		}
+		List<SamRecord> records = getRecords();
+		try(SamWriter writer = builder.build()){
+			//enough records to span many BGZF blocks
+			for(int i=0; i< 5_000; i++){
+				for(SamRecord r : records){
+					writer.writeRecord(r);
+				}
+			}
+		}
+		return out;
+	}
+
+	private List<SamRecord> parse(File bam) throws IOException{
+		List<SamRecord> list = new ArrayList<>();
+		SamParserFactory.create(bam).parse(new AbstractSamVisitor() {
+			@Override
+			public void visitRecord(SamVisitorCallback callback, SamRecord record,
+					VirtualFileOffset start, VirtualFileOffset end) {
+				list.add(record);
+			}
+		});
+		return list;
+	}
+
+	@Test
+	public void presortedOutputIsByteForByteSameAsSingleThreaded() throws IOException{
+		File expected = write("serial.bam", 1, 5, null, false);
+		File actual = write("parallel.bam", 4, 5, null, false);
+
+		assertArrayEquals(Files.readAllBytes(expected.toPath()), Files.readAllBytes(actual.toPath()));
+	}
+
+	@Test
+	public void resortedOutputAndIndexAreSameAsSingleThreaded() throws IOException{
+		File expected = write("serial.bam", 1, 5, SortOrder.COORDINATE, true);
+		File actual = write("parallel.bam", 3, 5, SortOrder.COORDINATE, true);
+
+		assertArrayEquals(Files.readAllBytes(expected.toPath()), Files.readAllBytes(actual.toPath()));
+		assertArrayEquals(Files.readAllBytes(new File(tmpDir.getRoot(), "serial.bam.bai").toPath()),
+						Files.readAllBytes(new File(tmpDir.getRoot(), "parallel.bam.bai").toPath()));
+	}
+
+	@Test
+	public void differentCompressionLevelsParseTheSame() throws IOException{
+		List<SamRecord> expected = parse(write("level5.bam", 1, 5, null, false));
+		assertEquals(expected, parse(write("level1.bam", 4, 1, null, false)));
+		assertEquals(expected, parse(write("level9.bam", 4, 9, null, false)));
+		assertEquals(expected, parse(write("level0.bam", 2, 0, null, false)));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void invalidCompressionLevelShouldThrowIllegalArgumentException(){
+		new SamFileWriterBuilder(new File(tmpDir.getRoot(), "out.bam"), getHeader())
+					.setBamCompressionLevel(10);
+	}
+}
@@ -0,0 +1,216 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.sam;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.jcvi.jillion.core.residue.nt.NucleotideSequence;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequenceBuilder;
+import org.jcvi.jillion.sam.cigar.Cigar;
+import org.jcvi.jillion.sam.header.SamHeader;
+import org.jcvi.jillion.sam.header.SamHeaderBuilder;
+import org.jcvi.jillion.sam.header.SamReferenceSequenceBuilder;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestShardedBamParser {
+
+	@ClassRule
+	public static TemporaryFolder TMP_DIR = new TemporaryFolder();
+	
+	private static final int READ_LENGTH = 100;
+	
+	private static File BAM, BAI;
+	private static List<SamRecord> EXPECTED;
+	
+	@BeforeClass
+	public static void writeSortedIndexedBam() throws IOException{
+		SamHeader header = new SamHeaderBuilder()
+								.addReferenceSequence(new SamReferenceSequenceBuilder("chr1", 1_000_000).build())
+								.addReferenceSequence(new SamReferenceSequenceBuilder("empty", 1_000).build())
+								.addReferenceSequence(new SamReferenceSequenceBuilder("chr2", 200_000).build())
+								.setSortOrder(SortOrder.COORDINATE)
+								.build();
+		BAM = TMP_DIR.newFile("sharded.bam");
+		BAI = new File(BAM.getParentFile(), BAM.getName() + ".bai");
+		Random random = new Random(1234);
+		try(SamWriter writer = new SamFileWriterBuilder(BAM, header)
+									.createBamIndex(true)
+									.build()){
+			int counter=0;
+			for(int pos =1; pos < 1_000_000 - READ_LENGTH; pos+=50){
+				if(pos > 400_000 && pos < 450_000){
+					//gap in coverage with only an unmapped read placed in it
+					if(pos == 430_001){
+						writer.writeRecord(unmappedPlacedRead(header, "chr1", pos, counter++, random));
+					}
+					continue;
+				}
+				writer.writeRecord(mappedRead(header, "chr1", pos, counter++, random));
+				if(pos % 16_000 ==1){
+					writer.writeRecord(unmappedPlacedRead(header, "chr1", pos, counter++, random));
+				}
+			}
+			//placed before any mapped reads of chr2
+			writer.writeRecord(unmappedPlacedRead(header, "chr2", 1, counter++, random));
+			for(int pos =2; pos < 200_000 - READ_LENGTH; pos+=80){
+				writer.writeRecord(mappedRead(header, "chr2", pos, counter++, random));
+			}
+			for(int i=0; i< 100; i++){
+				writer.writeRecord(new SamRecordBuilder(header)
+										.setMapped(false)
+										.setQueryName("unplaced" + i)
+										.setSequence(randomSequence(random))
+										.build());
+			}
+		}
+		
+		AbstractTestSamWriter.SamDataCollector collector = new AbstractTestSamWriter.SamDataCollector();
+		SamParserFactory.create(BAM).parse(collector);
+		EXPECTED = collector.getRecords();
+	}
+	
+	private static SamRecord mappedRead(SamHeader header, String ref, int pos, int id, Random random){
+		return new SamRecordBuilder(header)
+						.setQueryName("read" + id)
+						.setReferenceName(ref)
+						.setStartPosition(pos)
+						.setMappingQuality(30)
+						.setCigar(Cigar.parse(READ_LENGTH + "M"))
+						.setSequence(randomSequence(random))
+						.build();
+	}
+	
+	private static SamRecord unmappedPlacedRead(SamHeader header, String ref, int pos, int id, Random random){
+		return new SamRecordBuilder(header)
+						.setMapped(false)
+						.setQueryName("read" + id)
+						.setReferenceName(ref)
+						.setStartPosition(pos)
+						.setSequence(randomSequence(random))
+						.build();
+	}
+	
+	private static NucleotideSequence randomSequence(Random random){
+		char[] bases = new char[READ_LENGTH];
+		for(int i=0; i< bases.length; i++){
+			bases[i] = "ACGT".charAt(random.nextInt(4));
+		}
+		return new NucleotideSequenceBuilder(bases).build();
+	}
+	
+	private static List<SamRecord> parseInOrder(ShardedBamParser sut, List<BamShard> shards) throws IOException{
+		List<SamRecord> actual = new ArrayList<>();
+		for(BamShard shard : shards){
+			AbstractTestSamWriter.SamDataCollector collector = new AbstractTestSamWriter.SamDataCollector();
+			sut.parse(shard, collector);
+			actual.addAll(collector.getRecords());
+		}
+		return actual;
+	}
+	
+	@Test
+	public void eachRecordIsInExactlyOneShard() throws IOException{
+		ShardedBamParser sut = ShardedBamParser.create(BAM, BAI);
+		List<BamShard> shards = sut.createShards(20);
+		
+		assertTrue(shards.size() > 5);
+		assertEquals(EXPECTED, parseInOrder(sut, shards));
+	}
+	
+	@Test
+	public void shardsOfAReferenceAreContiguous() throws IOException{
+		List<BamShard> shards = ShardedBamParser.create(BAM, BAI).createShards(20);
+		
+		String currentRef = null;
+		long expectedBegin = 0;
+		for(BamShard shard : shards){
+			if(shard.isUnplaced()){
+				assertNull(shard.getAlignmentStartRange());
+				continue;
+			}
+			if(!shard.getReferenceName().equals(currentRef)){
+				currentRef = shard.getReferenceName();
+				expectedBegin = 0;
+			}
+			assertEquals(expectedBegin, shard.getAlignmentStartRange().getBegin());
+			expectedBegin = shard.getAlignmentStartRange().getEnd() + 1;
+		}
+		assertTrue(shards.get(shards.size() -1).isUnplaced());
+	}
+	
+	@Test
+	public void oneShardRequestedIsOneShardPerReferenceWithReads() throws IOException{
+		ShardedBamParser sut = ShardedBamParser.create(BAM, BAI);
+		List<BamShard> shards = sut.createShards(1);
+		
+		assertEquals(3, shards.size());
+		assertEquals("chr1", shards.get(0).getReferenceName());
+		assertEquals("chr2", shards.get(1).getReferenceName());
+		assertTrue(shards.get(2).isUnplaced());
+		
+		assertEquals(EXPECTED, parseInOrder(sut, shards));
+	}
+	
+	@Test
+	public void parseShardsConcurrently() throws IOException{
+		ShardedBamParser sut = ShardedBamParser.create(BAM, BAI);
+		List<BamShard> shards = sut.createShards(20);
+		Map<BamShard, AbstractTestSamWriter.SamDataCollector> collectors = new HashMap<>();
+		
+		sut.parse(shards, 4, shard -> {
+			AbstractTestSamWriter.SamDataCollector collector = new AbstractTestSamWriter.SamDataCollector();
+			collectors.put(shard, collector);
+			return collector;
+		});
+		
+		List<SamRecord> actual = new ArrayList<>();
+		for(BamShard shard : shards){
+			AbstractTestSamWriter.SamDataCollector collector = collectors.get(shard);
+			assertEquals(sut.getHeader(), collector.getHeader());
+			actual.addAll(collector.getRecords());
+		}
+		assertEquals(EXPECTED, actual);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void zeroShardsShouldThrowIllegalArgumentException() throws IOException{
+		ShardedBamParser.create(BAM, BAI).createShards(0);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void zeroThreadsShouldThrowIllegalArgumentException() throws IOException{
+		ShardedBamParser sut = ShardedBamParser.create(BAM, BAI);
+		sut.parse(sut.createShards(2), 0, shard -> new AbstractSamVisitor(){});
+	}
+}
@@ -163,6 +163,29 @@ public class TestBamIndexWriter {
 
 	}
 
+
+	@Test
+	public void reSortedBamSpillingTempFilesShouldMatchPicardData() throws IOException{
+		
+		SamHeader originalHeader = parseSamHeaderFrom(bamFile);
+		File outputFile = tmpDir.newFile("resorted.bam");
+		//only keep 2 records in memory so the records
+		//are merged back from the temp files already encoded
+		SamWriter writer = new SamFileWriterBuilder(outputFile, originalHeader)
+				.setTempRootDir(tmpDir.newFolder())
+				.reSortBy(SortOrder.COORDINATE, 2)
+				.createBamIndex(true, true)
+				.build();
+		//closes the writer
+		writeAllRecords(bamFile, writer);
+		//don't compare the records since the unmapped reads
+		//at the end of the file get sorted differently
+		File actualBaiFile = new File(tmpDir.getRoot(),"resorted.bam.bai");
+		
+		BamIndex actualIndex = IndexUtil.parseIndex(new FileInputStream(actualBaiFile), originalHeader);
+		BamIndex expectedIndex = IndexUtil.parseIndex(new FileInputStream(expectedBaiFile), originalHeader);
+		assertIndexesAreSimilar(expectedIndex, actualIndex);
+	}
 	
 	private void assertSamFilesMatch(File expected, File actual) throws IOException{
 		assertSamFilesMatch(true,  expected, actual);
@@ -56,6 +56,7 @@ import org.junit.runners.Suite.SuiteClasses;
         TestFastqFileWithEmptyRead.class,
         
         TestIndexedFastQFileDataStore.class,
+        TestPersistentIndexFastqFileDataStore.class,
         TestDefaultFastqFileDataStoreMultilineGuessCodec.class,
         TestIndexedFastqFileDataStoreGuessCodec.class,
         TestIndexedMultilineFastqDataStore.class,
@@ -89,7 +90,8 @@ import org.junit.runners.Suite.SuiteClasses;
             
             TestReservoirDownsampler.class,
             TestSLeapDownsampler.class,
-            TestFastqFileIterator.class
+            TestFastqFileIterator.class,
+            TestParallelFastqFileParser.class
     }
     )
 public class AllFastqUnitTests {
@@ -0,0 +1,300 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.trace.fastq;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import org.jcvi.jillion.core.io.InputStreamSupplier;
+import org.jcvi.jillion.core.qual.QualitySequence;
+import org.jcvi.jillion.trace.fastq.FastqVisitor.FastqVisitorCallback.FastqVisitorMemento;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestParallelFastqFileParser {
+
+	@ClassRule
+	public static TemporaryFolder TMP_DIR = new TemporaryFolder();
+	
+	private static final int NUMBER_OF_RECORDS = 2_000;
+	
+	private static File FASTQ_FILE;
+	private static File BGZF_FILE;
+	
+	private static List<String> EXPECTED;
+	
+	@BeforeClass
+	public static void writeFastqFiles() throws IOException{
+		Random random = new Random(1234);
+		StringBuilder builder = new StringBuilder();
+		for(int i=0; i< NUMBER_OF_RECORDS; i++){
+			int length = 1+ random.nextInt(150);
+			StringBuilder seq = new StringBuilder(length);
+			StringBuilder qual = new StringBuilder(length);
+			for(int j=0; j< length; j++){
+				seq.append("ACGTN".charAt(random.nextInt(5)));
+				//quality lines often start with '@' and '+'
+				qual.append((char)('+' + random.nextInt(30)));
+			}
+			if(i%3==0){
+				qual.setCharAt(0, '@');
+			}
+			builder.append('@').append("read").append(i).append(" comment").append(i).append('\n')
+					.append(seq).append('\n')
+					.append(i%2==0 ? "+" : "+read"+i).append('\n')
+					.append(qual).append('\n');
+		}
+		byte[] bytes = builder.toString().getBytes(StandardCharsets.US_ASCII);
+		FASTQ_FILE = TMP_DIR.newFile("reads.fastq");
+		Files.write(FASTQ_FILE.toPath(), bytes);
+		
+		BGZF_FILE = TMP_DIR.newFile("reads.fastq.gz");
+		try(OutputStream out = new FileOutputStream(BGZF_FILE)){
+			//small blocks so chunks span many blocks
+			for(int offset=0; offset < bytes.length; offset+=1000){
+				writeBgzfBlock(out, bytes, offset, Math.min(1000, bytes.length - offset));
+			}
+			//EOF marker block
+			writeBgzfBlock(out, bytes, 0, 0);
+		}
+		
+		RecordCollector expected = new RecordCollector();
+		new FastqFileParserBuilder(FASTQ_FILE, true).hasComments(true).build().parse(expected);
+		EXPECTED = expected.records;
+		assertEquals(NUMBER_OF_RECORDS, EXPECTED.size());
+	}
+	
+	private static void writeBgzfBlock(OutputStream out, byte[] data, int offset, int length) throws IOException{
+		Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+		deflater.setInput(data, offset, length);
+		deflater.finish();
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		byte[] buf = new byte[4096];
+		while(!deflater.finished()){
+			int n = deflater.deflate(buf);
+			compressed.write(buf, 0, n);
+		}
+		deflater.end();
+		CRC32 crc = new CRC32();
+		crc.update(data, offset, length);
+		
+		int blockSize = 18 + compressed.size() + 8;
+		out.write(new byte[]{0x1f, (byte)0x8b, 8, 4, 0,0,0,0, 0, (byte)0xff, 6,0, 'B','C', 2,0,
+				(byte)((blockSize-1) & 0xFF), (byte)((blockSize-1)>>8)});
+		compressed.writeTo(out);
+		writeIntLE(out, (int) crc.getValue());
+		writeIntLE(out, length);
+	}
+	
+	private static void writeIntLE(OutputStream out, int value) throws IOException{
+		out.write(value & 0xFF);
+		out.write((value>>8) & 0xFF);
+		out.write((value>>16) & 0xFF);
+		out.write((value>>24) & 0xFF);
+	}
+	
+	private static FastqParser createSut(File file, int numberOfThreads, boolean preserveOrder, long chunkSize) throws IOException{
+		return new ParallelFastqFileParser(file, InputStreamSupplier.forFile(file), true, true, numberOfThreads, preserveOrder, chunkSize);
+	}
+	
+	@Test
+	public void orderedParseMatchesSingleThreaded() throws IOException{
+		for(long chunkSize : new long[]{257, 1000, 100_000, ParallelFastqFileParser.DEFAULT_CHUNK_SIZE}){
+			RecordCollector actual = new RecordCollector();
+			createSut(FASTQ_FILE, 4, true, chunkSize).parse(actual);
+			assertEquals("chunk size " + chunkSize, EXPECTED, actual.records);
+			assertEquals(1, actual.visitEndCount.get());
+		}
+	}
+	
+	@Test
+	public void unorderedParseVisitsEveryRecordOnce() throws IOException{
+		RecordCollector actual = new RecordCollector();
+		createSut(FASTQ_FILE, 4, false, 517).parse(actual);
+		
+		List<String> sortedExpected = new ArrayList<>(EXPECTED);
+		List<String> sortedActual = new ArrayList<>(actual.records);
+		Collections.sort(sortedExpected);
+		Collections.sort(sortedActual);
+		assertEquals(sortedExpected, sortedActual);
+		assertEquals(1, actual.visitEndCount.get());
+	}
+	
+	@Test
+	public void bgzfOrderedParseMatchesSingleThreaded() throws IOException{
+		for(long chunkSize : new long[]{999, 1000, 1001, 12_345}){
+			RecordCollector actual = new RecordCollector();
+			createSut(BGZF_FILE, 3, true, chunkSize).parse(actual);
+			assertEquals("chunk size " + chunkSize, EXPECTED, actual.records);
+		}
+	}
+	
+	@Test
+	public void builderWithThreadsMatchesSingleThreaded() throws IOException{
+		RecordCollector actual = new RecordCollector();
+		new FastqFileParserBuilder(BGZF_FILE, true)
+					.hasComments(true)
+					.numberOfThreads(4)
+					.build()
+					.parse(actual);
+		assertEquals(EXPECTED, actual.records);
+	}
+	
+	@Test
+	public void mementoCanBeUsedToResumeParsing() throws IOException{
+		FastqParser sut = createSut(FASTQ_FILE, 4, true, 1024);
+		FastqVisitorMemento[] memento = new FastqVisitorMemento[1];
+		sut.parse(new AbstractFastqVisitor() {
+			int counter=0;
+			@Override
+			public FastqRecordVisitor visitDefline(FastqVisitorCallback callback, String id, String optionalComment) {
+				if(counter++ == 1234){
+					memento[0] = callback.createMemento();
+					callback.haltParsing();
+				}
+				return null;
+			}
+		});
+		RecordCollector actual = new RecordCollector();
+		new FastqFileParserBuilder(FASTQ_FILE, true).hasComments(true).build().parse(actual, memento[0]);
+		
+		assertEquals(EXPECTED.subList(1234, NUMBER_OF_RECORDS), actual.records);
+	}
+	
+	@Test
+	public void haltParsingStopsOrderedParse() throws IOException{
+		AtomicInteger haltedCount = new AtomicInteger();
+		List<String> ids = new ArrayList<>();
+		createSut(FASTQ_FILE, 4, true, 100).parse(new AbstractFastqVisitor() {
+			@Override
+			public FastqRecordVisitor visitDefline(FastqVisitorCallback callback, String id, String optionalComment) {
+				ids.add(id);
+				if(ids.size() ==10){
+					callback.haltParsing();
+				}
+				return null;
+			}
+			@Override
+			public void halted() {
+				haltedCount.incrementAndGet();
+			}
+		});
+		assertEquals(10, ids.size());
+		assertEquals("read9", ids.get(9));
+		assertEquals(1, haltedCount.get());
+	}
+	
+	@Test
+	public void haltParsingStopsUnorderedParse() throws IOException{
+		AtomicInteger count = new AtomicInteger();
+		AtomicInteger haltedCount = new AtomicInteger();
+		createSut(FASTQ_FILE, 4, false, 100).parse(new AbstractFastqVisitor() {
+			@Override
+			public FastqRecordVisitor visitDefline(FastqVisitorCallback callback, String id, String optionalComment) {
+				count.incrementAndGet();
+				callback.haltParsing();
+				return null;
+			}
+			@Override
+			public void halted() {
+				haltedCount.incrementAndGet();
+			}
+		});
+		assertTrue(count.get() < NUMBER_OF_RECORDS);
+		assertEquals(1, haltedCount.get());
+	}
+	
+	@Test
+	public void nonBgzfGzipFileFallsBackToSingleThreaded() throws IOException{
+		File gzip = TMP_DIR.newFile("regular.fastq.gz");
+		try(Writer writer = new BufferedWriter(new OutputStreamWriter(
+				new GZIPOutputStream(new FileOutputStream(gzip)), StandardCharsets.US_ASCII))){
+			writer.write(new String(Files.readAllBytes(FASTQ_FILE.toPath()), StandardCharsets.US_ASCII));
+		}
+		RecordCollector actual = new RecordCollector();
+		createSut(gzip, 4, true, 100).parse(actual);
+		assertEquals(EXPECTED, actual.records);
+	}
+	
+	private static final class RecordCollector extends AbstractFastqVisitor{
+		//visited concurrently in unordered mode
+		private final List<String> records = Collections.synchronizedList(new ArrayList<>());
+		private final AtomicInteger visitEndCount = new AtomicInteger();
+		
+		@Override
+		public FastqRecordVisitor visitDefline(FastqVisitorCallback callback, String id, String optionalComment) {
+			StringBuilder builder = new StringBuilder(id).append(' ').append(optionalComment);
+			return new FastqRecordVisitor() {
+				
+				@Override
+				public void visitNucleotides(String nucleotides) {
+					builder.append(' ').append(nucleotides);
+				}
+				
+				@Override
+				public void visitEncodedQualities(String encodedQualities) {
+					builder.append(' ').append(encodedQualities);
+				}
+				
+				@Override
+				public void visitQualities(QualitySequence qualities) {
+					//no-op
+				}
+				
+				@Override
+				public void visitEnd() {
+					records.add(builder.toString());
+				}
+				
+				@Override
+				public void halted() {
+					//no-op
+				}
+			};
+		}
+		
+		@Override
+		public void visitEnd() {
+			visitEndCount.incrementAndGet();
+		}
+	}
+}
@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.trace.fastq;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.jcvi.jillion.core.datastore.DataStoreProviderHint;
+import org.jcvi.jillion.core.util.iter.StreamingIterator;
+import org.jcvi.jillion.internal.ResourceHelper;
+import org.jcvi.jillion.internal.core.datastore.SidecarIndex;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestPersistentIndexFastqFileDataStore {
+
+	@Rule
+	public TemporaryFolder tmpDir = new TemporaryFolder();
+	
+	private File fastqFile;
+	
+	@Before
+	public void copyFastq() throws IOException{
+		File original = new ResourceHelper(TestPersistentIndexFastqFileDataStore.class).getFile("files/example.fastq");
+		fastqFile = new File(tmpDir.getRoot(), "example.fastq");
+		Files.copy(original.toPath(), fastqFile.toPath());
+	}
+	
+	private FastqFileDataStore create(boolean persistIndex) throws IOException{
+		return new FastqFileDataStoreBuilder(fastqFile)
+							.qualityCodec(FastqQualityCodec.ILLUMINA)
+							.hint(DataStoreProviderHint.RANDOM_ACCESS_OPTIMIZE_MEMORY)
+							.persistIndex(persistIndex)
+							.build();
+	}
+	
+	private static Map<String, FastqRecord> toMap(FastqDataStore datastore) throws IOException{
+		Map<String, FastqRecord> map = new LinkedHashMap<>();
+		try(StreamingIterator<String> ids = datastore.idIterator()){
+			while(ids.hasNext()){
+				String id = ids.next();
+				map.put(id, datastore.get(id));
+			}
+		}
+		return map;
+	}
+	
+	@Test
+	public void indexFileNotWrittenByDefault() throws IOException{
+		try(FastqFileDataStore datastore = create(false)){
+			assertTrue(datastore.getNumberOfRecords() > 0);
+		}
+		assertFalse(SidecarIndex.getIndexFileFor(fastqFile).exists());
+	}
+	
+	@Test
+	public void reopeningUsesIndexFile() throws IOException{
+		Map<String, FastqRecord> expected;
+		try(FastqFileDataStore datastore = create(true)){
+			expected = toMap(datastore);
+		}
+		File indexFile = SidecarIndex.getIndexFileFor(fastqFile);
+		assertTrue(indexFile.exists());
+		long indexLastModified = indexFile.lastModified();
+		
+		try(FastqFileDataStore datastore = create(true)){
+			assertEquals(expected.size(), datastore.getNumberOfRecords());
+			assertEquals(expected, toMap(datastore));
+			assertNull(datastore.get("not an id"));
+		}
+		//not re-written
+		assertEquals(indexLastModified, indexFile.lastModified());
+	}
+	
+	@Test
+	public void filteredDataStoreDoesNotUseIndexFile() throws IOException{
+		try(FastqFileDataStore datastore = new FastqFileDataStoreBuilder(fastqFile)
+											.qualityCodec(FastqQualityCodec.ILLUMINA)
+											.hint(DataStoreProviderHint.RANDOM_ACCESS_OPTIMIZE_MEMORY)
+											.filter(id -> id.endsWith("1489#0/1"))
+											.persistIndex(true)
+											.build()){
+			assertEquals(1, datastore.getNumberOfRecords());
+		}
+		assertFalse(SidecarIndex.getIndexFileFor(fastqFile).exists());
+	}
+}
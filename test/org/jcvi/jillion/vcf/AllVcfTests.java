@@ -17,7 +17,11 @@ import org.junit.runners.Suite.SuiteClasses;
     	VcfContigInfoTest.class,
     	
     	VcfHeaderTest.class,
-    	VcfFileParserTest.class,
+    	VcfFileParserTest.class,
+    	TabixIndexedVcfTest.class,
+    	LazyVcfRecordTest.class,
+    	VcfColumnarVisitorTest.class,
+    	ParallelVcfFileParserTest.class,
     	
     	AllVcfDSLTests.class
     })
@@ -0,0 +1,82 @@
+package org.jcvi.jillion.vcf;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+public class LazyVcfRecordTest {
+
+	private final VcfRecord sut = new LazyVcfRecord(
+			"20\t1110696\trs6040355\tA\tG,T\t67\tPASS\tNS=2;DP=10;AF=0.333,0.667;AA=T;DB\tGT:GQ:DP:HQ\t1|2:21:6:23,27\t0|0:2:0:18,2\t./.:35\t0/1:.:4:5\n");
+	
+	@Test
+	public void fixedColumns(){
+		assertEquals("20", sut.getChromId());
+		assertEquals(1110696, sut.getPosition());
+		assertEquals("rs6040355", sut.getId());
+		assertEquals("A", sut.getRefBase());
+		assertEquals("G,T", sut.getAltBase());
+		assertEquals(67D, sut.getQuality(), 0D);
+		assertEquals("PASS", sut.getFilter());
+		assertEquals("GT:GQ:DP:HQ", sut.getFormat());
+		assertEquals(13, sut.getNumberOfColumns());
+		assertEquals(4, sut.getNumberOfSamples());
+		assertNull(sut.getColumn(13));
+	}
+	
+	@Test
+	public void infoLookup(){
+		assertEquals("10", sut.getInfoValue("DP"));
+		assertEquals("0.333,0.667", sut.getInfoValue("AF"));
+		assertEquals("", sut.getInfoValue("DB"));
+		assertTrue(sut.hasInfoKey("DB"));
+		//prefix of another key should not match
+		assertNull(sut.getInfoValue("A"));
+		assertFalse(sut.hasInfoKey("H2"));
+	}
+	
+	@Test
+	public void sampleValues(){
+		assertEquals(Arrays.asList("1|2:21:6:23,27", "0|0:2:0:18,2", "./.:35", "0/1:.:4:5"), sut.getSampleColumns());
+		int dp = sut.getFormatKeyIndex("DP");
+		assertEquals(2, dp);
+		assertEquals(-1, sut.getFormatKeyIndex("GL"));
+		
+		assertEquals("23,27", sut.getSampleValue(0, "HQ"));
+		assertEquals(6, sut.getSampleValueAsInt(0, dp, -1));
+		//sample 2 is missing trailing fields
+		assertNull(sut.getSampleValue(2, dp));
+		assertEquals(-1, sut.getSampleValueAsInt(2, dp, -1));
+		assertEquals(-1, sut.getSampleValueAsInt(3, sut.getFormatKeyIndex("GQ"), -1));
+		assertEquals(23F, sut.getSampleValueAsFloat(0, sut.getFormatKeyIndex("HQ"), Float.NaN), 0F);
+	}
+	
+	@Test
+	public void nonReferenceAlleleCounts(){
+		assertEquals(2, sut.getNonReferenceAlleleCount(0));
+		assertEquals(0, sut.getNonReferenceAlleleCount(1));
+		assertEquals(VcfRecord.MISSING_GENOTYPE, sut.getNonReferenceAlleleCount(2));
+		assertEquals(1, sut.getNonReferenceAlleleCount(3));
+	}
+	
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void sampleOutOfRangeShouldThrowException(){
+		sut.getSampleColumn(4);
+	}
+	
+	@Test
+	public void noSamples(){
+		VcfRecord record = new LazyVcfRecord("chr1\t5\t.\tA\tC\t.\t.\t.");
+		assertNull(record.getQuality());
+		assertNull(record.getFormat());
+		assertEquals(0, record.getNumberOfSamples());
+		assertEquals(Collections.emptyList(), record.getSampleColumns());
+		assertNull(record.getInfoValue("DP"));
+	}
+}
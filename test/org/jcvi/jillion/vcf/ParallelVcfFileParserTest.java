@@ -0,0 +1,186 @@
+package org.jcvi.jillion.vcf;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jcvi.jillion.sam.BgzfInputStream;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+@RunWith(Parameterized.class)
+public class ParallelVcfFileParserTest {
+
+	private static final int NUMBER_OF_RECORDS = 20_000;
+	//small enough to make lots of blocks
+	private static final int BLOCK_SIZE = 8 * 1024;
+	
+	@Rule
+	public TemporaryFolder tmpDir = new TemporaryFolder();
+	
+	private final boolean bgzipped;
+	private File vcf;
+	
+	@Parameters(name = "bgzipped={0}")
+	public static Collection<Object[]> data(){
+		return Arrays.asList(new Object[]{false}, new Object[]{true});
+	}
+	
+	public ParallelVcfFileParserTest(boolean bgzipped) {
+		this.bgzipped = bgzipped;
+	}
+	
+	@Before
+	public void writeVcf() throws IOException{
+		VcfHeader header = VcfHeader.builder()
+				.version("4.2")
+				.contigInfo(VcfContigInfo.builder().id("chr1").length(5_000_000).build())
+				.extraColumn("sample1")
+				.extraColumn("sample2")
+				.build();
+		if(bgzipped){
+			vcf = tmpDir.newFile("parallel.vcf.gz");
+			try(VcfFileWriter writer = new VcfFileWriter(header, vcf, false)){
+				writeRecords(writer);
+			}
+			assertTrue(BgzfInputStream.isBgzf(vcf));
+		}else{
+			vcf = tmpDir.newFile("parallel.vcf");
+			try(VcfFileWriter writer = new VcfFileWriter(header, new PrintWriter(vcf))){
+				writeRecords(writer);
+			}
+			assertFalse(BgzfInputStream.isBgzf(vcf));
+		}
+	}
+	
+	private static void writeRecords(VcfFileWriter writer) throws IOException{
+		for(int i=1; i<= NUMBER_OF_RECORDS; i++){
+			writer.writeData("chr1", i*10, "rs" + i, "A", "T", i %100, i%7==0? "q10" : "PASS", "DP=" + i, "GT:DP", 
+					Arrays.asList("0/1:" + i, "1/1:" + (i+1)));
+		}
+	}
+	
+	private List<String> parse(VcfParser parser) throws IOException{
+		List<String> list = Collections.synchronizedList(new ArrayList<>());
+		AtomicBoolean ended = new AtomicBoolean();
+		parser.parse(new AbtractVcfVisitor() {
+			
+			@Override
+			public void visitData(VcfVisitorCallback callback, String chromId, int position, String id, String refBase,
+					String altBase, int quality, String filter, String info, String format, List<String> extraFields) {
+				list.add(chromId + ":" + position + ":" + id + ":" + quality + ":" + filter + ":" + info + ":" + format + ":" + extraFields);
+			}
+			
+			@Override
+			protected void visitHeader(VcfVisitorCallback callback, VcfHeader header) {
+				assertEquals(Arrays.asList("sample1", "sample2"), header.getExtraColumns());
+			}
+			
+			@Override
+			public void visitEnd() {
+				ended.set(true);
+			}
+		});
+		assertTrue(ended.get());
+		return list;
+	}
+	
+	private ParallelVcfFileParser createParser(int numberOfThreads, boolean preserveOrder) throws IOException{
+		return new ParallelVcfFileParser(vcf, numberOfThreads, preserveOrder, null, BLOCK_SIZE);
+	}
+	
+	@Test
+	public void inOrderSameAsSingleThreaded() throws IOException{
+		List<String> expected = parse(VcfFileParser.createParserFor(vcf));
+		assertEquals(NUMBER_OF_RECORDS, expected.size());
+		assertEquals(expected, parse(createParser(4, true)));
+	}
+	
+	@Test
+	public void unorderedHasSameRecords() throws IOException{
+		List<String> expected = parse(VcfFileParser.createParserFor(vcf));
+		List<String> actual = parse(createParser(4, false));
+		Collections.sort(expected);
+		Collections.sort(actual);
+		assertEquals(expected, actual);
+	}
+	
+	@Test
+	public void recordVisitorInOrder() throws IOException{
+		List<Integer> positions = new ArrayList<>();
+		createParser(3, true).parse(VcfColumnarVisitor.builder(batch->{
+			for(int i=0; i< batch.getNumberOfRecords(); i++){
+				positions.add(batch.getPosition(i));
+				assertEquals(batch.getPosition(i)/10 +1, batch.getInt("DP", i, 1));
+				assertEquals(2, batch.getGenotype(i, 1));
+			}
+		}).intField("DP").genotypes().build());
+		assertEquals(NUMBER_OF_RECORDS, positions.size());
+		for(int i=0; i< positions.size(); i++){
+			assertEquals((i+1)*10, positions.get(i).intValue());
+		}
+	}
+	
+	@Test
+	public void filterIsApplied() throws IOException{
+		for(int numberOfThreads : new int[]{1, 4}){
+			List<String> actual = parse(new VcfFileParserBuilder(vcf)
+										.numberOfThreads(numberOfThreads)
+										.filter(record -> "q10".equals(record.getFilter()))
+										.build());
+			assertEquals(NUMBER_OF_RECORDS/7, actual.size());
+			for(String record : actual){
+				assertTrue(record, record.contains(":q10:"));
+			}
+		}
+	}
+	
+	@Test
+	public void haltStopsParsing() throws IOException{
+		AtomicInteger count = new AtomicInteger();
+		AtomicBoolean halted = new AtomicBoolean();
+		createParser(4, true).parse(new AbtractVcfVisitor() {
+			
+			@Override
+			public void visitData(VcfVisitorCallback callback, String chromId, int position, String id, String refBase,
+					String altBase, int quality, String filter, String info, String format, List<String> extraFields) {
+				if(count.incrementAndGet() ==100){
+					callback.haltParsing();
+				}
+			}
+			
+			@Override
+			protected void visitHeader(VcfVisitorCallback callback, VcfHeader header) {
+				//no-op
+			}
+			
+			@Override
+			public void halted() {
+				halted.set(true);
+			}
+			
+			@Override
+			public void visitEnd() {
+				throw new AssertionError("should have halted");
+			}
+		});
+		assertTrue(halted.get());
+		assertEquals(100, count.get());
+	}
+}
@@ -0,0 +1,211 @@
+package org.jcvi.jillion.vcf;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.jcvi.jillion.core.Range;
+import org.jcvi.jillion.core.io.InputStreamSupplier;
+import org.jcvi.jillion.internal.sam.index.TabixIndex;
+import org.jcvi.jillion.sam.BgzfInputStream;
+import org.jcvi.jillion.sam.VirtualFileOffset;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TabixIndexedVcfTest {
+
+	@Rule
+	public TemporaryFolder tmpDir = new TemporaryFolder();
+	
+	private File vcf;
+	private VcfHeader header;
+	
+	@Before
+	public void writeIndexedVcf() throws IOException{
+		header = VcfHeader.builder()
+							.version("4.2")
+							.contigInfo(VcfContigInfo.builder().id("chr1").length(5_000_000).build())
+							.contigInfo(VcfContigInfo.builder().id("chr2").length(200_000).build())
+							.extraColumn("sample1")
+							.build();
+		vcf = tmpDir.newFile("indexed.vcf.gz");
+		try(VcfFileWriter writer = new VcfFileWriter(header, vcf, true)){
+			for(int i=1; i< 4_000_000; i+=100){
+				writer.writeData("chr1", i, ".", i%3==0? "ACGT" : "A", "T", 30, "PASS", "DP=" + i, "GT", Collections.singletonList("0/1"));
+			}
+			writer.writeData("chr2", 10, ".", "A", "<DEL>", 30, "PASS", "SVTYPE=DEL;END=150000", "GT", Collections.singletonList("0/1"));
+			for(int i=100_000; i< 190_000; i+=50){
+				writer.writeData("chr2", i, ".", "G", "C", 30, "PASS", "DP=5", "GT", Collections.singletonList("1/1"));
+			}
+			//no length in header
+			writer.writeData("chr3", 1_000_000, ".", "G", "C", 30, "PASS", "DP=5", "GT", Collections.singletonList("1/1"));
+		}
+	}
+	
+	private static List<String> query(VcfParser parser, String chrom, Range range) throws IOException{
+		List<String> list = new ArrayList<>();
+		boolean[] sawHeader = new boolean[1];
+		parser.parse(chrom, range, new AbtractVcfVisitor() {
+			
+			@Override
+			public void visitData(VcfVisitorCallback callback, String chromId, int position, String id, String refBase,
+					String altBase, int quality, String filter, String info, String format, List<String> extraFields) {
+				list.add(chromId + ":" + position + ":" + refBase + ":" + info + ":" + extraFields);
+			}
+			
+			@Override
+			protected void visitHeader(VcfVisitorCallback callback, VcfHeader header) {
+				sawHeader[0]=true;
+			}
+		});
+		assertTrue(sawHeader[0]);
+		return list;
+	}
+	
+	private void assertSameAsFullScan(String chrom, Range range) throws IOException{
+		List<String> expected = query(VcfFileParser.createParserFor(InputStreamSupplier.forFile(vcf)), chrom, range);
+		assertEquals(expected, query(VcfFileParser.createParserFor(vcf), chrom, range));
+	}
+	
+	@Test
+	public void indexWrittenNextToVcf() throws IOException{
+		TabixIndex index = TabixIndex.parse(new File(vcf.getParentFile(), vcf.getName() + ".tbi"));
+		assertEquals(Arrays.asList("chr1", "chr2", "chr3"), index.getReferenceNames());
+		assertEquals(TabixIndex.FORMAT_VCF, index.getFormat());
+		assertEquals('#', index.getMetaCharacter());
+		//a region deep in the file should seek past the first blocks
+		assertTrue(index.findStartOffset("chr1", 3_000_000, 3_000_100).getCompressedBamBlockOffset() > 0);
+		assertNull(index.findStartOffset("chr1", 4_500_000, 4_600_000));
+	}
+	
+	@Test
+	public void regionQueryReturnsOnlyOverlappingVariants() throws IOException{
+		//1-based positions 1001 - 1400 inclusive
+		List<String> actual = query(VcfFileParser.createParserFor(vcf), "chr1", Range.of(Range.CoordinateSystem.RESIDUE_BASED, 1001, 1400));
+		assertEquals(Arrays.asList("chr1:1001:A:DP=1001:[0/1]", 
+									"chr1:1101:ACGT:DP=1101:[0/1]", 
+									"chr1:1201:A:DP=1201:[0/1]", 
+									"chr1:1301:A:DP=1301:[0/1]"), actual);
+	}
+	
+	@Test
+	public void regionQueriesMatchFullScan() throws IOException{
+		assertSameAsFullScan("chr1", Range.of(0, 10));
+		assertSameAsFullScan("chr1", Range.of(250_000, 300_000));
+		assertSameAsFullScan("chr1", Range.of(3_999_000, 4_999_999));
+		assertSameAsFullScan("chr2", Range.of(120_000, 120_100));
+		assertSameAsFullScan("chr3", Range.of(0, 2_000_000));
+	}
+	
+	@Test
+	public void refAlleleOverlappingRegionStartIsIncluded() throws IOException{
+		//variant at 1101 has a 4bp reference allele covering 1101-1104
+		List<String> actual = query(VcfFileParser.createParserFor(vcf), "chr1", Range.of(Range.CoordinateSystem.RESIDUE_BASED, 1103, 1105));
+		assertEquals(Collections.singletonList("chr1:1101:ACGT:DP=1101:[0/1]"), actual);
+	}
+	
+	@Test
+	public void infoEndIsUsedForOverlap() throws IOException{
+		List<String> actual = query(VcfFileParser.createParserFor(vcf), "chr2", Range.of(50_000, 60_000));
+		assertEquals(Collections.singletonList("chr2:10:A:SVTYPE=DEL;END=150000:[0/1]"), actual);
+	}
+	
+	@Test
+	public void regionWithNoVariantsIsEmpty() throws IOException{
+		assertTrue(query(VcfFileParser.createParserFor(vcf), "chr1", Range.of(4_500_000, 4_600_000)).isEmpty());
+		assertTrue(query(VcfFileParser.createParserFor(vcf), "chrUnknown", Range.of(0, 100)).isEmpty());
+	}
+	
+	@Test
+	public void fullParseOfBgzippedVcf() throws IOException{
+		int[] count = new int[1];
+		VcfFileParser.createParserFor(vcf).parse(new AbtractVcfVisitor() {
+			
+			@Override
+			public void visitData(VcfVisitorCallback callback, String chromId, int position, String id, String refBase,
+					String altBase, int quality, String filter, String info, String format, List<String> extraFields) {
+				count[0]++;
+			}
+			
+			@Override
+			protected void visitHeader(VcfVisitorCallback callback, VcfHeader header) {
+				assertEquals(Collections.singletonList("sample1"), header.getExtraColumns());
+			}
+		});
+		assertEquals(40_000 + 1 + 1_800 + 1, count[0]);
+	}
+	
+	@Test
+	public void unsortedVariantsShouldThrowIllegalArgumentException() throws IOException{
+		File unsorted = tmpDir.newFile("unsorted.vcf.gz");
+		try(VcfFileWriter writer = new VcfFileWriter(header, unsorted, true)){
+			writer.writeData("chr1", 100, ".", "A", "T", 30, "PASS", "DP=1", "GT", Collections.singletonList("0/1"));
+			writer.writeData("chr1", 50, ".", "A", "T", 30, "PASS", "DP=1", "GT", Collections.singletonList("0/1"));
+			throw new AssertionError("should throw IllegalArgumentException");
+		}catch(IllegalArgumentException expected){
+			assertFalse(expected.getMessage().isEmpty());
+		}
+	}
+	
+	@Test
+	public void rejectedVariantIsNotWrittenAndWriterCanContinue() throws IOException{
+		File partlyUnsorted = tmpDir.newFile("partlyUnsorted.vcf.gz");
+		try(VcfFileWriter writer = new VcfFileWriter(header, partlyUnsorted, true)){
+			writer.writeData("chr1", 100, ".", "A", "T", 30, "PASS", "DP=1", "GT", Collections.singletonList("0/1"));
+			try{
+				writer.writeData("chr1", 50, ".", "A", "T", 30, "PASS", "DP=2", "GT", Collections.singletonList("0/1"));
+				throw new AssertionError("should throw IllegalArgumentException");
+			}catch(IllegalArgumentException expected){
+				//expected
+			}
+			try{
+				writer.writeData("chr2", 199_999, ".", "ACGT", "T", 30, "PASS", "DP=3", "GT", Collections.singletonList("0/1"));
+				throw new AssertionError("should throw IllegalArgumentException");
+			}catch(IllegalArgumentException expected){
+				//expected
+			}
+			writer.writeData("chr1", 200, ".", "A", "T", 30, "PASS", "DP=4", "GT", Collections.singletonList("0/1"));
+		}
+		List<String> expected = Arrays.asList("chr1:100:A:DP=1:[0/1]", "chr1:200:A:DP=4:[0/1]");
+		assertEquals(expected, query(VcfFileParser.createParserFor(InputStreamSupplier.forFile(partlyUnsorted)), "chr1", Range.of(0, 1_000)));
+		assertEquals(expected, query(VcfFileParser.createParserFor(partlyUnsorted), "chr1", Range.of(0, 1_000)));
+	}
+	
+	@Test
+	public void invalidRecordDoesNotChangeIndexBuilder(){
+		VirtualFileOffset offset = VirtualFileOffset.create(0, 0);
+		TabixIndex.Builder builder = TabixIndex.Builder.forVcf()
+												.setReferenceLength("chr2", 100)
+												.addRecord("chr1", 10, 11, offset, offset);
+		try{
+			builder.addRecord("chr2", 50, 150, offset, offset);
+			throw new AssertionError("should throw IllegalArgumentException");
+		}catch(IllegalArgumentException expected){
+			//expected
+		}
+		builder.addRecord("chr1", 20, 21, offset, offset);
+		assertEquals(Collections.singletonList("chr1"), builder.build().getReferenceNames());
+	}
+	
+	@Test
+	public void isBgzf() throws IOException{
+		assertTrue(BgzfInputStream.isBgzf(vcf));
+		File plain = tmpDir.newFile("plain.vcf");
+		try(VcfFileWriter writer = new VcfFileWriter(header, new PrintWriter(plain, "UTF-8"))){
+			writer.writeData("chr1", 100, ".", "A", "T", 30, "PASS", "DP=1", "GT", Collections.singletonList("0/1"));
+		}
+		assertFalse(BgzfInputStream.isBgzf(plain));
+		assertFalse(BgzfInputStream.isBgzf(tmpDir.newFile("empty.vcf")));
+	}
+}
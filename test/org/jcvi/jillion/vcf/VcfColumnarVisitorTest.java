@@ -0,0 +1,77 @@
+package org.jcvi.jillion.vcf;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jcvi.jillion.internal.ResourceHelper;
+import org.junit.Test;
+
+public class VcfColumnarVisitorTest {
+	private static final ResourceHelper RESOURCES = new ResourceHelper(VcfColumnarVisitorTest.class);
+
+	private final List<Integer> positions = new ArrayList<>();
+	private final List<int[]> depths = new ArrayList<>();
+	private final List<byte[]> genotypes = new ArrayList<>();
+	private final List<float[]> haplotypeQualities = new ArrayList<>();
+	
+	private void parse(int batchSize) throws IOException{
+		File f = RESOURCES.getFile("files/example.vcf");
+		VcfColumnarVisitor visitor = VcfColumnarVisitor.builder(batch ->{
+											assertEquals(Arrays.asList("NA00001", "NA00002", "NA00003"), batch.getSampleNames());
+											int n = batch.getNumberOfSamples();
+											for(int i=0; i< batch.getNumberOfRecords(); i++){
+												assertEquals("20", batch.getChromId(i));
+												positions.add(batch.getPosition(i));
+												depths.add(Arrays.copyOfRange(batch.getIntColumn("DP"), i*n, (i+1)*n));
+												genotypes.add(Arrays.copyOfRange(batch.getGenotypes(), i*n, (i+1)*n));
+												haplotypeQualities.add(Arrays.copyOfRange(batch.getFloatColumn("HQ"), i*n, (i+1)*n));
+											}
+										})
+											.batchSize(batchSize)
+											.intField("DP")
+											.floatField("HQ")
+											.genotypes()
+											.build();
+		VcfFileParser.createParserFor(f).parse(visitor);
+	}
+	
+	@Test
+	public void batchSmallerThanNumberOfRecords() throws IOException{
+		parse(2);
+		assertParsedCorrectly();
+	}
+	
+	@Test
+	public void batchLargerThanNumberOfRecords() throws IOException{
+		parse(VcfColumnarVisitor.DEFAULT_BATCH_SIZE);
+		assertParsedCorrectly();
+	}
+	
+	private void assertParsedCorrectly(){
+		assertEquals(Arrays.asList(14370, 17330, 1110696, 1230237, 1234567), positions);
+		
+		assertArrayEquals(new int[]{1, 8, 5}, depths.get(0));
+		assertArrayEquals(new int[]{6, 0, 4}, depths.get(2));
+		assertArrayEquals(new int[]{4, 2, 3}, depths.get(4));
+		
+		assertArrayEquals(new byte[]{0, 1, 2}, genotypes.get(0));
+		assertArrayEquals(new byte[]{0, 1, 0}, genotypes.get(1));
+		assertArrayEquals(new byte[]{2, 2, 2}, genotypes.get(2));
+		assertArrayEquals(new byte[]{1, 1, 2}, genotypes.get(4));
+		
+		assertArrayEquals(new float[]{51, 51, Float.NaN}, haplotypeQualities.get(0), 0F);
+		//no HQ in the FORMAT
+		assertArrayEquals(new float[]{Float.NaN, Float.NaN, Float.NaN}, haplotypeQualities.get(4), 0F);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void invalidBatchSizeShouldThrowIllegalArgumentException(){
+		VcfColumnarVisitor.builder(batch ->{}).batchSize(0);
+	}
+}